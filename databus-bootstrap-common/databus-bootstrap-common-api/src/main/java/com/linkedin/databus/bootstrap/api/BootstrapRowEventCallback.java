@@ -0,0 +1,38 @@
+package com.linkedin.databus.bootstrap.api;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+
+/**
+ * A {@link BootstrapEventCallback} which can also process rows which have already been read from
+ * the database, e.g. rows served from a cache shared by several bootstrap requests.
+ */
+public interface BootstrapRowEventCallback extends BootstrapEventCallback
+{
+  /**
+   * Called for each row instead of {@link #onEvent(java.sql.ResultSet, DbusEventsStatisticsCollector)}
+   * @param rowId           the id of the row
+   * @param eventBytes      the serialized event stored in the row
+   */
+  BootstrapEventProcessResult onEvent(long rowId, byte[] eventBytes,
+                                      DbusEventsStatisticsCollector statsCollector)
+      throws BootstrapProcessingException;
+}
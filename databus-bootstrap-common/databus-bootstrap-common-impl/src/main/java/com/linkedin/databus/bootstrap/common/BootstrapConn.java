@@ -28,6 +28,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -44,6 +46,8 @@ public class BootstrapConn
   private boolean            _autoCommit;
   private int                _isolationLevel;
   private PreparedStatement  _maxridStmt;
+  /** LRU cache of prepared statements by SQL string; null if statement caching is disabled */
+  private StatementCache     _stmtCache;
 
   public static final String MODULE = BootstrapConn.class.getName();
   public static final Logger LOG    = Logger.getLogger(MODULE);
@@ -59,11 +63,80 @@ public class BootstrapConn
   {
 	if ( (null == _bootstrapConn) || (_bootstrapConn.isClosed()))
 	{
+		closeStatements();
 		createNewBootstrapConnection();
 	}
     return _bootstrapConn;
   }
 
+  /**
+   * Enables caching of up to cacheSize statements returned by {@link #prepareCachedStatement(String)}.
+   * A size <= 0 disables the cache.
+   */
+  public void setStatementCacheSize(int cacheSize)
+  {
+    closeStatements();
+    _stmtCache = (cacheSize > 0) ? new StatementCache(cacheSize) : null;
+  }
+
+  /**
+   * Returns a prepared statement for the given SQL, reusing a previously prepared one if statement
+   * caching is enabled. Statements from the cache are owned by the connection: callers must close
+   * their result sets but must not close the statement itself (use {@link #releaseStatement(PreparedStatement)}).
+   */
+  public PreparedStatement prepareCachedStatement(String sql)
+    throws SQLException
+  {
+    Connection conn = getDBConn();
+    if (null == _stmtCache)
+    {
+      return conn.prepareStatement(sql);
+    }
+
+    PreparedStatement stmt = _stmtCache.get(sql);
+    if (null == stmt)
+    {
+      stmt = conn.prepareStatement(sql);
+      _stmtCache.put(sql, stmt);
+    }
+    else
+    {
+      stmt.clearParameters();
+    }
+    return stmt;
+  }
+
+  /**
+   * Releases a statement obtained from {@link #prepareCachedStatement(String)}. The statement is
+   * closed only if it is not cached.
+   */
+  public void releaseStatement(PreparedStatement stmt)
+  {
+    if (null == stmt)
+      return;
+    if ((null == _stmtCache) || !_stmtCache.containsValue(stmt))
+    {
+      DBHelper.close(stmt);
+    }
+  }
+
+  private void closeStatements()
+  {
+    if (null != _stmtCache)
+    {
+      for (PreparedStatement stmt: _stmtCache.values())
+      {
+        DBHelper.close(stmt);
+      }
+      _stmtCache.clear();
+    }
+    if (null != _maxridStmt)
+    {
+      DBHelper.close(_maxridStmt);
+      _maxridStmt = null;
+    }
+  }
+
   public String getSrcTableName(int srcId)
   {
     return "tab_" + srcId;
@@ -286,6 +359,7 @@ public class BootstrapConn
 
   public void close()
   {
+     closeStatements();
 	 DBHelper.close(_bootstrapConn);
      _bootstrapConn = null;
   }
@@ -345,4 +419,25 @@ public class BootstrapConn
 	  return maxrid;
   }
 
+  /** LRU map of prepared statements which closes the evicted statements */
+  private static class StatementCache extends LinkedHashMap<String, PreparedStatement>
+  {
+    private static final long serialVersionUID = 1L;
+    private final int _maxSize;
+
+    public StatementCache(int maxSize)
+    {
+      super(16, 0.75f, true);
+      _maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest)
+    {
+      if (size() <= _maxSize)
+        return false;
+      DBHelper.close(eldest.getValue());
+      return true;
+    }
+  }
 }
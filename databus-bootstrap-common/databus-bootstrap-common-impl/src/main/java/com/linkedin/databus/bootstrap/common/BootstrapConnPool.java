@@ -0,0 +1,220 @@
+package com.linkedin.databus.bootstrap.common;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A bounded pool of {@link BootstrapConn} connections to the bootstrap DB.
+ *
+ * At most maxSize connections are handed out at any time; callers of {@link #acquire()} wait up to
+ * maxWaitMs for a connection to be released before failing. Connections are created lazily and
+ * are kept open (together with their prepared-statement caches) when released, so that the
+ * per-request setup cost is paid only once per connection.
+ */
+public class BootstrapConnPool
+{
+  public static final String MODULE = BootstrapConnPool.class.getName();
+  public static final Logger LOG    = Logger.getLogger(MODULE);
+
+  private final int _maxSize;
+  private final long _maxWaitMs;
+  private final int _stmtCacheSize;
+  private final boolean _autoCommit;
+  private final String _userName;
+  private final String _password;
+  private final String _hostName;
+  private final String _dbName;
+  /** permits for the connections which can still be handed out */
+  private final Semaphore _available;
+  /** idle connections; the most recently released connection is reused first */
+  private final LinkedBlockingDeque<BootstrapConn> _idle = new LinkedBlockingDeque<BootstrapConn>();
+  private volatile boolean _closed = false;
+
+  public BootstrapConnPool(int maxSize,
+                           long maxWaitMs,
+                           int stmtCacheSize,
+                           boolean autoCommit,
+                           String userName,
+                           String password,
+                           String hostName,
+                           String dbName)
+  {
+    if (maxSize <= 0)
+    {
+      throw new IllegalArgumentException("invalid bootstrap DB connection pool size: " + maxSize);
+    }
+    _maxSize = maxSize;
+    _maxWaitMs = maxWaitMs;
+    _stmtCacheSize = stmtCacheSize;
+    _autoCommit = autoCommit;
+    _userName = userName;
+    _password = password;
+    _hostName = hostName;
+    _dbName = dbName;
+    _available = new Semaphore(maxSize, true);
+  }
+
+  /**
+   * Obtains a connection from the pool, opening a new one if there are no idle connections. The
+   * connection must be returned with {@link #release(BootstrapConn, boolean)}.
+   * @throws SQLException if no connection became available within the max wait time or a new
+   *         connection cannot be opened
+   */
+  public BootstrapConn acquire() throws SQLException
+  {
+    if (_closed)
+    {
+      throw new SQLException("bootstrap DB connection pool is closed");
+    }
+    try
+    {
+      if (!_available.tryAcquire(_maxWaitMs, TimeUnit.MILLISECONDS))
+      {
+        throw new SQLException("timed out waiting " + _maxWaitMs +
+                               " ms for a bootstrap DB connection; pool size: " + _maxSize);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new SQLException("interrupted while waiting for a bootstrap DB connection");
+    }
+
+    try
+    {
+      BootstrapConn conn = _idle.pollFirst();
+      if (null == conn)
+      {
+        conn = createConnection();
+      }
+      else
+      {
+        checkConnection(conn);
+      }
+      return conn;
+    }
+    catch (SQLException e)
+    {
+      _available.release();
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      _available.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a connection to the pool.
+   * @param conn      the connection obtained from {@link #acquire()}
+   * @param discard   if true, the connection is closed instead of being reused (e.g. after an error)
+   */
+  public void release(BootstrapConn conn, boolean discard)
+  {
+    if (null == conn)
+      return;
+
+    if (discard || _closed)
+    {
+      conn.close();
+    }
+    else
+    {
+      _idle.offerFirst(conn);
+    }
+    _available.release();
+
+    // close connections released concurrently with close()
+    if (_closed)
+      closeIdle();
+  }
+
+  /** Closes the idle connections; connections released later are closed too. */
+  public void close()
+  {
+    _closed = true;
+    closeIdle();
+  }
+
+  private void closeIdle()
+  {
+    BootstrapConn conn;
+    while (null != (conn = _idle.pollFirst()))
+    {
+      conn.close();
+    }
+  }
+
+  /** Reopens the idle connection if it has been closed */
+  protected void checkConnection(BootstrapConn conn) throws SQLException
+  {
+    conn.getDBConn();
+  }
+
+  protected BootstrapConn createConnection() throws SQLException
+  {
+    BootstrapConn conn = new BootstrapConn();
+    try
+    {
+      conn.initBootstrapConn(_autoCommit, _userName, _password, _hostName, _dbName);
+    }
+    catch (InstantiationException e)
+    {
+      throw new SQLException("unable to load the JDBC driver: " + e, e);
+    }
+    catch (IllegalAccessException e)
+    {
+      throw new SQLException("unable to load the JDBC driver: " + e, e);
+    }
+    catch (ClassNotFoundException e)
+    {
+      throw new SQLException("unable to load the JDBC driver: " + e, e);
+    }
+    conn.setStatementCacheSize(_stmtCacheSize);
+    if (LOG.isDebugEnabled())
+    {
+      LOG.debug("opened new bootstrap DB connection: " + conn);
+    }
+    return conn;
+  }
+
+  public int getMaxSize()
+  {
+    return _maxSize;
+  }
+
+  /** The number of connections which are currently handed out */
+  public int getNumActive()
+  {
+    return _maxSize - _available.availablePermits();
+  }
+
+  public int getNumIdle()
+  {
+    return _idle.size();
+  }
+}
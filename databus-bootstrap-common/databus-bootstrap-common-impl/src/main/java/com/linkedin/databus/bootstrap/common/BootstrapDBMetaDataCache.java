@@ -0,0 +1,153 @@
+package com.linkedin.databus.bootstrap.common;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataDAO.SourceStatusInfo;
+
+/**
+ * A cache of the bootstrap DB metadata which is read by every bootstrap request: the id and status
+ * of the sources (bootstrap_sources) and the SCN ranges of their log tables (bootstrap_loginfo).
+ *
+ * The entries expire after a configurable time so that changes made by the producer, applier and
+ * cleaner become visible to the bootstrap server within that time. The cache is thread-safe and is
+ * meant to be shared by all {@link BootstrapDBMetaDataDAO} instances of a bootstrap server.
+ */
+public class BootstrapDBMetaDataCache
+{
+  private final long _ttlMs;
+  private final ConcurrentHashMap<String, Entry<SourceStatusInfo>> _srcStatus =
+      new ConcurrentHashMap<String, Entry<SourceStatusInfo>>();
+  private final ConcurrentHashMap<Integer, Entry<List<LogInfo>>> _logInfos =
+      new ConcurrentHashMap<Integer, Entry<List<LogInfo>>>();
+
+  public BootstrapDBMetaDataCache(long ttlMs)
+  {
+    _ttlMs = ttlMs;
+  }
+
+  public long getTtlMs()
+  {
+    return _ttlMs;
+  }
+
+  /** @return the cached status of the source or null if there is no valid entry */
+  public SourceStatusInfo getSrcStatus(String source)
+  {
+    return getValid(_srcStatus.get(source));
+  }
+
+  public void putSrcStatus(String source, SourceStatusInfo status)
+  {
+    _srcStatus.put(source, new Entry<SourceStatusInfo>(status, expirationTime()));
+  }
+
+  /** @return the cached log tables of the source sorted by logid or null if there is no valid entry */
+  public List<LogInfo> getLogInfos(int srcId)
+  {
+    return getValid(_logInfos.get(srcId));
+  }
+
+  public void putLogInfos(int srcId, List<LogInfo> logInfos)
+  {
+    _logInfos.put(srcId, new Entry<List<LogInfo>>(Collections.unmodifiableList(logInfos),
+                                                  expirationTime()));
+  }
+
+  public void invalidate()
+  {
+    _srcStatus.clear();
+    _logInfos.clear();
+  }
+
+  private long expirationTime()
+  {
+    return System.currentTimeMillis() + _ttlMs;
+  }
+
+  private static <T> T getValid(Entry<T> e)
+  {
+    return (null != e && System.currentTimeMillis() < e._expirationTime) ? e._value : null;
+  }
+
+  private static class Entry<T>
+  {
+    private final T _value;
+    private final long _expirationTime;
+
+    public Entry(T value, long expirationTime)
+    {
+      _value = value;
+      _expirationTime = expirationTime;
+    }
+  }
+
+  /** A row of bootstrap_loginfo */
+  public static class LogInfo
+  {
+    private final int _logId;
+    private final long _minWindowScn;
+    private final long _maxWindowScn;
+    private final boolean _deleted;
+
+    public LogInfo(int logId, long minWindowScn, long maxWindowScn, boolean deleted)
+    {
+      _logId = logId;
+      _minWindowScn = minWindowScn;
+      _maxWindowScn = maxWindowScn;
+      _deleted = deleted;
+    }
+
+    public int getLogId()
+    {
+      return _logId;
+    }
+
+    public long getMinWindowScn()
+    {
+      return _minWindowScn;
+    }
+
+    public long getMaxWindowScn()
+    {
+      return _maxWindowScn;
+    }
+
+    public boolean isDeleted()
+    {
+      return _deleted;
+    }
+
+    public boolean containsScn(long scn)
+    {
+      return _minWindowScn <= scn && scn <= _maxWindowScn;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "LogInfo [logId=" + _logId + ", minWindowScn=" + _minWindowScn + ", maxWindowScn="
+          + _maxWindowScn + ", deleted=" + _deleted + "]";
+    }
+  }
+}
@@ -35,6 +35,7 @@ import org.apache.log4j.Logger;
 
 import com.linkedin.databus.bootstrap.api.BootstrapProcessingException;
 import com.linkedin.databus.bootstrap.api.BootstrapProducerStatus;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataCache.LogInfo;
 import com.linkedin.databus2.core.DatabusException;
 import com.linkedin.databus2.core.container.request.BootstrapDBException;
 import com.linkedin.databus2.core.container.request.BootstrapDatabaseTooOldException;
@@ -54,9 +55,13 @@ public class BootstrapDBMetaDataDAO
   public static final long INFINITY_WINDOWSCN= Long.MAX_VALUE;
   public static final String MIN_SCN_TABLE_NAME = "bootstrap_tab_minscn";
   public static final String CREATE_MINSCN_TABLE = MIN_SCN_TABLE_NAME + " (srcid int(11) NOT NULL,minscn bigint(20) NOT NULL default -1, PRIMARY KEY  (srcid)) ENGINE=InnoDB;";
+  public static final String SEEDER_RANGE_STATE_TABLE_NAME = "bootstrap_seeder_range_state";
+  public static final String CREATE_SEEDER_RANGE_STATE_TABLE = SEEDER_RANGE_STATE_TABLE_NAME + " (srcid int(11) NOT NULL,rangeid int(11) NOT NULL,beginkey varchar(255) NOT NULL,endkey varchar(255) default NULL,endinclusive TINYINT NOT NULL default 0,srckey varchar(255) NOT NULL default '',rid bigint(20) NOT NULL default 0,done TINYINT NOT NULL default 0,PRIMARY KEY  (srcid, rangeid)) ENGINE=InnoDB;";
 
 
   private final BootstrapConn _bootstrapConn;
+  /** optional cache of the source status and log info; shared with other DAOs */
+  private BootstrapDBMetaDataCache _metaDataCache;
 
   private final String _dbHostname;
   private final String _dbUsername;
@@ -96,6 +101,7 @@ public class BootstrapDBMetaDataDAO
         "CREATE TABLE if not exists " + _dbName + ".bootstrap_applier_state (srcid int(11) NOT NULL,logid int(11) NOT NULL default 0,windowscn bigint(20) NOT NULL default 0,rid bigint(20) NOT NULL default 0,PRIMARY KEY  (srcid)) ENGINE=InnoDB;",
         "CREATE TABLE if not exists " + _dbName + ".bootstrap_seeder_state (srcid int(11) NOT NULL,startscn bigint(20) NOT NULL default -1,endscn bigint(20) NOT NULL default -1,rid bigint(20) NOT NULL default 0,srckey varchar(255) NOT NULL default '',PRIMARY KEY  (srcid)) ENGINE=InnoDB;",
         "CREATE TABLE if not exists " + _dbName + "." + CREATE_MINSCN_TABLE,
+        "CREATE TABLE if not exists " + _dbName + "." + CREATE_SEEDER_RANGE_STATE_TABLE,
     };
 
     for (int i =0; i < sql.length; i++)
@@ -108,6 +114,12 @@ public class BootstrapDBMetaDataDAO
     _bootstrapConn.executeDDL(sql);
   }
 
+  public void setupSeederRangeStateTable() throws SQLException
+  {
+    String sql = "CREATE TABLE if not exists " + _dbName + "." + CREATE_SEEDER_RANGE_STATE_TABLE;
+    _bootstrapConn.executeDDL(sql);
+  }
+
   public static void createDB(String dbName, String dbUsername, String dbPassword, String dbHostname)
       throws SQLException
   {
@@ -370,6 +382,7 @@ public class BootstrapDBMetaDataDAO
     final String DELETE_PRODUCER_STATE_ENTRY_PREFIX = "delete from bootstrap_producer_state where srcid = ";
     final String DELETE_LOGINFO_ENTRY_PREFIX = "delete from bootstrap_loginfo where srcid = ";
     final String DELETE_MINSCN_ENTRY_PREFIX = "delete from bootstrap_tab_minscn where srcid = ";
+    final String DELETE_SEEDER_RANGE_STATE_ENTRY_PREFIX = "delete from bootstrap_seeder_range_state where srcid = ";
     final String DROP_TAB_TABLE_PREFIX ="drop table if exists tab_";
     final String DROP_LOG_TABLE_PREFIX = "drop table if exists log_";
     List<Integer> logIds = getAllActiveLogIdsForSource(srcId);
@@ -381,6 +394,7 @@ public class BootstrapDBMetaDataDAO
 
     _bootstrapConn.executeUpdate(DELETE_LOGINFO_ENTRY_PREFIX + srcId);
     _bootstrapConn.executeUpdate(DELETE_MINSCN_ENTRY_PREFIX + srcId);
+    _bootstrapConn.executeUpdate(DELETE_SEEDER_RANGE_STATE_ENTRY_PREFIX + srcId);
 
     for (Integer logId : logIds)
     {
@@ -523,16 +537,26 @@ public class BootstrapDBMetaDataDAO
   public SourceStatusInfo getSrcIdStatusFromDB(String source, boolean activeCheck)
       throws SQLException, BootstrapDatabaseTooOldException
   {
+    if (null != _metaDataCache)
+    {
+      SourceStatusInfo cached = _metaDataCache.getSrcStatus(source);
+      if (null != cached)
+      {
+        if ( activeCheck )
+          validateStatus(source, cached.getStatus());
+        return new SourceStatusInfo(source, cached.getSrcId(), cached.getStatus());
+      }
+    }
+
     int srcid = -1;
     int status = 1;
     PreparedStatement getSrcStmt = null;
     ResultSet rs = null;
-    Connection conn = _bootstrapConn.getDBConn();
     SourceStatusInfo srcIdStatusPair = null;
     try
     {
 
-      getSrcStmt = conn.prepareStatement("SELECT id, status from bootstrap_sources where src = ?");
+      getSrcStmt = _bootstrapConn.prepareCachedStatement("SELECT id, status from bootstrap_sources where src = ?");
       getSrcStmt.setString(1, source);
       rs=getSrcStmt.executeQuery();
 
@@ -545,6 +569,8 @@ public class BootstrapDBMetaDataDAO
       //LOG.info("srcid=" + srcid + " status=" + status);
 
       srcIdStatusPair = new SourceStatusInfo(source, srcid, status);
+      if ((null != _metaDataCache) && srcIdStatusPair.isValidSource())
+        _metaDataCache.putSrcStatus(source, new SourceStatusInfo(source, srcid, status));
 
       if ( activeCheck )
         validateStatus(source, status);
@@ -560,7 +586,8 @@ public class BootstrapDBMetaDataDAO
     }
     finally
     {
-      DBHelper.close(rs,getSrcStmt,null);
+      DBHelper.close(rs);
+      _bootstrapConn.releaseStatement(getSrcStmt);
     }
 
     return srcIdStatusPair;
@@ -914,9 +941,16 @@ public class BootstrapDBMetaDataDAO
   public int getLogIdToCatchup(int srcId, long sinceScn)
       throws SQLException, BootstrapProcessingException
   {
+    if ((null != _metaDataCache) && (0 < sinceScn))
+    {
+      int logid = getCachedLogIdToCatchup(srcId, sinceScn);
+      // on a miss, go to the DB which also reports the errors
+      if (0 <= logid)
+        return logid;
+    }
+
     int logid = -1;
     int deleted  = 0;
-    Connection conn = _bootstrapConn.getDBConn();
     PreparedStatement stmt = null;
     ResultSet rs = null;
 
@@ -926,14 +960,14 @@ public class BootstrapDBMetaDataDAO
       { // special handling for invalid scn, e.g. 0 or -1:
         // in this case, we want to ruturn the logid corresponding to the earliest log
         stmt =
-            conn.prepareStatement("select logid, deleted from bootstrap_loginfo where srcid = ? and minwindowscn = (select min(minwindowscn) from bootstrap_loginfo where srcid = ? and deleted != 1 and minwindowscn >= 0)  order by logid asc limit 1");
+            _bootstrapConn.prepareCachedStatement("select logid, deleted from bootstrap_loginfo where srcid = ? and minwindowscn = (select min(minwindowscn) from bootstrap_loginfo where srcid = ? and deleted != 1 and minwindowscn >= 0)  order by logid asc limit 1");
         stmt.setInt(1, srcId);
         stmt.setInt(2, srcId);
       }
       else
       {
         stmt =
-            conn.prepareStatement("SELECT logid, deleted from bootstrap_loginfo where srcid = ? and minwindowscn <= ? and maxwindowscn >= ? order by logid asc limit 1");
+            _bootstrapConn.prepareCachedStatement("SELECT logid, deleted from bootstrap_loginfo where srcid = ? and minwindowscn <= ? and maxwindowscn >= ? order by logid asc limit 1");
         stmt.setInt(1, srcId);
         stmt.setLong(2, sinceScn);
         stmt.setLong(3, sinceScn);
@@ -959,17 +993,95 @@ public class BootstrapDBMetaDataDAO
       LOG.error("Error encountered while selecting logid from bootstrap_loginfo", e);
       throw e;
     } finally {
-      DBHelper.close(rs,stmt,null);
+      DBHelper.close(rs);
+      _bootstrapConn.releaseStatement(stmt);
     }
 
     return logid;
   }
 
+  /**
+   * Looks up the log table with the since scn in the metadata cache, loading the log info of the
+   * source if needed.
+   * @return the logid or -1 if no live log table with the scn is known
+   */
+  private int getCachedLogIdToCatchup(int srcId, long sinceScn)
+      throws SQLException
+  {
+    List<LogInfo> logInfos = _metaDataCache.getLogInfos(srcId);
+    if (null == logInfos)
+    {
+      logInfos = getLogInfosFromDB(srcId);
+      _metaDataCache.putLogInfos(srcId, logInfos);
+    }
+
+    for (LogInfo logInfo: logInfos)
+    {
+      if (logInfo.containsScn(sinceScn))
+      {
+        if (logInfo.isDeleted())
+          return -1;
+        if (LOG.isDebugEnabled())
+          LOG.debug("cached logid for catchup:" + logInfo.getLogId() + " srcid=" + srcId + " scn=" + sinceScn);
+        return logInfo.getLogId();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the rows of bootstrap_loginfo for the source ordered by logid
+   */
+  public List<LogInfo> getLogInfosFromDB(int srcId)
+      throws SQLException
+  {
+    List<LogInfo> result = new ArrayList<LogInfo>();
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try
+    {
+      stmt = _bootstrapConn.prepareCachedStatement(
+          "SELECT logid, minwindowscn, maxwindowscn, deleted from bootstrap_loginfo where srcid = ? order by logid asc");
+      stmt.setInt(1, srcId);
+      rs = stmt.executeQuery();
+      while (rs.next())
+      {
+        result.add(new LogInfo(rs.getInt(1), rs.getLong(2), rs.getLong(3), 1 == rs.getInt(4)));
+      }
+    }
+    catch (SQLException e)
+    {
+      LOG.error("Error encountered while selecting log info from bootstrap_loginfo", e);
+      throw e;
+    }
+    finally
+    {
+      DBHelper.close(rs);
+      _bootstrapConn.releaseStatement(stmt);
+    }
+    return result;
+  }
+
   public BootstrapConn getBootstrapConn()
   {
     return _bootstrapConn;
   }
 
+  public BootstrapDBMetaDataCache getMetaDataCache()
+  {
+    return _metaDataCache;
+  }
+
+  /**
+   * Sets a cache for the source status and log info lookups done by
+   * {@link #getSrcIdStatusFromDB(String, boolean)} and {@link #getLogIdToCatchup(int, long)}.
+   * Only DAOs used for serving (not for updating the metadata) should use a cache.
+   */
+  public void setMetaDataCache(BootstrapDBMetaDataCache metaDataCache)
+  {
+    _metaDataCache = metaDataCache;
+  }
+
   public Map<String, SourceInfo> getDBTrackedSources(Set<String> configedSources)
       throws SQLException, DatabusException
   {
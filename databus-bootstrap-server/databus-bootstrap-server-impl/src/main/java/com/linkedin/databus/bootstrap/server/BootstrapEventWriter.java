@@ -26,9 +26,9 @@ import java.sql.SQLException;
 
 import org.apache.log4j.Logger;
 
-import com.linkedin.databus.bootstrap.api.BootstrapEventCallback;
 import com.linkedin.databus.bootstrap.api.BootstrapEventProcessResult;
 import com.linkedin.databus.bootstrap.api.BootstrapProcessingException;
+import com.linkedin.databus.bootstrap.api.BootstrapRowEventCallback;
 import com.linkedin.databus.core.Checkpoint;
 import com.linkedin.databus.core.DbusEventFactory;
 import com.linkedin.databus.core.DbusEventV1Factory;
@@ -37,7 +37,7 @@ import com.linkedin.databus.core.Encoding;
 import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
 import com.linkedin.databus2.core.filter.DbusFilter;
 
-public class BootstrapEventWriter implements BootstrapEventCallback
+public class BootstrapEventWriter implements BootstrapRowEventCallback
 {
   public static final String        MODULE              =
                                                             BootstrapEventWriter.class.getName();
@@ -76,125 +76,133 @@ public class BootstrapEventWriter implements BootstrapEventCallback
                                              DbusEventsStatisticsCollector statsCollector) throws BootstrapProcessingException
   {
     long rid = -1;
+    try
+    {
+      byte[] eventBytes = rs.getBytes(4);
+      rid = rs.getLong(1);
+      return onEvent(rid, eventBytes, statsCollector);
+    }
+    catch (SQLException e)
+    {
+      LOG.error("SQLException encountered while sending to client row " + rid);
+      throw new BootstrapProcessingException(e);
+    }
+  }
+
+  @Override
+  public BootstrapEventProcessResult onEvent(long rid,
+                                             byte[] eventBytes,
+                                             DbusEventsStatisticsCollector statsCollector) throws BootstrapProcessingException
+  {
     boolean exceededBufferLimit = false;
     boolean dropped = true;
-    try
+    if (null == _event)
     {
-      if (null == _event)
-      {
-        ByteBuffer tmpBuffer = ByteBuffer.wrap(rs.getBytes(4));
-        if (_debug)
-        {
-          LOG.debug("BUFFER SIZE:" + tmpBuffer.limit());
-        }
-        _event =
-            _eventFactory.createReadOnlyDbusEventFromBuffer(tmpBuffer,
-                                                            tmpBuffer.position());
-      }
-      else
+      ByteBuffer tmpBuffer = ByteBuffer.wrap(eventBytes);
+      if (_debug)
       {
-        ByteBuffer tmpBuffer = ByteBuffer.wrap(rs.getBytes(4));
-        if (_debug)
-        {
-          LOG.debug("Resized BUFFER SIZE:" + tmpBuffer.limit());
-        }
-        _event = _event.reset(tmpBuffer, 0);
+        LOG.debug("BUFFER SIZE:" + tmpBuffer.limit());
       }
-
+      _event =
+          _eventFactory.createReadOnlyDbusEventFromBuffer(tmpBuffer,
+                                                          tmpBuffer.position());
+    }
+    else
+    {
+      ByteBuffer tmpBuffer = ByteBuffer.wrap(eventBytes);
       if (_debug)
       {
-        LOG.debug("Event fetched: " + _event.size() + " for source:" + _event.srcId());
+        LOG.debug("Resized BUFFER SIZE:" + tmpBuffer.limit());
       }
+      _event = _event.reset(tmpBuffer, 0);
+    }
 
-      if (!_event.isValid())
-      {
-        LOG.error("got an error event :" + _event.toString());
-        return BootstrapEventProcessResult.getFailedEventProcessingResult(_numRowsWritten);
-      }
+    if (_debug)
+    {
+      LOG.debug("Event fetched: " + _event.size() + " for source:" + _event.srcId());
+    }
 
-      rid = rs.getLong(1);
+    if (!_event.isValid())
+    {
+      LOG.error("got an error event :" + _event.toString());
+      return BootstrapEventProcessResult.getFailedEventProcessingResult(_numRowsWritten);
+    }
+
+    if (_debug)
+    {
+      LOG.debug("sending: " + _event.getDbusEventKey() + " " + _event.sequence());
+      LOG.debug("event size:" + _event.size());
+    }
 
+    if ((null == _filter) || (_filter.allow(_event)))
+    {
       if (_debug)
       {
-        LOG.debug("sending: " + _event.getDbusEventKey() + " " + _event.sequence());
-        LOG.debug("event size:" + _event.size());
+        if (null != _filter)
+        {
+          LOG.debug("Event :" + _event.getDbusEventKey() + " passed filter check !!");
+        }
       }
 
-      if ((null == _filter) || (_filter.allow(_event)))
+      // client has enough space for this event
+      if (_bytesSent + _event.size() < _clientFreeBufferSize)
       {
-        if (_debug)
+        int sentBytes = _event.writeTo(_writeChannel, _encoding);
+        // On exception, sentBytes are set to 0
+        if (0 >= sentBytes)
         {
-          if (null != _filter)
-          {
-            LOG.debug("Event :" + _event.getDbusEventKey() + " passed filter check !!");
-          }
+          // Did not write successfully because of error. Done and dont write checkpoint
+          // to avoid successive write failures !!
+          return BootstrapEventProcessResult.getFailedEventProcessingResult(_numRowsWritten);
         }
 
-        // client has enough space for this event
-        if (_bytesSent + _event.size() < _clientFreeBufferSize)
-        {
-          int sentBytes = _event.writeTo(_writeChannel, _encoding);
-          // On exception, sentBytes are set to 0
-          if (0 >= sentBytes)
-          {
-            // Did not write successfully because of error. Done and dont write checkpoint
-            // to avoid successive write failures !!
-            return BootstrapEventProcessResult.getFailedEventProcessingResult(_numRowsWritten);
-          }
+        _bytesSent += sentBytes;
+        _numRowsWritten++; // tracks processed Rows only
+        dropped = false;
 
-          _bytesSent += sentBytes;
-          _numRowsWritten++; // tracks processed Rows only
-          dropped = false;
-
-          if (_debug)
-          {
-            LOG.debug("SENT " + _bytesSent);
-          }
-          if (null != statsCollector)
-          {
-            statsCollector.registerDataEvent(_event);
-            if (_debug)
-            {
-              LOG.debug("Stats NumEvents :"
-                  + statsCollector.getTotalStats().getNumDataEvents());
-            }
-          }
-        }
-        else
+        if (_debug)
         {
-          exceededBufferLimit = true;
-          _sizeOfPendingEvent = _event.size();
-          LOG.info("Terminating batch with max. size of "
-              + _clientFreeBufferSize
-              + "; Bytes sent in the current batch is "
-              + _bytesSent
-              + "; Rows processed in the batch is "
-              + _numRowsWritten
-              + ((_numRowsWritten <= 0) ? ", Pending Event Size is : "
-                  + _sizeOfPendingEvent : ""));
+          LOG.debug("SENT " + _bytesSent);
         }
-      }
-      else
-      {
         if (null != statsCollector)
         {
-          statsCollector.registerDataEventFiltered(_event);
-          if (_debug)
-          {
-            LOG.debug("Stats NumFilteredEvents :"
-                + statsCollector.getTotalStats().getNumDataEventsFiltered());
-          }
+          statsCollector.registerDataEvent(_event);
           if (_debug)
           {
-            LOG.debug("Event :" + _event.getDbusEventKey() + " failed filter check !!");
+            LOG.debug("Stats NumEvents :"
+                + statsCollector.getTotalStats().getNumDataEvents());
           }
         }
       }
+      else
+      {
+        exceededBufferLimit = true;
+        _sizeOfPendingEvent = _event.size();
+        LOG.info("Terminating batch with max. size of "
+            + _clientFreeBufferSize
+            + "; Bytes sent in the current batch is "
+            + _bytesSent
+            + "; Rows processed in the batch is "
+            + _numRowsWritten
+            + ((_numRowsWritten <= 0) ? ", Pending Event Size is : "
+                + _sizeOfPendingEvent : ""));
+      }
     }
-    catch (SQLException e)
+    else
     {
-      LOG.error("SQLException encountered while sending to client row " + rid);
-      throw new BootstrapProcessingException(e);
+      if (null != statsCollector)
+      {
+        statsCollector.registerDataEventFiltered(_event);
+        if (_debug)
+        {
+          LOG.debug("Stats NumFilteredEvents :"
+              + statsCollector.getTotalStats().getNumDataEventsFiltered());
+        }
+        if (_debug)
+        {
+          LOG.debug("Event :" + _event.getDbusEventKey() + " failed filter check !!");
+        }
+      }
     }
 
     return new BootstrapEventProcessResult(_numRowsWritten, exceededBufferLimit, dropped);
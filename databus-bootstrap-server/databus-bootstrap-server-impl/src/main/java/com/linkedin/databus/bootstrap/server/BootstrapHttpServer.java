@@ -26,6 +26,8 @@ import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.databus.bootstrap.common.BootstrapConnPool;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataCache;
 import com.linkedin.databus.bootstrap.common.BootstrapHttpStatsCollector;
 import com.linkedin.databus.core.util.ConfigLoader;
 import com.linkedin.databus.core.util.InvalidConfigException;
@@ -43,6 +45,9 @@ public class BootstrapHttpServer extends ServerContainer
 
   private final BootstrapServerStaticConfig _bootstrapServerConfig;
   private final BootstrapHttpStatsCollector _bootstrapHttpStatsCollector;
+  private final BootstrapConnPool _bootstrapConnPool;
+  private final BootstrapDBMetaDataCache _bootstrapMetaDataCache;
+  private final BootstrapSnapshotPageCache _snapshotPageCache;
 
   public BootstrapHttpServer(BootstrapServerConfig config)
          throws IOException, InvalidConfigException, DatabusException
@@ -72,6 +77,19 @@ public class BootstrapHttpServer extends ServerContainer
     }
     _bootstrapHttpStatsCollector = httpStatsColl;
 
+    _bootstrapConnPool = new BootstrapConnPool(bootstrapServerConfig.getDbConnectionPoolSize(),
+                                               bootstrapServerConfig.getDbConnectionMaxWaitMs(),
+                                               bootstrapServerConfig.getDbStatementCacheSize(),
+                                               true,
+                                               bootstrapServerConfig.getDb().getBootstrapDBUsername(),
+                                               bootstrapServerConfig.getDb().getBootstrapDBPassword(),
+                                               bootstrapServerConfig.getDb().getBootstrapDBHostname(),
+                                               bootstrapServerConfig.getDb().getBootstrapDBName());
+    _bootstrapMetaDataCache = bootstrapServerConfig.getDbMetaDataCacheTtlMs() > 0 ?
+        new BootstrapDBMetaDataCache(bootstrapServerConfig.getDbMetaDataCacheTtlMs()) : null;
+    _snapshotPageCache = bootstrapServerConfig.getSnapshotPageCacheSizeBytes() > 0 ?
+        new BootstrapSnapshotPageCache(bootstrapServerConfig.getSnapshotPageCacheSizeBytes()) : null;
+
     initializeBootstrapServerCommandProcessors();
   }
 
@@ -91,6 +109,31 @@ public class BootstrapHttpServer extends ServerContainer
     return _bootstrapHttpStatsCollector;
   }
 
+  /** The pool of bootstrap DB connections shared by the request processors */
+  public BootstrapConnPool getBootstrapConnPool()
+  {
+    return _bootstrapConnPool;
+  }
+
+  /** The cache of the bootstrap DB metadata; null if disabled */
+  public BootstrapDBMetaDataCache getBootstrapMetaDataCache()
+  {
+    return _bootstrapMetaDataCache;
+  }
+
+  /** The snapshot pages shared by concurrent bootstrap requests; null if disabled */
+  public BootstrapSnapshotPageCache getSnapshotPageCache()
+  {
+    return _snapshotPageCache;
+  }
+
+  @Override
+  protected void doShutdown()
+  {
+    super.doShutdown();
+    _bootstrapConnPool.close();
+  }
+
   @Override
   protected DatabusComponentAdmin createComponentAdmin()
   {
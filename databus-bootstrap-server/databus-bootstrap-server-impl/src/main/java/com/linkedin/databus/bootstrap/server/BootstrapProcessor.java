@@ -22,18 +22,21 @@ package com.linkedin.databus.bootstrap.server;
 */
 
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
 import com.linkedin.databus.bootstrap.api.BootstrapEventCallback;
 import com.linkedin.databus.bootstrap.api.BootstrapEventProcessResult;
 import com.linkedin.databus.bootstrap.api.BootstrapProcessingException;
+import com.linkedin.databus.bootstrap.api.BootstrapRowEventCallback;
 import com.linkedin.databus.bootstrap.common.BootstrapConn;
+import com.linkedin.databus.bootstrap.common.BootstrapConnPool;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataCache;
 import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataDAO;
 import com.linkedin.databus.bootstrap.common.BootstrapDBTimedQuery;
 import com.linkedin.databus.core.Checkpoint;
@@ -63,8 +66,14 @@ public class BootstrapProcessor
   private final long                    _maxCatchupRowsPerFetch;
   private final int                     _queryTimeInSec;
   private BootstrapDBMetaDataDAO                _dbDao;
+  /** the pool the connection was obtained from; null if the processor owns the connection */
+  private BootstrapConnPool             _connPool;
+  /** set on SQL errors so that the pooled connection is not reused */
+  private boolean                       _connFailed;
   private final DbusEventsStatisticsCollector _curStatsCollector;
   private DbusKeyFilter                 keyFilter;
+  /** snapshot pages shared with other requests; null if disabled */
+  private BootstrapSnapshotPageCache    _snapshotPageCache;
   //Bootstrap server config
   BootstrapServerStaticConfig config;
 
@@ -97,6 +106,33 @@ public class BootstrapProcessor
     }
   }
 
+  /**
+   * Creates a processor which uses a connection from the pool until {@link #shutdown()}
+   * @param metaDataCache       the shared cache of source status and log info; can be null
+   */
+  public BootstrapProcessor(BootstrapServerStaticConfig config,
+                            DbusEventsStatisticsCollector curStatsCollector,
+                            BootstrapConnPool connPool,
+                            BootstrapDBMetaDataCache metaDataCache)
+      throws SQLException, DatabusException
+  {
+    _curStatsCollector = curStatsCollector;
+    this.config = config;
+    BootstrapConn dbConn = connPool.acquire();
+    _connPool = connPool;
+    _dbDao = new BootstrapDBMetaDataDAO(dbConn,
+                                        config.getDb().getBootstrapDBHostname(),
+                                        config.getDb().getBootstrapDBUsername(),
+                                        config.getDb().getBootstrapDBPassword(),
+                                        config.getDb().getBootstrapDBName(),
+                                        true);
+    _dbDao.setMetaDataCache(metaDataCache);
+
+    _maxSnapshotRowsPerFetch = config.getDb().getBootstrapSnapshotBatchSize();
+    _maxCatchupRowsPerFetch = config.getDb().getBootstrapCatchupBatchSize();
+    _queryTimeInSec = config.getQueryTimeoutInSec();
+  }
+
   /**
    * Used for unit-testing only
    */
@@ -108,6 +144,20 @@ public class BootstrapProcessor
     _queryTimeInSec = -1;
   }
 
+  public BootstrapSnapshotPageCache getSnapshotPageCache()
+  {
+    return _snapshotPageCache;
+  }
+
+  /**
+   * Enables sharing of snapshot scans with other requests through the cache. Only used for
+   * callbacks which implement {@link BootstrapRowEventCallback}.
+   */
+  public void setSnapshotPageCache(BootstrapSnapshotPageCache snapshotPageCache)
+  {
+    _snapshotPageCache = snapshotPageCache;
+  }
+
   public DbusKeyFilter getKeyFilter()
   {
     return keyFilter;
@@ -138,12 +188,14 @@ public class BootstrapProcessor
 
     boolean phaseCompleted = false;
     PreparedStatement stmt = null;
+    ResultSet rs = null;
 
     try
     {
-      ResultSet rs = null;
       while (!foundRows && curLogId <= targetLogId)
       {
+        DBHelper.close(rs);
+        _dbDao.getBootstrapConn().releaseStatement(stmt);
         stmt = createCatchupStatement(curSrcId, curLogId, currState);
         rs = new BootstrapDBTimedQuery(stmt,_queryTimeInSec).executeQuery();
 
@@ -161,16 +213,14 @@ public class BootstrapProcessor
     }
     catch (SQLException e)
     {
+      _connFailed = true;
       LOG.error("Exception occured during fetching catchup rows" + e);
       throw e;
     }
     finally
     {
-      if (stmt != null)
-      {
-        stmt.close();
-        stmt = null;
-      }
+      DBHelper.close(rs);
+      _dbDao.getBootstrapConn().releaseStatement(stmt);
       mergeAndResetStats();
     }
 
@@ -248,6 +298,15 @@ public class BootstrapProcessor
   }
 
     public String getSnapshotSQLString(String snapShotTable, String source)
+  {
+    return getSnapshotSQLString(snapShotTable, source, false);
+  }
+
+  /**
+   * @param isRange   if true, the query has a parameter for the max id of the rows returned
+   *                  ({@link Checkpoint#getSnapshotRangeEnd()}) following the start id parameter
+   */
+  public String getSnapshotSQLString(String snapShotTable, String source, boolean isRange)
   {
     StringBuilder sql = new StringBuilder();
     String filterSql = getFilterSQL();
@@ -264,6 +323,8 @@ public class BootstrapProcessor
     sql.append(snapShotTable);
     sql.append(" where ");
     sql.append(" id > ? ");
+    if (isRange)
+      sql.append(" and id <= ? ");
     sql.append(" and scn < ? ");
     sql.append(" and scn >= ? ");
     if (predicatePushDown)
@@ -278,14 +339,14 @@ public class BootstrapProcessor
                                                    int logId,
                                                    Checkpoint currState) throws SQLException
   {
-    Connection conn = _dbDao.getBootstrapConn().getDBConn();
+    BootstrapConn conn = _dbDao.getBootstrapConn();
     String catchupTab = "log_" + srcId + "_" + logId;
     PreparedStatement stmt = null;
     String catchUpString = getCatchupSQLString(catchupTab, currState.getCatchupSource());
     long offset = -1;
     try
     {
-    	stmt = conn.prepareStatement(catchUpString);
+    	stmt = conn.prepareCachedStatement(catchUpString);
     	offset = currState.getWindowOffset();
     	int i = 1;
     	stmt.setLong(i++, offset);
@@ -294,7 +355,7 @@ public class BootstrapProcessor
     	stmt.setLong(i++, currState.getBootstrapSinceScn());
     	stmt.setLong(i++, _maxCatchupRowsPerFetch);
     } catch (SQLException ex) {
-    	DBHelper.close(stmt);
+    	conn.releaseStatement(stmt);
     }
 
     LOG.info("Catchup SQL String: "
@@ -325,7 +386,7 @@ public class BootstrapProcessor
       return true;
     }
 
-    Connection conn = _dbDao.getBootstrapConn().getDBConn();
+    BootstrapConn conn = _dbDao.getBootstrapConn();
     BootstrapDBMetaDataDAO.SourceStatusInfo srcIdStatusPair = _dbDao.getSrcIdStatusFromDB(currState.getSnapshotSource(), true);
 
     if (!srcIdStatusPair.isValidSource())
@@ -356,18 +417,30 @@ public class BootstrapProcessor
       {
         LOG.debug("Bypassing minScn check!");
       }
-      String snapshotSQL = getSnapshotSQLString(_dbDao.getBootstrapConn().getSrcTableName(srcIdStatusPair.getSrcId()), currState.getSnapshotSource());
+      if (null != _snapshotPageCache && callBack instanceof BootstrapRowEventCallback)
+      {
+        return streamSharedSnapShotRows(currState, srcIdStatusPair.getSrcId(),
+                                        (BootstrapRowEventCallback)callBack);
+      }
+
+      long rangeEnd = currState.getSnapshotRangeEnd();
+      boolean isRange = Checkpoint.UNSET_SNAPSHOT_RANGE_END != rangeEnd;
+      String snapshotSQL = getSnapshotSQLString(_dbDao.getBootstrapConn().getSrcTableName(srcIdStatusPair.getSrcId()),
+                                                currState.getSnapshotSource(), isRange);
       stmt =
-          conn.prepareStatement(snapshotSQL);
+          conn.prepareCachedStatement(snapshotSQL);
       long offset = currState.getSnapshotOffset();
       int i = 1;
       stmt.setLong(i++, offset);
+      if (isRange)
+        stmt.setLong(i++, rangeEnd);
       stmt.setLong(i++, currState.getBootstrapStartScn());
       stmt.setLong(i++, currState.getBootstrapSinceScn());
       stmt.setLong(i++, _maxSnapshotRowsPerFetch);
       LOG.info("SnapshotSQL string: "
                + snapshotSQL
                + ", " + offset
+               + (isRange ? ", " + rangeEnd : "")
                + ", " + currState.getBootstrapStartScn()
                + ", " + currState.getBootstrapSinceScn()
                + ", "  + _maxSnapshotRowsPerFetch);
@@ -377,21 +450,202 @@ public class BootstrapProcessor
     }
     catch (SQLException e)
     {
-      DBHelper.close(rs, stmt, null);
+      _connFailed = true;
       LOG.error("Exception occurred when getting snapshot rows" + e);
       throw e;
     }
     finally
     {
-      if (stmt != null)
+      DBHelper.close(rs);
+      conn.releaseStatement(stmt);
+      mergeAndResetStats();
+    }
+
+    return phaseCompleted;
+  }
+
+  /**
+   * The snapshot SQL for pages shared by several requests: the same as
+   * {@link #getSnapshotSQLString(String, String)} without the scn predicates which are applied
+   * by each request.
+   */
+  public String getSharedSnapshotSQLString(String snapShotTable, String source)
+  {
+    StringBuilder sql = new StringBuilder();
+    String filterSql = getFilterSQL();
+    boolean predicatePushDown = config.isPredicatePushDownEnabled(source) && !filterSql.isEmpty();
+    sql.append("Select ");
+    sql.append("id, ");
+    sql.append("scn, ");
+    if (predicatePushDown)
+      sql.append(" CAST(srckey as SIGNED) as srckey, ");
+    else
+      sql.append("srckey, ");
+    sql.append(EVENT_COLUMNS);
+    sql.append(" from ");
+    sql.append(snapShotTable);
+    sql.append(" where ");
+    sql.append(" id > ? ");
+    if (predicatePushDown)
+      sql.append("AND " + filterSql);
+    sql.append(" order by id limit ?");
+    return sql.toString();
+  }
+
+  /**
+   * Streams the snapshot rows from pages shared with concurrent requests for the same source and
+   * filter. The rows are filtered by scn and limited to the max rows per fetch as by the
+   * regular snapshot query.
+   */
+  private boolean streamSharedSnapShotRows(Checkpoint ckpt, final int srcId,
+                                           BootstrapRowEventCallback callback)
+      throws SQLException, BootstrapProcessingException
+  {
+    final String sql = getSharedSnapshotSQLString(_dbDao.getBootstrapConn().getSrcTableName(srcId),
+                                                  ckpt.getSnapshotSource());
+    final long startScn = ckpt.getBootstrapStartScn();
+    final long sinceScn = ckpt.getBootstrapSinceScn();
+    final long rangeEnd = ckpt.getSnapshotRangeEnd();
+    LOG.info("Shared SnapshotSQL string: " + sql + ", " + ckpt.getSnapshotOffset() + ", " + rangeEnd + ", " +
+             startScn + ", " + sinceScn + ", " + _maxSnapshotRowsPerFetch);
+
+    BootstrapSnapshotPageCache.PageReader reader = new BootstrapSnapshotPageCache.PageReader()
+    {
+      @Override
+      public BootstrapSnapshotPageCache.Page readPage(long startId) throws SQLException
+      {
+        return readSnapshotPage(sql, srcId, startId);
+      }
+    };
+
+    BootstrapEventProcessResult result = null;
+    long numRowsReadFromDb = 0;
+    long cursor = ckpt.getSnapshotOffset();
+    boolean done = false;
+    try
+    {
+      while (!done)
       {
-        stmt.close();
-        stmt = null;
+        BootstrapSnapshotPageCache.Page page = _snapshotPageCache.getPage(sql, cursor, startScn, reader);
+        List<BootstrapSnapshotPageCache.Row> rows = page.getRows();
+        boolean lastPage = false;
+        for (int i = page.firstRowAfter(cursor); !done && i < rows.size(); ++i)
+        {
+          BootstrapSnapshotPageCache.Row row = rows.get(i);
+          if (Checkpoint.UNSET_SNAPSHOT_RANGE_END != rangeEnd && row.getId() > rangeEnd)
+          {
+            // end of the requested range
+            lastPage = true;
+            break;
+          }
+          cursor = row.getId();
+          if (row.getScn() >= startScn || row.getScn() < sinceScn)
+            continue;
+
+          numRowsReadFromDb++;
+          result = callback.onEvent(row.getId(), row.getVal(), _curStatsCollector);
+          if ((result.isClientBufferLimitExceeded()) || (result.isError()))
+          {
+            // don't checkpoint the row as it has not been sent
+            done = true;
+            break;
+          }
+          ckpt.onSnapshotEvent(row.getId());
+          done = numRowsReadFromDb >= _maxSnapshotRowsPerFetch;
+        }
+        if (page.isLast() || lastPage)
+          done = true;
+        else if (!done)
+          cursor = Math.max(cursor, page.getEndId());
       }
+    }
+    catch (SQLException e)
+    {
+      _connFailed = true;
+      LOG.error("Exception occurred when getting shared snapshot rows" + e);
+      throw e;
+    }
+    finally
+    {
       mergeAndResetStats();
     }
 
-    return phaseCompleted;
+    writeCkptIfAppropriate(result, callback, numRowsReadFromDb, ckpt, sql);
+    return computeIsPhaseCompleted(result, ckpt, numRowsReadFromDb, _maxSnapshotRowsPerFetch, Long.MIN_VALUE);
+  }
+
+  /**
+   * The max row id of the snapshot table of the checkpoint's snapshot source; used by clients to
+   * split the snapshot in ranges which are read in parallel.
+   * @return the max id or -1 if the table is empty
+   */
+  public long getSnapshotMaxId(Checkpoint ckpt) throws SQLException, BootstrapDatabaseTooOldException
+  {
+    BootstrapDBMetaDataDAO.SourceStatusInfo srcIdStatusPair = _dbDao.getSrcIdStatusFromDB(ckpt.getSnapshotSource(), true);
+    BootstrapConn conn = _dbDao.getBootstrapConn();
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try
+    {
+      stmt = conn.prepareCachedStatement("SELECT max(id) from " + conn.getSrcTableName(srcIdStatusPair.getSrcId()));
+      rs = new BootstrapDBTimedQuery(stmt, _queryTimeInSec).executeQuery();
+      long maxId = -1;
+      if (rs.next())
+      {
+        maxId = rs.getLong(1);
+        if (rs.wasNull())
+          maxId = -1;
+      }
+      return maxId;
+    }
+    catch (SQLException e)
+    {
+      _connFailed = true;
+      throw e;
+    }
+    finally
+    {
+      DBHelper.close(rs);
+      conn.releaseStatement(stmt);
+    }
+  }
+
+  /** Reads the applier scn of the source followed by a page of the snapshot table */
+  private BootstrapSnapshotPageCache.Page readSnapshotPage(String sql, int srcId, long startId)
+      throws SQLException
+  {
+    BootstrapConn conn = _dbDao.getBootstrapConn();
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try
+    {
+      long appliedScn = -1;
+      stmt = conn.prepareCachedStatement("SELECT windowscn from bootstrap_applier_state where srcid = ?");
+      stmt.setInt(1, srcId);
+      rs = new BootstrapDBTimedQuery(stmt, _queryTimeInSec).executeQuery();
+      if (rs.next())
+        appliedScn = rs.getLong(1);
+      DBHelper.close(rs);
+      conn.releaseStatement(stmt);
+      rs = null;
+
+      stmt = conn.prepareCachedStatement(sql);
+      stmt.setLong(1, startId);
+      stmt.setLong(2, _maxSnapshotRowsPerFetch);
+      rs = new BootstrapDBTimedQuery(stmt, _queryTimeInSec).executeQuery();
+      List<BootstrapSnapshotPageCache.Row> rows = new ArrayList<BootstrapSnapshotPageCache.Row>();
+      while (rs.next())
+      {
+        rows.add(new BootstrapSnapshotPageCache.Row(rs.getLong(1), rs.getLong(2), rs.getBytes(4)));
+      }
+      return new BootstrapSnapshotPageCache.Page(startId, rows, rows.size() < _maxSnapshotRowsPerFetch,
+                                                 appliedScn);
+    }
+    finally
+    {
+      DBHelper.close(rs);
+      conn.releaseStatement(stmt);
+    }
   }
 
   private boolean streamOutRows(Checkpoint ckpt,
@@ -633,7 +887,10 @@ public class BootstrapProcessor
   {
 	if (null != _dbDao)
 	{
-		_dbDao.getBootstrapConn().close();
+		if (null != _connPool)
+		  _connPool.release(_dbDao.getBootstrapConn(), _connFailed);
+		else
+		  _dbDao.getBootstrapConn().close();
 		_dbDao = null;
 	}
   }
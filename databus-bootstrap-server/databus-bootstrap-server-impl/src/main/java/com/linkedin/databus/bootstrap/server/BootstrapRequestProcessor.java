@@ -109,7 +109,10 @@ public class BootstrapRequestProcessor extends BootstrapRequestProcessorBase
         	StatsCollectors<DbusEventsStatisticsCollector> ds = _bootstrapServer.getOutBoundStatsCollectors();
             ds.addStatsCollector(threadName, threadCollector);
         }
-        processor = new BootstrapProcessor(_config, threadCollector);
+        processor = new BootstrapProcessor(_config, threadCollector,
+                                           _bootstrapServer.getBootstrapConnPool(),
+                                           _bootstrapServer.getBootstrapMetaDataCache());
+        processor.setSnapshotPageCache(_bootstrapServer.getSnapshotPageCache());
     }
       catch (Exception e)
       {
@@ -227,6 +230,13 @@ public class BootstrapRequestProcessor extends BootstrapRequestProcessorBase
         {
           request.getResponseContent().setMetadata(BootstrapProcessor.PHASE_COMPLETED_HEADER_NAME, BootstrapProcessor.PHASE_COMPLETED_HEADER_TRUE);
         }
+        else if (DbusClientMode.BOOTSTRAP_SNAPSHOT == consumptionMode && 0 == cp.getSnapshotOffset() &&
+                 Checkpoint.UNSET_SNAPSHOT_RANGE_END == cp.getSnapshotRangeEnd())
+        {
+          // let the client split the rest of the snapshot in ranges
+          request.getResponseContent().setMetadata(DatabusHttpHeaders.DATABUS_SNAPSHOT_MAX_ID,
+                                                   String.valueOf(processor.getSnapshotMaxId(cp)));
+        }
 
       }
       catch (BootstrapDatabaseTooOldException e)
@@ -19,7 +19,6 @@ package com.linkedin.databus.bootstrap.server;
 */
 
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -29,6 +28,8 @@ import org.apache.log4j.Logger;
 
 import com.linkedin.databus.bootstrap.api.BootstrapProcessingException;
 import com.linkedin.databus.bootstrap.common.BootstrapConn;
+import com.linkedin.databus.bootstrap.common.BootstrapConnPool;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataCache;
 import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataDAO;
 import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataDAO.SourceStatusInfo;
 import com.linkedin.databus.bootstrap.common.BootstrapDBTimedQuery;
@@ -46,6 +47,10 @@ public class BootstrapSCNProcessor
 
 	  private BootstrapDBMetaDataDAO                 _dbDao;
 	  private BootstrapServerStaticConfig   _config;
+	  /** the pool the connection was obtained from; null if the processor owns the connection */
+	  private BootstrapConnPool             _connPool;
+	  /** set on SQL errors so that the pooled connection is not reused */
+	  private boolean                       _connFailed;
 
 	  public final static String START_SCN_STMT_SQL_PREFIX
 	  						= "SELECT min(windowscn) from bootstrap_applier_state where srcid IN (";
@@ -75,6 +80,27 @@ public class BootstrapSCNProcessor
 		  LOG.info("BootstrapSCNProcessor: config=" + config + ", dbConn=" + conn);
 	  }
 
+	  /**
+	   * Creates a processor which uses a connection from the pool until {@link #shutdown()}
+	   * @param metaDataCache       the shared cache of source status and log info; can be null
+	   */
+	  public BootstrapSCNProcessor(BootstrapServerStaticConfig config,
+	                               BootstrapConnPool connPool,
+	                               BootstrapDBMetaDataCache metaDataCache)
+	      throws SQLException, DatabusException
+	  {
+	    _config = config;
+	    BootstrapConn conn = connPool.acquire();
+	    _connPool = connPool;
+	    _dbDao = new BootstrapDBMetaDataDAO(conn,
+	                                        config.getDb().getBootstrapDBHostname(),
+	                                        config.getDb().getBootstrapDBUsername(),
+	                                        config.getDb().getBootstrapDBPassword(),
+	                                        config.getDb().getBootstrapDBName(),
+	                                        true);
+	    _dbDao.setMetaDataCache(metaDataCache);
+	  }
+
     // Created for unit-testing only
     protected BootstrapSCNProcessor()
     {
@@ -247,7 +273,7 @@ public class BootstrapSCNProcessor
 	    long startScn = -1;
 	    long producerScn = -1;
 	    ResultSet rs = null;
-	    Connection conn = _dbDao.getBootstrapConn().getDBConn();
+	    BootstrapConn conn = _dbDao.getBootstrapConn();
 	    PreparedStatement getScnStmt = null;
 
 	  	StringBuffer buf = new StringBuffer();
@@ -280,20 +306,21 @@ public class BootstrapSCNProcessor
 
 	        // Get Applier SCN
 	        LOG.info("Executing Applier SCN Query :" + applierSql);
-	        getScnStmt = conn.prepareStatement(applierSql);
+	        getScnStmt = conn.prepareCachedStatement(applierSql);
 	        rs=new BootstrapDBTimedQuery(getScnStmt,_config.getQueryTimeoutInSec()).executeQuery();
 	        if (rs.next())
 	        {
 	          startScn = rs.getLong(1);
 	        }
 
-	        DBHelper.close(rs,getScnStmt, null);
+	        DBHelper.close(rs);
+	        conn.releaseStatement(getScnStmt);
 	        rs = null;
 	        getScnStmt = null;
 
 	        // Get ProducerSCN
 	        LOG.info("Executing Producer SCN Query :" + producerSql);
-	        getScnStmt = conn.prepareStatement(producerSql);
+	        getScnStmt = conn.prepareCachedStatement(producerSql);
 	        rs = new BootstrapDBTimedQuery(getScnStmt,_config.getQueryTimeoutInSec()).executeQuery();
 	        if (rs.next())
 	        {
@@ -319,12 +346,16 @@ public class BootstrapSCNProcessor
 	      }
 	      catch (SQLException e)
 	      {
+	        _connFailed = true;
 	        LOG.warn("SQLException encountered while querying for start scn", e);
 
 	      }
 	      finally
 	      {
-	    	DBHelper.close(rs,getScnStmt, null);
+	    	DBHelper.close(rs);
+	    	conn.releaseStatement(getScnStmt);
+	        rs = null;
+	        getScnStmt = null;
 	      }
 	    }
 
@@ -361,25 +392,25 @@ public class BootstrapSCNProcessor
 	    }
 	    catch(SQLException e)
 	    {
+	      _connFailed = true;
 	      LOG.error("Error encountered while selecting target scn for bootstrap_producer_state:", e);
 	      throw e;
 	    }
 	    finally
 	    {
-	    	DBHelper.close(rs,targetScnStmt,null);
+	    	DBHelper.close(rs);
+	    	_dbDao.getBootstrapConn().releaseStatement(targetScnStmt);
 	    }
 	    return scn;
 	  }
 
 	  private PreparedStatement getTargetScnStmt() throws SQLException
 	  {
-	    Connection conn = null;
 	    PreparedStatement stmt = null;
 
 	    try
 	    {
-	      conn = _dbDao.getBootstrapConn().getDBConn();
-	      stmt = conn.prepareStatement("SELECT windowscn FROM bootstrap_producer_state where srcid = ?");
+	      stmt = _dbDao.getBootstrapConn().prepareCachedStatement("SELECT windowscn FROM bootstrap_producer_state where srcid = ?");
 	    }
 	    catch (SQLException e)
 	    {
@@ -409,7 +440,10 @@ public class BootstrapSCNProcessor
 
 	      if (null != _dbDao)
 	      {
-	        _dbDao.getBootstrapConn().close();
+	        if (null != _connPool)
+	          _connPool.release(_dbDao.getBootstrapConn(), _connFailed);
+	        else
+	          _dbDao.getBootstrapConn().close();
 	        _dbDao = null;
 	      }
 	  }
@@ -43,6 +43,21 @@ public class BootstrapServerConfig implements
   // Default timeout in sec for bootstrap DB query execution;
   public static final int DEFAULT_BOOTSTRAP_DB_QUERY_EXECUTION_TIMEOUT_IN_SEC = 3600;
 
+  // Max number of bootstrap DB connections shared by the request processors
+  public static final int DEFAULT_DB_CONNECTION_POOL_SIZE = 20;
+
+  // Max time to wait for a free bootstrap DB connection
+  public static final long DEFAULT_DB_CONNECTION_MAX_WAIT_MS = 30000;
+
+  // Max number of prepared statements cached per bootstrap DB connection; 0 disables the cache
+  public static final int DEFAULT_DB_STATEMENT_CACHE_SIZE = 64;
+
+  // Time for which the source status and log info read from the bootstrap DB are cached; 0 disables the cache
+  public static final long DEFAULT_DB_METADATA_CACHE_TTL_MS = 1000;
+
+  // Max total size of the snapshot pages shared by concurrent bootstrap requests; 0 disables the sharing
+  public static final long DEFAULT_SNAPSHOT_PAGE_CACHE_SIZE_BYTES = 0;
+
   // if the number of events between sinceSCN and start SCN is less than this
   // threshold, then snapshot could be disabled.
   private Long defaultRowsThresholdForSnapshotBypass = DEFAULT_DEFAULT_THRESHOLD_FOR_SNAPSHOT_BYPASS;
@@ -70,6 +85,16 @@ public class BootstrapServerConfig implements
 
   private long longestDbTxnTimeMins = DEFAULT_LONGEST_DB_TXN_TIME_MINS;
 
+  private int dbConnectionPoolSize = DEFAULT_DB_CONNECTION_POOL_SIZE;
+
+  private long dbConnectionMaxWaitMs = DEFAULT_DB_CONNECTION_MAX_WAIT_MS;
+
+  private int dbStatementCacheSize = DEFAULT_DB_STATEMENT_CACHE_SIZE;
+
+  private long dbMetaDataCacheTtlMs = DEFAULT_DB_METADATA_CACHE_TTL_MS;
+
+  private long snapshotPageCacheSizeBytes = DEFAULT_SNAPSHOT_PAGE_CACHE_SIZE_BYTES;
+
   public boolean getPredicatePushDown()
   {
     return predicatePushDown;
@@ -83,6 +108,10 @@ public class BootstrapServerConfig implements
   @Override
   public BootstrapServerStaticConfig build() throws InvalidConfigException
   {
+    if (dbConnectionPoolSize <= 0)
+    {
+      throw new InvalidConfigException("invalid dbConnectionPoolSize: " + dbConnectionPoolSize);
+    }
     return new BootstrapServerStaticConfig(defaultRowsThresholdForSnapshotBypass,
                                            rowsThresholdForSnapshotBypass,
                                            disableSnapshotBypass,
@@ -91,7 +120,12 @@ public class BootstrapServerConfig implements
                                            queryTimeoutInSec,
                                            enableMinScnCheck,
                                            db.build(),
-                                           longestDbTxnTimeMins);
+                                           longestDbTxnTimeMins,
+                                           dbConnectionPoolSize,
+                                           dbConnectionMaxWaitMs,
+                                           dbStatementCacheSize,
+                                           dbMetaDataCacheTtlMs,
+                                           snapshotPageCacheSizeBytes);
   }
 
   public Long getDefaultRowsThresholdForSnapshotBypass()
@@ -178,6 +212,56 @@ public class BootstrapServerConfig implements
     this.longestDbTxnTimeMins = longestDbTxnTimeMins;
   }
 
+  public int getDbConnectionPoolSize()
+  {
+    return dbConnectionPoolSize;
+  }
+
+  public void setDbConnectionPoolSize(int dbConnectionPoolSize)
+  {
+    this.dbConnectionPoolSize = dbConnectionPoolSize;
+  }
+
+  public long getDbConnectionMaxWaitMs()
+  {
+    return dbConnectionMaxWaitMs;
+  }
+
+  public void setDbConnectionMaxWaitMs(long dbConnectionMaxWaitMs)
+  {
+    this.dbConnectionMaxWaitMs = dbConnectionMaxWaitMs;
+  }
+
+  public int getDbStatementCacheSize()
+  {
+    return dbStatementCacheSize;
+  }
+
+  public void setDbStatementCacheSize(int dbStatementCacheSize)
+  {
+    this.dbStatementCacheSize = dbStatementCacheSize;
+  }
+
+  public long getDbMetaDataCacheTtlMs()
+  {
+    return dbMetaDataCacheTtlMs;
+  }
+
+  public void setDbMetaDataCacheTtlMs(long dbMetaDataCacheTtlMs)
+  {
+    this.dbMetaDataCacheTtlMs = dbMetaDataCacheTtlMs;
+  }
+
+  public long getSnapshotPageCacheSizeBytes()
+  {
+    return snapshotPageCacheSizeBytes;
+  }
+
+  public void setSnapshotPageCacheSizeBytes(long snapshotPageCacheSizeBytes)
+  {
+    this.snapshotPageCacheSizeBytes = snapshotPageCacheSizeBytes;
+  }
+
   public BootstrapConfig getDb()
   {
     return db;
@@ -59,6 +59,21 @@ public class BootstrapServerStaticConfig
     //Enable minScn query
     private final boolean enableMinScnCheck;
 
+    //Max number of pooled bootstrap DB connections
+    private final int dbConnectionPoolSize;
+
+    //Max time to wait for a pooled bootstrap DB connection
+    private final long dbConnectionMaxWaitMs;
+
+    //Max number of cached prepared statements per bootstrap DB connection
+    private final int dbStatementCacheSize;
+
+    //Expiration time of the cached source status and log info
+    private final long dbMetaDataCacheTtlMs;
+
+    //Max size of the snapshot pages shared by concurrent requests; 0 disables the sharing
+    private final long snapshotPageCacheSizeBytes;
+
     public BootstrapServerStaticConfig(Long defaultRowsThresholdForSnapshotBypass,
                                        Map<String, Long> rowsThresholdForSnapshotBypass,
                                        Map<String, Boolean> disableSnapshotBypass,
@@ -68,6 +83,30 @@ public class BootstrapServerStaticConfig
                                        boolean enableMinScnCheck,
                                        BootstrapReadOnlyConfig db,
                                        long longestDbTxnTimeMins)
+    {
+      this(defaultRowsThresholdForSnapshotBypass, rowsThresholdForSnapshotBypass, disableSnapshotBypass,
+           predicatePushDown, predicatePushDownBypass, queryTimeoutInSec, enableMinScnCheck, db,
+           longestDbTxnTimeMins, BootstrapServerConfig.DEFAULT_DB_CONNECTION_POOL_SIZE,
+           BootstrapServerConfig.DEFAULT_DB_CONNECTION_MAX_WAIT_MS,
+           BootstrapServerConfig.DEFAULT_DB_STATEMENT_CACHE_SIZE,
+           BootstrapServerConfig.DEFAULT_DB_METADATA_CACHE_TTL_MS,
+           BootstrapServerConfig.DEFAULT_SNAPSHOT_PAGE_CACHE_SIZE_BYTES);
+    }
+
+    public BootstrapServerStaticConfig(Long defaultRowsThresholdForSnapshotBypass,
+                                       Map<String, Long> rowsThresholdForSnapshotBypass,
+                                       Map<String, Boolean> disableSnapshotBypass,
+                                       boolean predicatePushDown,
+                                       Map<String, Boolean> predicatePushDownBypass,
+                                       int queryTimeoutInSec,
+                                       boolean enableMinScnCheck,
+                                       BootstrapReadOnlyConfig db,
+                                       long longestDbTxnTimeMins,
+                                       int dbConnectionPoolSize,
+                                       long dbConnectionMaxWaitMs,
+                                       int dbStatementCacheSize,
+                                       long dbMetaDataCacheTtlMs,
+                                       long snapshotPageCacheSizeBytes)
     {
 		  super();
 		  this.defaultRowsThresholdForSnapshotBypass = defaultRowsThresholdForSnapshotBypass;
@@ -79,6 +118,11 @@ public class BootstrapServerStaticConfig
           this.enableMinScnCheck = enableMinScnCheck;
 		  this.db = db;
       this._longestDbTxnTimeMins = longestDbTxnTimeMins;
+      this.dbConnectionPoolSize = dbConnectionPoolSize;
+      this.dbConnectionMaxWaitMs = dbConnectionMaxWaitMs;
+      this.dbStatementCacheSize = dbStatementCacheSize;
+      this.dbMetaDataCacheTtlMs = dbMetaDataCacheTtlMs;
+      this.snapshotPageCacheSizeBytes = snapshotPageCacheSizeBytes;
 	  }
 
 	  @Override
@@ -91,6 +135,10 @@ public class BootstrapServerStaticConfig
 				  + queryTimeoutInSec
 				  + " predicatePushDown= " + predicatePushDown
 				  + " enableMinScnCheck= " + enableMinScnCheck
+				  + " dbConnectionPoolSize= " + dbConnectionPoolSize
+				  + " dbStatementCacheSize= " + dbStatementCacheSize
+				  + " dbMetaDataCacheTtlMs= " + dbMetaDataCacheTtlMs
+				  + " snapshotPageCacheSizeBytes= " + snapshotPageCacheSizeBytes
 				  + ", db=" + db + "]";
 	  }
 
@@ -157,6 +205,31 @@ public class BootstrapServerStaticConfig
       return enableMinScnCheck;
     }
 
+    public int getDbConnectionPoolSize()
+    {
+      return dbConnectionPoolSize;
+    }
+
+    public long getDbConnectionMaxWaitMs()
+    {
+      return dbConnectionMaxWaitMs;
+    }
+
+    public int getDbStatementCacheSize()
+    {
+      return dbStatementCacheSize;
+    }
+
+    public long getDbMetaDataCacheTtlMs()
+    {
+      return dbMetaDataCacheTtlMs;
+    }
+
+    public long getSnapshotPageCacheSizeBytes()
+    {
+      return snapshotPageCacheSizeBytes;
+    }
+
 	  public long getRowsThresholdForSnapshotBypass(String source)
 	  {
 		  long threshold = defaultRowsThresholdForSnapshotBypass;
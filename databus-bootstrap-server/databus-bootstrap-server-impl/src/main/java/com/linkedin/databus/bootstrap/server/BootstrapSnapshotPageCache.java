@@ -0,0 +1,404 @@
+package com.linkedin.databus.bootstrap.server;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Snapshot pages shared by concurrent bootstrap requests for the same source.
+ *
+ * <p>A page holds the rows of a snapshot (tab) table with ids in (startId, endId] as read by a
+ * single "id > startId order by id limit pageSize" scan, without the per-request scn predicates.
+ * Requests whose cursors fall in a cached page are served from it; requests whose cursors fall in
+ * the region of a scan which is still in flight wait for that scan instead of starting their own.
+ * The pages are kept in an LRU list bounded by their total size in bytes.
+ *
+ * <p>A page is used for a request only if the applier had applied all windows up to the request's
+ * start scn when the page was read ({@link Page#getAppliedScn()}). Rows updated afterwards have
+ * higher scns and are delivered by the catchup phase, as with the regular snapshot query.
+ */
+public class BootstrapSnapshotPageCache
+{
+  public static final String MODULE = BootstrapSnapshotPageCache.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  /** The max number of cached pages checked for a cursor */
+  private static final int MAX_PAGES_CHECKED = 4;
+  /** Estimated per-row overhead in bytes used for the cache size accounting */
+  private static final int ROW_OVERHEAD_BYTES = 48;
+
+  private final long _maxSizeBytes;
+  private long _sizeBytes = 0;
+  /** cached pages of each scan key by their start id */
+  private final Map<String, TreeMap<Long, Page>> _pages = new HashMap<String, TreeMap<Long, Page>>();
+  /** all cached pages in access order; pages are compared by identity */
+  private final LinkedHashMap<Page, Boolean> _lru = new LinkedHashMap<Page, Boolean>(16, 0.75f, true);
+  /** the scans in flight for each scan key by their start id */
+  private final Map<String, TreeMap<Long, PageFetch>> _fetches = new HashMap<String, TreeMap<Long, PageFetch>>();
+
+  private final AtomicLong _numHits = new AtomicLong();
+  private final AtomicLong _numSharedScans = new AtomicLong();
+  private final AtomicLong _numScans = new AtomicLong();
+
+  public BootstrapSnapshotPageCache(long maxSizeBytes)
+  {
+    _maxSizeBytes = maxSizeBytes;
+  }
+
+  /** Reads a page from the database */
+  public interface PageReader
+  {
+    /**
+     * Reads the rows with id > startId.
+     * @return the page; the page must not have been added to a cache
+     */
+    Page readPage(long startId) throws SQLException;
+  }
+
+  /**
+   * Returns a page with the rows following the cursor which is valid for a request with the given
+   * start scn: either a cached page, the page of a scan in flight or a newly read page.
+   *
+   * @param scanKey     identifies the table and the row filter of the scan
+   * @param cursor      the id of the last row the request has processed
+   * @param startScn    the start scn of the request
+   */
+  public Page getPage(String scanKey, long cursor, long startScn, PageReader reader)
+      throws SQLException
+  {
+    PageFetch sharedFetch = null;
+    synchronized (this)
+    {
+      Page page = findCachedPage(scanKey, cursor, startScn);
+      if (null != page)
+      {
+        _numHits.incrementAndGet();
+        return page;
+      }
+      sharedFetch = findFetch(scanKey, cursor);
+    }
+
+    if (null != sharedFetch)
+    {
+      Page page = sharedFetch.await();
+      if (null != page && page.covers(cursor) && page.getAppliedScn() >= startScn)
+      {
+        _numSharedScans.incrementAndGet();
+        return page;
+      }
+    }
+
+    PageFetch fetch = new PageFetch(cursor);
+    synchronized (this)
+    {
+      getOrCreate(_fetches, scanKey).put(cursor, fetch);
+    }
+
+    Page page = null;
+    try
+    {
+      _numScans.incrementAndGet();
+      page = reader.readPage(cursor);
+      page._scanKey = scanKey;
+      return page;
+    }
+    finally
+    {
+      synchronized (this)
+      {
+        TreeMap<Long, PageFetch> fetches = _fetches.get(scanKey);
+        if (fetches.get(cursor) == fetch)
+          fetches.remove(cursor);
+        if (fetches.isEmpty())
+          _fetches.remove(scanKey);
+        if (null != page)
+          addPage(page);
+      }
+      fetch.done(page);
+    }
+  }
+
+  private Page findCachedPage(String scanKey, long cursor, long startScn)
+  {
+    TreeMap<Long, Page> pages = _pages.get(scanKey);
+    if (null == pages)
+      return null;
+
+    Iterator<Page> iter = pages.headMap(cursor, true).descendingMap().values().iterator();
+    for (int i = 0; i < MAX_PAGES_CHECKED && iter.hasNext(); ++i)
+    {
+      Page page = iter.next();
+      if (page.covers(cursor) && page.getAppliedScn() >= startScn)
+      {
+        _lru.get(page);
+        return page;
+      }
+    }
+    return null;
+  }
+
+  /** The scan in flight with the highest start id not greater than the cursor */
+  private PageFetch findFetch(String scanKey, long cursor)
+  {
+    TreeMap<Long, PageFetch> fetches = _fetches.get(scanKey);
+    if (null == fetches)
+      return null;
+    Map.Entry<Long, PageFetch> e = fetches.floorEntry(cursor);
+    return null != e ? e.getValue() : null;
+  }
+
+  private void addPage(Page page)
+  {
+    if (page.getSizeBytes() > _maxSizeBytes)
+      return;
+
+    Page oldPage = getOrCreate(_pages, page._scanKey).put(page.getStartId(), page);
+    if (null != oldPage)
+      removeFromLru(oldPage);
+    _lru.put(page, Boolean.TRUE);
+    _sizeBytes += page.getSizeBytes();
+
+    Iterator<Page> iter = _lru.keySet().iterator();
+    while (_sizeBytes > _maxSizeBytes && iter.hasNext())
+    {
+      Page evicted = iter.next();
+      iter.remove();
+      _sizeBytes -= evicted.getSizeBytes();
+      TreeMap<Long, Page> pages = _pages.get(evicted._scanKey);
+      if (pages.get(evicted.getStartId()) == evicted)
+        pages.remove(evicted.getStartId());
+      if (pages.isEmpty())
+        _pages.remove(evicted._scanKey);
+    }
+  }
+
+  private void removeFromLru(Page page)
+  {
+    if (null != _lru.remove(page))
+      _sizeBytes -= page.getSizeBytes();
+  }
+
+  private static <V> TreeMap<Long, V> getOrCreate(Map<String, TreeMap<Long, V>> map, String key)
+  {
+    TreeMap<Long, V> result = map.get(key);
+    if (null == result)
+    {
+      result = new TreeMap<Long, V>();
+      map.put(key, result);
+    }
+    return result;
+  }
+
+  public synchronized void clear()
+  {
+    _pages.clear();
+    _lru.clear();
+    _sizeBytes = 0;
+  }
+
+  public synchronized long getSizeBytes()
+  {
+    return _sizeBytes;
+  }
+
+  public synchronized int getNumPages()
+  {
+    return _lru.size();
+  }
+
+  /** The number of requests served from cached pages */
+  public long getNumHits()
+  {
+    return _numHits.get();
+  }
+
+  /** The number of requests served by waiting for the scan of another request */
+  public long getNumSharedScans()
+  {
+    return _numSharedScans.get();
+  }
+
+  /** The number of pages read from the database */
+  public long getNumScans()
+  {
+    return _numScans.get();
+  }
+
+  /** A row of a snapshot table */
+  public static class Row
+  {
+    private final long _id;
+    private final long _scn;
+    private final byte[] _val;
+
+    public Row(long id, long scn, byte[] val)
+    {
+      _id = id;
+      _scn = scn;
+      _val = val;
+    }
+
+    public long getId()
+    {
+      return _id;
+    }
+
+    public long getScn()
+    {
+      return _scn;
+    }
+
+    public byte[] getVal()
+    {
+      return _val;
+    }
+  }
+
+  /**
+   * The rows with ids in (startId, endId] of a snapshot table. If the page is the last one, it
+   * includes all rows with ids greater than startId which existed when it was read.
+   */
+  public static class Page
+  {
+    private final long _startId;
+    private final long _endId;
+    private final boolean _last;
+    private final long _appliedScn;
+    private final List<Row> _rows;
+    private final long _sizeBytes;
+    private String _scanKey;
+
+    /**
+     * @param rows          the rows ordered by id
+     * @param last          true if there are no rows after the page
+     * @param appliedScn    the applier scn read before the rows
+     */
+    public Page(long startId, List<Row> rows, boolean last, long appliedScn)
+    {
+      _startId = startId;
+      _rows = rows;
+      _endId = rows.isEmpty() ? startId : rows.get(rows.size() - 1).getId();
+      _last = last;
+      _appliedScn = appliedScn;
+      long sizeBytes = 0;
+      for (Row r: rows)
+      {
+        sizeBytes += r.getVal().length + ROW_OVERHEAD_BYTES;
+      }
+      _sizeBytes = sizeBytes;
+    }
+
+    public boolean covers(long cursor)
+    {
+      return _startId <= cursor && (_last || cursor < _endId);
+    }
+
+    public long getStartId()
+    {
+      return _startId;
+    }
+
+    public long getEndId()
+    {
+      return _endId;
+    }
+
+    public boolean isLast()
+    {
+      return _last;
+    }
+
+    public long getAppliedScn()
+    {
+      return _appliedScn;
+    }
+
+    public List<Row> getRows()
+    {
+      return _rows;
+    }
+
+    public long getSizeBytes()
+    {
+      return _sizeBytes;
+    }
+
+    /** The index of the first row with id greater than the cursor */
+    public int firstRowAfter(long cursor)
+    {
+      int lo = 0;
+      int hi = _rows.size();
+      while (lo < hi)
+      {
+        int mid = (lo + hi) >>> 1;
+        if (_rows.get(mid).getId() <= cursor)
+          lo = mid + 1;
+        else
+          hi = mid;
+      }
+      return lo;
+    }
+  }
+
+  /** A scan in flight */
+  private static class PageFetch
+  {
+    private final long _startId;
+    private final CountDownLatch _done = new CountDownLatch(1);
+    private volatile Page _page;
+
+    public PageFetch(long startId)
+    {
+      _startId = startId;
+    }
+
+    public void done(Page page)
+    {
+      _page = page;
+      _done.countDown();
+    }
+
+    /** @return the page or null if the scan failed */
+    public Page await()
+    {
+      try
+      {
+        _done.await();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        LOG.warn("interrupted while waiting for the snapshot scan from id " + _startId);
+        return null;
+      }
+      return _page;
+    }
+  }
+}
@@ -81,7 +81,8 @@ public class StartSCNRequestProcessor extends BootstrapRequestProcessorBase
 
     try
     {
-    	processor = new BootstrapSCNProcessor(_config, _bootstrapServer.getInboundEventStatisticsCollector());
+    	processor = new BootstrapSCNProcessor(_config, _bootstrapServer.getBootstrapConnPool(),
+    	                                      _bootstrapServer.getBootstrapMetaDataCache());
     	List<SourceStatusInfo> srcStatusPairs = null;
     	try
     	{
@@ -70,7 +70,8 @@ public class TargetSCNRequestProcessor extends BootstrapRequestProcessorBase
     BootstrapSCNProcessor processor = null;
     try
     {
-    	processor = new BootstrapSCNProcessor(_config, _bootstrapServer.getInboundEventStatisticsCollector());
+    	processor = new BootstrapSCNProcessor(_config, _bootstrapServer.getBootstrapConnPool(),
+    	                                      _bootstrapServer.getBootstrapMetaDataCache());
 
     	try
     	{
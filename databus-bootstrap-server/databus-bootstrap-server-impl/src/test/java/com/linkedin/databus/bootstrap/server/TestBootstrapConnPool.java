@@ -0,0 +1,154 @@
+package com.linkedin.databus.bootstrap.server;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.bootstrap.common.BootstrapConn;
+import com.linkedin.databus.bootstrap.common.BootstrapConnPool;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataCache;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataCache.LogInfo;
+import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataDAO.SourceStatusInfo;
+
+
+public class TestBootstrapConnPool
+{
+  /** A pool which does not connect to a DB */
+  static class TestPool extends BootstrapConnPool
+  {
+    final AtomicInteger _numCreated = new AtomicInteger();
+
+    public TestPool(int maxSize, long maxWaitMs)
+    {
+      super(maxSize, maxWaitMs, 10, true, "user", "pwd", "localhost", "bootstrap");
+    }
+
+    @Override
+    protected BootstrapConn createConnection() throws SQLException
+    {
+      _numCreated.incrementAndGet();
+      return new BootstrapConn();
+    }
+
+    @Override
+    protected void checkConnection(BootstrapConn conn) throws SQLException
+    {
+    }
+  }
+
+  @Test
+  public void testReuseAndBound() throws Exception
+  {
+    TestPool pool = new TestPool(2, 50);
+    BootstrapConn c1 = pool.acquire();
+    BootstrapConn c2 = pool.acquire();
+    Assert.assertNotSame(c1, c2);
+    Assert.assertEquals(pool.getNumActive(), 2);
+
+    long startTs = System.currentTimeMillis();
+    try
+    {
+      pool.acquire();
+      Assert.fail("pool size exceeded");
+    }
+    catch (SQLException e)
+    {
+      Assert.assertTrue(System.currentTimeMillis() - startTs >= 40);
+    }
+
+    // released connections are reused, the most recent one first
+    pool.release(c1, false);
+    pool.release(c2, false);
+    Assert.assertEquals(pool.getNumIdle(), 2);
+    Assert.assertSame(pool.acquire(), c2);
+    Assert.assertSame(pool.acquire(), c1);
+    Assert.assertEquals(pool._numCreated.get(), 2);
+
+    // discarded connections are replaced
+    pool.release(c1, true);
+    BootstrapConn c3 = pool.acquire();
+    Assert.assertNotSame(c3, c1);
+    Assert.assertEquals(pool._numCreated.get(), 3);
+
+    pool.release(c2, false);
+    pool.close();
+    Assert.assertEquals(pool.getNumIdle(), 0);
+    pool.release(c3, false);
+    Assert.assertEquals(pool.getNumIdle(), 0);
+    Assert.assertEquals(pool.getNumActive(), 0);
+    try
+    {
+      pool.acquire();
+      Assert.fail("pool closed");
+    }
+    catch (SQLException e)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWaitForRelease() throws Exception
+  {
+    final TestPool pool = new TestPool(1, 10000);
+    final BootstrapConn c1 = pool.acquire();
+    Thread releaser = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          Thread.sleep(50);
+        }
+        catch (InterruptedException e)
+        {
+          // ignore
+        }
+        pool.release(c1, false);
+      }
+    });
+    releaser.start();
+    Assert.assertSame(pool.acquire(), c1);
+    releaser.join();
+  }
+
+  @Test
+  public void testMetaDataCache() throws Exception
+  {
+    BootstrapDBMetaDataCache cache = new BootstrapDBMetaDataCache(50);
+    Assert.assertNull(cache.getSrcStatus("src"));
+    cache.putSrcStatus("src", new SourceStatusInfo("src", 1, 1));
+    cache.putLogInfos(1, Arrays.asList(new LogInfo(0, 1, 10, true), new LogInfo(1, 11, 20, false)));
+    Assert.assertEquals(cache.getSrcStatus("src").getSrcId(), 1);
+    Assert.assertEquals(cache.getLogInfos(1).size(), 2);
+    Assert.assertTrue(cache.getLogInfos(1).get(1).containsScn(20));
+    Assert.assertFalse(cache.getLogInfos(1).get(1).containsScn(21));
+
+    Thread.sleep(60);
+    Assert.assertNull(cache.getSrcStatus("src"));
+    Assert.assertNull(cache.getLogInfos(1));
+  }
+}
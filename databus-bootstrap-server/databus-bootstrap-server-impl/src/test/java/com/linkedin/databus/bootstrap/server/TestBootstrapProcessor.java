@@ -177,4 +177,18 @@ public class TestBootstrapProcessor
 
   }
 
+
+  @Test
+  public void testSnapshotRangeSQL() throws Exception
+  {
+    BootstrapProcessor bp = new BootstrapProcessor();
+    bp.config = new BootstrapServerConfig().build();
+    String sql = bp.getSnapshotSQLString("tab_1", "src", false);
+    Assert.assertEquals(bp.getSnapshotSQLString("tab_1", "src"), sql);
+    Assert.assertFalse(sql.contains("id <= ?"));
+
+    String rangeSql = bp.getSnapshotSQLString("tab_1", "src", true);
+    Assert.assertTrue(rangeSql, rangeSql.contains(" id > ?  and id <= ?  and scn < ? "));
+    Assert.assertTrue(rangeSql.endsWith("order by id limit ?"));
+  }
 }
@@ -0,0 +1,220 @@
+package com.linkedin.databus.bootstrap.server;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.bootstrap.server.BootstrapSnapshotPageCache.Page;
+import com.linkedin.databus.bootstrap.server.BootstrapSnapshotPageCache.PageReader;
+import com.linkedin.databus.bootstrap.server.BootstrapSnapshotPageCache.Row;
+
+
+public class TestBootstrapSnapshotPageCache
+{
+  /** Reads pages of a table with ids 1..numRows and 10 byte values */
+  static class TestReader implements PageReader
+  {
+    final int _numRows;
+    final int _pageSize;
+    final AtomicInteger _numReads = new AtomicInteger();
+    volatile long _appliedScn = 100;
+    volatile CountDownLatch _blockReads = null;
+
+    TestReader(int numRows, int pageSize)
+    {
+      _numRows = numRows;
+      _pageSize = pageSize;
+    }
+
+    @Override
+    public Page readPage(long startId) throws SQLException
+    {
+      _numReads.incrementAndGet();
+      CountDownLatch block = _blockReads;
+      if (null != block)
+      {
+        try
+        {
+          block.await();
+        }
+        catch (InterruptedException e)
+        {
+          throw new SQLException("interrupted");
+        }
+      }
+      List<Row> rows = new ArrayList<Row>();
+      for (long id = startId + 1; id <= _numRows && rows.size() < _pageSize; ++id)
+      {
+        rows.add(new Row(id, id, new byte[10]));
+      }
+      return new Page(startId, rows, rows.size() < _pageSize, _appliedScn);
+    }
+  }
+
+  @Test
+  public void testPageReuse() throws Exception
+  {
+    BootstrapSnapshotPageCache cache = new BootstrapSnapshotPageCache(100000);
+    TestReader reader = new TestReader(25, 10);
+
+    Page p1 = cache.getPage("tab_1", 0, 50, reader);
+    Assert.assertEquals(p1.getRows().size(), 10);
+    Assert.assertEquals(p1.getEndId(), 10);
+    Assert.assertFalse(p1.isLast());
+    Assert.assertEquals(reader._numReads.get(), 1);
+
+    // a cursor in the middle of the cached page
+    Page p2 = cache.getPage("tab_1", 4, 50, reader);
+    Assert.assertSame(p2, p1);
+    Assert.assertEquals(p2.firstRowAfter(4), 4);
+    Assert.assertEquals(p2.getRows().get(p2.firstRowAfter(4)).getId(), 5);
+    Assert.assertEquals(cache.getNumHits(), 1);
+    Assert.assertEquals(reader._numReads.get(), 1);
+
+    // the end of the page is served by the next page
+    Page p3 = cache.getPage("tab_1", 10, 50, reader);
+    Assert.assertNotSame(p3, p1);
+    Assert.assertEquals(p3.getStartId(), 10);
+    Assert.assertEquals(reader._numReads.get(), 2);
+
+    // the last page covers all the following ids
+    Page p4 = cache.getPage("tab_1", 20, 50, reader);
+    Assert.assertTrue(p4.isLast());
+    Assert.assertEquals(p4.getRows().size(), 5);
+    Assert.assertSame(cache.getPage("tab_1", 1000, 50, reader), p4);
+    Assert.assertEquals(p4.firstRowAfter(1000), 5);
+
+    // other scan keys are not shared
+    cache.getPage("tab_2", 0, 50, reader);
+    Assert.assertEquals(reader._numReads.get(), 4);
+    Assert.assertEquals(cache.getNumScans(), 4);
+    Assert.assertEquals(cache.getNumPages(), 4);
+  }
+
+  @Test
+  public void testAppliedScn() throws Exception
+  {
+    BootstrapSnapshotPageCache cache = new BootstrapSnapshotPageCache(100000);
+    TestReader reader = new TestReader(25, 10);
+
+    Page p1 = cache.getPage("tab_1", 0, 100, reader);
+    Assert.assertSame(cache.getPage("tab_1", 0, 90, reader), p1);
+
+    // the page was read before the applier reached the start scn of the request
+    reader._appliedScn = 200;
+    Page p2 = cache.getPage("tab_1", 0, 150, reader);
+    Assert.assertNotSame(p2, p1);
+    Assert.assertEquals(p2.getAppliedScn(), 200);
+    Assert.assertEquals(reader._numReads.get(), 2);
+
+    // the newer page replaced the older one
+    Assert.assertSame(cache.getPage("tab_1", 0, 100, reader), p2);
+    Assert.assertEquals(cache.getNumPages(), 1);
+  }
+
+  @Test
+  public void testEviction() throws Exception
+  {
+    // room for two pages of 10 rows
+    BootstrapSnapshotPageCache cache = new BootstrapSnapshotPageCache(2 * 10 * (10 + 48));
+    TestReader reader = new TestReader(100, 10);
+
+    Page p1 = cache.getPage("tab_1", 0, 50, reader);
+    cache.getPage("tab_1", 10, 50, reader);
+    Assert.assertEquals(cache.getNumPages(), 2);
+    Assert.assertEquals(cache.getSizeBytes(), p1.getSizeBytes() * 2);
+
+    // the first page was accessed last, so the second one is evicted
+    cache.getPage("tab_1", 5, 50, reader);
+    cache.getPage("tab_1", 20, 50, reader);
+    Assert.assertEquals(cache.getNumPages(), 2);
+    Assert.assertSame(cache.getPage("tab_1", 5, 50, reader), p1);
+    Assert.assertEquals(reader._numReads.get(), 3);
+    cache.getPage("tab_1", 15, 50, reader);
+    Assert.assertEquals(reader._numReads.get(), 4);
+
+    cache.clear();
+    Assert.assertEquals(cache.getNumPages(), 0);
+    Assert.assertEquals(cache.getSizeBytes(), 0);
+  }
+
+  @Test
+  public void testSharedScan() throws Exception
+  {
+    final BootstrapSnapshotPageCache cache = new BootstrapSnapshotPageCache(100000);
+    final TestReader reader = new TestReader(100, 10);
+    reader._blockReads = new CountDownLatch(1);
+
+    final int numThreads = 5;
+    final Page[] pages = new Page[numThreads];
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; ++i)
+    {
+      final int idx = i;
+      threads[i] = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            // the first request starts the scan; the others join it
+            pages[idx] = cache.getPage("tab_1", idx, 50, reader);
+          }
+          catch (SQLException e)
+          {
+            // leave null
+          }
+        }
+      });
+      threads[i].start();
+      if (0 == i)
+      {
+        while (reader._numReads.get() == 0)
+        {
+          Thread.sleep(1);
+        }
+      }
+    }
+
+    Thread.sleep(50);
+    reader._blockReads.countDown();
+    for (Thread t: threads)
+    {
+      t.join(10000);
+      Assert.assertFalse(t.isAlive());
+    }
+
+    Assert.assertEquals(reader._numReads.get(), 1);
+    for (int i = 0; i < numThreads; ++i)
+    {
+      Assert.assertSame(pages[i], pages[0]);
+    }
+    Assert.assertEquals(cache.getNumScans(), 1);
+    Assert.assertEquals(cache.getNumSharedScans() + cache.getNumHits(), numThreads - 1);
+  }
+}
@@ -0,0 +1,208 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.linkedin.databus.core.DbusEventKey.KeyType;
+
+/*
+ * Merkle-style digests of the (key, txn) pairs of one side (source DB or bootstrap DB) of an
+ * audited source.
+ *
+ * The key space is split into leaves [beginKey(i), beginKey(i+1)); keys smaller than the first
+ * begin key belong to the first leaf. Each leaf keeps the number of rows and the sum of the hashes
+ * of their (key, txn) pairs, so that the digests do not depend on the order in which the rows are
+ * added and can be computed concurrently by several scanners. The digest of an inner node is the
+ * sum of the digests of its leaves.
+ */
+public class BootstrapAuditDigestTree
+{
+  private final KeyType _keyType;
+  private final String[] _beginKeys;
+  private final long[] _longBeginKeys;
+  private final AtomicLongArray _numRows;
+  private final AtomicLongArray _digests;
+
+  public BootstrapAuditDigestTree(List<BootstrapSeederKeyRange> leaves, KeyType keyType)
+  {
+    _keyType = keyType;
+    int numLeaves = leaves.size();
+    _beginKeys = new String[numLeaves];
+    _longBeginKeys = (KeyType.LONG == keyType) ? new long[numLeaves] : null;
+    for (int i = 0; i < numLeaves; ++i)
+    {
+      _beginKeys[i] = leaves.get(i).getBeginKey();
+      if (null != _longBeginKeys)
+        _longBeginKeys[i] = Long.parseLong(_beginKeys[i]);
+    }
+    _numRows = new AtomicLongArray(numLeaves);
+    _digests = new AtomicLongArray(numLeaves);
+  }
+
+  public int getNumLeaves()
+  {
+    return _beginKeys.length;
+  }
+
+  public String getLeafBeginKey(int leaf)
+  {
+    return _beginKeys[leaf];
+  }
+
+  /** The exclusive end key of the leaf; null for the last leaf */
+  public String getLeafEndKey(int leaf)
+  {
+    return (leaf + 1 < _beginKeys.length) ? _beginKeys[leaf + 1] : null;
+  }
+
+  public long getLeafNumRows(int leaf)
+  {
+    return _numRows.get(leaf);
+  }
+
+  public long getNumRows()
+  {
+    long numRows = 0;
+    for (int i = 0; i < _beginKeys.length; ++i)
+    {
+      numRows += _numRows.get(i);
+    }
+    return numRows;
+  }
+
+  /** Returns the leaf the key belongs to */
+  public int findLeaf(String key)
+  {
+    int lo = 0;
+    int hi = _beginKeys.length - 1;
+    // find the last leaf whose begin key is <= key
+    while (lo < hi)
+    {
+      int mid = (lo + hi + 1) >>> 1;
+      if (compareToBeginKey(key, mid) >= 0)
+        lo = mid;
+      else
+        hi = mid - 1;
+    }
+    return lo;
+  }
+
+  private int compareToBeginKey(String key, int leaf)
+  {
+    if (null != _longBeginKeys)
+    {
+      long k = Long.parseLong(key);
+      long b = _longBeginKeys[leaf];
+      return (k < b) ? -1 : ((k == b) ? 0 : 1);
+    }
+    return key.compareTo(_beginKeys[leaf]);
+  }
+
+  /** Adds a row to the digest of its leaf. Can be called concurrently. */
+  public void add(String key, long txn)
+  {
+    int leaf = findLeaf(key);
+    _numRows.incrementAndGet(leaf);
+    _digests.addAndGet(leaf, hash(key, txn));
+  }
+
+  /*
+   * Compares the tree with another one built over the same leaves by descending only into the
+   * subtrees whose digests differ.
+   * @return the leaves whose digests differ
+   */
+  public BitSet diff(BootstrapAuditDigestTree other)
+  {
+    if (other._beginKeys.length != _beginKeys.length)
+    {
+      throw new IllegalArgumentException("digest trees have different leaves: " +
+                                         _beginKeys.length + " vs " + other._beginKeys.length);
+    }
+    long[] rowSums = prefixSums(_numRows);
+    long[] digestSums = prefixSums(_digests);
+    long[] otherRowSums = prefixSums(other._numRows);
+    long[] otherDigestSums = prefixSums(other._digests);
+
+    BitSet mismatches = new BitSet(_beginKeys.length);
+    List<int[]> pending = new ArrayList<int[]>();
+    pending.add(new int[]{0, _beginKeys.length});
+    while (!pending.isEmpty())
+    {
+      int[] node = pending.remove(pending.size() - 1);
+      int lo = node[0];
+      int hi = node[1];
+      boolean equal = (rowSums[hi] - rowSums[lo] == otherRowSums[hi] - otherRowSums[lo]) &&
+                      (digestSums[hi] - digestSums[lo] == otherDigestSums[hi] - otherDigestSums[lo]);
+      if (equal)
+        continue;
+      if (hi - lo == 1)
+      {
+        mismatches.set(lo);
+      }
+      else
+      {
+        int mid = (lo + hi) >>> 1;
+        pending.add(new int[]{lo, mid});
+        pending.add(new int[]{mid, hi});
+      }
+    }
+    return mismatches;
+  }
+
+  private static long[] prefixSums(AtomicLongArray a)
+  {
+    long[] sums = new long[a.length() + 1];
+    for (int i = 0; i < a.length(); ++i)
+    {
+      sums[i + 1] = sums[i] + a.get(i);
+    }
+    return sums;
+  }
+
+  /*
+   * 64-bit hash of a (key, txn) pair (FNV-1a over the key chars followed by a finalizer mixing in
+   * the txn).
+   */
+  static long hash(String key, long txn)
+  {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); ++i)
+    {
+      h ^= key.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= txn * 0x9e3779b97f4a7c15L;
+    h ^= (h >>> 33);
+    h *= 0xff51afd7ed558ccdL;
+    h ^= (h >>> 33);
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= (h >>> 33);
+    return h;
+  }
+
+  public KeyType getKeyType()
+  {
+    return _keyType;
+  }
+}
@@ -27,6 +27,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -184,6 +185,22 @@ public class BootstrapAuditMain
         {
           success = comparator.compareRecordsPoint();
         }
+        else if (BootstrapSeederMain.getValidationType().equals("merkle"))
+        {
+          BootstrapMerkleAuditor merkleAuditor = new BootstrapMerkleAuditor(source, seedController,
+              staticConfig.getBootstrap(), seeder.getTableName(srcId),
+              SchemaHelper.getMetaField(pkeyField, "dbFieldName"), pKeyTypeMap.get(source.getEventView()),
+              txnType, schema, vSchemaSet, staticConfig.getController().getAuditNumLeaves(),
+              staticConfig.getController().getNumSeederThreads(), sourceChunkSize);
+          try
+          {
+            success = comparator.compareRecordsMerkle(merkleAuditor);
+          }
+          finally
+          {
+            merkleAuditor.close();
+          }
+        }
         else if (BootstrapSeederMain.getValidationType().equals("pointBs"))
         {
           success = comparator.compareRecordsPointBs();
@@ -222,6 +239,7 @@ public class BootstrapAuditMain
     private long _numDataEqual = 0;
     private long _numOlderTxnInOracle = 0;
     private long _numOlderTxnInBootstrap = 0;
+    private long _numHashEqual = 0;
 
     private boolean _shutdown = false;
     final private int _intervalInSec;
@@ -255,6 +273,15 @@ public class BootstrapAuditMain
       print();
     }
 
+    /**
+     * Accounts for the rows of key ranges whose (key, txn) digests are equal on both sides. Their
+     * data is not compared, so they are not counted as processed.
+     */
+    public synchronized void addRowsOfEqualRanges(long numRows)
+    {
+      _numHashEqual += numRows;
+    }
+
     public void print()
     {
       LOG.info("AuditStats\n" + this);
@@ -270,6 +297,7 @@ public class BootstrapAuditMain
           .append(" numKeyAbsentInBootstrap=").append(_numKeyAbsentInBootstrap)
           .append(" numOlderTxnInOracle=").append(_numOlderTxnInOracle)
           .append(" numOlderTxnInBootstrap=").append(_numOlderTxnInBootstrap)
+          .append(" numHashEqual=").append(_numHashEqual)
           .append(" numError=").append(_numError);
       return s.toString();
     }
@@ -314,6 +342,11 @@ public class BootstrapAuditMain
       return _numOlderTxnInBootstrap;
     }
 
+    public long getNumHashEqual()
+    {
+      return _numHashEqual;
+    }
+
     public boolean isShutdown()
     {
       return _shutdown;
@@ -779,6 +812,93 @@ public class BootstrapAuditMain
       return stats.getNumProcessed() == stats.getNumDataEqual();
     }
 
+    /**
+     * Compares the digests of the key ranges of both sides and then only the rows of the
+     * ranges which differ, by point lookups in both DBs.
+     */
+    public boolean compareRecordsMerkle(BootstrapMerkleAuditor merkleAuditor) throws Exception
+    {
+      AuditStats stats = new AuditStats();
+      Thread statsThread = new Thread(stats);
+      ResultSet srcRs = null;
+      ResultSet destRs = null;
+      try
+      {
+        statsThread.start();
+
+        BitSet mismatches = merkleAuditor.computeMismatchingLeaves();
+        BootstrapAuditDigestTree srcTree = merkleAuditor.getSourceTree();
+        for (int leaf = mismatches.nextClearBit(0); leaf < srcTree.getNumLeaves();
+             leaf = mismatches.nextClearBit(leaf + 1))
+        {
+          stats.addRowsOfEqualRanges(srcTree.getLeafNumRows(leaf));
+        }
+
+        Map<String, Long> srcRows = new ConcurrentHashMap<String, Long>();
+        Map<String, Long> destRows = new ConcurrentHashMap<String, Long>();
+        if (!mismatches.isEmpty())
+        {
+          merkleAuditor.collectLeafRows(mismatches, srcRows, destRows);
+        }
+
+        for (Map.Entry<String, Long> srcRow : srcRows.entrySet())
+        {
+          String key = srcRow.getKey();
+          stats.incNumProcessed();
+          Long dstTxnId = destRows.remove(key);
+          if (null == dstTxnId)
+          {
+            LOG.info("Absent in bootstrap: " + key);
+            stats.incNumKeyAbsentInBootstrap();
+            continue;
+          }
+
+          stats.incNumKeyEqual();
+          long srcTxnId = srcRow.getValue();
+          if (srcTxnId == dstTxnId)
+          {
+            DBHelper.close(srcRs);
+            srcRs = _srcReader.getRecord(key);
+            DBHelper.close(destRs);
+            destRs = _destReader.getRecord(key);
+            if (srcRs.next() && destRs.next() && _auditor.compareRecord(srcRs, destRs, _decoder))
+            {
+              stats.incNumDataEqual();
+            }
+            else
+            {
+              LOG.error("Compare error: Key=" + key);
+            }
+          }
+          else if (srcTxnId < dstTxnId)
+          {
+            stats.incNumOlderTxnInOracle();
+          }
+          else
+          {
+            stats.incNumOlderTxnInBootstrap();
+          }
+        }
+
+        for (String key : destRows.keySet())
+        {
+          LOG.info("Absent in oracle: " + key);
+          stats.incNumProcessed();
+          stats.incNumnKeyAbsentInOracle();
+        }
+      }
+      finally
+      {
+        DBHelper.close(srcRs);
+        DBHelper.close(destRs);
+        stats.shutdown();
+        statsThread.interrupt();
+        statsThread.join();
+      }
+      LOG.info("Done with audit- end of stream reached\n");
+      return stats.getNumProcessed() == stats.getNumDataEqual();
+    }
+
     protected String getKey(ResultSet srcRs) throws SQLException
     {
       if (_pKeyType == DbusEventKey.KeyType.LONG)
@@ -807,36 +927,43 @@ public class BootstrapAuditMain
 
     private long getDestTxnId(ResultSet bsRes) throws SQLException
     {
-      GenericRecord avroRec = _auditor.getGenericRecord(bsRes, _decoder);
-      if (avroRec == null)
-      {
-        LOG.error("No avro record skipping");
-        return 0;
-      }
-      Object txnId = avroRec.get("txn");
-      if (txnId == null)
-      {
-        LOG.error("Could not find a field called 'txn' in avro event in bootstrap db");
-        return 0;
-      }
-      switch (_txnType)
+      return getTxnId(_auditor.getGenericRecord(bsRes, _decoder), _txnType);
+    }
+  }
+
+  /**
+   * Returns the txn field of an avro record read from the bootstrap db, or 0 if it has none.
+   */
+  static long getTxnId(GenericRecord avroRec, Type txnType)
+  {
+    if (avroRec == null)
+    {
+      LOG.error("No avro record skipping");
+      return 0;
+    }
+    Object txnId = avroRec.get("txn");
+    if (txnId == null)
+    {
+      LOG.error("Could not find a field called 'txn' in avro event in bootstrap db");
+      return 0;
+    }
+    switch (txnType)
+    {
+    case LONG:
+      if (txnId instanceof Integer)
       {
-      case LONG:
-        if (txnId instanceof Integer)
-        {
-          Integer i = (Integer) txnId;
-          return i.longValue();
-        }
-        else if (txnId instanceof Long)
-        {
-          return (Long) txnId;
-        }
-      case INT:
         Integer i = (Integer) txnId;
         return i.longValue();
-      default:
-        return 0;
       }
+      else if (txnId instanceof Long)
+      {
+        return (Long) txnId;
+      }
+    case INT:
+      Integer i = (Integer) txnId;
+      return i.longValue();
+    default:
+      return 0;
     }
   }
 
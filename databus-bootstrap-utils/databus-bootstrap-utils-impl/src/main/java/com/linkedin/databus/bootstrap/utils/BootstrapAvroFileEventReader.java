@@ -274,16 +274,25 @@ implements SourceDBEventReader
 		private final Map<String, Long> seedWindowSCNMap;
 		private final Map<String, String> pKeyNameMap;
 		private final int commitInterval;
+		private final int numSeederThreads;
+		private final long splitSize;
+		private final int insertBatchSize;
 		
 		public StaticConfig(Map<String, String> sourceAvroSchemaMap,
 				Map<String, Long> seedWindowSCNMap,
 				Map<String, String> pKeyNameMap,
-				int commitInterval) {
+				int commitInterval,
+				int numSeederThreads,
+				long splitSize,
+				int insertBatchSize) {
 			super();
 			this.avroSeedInputDirMap = sourceAvroSchemaMap;
 			this.seedWindowSCNMap = seedWindowSCNMap;
 			this.pKeyNameMap = pKeyNameMap;
 			this.commitInterval = commitInterval;
+			this.numSeederThreads = numSeederThreads;
+			this.splitSize = splitSize;
+			this.insertBatchSize = insertBatchSize;
 		}
 
 		public Map<String, String> getAvroSeedInputDirMap() {
@@ -301,7 +310,22 @@ implements SourceDBEventReader
 
 		public int getCommitInterval() {
 			return commitInterval;
-		}				
+		}
+
+		/** Number of Avro file splits read and written concurrently; 1 disables parallel seeding */
+		public int getNumSeederThreads() {
+			return numSeederThreads;
+		}
+
+		/** Approximate size (in bytes) of the splits of the Avro files seeded in parallel */
+		public long getSplitSize() {
+			return splitSize;
+		}
+
+		/** Number of rows written to the bootstrap DB with a single insert statement */
+		public int getInsertBatchSize() {
+			return insertBatchSize;
+		}
 	}
 
 	public static class Config implements ConfigBuilder<StaticConfig>
@@ -310,11 +334,17 @@ implements SourceDBEventReader
 		private static final String DEFAULT_AVRO_SEED_INPUT_FILE = "DEFAULT_FILE_NAME";
 		private static final Long DEFAULT_WINDOW_SCN = -1L;
 		private static final String DEFAULT_PKEY_NAME = "key";
+		private static final int DEFAULT_NUM_SEEDER_THREADS = 1;
+		private static final long DEFAULT_SPLIT_SIZE = 64 * 1024 * 1024;
+		private static final int DEFAULT_INSERT_BATCH_SIZE = 1;
 
 		private HashMap<String, String> avroSeedInputDirMap;
 		private int commitInterval;
 		private HashMap<String, Long> seedWindowSCNMap;
 		private Map<String, String> pKeyNameMap;
+		private int numSeederThreads;
+		private long splitSize;
+		private int insertBatchSize;
 
 		
 		public Config()
@@ -323,6 +353,9 @@ implements SourceDBEventReader
 			seedWindowSCNMap = new HashMap<String, Long>();
 			pKeyNameMap = new HashMap<String, String>();
 			commitInterval = DEFAULT_COMMIT_INTERVAL;
+			numSeederThreads = DEFAULT_NUM_SEEDER_THREADS;
+			splitSize = DEFAULT_SPLIT_SIZE;
+			insertBatchSize = DEFAULT_INSERT_BATCH_SIZE;
 		}
 		
 		public Long getSeedWindowSCN(String sourceName)
@@ -384,6 +417,30 @@ implements SourceDBEventReader
 	       pKeyNameMap.put(srcName, key);
 	    }
 
+		public int getNumSeederThreads() {
+			return numSeederThreads;
+		}
+
+		public void setNumSeederThreads(int numSeederThreads) {
+			this.numSeederThreads = numSeederThreads;
+		}
+
+		public long getSplitSize() {
+			return splitSize;
+		}
+
+		public void setSplitSize(long splitSize) {
+			this.splitSize = splitSize;
+		}
+
+		public int getInsertBatchSize() {
+			return insertBatchSize;
+		}
+
+		public void setInsertBatchSize(int insertBatchSize) {
+			this.insertBatchSize = insertBatchSize;
+		}
+
 		@Override
 		public StaticConfig build()
 			throws InvalidConfigException
@@ -401,7 +458,15 @@ implements SourceDBEventReader
 				}
 			}
 						
-			return new StaticConfig(avroSeedInputDirMap, seedWindowSCNMap, pKeyNameMap, commitInterval);
+			if (numSeederThreads <= 0)
+				throw new InvalidConfigException("numSeederThreads must be positive: " + numSeederThreads);
+			if (splitSize <= 0)
+				throw new InvalidConfigException("splitSize must be positive: " + splitSize);
+			if (insertBatchSize <= 0)
+				throw new InvalidConfigException("insertBatchSize must be positive: " + insertBatchSize);
+
+			return new StaticConfig(avroSeedInputDirMap, seedWindowSCNMap, pKeyNameMap, commitInterval,
+			                        numSeederThreads, splitSize, insertBatchSize);
 		}
 
 		@Override
@@ -409,7 +474,10 @@ implements SourceDBEventReader
 			return "Config [avroSeedInputDirMap=" + avroSeedInputDirMap
 					+ ", commitInterval=" + commitInterval
 					+ ", seedWindowSCNMap=" + seedWindowSCNMap
-					+ ", _pKeyNameMap=" + pKeyNameMap + "]";
+					+ ", _pKeyNameMap=" + pKeyNameMap
+					+ ", numSeederThreads=" + numSeederThreads
+					+ ", splitSize=" + splitSize
+					+ ", insertBatchSize=" + insertBatchSize + "]";
 		}
 		
 		
@@ -0,0 +1,246 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.bootstrap.common.BootstrapReadOnlyConfig;
+import com.linkedin.databus.core.util.NamedThreadFactory;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+
+/*
+ * Seeds the sources from their Avro seed files by splitting the files (on Avro data block
+ * boundaries) into splits of about splitSize bytes which are read, serialized and written to
+ * the bootstrap DB concurrently by numSeederThreads readers and writers.
+ *
+ * The splits of a source and their progress are checkpointed in bootstrap_seeder_range_state
+ * (beginkey/endkey hold the byte range of the split) so that a restarted seeder only re-seeds
+ * the unfinished splits. The splits are recomputed from the (sorted) seed files on restart and
+ * must match the checkpointed ones.
+ */
+public class BootstrapAvroFileParallelSeeder extends DbusSeederBaseThread
+{
+  private static final Logger LOG = Logger.getLogger(BootstrapAvroFileParallelSeeder.class);
+
+  private final BootstrapAvroFileEventReader.StaticConfig _config;
+  private final BootstrapDBSeeder _seeder;
+  private final BootstrapReadOnlyConfig _bootstrapConfig;
+  private final List<OracleTriggerMonitoredSourceInfo> _sources;
+  private final int _numSeederThreads;
+  private final BlockingQueue<BootstrapDBRangeSeeder> _rangeSeeders;
+  private ExecutorService _writerExecutor;
+  private ExecutorService _readerExecutor;
+
+  public BootstrapAvroFileParallelSeeder(BootstrapAvroFileEventReader.StaticConfig config,
+                                         BootstrapDBSeeder seeder,
+                                         BootstrapReadOnlyConfig bootstrapConfig,
+                                         List<OracleTriggerMonitoredSourceInfo> sources)
+  {
+    super("BootstrapAvroFileParallelSeeder");
+    _config = config;
+    _seeder = seeder;
+    _bootstrapConfig = bootstrapConfig;
+    _sources = sources;
+    _numSeederThreads = config.getNumSeederThreads();
+    _rangeSeeders = new ArrayBlockingQueue<BootstrapDBRangeSeeder>(_numSeederThreads);
+  }
+
+  @Override
+  public void run()
+  {
+    _started = true;
+    _rate.start();
+    try
+    {
+      seedAllSources();
+      LOG.info("Completed Seeding !!");
+    } catch (Exception ex) {
+      _isError = true;
+      _exception = ex;
+      LOG.error("Seeder stopping unexpectedly !!", ex);
+    } finally {
+      if (null != _writerExecutor)
+        _writerExecutor.shutdownNow();
+      if (null != _readerExecutor)
+        _readerExecutor.shutdownNow();
+      _rate.stop();
+      _stopped.countDown();
+    }
+  }
+
+  public void seedAllSources()
+      throws Exception
+  {
+    _seeder.initKeyRangeState();
+    for (int i = 0; i < _numSeederThreads; ++i)
+    {
+      BootstrapDBRangeSeeder rangeSeeder = new BootstrapDBRangeSeeder(_bootstrapConfig, _sources);
+      rangeSeeder.setInsertBatchSize(_config.getInsertBatchSize());
+      _rangeSeeders.add(rangeSeeder);
+    }
+    _writerExecutor = Executors.newFixedThreadPool(_numSeederThreads,
+                                                   new NamedThreadFactory("BootstrapSeederWriter"));
+    _readerExecutor = Executors.newFixedThreadPool(_numSeederThreads,
+                                                   new NamedThreadFactory("BootstrapAvroFileReader"));
+
+    long minScn = Long.MAX_VALUE;
+    for (OracleTriggerMonitoredSourceInfo sourceInfo : _sources)
+    {
+      if (_stop.get())
+        throw new DatabusException("Seeder stopped");
+
+      long windowScn = _config.getSeedWindowSCNMap().get(sourceInfo.getEventView());
+      minScn = Math.min(windowScn, minScn);
+      LOG.info("Bootstrapping " + sourceInfo.getEventView() + " with " + _numSeederThreads + " threads");
+      seedSource(sourceInfo, windowScn);
+      _seeder.endSource(sourceInfo.getSourceId(), windowScn);
+    }
+    _seeder.endSeeding();
+    LOG.info("Start SCN :" + minScn);
+  }
+
+  private void seedSource(OracleTriggerMonitoredSourceInfo sourceInfo, long windowScn)
+      throws Exception
+  {
+    String srcName = sourceInfo.getEventView();
+    short srcId = sourceInfo.getSourceId();
+
+    List<File> splitFiles = new ArrayList<File>();
+    List<BootstrapSeederKeyRange> splits =
+        computeSplits(listSeedFiles(new File(_config.getAvroSeedInputDirMap().get(srcName))),
+                      _config.getSplitSize(), splitFiles);
+
+    List<BootstrapSeederKeyRange> savedSplits = _seeder.getKeyRanges(srcId);
+    if (savedSplits.isEmpty())
+    {
+      _seeder.saveKeyRanges(srcId, splits);
+      LOG.info("Seeding source " + srcName + " from " + splits.size() + " splits");
+    }
+    else
+    {
+      checkSplits(srcName, splits, savedSplits);
+      splits = savedSplits;
+      LOG.info("Resuming seeding of source " + srcName + " with splits :" + splits);
+    }
+
+    List<Future<EventReaderSummary>> futures = new ArrayList<Future<EventReaderSummary>>(splits.size());
+    for (int i = 0; i < splits.size(); ++i)
+    {
+      BootstrapSeederKeyRange split = splits.get(i);
+      if (split.isDone())
+      {
+        LOG.info("Skipping split already seeded :" + split);
+        continue;
+      }
+      BootstrapAvroFileRangeReader splitReader =
+          new BootstrapAvroFileRangeReader(sourceInfo, splitFiles.get(i), split,
+                                           new BootstrapEventBuffer(_config.getCommitInterval() * 2),
+                                           windowScn, _config.getCommitInterval());
+      futures.add(_writerExecutor.submit(new BootstrapRangeSeedingTask(_rangeSeeders, _readerExecutor,
+                                                                       srcId, split, splitReader)));
+    }
+
+    long numRowsRead = BootstrapRangeSeedingTask.awaitAll(futures, srcName);
+
+    long numRows = 0;
+    for (BootstrapSeederKeyRange split : splits)
+    {
+      numRows += split.getNumRows();
+    }
+    LOG.info("Seeded " + numRowsRead + " rows of Source: " + sourceInfo.getSourceName()
+             + " in this run, total rows :" + numRows);
+    _rate.ticks(numRowsRead);
+    _seeder.updateSeederState(srcId, windowScn, numRows, "");
+  }
+
+  /*
+   * Returns the seed files of the directory in the order used by the sequential reader
+   */
+  static List<File> listSeedFiles(File avroSeedDir)
+  {
+    File[] files = avroSeedDir.listFiles();
+    Arrays.sort(files);
+    List<File> result = new ArrayList<File>(files.length);
+    for (File f: files)
+    {
+      if (f.isFile())
+        result.add(f);
+    }
+    return result;
+  }
+
+  /*
+   * Splits each of the files in byte ranges of (at most) about splitSize bytes
+   * @param splitFiles   gets the file of each of the returned splits
+   */
+  static List<BootstrapSeederKeyRange> computeSplits(List<File> files, long splitSize,
+                                                     List<File> splitFiles)
+  {
+    List<BootstrapSeederKeyRange> splits = new ArrayList<BootstrapSeederKeyRange>();
+    for (File f: files)
+    {
+      long len = f.length();
+      long numSplits = Math.max(1, (len + splitSize - 1) / splitSize);
+      long begin = 0;
+      for (long i = 1; i <= numSplits; ++i)
+      {
+        long end = (i == numSplits) ? len : (len * i) / numSplits;
+        splits.add(new BootstrapSeederKeyRange(splits.size(), Long.toString(begin), Long.toString(end)));
+        splitFiles.add(f);
+        begin = end;
+      }
+    }
+    return splits;
+  }
+
+  private static void checkSplits(String srcName, List<BootstrapSeederKeyRange> splits,
+                                  List<BootstrapSeederKeyRange> savedSplits)
+      throws DatabusException
+  {
+    boolean match = (splits.size() == savedSplits.size());
+    for (int i = 0; match && i < splits.size(); ++i)
+    {
+      BootstrapSeederKeyRange s = splits.get(i);
+      BootstrapSeederKeyRange saved = savedSplits.get(i);
+      match = (s.getRangeId() == saved.getRangeId()) && s.getBeginKey().equals(saved.getBeginKey())
+          && s.getEndKey().equals(saved.getEndKey());
+    }
+    if (!match)
+    {
+      String msg = "Seed files of source " + srcName + " changed since the last run: splits " + splits
+          + " do not match the checkpointed splits " + savedSplits
+          + ". Change splitSize back or drop the source state to reseed it.";
+      LOG.fatal(msg);
+      throw new DatabusException(msg);
+    }
+  }
+}
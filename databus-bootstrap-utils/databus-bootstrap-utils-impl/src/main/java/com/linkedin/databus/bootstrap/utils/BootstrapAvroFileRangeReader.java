@@ -0,0 +1,161 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.core.UnsupportedKeyException;
+import com.linkedin.databus.core.util.RateMonitor;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.EventCreationException;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+
+/*
+ * Reads one split of an Avro seed file: the records of the data blocks which start in the byte
+ * range [beginKey, endKey) of the file. The records are serialized to events in the calling
+ * thread and appended to a BootstrapEventBuffer.
+ *
+ * When resuming, the first numRows records of the split (seeded by a previous run) are skipped.
+ */
+public class BootstrapAvroFileRangeReader implements BootstrapRangeEventReader
+{
+  private static final Logger LOG = Logger.getLogger(BootstrapAvroFileRangeReader.class);
+
+  private final OracleTriggerMonitoredSourceInfo _sourceInfo;
+  private final File _file;
+  private final BootstrapSeederKeyRange _range;
+  private final BootstrapEventBuffer _buffer;
+  private final long _windowScn;
+  private final int _commitInterval;
+  private volatile boolean _aborted = false;
+
+  public BootstrapAvroFileRangeReader(OracleTriggerMonitoredSourceInfo sourceInfo,
+                                      File file,
+                                      BootstrapSeederKeyRange range,
+                                      BootstrapEventBuffer buffer,
+                                      long windowScn,
+                                      int commitInterval)
+  {
+    _sourceInfo = sourceInfo;
+    _file = file;
+    _range = range;
+    _buffer = buffer;
+    _windowScn = windowScn;
+    _commitInterval = commitInterval;
+  }
+
+  @Override
+  public BootstrapEventBuffer getBuffer()
+  {
+    return _buffer;
+  }
+
+  @Override
+  public void abort()
+  {
+    _aborted = true;
+  }
+
+  @Override
+  public EventReaderSummary call() throws Exception
+  {
+    boolean error = true;
+    try
+    {
+      EventReaderSummary summary = readSplit();
+      error = false;
+      return summary;
+    }
+    finally
+    {
+      _buffer.endEvents(error ? BootstrapEventBuffer.ERROR_CODE : BootstrapEventBuffer.END_OF_FILE,
+                        _windowScn, null);
+    }
+  }
+
+  private EventReaderSummary readSplit()
+      throws IOException, DatabusException, EventCreationException, UnsupportedKeyException
+  {
+    long splitStart = Long.parseLong(_range.getBeginKey());
+    long splitEnd = Long.parseLong(_range.getEndKey());
+    long numSeeded = _range.getNumRows();
+    long numRows = numSeeded;
+    long numRead = 0;
+    long numBytes = 0;
+    long timestamp = System.currentTimeMillis();
+    long timeStart = timestamp;
+    String split = _file + "[" + splitStart + "," + splitEnd + ")";
+
+    LOG.info("Seeding from " + split + ", skipping " + numSeeded + " records already seeded");
+    RateMonitor seedingRate = new RateMonitor("Seeding Rate " + split);
+    seedingRate.start();
+
+    DataFileReader<GenericRecord> reader =
+        new DataFileReader<GenericRecord>(_file, new GenericDatumReader<GenericRecord>());
+    GenericRecord record = null;
+    try
+    {
+      _buffer.start(_windowScn);
+      _buffer.startEvents();
+      reader.sync(splitStart);
+      while (reader.hasNext() && !reader.pastSync(splitEnd))
+      {
+        record = reader.next(record);
+        if (numRead++ < numSeeded)
+          continue;
+
+        if (_aborted)
+          throw new DatabusException("Seeding of " + split + " aborted");
+
+        numBytes += _sourceInfo.getFactory().createAndAppendEvent(_windowScn, timestamp, record,
+                                                                  _buffer, false, null);
+        seedingRate.tick();
+        ++numRows;
+        if (numRows % _commitInterval == 0)
+        {
+          _buffer.endEvents(numRows, timestamp, null);
+          _buffer.startEvents();
+          LOG.info("Split " + split + " : seeded " + numRows + " rows, rate :" + seedingRate.getRate());
+        }
+      }
+      _buffer.endEvents(numRows, timestamp, null);
+    } catch (RuntimeException e) {
+      LOG.fatal("NumRead :" + numRead + ", Got Exception while processing generic record :" + record, e);
+      throw new EventCreationException("Failed to seed from " + split, e);
+    } finally {
+      reader.close();
+      seedingRate.stop();
+    }
+
+    _range.setProgress(_range.getBeginKey(), numRows, true);
+    long timeEnd = System.currentTimeMillis();
+    LOG.info("Processed " + (numRows - numSeeded) + " rows of Source: " + _sourceInfo.getSourceName()
+             + " from " + split + " in " + (timeEnd - timeStart) + " ms");
+    return new EventReaderSummary(_sourceInfo.getSourceId(), _sourceInfo.getSourceName(), -1,
+                                  (int)(numRows - numSeeded), numBytes, (timeEnd - timeStart), 0, 0, 0, 0);
+  }
+}
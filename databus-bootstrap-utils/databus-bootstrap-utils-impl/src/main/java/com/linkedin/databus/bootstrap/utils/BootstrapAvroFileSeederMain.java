@@ -78,6 +78,7 @@ public class BootstrapAvroFileSeederMain
 	private static BootstrapAvroFileEventReader _sReader = null;
 	private static BootstrapSeederWriterThread _sWriterThread = null;
 	private static BootstrapEventBuffer  _sBootstrapBuffer = null;
+	private static BootstrapAvroFileParallelSeeder _sParallelSeeder = null;
 
     public static BootstrapDBSeeder getSeeder()
     {
@@ -89,6 +90,11 @@ public class BootstrapAvroFileSeederMain
       return _sReader;
     }
 
+    public static BootstrapAvroFileParallelSeeder getParallelSeeder()
+    {
+      return _sParallelSeeder;
+    }
+
     public static Properties getBootstrapConfigProps()
     {
       return _sBootstrapConfigProps;
@@ -117,6 +123,11 @@ public class BootstrapAvroFileSeederMain
 	{
 	    init(args);
 	    _sSeeder.startSeeding();
+	    if (null != _sParallelSeeder)
+	    {
+	      _sParallelSeeder.start();
+	      return;
+	    }
 	    //_sReader.readEventsFromAllSources(0);
 	    _sReader.start();
 	    _sWriterThread.start();
@@ -161,6 +172,7 @@ public class BootstrapAvroFileSeederMain
 	      _sources.add(source);
 	    }
 	    _sSeeder = new BootstrapDBSeeder(_sStaticConfig.getBootstrap(),_sources);
+	    _sSeeder.setInsertBatchSize(_sStaticConfig.getController().getInsertBatchSize());
 
 	    _sBootstrapBuffer = new BootstrapEventBuffer(_sStaticConfig.getController().getCommitInterval() * 2);
 
@@ -170,6 +182,15 @@ public class BootstrapAvroFileSeederMain
 	                                                _sources,
 		                                             _sSeeder.getLastRows(),
 	    										    _sBootstrapBuffer);
+
+	    if (_sStaticConfig.getController().getNumSeederThreads() > 1)
+	    {
+	      LOG.info("Parallel seeding enabled with " + _sStaticConfig.getController().getNumSeederThreads() + " threads");
+	      _sParallelSeeder = new BootstrapAvroFileParallelSeeder(_sStaticConfig.getController(),
+	                                                             _sSeeder,
+	                                                             _sStaticConfig.getBootstrap(),
+	                                                             _sources);
+	    }
 	}
 
 	@SuppressWarnings("static-access")
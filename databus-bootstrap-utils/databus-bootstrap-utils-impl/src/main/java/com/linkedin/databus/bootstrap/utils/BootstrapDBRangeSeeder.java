@@ -0,0 +1,81 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.List;
+
+import com.linkedin.databus.bootstrap.common.BootstrapReadOnlyConfig;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+
+/*
+ * Bootstrap DB writer for a single key range of a source. Each instance owns its own bootstrap DB
+ * connection. The progress of the range is checkpointed in bootstrap_seeder_range_state instead
+ * of bootstrap_seeder_state; the latter is updated by BootstrapParallelSeeder once all the ranges
+ * of a source are done.
+ */
+public class BootstrapDBRangeSeeder extends BootstrapDBSeeder
+{
+  private short _srcId = -1;
+  private BootstrapSeederKeyRange _range;
+
+  public BootstrapDBRangeSeeder(BootstrapReadOnlyConfig config,
+                                List<OracleTriggerMonitoredSourceInfo> sources)
+  throws Exception
+  {
+    super(config, sources, false);
+  }
+
+  /*
+   * Sets the range the events written next belong to
+   */
+  public void setRange(short srcId, BootstrapSeederKeyRange range)
+  {
+    _srcId = srcId;
+    _range = range;
+    setLastSeenKey(range.getLastKey());
+  }
+
+  public BootstrapSeederKeyRange getRange()
+  {
+    return _range;
+  }
+
+  @Override
+  public void endEvents(long rowId, DbusEventsStatisticsCollector statsCollector)
+  {
+    updateKeyRangeState(_srcId, _range.getRangeId(), rowId, getLastSeenKey(), false);
+  }
+
+  @Override
+  public void endSource(long scn)
+  {
+    //The end of the source is recorded once all its ranges are done
+  }
+
+  /*
+   * Called at the end of the range
+   */
+  @Override
+  public void endSeeding()
+  {
+    updateKeyRangeState(_srcId, _range.getRangeId(), _range.getNumRows(), _range.getLastKey(), true);
+  }
+}
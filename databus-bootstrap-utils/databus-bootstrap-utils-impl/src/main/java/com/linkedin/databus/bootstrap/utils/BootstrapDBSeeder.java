@@ -26,6 +26,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +38,7 @@ import com.linkedin.databus.bootstrap.api.BootstrapProducerStatus;
 import com.linkedin.databus.bootstrap.common.BootstrapConn;
 import com.linkedin.databus.bootstrap.common.BootstrapDBMetaDataDAO;
 import com.linkedin.databus.bootstrap.common.BootstrapReadOnlyConfig;
+import com.linkedin.databus.core.DbusEventBatch;
 import com.linkedin.databus.core.DbusEventBufferAppendable;
 import com.linkedin.databus.core.DbusEventBufferStreamAppendable;
 import com.linkedin.databus.core.DbusEventFactory;
@@ -71,11 +74,27 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
   private Map<String, String>       _lastKeys          = null;
   private String                    _lastSeenKey       = null;
   private long                      _startSCN          = -1;
+  private int                       _insertBatchSize   = 1;
+  private final List<PendingRow>    _pendingRows       = new ArrayList<PendingRow>();
+  private short                     _pendingSrcId      = -1;
+  private final Map<Short, PreparedStatement> _batchStatementMap = new HashMap<Short, PreparedStatement>();
 
 
   public BootstrapDBSeeder(BootstrapReadOnlyConfig config,
                            List<OracleTriggerMonitoredSourceInfo> sources)
   throws Exception
+  {
+    this(config, sources, true);
+  }
+
+  /*
+   * @param initSources if false, the bootstrap tables of the sources are not created and their
+   *                    checkpoints are not loaded (used by the per key-range seeders)
+   */
+  protected BootstrapDBSeeder(BootstrapReadOnlyConfig config,
+                              List<OracleTriggerMonitoredSourceInfo> sources,
+                              boolean initSources)
+  throws Exception
   {
     _config = config;
     _statementMap = new HashMap<Short, PreparedStatement>();
@@ -85,7 +104,8 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     _bufStream2 = new ByteArrayInputStream(b);
     getConnection();
     _sources = sources;
-    initSources();
+    if (initSources)
+      initSources();
   }
 
 
@@ -115,6 +135,20 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     setBootstrapSourceStatus(BootstrapProducerStatus.SEEDING);
   }
 
+  /*
+   * Number of rows written to the bootstrap DB with a single multi-row insert statement.
+   * With 1 (the default), each row is inserted with its own statement.
+   */
+  public void setInsertBatchSize(int insertBatchSize)
+  {
+    _insertBatchSize = Math.max(1, insertBatchSize);
+  }
+
+  public int getInsertBatchSize()
+  {
+    return _insertBatchSize;
+  }
+
   public Map<String, Long> getLastRows()
   {
     return _lastRows;
@@ -125,6 +159,19 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return _lastKeys;
   }
 
+  /*
+   * Seeder chunk key of the last event appended
+   */
+  protected String getLastSeenKey()
+  {
+    return _lastSeenKey;
+  }
+
+  protected void setLastSeenKey(String lastSeenKey)
+  {
+    _lastSeenKey = lastSeenKey;
+  }
+
   private PreparedStatement prepareInsertStatement(short srcId) throws SQLException
   {
     Connection conn = null;
@@ -153,6 +200,74 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return stmt;
   }
 
+  /*
+   * Multi-row version of the statement created by prepareInsertStatement()
+   */
+  private PreparedStatement prepareBatchInsertStatement(short srcId, int numRows) throws SQLException
+  {
+    StringBuilder sql = new StringBuilder();
+
+    try
+    {
+      sql.append("insert into ");
+      sql.append(getTableName(srcId));
+      sql.append("(scn, srckey, val) values ");
+      for (int i = 0; i < numRows; ++i)
+      {
+        if (i > 0)
+          sql.append(",");
+        sql.append("(?,?,?)");
+      }
+      sql.append(" on duplicate key update scn = values(scn), val = values(val)");
+
+      return getConnection().prepareStatement(sql.toString());
+    } catch (SQLException e) {
+      LOG.fatal("Unable to create batch insert statement for Statement : (" + sql + ")", e);
+      throw e;
+    }
+  }
+
+  /*
+   * Writes the rows buffered by appendEvent() (if any) with a single insert statement
+   */
+  protected void flushPendingRows() throws SQLException
+  {
+    int numRows = _pendingRows.size();
+    if (0 == numRows)
+      return;
+
+    PreparedStatement stmt = null;
+    boolean fullBatch = (numRows == _insertBatchSize);
+    try
+    {
+      long start = System.nanoTime();
+      if (fullBatch)
+      {
+        stmt = _batchStatementMap.get(_pendingSrcId);
+        if (null == stmt)
+        {
+          stmt = prepareBatchInsertStatement(_pendingSrcId, numRows);
+          _batchStatementMap.put(_pendingSrcId, stmt);
+        }
+      } else {
+        stmt = prepareBatchInsertStatement(_pendingSrcId, numRows);
+      }
+
+      int idx = 1;
+      for (PendingRow row : _pendingRows)
+      {
+        stmt.setLong(idx++, row._scn);
+        stmt.setString(idx++, row._srcKey);
+        stmt.setBytes(idx++, row._value);
+      }
+      stmt.executeUpdate();
+      _totLatency += (System.nanoTime() - start);
+    } finally {
+      _pendingRows.clear();
+      if (!fullBatch)
+        DBHelper.close(stmt);
+    }
+  }
 
   /*
    * Returns a connection object.
@@ -362,19 +477,12 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
       stmt = _statementMap.get(srcId);
 
-      if ( null == stmt)
-      {
-        stmt = prepareInsertStatement(srcId);
-        _statementMap.put(srcId, stmt);
-      }
-
       if ( isDebugEnabled)
       {
         LOG.debug("Number of Bytes in serialized format:" + _buf.position());
         LOG.debug("Key is :" + ( (key.getKeyType() == KeyType.LONG) ? key.getLongKey() : key.getStringKey()));
       }
 
-      stmt.setLong(1,sequenceId);
       String keyStr = null;
 
       if (key.getKeyType() == DbusEventKey.KeyType.LONG)
@@ -383,6 +491,28 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       } else {
         keyStr = key.getStringKey();
       }
+
+      if (_insertBatchSize > 1)
+      {
+        if (srcId != _pendingSrcId)
+        {
+          flushPendingRows();
+          _pendingSrcId = srcId;
+        }
+        _pendingRows.add(new PendingRow(sequenceId, keyStr, Arrays.copyOf(_buf.array(), _buf.position())));
+        if (_pendingRows.size() >= _insertBatchSize)
+          flushPendingRows();
+        _currSrcId = srcId;
+        return true;
+      }
+
+      if ( null == stmt)
+      {
+        stmt = prepareInsertStatement(srcId);
+        _statementMap.put(srcId, stmt);
+      }
+
+      stmt.setLong(1,sequenceId);
       stmt.setString(2, keyStr);
 
       // Reuse the iStream to set the blob
@@ -424,6 +554,7 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
   @Override
   public void rollbackEvents() {
+    _pendingRows.clear();
     Connection conn = getConnection();
     try
     {
@@ -444,16 +575,22 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
    * Callback for processing end of source
    */
   public void endSource(long scn)
+  {
+    endSource(_currSrcId, scn);
+  }
+
+  public void endSource(short srcId, long scn)
   {
     String seederSql = "update bootstrap_seeder_state set endscn = ? where srcid = ? ";
     Connection conn = null;
     PreparedStatement stmt = null;
     try
     {
+      flushPendingRows();
       conn = getConnection();
       stmt = conn.prepareStatement(seederSql);
       stmt.setLong(1,scn);
-      stmt.setInt(2,_currSrcId);
+      stmt.setInt(2,srcId);
       stmt.executeUpdate();
       conn.commit();
     } catch (SQLException sqlEx) {
@@ -590,7 +727,15 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
   @Override
   public void endEvents(long rowId, DbusEventsStatisticsCollector statsCollector)
   {
+    updateSeederState(_currSrcId, _startSCN, rowId, _lastSeenKey);
+  }
 
+  /*
+   * Checkpoints the seeding progress of a source in bootstrap_seeder_state and commits
+   * all the rows written so far.
+   */
+  public void updateSeederState(short srcId, long startScn, long rowId, String srcKey)
+  {
     Connection conn = null;
     PreparedStatement stmt = null;
 
@@ -604,14 +749,15 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       sql.append("values ( ?, ?, -1, ?, ?)");
       sql.append("on duplicate key update rid = ?, srckey = ?"); //startscn set only at the first insert
 
+      flushPendingRows();
       conn = getConnection();
       stmt = conn.prepareStatement(sql.toString());
-      stmt.setInt(1,_currSrcId);
-      stmt.setLong(2, _startSCN);
+      stmt.setInt(1,srcId);
+      stmt.setLong(2, startScn);
       stmt.setLong(3,rowId);
-      stmt.setString(4,_lastSeenKey);
+      stmt.setString(4,srcKey);
       stmt.setLong(5,rowId);
-      stmt.setString(6, _lastSeenKey);
+      stmt.setString(6, srcKey);
 
       LOG.info("\t Total Latency before commit :" + (_totLatency/1000000000));
       stmt.executeUpdate();
@@ -629,6 +775,116 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     }
   }
 
+  /*
+   * Creates the key range state table if it is not present (databases set up before parallel
+   * seeding was available do not have it).
+   */
+  public void initKeyRangeState()
+      throws SQLException
+  {
+    getConnection();
+    _bootstrapDao.setupSeederRangeStateTable();
+  }
+
+  /*
+   * Returns the key ranges (with their progress) stored for the source, ordered by range id.
+   * The list is empty if the source has not been split yet.
+   */
+  public List<BootstrapSeederKeyRange> getKeyRanges(short srcId)
+      throws SQLException
+  {
+    List<BootstrapSeederKeyRange> ranges = new ArrayList<BootstrapSeederKeyRange>();
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try
+    {
+      String sql = "select rangeid, beginkey, endkey, endinclusive, srckey, rid, done from bootstrap_seeder_range_state where srcid = ? order by rangeid";
+      conn = getConnection();
+      stmt = conn.prepareStatement(sql);
+      stmt.setInt(1, srcId);
+      rs = stmt.executeQuery();
+      while (rs.next())
+      {
+        ranges.add(new BootstrapSeederKeyRange(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                               rs.getInt(4) != 0, rs.getString(5), rs.getLong(6),
+                                               rs.getInt(7) != 0));
+      }
+    } finally {
+      DBHelper.close(rs, stmt, null);
+    }
+    return ranges;
+  }
+
+  /*
+   * Replaces the key ranges stored for the source
+   */
+  public void saveKeyRanges(short srcId, List<BootstrapSeederKeyRange> ranges)
+      throws SQLException
+  {
+    Connection conn = null;
+    PreparedStatement delStmt = null;
+    PreparedStatement stmt = null;
+    try
+    {
+      conn = getConnection();
+      delStmt = conn.prepareStatement("delete from bootstrap_seeder_range_state where srcid = ?");
+      delStmt.setInt(1, srcId);
+      delStmt.executeUpdate();
+
+      String sql = "insert into bootstrap_seeder_range_state (srcid, rangeid, beginkey, endkey, endinclusive, srckey, rid, done) values (?, ?, ?, ?, ?, ?, ?, ?)";
+      stmt = conn.prepareStatement(sql);
+      for (BootstrapSeederKeyRange range : ranges)
+      {
+        stmt.setInt(1, srcId);
+        stmt.setInt(2, range.getRangeId());
+        stmt.setString(3, range.getBeginKey());
+        stmt.setString(4, range.getEndKey());
+        stmt.setInt(5, range.isEndInclusive() ? 1 : 0);
+        stmt.setString(6, range.getLastKey());
+        stmt.setLong(7, range.getNumRows());
+        stmt.setInt(8, range.isDone() ? 1 : 0);
+        stmt.executeUpdate();
+      }
+      conn.commit();
+    } catch (SQLException sqlEx) {
+      LOG.error("Got Exception while saving key ranges for source :" + srcId, sqlEx);
+      conn.rollback();
+      throw sqlEx;
+    } finally {
+      DBHelper.close(delStmt);
+      DBHelper.close(stmt);
+    }
+  }
+
+  /*
+   * Checkpoints the seeding progress of a key range and commits all the rows written so far.
+   */
+  public void updateKeyRangeState(short srcId, int rangeId, long rowId, String srcKey, boolean done)
+  {
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    try
+    {
+      String sql = "update bootstrap_seeder_range_state set rid = ?, srckey = ?, done = ? where srcid = ? and rangeid = ?";
+      flushPendingRows();
+      conn = getConnection();
+      stmt = conn.prepareStatement(sql);
+      stmt.setLong(1, rowId);
+      stmt.setString(2, srcKey);
+      stmt.setInt(3, done ? 1 : 0);
+      stmt.setInt(4, srcId);
+      stmt.setInt(5, rangeId);
+      stmt.executeUpdate();
+      conn.commit();
+    } catch (SQLException sqlEx) {
+      LOG.fatal("Got Exception while updating state of range " + rangeId + " of source :" + srcId, sqlEx);
+      throw new RuntimeException(sqlEx);
+    } finally {
+      DBHelper.close(stmt);
+    }
+  }
+
 
   @Override
   public boolean empty() {
@@ -749,4 +1005,24 @@ implements DbusEventBufferAppendable, DbusEventBufferStreamAppendable
                              DbusEventsStatisticsCollector statsCollector) {
     return false;
   }
+
+  @Override
+  public boolean appendEvents(DbusEventBatch batch,
+                              DbusEventsStatisticsCollector statsCollector) {
+    throw new UnsupportedOperationException("batch append not supported by BootstrapDBSeeder");
+  }
+
+  private static class PendingRow
+  {
+    private final long _scn;
+    private final String _srcKey;
+    private final byte[] _value;
+
+    public PendingRow(long scn, String srcKey, byte[] value)
+    {
+      _scn = scn;
+      _srcKey = srcKey;
+      _value = value;
+    }
+  }
 }
@@ -26,6 +26,7 @@ import java.util.concurrent.BlockingQueue;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.databus.core.DbusEventBatch;
 import com.linkedin.databus.core.DbusEventBufferAppendable;
 import com.linkedin.databus.core.DbusEventBufferStreamAppendable;
 import com.linkedin.databus.core.DbusEventInfo;
@@ -507,6 +508,12 @@ public class BootstrapEventBuffer implements DbusEventBufferAppendable, DbusEven
     return false;
   }
 
+  @Override
+  public boolean appendEvents(DbusEventBatch batch,
+                              DbusEventsStatisticsCollector statsCollector) {
+    throw new UnsupportedOperationException("batch append not supported by BootstrapEventBuffer");
+  }
+
   @Override
   public boolean appendEvent(DbusEventKey key, short pPartitionId,
                              short lPartitionId, long timeStamp, short srcId, byte[] schemaId,
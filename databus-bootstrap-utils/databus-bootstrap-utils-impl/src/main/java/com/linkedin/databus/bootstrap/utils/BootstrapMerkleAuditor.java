@@ -0,0 +1,477 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.bootstrap.common.BootstrapConn;
+import com.linkedin.databus.bootstrap.common.BootstrapReadOnlyConfig;
+import com.linkedin.databus.client.DbusEventAvroDecoder;
+import com.linkedin.databus.core.DbusEventKey.KeyType;
+import com.linkedin.databus.core.util.NamedThreadFactory;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+import com.linkedin.databus2.schemas.VersionedSchemaSet;
+import com.linkedin.databus2.util.DBHelper;
+
+/*
+ * Computes the digest trees of the (key, txn) pairs of a source on both the source DB and the
+ * bootstrap DB and finds the key ranges (leaves) in which they diverge.
+ *
+ * Both sides are scanned concurrently by numThreads threads: the source DB in key ranges of
+ * consecutive leaves, the bootstrap DB in ranges of row ids. Only the (key, txn) pairs of the
+ * rows of the mismatching leaves are then read again so that they can be compared row by row;
+ * the second scan of the bootstrap DB is restricted to the srckey ranges of these leaves.
+ */
+public class BootstrapMerkleAuditor
+{
+  private static final Logger LOG = Logger.getLogger(BootstrapMerkleAuditor.class);
+
+  /** Number of scan ranges per thread, for load balancing */
+  private static final int SCAN_RANGES_PER_THREAD = 4;
+
+  /** Max number of srckey ranges in a bootstrap DB query; above it, the auditor filters the rows */
+  private static final int MAX_BOOTSTRAP_KEY_RANGES = 100;
+
+  /** Receives the (key, txn) pairs of the scanned rows; called concurrently by the scanners */
+  public interface KeyTxnHandler
+  {
+    void handle(String key, long txn);
+  }
+
+  private final OracleTriggerMonitoredSourceInfo _sourceInfo;
+  private final BootstrapSrcDBEventReader _reader;
+  private final BootstrapReadOnlyConfig _bootstrapConfig;
+  private final String _srcTable;
+  private final String _bootstrapTable;
+  private final String _keyName;
+  private final KeyType _keyType;
+  private final Type _txnType;
+  private final Schema _schema;
+  private final VersionedSchemaSet _schemaSet;
+  private final int _numLeaves;
+  private final int _numThreads;
+  private final int _chunkSize;
+  private ExecutorService _executor;
+  private BootstrapAuditDigestTree _srcTree;
+  private BootstrapAuditDigestTree _bootstrapTree;
+
+  public BootstrapMerkleAuditor(OracleTriggerMonitoredSourceInfo sourceInfo,
+                                BootstrapSrcDBEventReader reader,
+                                BootstrapReadOnlyConfig bootstrapConfig,
+                                String bootstrapTable,
+                                String keyName,
+                                KeyType keyType,
+                                Type txnType,
+                                Schema schema,
+                                VersionedSchemaSet schemaSet,
+                                int numLeaves,
+                                int numThreads,
+                                int chunkSize)
+  {
+    _sourceInfo = sourceInfo;
+    _reader = reader;
+    _bootstrapConfig = bootstrapConfig;
+    _srcTable = BootstrapSrcDBEventReader.getTableName(sourceInfo);
+    _bootstrapTable = bootstrapTable;
+    _keyName = keyName;
+    _keyType = keyType;
+    _txnType = txnType;
+    _schema = schema;
+    _schemaSet = schemaSet;
+    _numLeaves = numLeaves;
+    _numThreads = numThreads;
+    // the first row of every chunk but the first one is skipped
+    _chunkSize = Math.max(2, chunkSize);
+  }
+
+  public BootstrapAuditDigestTree getSourceTree()
+  {
+    return _srcTree;
+  }
+
+  public BootstrapAuditDigestTree getBootstrapTree()
+  {
+    return _bootstrapTree;
+  }
+
+  /*
+   * Scans both sides and compares their digests.
+   * @return the leaves whose digests differ
+   */
+  public BitSet computeMismatchingLeaves()
+      throws Exception
+  {
+    List<BootstrapSeederKeyRange> leaves = computeLeaves();
+    LOG.info("Auditing " + _sourceInfo.getEventView() + " in " + leaves.size() + " key ranges with "
+             + _numThreads + " threads");
+    _srcTree = new BootstrapAuditDigestTree(leaves, _keyType);
+    _bootstrapTree = new BootstrapAuditDigestTree(leaves, _keyType);
+    _executor = Executors.newFixedThreadPool(_numThreads, new NamedThreadFactory("BootstrapAuditScanner"));
+
+    long timeStart = System.currentTimeMillis();
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    int numScanRanges = Math.min(leaves.size(), _numThreads * SCAN_RANGES_PER_THREAD);
+    for (int i = 0; i < numScanRanges; ++i)
+    {
+      int first = (int)((long)leaves.size() * i / numScanRanges);
+      int next = (int)((long)leaves.size() * (i + 1) / numScanRanges);
+      String endKey = (next < leaves.size()) ? leaves.get(next).getBeginKey() : null;
+      tasks.add(sourceScanTask(leaves.get(first).getBeginKey(), endKey, addTo(_srcTree)));
+    }
+    tasks.addAll(bootstrapScanTasks(numScanRanges, addTo(_bootstrapTree), null));
+    runAll(tasks);
+
+    BitSet mismatches = _srcTree.diff(_bootstrapTree);
+    LOG.info("Digests computed in " + (System.currentTimeMillis() - timeStart) + " ms : source rows="
+             + _srcTree.getNumRows() + " bootstrap rows=" + _bootstrapTree.getNumRows()
+             + " mismatching key ranges=" + mismatches.cardinality() + "/" + leaves.size());
+    return mismatches;
+  }
+
+  /*
+   * Reads the (key, txn) pairs of the rows of the given leaves from both sides.
+   */
+  public void collectLeafRows(final BitSet leaves,
+                              final Map<String, Long> srcRows,
+                              final Map<String, Long> bootstrapRows)
+      throws Exception
+  {
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    KeyTxnHandler srcCollector = new KeyTxnHandler()
+    {
+      @Override
+      public void handle(String key, long txn)
+      {
+        srcRows.put(key, txn);
+      }
+    };
+    for (int leaf = leaves.nextSetBit(0); leaf >= 0; leaf = leaves.nextSetBit(leaf + 1))
+    {
+      tasks.add(sourceScanTask(_srcTree.getLeafBeginKey(leaf), _srcTree.getLeafEndKey(leaf), srcCollector));
+    }
+    KeyTxnHandler bootstrapCollector = new KeyTxnHandler()
+    {
+      @Override
+      public void handle(String key, long txn)
+      {
+        if (leaves.get(_bootstrapTree.findLeaf(key)))
+          bootstrapRows.put(key, txn);
+      }
+    };
+    List<String> keyRanges = getKeyRanges(leaves);
+    if (keyRanges.size() / 2 > MAX_BOOTSTRAP_KEY_RANGES)
+      keyRanges = null;
+    tasks.addAll(bootstrapScanTasks(_numThreads * SCAN_RANGES_PER_THREAD, bootstrapCollector, keyRanges));
+    runAll(tasks);
+  }
+
+  /*
+   * Merges consecutive leaves into key ranges.
+   * @return the begin and end keys of the ranges; null for an unbounded side
+   */
+  private List<String> getKeyRanges(BitSet leaves)
+  {
+    List<String> keyRanges = new ArrayList<String>();
+    int numLeaves = _bootstrapTree.getNumLeaves();
+    for (int leaf = leaves.nextSetBit(0); leaf >= 0 && leaf < numLeaves; leaf = leaves.nextSetBit(leaf))
+    {
+      int end = leaves.nextClearBit(leaf);
+      // keys smaller than the first begin key belong to the first leaf
+      keyRanges.add(0 == leaf ? null : _bootstrapTree.getLeafBeginKey(leaf));
+      keyRanges.add(end < numLeaves ? _bootstrapTree.getLeafBeginKey(end) : null);
+      leaf = end;
+    }
+    return keyRanges;
+  }
+
+  /*
+   * Generates the condition on the srckey column for the given key ranges. The bootstrap DB
+   * stores the keys as strings, so long keys are compared as numbers.
+   */
+  private String generateKeyRangesCondition(List<String> keyRanges)
+  {
+    String srcKey = (KeyType.LONG == _keyType) ? "cast(srckey as signed)" : "srckey";
+    StringBuilder sql = new StringBuilder(" and (");
+    for (int i = 0; i < keyRanges.size(); i += 2)
+    {
+      if (i > 0)
+        sql.append(" or ");
+      String beginKey = keyRanges.get(i);
+      String endKey = keyRanges.get(i + 1);
+      if (null == beginKey && null == endKey)
+        sql.append("1 = 1");
+      else if (null == endKey)
+        sql.append(srcKey).append(" >= ?");
+      else if (null == beginKey)
+        sql.append(srcKey).append(" < ?");
+      else
+        sql.append("(").append(srcKey).append(" >= ? and ").append(srcKey).append(" < ?)");
+    }
+    return sql.append(")").toString();
+  }
+
+  public void close()
+  {
+    if (null != _executor)
+      _executor.shutdownNow();
+  }
+
+  private List<BootstrapSeederKeyRange> computeLeaves()
+      throws SQLException
+  {
+    if (KeyType.LONG == _keyType)
+    {
+      long minKey = _reader.executeAndGetLong(BootstrapSrcDBEventReader.generateMinKeyQuery(_srcTable, _keyName));
+      long maxKey = _reader.executeAndGetLong(BootstrapSrcDBEventReader.generateMaxKeyQuery(_srcTable, _keyName));
+      return BootstrapSeederKeyRange.splitLongKeys(minKey, maxKey, _numLeaves, null);
+    }
+    String minKey = _reader.executeAndGetString(BootstrapSrcDBEventReader.generateMinKeyQuery(_srcTable, _keyName));
+    List<String> boundaries = _reader.executeAndGetStrings(
+        BootstrapSrcDBEventReader.generateKeyRangeBoundariesQuery(_srcTable, _keyName, _numLeaves));
+    return BootstrapSeederKeyRange.fromBoundaries(null == minKey ? "" : minKey, boundaries, null);
+  }
+
+  private static KeyTxnHandler addTo(final BootstrapAuditDigestTree tree)
+  {
+    return new KeyTxnHandler()
+    {
+      @Override
+      public void handle(String key, long txn)
+      {
+        tree.add(key, txn);
+      }
+    };
+  }
+
+  private void runAll(List<Callable<Void>> tasks)
+      throws DatabusException, InterruptedException
+  {
+    List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+    for (Callable<Void> t : tasks)
+    {
+      futures.add(_executor.submit(t));
+    }
+    Throwable error = null;
+    for (Future<Void> f : futures)
+    {
+      try
+      {
+        f.get();
+      } catch (ExecutionException e) {
+        LOG.error("Audit scan of source " + _sourceInfo.getEventView() + " failed", e.getCause());
+        if (null == error)
+          error = e.getCause();
+      }
+    }
+    if (null != error)
+    {
+      throw new DatabusException("Audit of source " + _sourceInfo.getEventView() + " failed", error);
+    }
+  }
+
+  /*
+   * Scans the key range [beginKey, endKey) of the source DB in chunks of _chunkSize rows
+   */
+  private Callable<Void> sourceScanTask(final String beginKey, final String endKey,
+                                        final KeyTxnHandler handler)
+  {
+    return new Callable<Void>()
+    {
+      @Override
+      public Void call() throws SQLException
+      {
+        String sql = BootstrapSrcDBEventReader.generateKeyTxnRangeQuery(_srcTable, _keyName,
+                                                                        _reader.getPKIndex(_sourceInfo),
+                                                                        _reader.getQueryHint(_sourceInfo),
+                                                                        null != endKey);
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try
+        {
+          conn = _reader.getDataSource().getConnection();
+          stmt = conn.prepareStatement(sql);
+          String from = beginKey;
+          boolean resume = false;
+          while (true)
+          {
+            setKey(stmt, 1, from);
+            if (null != endKey)
+              setKey(stmt, 2, endKey);
+            stmt.setInt(null != endKey ? 3 : 2, _chunkSize);
+            rs = stmt.executeQuery();
+            int numRows = 0;
+            String lastKey = null;
+            while (rs.next())
+            {
+              ++numRows;
+              String key = (KeyType.LONG == _keyType) ? Long.toString(rs.getLong(1)) : rs.getString(1);
+              lastKey = key;
+              // the first row of a resumed chunk was processed with the previous chunk
+              if (resume && 1 == numRows && key.equals(from))
+                continue;
+              handler.handle(key, rs.getLong(2));
+            }
+            DBHelper.close(rs);
+            rs = null;
+            if (numRows < _chunkSize)
+              break;
+            from = lastKey;
+            resume = true;
+          }
+        } finally {
+          DBHelper.close(rs, stmt, conn);
+        }
+        return null;
+      }
+    };
+  }
+
+  private void setKey(PreparedStatement stmt, int index, String key)
+      throws SQLException
+  {
+    if (KeyType.LONG == _keyType)
+      stmt.setLong(index, Long.parseLong(key));
+    else
+      stmt.setString(index, key);
+  }
+
+  /*
+   * Splits the row ids of the bootstrap table in numRanges ranges scanned in chunks of _chunkSize
+   * rows. Only the rows in the given key ranges are read, all rows if keyRanges is null.
+   */
+  private List<Callable<Void>> bootstrapScanTasks(int numRanges, final KeyTxnHandler handler,
+                                                  final List<String> keyRanges)
+      throws Exception
+  {
+    long maxId;
+    BootstrapConn bsConn = openBootstrapConn();
+    try
+    {
+      maxId = bsConn.executeQueryAndGetLong("select max(id) from " + _bootstrapTable, 0);
+    } finally {
+      bsConn.close();
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numRanges);
+    for (int i = 0; i < numRanges; ++i)
+    {
+      final long beginId = maxId * i / numRanges;
+      final long endId = maxId * (i + 1) / numRanges;
+      if (endId <= beginId)
+        continue;
+      tasks.add(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          scanBootstrapIds(beginId, endId, handler, keyRanges);
+          return null;
+        }
+      });
+    }
+    return tasks;
+  }
+
+  /*
+   * Scans the rows with ids in (beginId, endId] of the bootstrap table, in the given key ranges if
+   * any
+   */
+  private void scanBootstrapIds(long beginId, long endId, KeyTxnHandler handler, List<String> keyRanges)
+      throws Exception
+  {
+    // the auditor and the decoder are not thread-safe
+    BootstrapAuditTester auditor = new BootstrapAuditTester(_schema, _srcTable);
+    DbusEventAvroDecoder decoder = new DbusEventAvroDecoder(_schemaSet);
+    String sql = "select id, srckey, val from " + _bootstrapTable + " where id > ? and id <= ?"
+                 + (null != keyRanges ? generateKeyRangesCondition(keyRanges) : "")
+                 + " order by id limit ?";
+
+    BootstrapConn bsConn = openBootstrapConn();
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try
+    {
+      stmt = bsConn.getDBConn().prepareStatement(sql);
+      long from = beginId;
+      while (from < endId)
+      {
+        stmt.setLong(1, from);
+        stmt.setLong(2, endId);
+        int index = 3;
+        if (null != keyRanges)
+        {
+          for (String key : keyRanges)
+          {
+            if (null != key)
+              setKey(stmt, index++, key);
+          }
+        }
+        stmt.setInt(index, _chunkSize);
+        rs = stmt.executeQuery();
+        int numRows = 0;
+        while (rs.next())
+        {
+          ++numRows;
+          from = rs.getLong(1);
+          handler.handle(rs.getString(2),
+                         BootstrapAuditMain.getTxnId(auditor.getGenericRecord(rs, decoder), _txnType));
+        }
+        DBHelper.close(rs);
+        rs = null;
+        if (numRows < _chunkSize)
+          break;
+      }
+    } finally {
+      DBHelper.close(rs, stmt, null);
+      bsConn.close();
+    }
+  }
+
+  private BootstrapConn openBootstrapConn()
+      throws Exception
+  {
+    BootstrapConn bsConn = new BootstrapConn();
+    bsConn.initBootstrapConn(false,
+                             Connection.TRANSACTION_READ_UNCOMMITTED,
+                             _bootstrapConfig.getBootstrapDBUsername(),
+                             _bootstrapConfig.getBootstrapDBPassword(),
+                             _bootstrapConfig.getBootstrapDBHostname(),
+                             _bootstrapConfig.getBootstrapDBName());
+    return bsConn;
+  }
+}
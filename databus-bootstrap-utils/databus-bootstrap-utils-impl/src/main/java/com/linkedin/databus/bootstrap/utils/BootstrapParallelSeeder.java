@@ -0,0 +1,356 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.bootstrap.common.BootstrapReadOnlyConfig;
+import com.linkedin.databus.core.DbusEventKey.KeyType;
+import com.linkedin.databus.core.util.NamedThreadFactory;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+
+/*
+ * Seeds the sources by splitting the chunk-key space of each source into key ranges which are
+ * read from the source DB and written to the bootstrap DB concurrently. Each range is read over
+ * its own source DB connection and written over its own bootstrap DB connection (at most
+ * numSeederThreads of each are open at any time).
+ *
+ * The progress of each range is checkpointed in bootstrap_seeder_range_state so that a restarted
+ * seeder only re-seeds the unfinished ranges, from their last checkpointed key. Once all the
+ * ranges of a source are done, bootstrap_seeder_state is updated just like the sequential seeder
+ * does so that the rest of the bootstrap flow is unchanged.
+ */
+public class BootstrapParallelSeeder extends DbusSeederBaseThread
+{
+  private static final Logger LOG = Logger.getLogger(BootstrapParallelSeeder.class);
+
+  private final BootstrapSrcDBEventReader _reader;
+  private final BootstrapSrcDBEventReader.StaticConfig _config;
+  private final BootstrapDBSeeder _seeder;
+  private final BootstrapReadOnlyConfig _bootstrapConfig;
+  private final List<OracleTriggerMonitoredSourceInfo> _sources;
+  private final int _numKeyRanges;
+  private final int _numSeederThreads;
+  private final BlockingQueue<BootstrapDBRangeSeeder> _rangeSeeders;
+  private ExecutorService _writerExecutor;
+  private ExecutorService _readerExecutor;
+
+  /*
+   * @param reader     the sequential reader; used for the source DB connections and the per source
+   *                   configuration
+   * @param seeder     the seeder which owns the per source state (bootstrap_seeder_state)
+   */
+  public BootstrapParallelSeeder(BootstrapSrcDBEventReader reader,
+                                 BootstrapSrcDBEventReader.StaticConfig config,
+                                 BootstrapDBSeeder seeder,
+                                 BootstrapReadOnlyConfig bootstrapConfig,
+                                 List<OracleTriggerMonitoredSourceInfo> sources)
+  {
+    super("BootstrapParallelSeeder");
+    _reader = reader;
+    _config = config;
+    _seeder = seeder;
+    _bootstrapConfig = bootstrapConfig;
+    _sources = sources;
+    _numKeyRanges = config.getNumKeyRanges();
+    _numSeederThreads = Math.min(config.getNumSeederThreads(), _numKeyRanges);
+    _rangeSeeders = new ArrayBlockingQueue<BootstrapDBRangeSeeder>(_numSeederThreads);
+  }
+
+  @Override
+  public void run()
+  {
+    _started = true;
+    _rate.start();
+    try
+    {
+      seedAllSources();
+      LOG.info("Completed Seeding !!");
+    } catch (Exception ex) {
+      _isError = true;
+      _exception = ex;
+      LOG.error("Seeder stopping unexpectedly !!", ex);
+    } finally {
+      if (null != _writerExecutor)
+        _writerExecutor.shutdownNow();
+      if (null != _readerExecutor)
+        _readerExecutor.shutdownNow();
+      _rate.stop();
+      _stopped.countDown();
+    }
+  }
+
+  public void seedAllSources()
+      throws Exception
+  {
+    _seeder.initKeyRangeState();
+    for (int i = 0; i < _numSeederThreads; ++i)
+    {
+      _rangeSeeders.add(new BootstrapDBRangeSeeder(_bootstrapConfig, _sources));
+    }
+    _writerExecutor = Executors.newFixedThreadPool(_numSeederThreads,
+                                                   new NamedThreadFactory("BootstrapSeederWriter"));
+    _readerExecutor = Executors.newFixedThreadPool(_numSeederThreads,
+                                                   new NamedThreadFactory("BootstrapSeederReader"));
+
+    if (_sources.isEmpty())
+      return;
+
+    // Script assumes seeding is done for one schema at a time
+    // just use one source to get the schema name for sy$txlog
+    long maxScn = _reader.getMaxScn(_sources.get(0));
+    long endScn = maxScn;
+    for (OracleTriggerMonitoredSourceInfo sourceInfo : _sources)
+    {
+      if (_stop.get())
+        throw new DatabusException("Seeder stopped");
+
+      LOG.info("Bootstrapping " + sourceInfo.getEventView() + " with " + _numKeyRanges
+               + " key ranges and " + _numSeederThreads + " threads");
+      seedSource(sourceInfo, maxScn);
+      endScn = _reader.getMaxScn(_sources.get(0));
+      _seeder.endSource(sourceInfo.getSourceId(), endScn);
+    }
+    _seeder.endSeeding();
+    LOG.info("Start SCN :" + maxScn);
+    LOG.info("End SCN :" + endScn);
+  }
+
+  private void seedSource(OracleTriggerMonitoredSourceInfo sourceInfo, long maxScn)
+      throws Exception
+  {
+    String srcName = sourceInfo.getEventView();
+    short srcId = sourceInfo.getSourceId();
+    KeyType keyType = _reader.getpKeyTypeMap().get(srcName);
+    String keyName = _reader.getpKeyNameMap().get(srcName);
+    String customQuery = _config.getEventQueryMap().get(srcName);
+
+    List<BootstrapSeederKeyRange> ranges = _seeder.getKeyRanges(srcId);
+    if (ranges.isEmpty())
+    {
+      ranges = computeKeyRanges(sourceInfo, keyType, keyName, null != customQuery);
+      _seeder.saveKeyRanges(srcId, ranges);
+      LOG.info("Key ranges for source " + srcName + " :" + ranges);
+    }
+    else
+    {
+      LOG.info("Resuming seeding of source " + srcName + " with key ranges :" + ranges);
+    }
+
+    File keyTxnFile = _reader.getKeyTxnFilesMap().get(srcName);
+
+    List<Future<EventReaderSummary>> futures = new ArrayList<Future<EventReaderSummary>>(ranges.size());
+    for (BootstrapSeederKeyRange range : ranges)
+    {
+      if (range.isDone())
+      {
+        LOG.info("Skipping range already seeded :" + range);
+        continue;
+      }
+      BootstrapSeederRangeReader rangeReader = createRangeReader(sourceInfo, range, maxScn);
+      futures.add(_writerExecutor.submit(new BootstrapRangeSeedingTask(_rangeSeeders, _readerExecutor,
+                                                                  srcId, range, rangeReader)));
+    }
+
+    long numRowsFetched = BootstrapRangeSeedingTask.awaitAll(futures, srcName);
+
+    long numRows = 0;
+    for (BootstrapSeederKeyRange range : ranges)
+    {
+      numRows += range.getNumRows();
+    }
+    LOG.info("Seeded " + numRowsFetched + " rows of Source: " + sourceInfo.getSourceName()
+             + " in this run, total rows :" + numRows);
+    _rate.ticks(numRowsFetched);
+
+    _seeder.updateSeederState(srcId, maxScn, numRows, ranges.get(ranges.size() - 1).getLastKey());
+    if (null != keyTxnFile)
+    {
+      mergeKeyTxnFiles(keyTxnFile, ranges);
+      BootstrapSrcDBEventReader.dedupeKeyTxnFile(keyTxnFile, keyType);
+    }
+  }
+
+  /*
+   * Creates the reader of a key range of the source. The query of the last range of a source
+   * seeded up to a configured end key includes the end key.
+   */
+  BootstrapSeederRangeReader createRangeReader(OracleTriggerMonitoredSourceInfo sourceInfo,
+                                               BootstrapSeederKeyRange range, long maxScn)
+  {
+    String srcName = sourceInfo.getEventView();
+    KeyType keyType = _reader.getpKeyTypeMap().get(srcName);
+    String keyName = _reader.getpKeyNameMap().get(srcName);
+    String customQuery = _config.getEventQueryMap().get(srcName);
+    String table = BootstrapSrcDBEventReader.getTableName(sourceInfo);
+
+    String sql = null;
+    if (range.isBounded())
+      sql = BootstrapSrcDBEventReader.generateRangeEventQuery(table, keyName, keyType,
+                                                              _reader.getPKIndex(sourceInfo),
+                                                              _reader.getQueryHint(sourceInfo),
+                                                              range.isEndInclusive());
+    else if (null != customQuery)
+      sql = customQuery;
+    else
+      sql = BootstrapSrcDBEventReader.generateEventQuery2(table, keyName, keyType,
+                                                          _reader.getPKIndex(sourceInfo),
+                                                          _reader.getQueryHint(sourceInfo));
+
+    File keyTxnFile = _reader.getKeyTxnFilesMap().get(srcName);
+    Integer keyTxnBufferSize = _reader.getKeyTxnBufferSizeMap().get(srcName);
+    return new BootstrapSeederRangeReader(_reader.getDataSource(), sourceInfo, range,
+                                          new BootstrapEventBuffer(_config.getCommitInterval() * 2),
+                                          sql, keyType, maxScn, _config,
+                                          getRangeKeyTxnFile(keyTxnFile, range),
+                                          null == keyTxnBufferSize ? 1 : keyTxnBufferSize,
+                                          _reader.getOraclePreparedStatementClass(),
+                                          _reader.getSetLobPrefetchSizeMethod());
+  }
+
+  /*
+   * Splits the key space of the source in _numKeyRanges ranges. Numeric keys are split in
+   * ranges of the same width; other keys on the boundaries of buckets of equal number of rows.
+   * The last range ends at the configured end key (inclusive) if any.
+   */
+  List<BootstrapSeederKeyRange> computeKeyRanges(OracleTriggerMonitoredSourceInfo sourceInfo,
+                                                 KeyType keyType, String keyName,
+                                                 boolean customQuery)
+      throws Exception
+  {
+    String srcName = sourceInfo.getEventView();
+    String table = BootstrapSrcDBEventReader.getTableName(sourceInfo);
+    // the configured end key is seeded too
+    String endKey = _config.getEndSrcKeyMap().get(srcName);
+    if (null != endKey && endKey.trim().isEmpty())
+      endKey = null;
+    /*
+     * First Key to be seeded will be decided in the following order:
+     * 1. Use bootstrap_seeder_state's last srcKey (left by a previous sequential run).
+     * 2. If (1) is empty, use passed-in begin srcKey.
+     * 3. If (2) is also empty, use Oracle's minKey as the first Chunk Key.
+     */
+    String beginKey = _seeder.getLastKeys().get(srcName);
+    if (null == beginKey || beginKey.trim().isEmpty())
+      beginKey = _config.getBeginSrcKeyMap().get(srcName);
+
+    List<BootstrapSeederKeyRange> ranges = null;
+    if (customQuery)
+    {
+      // A custom event query cannot be restricted to a key range
+      LOG.warn("Event query configured for source " + srcName + "; seeding it as a single key range");
+      if (null == beginKey || beginKey.trim().isEmpty())
+        beginKey = minKey(table, keyName, keyType);
+      ranges = new ArrayList<BootstrapSeederKeyRange>(1);
+      ranges.add(new BootstrapSeederKeyRange(0, beginKey, null));
+    }
+    else if (KeyType.LONG == keyType)
+    {
+      long minKey = (null == beginKey || beginKey.trim().isEmpty()) ?
+          _reader.executeAndGetLong(BootstrapSrcDBEventReader.generateMinKeyQuery(table, keyName)) :
+          Long.parseLong(beginKey.trim());
+      if (null != endKey)
+        endKey = endKey.trim();
+      long maxKey = (null != endKey) ? Long.parseLong(endKey) :
+          _reader.executeAndGetLong(BootstrapSrcDBEventReader.generateMaxKeyQuery(table, keyName));
+      ranges = BootstrapSeederKeyRange.splitLongKeys(minKey, maxKey, _numKeyRanges, endKey);
+    }
+    else
+    {
+      if (null == beginKey || beginKey.trim().isEmpty())
+        beginKey = minKey(table, keyName, keyType);
+      // the DB restricts and orders the boundaries with its own collation
+      String boundariesSql = BootstrapSrcDBEventReader.generateKeyRangeBoundariesQuery(table, keyName, _numKeyRanges,
+                                                                                       null != endKey);
+      List<String> boundaries = (null == endKey) ? _reader.executeAndGetStrings(boundariesSql, beginKey) :
+          _reader.executeAndGetStrings(boundariesSql, beginKey, endKey);
+      ranges = BootstrapSeederKeyRange.fromBoundaries(beginKey, boundaries, endKey);
+    }
+    return ranges;
+  }
+
+  private String minKey(String table, String keyName, KeyType keyType)
+      throws Exception
+  {
+    String minKeySQL = BootstrapSrcDBEventReader.generateMinKeyQuery(table, keyName);
+    if (KeyType.LONG == keyType)
+      return Long.toString(_reader.executeAndGetLong(minKeySQL));
+    String minKey = _reader.executeAndGetString(minKeySQL);
+    return (null == minKey) ? "" : minKey; //empty table
+
+  }
+
+  static File getRangeKeyTxnFile(File keyTxnFile, BootstrapSeederKeyRange range)
+  {
+    return (null == keyTxnFile) ? null :
+        new File(keyTxnFile.getAbsolutePath() + "." + range.getRangeId());
+  }
+
+  /*
+   * Appends the key-txn files of the ranges to the source key-txn file. The result is sorted and
+   * deduped by BootstrapSrcDBEventReader.dedupeKeyTxnFile().
+   */
+  static void mergeKeyTxnFiles(File keyTxnFile, List<BootstrapSeederKeyRange> ranges)
+      throws IOException
+  {
+    OutputStream out = new FileOutputStream(keyTxnFile, keyTxnFile.exists());
+    byte[] buf = new byte[64 * 1024];
+    try
+    {
+      for (BootstrapSeederKeyRange range : ranges)
+      {
+        File rangeFile = getRangeKeyTxnFile(keyTxnFile, range);
+        if (!rangeFile.exists())
+          continue;
+        InputStream in = new FileInputStream(rangeFile);
+        try
+        {
+          int n;
+          while ((n = in.read(buf)) > 0)
+          {
+            out.write(buf, 0, n);
+          }
+        } finally {
+          in.close();
+        }
+        if (!rangeFile.delete())
+          LOG.warn("Unable to delete key-txn file :" + rangeFile);
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
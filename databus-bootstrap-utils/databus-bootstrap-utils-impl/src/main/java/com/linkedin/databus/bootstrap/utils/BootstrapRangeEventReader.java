@@ -0,0 +1,38 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.concurrent.Callable;
+
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+
+/*
+ * Reader of a single range seeded by the parallel seeders. The reader appends the events of the
+ * range to its buffer, publishes its progress with EOP events (whose rowId is the number of rows
+ * of the range seeded so far) and terminates the range with END_OF_FILE (or ERROR_CODE).
+ */
+public interface BootstrapRangeEventReader extends Callable<EventReaderSummary>
+{
+  /** The buffer the events of the range are appended to */
+  BootstrapEventBuffer getBuffer();
+
+  /** Makes the reader stop (with an error) at the next event. */
+  void abort();
+}
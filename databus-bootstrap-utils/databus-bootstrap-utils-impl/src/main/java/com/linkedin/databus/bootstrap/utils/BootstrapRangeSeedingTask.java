@@ -0,0 +1,135 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.bootstrap.utils.BootstrapEventBuffer.EventBufferEntry;
+import com.linkedin.databus.bootstrap.utils.BootstrapEventBuffer.EventType;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+
+/*
+ * Seeds one range: the range is read by a reader task while the current thread writes the
+ * events to the bootstrap DB through one of the (pooled) range seeders.
+ */
+class BootstrapRangeSeedingTask implements Callable<EventReaderSummary>
+{
+  private static final Logger LOG = Logger.getLogger(BootstrapRangeSeedingTask.class);
+
+  private final BlockingQueue<BootstrapDBRangeSeeder> _rangeSeeders;
+  private final ExecutorService _readerExecutor;
+  private final short _srcId;
+  private final BootstrapSeederKeyRange _range;
+  private final BootstrapRangeEventReader _rangeReader;
+
+  public BootstrapRangeSeedingTask(BlockingQueue<BootstrapDBRangeSeeder> rangeSeeders,
+                                   ExecutorService readerExecutor,
+                                   short srcId,
+                                   BootstrapSeederKeyRange range,
+                                   BootstrapRangeEventReader rangeReader)
+  {
+    _rangeSeeders = rangeSeeders;
+    _readerExecutor = readerExecutor;
+    _srcId = srcId;
+    _range = range;
+    _rangeReader = rangeReader;
+  }
+
+  @Override
+  public EventReaderSummary call() throws Exception
+  {
+    BootstrapDBRangeSeeder rangeSeeder = _rangeSeeders.take();
+    try
+    {
+      rangeSeeder.setRange(_srcId, _range);
+      BootstrapEventBuffer buffer = _rangeReader.getBuffer();
+      Future<EventReaderSummary> readerFuture = _readerExecutor.submit(_rangeReader);
+      BootstrapSeederWriterThread writer = new BootstrapSeederWriterThread(buffer, rangeSeeder);
+      try
+      {
+        // the writer loop runs in this thread until EOF (or ERROR) of the range
+        writer.run();
+      } catch (RuntimeException e) {
+        LOG.error("Error writing range " + _range + " of source " + _srcId, e);
+        rangeSeeder.rollbackEvents();
+        _rangeReader.abort();
+        drain(buffer);
+        throw e;
+      }
+      return readerFuture.get();
+    } finally {
+      _rangeSeeders.put(rangeSeeder);
+    }
+  }
+
+  /*
+   * Waits for all the range tasks of a source
+   * @return the total number of events seeded by the tasks
+   */
+  static long awaitAll(List<Future<EventReaderSummary>> futures, String srcName)
+      throws DatabusException, InterruptedException
+  {
+    long numEvents = 0;
+    Throwable error = null;
+    for (Future<EventReaderSummary> f : futures)
+    {
+      try
+      {
+        numEvents += f.get().getNumberOfEvents();
+      } catch (ExecutionException e) {
+        LOG.error("Seeding of a range of source " + srcName + " failed", e.getCause());
+        if (null == error)
+          error = e.getCause();
+      }
+    }
+    if (null != error)
+    {
+      throw new DatabusException("Seeding of source " + srcName + " failed", error);
+    }
+    return numEvents;
+  }
+
+  /*
+   * Consumes the events of the buffer until the reader is done so that it is never blocked
+   */
+  private static void drain(BootstrapEventBuffer buffer)
+  {
+    final boolean[] done = new boolean[1];
+    BootstrapEventBuffer.EventProcessor discarder = new BootstrapEventBuffer.EventProcessor()
+    {
+      @Override
+      public boolean process(EventBufferEntry entry, long scn)
+      {
+        done[0] = (EventType.EVENT_EOF == entry.getType()) ||
+                  (EventType.EVENT_ERROR == entry.getType());
+        return true;
+      }
+    };
+    while (!done[0] && buffer.readNextEvent(discarder));
+  }
+}
@@ -0,0 +1,179 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A range of seeder chunk keys [beginKey, endKey) seeded independently by the parallel seeder
+ * together with its resumable progress (as stored in bootstrap_seeder_range_state).
+ * A null endKey denotes a range which is unbounded on the right. The last range of a source
+ * seeded up to a configured end key is [beginKey, endKey] (endInclusive).
+ */
+public class BootstrapSeederKeyRange
+{
+  private final int _rangeId;
+  private final String _beginKey;
+  private final String _endKey;
+  private final boolean _endInclusive;
+  private String _lastKey;
+  private long _numRows;
+  private boolean _done;
+
+  public BootstrapSeederKeyRange(int rangeId, String beginKey, String endKey)
+  {
+    this(rangeId, beginKey, endKey, false);
+  }
+
+  public BootstrapSeederKeyRange(int rangeId, String beginKey, String endKey, boolean endInclusive)
+  {
+    this(rangeId, beginKey, endKey, endInclusive, beginKey, 0, false);
+  }
+
+  public BootstrapSeederKeyRange(int rangeId, String beginKey, String endKey, boolean endInclusive,
+                                 String lastKey, long numRows, boolean done)
+  {
+    _rangeId = rangeId;
+    _beginKey = beginKey;
+    _endKey = endKey;
+    _endInclusive = endInclusive && null != endKey;
+    _lastKey = lastKey;
+    _numRows = numRows;
+    _done = done;
+  }
+
+  public int getRangeId()
+  {
+    return _rangeId;
+  }
+
+  public String getBeginKey()
+  {
+    return _beginKey;
+  }
+
+  public String getEndKey()
+  {
+    return _endKey;
+  }
+
+  public boolean isBounded()
+  {
+    return null != _endKey;
+  }
+
+  /** Whether the end key belongs to the range */
+  public boolean isEndInclusive()
+  {
+    return _endInclusive;
+  }
+
+  /** The key from which seeding of this range is to be (re)started */
+  public String getLastKey()
+  {
+    return _lastKey;
+  }
+
+  public long getNumRows()
+  {
+    return _numRows;
+  }
+
+  public boolean isDone()
+  {
+    return _done;
+  }
+
+  public void setProgress(String lastKey, long numRows, boolean done)
+  {
+    _lastKey = lastKey;
+    _numRows = numRows;
+    _done = done;
+  }
+
+  /*
+   * Splits [minKey, maxKey] into at most numRanges contiguous ranges of (roughly) equal width.
+   * The last range is unbounded unless endKey is not null in which case it is used as the
+   * inclusive end of the last range.
+   */
+  public static List<BootstrapSeederKeyRange> splitLongKeys(long minKey, long maxKey,
+                                                           int numRanges, String endKey)
+  {
+    List<BootstrapSeederKeyRange> result = new ArrayList<BootstrapSeederKeyRange>(numRanges);
+    if (maxKey < minKey || numRanges <= 1)
+    {
+      result.add(new BootstrapSeederKeyRange(0, Long.toString(minKey), endKey, true));
+      return result;
+    }
+
+    // use doubles to avoid overflow for very wide key spaces
+    double width = ((double)maxKey - (double)minKey + 1) / numRanges;
+    long begin = minKey;
+    for (int i = 0; i < numRanges; ++i)
+    {
+      boolean last = (i == numRanges - 1);
+      long end = last ? maxKey : (long)(minKey + width * (i + 1));
+      if (!last && end <= begin)
+      {
+        continue;
+      }
+      result.add(new BootstrapSeederKeyRange(result.size(), Long.toString(begin),
+                                             last ? endKey : Long.toString(end), last));
+      begin = end;
+    }
+    return result;
+  }
+
+  /*
+   * Builds contiguous ranges from the begin keys of each range as returned by the key range
+   * boundaries query, i.e. in the order of the source DB; the keys are not compared in Java as
+   * the DB collation may differ from String ordering. The first boundary is the first key of the
+   * first range, which starts at firstKey instead. The last range is unbounded unless endKey is
+   * not null in which case it is used as the inclusive end of the last range.
+   */
+  public static List<BootstrapSeederKeyRange> fromBoundaries(String firstKey,
+                                                            List<String> boundaries,
+                                                            String endKey)
+  {
+    List<BootstrapSeederKeyRange> result = new ArrayList<BootstrapSeederKeyRange>(boundaries.size());
+    String begin = firstKey;
+    for (int i = 1; i < boundaries.size(); ++i)
+    {
+      String b = boundaries.get(i);
+      if (null == b || b.equals(begin))
+      {
+        continue;
+      }
+      result.add(new BootstrapSeederKeyRange(result.size(), begin, b));
+      begin = b;
+    }
+    result.add(new BootstrapSeederKeyRange(result.size(), begin, endKey, true));
+    return result;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "BootstrapSeederKeyRange [rangeId=" + _rangeId + ", beginKey=" + _beginKey
+        + ", endKey=" + _endKey + ", endInclusive=" + _endInclusive + ", lastKey=" + _lastKey
+        + ", numRows=" + _numRows + ", done=" + _done + "]";
+  }
+}
@@ -92,6 +92,7 @@ public class BootstrapSeederMain
 	private static BootstrapSrcDBEventReader _sReader = null;
 	private static BootstrapSeederWriterThread _sWriterThread = null;
 	private static BootstrapEventBuffer  _sBootstrapBuffer = null;
+	private static BootstrapParallelSeeder _sParallelSeeder = null;
 
 	private static String _validationType = "normal";
 	private static double _validationSamplePct = 100.0;
@@ -116,6 +117,11 @@ public class BootstrapSeederMain
       return _sReader;
     }
 
+    public static BootstrapParallelSeeder getParallelSeeder()
+    {
+      return _sParallelSeeder;
+    }
+
     public static Properties getBootstrapConfigProps()
     {
       return _sBootstrapConfigProps;
@@ -149,6 +155,11 @@ public class BootstrapSeederMain
 	{
 	    init(args);
 	    _sSeeder.startSeeding();
+	    if (null != _sParallelSeeder)
+	    {
+	      _sParallelSeeder.start();
+	      return;
+	    }
 	    //_sReader.readEventsFromAllSources(0);
 	    _sReader.start();
 	    _sWriterThread.start();
@@ -235,6 +246,16 @@ public class BootstrapSeederMain
 	                                             _sSeeder.getLastRows(),
 	                                             _sSeeder.getLastKeys(),
 	                                             0);
+
+	    if (_sStaticConfig.getController().getNumKeyRanges() > 1)
+	    {
+	      LOG.info("Parallel seeding enabled with " + _sStaticConfig.getController().getNumKeyRanges() + " key ranges");
+	      _sParallelSeeder = new BootstrapParallelSeeder(_sReader,
+	                                                     _sStaticConfig.getController(),
+	                                                     _sSeeder,
+	                                                     _sStaticConfig.getBootstrap(),
+	                                                     _sources);
+	    }
 	}
 
 	@SuppressWarnings("static-access")
@@ -266,7 +287,7 @@ public class BootstrapSeederMain
 	    									.create(LOG4J_PROPS_OPT_CHAR);
 
 	    Option validationType = OptionBuilder.withLongOpt(VALIDATION_TYPE_OPT_LONG_NAME)
-	    						.withDescription("Type of validation algorithm , normal[cmp two sorted streams of oracle and bootstrap db]  or point[entry in bootstrap checked in oracle]")
+	    						.withDescription("Type of validation algorithm , normal[cmp two sorted streams of oracle and bootstrap db]  or point[entry in bootstrap checked in oracle] or merkle[compare digests of key ranges, then the rows of the mismatching ranges]")
 	    						.hasArg()
 	    						.withArgName("validation_type")
 	    						.create(VALIDATION_TYPE_OPT_CHAR);
@@ -340,13 +361,13 @@ public class BootstrapSeederMain
 	    else
 	    {
 	    	String vtype = cmd.getOptionValue(VALIDATION_TYPE_OPT_CHAR);
-	    	if (vtype.equals("point") || vtype.equals("normal") || vtype.equals("pointBs"))
+	    	if (vtype.equals("point") || vtype.equals("normal") || vtype.equals("pointBs") || vtype.equals("merkle"))
 	    	{
 	    		_validationType = vtype;
 	    	}
 	    	else
 	    	{
-	    		throw new RuntimeException("Validation type has to be one of 'normal' or 'point' or 'pointBs'");
+	    		throw new RuntimeException("Validation type has to be one of 'normal' or 'point' or 'pointBs' or 'merkle'");
 	    	}
 	    }
 	    if (cmd.hasOption(VALIDATION_SAMPLE_PCT_CHAR))
@@ -69,6 +69,15 @@ public class BootstrapSeederOracleAvroGenericEventFactory extends
 	    _log.info("SeederChunkKey Field is :" + _seederChunkKeyName);
 	}
 
+	/**
+	 * The seeder chunk key is read from the GenericRecord of each row
+	 */
+	@Override
+	protected boolean isRowMappingPlanEnabled()
+	{
+		return false;
+	}
+
 	/*
 	 * @see com.linkedin.databus2.monitors.db.EventFactory#createEvent(long, long, java.sql.ResultSet)
 	 */
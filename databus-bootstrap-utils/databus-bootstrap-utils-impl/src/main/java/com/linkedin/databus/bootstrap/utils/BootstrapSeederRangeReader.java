@@ -0,0 +1,322 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.bootstrap.utils.BootstrapSrcDBEventReader.PrimaryKeyTxn;
+import com.linkedin.databus.core.DbusEventKey.KeyType;
+import com.linkedin.databus.core.UnsupportedKeyException;
+import com.linkedin.databus.core.util.RateMonitor;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.EventCreationException;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+import com.linkedin.databus2.util.DBHelper;
+
+/*
+ * Reads one key range of a source table in chunk-key order over its own connection and appends
+ * the rows to a BootstrapEventBuffer. Progress is published to the buffer every commitInterval
+ * rows as an EOP event whose rowId is the number of rows seeded so far in this range; the end
+ * of the range is signalled with END_OF_FILE (or ERROR_CODE on failure).
+ */
+public class BootstrapSeederRangeReader implements BootstrapRangeEventReader
+{
+  private static final Logger LOG = Logger.getLogger(BootstrapSeederRangeReader.class);
+
+  private final DataSource _dataSource;
+  private final OracleTriggerMonitoredSourceInfo _sourceInfo;
+  private final BootstrapSeederKeyRange _range;
+  private final BootstrapEventBuffer _buffer;
+  private final String _sql;
+  private final KeyType _keyType;
+  private final long _maxScn;
+  private final int _numRowsPerQuery;
+  private final int _numRowsPrefetch;
+  private final int _commitInterval;
+  private final int _numRetries;
+  private final File _keyTxnFile;
+  private final int _keyTxnBufferSize;
+  private final Class<?> _oraclePreparedStatementClass;
+  private final Method _setLobPrefetchSizeMethod;
+  private final int _LOBPrefetchSize;
+  private volatile boolean _aborted = false;
+
+  public BootstrapSeederRangeReader(DataSource dataSource,
+                                    OracleTriggerMonitoredSourceInfo sourceInfo,
+                                    BootstrapSeederKeyRange range,
+                                    BootstrapEventBuffer buffer,
+                                    String sql,
+                                    KeyType keyType,
+                                    long maxScn,
+                                    BootstrapSrcDBEventReader.StaticConfig config,
+                                    File keyTxnFile,
+                                    int keyTxnBufferSize,
+                                    Class<?> oraclePreparedStatementClass,
+                                    Method setLobPrefetchSizeMethod)
+  {
+    _dataSource = dataSource;
+    _sourceInfo = sourceInfo;
+    _range = range;
+    _buffer = buffer;
+    _sql = sql;
+    _keyType = keyType;
+    _maxScn = maxScn;
+    _numRowsPerQuery = config.getNumRowsPerQuery();
+    _numRowsPrefetch = config.getNumRowsPrefetch();
+    _commitInterval = config.getCommitInterval();
+    _numRetries = config.getNumRetries();
+    _LOBPrefetchSize = config.getLOBPrefetchSize();
+    _keyTxnFile = keyTxnFile;
+    _keyTxnBufferSize = keyTxnBufferSize;
+    _oraclePreparedStatementClass = oraclePreparedStatementClass;
+    _setLobPrefetchSizeMethod = setLobPrefetchSizeMethod;
+  }
+
+  @Override
+  public BootstrapEventBuffer getBuffer()
+  {
+    return _buffer;
+  }
+
+  @Override
+  public void abort()
+  {
+    _aborted = true;
+  }
+
+  @Override
+  public EventReaderSummary call() throws Exception
+  {
+    boolean error = true;
+    try
+    {
+      EventReaderSummary summary = readRange();
+      error = false;
+      return summary;
+    }
+    finally
+    {
+      if (error)
+      {
+        _buffer.endEvents(BootstrapEventBuffer.ERROR_CODE, _maxScn, null);
+      }
+      else
+      {
+        _buffer.endEvents(BootstrapEventBuffer.END_OF_FILE, _maxScn, null);
+      }
+    }
+  }
+
+  private EventReaderSummary readRange()
+      throws DatabusException, EventCreationException, UnsupportedKeyException, SQLException, IOException
+  {
+    String srcName = _sourceInfo.getEventView();
+    long timestamp = System.currentTimeMillis();
+    long timeStart = timestamp;
+    long totalEventSize = 0;
+    long numRows = _range.getNumRows();
+    long numRowsFetched = 0;
+    int numRetry = 0;
+    boolean done = false;
+    // when resuming, the rows with the start key have been seeded (and counted) before
+    boolean skipStartKey = numRows > 0;
+
+    PrimaryKeyTxn pKey = parseKey(_range.getLastKey());
+    PrimaryKeyTxn endKey = _range.isBounded() ? parseKey(_range.getEndKey()) : null;
+    PrimaryKeyTxn chunkStartKey = new PrimaryKeyTxn(pKey);
+
+    LOG.info("Seeding " + srcName + " " + _range + " with query :" + _sql);
+
+    BufferedWriter keyTxnWriter = null;
+    Connection conn = null;
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    RateMonitor seedingRate = new RateMonitor("Seeding Rate " + srcName + "#" + _range.getRangeId());
+    seedingRate.start();
+    try
+    {
+      if (null != _keyTxnFile)
+      {
+        keyTxnWriter = new BufferedWriter(new FileWriter(_keyTxnFile, _keyTxnFile.exists()),
+                                          Math.max(1, _keyTxnBufferSize));
+      }
+      conn = _dataSource.getConnection();
+      pstmt = conn.prepareStatement(_sql);
+
+      _buffer.start(_maxScn);
+      _buffer.startEvents();
+      while (!done)
+      {
+        try
+        {
+          chunkStartKey.copyFrom(pKey);
+          setKey(pstmt, 1, pKey);
+          int nextParam = 2;
+          if (null != endKey)
+          {
+            setKey(pstmt, nextParam++, endKey);
+          }
+          pstmt.setLong(nextParam, _numRowsPerQuery);
+          pstmt.setFetchSize(_numRowsPrefetch);
+          setLobPrefetchSize(pstmt);
+
+          rs = pstmt.executeQuery();
+
+          int numRowsThisRound = 0;
+          while (rs.next())
+          {
+            if (_aborted)
+            {
+              throw new DatabusException("Seeding of " + srcName + " " + _range + " aborted");
+            }
+            long txnId = rs.getLong(2);
+            if (KeyType.LONG == _keyType)
+            {
+              pKey.setKeyTxn(rs.getLong(1), txnId);
+            }
+            else
+            {
+              pKey.setKeyStrTxn(rs.getString(1), txnId);
+            }
+
+            if (null != keyTxnWriter)
+            {
+              pKey.writeTo(keyTxnWriter);
+            }
+
+            totalEventSize += _sourceInfo.getFactory().createAndAppendEvent(_maxScn, timestamp, rs,
+                                                                            _buffer, false, null);
+            seedingRate.tick();
+            ++numRowsThisRound;
+            ++numRowsFetched;
+
+            //rows with the chunk start key have already been seeded by the previous chunk
+            if (!skipStartKey || 0 != pKey.compareKey(chunkStartKey))
+            {
+              ++numRows;
+            }
+
+            if (numRowsFetched % _commitInterval == 0)
+            {
+              _buffer.endEvents(numRows, timestamp, null);
+              _buffer.startEvents();
+              if (null != keyTxnWriter)
+              {
+                keyTxnWriter.flush();
+              }
+              LOG.info("Range " + srcName + "#" + _range.getRangeId() + " : seeded " + numRows
+                       + " rows, rate :" + seedingRate.getRate() + ", current key :" + pKey);
+            }
+          }
+
+          if (numRowsThisRound < _numRowsPerQuery)
+          {
+            done = true;
+          }
+          else if (0 == chunkStartKey.compareKey(pKey))
+          {
+            String msg = "Seeding stuck at infinite loop for source : " + srcName + ", range :"
+                + _range + ", numRowsThisRound :" + numRowsThisRound + ", lastChunkKey :" + chunkStartKey;
+            LOG.error(msg);
+            throw new DatabusException(msg);
+          }
+
+          _buffer.endEvents(numRows, timestamp, null);
+          skipStartKey = true;
+          numRetry = 0;
+        }
+        catch (SQLException ex)
+        {
+          LOG.error("Got SQLException for source (" + srcName + "), range :" + _range, ex);
+          _buffer.rollbackEvents();
+          if (++numRetry >= _numRetries)
+          {
+            throw new DatabusException("Error: Reached max retries for reading range " + _range, ex);
+          }
+        }
+        finally
+        {
+          DBHelper.close(rs);
+          rs = null;
+        }
+      }
+    }
+    finally
+    {
+      DBHelper.close(rs, pstmt, conn);
+      if (null != keyTxnWriter)
+      {
+        keyTxnWriter.close();
+      }
+      seedingRate.stop();
+    }
+
+    _range.setProgress(pKey.getKeyType() == KeyType.LONG ? Long.toString(pKey.getKey()) : pKey.getKeyStr(),
+                       numRows, true);
+    long timeEnd = System.currentTimeMillis();
+    LOG.info("Done seeding " + srcName + " " + _range + " in " + (timeEnd - timeStart) + " ms");
+    return new EventReaderSummary(_sourceInfo.getSourceId(), _sourceInfo.getSourceName(), -1,
+                                  (int)numRowsFetched, totalEventSize, (timeEnd - timeStart), 0, 0, 0, 0);
+  }
+
+  private PrimaryKeyTxn parseKey(String key)
+  {
+    return KeyType.LONG == _keyType ? new PrimaryKeyTxn(Long.parseLong(key)) : new PrimaryKeyTxn(key);
+  }
+
+  private void setKey(PreparedStatement pstmt, int index, PrimaryKeyTxn key) throws SQLException
+  {
+    if (KeyType.LONG == _keyType)
+    {
+      pstmt.setLong(index, key.getKey());
+    }
+    else
+    {
+      pstmt.setString(index, key.getKeyStr());
+    }
+  }
+
+  private void setLobPrefetchSize(PreparedStatement pstmt) throws EventCreationException
+  {
+    if (null != _oraclePreparedStatementClass && _oraclePreparedStatementClass.isInstance(pstmt))
+    {
+      try
+      {
+        _setLobPrefetchSizeMethod.invoke(pstmt, _LOBPrefetchSize);
+      } catch (Exception e)
+      {
+        throw new EventCreationException("Unable to set Lob Prefetch size" + e.getMessage());
+      }
+    }
+  }
+}
@@ -107,6 +107,18 @@ public class BootstrapSrcDBEventReader
 		return _pKeyTypeMap;
 	}
 
+	DataSource getDataSource() {
+		return _dataSource;
+	}
+
+	Class<?> getOraclePreparedStatementClass() {
+		return _oraclePreparedStatementClass;
+	}
+
+	Method getSetLobPrefetchSizeMethod() {
+		return _setLobPrefetchSizeMethod;
+	}
+
 	public BootstrapSrcDBEventReader(DataSource dataSource,
 									 BootstrapEventBuffer eventBuffer,
 			                         StaticConfig   config,
@@ -591,7 +603,7 @@ public class BootstrapSrcDBEventReader
 		                              numRowsFetched, totalEventSize, (timeEnd - timeStart),totProcessTime,0,0,0);
 	}
 
-	private long getMaxScn(OracleTriggerMonitoredSourceInfo sourceInfo)
+	long getMaxScn(OracleTriggerMonitoredSourceInfo sourceInfo)
 	  throws SQLException
 	{
 		String schema = ( sourceInfo.getEventSchema() == null) ? "" :
@@ -611,7 +623,7 @@ public class BootstrapSrcDBEventReader
 	    return maxScn;
 	}
 
-	private long executeAndGetLong(String query)
+	long executeAndGetLong(String query)
 	   throws SQLException
 	{
 		long val = -1;
@@ -638,7 +650,7 @@ public class BootstrapSrcDBEventReader
 		return val;
 	}
 
-	private String executeAndGetString(String query)
+	String executeAndGetString(String query)
 	   throws SQLException
 	{
 		String val = null;
@@ -665,6 +677,42 @@ public class BootstrapSrcDBEventReader
 		return val;
 	}
 
+	/*
+	 * Returns the (non-null) values of the first column of all the rows returned by the query
+	 * run with the given (string) parameters
+	 */
+	List<String> executeAndGetStrings(String query, String... params)
+	   throws SQLException
+	{
+		List<String> vals = new ArrayList<String>();
+	    Connection conn = null;
+	    PreparedStatement pstmt = null;
+	    ResultSet rs = null;
+	    try
+	    {
+	        conn = _dataSource.getConnection();
+	        pstmt = conn.prepareStatement(query);
+	        for (int i = 0; i < params.length; ++i)
+	        	pstmt.setString(i + 1, params[i]);
+	        rs = pstmt.executeQuery();
+	        while (rs.next())
+	        {
+	        	String val = rs.getString(1);
+	        	if (null != val)
+	        		vals.add(val);
+	        }
+
+	        LOG.info("Query:" + query + ",Result is :" + vals);
+
+	    } catch ( SQLException sqlEx) {
+	    	LOG.error("Got error while executing query:" + query, sqlEx);
+	    	throw sqlEx;
+	    } finally {
+	        DBHelper.close(rs, pstmt, conn);
+	    }
+		return vals;
+	}
+
 	public static String getTableName(OracleTriggerMonitoredSourceInfo sourceInfo)
 	{
 		String schema = ( sourceInfo.getEventSchema() == null) ? "" :
@@ -761,6 +809,57 @@ public class BootstrapSrcDBEventReader
 	  }
 
 
+	/**
+	 * Same as generateEventQuery2 but restricted to the key range [?, ?) (or [?, ?] if endInclusive):
+	 * the parameters are the chunk start key, the end key of the range and the number of rows.
+	 */
+	public static String generateRangeEventQuery(String table, String keyName, KeyType keyType, String pkIndex, String queryHint,
+	                                             boolean endInclusive)
+	{
+	    StringBuilder sql = new StringBuilder();
+
+	    sql.append("select * from (");
+	    if ( (null == queryHint) || ( queryHint.isEmpty()))
+	      sql.append("select /*+ INDEX(src ").append(pkIndex).append(") */ ");
+	    else
+	       sql.append("select /*+ " + queryHint + " */ ");
+
+	    sql.append(keyName).append( " keyn,");
+	    sql.append(" txn txnid, src.*, ROW_NUMBER() OVER(order by src.").append(keyName).append(" asc) as row_counter from ");
+	    sql.append(table);
+	    sql.append(" src");
+		sql.append(" where src." + keyName + " >= ?");
+		sql.append(" and src." + keyName + (endInclusive ? " <= ?" : " < ?"));
+	    sql.append(" ) where row_counter <= ?");
+		return sql.toString();
+	}
+
+	/**
+	 * Returns the (key, txn) pairs of at most ? rows of the table starting at key ? (inclusive),
+	 * in key order. If bounded, the rows are further restricted to the keys less than ?.
+	 * Used by the merkle audit to compute the range digests.
+	 */
+	public static String generateKeyTxnRangeQuery(String table, String keyName, String pkIndex, String queryHint, boolean bounded)
+	{
+	    StringBuilder sql = new StringBuilder();
+
+	    sql.append("select * from (");
+	    if ( (null == queryHint) || ( queryHint.isEmpty()))
+	      sql.append("select /*+ INDEX(src ").append(pkIndex).append(") */ ");
+	    else
+	       sql.append("select /*+ " + queryHint + " */ ");
+
+	    sql.append(keyName).append( " keyn, txn txnid from ");
+	    sql.append(table);
+	    sql.append(" src");
+		sql.append(" where src." + keyName + " >= ?");
+		if (bounded)
+			sql.append(" and src." + keyName + " < ?");
+		sql.append(" order by src." + keyName + " asc");
+	    sql.append(" ) where rownum <= ?");
+		return sql.toString();
+	}
+
 	public static String generateMinKeyQuery(OracleTriggerMonitoredSourceInfo sourceInfo, String keyName)
 	{
 		return generateMinKeyQuery(getTableName(sourceInfo), keyName );
@@ -774,6 +873,46 @@ public class BootstrapSrcDBEventReader
 		return sql.toString();
 	}
 
+	public static String generateMaxKeyQuery(String table, String keyName)
+	{
+	    StringBuilder sql = new StringBuilder();
+	    sql.append("select max(" + keyName + ") ");
+	    sql.append("from " + table);
+		return sql.toString();
+	}
+
+	/**
+	 * Returns the first key of each of numRanges buckets with (roughly) the same number of rows,
+	 * in key order. Used to split non-numeric key spaces for parallel seeding.
+	 */
+	public static String generateKeyRangeBoundariesQuery(String table, String keyName, int numRanges)
+	{
+	    StringBuilder sql = new StringBuilder();
+	    sql.append("select min(keyn) from (");
+	    sql.append("select " + keyName + " keyn, NTILE(" + numRanges + ") OVER(order by " + keyName + " asc) as bucket ");
+	    sql.append("from " + table);
+	    sql.append(") group by bucket order by 1");
+		return sql.toString();
+	}
+
+	/**
+	 * Same as generateKeyRangeBoundariesQuery(table, keyName, numRanges) but restricted to the keys
+	 * from ? (inclusive) and, if bounded, up to ? (inclusive), so that the buckets split the key
+	 * space to be seeded.
+	 */
+	public static String generateKeyRangeBoundariesQuery(String table, String keyName, int numRanges, boolean bounded)
+	{
+	    StringBuilder sql = new StringBuilder();
+	    sql.append("select min(keyn) from (");
+	    sql.append("select " + keyName + " keyn, NTILE(" + numRanges + ") OVER(order by " + keyName + " asc) as bucket ");
+	    sql.append("from " + table);
+	    sql.append(" where " + keyName + " >= ?");
+	    if (bounded)
+	      sql.append(" and " + keyName + " <= ?");
+	    sql.append(") group by bucket order by 1");
+		return sql.toString();
+	}
+
 	private static String generateCountQuery(String table)
 	{
 	    StringBuilder sql = new StringBuilder();
@@ -782,7 +921,7 @@ public class BootstrapSrcDBEventReader
 	    return sql.toString();
 	}
 
-	private void dedupe(String file, String tmpFile, KeyType type)
+	private static void dedupe(String file, String tmpFile, KeyType type)
 		throws Exception
 	{
 		BufferedReader reader = null;
@@ -832,7 +971,7 @@ public class BootstrapSrcDBEventReader
 		}
 	}
 
-	private void dedupeKeyTxnFile(File keyTxnFile, KeyType keyType)
+	static void dedupeKeyTxnFile(File keyTxnFile, KeyType keyType)
 	{
 		boolean numericKey = (keyType == KeyType.LONG);
 		StringBuilder cmd = new StringBuilder();
@@ -901,7 +1040,7 @@ public class BootstrapSrcDBEventReader
 		}
 	}
 
-	private String getStream(InputStream stream)
+	private static String getStream(InputStream stream)
 		throws IOException
 	{
 		BufferedReader reader =
@@ -994,6 +1133,24 @@ public class BootstrapSrcDBEventReader
             return _endSrcKeyMap;
         }
 
+        /** Number of key ranges each source is split into; 1 disables parallel seeding */
+        public int getNumKeyRanges()
+        {
+            return _numKeyRanges;
+        }
+
+        /** Number of key ranges read (and written to the bootstrap DB) concurrently */
+        public int getNumSeederThreads()
+        {
+            return _numSeederThreads;
+        }
+
+        /** Number of key ranges (leaves of the digest tree) compared by the merkle audit */
+        public int getAuditNumLeaves()
+        {
+            return _auditNumLeaves;
+        }
+
 		public StaticConfig(boolean enableNumRowsQuery,
 				int numRowsPrefetch, int LOBPrefetchSize,
 				int commitInterval, int numRetries,
@@ -1006,7 +1163,10 @@ public class BootstrapSrcDBEventReader
 				Map<String, String> queryHintMap,
 				Map<String, String> eventQueryMap,
 				Map<String, String> beginSrcKeyMap,
-				Map<String, String> endSrcKeyMap)
+				Map<String, String> endSrcKeyMap,
+				int numKeyRanges,
+				int numSeederThreads,
+				int auditNumLeaves)
 		{
 			super();
 			this._enableNumRowsQuery = enableNumRowsQuery;
@@ -1024,7 +1184,9 @@ public class BootstrapSrcDBEventReader
 			this._eventQueryMap = eventQueryMap;
 			this._beginSrcKeyMap = beginSrcKeyMap;
 			this._endSrcKeyMap = endSrcKeyMap;
-
+			this._numKeyRanges = numKeyRanges;
+			this._numSeederThreads = numSeederThreads;
+			this._auditNumLeaves = auditNumLeaves;
 		}
 
 		private final boolean _enableNumRowsQuery;
@@ -1042,6 +1204,9 @@ public class BootstrapSrcDBEventReader
 		private final Map<String, String> _eventQueryMap;
 		private final Map<String, String> _beginSrcKeyMap;
 		private final Map<String, String> _endSrcKeyMap;
+		private final int _numKeyRanges;
+		private final int _numSeederThreads;
+		private final int _auditNumLeaves;
 	}
 
 	public static class Config implements ConfigBuilder<StaticConfig>
@@ -1059,6 +1224,9 @@ public class BootstrapSrcDBEventReader
 	    private static final String DEFAULT_QUERY_HINT = "";
 	    private static final String DEFAULT_BEGINSRC_KEY = "";
 	    private static final String DEFAULT_ENDSRC_KEY = "";
+	    private static final int DEFAULT_NUM_KEY_RANGES = 1;
+	    private static final int DEFAULT_NUM_SEEDER_THREADS = 4;
+	    private static final int DEFAULT_AUDIT_NUM_LEAVES = 4096;
 
 
 		public Config()
@@ -1078,6 +1246,9 @@ public class BootstrapSrcDBEventReader
 			_eventQueryMap = new HashMap<String, String>();
 			_beginSrcKeyMap = new HashMap<String, String>();
 			_endSrcKeyMap = new HashMap<String, String>();
+			_numKeyRanges = DEFAULT_NUM_KEY_RANGES;
+			_numSeederThreads = DEFAULT_NUM_SEEDER_THREADS;
+			_auditNumLeaves = DEFAULT_AUDIT_NUM_LEAVES;
 		}
 
 		@Override
@@ -1097,7 +1268,16 @@ public class BootstrapSrcDBEventReader
 			LOG.info("_queryHintMap:" + _queryHintMap);
 			LOG.info("_beginSrcKeyMap:" + _beginSrcKeyMap);
 			LOG.info("_endSrcKeyMap:" + _endSrcKeyMap);
+			LOG.info("_numKeyRanges:" + _numKeyRanges);
+			LOG.info("_numSeederThreads:" + _numSeederThreads);
+			LOG.info("_auditNumLeaves:" + _auditNumLeaves);
 
+			if (_numKeyRanges <= 0)
+				throw new InvalidConfigException("numKeyRanges must be positive: " + _numKeyRanges);
+			if (_numSeederThreads <= 0)
+				throw new InvalidConfigException("numSeederThreads must be positive: " + _numSeederThreads);
+			if (_auditNumLeaves <= 0)
+				throw new InvalidConfigException("auditNumLeaves must be positive: " + _auditNumLeaves);
 
 			HashMap<String, DbusEventKey.KeyType> pKeyTypeMap = new HashMap<String, DbusEventKey.KeyType>();
 			Iterator<Entry<String, String>> itr = _pKeyTypeMap.entrySet().iterator();
@@ -1111,7 +1291,8 @@ public class BootstrapSrcDBEventReader
 			return new StaticConfig(_enableNumRowsQuery, _numRowsPrefetch,_LOBPrefetchSize,
 									_commitInterval,_numRetries, _numRowsPerQuery,
 									_keyTxnFilesMap, _keyTxnBufferSizeMap,
-									_pKeyNameMap, pKeyTypeMap, _pKeyIndexMap, _queryHintMap,_eventQueryMap, _beginSrcKeyMap, _endSrcKeyMap);
+									_pKeyNameMap, pKeyTypeMap, _pKeyIndexMap, _queryHintMap,_eventQueryMap, _beginSrcKeyMap, _endSrcKeyMap,
+									_numKeyRanges, _numSeederThreads, _auditNumLeaves);
 		}
 
 		public int getNumRowsPrefetch() {
@@ -1312,6 +1493,30 @@ public class BootstrapSrcDBEventReader
 			return _eventQueryMap.get(src);
 		}
 
+		public int getNumKeyRanges() {
+			return _numKeyRanges;
+		}
+
+		public void setNumKeyRanges(int numKeyRanges) {
+			this._numKeyRanges = numKeyRanges;
+		}
+
+		public int getNumSeederThreads() {
+			return _numSeederThreads;
+		}
+
+		public void setNumSeederThreads(int numSeederThreads) {
+			this._numSeederThreads = numSeederThreads;
+		}
+
+		public int getAuditNumLeaves() {
+			return _auditNumLeaves;
+		}
+
+		public void setAuditNumLeaves(int auditNumLeaves) {
+			this._auditNumLeaves = auditNumLeaves;
+		}
+
 
 		private  boolean _enableNumRowsQuery;
 		private  int _numRowsPrefetch;
@@ -1328,6 +1533,9 @@ public class BootstrapSrcDBEventReader
         private final Map<String, String> _eventQueryMap;
         private final Map<String, String> _beginSrcKeyMap;
         private final Map<String, String> _endSrcKeyMap;
+        private int _numKeyRanges;
+        private int _numSeederThreads;
+        private int _auditNumLeaves;
 
 	}
 
@@ -0,0 +1,99 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.DbusEventKey.KeyType;
+
+public class TestBootstrapAuditDigestTree
+{
+  private static BootstrapAuditDigestTree longTree()
+  {
+    return new BootstrapAuditDigestTree(BootstrapSeederKeyRange.splitLongKeys(0, 9999, 100, null),
+                                        KeyType.LONG);
+  }
+
+  @Test
+  public void testFindLeaf()
+  {
+    BootstrapAuditDigestTree tree = longTree();
+    Assert.assertEquals(tree.getNumLeaves(), 100);
+    Assert.assertEquals(tree.findLeaf("-5"), 0);
+    Assert.assertEquals(tree.findLeaf("0"), 0);
+    Assert.assertEquals(tree.findLeaf("99"), 0);
+    Assert.assertEquals(tree.findLeaf("100"), 1);
+    Assert.assertEquals(tree.findLeaf("5050"), 50);
+    Assert.assertEquals(tree.findLeaf("1000000"), 99);
+    Assert.assertNull(tree.getLeafEndKey(99));
+
+    List<BootstrapSeederKeyRange> leaves =
+        BootstrapSeederKeyRange.fromBoundaries("b", Arrays.asList("b", "f", "m"), null);
+    BootstrapAuditDigestTree strTree = new BootstrapAuditDigestTree(leaves, KeyType.STRING);
+    Assert.assertEquals(strTree.getNumLeaves(), 3);
+    Assert.assertEquals(strTree.findLeaf("a"), 0);
+    Assert.assertEquals(strTree.findLeaf("ez"), 0);
+    Assert.assertEquals(strTree.findLeaf("f"), 1);
+    Assert.assertEquals(strTree.findLeaf("zz"), 2);
+  }
+
+  @Test
+  public void testEqualDigestsIndependentOfOrder()
+  {
+    BootstrapAuditDigestTree src = longTree();
+    BootstrapAuditDigestTree dest = longTree();
+    for (int i = 0; i < 10000; ++i)
+    {
+      src.add(Integer.toString(i), 1000 + i);
+      dest.add(Integer.toString(9999 - i), 1000 + 9999 - i);
+    }
+    Assert.assertEquals(src.getNumRows(), 10000);
+    Assert.assertTrue(src.diff(dest).isEmpty());
+  }
+
+  @Test
+  public void testDiffFindsMismatchingLeaves()
+  {
+    BootstrapAuditDigestTree src = longTree();
+    BootstrapAuditDigestTree dest = longTree();
+    for (int i = 0; i < 10000; ++i)
+    {
+      src.add(Integer.toString(i), 1000 + i);
+      // older txn in bootstrap for key 150, missing key 7777 and an extra key beyond the source keys
+      if (150 == i)
+        dest.add(Integer.toString(i), 999);
+      else if (7777 != i)
+        dest.add(Integer.toString(i), 1000 + i);
+    }
+    dest.add("20000", 1);
+
+    BitSet expected = new BitSet();
+    expected.set(1);
+    expected.set(77);
+    expected.set(99);
+    Assert.assertEquals(src.diff(dest), expected);
+    Assert.assertEquals(dest.diff(src), expected);
+  }
+}
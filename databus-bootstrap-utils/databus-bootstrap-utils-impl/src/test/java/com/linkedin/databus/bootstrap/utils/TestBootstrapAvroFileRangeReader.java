@@ -0,0 +1,194 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.bootstrap.utils.BootstrapEventBuffer.EventBufferEntry;
+import com.linkedin.databus.bootstrap.utils.BootstrapEventBuffer.EventType;
+import com.linkedin.databus2.producers.ConstantPartitionFunction;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+import com.linkedin.databus2.test.TestUtil;
+
+public class TestBootstrapAvroFileRangeReader
+{
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"Person\",\"namespace\":\"com.linkedin.events.test\"," +
+      "\"meta\":\"dbFieldName=PERSON;pk=id;\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":\"long\",\"meta\":\"dbFieldName=ID;dbFieldPosition=0;\"}," +
+      "{\"name\":\"name\",\"type\":\"string\",\"meta\":\"dbFieldName=NAME;dbFieldPosition=1;\"}]}";
+  private static final int COMMIT_INTERVAL = 100;
+
+  private File _dir;
+  private List<File> _files;
+  private int _numRecords;
+  private OracleTriggerMonitoredSourceInfo _sourceInfo;
+
+  @BeforeClass
+  public void setUpClass() throws Exception
+  {
+    TestUtil.setupLogging(true, null, Level.ERROR);
+    _dir = new File(System.getProperty("java.io.tmpdir"), "TestBootstrapAvroFileRangeReader" + System.nanoTime());
+    Assert.assertTrue(_dir.mkdirs());
+
+    Schema schema = Schema.parse(SCHEMA);
+    int[] fileSizes = {3000, 7, 0};
+    long id = 0;
+    for (int i = 0; i < fileSizes.length; ++i)
+    {
+      DataFileWriter<GenericRecord> writer =
+          new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema));
+      //small blocks so that the file has many sync points
+      writer.setSyncInterval(512);
+      writer.create(schema, new File(_dir, "part-" + i + ".avro"));
+      for (int j = 0; j < fileSizes[i]; ++j)
+      {
+        GenericRecord r = new GenericData.Record(schema);
+        r.put("id", id++);
+        r.put("name", new Utf8("name" + id));
+        writer.append(r);
+      }
+      writer.close();
+    }
+    _numRecords = (int)id;
+    _files = BootstrapAvroFileParallelSeeder.listSeedFiles(_dir);
+    Assert.assertEquals(_files.size(), fileSizes.length);
+
+    BootstrapSeederOracleAvroGenericEventFactory factory =
+        new BootstrapSeederOracleAvroGenericEventFactory((short)1, (short)1, SCHEMA,
+                                                         new ConstantPartitionFunction(), "ID", null);
+    _sourceInfo = new OracleTriggerMonitoredSourceInfo((short)1, "com.linkedin.events.test.Person",
+                                                       "test", "person", "test", factory, null, false);
+  }
+
+  @AfterClass
+  public void tearDownClass()
+  {
+    for (File f: _dir.listFiles())
+    {
+      f.delete();
+    }
+    _dir.delete();
+  }
+
+  /** Reads a split and returns the keys of the events it produced */
+  private List<Long> readSplit(File file, BootstrapSeederKeyRange split) throws Exception
+  {
+    BootstrapEventBuffer buffer = new BootstrapEventBuffer(2 * _numRecords + 100);
+    BootstrapAvroFileRangeReader reader =
+        new BootstrapAvroFileRangeReader(_sourceInfo, file, split, buffer, 1234L, COMMIT_INTERVAL);
+    long numSeeded = split.getNumRows();
+    EventReaderSummary summary = reader.call();
+
+    final List<Long> keys = new ArrayList<Long>();
+    final long[] lastRowId = {-1};
+    final boolean[] eof = {false};
+    BootstrapEventBuffer.EventProcessor processor = new BootstrapEventBuffer.EventProcessor()
+    {
+      @Override
+      public boolean process(EventBufferEntry entry, long scn)
+      {
+        Assert.assertFalse(eof[0]);
+        Assert.assertEquals(scn, 1234L);
+        if (EventType.EVENT_VALID == entry.getType())
+          keys.add(entry.getKey().getLongKey());
+        else if (EventType.EVENT_EOP == entry.getType())
+          lastRowId[0] = entry.getTimeStamp();
+        else
+        {
+          Assert.assertEquals(entry.getType(), EventType.EVENT_EOF);
+          eof[0] = true;
+        }
+        return true;
+      }
+    };
+    while (!buffer.empty())
+    {
+      buffer.readNextEvent(processor);
+    }
+
+    Assert.assertTrue(eof[0]);
+    Assert.assertTrue(split.isDone());
+    Assert.assertEquals(summary.getNumberOfEvents(), keys.size());
+    Assert.assertEquals(split.getNumRows(), numSeeded + keys.size());
+    Assert.assertEquals(lastRowId[0], split.getNumRows());
+    return keys;
+  }
+
+  @Test
+  public void testSplitsCoverAllRecords() throws Exception
+  {
+    for (long splitSize : new long[]{1000, 4096, 1L << 30})
+    {
+      List<File> splitFiles = new ArrayList<File>();
+      List<BootstrapSeederKeyRange> splits =
+          BootstrapAvroFileParallelSeeder.computeSplits(_files, splitSize, splitFiles);
+      Assert.assertEquals(splitFiles.size(), splits.size());
+      if (splitSize < (1L << 30))
+        Assert.assertTrue(splits.size() > _files.size());
+
+      Set<Long> seen = new HashSet<Long>();
+      for (int i = 0; i < splits.size(); ++i)
+      {
+        Assert.assertEquals(splits.get(i).getRangeId(), i);
+        for (Long k: readSplit(splitFiles.get(i), splits.get(i)))
+        {
+          Assert.assertTrue(seen.add(k), "duplicate key " + k + " for split size " + splitSize);
+        }
+      }
+      Assert.assertEquals(seen.size(), _numRecords, "split size " + splitSize);
+    }
+  }
+
+  @Test
+  public void testResumeSplit() throws Exception
+  {
+    List<File> splitFiles = new ArrayList<File>();
+    List<BootstrapSeederKeyRange> splits =
+        BootstrapAvroFileParallelSeeder.computeSplits(_files, 1L << 30, splitFiles);
+    BootstrapSeederKeyRange split = splits.get(0);
+    List<Long> all = readSplit(splitFiles.get(0), split);
+    Assert.assertEquals(all.size(), 3000);
+
+    //checkpointed after 250 rows
+    BootstrapSeederKeyRange resumed = new BootstrapSeederKeyRange(0, split.getBeginKey(), split.getEndKey(), false,
+                                                                  split.getBeginKey(), 250, false);
+    List<Long> rest = readSplit(splitFiles.get(0), resumed);
+    Assert.assertEquals(rest, all.subList(250, all.size()));
+    Assert.assertEquals(resumed.getNumRows(), 3000);
+  }
+}
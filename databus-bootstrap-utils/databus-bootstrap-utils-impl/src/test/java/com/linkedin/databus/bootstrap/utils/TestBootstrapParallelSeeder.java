@@ -0,0 +1,214 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Level;
+import org.easymock.EasyMock;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.DbusEventBufferAppendable;
+import com.linkedin.databus.core.DbusEventKey.KeyType;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+import com.linkedin.databus2.producers.db.EventFactory;
+import com.linkedin.databus2.producers.db.EventReaderSummary;
+import com.linkedin.databus2.producers.db.OracleTriggerMonitoredSourceInfo;
+import com.linkedin.databus2.test.TestUtil;
+
+public class TestBootstrapParallelSeeder
+{
+  private static final String SRC = "person";
+  private static final String TABLE = "test.sy$person";
+  private static final String KEY_NAME = "name";
+  private static final String PK_INDEX = "person_pk";
+  private static final int NUM_ROWS_PER_QUERY = 10;
+
+  @BeforeClass
+  public void setUpClass()
+  {
+    TestUtil.setupLogging(true, null, Level.ERROR);
+  }
+
+  private static BootstrapSrcDBEventReader.StaticConfig createConfig(String beginKey, String endKey)
+      throws Exception
+  {
+    BootstrapSrcDBEventReader.Config config = new BootstrapSrcDBEventReader.Config();
+    config.setPKeyName(SRC, KEY_NAME);
+    config.setPKeyType(SRC, "STRING");
+    config.setPKeyIndex(SRC, PK_INDEX);
+    config.setBeginSrcKey(SRC, beginKey);
+    config.setEndSrcKey(SRC, endKey);
+    config.setNumKeyRanges(4);
+    config.setNumSeederThreads(2);
+    config.setNumRowsPerQuery(NUM_ROWS_PER_QUERY);
+    config.setCommitInterval(100);
+    return config.build();
+  }
+
+  private static OracleTriggerMonitoredSourceInfo createSourceInfo(EventFactory factory)
+  {
+    return new OracleTriggerMonitoredSourceInfo((short)1, "com.linkedin.events.test.Person", "test", SRC,
+                                                "test", factory, null, false);
+  }
+
+  private static BootstrapParallelSeeder createSeeder(BootstrapSrcDBEventReader reader,
+                                                      BootstrapSrcDBEventReader.StaticConfig config,
+                                                      OracleTriggerMonitoredSourceInfo sourceInfo)
+  {
+    BootstrapDBSeeder seeder = EasyMock.createMock(BootstrapDBSeeder.class);
+    EasyMock.expect(seeder.getLastKeys()).andReturn(new HashMap<String, String>()).anyTimes();
+    EasyMock.replay(seeder);
+    return new BootstrapParallelSeeder(reader, config, seeder, null, Arrays.asList(sourceInfo));
+  }
+
+  @Test
+  public void testStringKeyRangesInDbOrder() throws Exception
+  {
+    OracleTriggerMonitoredSourceInfo sourceInfo = createSourceInfo(null);
+
+    // the boundaries come from the DB, restricted to [beginKey, endKey], in the DB collation order
+    BootstrapSrcDBEventReader reader = EasyMock.createMock(BootstrapSrcDBEventReader.class);
+    EasyMock.expect(reader.executeAndGetStrings(
+        BootstrapSrcDBEventReader.generateKeyRangeBoundariesQuery(TABLE, KEY_NAME, 4, true), "a", "e"))
+        .andReturn(Arrays.asList("a", "B", "c", "D"));
+    EasyMock.replay(reader);
+
+    List<BootstrapSeederKeyRange> ranges =
+        createSeeder(reader, createConfig("a", "e"), sourceInfo).computeKeyRanges(sourceInfo, KeyType.STRING,
+                                                                                 KEY_NAME, false);
+    EasyMock.verify(reader);
+    Assert.assertEquals(ranges.size(), 4);
+    String[] beginKeys = {"a", "B", "c", "D"};
+    for (int i = 0; i < ranges.size(); ++i)
+    {
+      BootstrapSeederKeyRange r = ranges.get(i);
+      Assert.assertEquals(r.getBeginKey(), beginKeys[i]);
+      Assert.assertEquals(r.isEndInclusive(), i == ranges.size() - 1);
+    }
+    Assert.assertEquals(ranges.get(3).getEndKey(), "e");
+
+    // without an end key the last range is unbounded
+    reader = EasyMock.createMock(BootstrapSrcDBEventReader.class);
+    EasyMock.expect(reader.executeAndGetStrings(
+        BootstrapSrcDBEventReader.generateKeyRangeBoundariesQuery(TABLE, KEY_NAME, 4, false), "a"))
+        .andReturn(Arrays.asList("a", "m"));
+    EasyMock.replay(reader);
+
+    ranges = createSeeder(reader, createConfig("a", ""), sourceInfo).computeKeyRanges(sourceInfo, KeyType.STRING,
+                                                                                     KEY_NAME, false);
+    EasyMock.verify(reader);
+    Assert.assertEquals(ranges.size(), 2);
+    Assert.assertEquals(ranges.get(1).getBeginKey(), "m");
+    Assert.assertFalse(ranges.get(1).isBounded());
+  }
+
+  @Test
+  public void testLongKeyRangesWithEndKey() throws Exception
+  {
+    OracleTriggerMonitoredSourceInfo sourceInfo = createSourceInfo(null);
+    // no DB access when both ends are configured
+    BootstrapSrcDBEventReader reader = EasyMock.createMock(BootstrapSrcDBEventReader.class);
+    EasyMock.replay(reader);
+
+    List<BootstrapSeederKeyRange> ranges =
+        createSeeder(reader, createConfig("1", " 100"), sourceInfo).computeKeyRanges(sourceInfo, KeyType.LONG,
+                                                                                    KEY_NAME, false);
+    Assert.assertEquals(ranges.size(), 4);
+    Assert.assertEquals(ranges.get(3).getBeginKey(), "76");
+    Assert.assertEquals(ranges.get(3).getEndKey(), "100");
+    Assert.assertTrue(ranges.get(3).isEndInclusive());
+  }
+
+  @Test
+  public void testReadRangeWithInclusiveEnd() throws Exception
+  {
+    DataSource dataSource = EasyMock.createMock(DataSource.class);
+    Connection conn = EasyMock.createMock(Connection.class);
+    PreparedStatement pstmt = EasyMock.createMock(PreparedStatement.class);
+    ResultSet rs = EasyMock.createMock(ResultSet.class);
+    EventFactory factory = EasyMock.createMock(EventFactory.class);
+    OracleTriggerMonitoredSourceInfo sourceInfo = createSourceInfo(factory);
+
+    Map<String, KeyType> keyTypes = new HashMap<String, KeyType>();
+    keyTypes.put(SRC, KeyType.STRING);
+    Map<String, String> keyNames = new HashMap<String, String>();
+    keyNames.put(SRC, KEY_NAME);
+    BootstrapSrcDBEventReader reader = EasyMock.createMock(BootstrapSrcDBEventReader.class);
+    EasyMock.expect(reader.getpKeyTypeMap()).andReturn(keyTypes).anyTimes();
+    EasyMock.expect(reader.getpKeyNameMap()).andReturn(keyNames).anyTimes();
+    EasyMock.expect(reader.getPKIndex(sourceInfo)).andReturn(PK_INDEX).anyTimes();
+    EasyMock.expect(reader.getQueryHint(sourceInfo)).andReturn(null).anyTimes();
+    EasyMock.expect(reader.getKeyTxnFilesMap()).andReturn(new HashMap<String, File>()).anyTimes();
+    EasyMock.expect(reader.getKeyTxnBufferSizeMap()).andReturn(new HashMap<String, Integer>()).anyTimes();
+    EasyMock.expect(reader.getDataSource()).andReturn(dataSource).anyTimes();
+    EasyMock.expect(reader.getOraclePreparedStatementClass()).andReturn(null).anyTimes();
+    EasyMock.expect(reader.getSetLobPrefetchSizeMethod()).andReturn(null).anyTimes();
+    EasyMock.replay(reader);
+
+    // the end key of the last range is read too
+    String sql = BootstrapSrcDBEventReader.generateRangeEventQuery(TABLE, KEY_NAME, KeyType.STRING, PK_INDEX,
+                                                                   null, true);
+    Assert.assertTrue(sql.contains(KEY_NAME + " <= ?"), sql);
+    EasyMock.expect(dataSource.getConnection()).andReturn(conn);
+    EasyMock.expect(conn.prepareStatement(sql)).andReturn(pstmt);
+    pstmt.setString(1, "m");
+    pstmt.setString(2, "t");
+    pstmt.setLong(3, NUM_ROWS_PER_QUERY);
+    pstmt.setFetchSize(EasyMock.anyInt());
+    EasyMock.expect(pstmt.executeQuery()).andReturn(rs);
+    EasyMock.expect(rs.next()).andReturn(true).times(3);
+    EasyMock.expect(rs.next()).andReturn(false);
+    EasyMock.expect(rs.getLong(2)).andReturn(5L).times(3);
+    EasyMock.expect(rs.getString(1)).andReturn("m");
+    EasyMock.expect(rs.getString(1)).andReturn("p");
+    EasyMock.expect(rs.getString(1)).andReturn("t");
+    EasyMock.expect(factory.createAndAppendEvent(EasyMock.eq(1234L), EasyMock.anyLong(), EasyMock.same(rs),
+                                                 EasyMock.anyObject(DbusEventBufferAppendable.class),
+                                                 EasyMock.eq(false),
+                                                 (DbusEventsStatisticsCollector)EasyMock.isNull()))
+            .andReturn(100L).times(3);
+    rs.close();
+    pstmt.close();
+    conn.close();
+    EasyMock.replay(dataSource, conn, pstmt, rs, factory);
+
+    BootstrapSeederKeyRange range = new BootstrapSeederKeyRange(2, "m", "t", true);
+    EventReaderSummary summary =
+        createSeeder(reader, createConfig("a", "t"), sourceInfo).createRangeReader(sourceInfo, range, 1234L).call();
+    EasyMock.verify(dataSource, conn, pstmt, rs, factory);
+
+    Assert.assertEquals(summary.getNumberOfEvents(), 3);
+    Assert.assertTrue(range.isDone());
+    Assert.assertEquals(range.getNumRows(), 3);
+    Assert.assertEquals(range.getLastKey(), "t");
+  }
+}
@@ -0,0 +1,170 @@
+package com.linkedin.databus.bootstrap.utils;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus2.test.TestUtil;
+
+public class TestBootstrapSeederKeyRange
+{
+  @BeforeClass
+  public void setUpClass()
+  {
+    TestUtil.setupLogging(true, null, Level.ERROR);
+  }
+
+  /** Verifies that the ranges are contiguous and cover [begin, end] (or [begin, ...) if end is null) */
+  private static void assertContiguous(List<BootstrapSeederKeyRange> ranges, String begin, String end)
+  {
+    Assert.assertFalse(ranges.isEmpty());
+    Assert.assertEquals(ranges.get(0).getBeginKey(), begin);
+    for (int i = 0; i < ranges.size(); ++i)
+    {
+      BootstrapSeederKeyRange r = ranges.get(i);
+      Assert.assertEquals(r.getRangeId(), i);
+      Assert.assertEquals(r.getLastKey(), r.getBeginKey());
+      Assert.assertEquals(r.getNumRows(), 0);
+      Assert.assertFalse(r.isDone());
+      if (i < ranges.size() - 1)
+      {
+        Assert.assertEquals(r.getEndKey(), ranges.get(i + 1).getBeginKey());
+        Assert.assertFalse(r.isEndInclusive());
+      }
+    }
+    BootstrapSeederKeyRange last = ranges.get(ranges.size() - 1);
+    Assert.assertEquals(last.getEndKey(), end);
+    Assert.assertEquals(last.isEndInclusive(), null != end);
+  }
+
+  @Test
+  public void testSplitLongKeys()
+  {
+    List<BootstrapSeederKeyRange> ranges = BootstrapSeederKeyRange.splitLongKeys(1, 100, 4, null);
+    Assert.assertEquals(ranges.size(), 4);
+    assertContiguous(ranges, "1", null);
+    Assert.assertEquals(ranges.get(1).getBeginKey(), "26");
+    Assert.assertFalse(ranges.get(3).isBounded());
+
+    ranges = BootstrapSeederKeyRange.splitLongKeys(1, 100, 4, "100");
+    assertContiguous(ranges, "1", "100");
+    Assert.assertEquals(ranges.get(3).getBeginKey(), "76");
+
+    //fewer keys than ranges
+    ranges = BootstrapSeederKeyRange.splitLongKeys(10, 12, 8, null);
+    Assert.assertTrue(ranges.size() <= 3, "ranges: " + ranges);
+    assertContiguous(ranges, "10", null);
+
+    //empty key space
+    ranges = BootstrapSeederKeyRange.splitLongKeys(10, 5, 8, "5");
+    Assert.assertEquals(ranges.size(), 1);
+    assertContiguous(ranges, "10", "5");
+
+    //very wide key space
+    ranges = BootstrapSeederKeyRange.splitLongKeys(Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, 16, null);
+    Assert.assertEquals(ranges.size(), 16);
+    assertContiguous(ranges, Long.toString(Long.MIN_VALUE + 1), null);
+    for (int i = 1; i < ranges.size(); ++i)
+    {
+      Assert.assertTrue(Long.parseLong(ranges.get(i - 1).getBeginKey()) <
+                        Long.parseLong(ranges.get(i).getBeginKey()));
+    }
+  }
+
+  @Test
+  public void testFromBoundaries()
+  {
+    // the first boundary is the first key of the first range
+    List<BootstrapSeederKeyRange> ranges =
+        BootstrapSeederKeyRange.fromBoundaries("a", Arrays.asList("a", "f", "m", "m", "t"), null);
+    Assert.assertEquals(ranges.size(), 4);
+    assertContiguous(ranges, "a", null);
+    Assert.assertEquals(ranges.get(1).getBeginKey(), "f");
+    Assert.assertEquals(ranges.get(3).getBeginKey(), "t");
+
+    ranges = BootstrapSeederKeyRange.fromBoundaries("", Arrays.asList("b", "m"), "x");
+    Assert.assertEquals(ranges.size(), 2);
+    assertContiguous(ranges, "", "x");
+    Assert.assertEquals(ranges.get(1).getBeginKey(), "m");
+
+    ranges = BootstrapSeederKeyRange.fromBoundaries("c", new ArrayList<String>(), "x");
+    Assert.assertEquals(ranges.size(), 1);
+    assertContiguous(ranges, "c", "x");
+  }
+
+  @Test
+  public void testFromBoundariesInDbOrder()
+  {
+    // boundaries of a case-insensitive collation are not in String order but must be kept
+    List<BootstrapSeederKeyRange> ranges =
+        BootstrapSeederKeyRange.fromBoundaries("a", Arrays.asList("a", "B", "c", "D"), "e");
+    Assert.assertEquals(ranges.size(), 4);
+    assertContiguous(ranges, "a", "e");
+    Assert.assertEquals(ranges.get(1).getBeginKey(), "B");
+    Assert.assertEquals(ranges.get(2).getBeginKey(), "c");
+    Assert.assertEquals(ranges.get(3).getBeginKey(), "D");
+  }
+
+  @Test
+  public void testMergeKeyTxnFiles() throws Exception
+  {
+    File dir = new File(System.getProperty("java.io.tmpdir"), "TestBootstrapSeederKeyRange" + System.nanoTime());
+    Assert.assertTrue(dir.mkdirs());
+    File keyTxnFile = new File(dir, "key_txn");
+    List<BootstrapSeederKeyRange> ranges = BootstrapSeederKeyRange.splitLongKeys(0, 30, 3, null);
+    for (BootstrapSeederKeyRange r : ranges)
+    {
+      //a range which was done in a previous run does not have a file
+      if (1 == r.getRangeId())
+        continue;
+      FileWriter w = new FileWriter(BootstrapParallelSeeder.getRangeKeyTxnFile(keyTxnFile, r));
+      w.write(r.getBeginKey() + "\n");
+      w.close();
+    }
+
+    BootstrapParallelSeeder.mergeKeyTxnFiles(keyTxnFile, ranges);
+
+    List<String> lines = new ArrayList<String>();
+    BufferedReader reader = new BufferedReader(new FileReader(keyTxnFile));
+    for (String line = reader.readLine(); null != line; line = reader.readLine())
+    {
+      lines.add(line);
+    }
+    reader.close();
+    Assert.assertEquals(lines, Arrays.asList(ranges.get(0).getBeginKey(), ranges.get(2).getBeginKey()));
+    for (BootstrapSeederKeyRange r : ranges)
+    {
+      Assert.assertFalse(BootstrapParallelSeeder.getRangeKeyTxnFile(keyTxnFile, r).exists());
+    }
+    keyTxnFile.delete();
+    dir.delete();
+  }
+}
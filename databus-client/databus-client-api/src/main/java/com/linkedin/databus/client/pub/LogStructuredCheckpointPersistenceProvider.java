@@ -0,0 +1,741 @@
+package com.linkedin.databus.client.pub;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.data_model.DatabusSubscription;
+import com.linkedin.databus.core.util.ConfigBuilder;
+import com.linkedin.databus.core.util.InvalidConfigException;
+import com.linkedin.databus.core.util.NamedThreadFactory;
+
+/**
+ * Stores the checkpoints of all registrations as records appended to a single log file. Unlike
+ * {@link FileSystemCheckpointPersistenceProvider}, storing a checkpoint does not create, rename or
+ * delete any files; it appends one record to the log and updates an in-memory map from which all
+ * loads are served.
+ *
+ * <p>The log is fsync-ed by a background thread every
+ * {@link StaticConfig#getGroupCommitIntervalMs()} ms if there have been writes since the last
+ * fsync (group commit), so a crash of the machine may lose the checkpoints stored during the
+ * last interval; the consumers will see some events again after the restart. An interval of 0
+ * makes every store fsync the log before returning. The same thread compacts the log by
+ * rewriting the latest checkpoints to a new file once the log grows over
+ * {@link StaticConfig#getCompactionThresholdBytes()} and is more than twice the size of the
+ * live records.
+ *
+ * <p>The format of each record is a single line
+ * <pre>
+ * &lt;crc32 of the rest of the line&gt; TAB &lt;S|R&gt; TAB &lt;key&gt; TAB &lt;json checkpoint&gt;
+ * </pre>
+ * where S denotes a stored checkpoint and R a removed one (with an empty checkpoint). On startup,
+ * the log is replayed up to the first torn or corrupted record and truncated there.
+ */
+public class LogStructuredCheckpointPersistenceProvider extends CheckpointPersistenceProviderAbstract
+                                                        implements Closeable
+{
+  public static final String MODULE = LogStructuredCheckpointPersistenceProvider.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final char STORE_OP = 'S';
+  private static final char REMOVE_OP = 'R';
+  private static final String COMPACTION_FILE_SUFFIX = ".compact";
+
+  private final StaticConfig _staticConfig;
+  private final File _logFile;
+  /** The latest checkpoint for each key; updated only while holding {@link #_logLock} */
+  private final ConcurrentHashMap<String, LogRecord> _checkpoints;
+  private final Object _logLock = new Object();
+  private final ScheduledExecutorService _logMaintainer;
+
+  // the fields below are guarded by _logLock
+  private RandomAccessFile _logRaf;
+  private FileChannel _logChannel;
+  private long _logSize;
+  private long _liveSize;
+  private boolean _dirty;
+  private boolean _closed;
+
+  public LogStructuredCheckpointPersistenceProvider() throws InvalidConfigException, IOException
+  {
+    this(new Config(), 2);
+  }
+
+  public LogStructuredCheckpointPersistenceProvider(Config config, int protocolVersion)
+         throws InvalidConfigException, IOException
+  {
+    this(config.build(), protocolVersion);
+  }
+
+  public LogStructuredCheckpointPersistenceProvider(StaticConfig config, int protocolVersion)
+         throws IOException
+  {
+    super(protocolVersion);
+    _staticConfig = config;
+    _checkpoints = new ConcurrentHashMap<String, LogRecord>(100);
+
+    File rootDirectory = _staticConfig.getRootDirectory();
+    if (!rootDirectory.exists() && !rootDirectory.mkdirs())
+    {
+      throw new IOException("unable to create checkpoint directory: " + rootDirectory.getAbsolutePath());
+    }
+    _logFile = new File(rootDirectory, _staticConfig.getLogFileName());
+
+    // a left-over compaction file means the compaction did not complete; the log is still valid
+    File compactionFile = getCompactionFile();
+    if (compactionFile.exists() && !compactionFile.delete())
+    {
+      LOG.warn("unable to delete incomplete compaction file: " + compactionFile.getAbsolutePath());
+    }
+
+    _logRaf = new RandomAccessFile(_logFile, "rw");
+    _logChannel = _logRaf.getChannel();
+    recover();
+    _logChannel.position(_logSize);
+
+    _logMaintainer = Executors.newSingleThreadScheduledExecutor(
+        new NamedThreadFactory("checkpoint-log-" + _logFile.getName(), true));
+    long maintenancePeriodMs = _staticConfig.getGroupCommitIntervalMs() > 0 ?
+        _staticConfig.getGroupCommitIntervalMs() : StaticConfig.DEFAULT_GROUP_COMMIT_INTERVAL_MS;
+    _logMaintainer.scheduleWithFixedDelay(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        maintainLog();
+      }
+    }, maintenancePeriodMs, maintenancePeriodMs, TimeUnit.MILLISECONDS);
+
+    LOG.info("checkpoint log " + _logFile.getAbsolutePath() + " opened with " + _checkpoints.size() +
+             " checkpoints; size: " + _logSize);
+  }
+
+  public StaticConfig getStaticConfig()
+  {
+    return _staticConfig;
+  }
+
+  @Override
+  public Checkpoint loadCheckpointV3(List<DatabusSubscription> subs, RegistrationId registrationId)
+  {
+    return loadCheckpointInternal(convertSubsToListOfStrings(subs), registrationId);
+  }
+
+  @Override
+  public void storeCheckpointV3(List<DatabusSubscription> subs,
+                                Checkpoint checkpoint,
+                                RegistrationId registrationId) throws IOException
+  {
+    storeCheckpointInternal(convertSubsToListOfStrings(subs), checkpoint, registrationId);
+  }
+
+  @Override
+  public void removeCheckpointV3(List<DatabusSubscription> subs, RegistrationId registrationId)
+  {
+    removeCheckpointInternal(convertSubsToListOfStrings(subs), registrationId);
+  }
+
+  @Override
+  public Checkpoint loadCheckpoint(List<String> sourceNames)
+  {
+    return loadCheckpointInternal(sourceNames, null);
+  }
+
+  @Override
+  public void storeCheckpoint(List<String> sourceNames, Checkpoint checkpoint) throws IOException
+  {
+    storeCheckpointInternal(sourceNames, checkpoint, null);
+  }
+
+  @Override
+  public void removeCheckpoint(List<String> sourceNames)
+  {
+    removeCheckpointInternal(sourceNames, null);
+  }
+
+  private Checkpoint loadCheckpointInternal(List<String> sourceNames, RegistrationId registrationId)
+  {
+    LogRecord record = _checkpoints.get(calcKey(sourceNames, registrationId));
+    if (null == record)
+    {
+      return null;
+    }
+    //callers update the checkpoint in place; every load gets its own copy
+    try
+    {
+      return new Checkpoint(record._serializedCheckpoint);
+    }
+    catch (IOException e)
+    {
+      LOG.error("unable to deserialize checkpoint for " + sourceNames, e);
+      return null;
+    }
+  }
+
+  private void storeCheckpointInternal(List<String> sourceNames, Checkpoint checkpoint,
+                                       RegistrationId registrationId)
+          throws IOException
+  {
+    if (null == checkpoint)
+    {
+      throw new IOException("Cannot save null checkpoints");
+    }
+    String key = calcKey(sourceNames, registrationId);
+    String serializedCheckpoint = checkpoint.toString();
+    byte[] line = encodeRecord(STORE_OP, key, serializedCheckpoint);
+    synchronized (_logLock)
+    {
+      appendRecord(line);
+      LogRecord old = _checkpoints.put(key, new LogRecord(serializedCheckpoint, line.length));
+      _liveSize += line.length - (null == old ? 0 : old._size);
+    }
+  }
+
+  private void removeCheckpointInternal(List<String> sourceNames, RegistrationId registrationId)
+  {
+    LOG.info("Removing checkpoint for:" + sourceNames);
+    String key = calcKey(sourceNames, registrationId);
+    synchronized (_logLock)
+    {
+      if (!_checkpoints.containsKey(key))
+      {
+        return;
+      }
+      try
+      {
+        appendRecord(encodeRecord(REMOVE_OP, key, ""));
+        LogRecord old = _checkpoints.remove(key);
+        _liveSize -= old._size;
+      }
+      catch (IOException ioe)
+      {
+        LOG.error("checkpoint removal failed: " + sourceNames, ioe);
+      }
+    }
+  }
+
+  /** Must be called while holding {@link #_logLock} */
+  private void appendRecord(byte[] line) throws IOException
+  {
+    if (_closed)
+    {
+      throw new IOException("checkpoint log closed: " + _logFile.getAbsolutePath());
+    }
+    ByteBuffer buf = ByteBuffer.wrap(line);
+    while (buf.hasRemaining())
+    {
+      _logChannel.write(buf);
+    }
+    _logSize += line.length;
+    if (0 == _staticConfig.getGroupCommitIntervalMs())
+    {
+      _logChannel.force(false);
+    }
+    else
+    {
+      _dirty = true;
+    }
+  }
+
+  /** Runs on the log maintenance thread: group commit followed by compaction if needed */
+  private void maintainLog()
+  {
+    try
+    {
+      FileChannel toSync = null;
+      boolean needsCompaction;
+      synchronized (_logLock)
+      {
+        if (_closed)
+        {
+          return;
+        }
+        if (_dirty)
+        {
+          toSync = _logChannel;
+          _dirty = false;
+        }
+        needsCompaction = _logSize > _staticConfig.getCompactionThresholdBytes() &&
+                          _logSize > 2 * _liveSize;
+      }
+
+      // fsync outside of the lock so that stores can continue appending
+      if (null != toSync)
+      {
+        toSync.force(false);
+      }
+
+      if (needsCompaction)
+      {
+        compact();
+      }
+    }
+    catch (IOException ioe)
+    {
+      LOG.error("checkpoint log maintenance failed: " + _logFile.getAbsolutePath(), ioe);
+      synchronized (_logLock)
+      {
+        _dirty = true;
+      }
+    }
+    catch (RuntimeException re)
+    {
+      LOG.error("checkpoint log maintenance error: " + _logFile.getAbsolutePath(), re);
+    }
+  }
+
+  /**
+   * Rewrites the live checkpoints to a new log and atomically replaces the current log with it.
+   * The snapshot is written without holding the log lock; records appended in the meantime are
+   * copied over from the old log before the switch.
+   */
+  void compact() throws IOException
+  {
+    Map<String, String> snapshot = new HashMap<String, String>(_checkpoints.size());
+    long snapshotLogSize;
+    synchronized (_logLock)
+    {
+      if (_closed)
+      {
+        return;
+      }
+      for (Map.Entry<String, LogRecord> entry: _checkpoints.entrySet())
+      {
+        snapshot.put(entry.getKey(), entry.getValue()._serializedCheckpoint);
+      }
+      snapshotLogSize = _logSize;
+    }
+
+    long startTs = System.currentTimeMillis();
+    File compactionFile = getCompactionFile();
+    RandomAccessFile compactedRaf = new RandomAccessFile(compactionFile, "rw");
+    boolean success = false;
+    try
+    {
+      compactedRaf.setLength(0);
+      FileChannel compactedChannel = compactedRaf.getChannel();
+      for (Map.Entry<String, String> entry: snapshot.entrySet())
+      {
+        ByteBuffer buf = ByteBuffer.wrap(encodeRecord(STORE_OP, entry.getKey(), entry.getValue()));
+        while (buf.hasRemaining())
+        {
+          compactedChannel.write(buf);
+        }
+      }
+
+      synchronized (_logLock)
+      {
+        if (_closed)
+        {
+          return;
+        }
+        long tailPos = snapshotLogSize;
+        while (tailPos < _logSize)
+        {
+          tailPos += _logChannel.transferTo(tailPos, _logSize - tailPos, compactedChannel);
+        }
+        compactedChannel.force(true);
+
+        if (!compactionFile.renameTo(_logFile))
+        {
+          throw new IOException("unable to replace checkpoint log " + _logFile.getAbsolutePath() +
+                                " with " + compactionFile.getAbsolutePath());
+        }
+        success = true;
+        long oldLogSize = _logSize;
+        RandomAccessFile oldRaf = _logRaf;
+        _logRaf = compactedRaf;
+        _logChannel = compactedChannel;
+        _logSize = compactedChannel.size();
+        _logChannel.position(_logSize);
+        _dirty = false;
+        try
+        {
+          oldRaf.close();
+        }
+        catch (IOException ioe)
+        {
+          LOG.warn("error closing the old checkpoint log", ioe);
+        }
+        LOG.info("checkpoint log compacted from " + oldLogSize + " to " + _logSize + " bytes in " +
+                 (System.currentTimeMillis() - startTs) + " ms");
+      }
+    }
+    finally
+    {
+      if (!success)
+      {
+        compactedRaf.close();
+        if (compactionFile.exists() && !compactionFile.delete())
+        {
+          LOG.warn("unable to delete compaction file: " + compactionFile.getAbsolutePath());
+        }
+      }
+    }
+  }
+
+  /** Replays the log into the in-memory map and truncates any torn or corrupted tail */
+  private void recover() throws IOException
+  {
+    long goodSize = 0;
+    int numRecords = 0;
+    InputStream in = new BufferedInputStream(new FileInputStream(_logFile));
+    try
+    {
+      ByteArrayOutputStream lineBuf = new ByteArrayOutputStream(1024);
+      int b;
+      while ((b = in.read()) >= 0)
+      {
+        if ('\n' != b)
+        {
+          lineBuf.write(b);
+          continue;
+        }
+        byte[] line = lineBuf.toByteArray();
+        lineBuf.reset();
+        if (!replayRecord(line))
+        {
+          LOG.error("corrupted checkpoint record at offset " + goodSize + " in " +
+                    _logFile.getAbsolutePath() + "; ignoring the rest of the log");
+          break;
+        }
+        goodSize += line.length + 1;
+        ++numRecords;
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    if (goodSize < _logChannel.size())
+    {
+      LOG.warn("truncating checkpoint log " + _logFile.getAbsolutePath() + " from " +
+               _logChannel.size() + " to " + goodSize + " bytes");
+      _logChannel.truncate(goodSize);
+      _logChannel.force(false);
+    }
+    _logSize = goodSize;
+    LOG.info("replayed " + numRecords + " checkpoint records from " + _logFile.getAbsolutePath());
+  }
+
+  private boolean replayRecord(byte[] line)
+  {
+    String s = new String(line, UTF8);
+    int crcEnd = s.indexOf('\t');
+    if (crcEnd < 0)
+    {
+      return false;
+    }
+    String body = s.substring(crcEnd + 1);
+    long crc;
+    try
+    {
+      crc = Long.parseLong(s.substring(0, crcEnd), 16);
+    }
+    catch (NumberFormatException nfe)
+    {
+      return false;
+    }
+    if (crc != calcCrc(body.getBytes(UTF8)))
+    {
+      return false;
+    }
+
+    String[] parts = body.split("\t", 3);
+    if (3 != parts.length || 1 != parts[0].length())
+    {
+      return false;
+    }
+    String key = parts[1];
+    int size = line.length + 1;
+    if (STORE_OP == parts[0].charAt(0))
+    {
+      try
+      {
+        //make sure the checkpoint can be loaded
+        new Checkpoint(parts[2]);
+        LogRecord old = _checkpoints.put(key, new LogRecord(parts[2], size));
+        _liveSize += size - (null == old ? 0 : old._size);
+      }
+      catch (IOException e)
+      {
+        LOG.error("unable to deserialize checkpoint for " + key, e);
+        return false;
+      }
+    }
+    else if (REMOVE_OP == parts[0].charAt(0))
+    {
+      LogRecord old = _checkpoints.remove(key);
+      if (null != old)
+      {
+        _liveSize -= old._size;
+      }
+    }
+    else
+    {
+      return false;
+    }
+    return true;
+  }
+
+  /** Stops the log maintenance, fsyncs the log and closes it. */
+  @Override
+  public void close()
+  {
+    _logMaintainer.shutdown();
+    try
+    {
+      _logMaintainer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException ie)
+    {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (_logLock)
+    {
+      if (_closed)
+      {
+        return;
+      }
+      _closed = true;
+      try
+      {
+        _logChannel.force(false);
+        _logRaf.close();
+      }
+      catch (IOException ioe)
+      {
+        LOG.error("error closing checkpoint log " + _logFile.getAbsolutePath(), ioe);
+      }
+    }
+    LOG.info("checkpoint log closed: " + _logFile.getAbsolutePath());
+  }
+
+  public File getLogFile()
+  {
+    return _logFile;
+  }
+
+  public long getLogSize()
+  {
+    synchronized (_logLock)
+    {
+      return _logSize;
+    }
+  }
+
+  private File getCompactionFile()
+  {
+    return new File(_logFile.getParentFile(), _logFile.getName() + COMPACTION_FILE_SUFFIX);
+  }
+
+  static String calcKey(List<String> sourceNames, RegistrationId registrationId)
+  {
+    String streamId = FileSystemCheckpointPersistenceProvider.calcStreamId(sourceNames);
+    return null == registrationId ? streamId : registrationId.getId() + "/" + streamId;
+  }
+
+  static byte[] encodeRecord(char op, String key, String checkpointJson)
+  {
+    byte[] body = (op + "\t" + key + "\t" + checkpointJson).getBytes(UTF8);
+    String crc = Long.toHexString(calcCrc(body));
+    byte[] crcBytes = crc.getBytes(UTF8);
+
+    byte[] line = new byte[crcBytes.length + 1 + body.length + 1];
+    System.arraycopy(crcBytes, 0, line, 0, crcBytes.length);
+    line[crcBytes.length] = '\t';
+    System.arraycopy(body, 0, line, crcBytes.length + 1, body.length);
+    line[line.length - 1] = '\n';
+    return line;
+  }
+
+  private static long calcCrc(byte[] bytes)
+  {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    return crc.getValue();
+  }
+
+  private static class LogRecord
+  {
+    /** The checkpoint as stored; never the caller's mutable instance */
+    private final String _serializedCheckpoint;
+    /** The size of the record in the log */
+    private final int _size;
+
+    LogRecord(String serializedCheckpoint, int size)
+    {
+      _serializedCheckpoint = serializedCheckpoint;
+      _size = size;
+    }
+  }
+
+  /** Static configuration for the log-structured checkpoint persistence provider.
+   *
+   * @see LogStructuredCheckpointPersistenceProvider
+   */
+  public static class StaticConfig
+  {
+    public static final long DEFAULT_GROUP_COMMIT_INTERVAL_MS = 100;
+
+    private final File _rootDirectory;
+    private final String _logFileName;
+    private final long _groupCommitIntervalMs;
+    private final long _compactionThresholdBytes;
+
+    public StaticConfig(File rootDirectory, String logFileName, long groupCommitIntervalMs,
+                        long compactionThresholdBytes)
+    {
+      super();
+      _rootDirectory = rootDirectory;
+      _logFileName = logFileName;
+      _groupCommitIntervalMs = groupCommitIntervalMs;
+      _compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    /** The directory of the checkpoint log */
+    public File getRootDirectory()
+    {
+      return _rootDirectory;
+    }
+
+    /** The name of the checkpoint log file */
+    public String getLogFileName()
+    {
+      return _logFileName;
+    }
+
+    /** The max time in ms between a store and the fsync of the log; 0 fsyncs on every store */
+    public long getGroupCommitIntervalMs()
+    {
+      return _groupCommitIntervalMs;
+    }
+
+    /** The log size in bytes below which the log is not compacted */
+    public long getCompactionThresholdBytes()
+    {
+      return _compactionThresholdBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "StaticConfig [_rootDirectory=" + _rootDirectory + ", _logFileName=" + _logFileName
+             + ", _groupCommitIntervalMs=" + _groupCommitIntervalMs
+             + ", _compactionThresholdBytes=" + _compactionThresholdBytes + "]";
+    }
+  }
+
+  public static class Config implements ConfigBuilder<StaticConfig>
+  {
+    /** The directory for the checkpoint log */
+    private String _rootDirectory         = "./databus2-checkpoints";
+    private String _logFileName           = "checkpoints.log";
+    private long _groupCommitIntervalMs   = StaticConfig.DEFAULT_GROUP_COMMIT_INTERVAL_MS;
+    private long _compactionThresholdBytes = 16 * 1024 * 1024;
+
+    public String getRootDirectory()
+    {
+      return _rootDirectory;
+    }
+
+    public void setRootDirectory(String rootDirectory)
+    {
+      _rootDirectory = rootDirectory;
+    }
+
+    public String getLogFileName()
+    {
+      return _logFileName;
+    }
+
+    public void setLogFileName(String logFileName)
+    {
+      _logFileName = logFileName;
+    }
+
+    public long getGroupCommitIntervalMs()
+    {
+      return _groupCommitIntervalMs;
+    }
+
+    public void setGroupCommitIntervalMs(long groupCommitIntervalMs)
+    {
+      _groupCommitIntervalMs = groupCommitIntervalMs;
+    }
+
+    public long getCompactionThresholdBytes()
+    {
+      return _compactionThresholdBytes;
+    }
+
+    public void setCompactionThresholdBytes(long compactionThresholdBytes)
+    {
+      _compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    @Override
+    public StaticConfig build() throws InvalidConfigException
+    {
+      if (null == _logFileName || _logFileName.isEmpty() || _logFileName.contains(File.separator))
+      {
+        throw new InvalidConfigException("invalid checkpoint log file name: " + _logFileName);
+      }
+      if (_groupCommitIntervalMs < 0)
+      {
+        throw new InvalidConfigException("invalid group commit interval: " + _groupCommitIntervalMs);
+      }
+      if (_compactionThresholdBytes <= 0)
+      {
+        throw new InvalidConfigException("invalid compaction threshold: " + _compactionThresholdBytes);
+      }
+
+      File rootDirectory = new File(_rootDirectory);
+      LOG.info("Checkpoint log directory:" + rootDirectory.getAbsolutePath());
+
+      return new StaticConfig(rootDirectory, _logFileName, _groupCommitIntervalMs,
+                              _compactionThresholdBytes);
+    }
+  }
+
+}
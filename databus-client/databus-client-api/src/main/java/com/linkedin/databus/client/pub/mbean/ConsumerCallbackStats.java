@@ -34,6 +34,7 @@ import org.apache.avro.specific.SpecificDatumWriter;
 
 import com.linkedin.databus.client.pub.monitoring.events.ConsumerCallbackStatsEvent;
 import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.monitoring.LatencyHistogram;
 import com.linkedin.databus.core.monitoring.mbean.AbstractMonitoringMBean;
 import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
 import com.linkedin.databus.core.monitoring.mbean.StatsCollectorMergeable;
@@ -45,6 +46,8 @@ public class ConsumerCallbackStats extends AbstractMonitoringMBean<ConsumerCallb
   private final String _name;
   private final String _dimension;
   private final MBeanServer _mbeanServer;
+  /** latency from the source timestamp of data events to the completion of their callbacks */
+  private final LatencyHistogram _timeLagSourceToCallbackHist = new LatencyHistogram();
 
   public ConsumerCallbackStats(int ownerId, String name, String dimension,
                                boolean enabled, boolean threadSafe,
@@ -161,6 +164,7 @@ public class ConsumerCallbackStats extends AbstractMonitoringMBean<ConsumerCallb
     _event.timestampOfLastEventProcessed = 0;
     _event.scnOfLastEventProcessed = 0;
     _event.maxSeenWinTimestamp = 0;
+    _timeLagSourceToCallbackHist.reset();
   }
 
   @Override
@@ -211,6 +215,7 @@ public class ConsumerCallbackStats extends AbstractMonitoringMBean<ConsumerCallb
       LOG.warn("Attempt to merge unknown event class" + eventData.getClass().getName());
       return;
       }
+      _timeLagSourceToCallbackHist.merge(((ConsumerCallbackStats)eventData)._timeLagSourceToCallbackHist);
       eventData = ((ConsumerCallbackStats)eventData)._event;
     }
     ConsumerCallbackStatsEvent e = (ConsumerCallbackStatsEvent)eventData;
@@ -568,6 +573,7 @@ public class ConsumerCallbackStats extends AbstractMonitoringMBean<ConsumerCallb
     {
       releaseLock(writeLock);
     }
+    _timeLagSourceToCallbackHist.record(System.currentTimeMillis() - e.timestampInNanos()/1000000);
   }
 
 
@@ -824,4 +830,34 @@ public class ConsumerCallbackStats extends AbstractMonitoringMBean<ConsumerCallb
     }
     return result;
   }
+
+  @Override
+  public long getTimeLagSourceToCallbackMs_HistPct_50()
+  {
+    return _timeLagSourceToCallbackHist.getPercentile(50.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToCallbackMs_HistPct_90()
+  {
+    return _timeLagSourceToCallbackHist.getPercentile(90.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToCallbackMs_HistPct_95()
+  {
+    return _timeLagSourceToCallbackHist.getPercentile(95.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToCallbackMs_HistPct_99()
+  {
+    return _timeLagSourceToCallbackHist.getPercentile(99.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToCallbackMs_Max()
+  {
+    return _timeLagSourceToCallbackHist.getMax();
+  }
 }
@@ -101,6 +101,21 @@ public interface ConsumerCallbackStatsMBean
   // TODO:  what?  how differs from getAveLatencyEventsProcessed() ?  just most recent event?
   public long getLatencyEventsProcessed();
 
+  /**
+   * percentiles of the time in ms from the source timestamp of data events to the completion of
+   * their callbacks; -1 if no data events have been processed
+   */
+  public long getTimeLagSourceToCallbackMs_HistPct_50();
+
+  public long getTimeLagSourceToCallbackMs_HistPct_90();
+
+  public long getTimeLagSourceToCallbackMs_HistPct_95();
+
+  public long getTimeLagSourceToCallbackMs_HistPct_99();
+
+  /** max time in ms from the source timestamp of a data event to the completion of its callback */
+  public long getTimeLagSourceToCallbackMs_Max();
+
 
   /** MUTATORS */
 
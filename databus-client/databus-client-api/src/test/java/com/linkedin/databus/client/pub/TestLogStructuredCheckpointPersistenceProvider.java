@@ -0,0 +1,212 @@
+package com.linkedin.databus.client.pub;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.DbusClientMode;
+import com.linkedin.databus.core.data_model.DatabusSubscription;
+
+public class TestLogStructuredCheckpointPersistenceProvider
+{
+  static
+  {
+    BasicConfigurator.configure();
+    Logger.getRootLogger().setLevel(Level.OFF);
+  }
+
+  private static LogStructuredCheckpointPersistenceProvider createProvider(File dir,
+                                                                           long groupCommitIntervalMs,
+                                                                           long compactionThreshold)
+          throws Exception
+  {
+    LogStructuredCheckpointPersistenceProvider.Config config =
+        new LogStructuredCheckpointPersistenceProvider.Config();
+    config.setRootDirectory(dir.getAbsolutePath());
+    config.setGroupCommitIntervalMs(groupCommitIntervalMs);
+    config.setCompactionThresholdBytes(compactionThreshold);
+    return new LogStructuredCheckpointPersistenceProvider(config, 3);
+  }
+
+  private static File createTempDir(String name)
+  {
+    File dir = new File("/tmp/databus2-checkpoints-test-" + name + "-" + System.nanoTime());
+    assertTrue(dir.mkdirs());
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  private static Checkpoint createCheckpoint(long scn)
+  {
+    Checkpoint cp = new Checkpoint();
+    cp.setConsumptionMode(DbusClientMode.ONLINE_CONSUMPTION);
+    cp.setWindowScn(scn);
+    cp.setWindowOffset(-1);
+    return cp;
+  }
+
+  @Test
+  public void testStoreLoadRemoveAcrossRestarts() throws Exception
+  {
+    File dir = createTempDir("restart");
+    List<DatabusSubscription> subs1 =
+        DatabusSubscription.createSubscriptionList(Arrays.asList("source1", "source2"));
+    List<DatabusSubscription> subs2 =
+        DatabusSubscription.createSubscriptionList(Arrays.asList("source3"));
+    RegistrationId reg1 = new RegistrationId("reg1");
+    RegistrationId reg2 = new RegistrationId("reg2");
+
+    LogStructuredCheckpointPersistenceProvider provider = createProvider(dir, 10, 1024 * 1024);
+    assertNull(provider.loadCheckpointV3(subs1, reg1));
+    for (long scn = 1; scn <= 100; ++scn)
+    {
+      provider.storeCheckpointV3(subs1, createCheckpoint(scn), reg1);
+      provider.storeCheckpointV3(subs1, createCheckpoint(1000 + scn), reg2);
+      provider.storeCheckpointV3(subs2, createCheckpoint(2000 + scn), reg1);
+    }
+    assertEquals(100L, provider.loadCheckpointV3(subs1, reg1).getWindowScn());
+    assertEquals(1100L, provider.loadCheckpointV3(subs1, reg2).getWindowScn());
+    provider.removeCheckpointV3(subs2, reg1);
+    assertNull(provider.loadCheckpointV3(subs2, reg1));
+    provider.close();
+
+    // all registrations share a single file
+    assertEquals(1, dir.listFiles().length);
+
+    provider = createProvider(dir, 10, 1024 * 1024);
+    Checkpoint cp = provider.loadCheckpointV3(subs1, reg1);
+    assertNotNull(cp);
+    assertEquals(100L, cp.getWindowScn());
+    assertEquals(DbusClientMode.ONLINE_CONSUMPTION, cp.getConsumptionMode());
+    assertEquals(1100L, provider.loadCheckpointV3(subs1, reg2).getWindowScn());
+    assertNull(provider.loadCheckpointV3(subs2, reg1));
+    provider.close();
+  }
+
+  @Test
+  public void testTornTailIsIgnored() throws Exception
+  {
+    File dir = createTempDir("torn");
+    List<String> sources = Arrays.asList("source1");
+
+    LogStructuredCheckpointPersistenceProvider provider = createProvider(dir, 0, 1024 * 1024);
+    provider.storeCheckpoint(sources, createCheckpoint(10));
+    provider.storeCheckpoint(sources, createCheckpoint(20));
+    long goodSize = provider.getLogSize();
+    File logFile = provider.getLogFile();
+    provider.close();
+
+    // simulate a crash in the middle of appending a record
+    byte[] partial = LogStructuredCheckpointPersistenceProvider.encodeRecord(
+        'S', LogStructuredCheckpointPersistenceProvider.calcKey(sources, null),
+        createCheckpoint(30).toString());
+    RandomAccessFile raf = new RandomAccessFile(logFile, "rw");
+    raf.seek(goodSize);
+    raf.write(partial, 0, partial.length / 2);
+    raf.close();
+
+    provider = createProvider(dir, 0, 1024 * 1024);
+    assertEquals(20L, provider.loadCheckpoint(sources).getWindowScn());
+    assertEquals(goodSize, logFile.length());
+
+    // appends after the recovery start at the truncation point
+    provider.storeCheckpoint(sources, createCheckpoint(40));
+    provider.close();
+    provider = createProvider(dir, 0, 1024 * 1024);
+    assertEquals(40L, provider.loadCheckpoint(sources).getWindowScn());
+    provider.close();
+  }
+
+  @Test
+  public void testCompaction() throws Exception
+  {
+    File dir = createTempDir("compaction");
+    List<String> sources1 = Arrays.asList("source1");
+    List<String> sources2 = Arrays.asList("source2");
+
+    LogStructuredCheckpointPersistenceProvider provider = createProvider(dir, 10, 4 * 1024);
+    for (long scn = 1; scn <= 1000; ++scn)
+    {
+      provider.storeCheckpoint(sources1, createCheckpoint(scn));
+      provider.storeCheckpoint(sources2, createCheckpoint(10000 + scn));
+    }
+
+    // wait for the background compaction
+    long deadline = System.currentTimeMillis() + 10000;
+    while (provider.getLogSize() > 4 * 1024 && System.currentTimeMillis() < deadline)
+    {
+      Thread.sleep(10);
+    }
+    assertTrue("log not compacted: " + provider.getLogSize(), provider.getLogSize() <= 4 * 1024);
+    assertEquals(1000L, provider.loadCheckpoint(sources1).getWindowScn());
+
+    provider.storeCheckpoint(sources1, createCheckpoint(2000));
+    provider.close();
+    assertTrue(!new File(dir, provider.getLogFile().getName() + ".compact").exists());
+
+    provider = createProvider(dir, 10, 4 * 1024);
+    assertEquals(2000L, provider.loadCheckpoint(sources1).getWindowScn());
+    assertEquals(11000L, provider.loadCheckpoint(sources2).getWindowScn());
+    provider.close();
+  }
+
+  @Test
+  public void testCheckpointsAreCopied() throws Exception
+  {
+    File dir = createTempDir("copies");
+    List<String> sources = Arrays.asList("source1");
+
+    LogStructuredCheckpointPersistenceProvider provider = createProvider(dir, 10, 1024 * 1024);
+    Checkpoint stored = createCheckpoint(10);
+    provider.storeCheckpoint(sources, stored);
+
+    // the puller updates its checkpoints in place; neither the stored nor a loaded instance may
+    // change what is persisted
+    stored.setWindowScn(20L);
+    Checkpoint loaded = provider.loadCheckpoint(sources);
+    assertEquals(10L, loaded.getWindowScn());
+    loaded.setWindowScn(30L);
+    loaded.setFlexible();
+    assertEquals(10L, provider.loadCheckpoint(sources).getWindowScn());
+
+    provider.compact();
+    provider.close();
+
+    provider = createProvider(dir, 10, 1024 * 1024);
+    Checkpoint cp = provider.loadCheckpoint(sources);
+    assertEquals(10L, cp.getWindowScn());
+    assertEquals(DbusClientMode.ONLINE_CONSUMPTION, cp.getConsumptionMode());
+    provider.close();
+  }
+}
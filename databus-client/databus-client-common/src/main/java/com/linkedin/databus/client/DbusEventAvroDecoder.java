@@ -27,6 +27,7 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
@@ -37,6 +38,7 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.JsonEncoder;
+import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificRecord;
 import org.apache.log4j.Logger;
@@ -49,6 +51,7 @@ import com.linkedin.databus.client.pub.DbusEventDecoder;
 import com.linkedin.databus.core.DatabusRuntimeException;
 import com.linkedin.databus.core.DbusEvent;
 import com.linkedin.databus.core.DbusEventPart;
+import com.linkedin.databus.core.util.ByteBufferInputStream;
 import com.linkedin.databus2.schemas.SchemaId;
 import com.linkedin.databus2.schemas.SchemaRegistryService;
 import com.linkedin.databus2.schemas.VersionedSchema;
@@ -62,11 +65,31 @@ public class DbusEventAvroDecoder implements DbusEventDecoder
   public static final String VALUE_FIELD_NAME = "value";
   public static final String OPCODE_FIELD_NAME = "opCode";
 
+  /** Upper bound on the number of cached datum readers before the cache is flushed */
+  public static final int MAX_CACHED_READERS = 1024;
+
   //BinaryDecoder is threadunsafe. So use threadlocal to wrap it
   private static final ThreadLocal<BinaryDecoder> binDecoder = new ThreadLocal<BinaryDecoder>();
+  //the input stream that feeds binDecoder for buffers without an accessible backing array
+  private static final ThreadLocal<ByteBufferInputStream> binInput =
+      new ThreadLocal<ByteBufferInputStream>()
+      {
+        @Override
+        protected ByteBufferInputStream initialValue()
+        {
+          return new ByteBufferInputStream();
+        }
+      };
 
   private final VersionedSchemaSet _schemaSet;
   private final VersionedSchemaSet _metadataSchemaSet;
+  /**
+   * Datum readers with schema resolution already set up, keyed by (writer schema id, reader
+   * class). Avro datum readers keep their resolving decoders in thread-locals so they can be shared
+   * between threads.
+   */
+  private final ConcurrentHashMap<ReaderKey, DatumReader<?>> _readerCache =
+      new ConcurrentHashMap<ReaderKey, DatumReader<?>>();
 
   public DbusEventAvroDecoder(VersionedSchemaSet schemaSet)
   {
@@ -83,31 +106,17 @@ public class DbusEventAvroDecoder implements DbusEventDecoder
   @Override
   public GenericRecord getGenericRecord(DbusEvent e, GenericRecord reuse)
   {
-    byte[] md5 = new byte[16];
-    e.schemaId(md5);
-    SchemaId schemaId = new SchemaId(md5);
-    VersionedSchema writerSchema = _schemaSet.getById(schemaId);
-
-    if (null == writerSchema)
-    {
-      LOG.error("Unable to find schema for id " + schemaId + "; event = " + e);
-      throw new DatabusRuntimeException("No schema available to decode event " + e);
-    }
-
-    ByteBuffer valueBuffer = e.value();
-
-    byte[] valueBytes = null;
-    if (valueBuffer.hasArray())
+    DatumReader<GenericRecord> reader = getGenericReader(getWriterSchemaId(e), e);
+    GenericRecord result = null;
+    try
     {
-      valueBytes = valueBuffer.array();
+      result = decode(e.value(), reader, reuse);
     }
-    else
+    catch (Exception ex)  // IOException, ArrayIndexOutOfBoundsException, ...
     {
-      valueBytes = new byte[valueBuffer.remaining()];
-      valueBuffer.get(valueBytes);
+      LOG.error("getGenericRecord Avro error: " + ex.getMessage(), ex);
     }
-
-    return getGenericRecord(valueBytes, writerSchema.getSchema(), reuse);
+    return result;
   }
 
   /**
@@ -128,19 +137,16 @@ public class DbusEventAvroDecoder implements DbusEventDecoder
    * @param schema      schema of the input record
    * @return GenericRecord for the given byte array + schema combo
    *
-   * TODO:  Add a   getGenericRecord(InputStream data, Schema schema, GenericRecord reuse)
-   *        variant; it can use DecoderFactory.createBinaryDecoder(InputStream, BinaryDecorder)
-   *        and will allow us to use something like org.apache.avro.ipc.ByteBufferInputStream
-   *        to avoid the data copy to a temp array.  (https://rb.corp.linkedin.com/r/172879/)
+   * Note: the DbusEvent-based methods decode directly from the event buffer and reuse cached
+   * datum readers; this variant builds a new reader on every call.
    */
   public GenericRecord getGenericRecord(byte[] valueBytes, Schema schema, GenericRecord reuse)
   {
     GenericRecord result = null;
     try
     {
-      binDecoder.set(DecoderFactory.defaultFactory().createBinaryDecoder(valueBytes, binDecoder.get()));
       GenericDatumReader<GenericRecord> reader = new GenericDatumReader<GenericRecord>(schema);
-      result = reader.read(reuse, binDecoder.get());
+      result = decode(ByteBuffer.wrap(valueBytes), reader, reuse);
       return result;
     }
     catch (Exception ex)  // IOException, ArrayIndexOutOfBoundsException, ...
@@ -180,93 +186,57 @@ public class DbusEventAvroDecoder implements DbusEventDecoder
       throw new DatabusRuntimeException("No schema available to decode metadata for event " + e);
     }
 
-    byte[] dataBytes = null;
-    if (dataBuffer.hasArray())
+    DatumReader<GenericRecord> reader =
+        getReader(new SchemaId(metadataPart.getSchemaDigest()), schema, null);
+    GenericRecord result = null;
+    try
     {
-      dataBytes = dataBuffer.array();
+      result = decode(dataBuffer, reader, reuse);
     }
-    else
+    catch (BufferUnderflowException ex)
     {
-      dataBytes = new byte[dataBuffer.remaining()];
-      try
-      {
-        dataBuffer.get(dataBytes);
-      }
-      catch (BufferUnderflowException ex)
-      {
-        LOG.error("metadata buffer error (remaining = " + dataBuffer.remaining() + ") for event " + e, ex);
-        return null;
-      }
+      LOG.error("metadata buffer error (remaining = " + dataBuffer.remaining() + ") for event " + e, ex);
     }
-
-    return getGenericRecord(dataBytes, schema.getSchema(), reuse);
+    catch (Exception ex)  // IOException, ArrayIndexOutOfBoundsException, ...
+    {
+      LOG.error("getGenericRecord Avro error: " + ex.getMessage(), ex);
+    }
+    return result;
   }
 
   @Override
   public <T extends SpecificRecord> T getTypedValue(DbusEvent e, T reuse, Class<T> targetClass)
   {
-    if (null == reuse)
-    {
-      try
-      {
-        reuse = targetClass.newInstance();
-      }
-      catch (InstantiationException e1)
-      {
-        LOG.error("getTypedValue class instantiation error (" + e1.getMessage() + ") for event " + e, e1);
-        return null;
-      }
-      catch (IllegalAccessException e1)
-      {
-        LOG.error("getTypedValue access error (" + e1.getMessage() + ") for event " + e, e1);
-        return null;
-      }
-    }
-    byte[] md5 = new byte[16];
-    e.schemaId(md5);
-    SchemaId schemaId = new SchemaId(md5);
-    VersionedSchema writerSchema = _schemaSet.getById(schemaId);
-
-    if (null == writerSchema)
-    {
-      LOG.error("Unable to find schema for id " + schemaId + "; event = " + e);
-      throw new DatabusRuntimeException("No schema available to decode event " + e);
-    }
-
-    ByteBuffer valueBuffer = e.value();
-    byte[] valueBytes = new byte[valueBuffer.remaining()];
-    valueBuffer.get(valueBytes);
+    SchemaId schemaId = getWriterSchemaId(e);
+    VersionedSchema writerSchema = getWriterSchema(schemaId, e);
     try
     {
-      //JsonDecoder jsonDec = new JsonDecoder(sourceSchema.getSchema(),new ByteArrayInputStream(valueBytes));
-      binDecoder.set(DecoderFactory.defaultFactory().createBinaryDecoder(valueBytes, binDecoder.get()));
-      SpecificDatumReader<SpecificRecord> reader =
-          new SpecificDatumReader<SpecificRecord>(writerSchema.getSchema(), reuse.getSchema());
-      return targetClass.cast(reader.read(reuse, binDecoder.get()));
+      DatumReader<T> reader = getReader(schemaId, writerSchema, targetClass);
+      //if reuse is null, the reader instantiates targetClass through its cached constructor
+      return decode(e.value(), reader, reuse);
     }
     catch (IOException e1)
     {
       LOG.error("getTypedValue IO error (" + e1.getMessage() + ") for event " + e, e1);
     }
+    catch (RuntimeException e1)
+    {
+      LOG.error("getTypedValue error (" + e1.getMessage() + ") for event " + e, e1);
+      return null;
+    }
     return reuse;
   }
 
   public void dumpEventValueInJSON(DbusEvent e, OutputStream out)
   {
-    byte[] md5 = new byte[16];
-    e.schemaId(md5);
-    SchemaId schemaId = new SchemaId(md5);
+    SchemaId schemaId = getWriterSchemaId(e);
     VersionedSchema sourceSchema = _schemaSet.getById(schemaId);
-    ByteBuffer valueBuffer = e.value();
-    byte[] valueBytes = new byte[valueBuffer.remaining()];
-    valueBuffer.get(valueBytes);
 
     try {
       Schema schema = sourceSchema.getSchema();
-      DatumReader<Object> reader = new GenericDatumReader<Object>(schema);
-      binDecoder.set(DecoderFactory.defaultFactory().createBinaryDecoder(valueBytes, binDecoder.get()));
+      DatumReader<GenericRecord> reader = getReader(schemaId, sourceSchema, null);
 
-      Object datum = reader.read(null, binDecoder.get());
+      Object datum = decode(e.value(), reader, null);
       DatumWriter<Object> writer = new GenericDatumWriter<Object>(schema);
       JsonGenerator g = new JsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
       // write the src ID
@@ -317,10 +287,7 @@ public class DbusEventAvroDecoder implements DbusEventDecoder
    */
   public VersionedSchema getPayloadSchema(DbusEvent e)
   {
-    byte[] md5 = new byte[16];
-    e.schemaId(md5);
-    SchemaId schemaId = new SchemaId(md5);
-    VersionedSchema writerSchema = _schemaSet.getById(schemaId);
+    VersionedSchema writerSchema = _schemaSet.getById(getWriterSchemaId(e));
     return writerSchema;
   }
 
@@ -433,4 +400,133 @@ public class DbusEventAvroDecoder implements DbusEventDecoder
     }
   }
 
+
+  /** Number of datum readers currently cached by this decoder (used for testing) */
+  int getCachedReadersNum()
+  {
+    return _readerCache.size();
+  }
+
+  private static SchemaId getWriterSchemaId(DbusEvent e)
+  {
+    byte[] md5 = new byte[16];
+    e.schemaId(md5);
+    return new SchemaId(md5);
+  }
+
+  private VersionedSchema getWriterSchema(SchemaId schemaId, DbusEvent e)
+  {
+    VersionedSchema writerSchema = _schemaSet.getById(schemaId);
+    if (null == writerSchema)
+    {
+      LOG.error("Unable to find schema for id " + schemaId + "; event = " + e);
+      throw new DatabusRuntimeException("No schema available to decode event " + e);
+    }
+    return writerSchema;
+  }
+
+  private DatumReader<GenericRecord> getGenericReader(SchemaId schemaId, DbusEvent e)
+  {
+    DatumReader<GenericRecord> reader = getCachedReader(schemaId, null);
+    return null != reader ? reader : getReader(schemaId, getWriterSchema(schemaId, e), null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> DatumReader<T> getCachedReader(SchemaId schemaId, Class<?> readerClass)
+  {
+    return (DatumReader<T>)_readerCache.get(new ReaderKey(schemaId, readerClass));
+  }
+
+  /**
+   * Returns a datum reader for the given writer schema and reader class, creating and caching it
+   * on first use. A null reader class means generic records are to be read with the writer schema.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> DatumReader<T> getReader(SchemaId schemaId, VersionedSchema writerSchema,
+                                       Class<?> readerClass)
+  {
+    ReaderKey key = new ReaderKey(schemaId, readerClass);
+    DatumReader<?> reader = _readerCache.get(key);
+    if (null == reader)
+    {
+      if (null == readerClass)
+      {
+        reader = new GenericDatumReader<Object>(writerSchema.getSchema());
+      }
+      else
+      {
+        Schema readerSchema = SpecificData.get().getSchema(readerClass);
+        reader = new SpecificDatumReader<Object>(writerSchema.getSchema(), readerSchema);
+      }
+      if (_readerCache.size() >= MAX_CACHED_READERS)
+      {
+        LOG.info("datum reader cache full; flushing");
+        _readerCache.clear();
+      }
+      DatumReader<?> oldReader = _readerCache.putIfAbsent(key, reader);
+      if (null != oldReader)
+      {
+        reader = oldReader;
+      }
+    }
+    return (DatumReader<T>)reader;
+  }
+
+  /**
+   * Decodes the remaining bytes of a buffer using the thread's binary decoder. The bytes are read
+   * in place: through the backing array if it is accessible or through a buffer-backed stream
+   * otherwise (e.g. for read-only or direct buffers).
+   */
+  private static <T> T decode(ByteBuffer data, DatumReader<T> reader, T reuse) throws IOException
+  {
+    BinaryDecoder decoder;
+    if (data.hasArray())
+    {
+      decoder = DecoderFactory.defaultFactory().createBinaryDecoder(
+          data.array(), data.arrayOffset() + data.position(), data.remaining(), binDecoder.get());
+    }
+    else
+    {
+      decoder = DecoderFactory.defaultFactory().createBinaryDecoder(binInput.get().reset(data),
+                                                                    binDecoder.get());
+    }
+    binDecoder.set(decoder);
+    try
+    {
+      return reader.read(reuse, decoder);
+    }
+    finally
+    {
+      binInput.get().reset(null);
+    }
+  }
+
+  /** Key for the datum reader cache */
+  private static final class ReaderKey
+  {
+    private final SchemaId _schemaId;
+    private final Class<?> _readerClass;
+
+    public ReaderKey(SchemaId schemaId, Class<?> readerClass)
+    {
+      _schemaId = schemaId;
+      _readerClass = readerClass;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj) return true;
+      if (!(obj instanceof ReaderKey)) return false;
+      ReaderKey other = (ReaderKey)obj;
+      return _schemaId.equals(other._schemaId) && _readerClass == other._readerClass;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return _schemaId.hashCode() * 31 + (null == _readerClass ? 0 : _readerClass.hashCode());
+    }
+  }
+
 }
@@ -0,0 +1,156 @@
+package com.linkedin.databus.client;
+
+/*
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.util.Utf8;
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventInfo;
+import com.linkedin.databus.core.DbusEventKey;
+import com.linkedin.databus.core.DbusEventV2Factory;
+import com.linkedin.databus.core.DbusOpcode;
+import com.linkedin.databus2.schemas.SchemaId;
+import com.linkedin.databus2.schemas.VersionedSchemaSet;
+import com.linkedin.databus2.test.TestUtil;
+
+public class TestDbusEventAvroDecoder
+{
+  private static final String SCHEMA_V1 =
+      "{\"type\":\"record\",\"name\":\"person\",\"namespace\":\"com.linkedin.events.test\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"name\",\"type\":\"string\"}]}";
+  private static final String SCHEMA_V2 =
+      "{\"type\":\"record\",\"name\":\"person\",\"namespace\":\"com.linkedin.events.test\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"name\",\"type\":\"string\"}," +
+      "{\"name\":\"age\",\"type\":[\"null\",\"int\"]}]}";
+  private static final short SRC_ID = 101;
+
+  @BeforeClass
+  public void setUpClass()
+  {
+    TestUtil.setupLogging(true, null, Level.ERROR);
+  }
+
+  private static byte[] serialize(Schema schema, GenericRecord r) throws Exception
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder enc = new BinaryEncoder(out);
+    new GenericDatumWriter<GenericRecord>(schema).write(r, enc);
+    enc.flush();
+    return out.toByteArray();
+  }
+
+  private static DbusEvent createEvent(long key, SchemaId schemaId, byte[] payload, boolean directBuf)
+      throws Exception
+  {
+    DbusEventInfo eventInfo = new DbusEventInfo(DbusOpcode.UPSERT, 10L, (short)0, (short)0,
+                                                System.nanoTime(), SRC_ID, schemaId.getByteArray(),
+                                                payload, false, true);
+    eventInfo.setEventSerializationVersion(DbusEventFactory.DBUS_EVENT_V2);
+    DbusEventFactory eventFactory = new DbusEventV2Factory();
+    ByteBuffer serialBuf = directBuf ? ByteBuffer.allocateDirect(1000) : ByteBuffer.allocate(1000);
+    serialBuf.order(eventFactory.getByteOrder());
+    //put the event at a non-zero offset to make sure the decoder honors the value position
+    serialBuf.position(17);
+    DbusEventFactory.serializeEvent(new DbusEventKey(key), serialBuf, eventInfo);
+    return eventFactory.createReadOnlyDbusEventFromBuffer(serialBuf, 17);
+  }
+
+  private static GenericRecord createRecord(Schema schema, long id, String name)
+  {
+    GenericRecord r = new GenericData.Record(schema);
+    r.put("id", id);
+    r.put("name", new Utf8(name));
+    return r;
+  }
+
+  @Test
+  public void testGenericRecordCachedReader() throws Exception
+  {
+    Schema schema = Schema.parse(SCHEMA_V1);
+    SchemaId schemaId = SchemaId.createWithMd5(schema);
+    VersionedSchemaSet schemaSet = new VersionedSchemaSet();
+    schemaSet.add("com.linkedin.events.test.person", (short)1, schemaId, SCHEMA_V1, true);
+    DbusEventAvroDecoder decoder = new DbusEventAvroDecoder(schemaSet);
+
+    GenericRecord reuse = null;
+    for (int i = 0; i < 10; ++i)
+    {
+      DbusEvent e = createEvent(i, schemaId, serialize(schema, createRecord(schema, i, "name" + i)),
+                                0 == i % 2);
+      reuse = decoder.getGenericRecord(e, reuse);
+      Assert.assertNotNull(reuse);
+      Assert.assertEquals(reuse.get("id"), Long.valueOf(i));
+      Assert.assertEquals(reuse.get("name").toString(), "name" + i);
+    }
+    Assert.assertEquals(decoder.getCachedReadersNum(), 1);
+  }
+
+  @Test
+  public void testGenericRecordFromArray() throws Exception
+  {
+    Schema schema = Schema.parse(SCHEMA_V1);
+    DbusEventAvroDecoder decoder = new DbusEventAvroDecoder(new VersionedSchemaSet());
+    byte[] payload = serialize(schema, createRecord(schema, 5, "five"));
+    GenericRecord r = decoder.getGenericRecord(payload, schema, null);
+    Assert.assertEquals(r.get("id"), Long.valueOf(5));
+    Assert.assertEquals(r.get("name").toString(), "five");
+  }
+
+  @Test
+  public void testMultipleWriterSchemas() throws Exception
+  {
+    Schema schema1 = Schema.parse(SCHEMA_V1);
+    Schema schema2 = Schema.parse(SCHEMA_V2);
+    SchemaId schemaId1 = SchemaId.createWithMd5(schema1);
+    SchemaId schemaId2 = SchemaId.createWithMd5(schema2);
+    VersionedSchemaSet schemaSet = new VersionedSchemaSet();
+    schemaSet.add("com.linkedin.events.test.person", (short)1, schemaId1, SCHEMA_V1, true);
+    schemaSet.add("com.linkedin.events.test.person", (short)2, schemaId2, SCHEMA_V2, true);
+    DbusEventAvroDecoder decoder = new DbusEventAvroDecoder(schemaSet);
+
+    GenericRecord r2 = createRecord(schema2, 2, "two");
+    r2.put("age", 22);
+    DbusEvent e1 = createEvent(1, schemaId1, serialize(schema1, createRecord(schema1, 1, "one")), false);
+    DbusEvent e2 = createEvent(2, schemaId2, serialize(schema2, r2), true);
+
+    for (int i = 0; i < 3; ++i)
+    {
+      GenericRecord d1 = decoder.getGenericRecord(e1, null);
+      Assert.assertEquals(d1.get("name").toString(), "one");
+      Assert.assertNull(d1.getSchema().getField("age"));
+      GenericRecord d2 = decoder.getGenericRecord(e2, null);
+      Assert.assertEquals(d2.get("name").toString(), "two");
+      Assert.assertEquals(d2.get("age"), Integer.valueOf(22));
+    }
+    Assert.assertEquals(decoder.getCachedReadersNum(), 2);
+  }
+}
@@ -0,0 +1,341 @@
+package com.linkedin.databus.client;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.core.util.ConfigBuilder;
+import com.linkedin.databus.core.util.InvalidConfigException;
+
+/**
+ * Tunes the size of the relay /stream requests of a {@link RelayPullThread} from the responses it
+ * gets, using additive-increase/multiplicative-decrease:
+ *
+ * <ul>
+ *   <li>a response that (almost) fills the requested size means the relay has a backlog; if it was
+ *   read within the target round-trip time, the fetch size grows by a fixed increment and the
+ *   next request is sent without the poll sleep;</li>
+ *   <li>a response read slower than the target round-trip time, or a request that had to wait for
+ *   the dispatcher to free space in the buffer, shrinks the fetch size by a factor;</li>
+ *   <li>a partial response means the client is caught up; the fetch size shrinks towards twice the
+ *   size of the response, so that the next batches stay small.</li>
+ * </ul>
+ *
+ * <p>The fetch size always stays between the configured minimum and the size allowed by the free
+ * space in the buffer. Used by the puller thread only.
+ */
+public class AdaptiveFetchController
+{
+  public static final String MODULE = AdaptiveFetchController.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  private final StaticConfig _config;
+  /** The current fetch size target; -1 until the first request */
+  private int _fetchSize = -1;
+  /** The fetch size of the last request */
+  private int _lastRequestSize = -1;
+  /** Whether the last response filled the requested size */
+  private boolean _backlogged = false;
+
+  public AdaptiveFetchController(StaticConfig config)
+  {
+    _config = config;
+  }
+
+  public boolean isEnabled()
+  {
+    return _config.isEnabled();
+  }
+
+  /**
+   * Computes the size of the next /stream request
+   * @param  minSize      the smallest size the puller can ask for
+   * @param  maxSize      the size allowed by the free space in the buffer
+   * @return the fetch size to use
+   */
+  public int getFetchSize(int minSize, int maxSize)
+  {
+    minSize = Math.min(Math.max(minSize, _config.getMinFetchSize()), maxSize);
+    if (_fetchSize < 0)
+    {
+      //start as if there is a backlog; the first responses tell us if there is none
+      _fetchSize = maxSize;
+    }
+    _fetchSize = Math.max(minSize, Math.min(_fetchSize, maxSize));
+    _lastRequestSize = _fetchSize;
+    return _fetchSize;
+  }
+
+  /** Notifies that the puller had to wait for the dispatcher to free space in the buffer */
+  public void onBufferFull()
+  {
+    if (_fetchSize > 0)
+    {
+      decrease("buffer full");
+    }
+  }
+
+  /**
+   * Notifies about a successful /stream response
+   * @param responseBytes     the number of event bytes in the response
+   * @param roundTripMs       the time from the request to the end of reading the response
+   */
+  public void onResponse(long responseBytes, long roundTripMs)
+  {
+    onResponse(responseBytes, _lastRequestSize, roundTripMs);
+  }
+
+  /**
+   * Notifies about a successful /stream response to a request which may not be the last one sized
+   * by {@link #getFetchSize(int, int)}, e.g. a prefetched request
+   * @param responseBytes     the number of event bytes in the response
+   * @param requestSize       the size asked for by the request
+   * @param roundTripMs       the time from the request to the end of reading the response
+   */
+  public void onResponse(long responseBytes, int requestSize, long roundTripMs)
+  {
+    if (requestSize <= 0)
+    {
+      return;
+    }
+
+    _backlogged = responseBytes * 100.0 >= requestSize * _config.getFullResponsePct();
+    if (roundTripMs > _config.getTargetRoundTripMs())
+    {
+      decrease("round trip " + roundTripMs + "ms");
+    }
+    else if (_backlogged)
+    {
+      //maxSize caps the growth on the next request
+      _fetchSize = (int)Math.min(Integer.MAX_VALUE, (long)_fetchSize + _config.getFetchSizeIncrement());
+    }
+    else
+    {
+      long target = 2 * responseBytes;
+      if (target < _fetchSize)
+      {
+        _fetchSize = (int)Math.max(target, (long)(_fetchSize * _config.getDecreaseFactor()));
+      }
+    }
+    if (LOG.isDebugEnabled())
+    {
+      LOG.debug("response bytes: " + responseBytes + "; round trip: " + roundTripMs + "ms; backlogged: " +
+                _backlogged + "; next fetch size: " + _fetchSize);
+    }
+  }
+
+  /**
+   * Checks if the last response filled the requested size, i.e. the next request can be sent
+   * without waiting
+   */
+  public boolean isBacklogged()
+  {
+    return _backlogged;
+  }
+
+  private void decrease(String reason)
+  {
+    _fetchSize = (int)(_fetchSize * _config.getDecreaseFactor());
+    if (LOG.isDebugEnabled())
+    {
+      LOG.debug("decreasing fetch size to " + _fetchSize + ": " + reason);
+    }
+  }
+
+  /** The current fetch size target; -1 before the first request */
+  public int getCurrentFetchSize()
+  {
+    return _fetchSize;
+  }
+
+  public static class StaticConfig
+  {
+    /** Keeps the fetch size derived from the free space in the buffer */
+    public static final StaticConfig DISABLED =
+        new StaticConfig(false, Config.DEFAULT_MIN_FETCH_SIZE, Config.DEFAULT_FETCH_SIZE_INCREMENT,
+                         Config.DEFAULT_DECREASE_FACTOR, Config.DEFAULT_FULL_RESPONSE_PCT,
+                         Config.DEFAULT_TARGET_ROUND_TRIP_MS);
+
+    private final boolean _enabled;
+    private final int _minFetchSize;
+    private final int _fetchSizeIncrement;
+    private final double _decreaseFactor;
+    private final double _fullResponsePct;
+    private final long _targetRoundTripMs;
+
+    public StaticConfig(boolean enabled, int minFetchSize, int fetchSizeIncrement,
+                        double decreaseFactor, double fullResponsePct, long targetRoundTripMs)
+    {
+      _enabled = enabled;
+      _minFetchSize = minFetchSize;
+      _fetchSizeIncrement = fetchSizeIncrement;
+      _decreaseFactor = decreaseFactor;
+      _fullResponsePct = fullResponsePct;
+      _targetRoundTripMs = targetRoundTripMs;
+    }
+
+    /** Whether the fetch size and the poll sleep are tuned from the responses */
+    public boolean isEnabled()
+    {
+      return _enabled;
+    }
+
+    /** The smallest fetch size; the free buffer threshold of the connection applies too */
+    public int getMinFetchSize()
+    {
+      return _minFetchSize;
+    }
+
+    /** The number of bytes added to the fetch size after a full response */
+    public int getFetchSizeIncrement()
+    {
+      return _fetchSizeIncrement;
+    }
+
+    /** The factor applied to the fetch size after a slow response or a full buffer */
+    public double getDecreaseFactor()
+    {
+      return _decreaseFactor;
+    }
+
+    /** The percentage of the requested size above which a response is considered full */
+    public double getFullResponsePct()
+    {
+      return _fullResponsePct;
+    }
+
+    /** The round-trip time of a /stream request above which the fetch size is decreased */
+    public long getTargetRoundTripMs()
+    {
+      return _targetRoundTripMs;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "{enabled:" + _enabled + ", minFetchSize:" + _minFetchSize + ", fetchSizeIncrement:" +
+             _fetchSizeIncrement + ", decreaseFactor:" + _decreaseFactor + ", fullResponsePct:" +
+             _fullResponsePct + ", targetRoundTripMs:" + _targetRoundTripMs + "}";
+    }
+  }
+
+  public static class Config implements ConfigBuilder<StaticConfig>
+  {
+    static final int DEFAULT_MIN_FETCH_SIZE = 10 * 1024;
+    static final int DEFAULT_FETCH_SIZE_INCREMENT = 256 * 1024;
+    static final double DEFAULT_DECREASE_FACTOR = 0.5;
+    static final double DEFAULT_FULL_RESPONSE_PCT = 90.0;
+    static final long DEFAULT_TARGET_ROUND_TRIP_MS = 1000;
+
+    private boolean _enabled = false;
+    private int _minFetchSize = DEFAULT_MIN_FETCH_SIZE;
+    private int _fetchSizeIncrement = DEFAULT_FETCH_SIZE_INCREMENT;
+    private double _decreaseFactor = DEFAULT_DECREASE_FACTOR;
+    private double _fullResponsePct = DEFAULT_FULL_RESPONSE_PCT;
+    private long _targetRoundTripMs = DEFAULT_TARGET_ROUND_TRIP_MS;
+
+    public boolean isEnabled()
+    {
+      return _enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+      _enabled = enabled;
+    }
+
+    public int getMinFetchSize()
+    {
+      return _minFetchSize;
+    }
+
+    public void setMinFetchSize(int minFetchSize)
+    {
+      _minFetchSize = minFetchSize;
+    }
+
+    public int getFetchSizeIncrement()
+    {
+      return _fetchSizeIncrement;
+    }
+
+    public void setFetchSizeIncrement(int fetchSizeIncrement)
+    {
+      _fetchSizeIncrement = fetchSizeIncrement;
+    }
+
+    public double getDecreaseFactor()
+    {
+      return _decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor)
+    {
+      _decreaseFactor = decreaseFactor;
+    }
+
+    public double getFullResponsePct()
+    {
+      return _fullResponsePct;
+    }
+
+    public void setFullResponsePct(double fullResponsePct)
+    {
+      _fullResponsePct = fullResponsePct;
+    }
+
+    public long getTargetRoundTripMs()
+    {
+      return _targetRoundTripMs;
+    }
+
+    public void setTargetRoundTripMs(long targetRoundTripMs)
+    {
+      _targetRoundTripMs = targetRoundTripMs;
+    }
+
+    @Override
+    public StaticConfig build() throws InvalidConfigException
+    {
+      if (_minFetchSize <= 0)
+      {
+        throw new InvalidConfigException("invalid minFetchSize: " + _minFetchSize);
+      }
+      if (_fetchSizeIncrement <= 0)
+      {
+        throw new InvalidConfigException("invalid fetchSizeIncrement: " + _fetchSizeIncrement);
+      }
+      if (_decreaseFactor <= 0.0 || _decreaseFactor >= 1.0)
+      {
+        throw new InvalidConfigException("decreaseFactor must be in (0, 1): " + _decreaseFactor);
+      }
+      if (_fullResponsePct <= 0.0 || _fullResponsePct > 100.0)
+      {
+        throw new InvalidConfigException("fullResponsePct must be in (0, 100]: " + _fullResponsePct);
+      }
+      if (_targetRoundTripMs <= 0)
+      {
+        throw new InvalidConfigException("invalid targetRoundTripMs: " + _targetRoundTripMs);
+      }
+      return new StaticConfig(_enabled, _minFetchSize, _fetchSizeIncrement, _decreaseFactor,
+                              _fullResponsePct, _targetRoundTripMs);
+    }
+  }
+}
@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -42,6 +43,7 @@ import com.linkedin.databus.client.pub.ServerInfo;
 import com.linkedin.databus.client.pub.mbean.UnifiedClientStats;
 import com.linkedin.databus.core.BootstrapCheckpointHandler;
 import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.Checkpoint.SnapshotRange;
 import com.linkedin.databus.core.DatabusComponentStatus;
 import com.linkedin.databus.core.DbusClientMode;
 import com.linkedin.databus.core.DbusConstants;
@@ -55,6 +57,7 @@ import com.linkedin.databus.core.PendingEventTooLargeException;
 import com.linkedin.databus.core.async.LifecycleMessage;
 import com.linkedin.databus.core.util.IdNamePair;
 import com.linkedin.databus2.core.BackoffTimer;
+import com.linkedin.databus2.core.container.DatabusHttpHeaders;
 import com.linkedin.databus2.core.DatabusException;
 import com.linkedin.databus2.core.container.request.BootstrapDatabaseTooOldException;
 import com.linkedin.databus2.core.filter.DbusKeyCompositeFilter;
@@ -103,6 +106,12 @@ public class BootstrapPullThread extends BasePullThread
 
   private ReentrantLock _v3BootstrapLock = null;
 
+  // number of snapshot id ranges read concurrently; 1 disables parallel snapshots
+  private final int _snapshotParallelism;
+  private BootstrapSnapshotRangeFetcher _snapshotRangeFetcher;
+  // the size of the event which did not fit in the last page of a snapshot range, by range start id
+  private final Map<Long, Integer> _snapshotRangePendingEventSizes = new HashMap<Long, Integer>();
+
   public BootstrapPullThread(String name,
       DatabusSourcesConnection sourcesConn,
       DbusEventBuffer dbusEventBuffer,
@@ -139,6 +148,7 @@ public class BootstrapPullThread extends BasePullThread
     _remoteExceptionHandler = new RemoteExceptionHandler(sourcesConn, dbusEventBuffer, eventFactory);
     _pullerBufferUtilizationPct = pullerBufferUtilPct;
     _v3BootstrapLock = v3BootstrapLock;
+    _snapshotParallelism = sourcesConn.getConnectionConfig().getBstSnapshotParallelism();
 
     // TODO (DDSDBUS-84): if resumeCkpt is not empty, i.e. we are starting fresh, make sure the
     // sources passed in are exactly the same as what's stored in the checkpoint -
@@ -356,6 +366,11 @@ public class BootstrapPullThread extends BasePullThread
         _lastOpenConnection.close();
         _lastOpenConnection = null;
       }
+      if (null != _snapshotRangeFetcher)
+      {
+        _snapshotRangeFetcher.close();
+        _snapshotRangeFetcher = null;
+      }
     }
     finally
     {
@@ -694,6 +709,18 @@ public class BootstrapPullThread extends BasePullThread
       int fetchSize = (int)((curState.getDataEventsBuffer().getBufferFreeReadSpace() / 100.0) *
                       _pullerBufferUtilizationPct);
       fetchSize = Math.max(freeBufferThreshold, fetchSize);
+
+      if (cp.getConsumptionMode() == DbusClientMode.BOOTSTRAP_SNAPSHOT && null != cp.getSnapshotRanges())
+      {
+        if (_snapshotParallelism > 1)
+        {
+          doReadSnapshotRanges(curState, filter, fetchSize);
+          return;
+        }
+        // parallel snapshots have been disabled; continue sequentially from the first uncompleted range
+        cp.clearSnapshotRanges();
+      }
+
       curState.switchToStreamRequestSent();
       sendHeartbeat(_sourcesConn.getUnifiedClientStats());
       curState.getBootstrapConnection().requestStream(
@@ -825,6 +852,10 @@ public class BootstrapPullThread extends BasePullThread
               {
                 cp.bootstrapCheckPoint();
               }
+              if (cp.getConsumptionMode() == DbusClientMode.BOOTSTRAP_SNAPSHOT)
+              {
+                splitSnapshotRanges(cp, readChannel);
+              }
             }
 
             curState.switchToStreamResponseDone();
@@ -860,6 +891,210 @@ public class BootstrapPullThread extends BasePullThread
       enqueueMessage(curState);
   }
 
+  /**
+   * Splits the rest of the current snapshot source in ranges to be read in parallel if enabled and
+   * the server returned the max id of the source.
+   */
+  private void splitSnapshotRanges(Checkpoint cp, ChunkedBodyReadableByteChannel readChannel)
+  {
+    if (_snapshotParallelism <= 1 || null != cp.getSnapshotRanges())
+      return;
+    String maxIdStr = readChannel.getMetadata(DatabusHttpHeaders.DATABUS_SNAPSHOT_MAX_ID);
+    if (null == maxIdStr)
+      return;
+
+    List<SnapshotRange> ranges = BootstrapSnapshotRangeFetcher.splitRanges(cp.getSnapshotOffset(),
+                                                                           Long.parseLong(maxIdStr),
+                                                                           _snapshotParallelism);
+    if (ranges.size() > 1)
+    {
+      cp.setSnapshotRanges(ranges);
+      _log.info("reading snapshot of " + cp.getSnapshotSource() + " in ranges " + ranges);
+    }
+  }
+
+  /** Replaces the reader of the snapshot ranges; used by tests */
+  void setSnapshotRangeFetcher(BootstrapSnapshotRangeFetcher snapshotRangeFetcher)
+  {
+    _snapshotRangeFetcher = snapshotRangeFetcher;
+  }
+
+  /**
+   * Reads the next page of each uncompleted range of the current snapshot source concurrently.
+   * The pages are appended to the event buffer in the order of the ranges followed by a
+   * checkpoint with the offsets of all ranges. The snapshot offset of the checkpoint is kept at
+   * the offset of the first uncompleted range so that the snapshot can be resumed sequentially.
+   */
+  protected void doReadSnapshotRanges(ConnectionState curState, DbusKeyFilter filter, int fetchSize)
+  {
+    Checkpoint cp = curState.getCheckpoint();
+    DbusEventBuffer eventBuffer = curState.getDataEventsBuffer();
+    List<SnapshotRange> ranges = cp.getSnapshotRanges();
+    List<SnapshotRange> openRanges = new ArrayList<SnapshotRange>(ranges.size());
+    for (SnapshotRange range: ranges)
+    {
+      if (!range.isCompleted())
+        openRanges.add(range);
+    }
+
+    if (null == _snapshotRangeFetcher)
+    {
+      _snapshotRangeFetcher = new BootstrapSnapshotRangeFetcher(getName(), _snapshotParallelism,
+                                                                _sourcesConn.getBootstrapConnFactory(),
+                                                                _remoteExceptionHandler, getEventFactory(),
+                                                                _log);
+    }
+
+    curState.switchToStreamRequestSent();
+    sendHeartbeat(_sourcesConn.getUnifiedClientStats());
+    boolean success = true;
+    try
+    {
+      // the ranges share the free buffer space; a range whose next event did not fit in its share
+      // asks for the size of that event
+      int rangeFetchSize = Math.max(_sourcesConn.getConnectionConfig().getFreeBufferThreshold(),
+                                    fetchSize / Math.max(1, openRanges.size()));
+      List<Integer> fetchSizes = new ArrayList<Integer>(openRanges.size());
+      for (SnapshotRange range: openRanges)
+      {
+        Integer pendingEventSize = _snapshotRangePendingEventSizes.get(range.getStartId());
+        fetchSizes.add(null == pendingEventSize ? rangeFetchSize : Math.max(rangeFetchSize, pendingEventSize));
+      }
+      List<BootstrapSnapshotRangeFetcher.RangePage> pages =
+          _snapshotRangeFetcher.fetch(_curServer, curState.getSourcesIdListString(), filter, fetchSizes,
+                                      cp, openRanges);
+      boolean readSequentially = false;
+
+      DbusEventInternalReadable cpEvent = getEventFactory().createCheckpointEvent(cp);
+      if (!eventBuffer.injectEvent(cpEvent))
+      {
+        _log.error("Unable to write bootstrap phase marker");
+        success = false;
+      }
+
+      for (int i = 0; success && i < pages.size(); ++i)
+      {
+        BootstrapSnapshotRangeFetcher.RangePage page = pages.get(i);
+        if (null != page.getRemoteError() && page.getRemoteError() instanceof BootstrapDatabaseTooOldException)
+        {
+          _log.error("Bootstrap database is too old!");
+          _remoteExceptionHandler.handleException(page.getRemoteError());
+          success = false;
+        }
+        else if (null != page.getError())
+        {
+          _log.error("unable to read snapshot range " + page.getRange() + ": " + page.getError());
+          success = false;
+        }
+        else if (0 == page.getNumEvents() && page.getPendingEventSize() > eventBuffer.getMaxReadBufferCapacity())
+        {
+          String err = "ReadBuffer max capacity(" + eventBuffer.getMaxReadBufferCapacity() +
+                       ") is less than event size(" + page.getPendingEventSize() +
+                       "). Increase databus.client.connectionDefaults.bstEventBuffer.maxEventSize and restart.";
+          _log.fatal(err);
+          enqueueMessage(LifecycleMessage.createSuspendOnErroMessage(new PendingEventTooLargeException(err)));
+          return;
+        }
+        else
+        {
+          if (page.getNumEvents() > 0)
+          {
+            eventBuffer.readEvents(Channels.newChannel(new ByteArrayInputStream(page.getEvents())),
+                                   curState.getListeners(), _sourcesConn.getBootstrapEventsStatsCollector());
+            numEventsInCurrentState += page.getNumEvents();
+          }
+          SnapshotRange range = openRanges.get(i);
+          if (page.isRangeCompleted())
+            range.setCompleted();
+          else
+            range.setOffset(page.getLastOffset());
+
+          if (0 == page.getNumEvents() && !page.isRangeCompleted() && page.getPendingEventSize() > 0)
+          {
+            if (page.getPendingEventSize() <= fetchSizes.get(i))
+            {
+              // the event did not fit even with a fetch size raised to its size; the sequential
+              // stream uses all of the free buffer space
+              _log.info("no progress on snapshot range " + range + " with pending event of size " +
+                        page.getPendingEventSize() + "; reading the snapshot sequentially");
+              readSequentially = true;
+            }
+            _snapshotRangePendingEventSizes.put(range.getStartId(), page.getPendingEventSize());
+          }
+          else
+          {
+            _snapshotRangePendingEventSizes.remove(range.getStartId());
+          }
+        }
+      }
+
+      // keep the progress of the ranges read successfully
+      long firstOffset = Checkpoint.FULLY_CONSUMED_WINDOW_OFFSET;
+      for (SnapshotRange range: ranges)
+      {
+        if (!range.isCompleted())
+        {
+          firstOffset = range.getOffset();
+          break;
+        }
+      }
+      if (Checkpoint.FULLY_CONSUMED_WINDOW_OFFSET != firstOffset && readSequentially)
+      {
+        // continue from the first uncompleted range; the ranges are split again after the next page
+        cp.clearSnapshotRanges();
+        cp.setSnapshotOffset(firstOffset);
+        _snapshotRangePendingEventSizes.clear();
+      }
+      else if (Checkpoint.FULLY_CONSUMED_WINDOW_OFFSET != firstOffset)
+      {
+        cp.setSnapshotRanges(ranges);
+        cp.setSnapshotOffset(firstOffset);
+      }
+      else
+      {
+        _snapshotRangePendingEventSizes.clear();
+        curState.getBstCheckpointHandler().finalizeSnapshotPhase(cp);
+        _log.info("Bootstrap events read :" + numEventsInCurrentState + " during phase:"
+                  + cp.getConsumptionMode() + " [" + cp.getBootstrapSnapshotSourceIndex()
+                  + "," + cp.getBootstrapCatchupSourceIndex() + "]");
+        numEventsInCurrentState = 0;
+      }
+      _log.info("Bootstrap events read so far: " + numEventsInCurrentState + "; snapshot ranges: " + ranges);
+
+      cpEvent = getEventFactory().createCheckpointEvent(cp);
+      if (!eventBuffer.injectEvent(cpEvent))
+      {
+        _log.error("Unable to write bootstrap checkpoint");
+        success = false;
+      }
+      else if (success)
+      {
+        resetServerRetries();
+      }
+    }
+    catch (InterruptedException ie)
+    {
+      _log.error("interupted", ie);
+      success = false;
+    }
+    catch (InvalidEventException e)
+    {
+      _log.error("error reading events from server: " + e.getMessage(), e);
+      success = false;
+    }
+    catch (RuntimeException e)
+    {
+      _log.error("runtime error reading events from server: " + e.getMessage(), e);
+      success = false;
+    }
+
+    if (success)
+      curState.switchToStreamResponseDone();
+    else
+      curState.switchToStreamResponseError();
+    enqueueMessage(curState);
+  }
+
   protected void doStreamResponseDone(ConnectionState curState)
   {
     boolean debugEnabled = _log.isDebugEnabled();
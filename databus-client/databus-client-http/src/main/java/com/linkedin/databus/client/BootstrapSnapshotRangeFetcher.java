@@ -0,0 +1,485 @@
+package com.linkedin.databus.client;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.client.netty.RemoteExceptionHandler;
+import com.linkedin.databus.client.pub.ServerInfo;
+import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.Checkpoint.SnapshotRange;
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventInternalReadable;
+import com.linkedin.databus.core.DbusEventInternalReadable.EventScanStatus;
+import com.linkedin.databus.core.async.ActorMessageQueue;
+import com.linkedin.databus.core.util.NamedThreadFactory;
+import com.linkedin.databus2.core.filter.DbusKeyFilter;
+
+/**
+ * Reads pages of several id ranges of a snapshot source concurrently, each over its own
+ * connection to the bootstrap server.
+ *
+ * <p>The events of each page are returned without the checkpoint events written by the server as
+ * those only describe the state of a single range. The caller appends the events of the pages to
+ * the event buffer in any order and follows them with a checkpoint which has the offsets of all
+ * ranges ({@link Checkpoint#getSnapshotRanges()}).
+ */
+public class BootstrapSnapshotRangeFetcher
+{
+  private final DatabusBootstrapConnectionFactory _connFactory;
+  private final RemoteExceptionHandler _remoteExceptionHandler;
+  private final DbusEventFactory _eventFactory;
+  private final ExecutorService _executor;
+  private final Logger _log;
+  /** the open connection of each range by the range start id */
+  private final Map<Long, RangeConnection> _conns = new HashMap<Long, RangeConnection>();
+  private ServerInfo _server;
+
+  public BootstrapSnapshotRangeFetcher(String name,
+                                       int parallelism,
+                                       DatabusBootstrapConnectionFactory connFactory,
+                                       RemoteExceptionHandler remoteExceptionHandler,
+                                       DbusEventFactory eventFactory,
+                                       Logger log)
+  {
+    _connFactory = connFactory;
+    _remoteExceptionHandler = remoteExceptionHandler;
+    _eventFactory = eventFactory;
+    _executor = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory(name + "-snapshotRange", true));
+    _log = null != log ? log : Logger.getLogger(BootstrapSnapshotRangeFetcher.class);
+  }
+
+  /**
+   * Splits the rows following the snapshot offset in ranges of similar id spans. The last range
+   * is unbounded so that it includes the rows with ids greater than the current max id.
+   *
+   * @param  offset       the id of the last row read
+   * @param  maxId        the max row id of the snapshot table
+   * @param  numRanges    the max number of ranges
+   * @return the ranges ordered by start id
+   */
+  public static List<SnapshotRange> splitRanges(long offset, long maxId, int numRanges)
+  {
+    List<SnapshotRange> result = new ArrayList<SnapshotRange>(numRanges);
+    long span = maxId - offset;
+    if (numRanges <= 1 || span < numRanges)
+    {
+      result.add(new SnapshotRange(offset, SnapshotRange.UNBOUNDED_END_ID, offset));
+      return result;
+    }
+
+    long startId = offset;
+    for (int i = 1; i < numRanges; ++i)
+    {
+      long endId = offset + span / numRanges * i;
+      result.add(new SnapshotRange(startId, endId, startId));
+      startId = endId;
+    }
+    result.add(new SnapshotRange(startId, SnapshotRange.UNBOUNDED_END_ID, startId));
+    return result;
+  }
+
+  /**
+   * Reads the next page of each of the ranges concurrently and waits for all of them.
+   *
+   * @param  server         the bootstrap server
+   * @param  sourcesIdList  the ids of the subscribed sources
+   * @param  filter         the server-side filter for the snapshot source
+   * @param  fetchSizes     the max size of the page of each range
+   * @param  ckpt           the snapshot checkpoint; it is not modified
+   * @param  ranges         the uncompleted ranges to read
+   * @return the pages in the order of the ranges
+   */
+  public List<RangePage> fetch(ServerInfo server, String sourcesIdList, DbusKeyFilter filter,
+                               List<Integer> fetchSizes, Checkpoint ckpt, List<SnapshotRange> ranges)
+         throws InterruptedException
+  {
+    if (!server.equals(_server))
+    {
+      closeConnections();
+      _server = server;
+    }
+
+    List<Future<RangePage>> futures = new ArrayList<Future<RangePage>>(ranges.size());
+    for (int i = 0; i < ranges.size(); ++i)
+    {
+      SnapshotRange range = ranges.get(i);
+      Checkpoint rangeCkpt = ckpt.clone();
+      rangeCkpt.clearSnapshotRanges();
+      rangeCkpt.setSnapshotOffset(range.getOffset());
+      rangeCkpt.setSnapshotRangeEnd(range.getEndId());
+      futures.add(_executor.submit(new RangeRequest(range, getConnection(range), sourcesIdList,
+                                                    filter, fetchSizes.get(i), rangeCkpt)));
+    }
+
+    List<RangePage> result = new ArrayList<RangePage>(ranges.size());
+    for (int i = 0; i < futures.size(); ++i)
+    {
+      RangePage page;
+      try
+      {
+        page = futures.get(i).get();
+      }
+      catch (ExecutionException e)
+      {
+        _log.error("snapshot range request failed: " + ranges.get(i), e.getCause());
+        page = new RangePage(ranges.get(i), e.getCause());
+      }
+      if (null != page.getError() || page.isRangeCompleted())
+      {
+        closeConnection(ranges.get(i));
+      }
+      result.add(page);
+    }
+    return result;
+  }
+
+  private RangeConnection getConnection(SnapshotRange range)
+  {
+    RangeConnection conn = _conns.get(range.getStartId());
+    if (null == conn)
+    {
+      conn = new RangeConnection();
+      _conns.put(range.getStartId(), conn);
+    }
+    return conn;
+  }
+
+  private void closeConnection(SnapshotRange range)
+  {
+    RangeConnection conn = _conns.remove(range.getStartId());
+    if (null != conn)
+      conn.close();
+  }
+
+  private void closeConnections()
+  {
+    for (RangeConnection conn: _conns.values())
+    {
+      conn.close();
+    }
+    _conns.clear();
+  }
+
+  public void close()
+  {
+    closeConnections();
+    _executor.shutdownNow();
+  }
+
+  /** The result of reading a page of a snapshot range */
+  public static class RangePage
+  {
+    private final SnapshotRange _range;
+    private final byte[] _events;
+    private final int _numEvents;
+    private final long _lastOffset;
+    private final boolean _rangeCompleted;
+    private final int _pendingEventSize;
+    private final Throwable _remoteError;
+    private final Throwable _error;
+
+    RangePage(SnapshotRange range, byte[] events, int numEvents, long lastOffset,
+              boolean rangeCompleted, int pendingEventSize, Throwable remoteError)
+    {
+      _range = range;
+      _events = events;
+      _numEvents = numEvents;
+      _lastOffset = lastOffset;
+      _rangeCompleted = rangeCompleted;
+      _pendingEventSize = pendingEventSize;
+      _remoteError = remoteError;
+      _error = remoteError;
+    }
+
+    RangePage(SnapshotRange range, Throwable error)
+    {
+      _range = range;
+      _events = null;
+      _numEvents = 0;
+      _lastOffset = range.getOffset();
+      _rangeCompleted = false;
+      _pendingEventSize = 0;
+      _remoteError = null;
+      _error = error;
+    }
+
+    public SnapshotRange getRange()
+    {
+      return _range;
+    }
+
+    /** The serialized data events of the page */
+    public byte[] getEvents()
+    {
+      return _events;
+    }
+
+    public int getNumEvents()
+    {
+      return _numEvents;
+    }
+
+    /** The id of the last row of the page or the range offset if the page has no rows */
+    public long getLastOffset()
+    {
+      return _lastOffset;
+    }
+
+    /** True if the page is the last one of the range */
+    public boolean isRangeCompleted()
+    {
+      return _rangeCompleted;
+    }
+
+    /** The size of an event which did not fit in the page or 0 */
+    public int getPendingEventSize()
+    {
+      return _pendingEventSize;
+    }
+
+    /** The exception returned by the server or null */
+    public Throwable getRemoteError()
+    {
+      return _remoteError;
+    }
+
+    /** The reason the page could not be read or null on success */
+    public Throwable getError()
+    {
+      return _error;
+    }
+  }
+
+  /** A connection dedicated to a range; it forwards the responses to the range's current request */
+  private class RangeConnection implements ActorMessageQueue
+  {
+    private DatabusBootstrapConnection _conn;
+    private volatile RangeRequest _curRequest;
+
+    public DatabusBootstrapConnection getConnection() throws IOException
+    {
+      if (null == _conn)
+      {
+        _conn = _connFactory.createConnection(_server, this, _remoteExceptionHandler);
+      }
+      return _conn;
+    }
+
+    @Override
+    public void enqueueMessage(Object message)
+    {
+      RangeRequest req = _curRequest;
+      if (null != req)
+        req._responded.countDown();
+    }
+
+    public void close()
+    {
+      if (null != _conn)
+      {
+        _conn.close();
+        _conn = null;
+      }
+    }
+  }
+
+  /** Reads a page of a range */
+  private class RangeRequest implements Callable<RangePage>, DatabusBootstrapConnectionStateMessage
+  {
+    private final SnapshotRange _range;
+    private final RangeConnection _conn;
+    private final String _sourcesIdList;
+    private final DbusKeyFilter _filter;
+    private final int _fetchSize;
+    private final Checkpoint _ckpt;
+    private final CountDownLatch _responded = new CountDownLatch(1);
+    private volatile ChunkedBodyReadableByteChannel _readChannel;
+    private volatile String _errorMsg;
+
+    public RangeRequest(SnapshotRange range, RangeConnection conn, String sourcesIdList,
+                        DbusKeyFilter filter, int fetchSize, Checkpoint ckpt)
+    {
+      _range = range;
+      _conn = conn;
+      _sourcesIdList = sourcesIdList;
+      _filter = filter;
+      _fetchSize = fetchSize;
+      _ckpt = ckpt;
+    }
+
+    @Override
+    public RangePage call() throws Exception
+    {
+      DatabusBootstrapConnection conn = _conn.getConnection();
+      _conn._curRequest = this;
+      try
+      {
+        // the connection read timeouts guarantee a response
+        conn.requestStream(_sourcesIdList, _filter, _fetchSize, _ckpt, this);
+        _responded.await();
+      }
+      finally
+      {
+        _conn._curRequest = null;
+      }
+      if (null != _errorMsg)
+      {
+        return new RangePage(_range, new IOException(_errorMsg + " for snapshot range " + _range));
+      }
+      return readPage(_readChannel);
+    }
+
+    private RangePage readPage(ChunkedBodyReadableByteChannel readChannel) throws Exception
+    {
+      ByteArrayOutputStream body = new ByteArrayOutputStream(_fetchSize);
+      ByteBuffer buf = ByteBuffer.allocate(Math.min(_fetchSize, 64 * 1024));
+      while (readChannel.read(buf) >= 0)
+      {
+        buf.flip();
+        body.write(buf.array(), 0, buf.limit());
+        buf.clear();
+      }
+
+      if (null != RemoteExceptionHandler.getExceptionName(readChannel))
+      {
+        return new RangePage(_range, null, 0, _range.getOffset(), false, 0,
+                             _remoteExceptionHandler.getException(readChannel));
+      }
+
+      byte[] bodyBytes = body.toByteArray();
+      ByteBuffer bodyBuf = ByteBuffer.wrap(bodyBytes).order(_eventFactory.getByteOrder());
+      ByteArrayOutputStream events = new ByteArrayOutputStream(bodyBytes.length);
+      int numEvents = 0;
+      long lastOffset = _range.getOffset();
+      int pos = 0;
+      while (pos < bodyBytes.length)
+      {
+        DbusEventInternalReadable e = _eventFactory.createReadOnlyDbusEventFromBuffer(bodyBuf, pos);
+        if (EventScanStatus.OK != e.scanEvent())
+        {
+          throw new IOException("invalid event at offset " + pos + " of snapshot range " + _range);
+        }
+        int size = e.size();
+        if (e.isCheckpointMessage())
+        {
+          ByteBuffer value = e.value();
+          byte[] valueBytes = new byte[value.remaining()];
+          value.get(valueBytes);
+          lastOffset = new Checkpoint(new String(valueBytes, "UTF-8")).getSnapshotOffset();
+        }
+        else
+        {
+          events.write(bodyBytes, pos, size);
+          ++numEvents;
+        }
+        pos += size;
+      }
+
+      boolean completed = null != readChannel.getMetadata("PhaseCompleted");
+      return new RangePage(_range, events.toByteArray(), numEvents, lastOffset, completed,
+                           _remoteExceptionHandler.getPendingEventSize(readChannel), null);
+    }
+
+    @Override
+    public void switchToStreamRequestError()
+    {
+      _errorMsg = "stream request error";
+    }
+
+    @Override
+    public void switchToStreamResponseError()
+    {
+      _errorMsg = "stream response error";
+    }
+
+    @Override
+    public void switchToStreamSuccess(ChunkedBodyReadableByteChannel result)
+    {
+      _readChannel = result;
+    }
+
+    @Override
+    public void switchToStartScnRequestError()
+    {
+      _errorMsg = "unexpected startScn request error";
+    }
+
+    @Override
+    public void switchToStartScnResponseError()
+    {
+      _errorMsg = "unexpected startScn response error";
+    }
+
+    @Override
+    public void switchToStartScnSuccess(Checkpoint cp, DatabusBootstrapConnection bootstrapConnection,
+                                        ServerInfo serverInfo)
+    {
+      _errorMsg = "unexpected startScn response";
+    }
+
+    @Override
+    public void switchToStartScnRequestSent()
+    {
+    }
+
+    @Override
+    public void switchToTargetScnRequestError()
+    {
+      _errorMsg = "unexpected targetScn request error";
+    }
+
+    @Override
+    public void switchToTargetScnResponseError()
+    {
+      _errorMsg = "unexpected targetScn response error";
+    }
+
+    @Override
+    public void switchToTargetScnSuccess()
+    {
+      _errorMsg = "unexpected targetScn response";
+    }
+
+    @Override
+    public void switchToTargetScnRequestSent()
+    {
+    }
+
+    @Override
+    public void switchToBootstrapDone()
+    {
+    }
+  }
+}
@@ -23,15 +23,12 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ReadableByteChannel;
-import java.util.ArrayDeque;
-import java.util.Queue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Logger;
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -41,6 +38,8 @@ import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 
 import com.linkedin.databus.client.netty.HttpResponseProcessor;
+import com.linkedin.databus.core.util.BoundedSpscQueue;
+import com.linkedin.databus.core.util.ChunkedReadableByteChannel;
 import com.linkedin.databus2.core.container.DatabusHttpHeaders;
 
 
@@ -50,10 +49,15 @@ import com.linkedin.databus2.core.container.DatabusHttpHeaders;
  * chunks are buffered until the reader consumes them. The number buffered HTTP chunks and the
  * total size of buffered chunks is bounded.
  *
+ * <p>The chunks are passed from the netty thread to the reader through a lock-free
+ * single-producer/single-consumer queue; a thread which has to wait for chunks or for chunk space
+ * parks until the other side wakes it up. The reader can also take the chunks themselves through
+ * {@link #readChunk()} to avoid copying their bytes.
+ *
  * @author cbotev
  *
  */
-public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, HttpResponseProcessor
+public class ChunkedBodyReadableByteChannel implements ChunkedReadableByteChannel, HttpResponseProcessor
 {
   public static final String MODULE = ChunkedBodyReadableByteChannel.class.getName();
   public static final Logger LOG = Logger.getLogger(MODULE);
@@ -66,49 +70,45 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
 
   static final int MAX_CHUNK_SPACE_WAIT_MS = 15000;
 
+  /** The max time a waiting thread parks before re-checking its condition */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
   /** A flag if the channel is open */
   private AtomicBoolean _open = new AtomicBoolean(true);
-  /** A flag that there are no more chunks to be read */
+  /** The chunk currently being read */
   private ChannelBuffer _currentBuffer;
   /** Saves the response object for access to the headers */
   private HttpResponse _response = null;
   /** Saves the trailer object for access to the footers */
   private HttpChunkTrailer _trailer = null;
 
-  /** Protects the access to all chunk queue-related attributes */
-  private final Lock _chunkQueueLock = new ReentrantLock(true);
-  private final Condition _hasChunksCondition = _chunkQueueLock.newCondition();
-  private final Condition _hasChunkSpaceCondition = _chunkQueueLock.newCondition();
-  private final Queue<ChannelBuffer> _chunks;
+  private final BoundedSpscQueue<ChannelBuffer> _chunks;
   /** The number of currently buffered bytes */
-  private int _totalBufferedBytes;
+  private final AtomicInteger _totalBufferedBytes = new AtomicInteger(0);
   /** A flag if we have reached the end of the stream */
   private volatile boolean _noMoreChunks;
+  /** The reader thread if it is waiting for chunks */
+  private volatile Thread _waitingReader;
+  /** The netty thread if it is waiting for chunk space */
+  private volatile Thread _waitingWriter;
+  /** The number of body bytes consumed by the reader; accessed by the reader thread only */
+  private long _bytesRead = 0;
 
   public ChunkedBodyReadableByteChannel()
   {
-    _chunks = new ArrayDeque<ChannelBuffer>(MAX_BUFFERED_CHUNKS);
+    _chunks = new BoundedSpscQueue<ChannelBuffer>(MAX_BUFFERED_CHUNKS);
     _currentBuffer = null;
     _noMoreChunks = false;
-    _totalBufferedBytes = 0;
   }
 
   @Override
   public void close() throws IOException
   {
     _open.set(false);
-    _chunkQueueLock.lock();
-    try
-    {
-      //awake anyone blocked waiting for chunks
-      //getChunk() checks the _open flag and it will exit immediately.
-      signalNoMoreChunks();
-      _hasChunkSpaceCondition.signalAll();
-    }
-    finally
-    {
-      _chunkQueueLock.unlock();
-    }
+    //awake anyone blocked waiting for chunks or chunk space
+    //getChunk() checks the _open flag and it will exit immediately.
+    signalNoMoreChunks();
+    unpark(_waitingWriter);
   }
 
   @Override
@@ -131,6 +131,7 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
         if (!getChunk())
         {
           int bytesAlreadyWritten = saveRemaining - destRemaining;
+          _bytesRead += bytesAlreadyWritten;
           return 0 == bytesAlreadyWritten ? -1 : bytesAlreadyWritten;
         }
       }
@@ -148,32 +149,59 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
       if (-1 != saveLimit) buffer.limit(saveLimit);
       if (0 == _currentBuffer.readableBytes())
       {
-        _currentBuffer.resetReaderIndex();
-        _chunkQueueLock.lock();
-        try
-        {
-          _totalBufferedBytes -= _currentBuffer.readableBytes();
-          _hasChunkSpaceCondition.signalAll();
-        }
-        finally
-        {
-          _chunkQueueLock.unlock();
-        }
-        _currentBuffer = null;
+        releaseCurrentBuffer();
       }
       destRemaining = buffer.remaining();
     }
 
+    _bytesRead += saveRemaining - destRemaining;
     return saveRemaining - destRemaining;
   }
 
+  /** The number of body bytes consumed so far through {@link #read(ByteBuffer)} and {@link #readChunk()} */
+  public long getBytesRead()
+  {
+    return _bytesRead;
+  }
+
+  @Override
+  public ByteBuffer readChunk() throws IOException
+  {
+    while (_open.get())
+    {
+      if (null == _currentBuffer && !getChunk())
+      {
+        return null;
+      }
+      ByteBuffer result = null;
+      if (0 < _currentBuffer.readableBytes())
+      {
+        result = _currentBuffer.toByteBuffer();
+        _bytesRead += result.remaining();
+      }
+      releaseCurrentBuffer();
+      if (null != result)
+      {
+        return result;
+      }
+    }
+    return null;
+  }
+
+  /** Returns the space of the fully consumed current chunk and wakes up the netty thread */
+  private void releaseCurrentBuffer()
+  {
+    _currentBuffer.resetReaderIndex();
+    _totalBufferedBytes.addAndGet(-_currentBuffer.readableBytes());
+    _currentBuffer = null;
+    unpark(_waitingWriter);
+  }
+
   /**
    * Checks if there is enough space to buffer a chunk with the specified size. The semantics is to
    * enforce the upper bounds of max number of chunks and total size of chunks but also allow the
    * buffering of single chunks that go over the chunk size limit.
    *
-   * This method must be called while holding {@link #_chunkQueueLock}.
-   *
    * @param  newChunkSize               the size of the new chunk
    * @return true if the chunk can be buffered
    */
@@ -183,67 +211,80 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
     if (newChunkSize >= MAX_BUFFERED_BYTES)
     {
       //allow for the buffering of a single chunk larger than the size threshold
-      result = (_chunks.size() == 0);
+      result = _chunks.isEmpty();
     }
     else
     {
       result = _chunks.size() < MAX_BUFFERED_CHUNKS &&
-               _totalBufferedBytes + newChunkSize <= MAX_BUFFERED_BYTES;
+               _totalBufferedBytes.get() + newChunkSize <= MAX_BUFFERED_BYTES;
     }
 
     return result;
   }
 
   /**
-   * Attempts to buffer bytes coming from the network.
-   *
-   * This method must be called while holding {@link #_chunkQueueLock}.
+   * Attempts to buffer bytes coming from the network. Must be called only from the netty thread.
    *
    * @param buffer          the channel buffer with the bytes
    * @throws TimeoutException if the new bytes cannot be processed in MAX_CHUNK_SPACE_WAIT_MS time
    */
   private void addBytes(ChannelBuffer buffer) throws TimeoutException
   {
-    if (_open.get())
-    {
-      _chunkQueueLock.lock();
+    if (!_open.get()) return;
 
+    int contentSize = buffer.readableBytes();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_CHUNK_SPACE_WAIT_MS);
+    while (!tryAddChunk(buffer, contentSize))
+    {
+      boolean added = false;
+      _waitingWriter = Thread.currentThread();
       try
       {
-        int contentSize = buffer.readableBytes();
-
-        boolean canBuffer = checkIfEnoughSpace(contentSize);
-        boolean doLoop = true;
-        while (doLoop && ! canBuffer)
+        //re-check after publishing the waiter so that a wake-up cannot be missed
+        added = tryAddChunk(buffer, contentSize);
+        if (!added)
         {
-          try
+          long waitNanos = deadline - System.nanoTime();
+          if (waitNanos <= 0)
           {
-            if (!_hasChunkSpaceCondition.await(MAX_CHUNK_SPACE_WAIT_MS, TimeUnit.MILLISECONDS))
-            {
-              throw new TimeoutException("waiting for chunk space");
-            }
+            throw new TimeoutException("waiting for chunk space");
           }
-          catch (InterruptedException ie)
-          {
-            LOG.info("interrupted");
-            doLoop = false;
-          }
-          if (!_open.get()) return;
-          canBuffer = checkIfEnoughSpace(contentSize);
-        }
-
-        if (canBuffer)
-        {
-          _chunks.add(buffer);
-          _totalBufferedBytes += contentSize;
-          if (_chunks.size() == 1) _hasChunksCondition.signalAll();
+          LockSupport.parkNanos(this, Math.min(waitNanos, MAX_PARK_NANOS));
         }
       }
       finally
       {
-        _chunkQueueLock.unlock();
+        _waitingWriter = null;
       }
+      if (added) break;
+      if (Thread.interrupted())
+      {
+        LOG.info("interrupted");
+        return;
+      }
+      if (!_open.get()) return;
+    }
+
+    unpark(_waitingReader);
+  }
+
+  /**
+   * Queues a chunk if there is space for it
+   * @return true if the chunk was queued; false if the caller has to wait for the reader
+   */
+  private boolean tryAddChunk(ChannelBuffer buffer, int contentSize)
+  {
+    if (!checkIfEnoughSpace(contentSize))
+    {
+      return false;
     }
+    _totalBufferedBytes.addAndGet(contentSize);
+    if (_chunks.offer(buffer))
+    {
+      return true;
+    }
+    _totalBufferedBytes.addAndGet(-contentSize);
+    return false;
   }
 
   @Override
@@ -259,45 +300,45 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
     }
   }
 
+  /** Waits for the next chunk and makes it the current buffer. Must be called only from the reader. */
   private boolean getChunk()
   {
-
-    boolean result = false;
-
-    _chunkQueueLock.lock();
-    try
+    ChannelBuffer nextChunk = _chunks.poll();
+    while (null == nextChunk && !_noMoreChunks)
     {
-      ChannelBuffer nextChunk = _chunks.poll();
-      boolean doLoop = !_noMoreChunks;
-      while (doLoop && null == nextChunk && !_noMoreChunks)
+      _waitingReader = Thread.currentThread();
+      try
       {
-        try
-        {
-          _hasChunksCondition.await();
-        }
-        catch (InterruptedException ie)
+        //re-check after publishing the waiter so that a wake-up cannot be missed
+        nextChunk = _chunks.poll();
+        if (null == nextChunk && !_noMoreChunks)
         {
-          LOG.info("interrupted");
-          doLoop = false;
+          LockSupport.parkNanos(this, MAX_PARK_NANOS);
         }
-        if (!_open.get()) break;
-        nextChunk = _chunks.poll();
       }
-
-      if (null != nextChunk)
+      finally
       {
-        _currentBuffer = nextChunk;
-        if (0 == _currentBuffer.readableBytes()) signalNoMoreChunksWithLock();
-        if (0 == _chunks.size() || MAX_BUFFERED_CHUNKS - 1 == _chunks.size()) _hasChunkSpaceCondition.signalAll();
-        result = true;
+        _waitingReader = null;
       }
+      if (Thread.interrupted())
+      {
+        LOG.info("interrupted");
+        break;
+      }
+      if (!_open.get()) break;
+      if (null == nextChunk) nextChunk = _chunks.poll();
     }
-    finally
+    //chunks may have been added right before the end of the stream was signalled
+    if (null == nextChunk && _open.get()) nextChunk = _chunks.poll();
+
+    if (null == nextChunk)
     {
-      _chunkQueueLock.unlock();
+      return false;
     }
 
-    return result;
+    _currentBuffer = nextChunk;
+    if (0 == _currentBuffer.readableBytes()) signalNoMoreChunks();
+    return true;
   }
 
   @Override
@@ -322,7 +363,7 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
       }
     }
 
-    signalNoMoreChunksWithLock();
+    signalNoMoreChunks();
   }
 
   @Override
@@ -338,24 +379,15 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
 
     String contentLengthStr = response.getHeader(HttpHeaders.Names.CONTENT_LENGTH);
 
-    _chunkQueueLock.lock();
-    try
+    _response = response;
+    if (null == contentLengthStr)
     {
-      _response = response;
-      _currentBuffer = null;
-      if (null == contentLengthStr)
-      {
-        _noMoreChunks = false;
-      }
-      else
-      {
-        addBytes(response.getContent());
-        signalNoMoreChunks();
-      }
+      _noMoreChunks = false;
     }
-    finally
+    else
     {
-      _chunkQueueLock.unlock();
+      addBytes(response.getContent());
+      signalNoMoreChunks();
     }
   }
 
@@ -413,21 +445,12 @@ public class ChunkedBodyReadableByteChannel implements ReadableByteChannel, Http
   private void signalNoMoreChunks()
   {
     _noMoreChunks = true;
-    _hasChunksCondition.signalAll();
+    unpark(_waitingReader);
   }
 
-  private void signalNoMoreChunksWithLock()
+  private static void unpark(Thread waiter)
   {
-
-    _chunkQueueLock.lock();
-    try
-    {
-      signalNoMoreChunks();
-    }
-    finally
-    {
-      _chunkQueueLock.unlock();
-    }
+    if (null != waiter) LockSupport.unpark(waiter);
   }
 
   public boolean hasNoMoreChunks()
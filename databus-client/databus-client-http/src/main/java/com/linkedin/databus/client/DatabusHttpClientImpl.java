@@ -65,6 +65,7 @@ import com.linkedin.databus.client.pub.RegistrationId;
 import com.linkedin.databus.client.pub.ServerInfo;
 import com.linkedin.databus.client.pub.ServerInfo.ServerInfoBuilder;
 import com.linkedin.databus.client.pub.ServerInfo.ServerInfoSetBuilder;
+import com.linkedin.databus.client.pub.LogStructuredCheckpointPersistenceProvider;
 import com.linkedin.databus.client.pub.SharedCheckpointPersistenceProvider;
 import com.linkedin.databus.client.pub.mbean.ConsumerCallbackStats;
 import com.linkedin.databus.client.pub.mbean.UnifiedClientStats;
@@ -333,7 +334,9 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
                                        _clientStaticConfig.getContainer().getBstReadTimeoutMs(),
                                        getProtocolVersion(),
                                        getMaxEventVersion(),
-                                       getHttpChannelGroup());
+                                       getHttpChannelGroup(),
+                                       _clientStaticConfig.getConnectionDefaults().getRelayPushPort(),
+                                       _eventFactory.getByteOrder());
     _relayConnFactory = defaultConnFactory;
     _bootstrapConnFactory = defaultConnFactory;
 
@@ -995,6 +998,13 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
     }
     _httpStatsCollector.registerMastershipStatus(0);
 
+    //close the checkpoint log only if we have created it
+    if (ProviderType.LOG_STRUCTURED == _clientStaticConfig.getCheckpointPersistence().getType() &&
+        _checkpointPersistenceProvider instanceof LogStructuredCheckpointPersistenceProvider)
+    {
+      ((LogStructuredCheckpointPersistenceProvider)_checkpointPersistenceProvider).close();
+    }
+
     super.doShutdown();
     LOG.info(getClass().getSimpleName() +": shutdown complete.");
   }
@@ -1704,11 +1714,13 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
       FILE_SYSTEM,
       EXISTING,
       NONE,
-      SHARED
+      SHARED,
+      LOG_STRUCTURED
     }
 
     private final ProviderType _type;
     private final FileSystemCheckpointPersistenceProvider.StaticConfig _fileSystem;
+    private final LogStructuredCheckpointPersistenceProvider.StaticConfig _logStructured;
     private final SharedCheckpointPersistenceProvider.StaticConfig _sharedState;
     private final CheckpointPersistenceProvider _existing;
     private final CheckpointPersistenceRuntimeConfigBuilder _runtime;
@@ -1721,7 +1733,8 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
     public String toString()
     {
       return "CheckpointPersistenceStaticConfig [_type=" + _type
-             + ", _fileSystem=" + _fileSystem + ", _sharedState="
+             + ", _fileSystem=" + _fileSystem + ", _logStructured="
+             + _logStructured + ", _sharedState="
              + _sharedState + ", _existing=" + _existing + ", _runtime="
              + _runtime + ", _runtimeConfigPrefix=" + _runtimeConfigPrefix
              + ", _clearBeforeUse=" + _clearBeforeUse + "]";
@@ -1735,10 +1748,25 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
                                              String runtimeConfigPrefix,
                                              boolean clearBeforeUse,
                                              int protocolVersion)
+    {
+      this(type, fileSystem, null, sharedState, existing, runtime, runtimeConfigPrefix,
+           clearBeforeUse, protocolVersion);
+    }
+
+    public CheckpointPersistenceStaticConfig(ProviderType type,
+                                             FileSystemCheckpointPersistenceProvider.StaticConfig fileSystem,
+                                             LogStructuredCheckpointPersistenceProvider.StaticConfig logStructured,
+                                             SharedCheckpointPersistenceProvider.StaticConfig sharedState,
+                                             CheckpointPersistenceProvider existing,
+                                             CheckpointPersistenceRuntimeConfigBuilder runtime,
+                                             String runtimeConfigPrefix,
+                                             boolean clearBeforeUse,
+                                             int protocolVersion)
     {
       super();
       _type = type;
       _fileSystem = fileSystem;
+      _logStructured = logStructured;
       _sharedState = sharedState;
       _existing = existing;
       _runtime = runtime;
@@ -1751,6 +1779,8 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
      *
      * <ul>
      *  <li> FILE_SYSTEM specifies to store the checkpoints in a directory on a local file system</li>
+     *  <li> LOG_STRUCTURED specifies to append the checkpoints of all registrations to a single log
+     *       file on a local file system </li>
      *  <li> EXISTING specifies to use a Spring-wired checkpoint-persistence provider </li>
      *  <li> SHARED specifies to store the checkpoints in a shared location as distributed state </li>
      *  <li> NONE specifies not to persist checkpoints (<b>Use at your own risk!</b>) </li>
@@ -1770,6 +1800,15 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
       return _fileSystem;
     }
 
+    /**
+     * The static configuration for the log-structured checkpoint persistence provider.
+     * {@link #getType()} needs to be {@link ProviderType}.LOG_STRUCTURED for this property to have
+     * an effect. */
+    public LogStructuredCheckpointPersistenceProvider.StaticConfig getLogStructured()
+    {
+      return _logStructured;
+    }
+
     /**
      * The static configuration for the shared-state based checkpoint persistence provider.
      * {@link #getType()} needs to be {@link ProviderType} SHARED for this property to have an
@@ -1829,6 +1868,18 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
         cpPersistenceProvider =
             new FileSystemCheckpointPersistenceProvider(getFileSystem(), _protocolVersion);
         break;
+        case LOG_STRUCTURED:
+        LOG.info("Creating log-structured checkpoint persistence provider");
+        try
+        {
+          cpPersistenceProvider =
+              new LogStructuredCheckpointPersistenceProvider(getLogStructured(), _protocolVersion);
+        }
+        catch (IOException ioe)
+        {
+          throw new InvalidConfigException("Unable to open checkpoint log: " + ioe.getMessage(), ioe);
+        }
+        break;
         case SHARED:
         LOG.info("Creating shared ZooKeeper-based checkpoint persistence provider");
         cpPersistenceProvider = new SharedCheckpointPersistenceProvider(groupMember, getSharedState());
@@ -1849,6 +1900,7 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
   {
     private String _type = ProviderType.FILE_SYSTEM.toString();
     private FileSystemCheckpointPersistenceProvider.Config _fileSystem;
+    private LogStructuredCheckpointPersistenceProvider.Config _logStructured;
     private SharedCheckpointPersistenceProvider.Config _sharedState;
     private CheckpointPersistenceProvider _existing  = null;
     private CheckpointPersistenceRuntimeConfigBuilder _runtime;
@@ -1859,6 +1911,7 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
     public CheckpointPersistenceStaticConfigBuilder()
     {
       _fileSystem = new FileSystemCheckpointPersistenceProvider.Config();
+      _logStructured = new LogStructuredCheckpointPersistenceProvider.Config();
       _runtime = new CheckpointPersistenceRuntimeConfigBuilder();
       _runtime.setFileSystem(_fileSystem.getRuntime());
       setRuntimeConfigPrefix("databus.checkpointPersistence.");
@@ -1892,6 +1945,16 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
       _fileSystem = fileSystem;
     }
 
+    public LogStructuredCheckpointPersistenceProvider.Config getLogStructured()
+    {
+      return _logStructured;
+    }
+
+    public void setLogStructured(LogStructuredCheckpointPersistenceProvider.Config logStructured)
+    {
+      _logStructured = logStructured;
+    }
+
     public CheckpointPersistenceProvider getExisting()
     {
       return _existing;
@@ -1951,6 +2014,7 @@ public class DatabusHttpClientImpl extends ServerContainer implements DatabusCli
 
       return new CheckpointPersistenceStaticConfig(providerType,
                                                    getFileSystem().build(),
+                                                   getLogStructured().build(),
                                                    getSharedState().build(),
                                                    getExisting(), getRuntime(),
                                                    getRuntimeConfigPrefix(),
@@ -38,4 +38,16 @@ public interface DatabusRelayConnection
   /* Callback to let the Relay client request streamFromLatestSCN from the relay */
   void enableReadFromLatestScn(boolean enable);
 
+  /* Callback to let the Relay client allow the next /stream request to be sent while the current
+   * response is being read; the prefetched response must fit in prefetchSpace bytes. 0 disables it */
+  void setStreamPrefetchSpace(int prefetchSpace);
+
+  /* The size asked for by the /stream request whose response was passed to the last requestStream
+   * callback. With prefetching, this can be a request sent before the requestStream call. */
+  int getLastStreamFetchSize();
+
+  /* The time the /stream request whose response was passed to the last requestStream callback
+   * was sent */
+  long getLastStreamRequestTs();
+
 }
@@ -832,6 +832,10 @@ public class DatabusSourcesConnection
     private final boolean _enablePullerMessageQueueLogging;
     private final int _numRetriesOnFallOff;
     private final int _noEventsConnectionResetTimeSec;
+    private final int _bstSnapshotParallelism;
+    private final int _relayPushPort;
+    private final boolean _streamPrefetch;
+    private final AdaptiveFetchController.StaticConfig _adaptiveFetch;
 
     public StaticConfig(DbusEventBuffer.StaticConfig eventBuffer,
         DbusEventBuffer.StaticConfig bstEventBuffer,
@@ -848,6 +852,109 @@ public class DatabusSourcesConnection
         boolean enablePullerMessageQueueLogging,
         int noEventsConnectionResetTimeSec
         )
+    {
+      this(eventBuffer, bstEventBuffer, consumerTimeBudgetMs, bstConsumerTimeBudgetMs, consumerParallelism,
+           checkpointThresholdPct, keyRange, bsPullerRetriesBeforeCkptCleanup, pullerRetries, bstPullerRetries,
+           dispatcherRetries, bstDispatcherRetries, retriesOnFellOff, freeBufferThreshold, consumeCurrent,
+           readLatestScnOnError, pullerBufferUtilizationPct, id, enablePullerMessageQueueLogging,
+           noEventsConnectionResetTimeSec, 1);
+    }
+
+    public StaticConfig(DbusEventBuffer.StaticConfig eventBuffer,
+        DbusEventBuffer.StaticConfig bstEventBuffer,
+        long consumerTimeBudgetMs, long bstConsumerTimeBudgetMs, int consumerParallelism,
+        double checkpointThresholdPct, Range keyRange,
+        BackoffTimerStaticConfig bsPullerRetriesBeforeCkptCleanup,
+        BackoffTimerStaticConfig pullerRetries,
+        BackoffTimerStaticConfig bstPullerRetries,
+        BackoffTimerStaticConfig dispatcherRetries,
+        BackoffTimerStaticConfig bstDispatcherRetries,
+        int retriesOnFellOff, int freeBufferThreshold,
+        boolean consumeCurrent, boolean readLatestScnOnError,
+        double pullerBufferUtilizationPct, int id,
+        boolean enablePullerMessageQueueLogging,
+        int noEventsConnectionResetTimeSec,
+        int bstSnapshotParallelism
+        )
+    {
+      this(eventBuffer, bstEventBuffer, consumerTimeBudgetMs, bstConsumerTimeBudgetMs, consumerParallelism,
+           checkpointThresholdPct, keyRange, bsPullerRetriesBeforeCkptCleanup, pullerRetries, bstPullerRetries,
+           dispatcherRetries, bstDispatcherRetries, retriesOnFellOff, freeBufferThreshold, consumeCurrent,
+           readLatestScnOnError, pullerBufferUtilizationPct, id, enablePullerMessageQueueLogging,
+           noEventsConnectionResetTimeSec, bstSnapshotParallelism, -1);
+    }
+
+    public StaticConfig(DbusEventBuffer.StaticConfig eventBuffer,
+        DbusEventBuffer.StaticConfig bstEventBuffer,
+        long consumerTimeBudgetMs, long bstConsumerTimeBudgetMs, int consumerParallelism,
+        double checkpointThresholdPct, Range keyRange,
+        BackoffTimerStaticConfig bsPullerRetriesBeforeCkptCleanup,
+        BackoffTimerStaticConfig pullerRetries,
+        BackoffTimerStaticConfig bstPullerRetries,
+        BackoffTimerStaticConfig dispatcherRetries,
+        BackoffTimerStaticConfig bstDispatcherRetries,
+        int retriesOnFellOff, int freeBufferThreshold,
+        boolean consumeCurrent, boolean readLatestScnOnError,
+        double pullerBufferUtilizationPct, int id,
+        boolean enablePullerMessageQueueLogging,
+        int noEventsConnectionResetTimeSec,
+        int bstSnapshotParallelism,
+        int relayPushPort
+        )
+    {
+      this(eventBuffer, bstEventBuffer, consumerTimeBudgetMs, bstConsumerTimeBudgetMs, consumerParallelism,
+           checkpointThresholdPct, keyRange, bsPullerRetriesBeforeCkptCleanup, pullerRetries, bstPullerRetries,
+           dispatcherRetries, bstDispatcherRetries, retriesOnFellOff, freeBufferThreshold, consumeCurrent,
+           readLatestScnOnError, pullerBufferUtilizationPct, id, enablePullerMessageQueueLogging,
+           noEventsConnectionResetTimeSec, bstSnapshotParallelism, relayPushPort, false);
+    }
+
+    public StaticConfig(DbusEventBuffer.StaticConfig eventBuffer,
+        DbusEventBuffer.StaticConfig bstEventBuffer,
+        long consumerTimeBudgetMs, long bstConsumerTimeBudgetMs, int consumerParallelism,
+        double checkpointThresholdPct, Range keyRange,
+        BackoffTimerStaticConfig bsPullerRetriesBeforeCkptCleanup,
+        BackoffTimerStaticConfig pullerRetries,
+        BackoffTimerStaticConfig bstPullerRetries,
+        BackoffTimerStaticConfig dispatcherRetries,
+        BackoffTimerStaticConfig bstDispatcherRetries,
+        int retriesOnFellOff, int freeBufferThreshold,
+        boolean consumeCurrent, boolean readLatestScnOnError,
+        double pullerBufferUtilizationPct, int id,
+        boolean enablePullerMessageQueueLogging,
+        int noEventsConnectionResetTimeSec,
+        int bstSnapshotParallelism,
+        int relayPushPort,
+        boolean streamPrefetch
+        )
+    {
+      this(eventBuffer, bstEventBuffer, consumerTimeBudgetMs, bstConsumerTimeBudgetMs, consumerParallelism,
+           checkpointThresholdPct, keyRange, bsPullerRetriesBeforeCkptCleanup, pullerRetries, bstPullerRetries,
+           dispatcherRetries, bstDispatcherRetries, retriesOnFellOff, freeBufferThreshold, consumeCurrent,
+           readLatestScnOnError, pullerBufferUtilizationPct, id, enablePullerMessageQueueLogging,
+           noEventsConnectionResetTimeSec, bstSnapshotParallelism, relayPushPort, streamPrefetch,
+           AdaptiveFetchController.StaticConfig.DISABLED);
+    }
+
+    public StaticConfig(DbusEventBuffer.StaticConfig eventBuffer,
+        DbusEventBuffer.StaticConfig bstEventBuffer,
+        long consumerTimeBudgetMs, long bstConsumerTimeBudgetMs, int consumerParallelism,
+        double checkpointThresholdPct, Range keyRange,
+        BackoffTimerStaticConfig bsPullerRetriesBeforeCkptCleanup,
+        BackoffTimerStaticConfig pullerRetries,
+        BackoffTimerStaticConfig bstPullerRetries,
+        BackoffTimerStaticConfig dispatcherRetries,
+        BackoffTimerStaticConfig bstDispatcherRetries,
+        int retriesOnFellOff, int freeBufferThreshold,
+        boolean consumeCurrent, boolean readLatestScnOnError,
+        double pullerBufferUtilizationPct, int id,
+        boolean enablePullerMessageQueueLogging,
+        int noEventsConnectionResetTimeSec,
+        int bstSnapshotParallelism,
+        int relayPushPort,
+        boolean streamPrefetch,
+        AdaptiveFetchController.StaticConfig adaptiveFetch
+        )
     {
       super();
       _eventBuffer = eventBuffer;
@@ -870,7 +977,10 @@ public class DatabusSourcesConnection
       _id = id;
       _enablePullerMessageQueueLogging = enablePullerMessageQueueLogging;
       _noEventsConnectionResetTimeSec = noEventsConnectionResetTimeSec;
-
+      _bstSnapshotParallelism = bstSnapshotParallelism;
+      _relayPushPort = relayPushPort;
+      _streamPrefetch = streamPrefetch;
+      _adaptiveFetch = adaptiveFetch;
     }
 
 
@@ -878,6 +988,43 @@ public class DatabusSourcesConnection
     {
       return _noEventsConnectionResetTimeSec;
     }
+
+    /**
+     * The number of id ranges of a snapshot source which are read concurrently from the bootstrap
+     * server; 1 reads the snapshot sequentially.
+     */
+    public int getBstSnapshotParallelism()
+    {
+      return _bstSnapshotParallelism;
+    }
+
+    /**
+     * The TCP port of the relays used for push-based streaming of events; if not positive, events
+     * are pulled using HTTP /stream requests.
+     */
+    public int getRelayPushPort()
+    {
+      return _relayPushPort;
+    }
+
+    /**
+     * Whether the next relay /stream request is sent while the events of the current response are
+     * still being read into the buffer, if the free space of the buffer allows it.
+     */
+    public boolean isStreamPrefetch()
+    {
+      return _streamPrefetch;
+    }
+
+    /**
+     * The tuning of the relay /stream fetch size and poll sleep from the observed responses; if
+     * disabled, the fetch size follows the free space in the buffer.
+     */
+    public AdaptiveFetchController.StaticConfig getAdaptiveFetch()
+    {
+      return _adaptiveFetch;
+    }
+
     public DbusEventBuffer.StaticConfig getBstEventBuffer()
     {
       return _bstEventBuffer;
@@ -1087,6 +1234,10 @@ public class DatabusSourcesConnection
     private int _id;
     private boolean _enablePullerMessageQueueLogging;
     private int _noEventsConnectionResetTimeSec = 15*60; // if there is no events for 15 min - disconnect
+    private int _bstSnapshotParallelism = 1;
+    private int _relayPushPort = -1;
+    private boolean _streamPrefetch = false;
+    private AdaptiveFetchController.Config _adaptiveFetch = new AdaptiveFetchController.Config();
 
     private void makeEvbConfig(DbusEventBuffer.Config evbConfig,
                                 QueuePolicy qPolicy,
@@ -1248,6 +1399,11 @@ public class DatabusSourcesConnection
                 + getConsumerParallelism());
       }
 
+      if (_bstSnapshotParallelism < 1)
+      {
+        throw new InvalidConfigException("Invalid bootstrap snapshot parallelism:" + _bstSnapshotParallelism);
+      }
+
       if (_checkpointThresholdPct <= 0.0 || _checkpointThresholdPct > 100.0)
       {
         throw new InvalidConfigException("checkpointThresholdPct must be in (0, 100]");
@@ -1271,7 +1427,11 @@ public class DatabusSourcesConnection
           _consumeCurrent, _readLatestScnOnError,
           _pullerBufferUtilizationPct, _id,
           _enablePullerMessageQueueLogging,
-          _noEventsConnectionResetTimeSec
+          _noEventsConnectionResetTimeSec,
+          _bstSnapshotParallelism,
+          _relayPushPort,
+          _streamPrefetch,
+          _adaptiveFetch.build()
           );
       _log.info("Init readBufferSize=" + config.getEventBuffer().getReadBufferSize());
       validateConfigs(config);
@@ -1305,6 +1465,46 @@ public class DatabusSourcesConnection
       _noEventsConnectionResetTimeSec = noEventsConnectionResetTimeSec;
     }
 
+    public int getBstSnapshotParallelism()
+    {
+      return _bstSnapshotParallelism;
+    }
+
+    public void setBstSnapshotParallelism(int bstSnapshotParallelism)
+    {
+      _bstSnapshotParallelism = bstSnapshotParallelism;
+    }
+
+    public int getRelayPushPort()
+    {
+      return _relayPushPort;
+    }
+
+    public void setRelayPushPort(int relayPushPort)
+    {
+      _relayPushPort = relayPushPort;
+    }
+
+    public boolean getStreamPrefetch()
+    {
+      return _streamPrefetch;
+    }
+
+    public void setStreamPrefetch(boolean streamPrefetch)
+    {
+      _streamPrefetch = streamPrefetch;
+    }
+
+    public AdaptiveFetchController.Config getAdaptiveFetch()
+    {
+      return _adaptiveFetch;
+    }
+
+    public void setAdaptiveFetch(AdaptiveFetchController.Config adaptiveFetch)
+    {
+      _adaptiveFetch = adaptiveFetch;
+    }
+
     public boolean getReadLatestScnOnError()
     {
       return _readLatestScnOnError;
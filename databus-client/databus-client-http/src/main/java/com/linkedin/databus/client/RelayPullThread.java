@@ -130,6 +130,7 @@ public class RelayPullThread extends BasePullThread
   final private RemoteExceptionHandler _remoteExceptionHandler;
   private final boolean _isReadLatestScnOnErrorEnabled;
   private final double _pullerBufferUtilizationPct ;
+  private final AdaptiveFetchController _fetchController;
 
 
 
@@ -158,6 +159,7 @@ public class RelayPullThread extends BasePullThread
     _retriesOnFallOff = new BackoffTimer("RetriesOnFallOff",
         new BackoffTimerStaticConfig(0, 0, 1, 0, sourcesConn.getConnectionConfig().getNumRetriesOnFallOff()));
     _noEventsConnectionResetTimeSec = noEventsConnectionResetTimeSec;
+    _fetchController = new AdaptiveFetchController(sourcesConn.getConnectionConfig().getAdaptiveFetch());
   }
 
 
@@ -722,6 +724,12 @@ public class RelayPullThread extends BasePullThread
     if (debugEnabled) _log.debug("Checking for free space in buffer");
     int freeBufferThreshold=(int)(_sourcesConn.getConnectionConfig().getFreeBufferThreshold() *
         100.0 / _pullerBufferUtilizationPct);
+    if (_fetchController.isEnabled() &&
+        curState.getDataEventsBuffer().getBufferFreeSpace() < freeBufferThreshold)
+    {
+      //the dispatcher does not keep up; larger fetches would only wait longer for space
+      _fetchController.onBufferFull();
+    }
     try
     {
       curState.getDataEventsBuffer().waitForFreeSpace(freeBufferThreshold);
@@ -772,6 +780,22 @@ public class RelayPullThread extends BasePullThread
       _relayCallsStats.registerStreamRequest(cp, EMPTY_STREAM_LIST);
     int fetchSize = (int)((curState.getDataEventsBuffer().getBufferFreeReadSpace() / 100.0) * _pullerBufferUtilizationPct);
     fetchSize = Math.max(freeBufferThreshold, fetchSize);
+    if (_fetchController.isEnabled())
+    {
+      fetchSize = _fetchController.getFetchSize(freeBufferThreshold, fetchSize);
+    }
+    if (_sourcesConn.getConnectionConfig().isStreamPrefetch())
+    {
+      //the space left in the buffer after this fetch can take the response of the next request; the
+      //fuller the buffer, the less is prefetched, down to nothing
+      DbusEventBuffer eventBuffer = curState.getDataEventsBuffer();
+      long prefetchSpace = Math.min(eventBuffer.getBufferFreeSpace() - fetchSize,
+                                    eventBuffer.getMaxReadBufferCapacity());
+      prefetchSpace = Math.min((long)((prefetchSpace / 100.0) * _pullerBufferUtilizationPct),
+                               ChunkedBodyReadableByteChannel.MAX_BUFFERED_BYTES);
+      curState.getRelayConnection().setStreamPrefetchSpace(
+          prefetchSpace >= freeBufferThreshold ? (int)prefetchSpace : 0);
+    }
     CheckpointMult cpMult = new CheckpointMult();
     String args;
     if (curState.getRelayConnection().getProtocolVersion() >= 3) {
@@ -873,6 +897,13 @@ public class RelayPullThread extends BasePullThread
                                                                   connCollector);
 
         boolean resetConnection = false;
+        if (_fetchController.isEnabled())
+        {
+          //the response may be the one of a prefetched request, sized and sent before ours
+          DatabusRelayConnection relayConn = curState.getRelayConnection();
+          _fetchController.onResponse(readChannel.getBytesRead(), relayConn.getLastStreamFetchSize(),
+                                      System.currentTimeMillis() - relayConn.getLastStreamRequestTs());
+        }
         if (eventsNum > 0) {
           _timeSinceEventsSec = System.currentTimeMillis();
           cp.checkPoint();
@@ -959,7 +990,11 @@ public class RelayPullThread extends BasePullThread
       mergeRelayCallsStats();
     }
 
-    _status.getRetriesCounter().sleep();
+    //no need to wait for more events if the relay still has a backlog
+    if (!_fetchController.isBacklogged())
+    {
+      _status.getRetriesCounter().sleep();
+    }
 
     curState.switchToRequestStream(cp);
     enqueueMessage(curState);
@@ -1204,6 +1239,11 @@ public class RelayPullThread extends BasePullThread
     return _retriesOnFallOff;
   }
 
+  AdaptiveFetchController getFetchController()
+  {
+    return _fetchController;
+  }
+
   private void writeEventToRelayDispatcher(ConnectionState curState, DbusEvent event, String message)
           throws InterruptedException, InvalidEventException
   {
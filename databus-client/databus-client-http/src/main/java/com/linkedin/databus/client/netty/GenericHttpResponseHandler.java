@@ -462,12 +462,21 @@ public class GenericHttpResponseHandler extends SimpleChannelHandler {
   private void finishResponse(MessageEvent e) throws Exception {
     _messageState = MessageState.RESPONSE_FINISH;
     _log.debug("FINISH_RESPONSE");
-    _responseProcessor.finishResponse();
-    _responseProcessor = null;
     if (_keepAlive == KeepAliveType.NO_KEEP_ALIVE) {
+      _responseProcessor.finishResponse();
+      _responseProcessor = null;
       e.getChannel().close();
+      _messageState = MessageState.REQUEST_WAIT;
+    } else {
+      // the channel is ready for the next request before the processor is done so that the
+      // processor can send it right away
+      HttpResponseProcessor responseProcessor = _responseProcessor;
+      _messageState = MessageState.REQUEST_WAIT;
+      responseProcessor.finishResponse();
+      if (_responseProcessor == responseProcessor) {
+        _responseProcessor = null;
+      }
     }
-    _messageState = MessageState.REQUEST_WAIT;
   }
 
   private void logExceptionMessage(Throwable cause) {
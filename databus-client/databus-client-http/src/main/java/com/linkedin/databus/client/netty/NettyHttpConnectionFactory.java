@@ -20,6 +20,7 @@ package com.linkedin.databus.client.netty;
 
 
 import java.io.IOException;
+import java.nio.ByteOrder;
 import java.util.concurrent.ExecutorService;
 
 import org.jboss.netty.channel.ChannelFactory;
@@ -51,6 +52,8 @@ public class NettyHttpConnectionFactory
   private final int _protocolVersion;
   private final ChannelGroup _channelGroup; //provides automatic channel closure on shutdown
   private final int _maxEventVersion;
+  private final int _relayPushPort;
+  private final ByteOrder _eventByteOrder;
 
   public NettyHttpConnectionFactory(ExecutorService bossThreadPool,
                                     ExecutorService ioThreadPool,
@@ -62,6 +65,47 @@ public class NettyHttpConnectionFactory
                                     int protocolVersion,
                                     int maxEventVersion,
                                     ChannelGroup channelGroup)
+  {
+    this(bossThreadPool, ioThreadPool, containerStatsCollector, timeoutTimer, writeTimeoutMs,
+         readTimeoutMs, bstReadTimeoutMs, protocolVersion, maxEventVersion, channelGroup, -1);
+  }
+
+  /**
+   * @param relayPushPort     the TCP port of the relays for push-based streaming; if not positive,
+   *                          events are pulled from the relays with HTTP /stream requests
+   */
+  public NettyHttpConnectionFactory(ExecutorService bossThreadPool,
+                                    ExecutorService ioThreadPool,
+                                    ContainerStatisticsCollector containerStatsCollector,
+                                    Timer timeoutTimer,
+                                    long writeTimeoutMs,
+                                    long readTimeoutMs,
+                                    long bstReadTimeoutMs,
+                                    int protocolVersion,
+                                    int maxEventVersion,
+                                    ChannelGroup channelGroup,
+                                    int relayPushPort)
+  {
+    this(bossThreadPool, ioThreadPool, containerStatsCollector, timeoutTimer, writeTimeoutMs,
+         readTimeoutMs, bstReadTimeoutMs, protocolVersion, maxEventVersion, channelGroup, relayPushPort,
+         ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * @param eventByteOrder    the byte order of the events sent by the relays
+   */
+  public NettyHttpConnectionFactory(ExecutorService bossThreadPool,
+                                    ExecutorService ioThreadPool,
+                                    ContainerStatisticsCollector containerStatsCollector,
+                                    Timer timeoutTimer,
+                                    long writeTimeoutMs,
+                                    long readTimeoutMs,
+                                    long bstReadTimeoutMs,
+                                    int protocolVersion,
+                                    int maxEventVersion,
+                                    ChannelGroup channelGroup,
+                                    int relayPushPort,
+                                    ByteOrder eventByteOrder)
   {
     super();
     _bossThreadPool = bossThreadPool;
@@ -75,6 +119,8 @@ public class NettyHttpConnectionFactory
     _channelFactory = new NioClientSocketChannelFactory(_bossThreadPool, _ioThreadPool);
     _channelGroup = channelGroup;
     _maxEventVersion = maxEventVersion;
+    _relayPushPort = relayPushPort;
+    _eventByteOrder = eventByteOrder;
   }
 
   @Override
@@ -83,17 +129,35 @@ public class NettyHttpConnectionFactory
                                                       RemoteExceptionHandler remoteExceptionHandler)
   throws IOException
   {
-    return new NettyHttpDatabusRelayConnection(relay,
-                                               callback,
-                                               _channelFactory,
-                                               _containerStatsCollector,
-                                               remoteExceptionHandler,
-                                               _timeoutTimer,
-                                               _writeTimeoutMs,
-                                               _readTimeoutMs,
-                                               _protocolVersion,
-                                               _maxEventVersion,
-                                               _channelGroup);
+    if (_relayPushPort > 0)
+    {
+      return new NettyTcpDatabusRelayConnection(relay,
+                                                _relayPushPort,
+                                                callback,
+                                                _channelFactory,
+                                                _containerStatsCollector,
+                                                remoteExceptionHandler,
+                                                _timeoutTimer,
+                                                _writeTimeoutMs,
+                                                _readTimeoutMs,
+                                                _protocolVersion,
+                                                _maxEventVersion,
+                                                _channelGroup);
+    }
+    NettyHttpDatabusRelayConnection conn =
+        new NettyHttpDatabusRelayConnection(relay,
+                                            callback,
+                                            _channelFactory,
+                                            _containerStatsCollector,
+                                            remoteExceptionHandler,
+                                            _timeoutTimer,
+                                            _writeTimeoutMs,
+                                            _readTimeoutMs,
+                                            _protocolVersion,
+                                            _maxEventVersion,
+                                            _channelGroup);
+    conn.setEventByteOrder(_eventByteOrder);
+    return conn;
   }
 
   @Override
@@ -21,6 +21,7 @@ package com.linkedin.databus.client.netty;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteOrder;
 import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
 import java.util.Formatter;
@@ -36,6 +37,7 @@ import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.util.Timer;
@@ -46,7 +48,9 @@ import com.linkedin.databus.client.DatabusRelayConnectionStateMessage;
 import com.linkedin.databus.client.DatabusStreamConnectionStateMessage;
 import com.linkedin.databus.client.netty.AbstractNettyHttpConnection.BaseHttpResponseProcessor;
 import com.linkedin.databus.client.pub.ServerInfo;
+import com.linkedin.databus.core.Checkpoint;
 import com.linkedin.databus.core.CheckpointMult;
+import com.linkedin.databus.core.DbusClientMode;
 import com.linkedin.databus.core.DbusConstants;
 import com.linkedin.databus.core.DbusPrettyLogUtils;
 import com.linkedin.databus.core.async.ActorMessageQueue;
@@ -61,6 +65,17 @@ import com.linkedin.databus2.core.container.request.RegisterResponseMetadataEntr
 import com.linkedin.databus2.core.filter.DbusKeyCompositeFilter;
 import com.linkedin.databus2.core.filter.DbusKeyFilter;
 
+/**
+ * A relay connection which pulls events with HTTP /stream requests.
+ *
+ * <p>If the puller sets a prefetch space (see {@link #setStreamPrefetchSpace(int)}), the next
+ * /stream request is sent as soon as a response has been received, while the puller is still
+ * reading it into the client buffer. The checkpoint of the next request is computed by following
+ * the events of the response as they arrive. The prefetched response is handed to the puller if
+ * its next requestStream call asks for the same checkpoint; otherwise it is dropped and the
+ * request of the puller is sent once the channel is free. At most one request is prefetched and
+ * it asks for no more than the prefetch space.
+ */
 public class NettyHttpDatabusRelayConnection
              extends AbstractNettyHttpConnection
              implements DatabusRelayConnection
@@ -87,6 +102,12 @@ public class NettyHttpDatabusRelayConnection
   private int _freeBufferSpace;
   private DbusKeyCompositeFilter _filter;
   private boolean _enableReadFromLatestSCN = false;
+  private ByteOrder _eventByteOrder = ByteOrder.BIG_ENDIAN;
+  private volatile int _streamPrefetchSpace = 0;
+  /** the /stream request sent ahead of the puller, if any; guarded by this */
+  private StreamRequest _prefetch;
+  /** the /stream request whose response goes to the puller, possibly an adopted prefetch; guarded by this */
+  private StreamRequest _streamRequest;
 
   //private MyConnectListener _connectListener;
 
@@ -138,9 +159,33 @@ public class NettyHttpDatabusRelayConnection
     return _enableReadFromLatestSCN;
   }
 
+  /** The byte order of the events sent by the relay; used to follow the events of /stream responses */
+  public void setEventByteOrder(ByteOrder eventByteOrder)
+  {
+    _eventByteOrder = eventByteOrder;
+  }
+
   @Override
-  public void requestSources(DatabusRelayConnectionStateMessage stateReuse)
+  public void setStreamPrefetchSpace(int prefetchSpace)
   {
+    _streamPrefetchSpace = prefetchSpace;
+  }
+
+  @Override
+  public void requestSources(final DatabusRelayConnectionStateMessage stateReuse)
+  {
+    if (discardPrefetch(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            requestSources(stateReuse);
+          }
+        }))
+    {
+      return;
+    }
+
     _callbackStateReuse = stateReuse;
 
     if (!hasConnection())
@@ -176,8 +221,21 @@ public class NettyHttpDatabusRelayConnection
   }
 
   @Override
-  public void requestRegister(String sourcesIdList, DatabusRelayConnectionStateMessage stateReuse)
+  public void requestRegister(final String sourcesIdList,
+                              final DatabusRelayConnectionStateMessage stateReuse)
   {
+    if (discardPrefetch(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            requestRegister(sourcesIdList, stateReuse);
+          }
+        }))
+    {
+      return;
+    }
+
     _sourcesSubsList = sourcesIdList;
     _callbackStateReuse = stateReuse;
 
@@ -245,10 +303,49 @@ public class NettyHttpDatabusRelayConnection
   }
 
   @Override
-  public void requestStream(String sourcesSubsList, DbusKeyCompositeFilter filter,
-                            int freeBufferSpace, CheckpointMult cp, Range keyRange,
-                            DatabusRelayConnectionStateMessage stateReuse)
+  public void requestStream(final String sourcesSubsList, final DbusKeyCompositeFilter filter,
+                            final int freeBufferSpace, final CheckpointMult cp,
+                            final Range keyRange,
+                            final DatabusRelayConnectionStateMessage stateReuse)
   {
+    StreamRequest prefetch = null;
+    synchronized (this)
+    {
+      if (null != _prefetch && _prefetch.matches(sourcesSubsList, filter, cp))
+      {
+        prefetch = _prefetch;
+        _prefetch = null;
+        _streamRequest = prefetch;
+        _checkpoint = cp;
+        _callbackStateReuse = stateReuse;
+        _sourcesSubsList = sourcesSubsList;
+        _freeBufferSpace = freeBufferSpace;
+        _filter = filter;
+        _curState = State.STREAM_REQUEST_WRITE;
+      }
+    }
+    if (null != prefetch)
+    {
+      if (LOG.isDebugEnabled()) LOG.debug("using prefetched /stream response");
+      if (prefetch.adopt(stateReuse))
+      {
+        sendPrefetch(prefetch);
+      }
+      return;
+    }
+
+    if (discardPrefetch(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            requestStream(sourcesSubsList, filter, freeBufferSpace, cp, keyRange, stateReuse);
+          }
+        }))
+    {
+      return;
+    }
+
     _checkpoint = cp;
     _callbackStateReuse = stateReuse;
     _sourcesSubsList = sourcesSubsList;
@@ -269,7 +366,7 @@ public class NettyHttpDatabusRelayConnection
     }
   }
 
-  void formRequest(Formatter formatter, String filtersStr)
+  void formRequest(Formatter formatter, String filtersStr, StreamRequest req)
   {
     StringBuilder fmtString = new StringBuilder(1024);
 
@@ -294,11 +391,9 @@ public class NettyHttpDatabusRelayConnection
                .append(_maxEventVersion);
     }
 
-    formatter.format(fmtString.toString(), _sourcesSubsList, Boolean.toString(_enableReadFromLatestSCN),
-                     (getProtocolVersion() >= 3) ?
-                         _checkpoint.toString() :
-                         _checkpoint.getCheckpoint(PhysicalPartition.ANY_PHYSICAL_PARTITION),
-                     _freeBufferSpace);
+    formatter.format(fmtString.toString(), req._sourcesSubsList,
+                     Boolean.toString(req._readFromLatestScn), req._checkpointParam,
+                     req._fetchSize);
 
     if (LOG.isDebugEnabled())
     {
@@ -306,22 +401,53 @@ public class NettyHttpDatabusRelayConnection
     }
   }
 
-  void onStreamConnectSuccess()
+  /** The checkpoint as sent in the /stream request */
+  private String checkpointParam(CheckpointMult cp)
   {
-    boolean debugEnabled = LOG.isDebugEnabled();
+    return (getProtocolVersion() >= 3) ?
+        cp.toString() :
+        String.valueOf(cp.getCheckpoint(PhysicalPartition.ANY_PHYSICAL_PARTITION));
+  }
 
+  void onStreamConnectSuccess()
+  {
     _curState = State.STREAM_REQUEST_WRITE;
 
+    StreamRequest req = new StreamRequest(_sourcesSubsList, _filter, _freeBufferSpace, _checkpoint,
+                                          _enableReadFromLatestSCN, _callbackStateReuse);
+    synchronized (this)
+    {
+      _streamRequest = req;
+    }
+    sendStreamRequest(req, new StreamRequestResultListener());
+  }
+
+  @Override
+  public synchronized int getLastStreamFetchSize()
+  {
+    return null != _streamRequest ? _streamRequest._fetchSize : -1;
+  }
+
+  @Override
+  public synchronized long getLastStreamRequestTs()
+  {
+    return null != _streamRequest ? _streamRequest._sendTs : -1;
+  }
+
+  private void sendStreamRequest(StreamRequest req, SendRequestResultListener listener)
+  {
+    boolean debugEnabled = LOG.isDebugEnabled();
+
     ChannelPipeline channelPipeline = _channel.getPipeline();
     _readTimeOutHandler = (ExtendedReadTimeoutHandler)channelPipeline.get(GenericHttpClientPipelineFactory.READ_TIMEOUT_HANDLER_NAME);
     _readTimeOutHandler.start(channelPipeline.getContext(_readTimeOutHandler));
 
     StreamHttpResponseProcessor streamResponseProcessor =
-        new StreamHttpResponseProcessor(this, _callback, _callbackStateReuse, _readTimeOutHandler);
+        new StreamHttpResponseProcessor(this, _callback, _callbackStateReuse, _readTimeOutHandler, req);
 
     StringBuilder uriString = new StringBuilder(1024);
 
-    boolean error = populateStreamRequestUrl(uriString);
+    boolean error = populateStreamRequestUrl(uriString, req);
 
     if (error)
     {
@@ -333,41 +459,390 @@ public class NettyHttpDatabusRelayConnection
 
     // Prepare the HTTP request.
     HttpRequest request = createEmptyRequest(url);
-    sendRequest(request, new StreamRequestResultListener(), streamResponseProcessor);
+    sendRequest(request, listener, streamResponseProcessor);
   }
 
-  private boolean populateStreamRequestUrl(StringBuilder uriString)
+  /** The filters as sent in the /stream request; null if there are none */
+  private static String filtersParam(DbusKeyCompositeFilter filter) throws IOException
+  {
+    if (null == filter)
+    {
+      return null;
+    }
+    Map<Long, DbusKeyFilter> fMap = filter.getFilterMap();
+    return (null != fMap && fMap.size() > 0) ? new ObjectMapper().writeValueAsString(fMap) : null;
+  }
+
+  private boolean populateStreamRequestUrl(StringBuilder uriString, StreamRequest req)
   {
-    ObjectMapper objMapper = new ObjectMapper();
     Formatter uriFmt = new Formatter(uriString);
     String filtersStr = null;
     boolean error = false;
-    if (null != _filter)
+    if (null != req._filter)
     {
       try
       {
-        Map<Long, DbusKeyFilter> fMap = _filter.getFilterMap();
-        if (null != fMap && fMap.size() > 0)
-          filtersStr = objMapper.writeValueAsString(fMap);
+        filtersStr = filtersParam(req._filter);
       }
       catch (IOException ex)
       {
-        LOG.error("Got exception while serializing Filters. Filter Map was : " + _filter, ex);
+        LOG.error("Got exception while serializing Filters. Filter Map was : " + req._filter, ex);
         error = true;
-        onRequestFailure(uriString.toString(), ex);
+        onStreamRequestFailure(req, uriString.toString(), ex);
       }
       catch (RuntimeException ex)
       {
-        LOG.error("Got exception while serializing Filters. Filter Map was : " + _filter, ex);
+        LOG.error("Got exception while serializing Filters. Filter Map was : " + req._filter, ex);
         error = true;
-        onRequestFailure(uriString.toString(), ex);
+        onStreamRequestFailure(req, uriString.toString(), ex);
       }
     }
 
-    formRequest(uriFmt, filtersStr);
+    formRequest(uriFmt, filtersStr, req);
     return error;
   }
 
+  private void onStreamRequestFailure(StreamRequest req, String uri, Throwable cause)
+  {
+    if (req.isPrefetch())
+    {
+      req.onRequestFailed(cause);
+    }
+    else
+    {
+      onRequestFailure(uri, cause);
+    }
+  }
+
+  /**
+   * Creates the request which follows the given one if its response allows it. The caller must hold
+   * the connection lock and must send the returned request after releasing it.
+   */
+  private StreamRequest createPrefetch(StreamRequest req)
+  {
+    int prefetchSpace = _streamPrefetchSpace;
+    if (null != _prefetch || null == req._tracker || prefetchSpace <= 0 || _enableReadFromLatestSCN ||
+        !req._responseOk || !req._tracker.isAtEndOfWindow() || !hasConnection())
+    {
+      return null;
+    }
+
+    Checkpoint nextCp = req._tracker.finish();
+    CheckpointMult nextCpMult = new CheckpointMult();
+    for (PhysicalPartition pPart: req._checkpoint.getPartitions())
+    {
+      nextCpMult.addCheckpoint(pPart, nextCp);
+    }
+    _prefetch = new StreamRequest(req._sourcesSubsList, req._filter, prefetchSpace, nextCpMult, false,
+                                  null);
+    return _prefetch;
+  }
+
+  /** Sends the request which follows the given one, if any */
+  private void sendPrefetch(StreamRequest req)
+  {
+    StreamRequest prefetch;
+    synchronized (this)
+    {
+      prefetch = createPrefetch(req);
+    }
+    if (null != prefetch)
+    {
+      if (LOG.isDebugEnabled())
+      {
+        LOG.debug("prefetching /stream after " + req._tracker.getNumEvents() + " events (" +
+                  req._tracker.getNumBytes() + " bytes)");
+      }
+      sendStreamRequest(prefetch, new PrefetchRequestResultListener(prefetch));
+    }
+  }
+
+  /**
+   * Drops the prefetched request, if any, because the puller needs a different one.
+   * @param  deferredRequest    the request of the puller
+   * @return true if the prefetched response is still being received; the request of the puller is
+   *         sent once it is over
+   */
+  private boolean discardPrefetch(Runnable deferredRequest)
+  {
+    synchronized (this)
+    {
+      StreamRequest prefetch = _prefetch;
+      if (null == prefetch)
+      {
+        return false;
+      }
+      _prefetch = null;
+      if (LOG.isDebugEnabled()) LOG.debug("discarding prefetched /stream response");
+      return prefetch.discard(deferredRequest);
+    }
+  }
+
+  /** For testing */
+  synchronized StreamRequest getPrefetch()
+  {
+    return _prefetch;
+  }
+
+  /**
+   * A /stream request. The request of the puller is owned by the puller from the start; a
+   * prefetched request is owned by the puller once adopted by a matching requestStream call. The
+   * state of a prefetched request is guarded by the connection lock.
+   */
+  class StreamRequest
+  {
+    final String _sourcesSubsList;
+    final DbusKeyCompositeFilter _filter;
+    final int _fetchSize;
+    final CheckpointMult _checkpoint;
+    final String _checkpointParam;
+    final boolean _readFromLatestScn;
+    /** requests are sent as soon as they are created */
+    final long _sendTs = System.currentTimeMillis();
+    /** follows the events of the response; null if the next request cannot be prefetched */
+    final StreamCheckpointTracker _tracker;
+    private final boolean _prefetched;
+    private DatabusRelayConnectionStateMessage _stateReuse;
+    private ChunkedBodyReadableByteChannel _readChannel;
+    private boolean _requestFailed = false;
+    private boolean _responseFailed = false;
+    private boolean _done = false;
+    private boolean _responseOk = false;
+    private boolean _discarded = false;
+    private Runnable _deferredRequest;
+
+    StreamRequest(String sourcesSubsList, DbusKeyCompositeFilter filter, int fetchSize,
+                  CheckpointMult cp, boolean readFromLatestScn,
+                  DatabusRelayConnectionStateMessage stateReuse)
+    {
+      _sourcesSubsList = sourcesSubsList;
+      _filter = filter;
+      _fetchSize = fetchSize;
+      _checkpoint = cp;
+      _checkpointParam = checkpointParam(cp);
+      _readFromLatestScn = readFromLatestScn;
+      _stateReuse = stateReuse;
+      _prefetched = null == stateReuse;
+      _tracker = createTracker();
+    }
+
+    private StreamCheckpointTracker createTracker()
+    {
+      if (_streamPrefetchSpace <= 0 || _readFromLatestScn)
+      {
+        return null;
+      }
+      //all partitions must share the checkpoint as the puller advances it for all of them
+      Checkpoint sharedCp = null;
+      for (PhysicalPartition pPart: _checkpoint.getPartitions())
+      {
+        Checkpoint cp = _checkpoint.getCheckpoint(pPart);
+        if (null == cp || (null != sharedCp && sharedCp != cp))
+        {
+          return null;
+        }
+        sharedCp = cp;
+      }
+      if (null == sharedCp || DbusClientMode.ONLINE_CONSUMPTION != sharedCp.getConsumptionMode())
+      {
+        return null;
+      }
+      return new StreamCheckpointTracker(sharedCp.clone(), _eventByteOrder);
+    }
+
+    boolean isPrefetch()
+    {
+      return _prefetched;
+    }
+
+    StreamCheckpointTracker getTracker()
+    {
+      return _tracker;
+    }
+
+    /**
+     * Checks if the puller asks for the same events that this request was sent for. The free buffer
+     * space of the puller is not checked: the prefetch was sized from the space left after the
+     * previous response and the buffer only gains space as the dispatcher consumes it.
+     */
+    boolean matches(String sourcesSubsList, DbusKeyCompositeFilter filter, CheckpointMult cp)
+    {
+      return !_enableReadFromLatestSCN && sameFilter(filter) &&
+             _sourcesSubsList.equals(sourcesSubsList) && _checkpointParam.equals(checkpointParam(cp));
+    }
+
+    /** Compares the filters by what is sent to the relay as the puller may rebuild its filter */
+    private boolean sameFilter(DbusKeyCompositeFilter filter)
+    {
+      if (_filter == filter)
+      {
+        return true;
+      }
+      try
+      {
+        String param = filtersParam(_filter);
+        String otherParam = filtersParam(filter);
+        return null == param ? null == otherParam : param.equals(otherParam);
+      }
+      catch (IOException e)
+      {
+        return false;
+      }
+      catch (RuntimeException e)
+      {
+        return false;
+      }
+    }
+
+    /**
+     * Hands the prefetched response to the puller
+     * @return true if the response is already over and the next request can be sent
+     */
+    boolean adopt(DatabusRelayConnectionStateMessage stateReuse)
+    {
+      synchronized (NettyHttpDatabusRelayConnection.this)
+      {
+        _stateReuse = stateReuse;
+        if (_requestFailed)
+        {
+          _stateReuse.switchToStreamRequestError();
+          _callback.enqueueMessage(_stateReuse);
+          return false;
+        }
+        if (_responseFailed)
+        {
+          _stateReuse.switchToStreamResponseError();
+          _callback.enqueueMessage(_stateReuse);
+          return false;
+        }
+        if (null != _readChannel)
+        {
+          _stateReuse.switchToStreamSuccess(_readChannel);
+          _callback.enqueueMessage(_stateReuse);
+        }
+        return _done;
+      }
+    }
+
+    /**
+     * Drops the prefetched request
+     * @return true if the response is not over yet and the deferred request has been saved
+     */
+    boolean discard(Runnable deferredRequest)
+    {
+      synchronized (NettyHttpDatabusRelayConnection.this)
+      {
+        _discarded = true;
+        if (_done)
+        {
+          return false;
+        }
+        _deferredRequest = deferredRequest;
+        return true;
+      }
+    }
+
+    void onResponseStarted(ChunkedBodyReadableByteChannel readChannel)
+    {
+      synchronized (NettyHttpDatabusRelayConnection.this)
+      {
+        if (null != _stateReuse)
+        {
+          _stateReuse.switchToStreamSuccess(readChannel);
+          _callback.enqueueMessage(_stateReuse);
+        }
+        else
+        {
+          _readChannel = readChannel;
+        }
+      }
+    }
+
+    void onRequestFailed(Throwable cause)
+    {
+      LOG.info("prefetched /stream request failure: " + cause);
+      fail(true, false);
+    }
+
+    /**
+     * @param readChannelPassed     if the response body has already been handed out
+     */
+    void onResponseFailed(boolean readChannelPassed)
+    {
+      fail(false, readChannelPassed);
+    }
+
+    private void fail(boolean requestFailure, boolean readChannelPassed)
+    {
+      Runnable deferredRequest = null;
+      synchronized (NettyHttpDatabusRelayConnection.this)
+      {
+        if (_done)
+        {
+          return;
+        }
+        _done = true;
+        if (_discarded)
+        {
+          deferredRequest = _deferredRequest;
+        }
+        else if (null == _stateReuse)
+        {
+          _requestFailed = requestFailure;
+          _responseFailed = !requestFailure;
+        }
+        else if (!readChannelPassed)
+        {
+          if (requestFailure)
+          {
+            _stateReuse.switchToStreamRequestError();
+          }
+          else
+          {
+            _stateReuse.switchToStreamResponseError();
+          }
+          _callback.enqueueMessage(_stateReuse);
+        }
+      }
+      if (null != deferredRequest)
+      {
+        deferredRequest.run();
+      }
+    }
+
+    /**
+     * Called once the response has been received; sends the next request if the puller owns this
+     * one.
+     * @param ok      if the response carried no server error
+     */
+    void onResponseDone(boolean ok)
+    {
+      Runnable deferredRequest = null;
+      boolean owned;
+      synchronized (NettyHttpDatabusRelayConnection.this)
+      {
+        if (_done)
+        {
+          return;
+        }
+        _done = true;
+        _responseOk = ok;
+        owned = null != _stateReuse;
+        if (_discarded)
+        {
+          deferredRequest = _deferredRequest;
+        }
+      }
+      if (null != deferredRequest)
+      {
+        deferredRequest.run();
+      }
+      else if (owned)
+      {
+        sendPrefetch(this);
+      }
+    }
+  }
 
   private void connect(State connectState)
   {
@@ -536,6 +1011,33 @@ public class NettyHttpDatabusRelayConnection
     }
   }
 
+  /** Callback for prefetched /stream request result */
+  private class PrefetchRequestResultListener implements SendRequestResultListener
+  {
+    private final StreamRequest _request;
+
+    public PrefetchRequestResultListener(StreamRequest request)
+    {
+      _request = request;
+    }
+
+    @Override
+    public void onSendRequestSuccess(HttpRequest req)
+    {
+    }
+
+    @Override
+    public void onSendRequestFailure(HttpRequest req, Throwable cause)
+    {
+      if (shouldIgnoreWriteTimeoutException(cause))
+      {
+        LOG.error("got RequestFailure because of WriteTimeoutException");
+        return;
+      }
+      _request.onRequestFailed(cause);
+    }
+  }
+
   @Override
   public int getMaxEventVersion()
   {
@@ -814,6 +1316,8 @@ class StreamHttpResponseProcessor extends BaseHttpResponseProcessor
 
   private final DatabusStreamConnectionStateMessage _stateReuse;
   private final ActorMessageQueue _callback;
+  private final NettyHttpDatabusRelayConnection.StreamRequest _request;
+  private final StreamCheckpointTracker _tracker;
 
   /**
    * Constructor
@@ -829,10 +1333,32 @@ class StreamHttpResponseProcessor extends BaseHttpResponseProcessor
                                      ActorMessageQueue callback,
                                      DatabusStreamConnectionStateMessage stateReuse,
                                      ExtendedReadTimeoutHandler readTimeOutHandler)
+  {
+    this(parent, callback, stateReuse, readTimeOutHandler, null);
+  }
+
+  /**
+   * Constructor
+   * @param request               the relay /stream request of the response; null if none. The
+   *                              response of a prefetched request is passed to the request
+   *                              instead of the callback.
+   */
+  StreamHttpResponseProcessor(AbstractNettyHttpConnection parent,
+                              ActorMessageQueue callback,
+                              DatabusStreamConnectionStateMessage stateReuse,
+                              ExtendedReadTimeoutHandler readTimeOutHandler,
+                              NettyHttpDatabusRelayConnection.StreamRequest request)
   {
     super(parent, readTimeOutHandler);
     _stateReuse = stateReuse;
     _callback = callback;
+    _request = request;
+    _tracker = null != request ? request.getTracker() : null;
+  }
+
+  private boolean isPrefetch()
+  {
+    return null != _request && _request.isPrefetch();
   }
 
   @Override
@@ -840,6 +1366,10 @@ class StreamHttpResponseProcessor extends BaseHttpResponseProcessor
   {
     super.finishResponse();
     if (LOG.isTraceEnabled()) LOG.trace("finished response for /stream");
+    if (null != _request)
+    {
+      _request.onResponseDone(null == _serverErrorClass && !_errorHandled);
+    }
   }
 
   @Override
@@ -849,11 +1379,22 @@ class StreamHttpResponseProcessor extends BaseHttpResponseProcessor
     {
       if (LOG.isTraceEnabled()) LOG.trace("started response for /stream");
       _decorated = new ChunkedBodyReadableByteChannel();
+      if (null != _tracker && response.getContent().readable())
+      {
+        _tracker.addBytes(response.getContent());
+      }
       super.startResponse(response);
       if (!_errorHandled)
       {
-        _stateReuse.switchToStreamSuccess(_decorated);
-        _callback.enqueueMessage(_stateReuse);
+        if (isPrefetch())
+        {
+          _request.onResponseStarted(_decorated);
+        }
+        else
+        {
+          _stateReuse.switchToStreamSuccess(_decorated);
+          _callback.enqueueMessage(_stateReuse);
+        }
       }
     }
     catch (Exception e)
@@ -861,17 +1402,39 @@ class StreamHttpResponseProcessor extends BaseHttpResponseProcessor
       LOG.error("Error reading events from server", e);
       if (!_errorHandled)
       {
-        _stateReuse.switchToStreamResponseError();
-        _callback.enqueueMessage(_stateReuse);
+        if (isPrefetch())
+        {
+          _request.onResponseFailed(false);
+        }
+        else
+        {
+          _stateReuse.switchToStreamResponseError();
+          _callback.enqueueMessage(_stateReuse);
+        }
       }
     }
   }
 
+  @Override
+  public void addChunk(HttpChunk chunk) throws Exception
+  {
+    if (null != _tracker)
+    {
+      _tracker.addBytes(chunk.getContent());
+    }
+    super.addChunk(chunk);
+  }
+
   @Override
   public void handleChannelException(Throwable cause)
   {
     DbusPrettyLogUtils.logExceptionAtError("Exception during /stream response: ", cause, LOG);
-    if ((_responseStatus != ResponseStatus.CHUNKS_SEEN) &&
+    if (isPrefetch())
+    {
+      _request.onResponseFailed((_responseStatus == ResponseStatus.CHUNKS_SEEN) ||
+                                (_responseStatus == ResponseStatus.CHUNKS_FINISHED));
+    }
+    else if ((_responseStatus != ResponseStatus.CHUNKS_SEEN) &&
         (_responseStatus != ResponseStatus.CHUNKS_FINISHED))
     {
       if (LOG.isDebugEnabled())
@@ -0,0 +1,544 @@
+package com.linkedin.databus.client.netty;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.timeout.ReadTimeoutHandler;
+import org.jboss.netty.util.Timer;
+
+import com.linkedin.databus.client.ChunkedBodyReadableByteChannel;
+import com.linkedin.databus.client.DatabusRelayConnectionStateMessage;
+import com.linkedin.databus.client.DatabusSourcesConnection;
+import com.linkedin.databus.client.pub.ServerInfo;
+import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.CheckpointMult;
+import com.linkedin.databus.core.async.ActorMessageQueue;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+import com.linkedin.databus.core.util.Range;
+import com.linkedin.databus2.core.container.DatabusHttpHeaders;
+import com.linkedin.databus2.core.container.monitoring.mbean.ContainerStatisticsCollector;
+import com.linkedin.databus2.core.container.request.BinaryProtocol;
+import com.linkedin.databus2.core.container.request.ErrorResponse;
+import com.linkedin.databus2.core.container.request.StreamEventsRequest;
+import com.linkedin.databus2.core.container.request.StreamEventsResponse;
+import com.linkedin.databus2.core.container.request.codec.SimpleBinaryDatabusRequestEncoder;
+import com.linkedin.databus2.core.filter.DbusKeyCompositeFilter;
+import com.linkedin.databus2.core.filter.DbusKeyFilter;
+
+/**
+ * A relay connection which receives events pushed by the relay over its TCP interface (see
+ * {@link StreamEventsRequest}) instead of polling for them with HTTP /stream requests. The
+ * /sources and /register requests still go over HTTP.
+ *
+ * <p>The first {@link #requestStream} call subscribes with the same parameters as the HTTP
+ * /stream request. From then on, the relay pushes windows as they are committed and every
+ * requestStream call returns the events received since the previous call, or waits for the next
+ * pushed frame. The free space in the client buffer is converted to credit for the relay, so the
+ * relay never pushes more than the puller can accept. Any change in the subscription, a checkpoint
+ * which does not continue the pushed stream, as well as any error, start a new subscription from
+ * the checkpoint passed by the puller. Heartbeats from the relay only keep the connection alive.
+ */
+public class NettyTcpDatabusRelayConnection extends NettyHttpDatabusRelayConnection
+{
+  public static final String MODULE = NettyTcpDatabusRelayConnection.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  private final ActorMessageQueue _pushCallback;
+  private final ClientBootstrap _pushBootstrap;
+  private final InetSocketAddress _pushAddress;
+  private final ChannelGroup _pushChannelGroup;
+
+  // all fields below are guarded by this
+  private Channel _pushChannel;
+  private String _subscriptionKey;
+  private long _outstandingCredit;
+  private final List<ChannelBuffer> _pendingEvents = new ArrayList<ChannelBuffer>();
+  private int _pendingBytes;
+  private int _pendingEventSize;
+  private ErrorResponse _pendingError;
+  private DatabusRelayConnectionStateMessage _waitingState;
+  private int _waitingFreeBufferSpace;
+  private long _waitingRequestTs = -1;
+  // the checkpoints of the previous request and whether events were delivered for it
+  private Map<PhysicalPartition, Checkpoint> _lastCheckpoints;
+  private boolean _eventsDelivered;
+
+  public NettyTcpDatabusRelayConnection(ServerInfo relay,
+                                        int pushPort,
+                                        ActorMessageQueue callback,
+                                        ChannelFactory channelFactory,
+                                        ContainerStatisticsCollector containerStatsCollector,
+                                        RemoteExceptionHandler remoteExceptionHandler,
+                                        final Timer timeoutTimer,
+                                        long writeTimeoutMs,
+                                        final long readTimeoutMs,
+                                        int protocolVersion,
+                                        int maxEventVersion,
+                                        ChannelGroup channelGroup)
+  {
+    super(relay, callback, channelFactory, containerStatsCollector, remoteExceptionHandler,
+          timeoutTimer, writeTimeoutMs, readTimeoutMs, protocolVersion, maxEventVersion,
+          channelGroup);
+    _pushCallback = callback;
+    _pushAddress = new InetSocketAddress(relay.getAddress().getHostName(), pushPort);
+    _pushChannelGroup = channelGroup;
+
+    _pushBootstrap = new ClientBootstrap(channelFactory);
+    _pushBootstrap.setOption("connectTimeoutMillis", DatabusSourcesConnection.CONNECT_TIMEOUT_MS);
+    _pushBootstrap.setOption("bufferFactory",
+                             HeapChannelBufferFactory.getInstance(BinaryProtocol.BYTE_ORDER));
+    _pushBootstrap.setPipelineFactory(new ChannelPipelineFactory()
+    {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception
+      {
+        ChannelPipeline pipeline = Channels.pipeline();
+        //the relay sends heartbeats, so a silent connection means a dead relay
+        pipeline.addLast("read timeout",
+                         new ReadTimeoutHandler(timeoutTimer, readTimeoutMs, TimeUnit.MILLISECONDS));
+        pipeline.addLast("decoder", new PushFrameDecoder());
+        pipeline.addLast("encoder", new SimpleBinaryDatabusRequestEncoder(null));
+        pipeline.addLast("handler", new PushHandler());
+        return pipeline;
+      }
+    });
+  }
+
+  @Override
+  public void requestSources(DatabusRelayConnectionStateMessage stateReuse)
+  {
+    //the puller starts over; so does the push subscription
+    resetSubscription();
+    super.requestSources(stateReuse);
+  }
+
+  @Override
+  public void requestStream(String sourcesSubsList, DbusKeyCompositeFilter filter,
+                            int freeBufferSpace, CheckpointMult cp, Range keyRange,
+                            DatabusRelayConnectionStateMessage stateReuse)
+  {
+    Map<String, String> params;
+    try
+    {
+      params = createStreamParams(sourcesSubsList, filter, freeBufferSpace, cp);
+    }
+    catch (IOException e)
+    {
+      LOG.error("unable to serialize filters: " + filter, e);
+      stateReuse.switchToStreamRequestError();
+      _pushCallback.enqueueMessage(stateReuse);
+      return;
+    }
+
+    Channel oldChannel = null;
+    synchronized (this)
+    {
+      _waitingState = stateReuse;
+      _waitingFreeBufferSpace = freeBufferSpace;
+      _waitingRequestTs = System.currentTimeMillis();
+
+      //the checkpoint changes with every request, so it is checked separately
+      String subscriptionKey = sourcesSubsList + "|" + params.get("filters");
+      if (null == _pushChannel || !subscriptionKey.equals(_subscriptionKey) || !continuesStream(cp))
+      {
+        oldChannel = subscribe(subscriptionKey, params, freeBufferSpace);
+        saveCheckpoints(cp);
+      }
+      else
+      {
+        saveCheckpoints(cp);
+
+        //grant the free space not already taken by undelivered events
+        long desiredCredit = (long)freeBufferSpace - _pendingBytes;
+        if (desiredCredit > _outstandingCredit && _pushChannel.isConnected())
+        {
+          _pushChannel.write(StreamEventsRequest.createCredit((int)(desiredCredit - _outstandingCredit)));
+          _outstandingCredit = desiredCredit;
+        }
+
+        if (hasPendingData())
+        {
+          deliver();
+        }
+      }
+    }
+
+    //closed without holding the lock: the I/O thread of the channel may be waiting for it
+    if (null != oldChannel) oldChannel.close();
+  }
+
+  /**
+   * Checks if the checkpoint of a request continues the pushed stream. The puller checkpoint
+   * follows the events it reads, so it has to move forward if events were delivered for the
+   * previous request and has to stay the same otherwise. Anything else, e.g. the puller going back
+   * to an earlier checkpoint after an error, needs a new subscription from the new checkpoint.
+   */
+  private boolean continuesStream(CheckpointMult cp)
+  {
+    if (null == _lastCheckpoints || !_lastCheckpoints.keySet().equals(cp.getPartitions())) return false;
+    boolean moved = false;
+    for (Map.Entry<PhysicalPartition, Checkpoint> entry: _lastCheckpoints.entrySet())
+    {
+      Checkpoint lastCp = entry.getValue();
+      Checkpoint newCp = cp.getCheckpoint(entry.getKey());
+      if (newCp.equals(lastCp)) continue;
+      if (newCp.getConsumptionMode() != lastCp.getConsumptionMode() || isBefore(newCp, lastCp))
+      {
+        return false;
+      }
+      moved = true;
+    }
+    return moved == _eventsDelivered;
+  }
+
+  /** Checks if a checkpoint is at an earlier position in the event stream than another one */
+  private static boolean isBefore(Checkpoint cp, Checkpoint otherCp)
+  {
+    if (cp.getWindowScn() != otherCp.getWindowScn()) return cp.getWindowScn() < otherCp.getWindowScn();
+    //a fully consumed window is after any offset in it
+    if (!otherCp.isPartialWindow()) return cp.isPartialWindow();
+    return cp.isPartialWindow() && cp.getWindowOffset() < otherCp.getWindowOffset();
+  }
+
+  private void saveCheckpoints(CheckpointMult cp)
+  {
+    _lastCheckpoints = new HashMap<PhysicalPartition, Checkpoint>();
+    for (PhysicalPartition ppart: cp.getPartitions())
+    {
+      _lastCheckpoints.put(ppart, cp.getCheckpoint(ppart).clone());
+    }
+    _eventsDelivered = false;
+  }
+
+  private Map<String, String> createStreamParams(String sourcesSubsList,
+                                                 DbusKeyCompositeFilter filter,
+                                                 int freeBufferSpace, CheckpointMult cp)
+          throws IOException
+  {
+    // same parameters as the /stream request in NettyHttpDatabusRelayConnection#formRequest
+    Map<String, String> params = new HashMap<String, String>();
+    boolean subsMode = getProtocolVersion() >= 3;
+    params.put(DatabusHttpHeaders.PROTOCOL_VERSION_PARAM, Integer.toString(getProtocolVersion()));
+    params.put(subsMode ? "subs" : "sources", sourcesSubsList);
+    params.put("streamFromLatestScn", Boolean.toString(isEnableReadFromLatestSCN()));
+    params.put(subsMode ? "checkPointMult" : "checkPoint",
+               subsMode ? cp.toString()
+                        : cp.getCheckpoint(PhysicalPartition.ANY_PHYSICAL_PARTITION).toString());
+    params.put("output", "binary");
+    params.put("size", Integer.toString(freeBufferSpace));
+    if (null != filter)
+    {
+      Map<Long, DbusKeyFilter> fMap = filter.getFilterMap();
+      if (null != fMap && fMap.size() > 0)
+      {
+        params.put("filters", new ObjectMapper().writeValueAsString(fMap));
+      }
+    }
+    if (_maxEventVersion > 0)
+    {
+      params.put(DatabusHttpHeaders.MAX_EVENT_VERSION, Integer.toString(_maxEventVersion));
+    }
+    return params;
+  }
+
+  /**
+   * Starts a new subscription
+   * @return the channel of the previous subscription which the caller has to close
+   */
+  private Channel subscribe(String subscriptionKey, final Map<String, String> params,
+                            final int credit)
+  {
+    Channel oldChannel = detachSubscription();
+    _subscriptionKey = subscriptionKey;
+    _outstandingCredit = credit;
+
+    LOG.info("subscribing for pushed events from " + _pushAddress);
+    ChannelFuture connectFuture = _pushBootstrap.connect(_pushAddress);
+    final Channel channel = connectFuture.getChannel();
+    _pushChannel = channel;
+    connectFuture.addListener(new ChannelFutureListener()
+    {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception
+      {
+        if (!future.isSuccess())
+        {
+          onPushError(channel, future.getCause());
+          return;
+        }
+        if (null != _pushChannelGroup) _pushChannelGroup.add(channel);
+        channel.write(StreamEventsRequest.createSubscribe(params, credit));
+      }
+    });
+    return oldChannel;
+  }
+
+  private void resetSubscription()
+  {
+    Channel channel = detachSubscription();
+    if (null != channel) channel.close();
+  }
+
+  /**
+   * Clears the subscription state
+   * @return the channel of the subscription which the caller has to close
+   */
+  private synchronized Channel detachSubscription()
+  {
+    Channel channel = _pushChannel;
+    _pushChannel = null;
+    _subscriptionKey = null;
+    _outstandingCredit = 0;
+    _pendingEvents.clear();
+    _pendingBytes = 0;
+    _pendingEventSize = 0;
+    _pendingError = null;
+    _lastCheckpoints = null;
+    _eventsDelivered = false;
+    return channel;
+  }
+
+  private boolean hasPendingData()
+  {
+    return _pendingBytes > 0 || _pendingEventSize > 0 || null != _pendingError;
+  }
+
+  synchronized void onPushFrame(Channel channel, Object frame)
+  {
+    if (null == channel || channel != _pushChannel) return;
+
+    boolean heartbeat = false;
+    if (frame instanceof StreamEventsResponse)
+    {
+      StreamEventsResponse response = (StreamEventsResponse)frame;
+      int eventsSize = response.getEventsSize();
+      _outstandingCredit -= eventsSize;
+      if (eventsSize > 0)
+      {
+        _pendingEvents.add(response.getEvents());
+        _pendingBytes += eventsSize;
+        _pendingEventSize = 0;
+      }
+      else if (response.getPendingEventSize() > 0)
+      {
+        _pendingEventSize = response.getPendingEventSize();
+      }
+      else
+      {
+        heartbeat = true;
+      }
+    }
+    else if (frame instanceof ErrorResponse)
+    {
+      _pendingError = (ErrorResponse)frame;
+      LOG.warn("relay terminated push subscription: " + _pendingError.getCauseClassName() + ": " +
+               _pendingError.getCauseMessage());
+    }
+
+    //heartbeats only keep the connection alive; the outstanding request waits for data
+    if (null != _waitingState && !heartbeat)
+    {
+      deliver();
+    }
+  }
+
+  void onPushError(Channel channel, Throwable cause)
+  {
+    DatabusRelayConnectionStateMessage waitingState;
+    synchronized (this)
+    {
+      if (null == channel || channel != _pushChannel) return;
+      LOG.warn("push connection to " + _pushAddress + " failed: " + cause);
+      //undelivered events are dropped; the next subscription starts from the puller checkpoint
+      waitingState = _waitingState;
+      _waitingState = null;
+      detachSubscription();
+    }
+    channel.close();
+    if (null != waitingState)
+    {
+      waitingState.switchToStreamResponseError();
+      _pushCallback.enqueueMessage(waitingState);
+    }
+  }
+
+  /** Hands the pushed data to the waiting puller as if it were the response of a /stream call */
+  private void deliver()
+  {
+    DatabusRelayConnectionStateMessage stateReuse = _waitingState;
+    _waitingState = null;
+
+    HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    int framesNum = 0;
+    int contentSize = 0;
+    while (framesNum < _pendingEvents.size() &&
+           contentSize + _pendingEvents.get(framesNum).readableBytes() <= _waitingFreeBufferSpace)
+    {
+      contentSize += _pendingEvents.get(framesNum).readableBytes();
+      ++framesNum;
+    }
+    if (contentSize > 0)
+    {
+      ChannelBuffer content = ChannelBuffers.buffer(contentSize);
+      for (int i = 0; i < framesNum; ++i)
+      {
+        content.writeBytes(_pendingEvents.remove(0));
+      }
+      response.setContent(content);
+      _pendingBytes -= contentSize;
+      _eventsDelivered = true;
+    }
+    response.setHeader(HttpHeaders.Names.CONTENT_LENGTH, Integer.toString(contentSize));
+
+    if (0 == contentSize)
+    {
+      if (null != _pendingError)
+      {
+        response.setHeader(DatabusHttpHeaders.DATABUS_ERROR_CAUSE_CLASS_HEADER,
+                           _pendingError.getCauseClassName());
+        if (null != _pendingError.getCauseMessage())
+        {
+          response.setHeader(DatabusHttpHeaders.DATABUS_ERROR_CAUSE_MESSAGE_HEADER,
+                             _pendingError.getCauseMessage());
+        }
+        //the relay has closed the subscription; the next request will start a new one
+        _subscriptionKey = null;
+        _pendingError = null;
+      }
+      else if (_pendingEventSize > 0)
+      {
+        response.setHeader(DatabusHttpHeaders.DATABUS_PENDING_EVENT_SIZE,
+                           Integer.toString(_pendingEventSize));
+        _pendingEventSize = 0;
+      }
+    }
+
+    ChunkedBodyReadableByteChannel readChannel = new ChunkedBodyReadableByteChannel();
+    try
+    {
+      readChannel.startResponse(response);
+      stateReuse.switchToStreamSuccess(readChannel);
+    }
+    catch (Exception e)
+    {
+      LOG.error("unable to deliver pushed events", e);
+      stateReuse.switchToStreamResponseError();
+    }
+    _pushCallback.enqueueMessage(stateReuse);
+  }
+
+  @Override
+  public void close()
+  {
+    resetSubscription();
+    super.close();
+  }
+
+  /** Pushed data is delivered up to the free buffer space of the request */
+  @Override
+  public synchronized int getLastStreamFetchSize()
+  {
+    return _waitingFreeBufferSpace;
+  }
+
+  @Override
+  public synchronized long getLastStreamRequestTs()
+  {
+    return _waitingRequestTs;
+  }
+
+  synchronized long getOutstandingCredit()
+  {
+    return _outstandingCredit;
+  }
+
+  /** Splits the incoming byte stream into {@link StreamEventsResponse} and {@link ErrorResponse} */
+  static class PushFrameDecoder extends FrameDecoder
+  {
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer)
+              throws Exception
+    {
+      if (!buffer.readable()) return null;
+      int startIdx = buffer.readerIndex();
+      Object result = (BinaryProtocol.RESULT_OK == buffer.getByte(startIdx)) ?
+          StreamEventsResponse.decodeFromChannelBuffer(buffer) :
+          ErrorResponse.decodeFromChannelBuffer(buffer);
+      if (null == result) buffer.readerIndex(startIdx);
+      return result;
+    }
+  }
+
+  private class PushHandler extends SimpleChannelUpstreamHandler
+  {
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception
+    {
+      onPushFrame(ctx.getChannel(), e.getMessage());
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception
+    {
+      onPushError(ctx.getChannel(), e.getCause());
+      ctx.getChannel().close();
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
+    {
+      onPushError(ctx.getChannel(), new ClosedChannelException());
+      super.channelClosed(ctx, e);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.linkedin.databus.client.netty;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.DbusEventFactory;
+
+/**
+ * Follows the events of a /stream response as its chunks arrive from the network and advances a
+ * copy of the request checkpoint the same way the puller advances its checkpoint when it reads
+ * the events into the client buffer. Only the event headers are looked at; the events themselves
+ * are validated by the buffer.
+ *
+ * <p>Used by the netty thread only.
+ */
+class StreamCheckpointTracker
+{
+  /** Enough header bytes to read the size, the source id, the sequence and the timestamp of both
+   * V1 and V2 events; no valid event is shorter than that. */
+  static final int HEADER_PREFIX_LEN = 45;
+
+  private final Checkpoint _checkpoint;
+  private final ByteBuffer _header;
+  private int _bytesToSkip = 0;
+  private int _numEvents = 0;
+  private long _numBytes = 0;
+  private boolean _lastEventEndOfWindow = false;
+  private boolean _valid = true;
+
+  /**
+   * @param checkpoint      the checkpoint of the request; the tracker takes ownership
+   * @param byteOrder       the byte order of the events
+   */
+  StreamCheckpointTracker(Checkpoint checkpoint, ByteOrder byteOrder)
+  {
+    _checkpoint = checkpoint;
+    _header = ByteBuffer.allocate(HEADER_PREFIX_LEN).order(byteOrder);
+  }
+
+  /** Processes the bytes of a chunk without changing its reader index */
+  void addBytes(ChannelBuffer buffer)
+  {
+    int idx = buffer.readerIndex();
+    int end = buffer.writerIndex();
+    while (_valid && idx < end)
+    {
+      if (_bytesToSkip > 0)
+      {
+        int n = Math.min(_bytesToSkip, end - idx);
+        _bytesToSkip -= n;
+        idx += n;
+      }
+      else
+      {
+        int n = Math.min(_header.remaining(), end - idx);
+        buffer.getBytes(idx, _header.array(), _header.arrayOffset() + _header.position(), n);
+        _header.position(_header.position() + n);
+        idx += n;
+        if (!_header.hasRemaining())
+        {
+          processHeader();
+        }
+      }
+    }
+  }
+
+  private void processHeader()
+  {
+    byte version = _header.get(0);
+    if (DbusEventFactory.DBUS_EVENT_V1 != version && DbusEventFactory.DBUS_EVENT_V2 != version)
+    {
+      //most likely a serialized remote exception
+      _valid = false;
+      return;
+    }
+
+    DbusEvent e = DbusEventFactory.createReadOnlyDbusEventFromBufferUnchecked(_header, 0);
+    int size = e.size();
+    boolean endOfWindow = e.isEndOfPeriodMarker();
+    if (size < HEADER_PREFIX_LEN || (e.isControlMessage() && !endOfWindow))
+    {
+      //the puller handles other control messages in ways we do not try to predict
+      _valid = false;
+      return;
+    }
+
+    _checkpoint.onEvent(e);
+    ++_numEvents;
+    _numBytes += size;
+    _lastEventEndOfWindow = endOfWindow;
+    _bytesToSkip = size - HEADER_PREFIX_LEN;
+    _header.clear();
+  }
+
+  /**
+   * Checks if the bytes seen so far end right after an end-of-window event, i.e. the response
+   * holds only complete windows.
+   */
+  boolean isAtEndOfWindow()
+  {
+    return _valid && _numEvents > 0 && _lastEventEndOfWindow && 0 == _bytesToSkip &&
+           0 == _header.position();
+  }
+
+  /** The checkpoint after all events seen so far; must be called once, at the end of the response */
+  Checkpoint finish()
+  {
+    if (_numEvents > 0)
+    {
+      _checkpoint.checkPoint();
+    }
+    return _checkpoint;
+  }
+
+  int getNumEvents()
+  {
+    return _numEvents;
+  }
+
+  long getNumBytes()
+  {
+    return _numBytes;
+  }
+}
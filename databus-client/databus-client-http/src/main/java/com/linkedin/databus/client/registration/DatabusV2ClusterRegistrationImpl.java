@@ -18,17 +18,26 @@ package com.linkedin.databus.client.registration;
 *
 */
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanServer;
 
@@ -70,6 +79,7 @@ import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
 import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollectorMBean;
 import com.linkedin.databus.core.monitoring.mbean.StatsCollectors;
 import com.linkedin.databus.core.util.InvalidConfigException;
+import com.linkedin.databus.core.util.NamedThreadFactory;
 import com.linkedin.databus2.core.DatabusException;
 import com.linkedin.databus2.core.filter.DbusKeyCompositeFilterConfig;
 
@@ -138,7 +148,7 @@ public class DatabusV2ClusterRegistrationImpl implements
 
   /** Child Registrations container **/
   public final Map<DbusPartitionInfo, DatabusRegistration> regMap =
-      new HashMap<DbusPartitionInfo, DatabusRegistration>();
+      new ConcurrentHashMap<DbusPartitionInfo, DatabusRegistration>();
 
   /** Checkpoint Persisitence Provider Config **/
   private final ClusterCheckpointPersistenceProvider.StaticConfig _ckptPersistenceProviderConfig;
@@ -191,6 +201,13 @@ public class DatabusV2ClusterRegistrationImpl implements
   private DatabusCluster _cluster;
   private DatabusClusterMember _clusterMember;
 
+  /**
+   * Bounded pool on which partitions are activated. The expensive parts of an activation
+   * (checkpoint fetch, buffer allocation, connection start) run on it without holding the
+   * registration lock, so a rebalance moving many partitions is not serialized.
+   */
+  private ThreadPoolExecutor _partitionActivator;
+
   public DatabusV2ClusterRegistrationImpl(RegistrationId id,
                       DatabusHttpClientImpl client,
                       ClusterCheckpointPersistenceProvider.StaticConfig ckptPersistenceProviderConfig,
@@ -208,7 +225,7 @@ public class DatabusV2ClusterRegistrationImpl implements
     _consumerFactory = consumerFactory;
     _serverSideFilterFactory = filterFactory;
     _partitionListener = partitionListener;
-    _partitionSet = new HashSet<DbusPartitionInfo>();
+    _partitionSet = Collections.newSetFromMap(new ConcurrentHashMap<DbusPartitionInfo, Boolean>());
     _sources = new ArrayList<String>();
     _clusterInfo = clusterInfo;
     _clientClusterConfig = client.getClientStaticConfig().getClientCluster(clusterInfo.getName());
@@ -227,7 +244,22 @@ public class DatabusV2ClusterRegistrationImpl implements
   }
 
   @Override
-  public synchronized boolean start()
+  public boolean start()
+      throws IllegalStateException, DatabusClientException
+  {
+    if (! joinCluster())
+      return false;
+
+    // Partitions are activated outside of the registration lock as the activation pool needs it
+    activatePartitions();
+    return true;
+  }
+
+  /**
+   * Creates and joins the cluster.
+   * @return false if the registration has already been started
+   */
+  private synchronized boolean joinCluster()
       throws IllegalStateException, DatabusClientException
   {
     if (_state == RegistrationState.INIT || _state == RegistrationState.DEREGISTERED)
@@ -274,6 +306,7 @@ public class DatabusV2ClusterRegistrationImpl implements
     }
 
     initializeStatsCollectors();
+    _partitionActivator = createPartitionActivator();
 
     _log.info("Dabatus cluster object created : " + _cluster + " with id :" + id);
 
@@ -286,8 +319,6 @@ public class DatabusV2ClusterRegistrationImpl implements
       _log.fatal("Unable to join the cluster "  + _clusterInfo);
       throw new DatabusClientException("Unable to join the cluster :" + _clusterInfo);
     }
-    _state =RegistrationState.STARTED;
-    activatePartitions();
     return true;
   }
 
@@ -324,6 +355,8 @@ public class DatabusV2ClusterRegistrationImpl implements
             _cluster.shutdown();
       ClusterCheckpointPersistenceProvider.close(_cluster.getClusterName());
         }
+    if (null != _partitionActivator)
+      _partitionActivator.shutdown();
     _state = RegistrationState.SHUTDOWN;
   }
 
@@ -630,80 +663,166 @@ public class DatabusV2ClusterRegistrationImpl implements
   }
 
   /**
-   * Callback for ClusterManage when a partition getting added
+   * Callback for ClusterManage when a partition getting added. Blocks until the partition has
+   * been activated but does not hold the registration lock meanwhile, so that concurrent
+   * ownership transitions can proceed in parallel.
    * @param partition
    * @throws IllegalStateException
    */
-  private synchronized void addPartition(DbusPartitionInfo partition)
+  private void addPartition(DbusPartitionInfo partition)
     throws IllegalStateException, DatabusClientException
   {
-    if(_state == RegistrationState.REGISTERED)
+    Future<Void> activation = null;
+
+    synchronized (this)
     {
-      _partitionSet.add(partition);
-    } else if ( _state.isRunning()) {
-      if ( ! _partitionSet.contains(partition))
+      if(_state == RegistrationState.REGISTERED)
       {
         _partitionSet.add(partition);
-        activateOnePartition(partition);
+      } else if ( _state.isRunning()) {
+        if ( _partitionSet.add(partition))
+        {
+          activation = submitActivation(partition);
+        } else {
+          _log.info("Partition (" + partition + ") already added !!");
+        }
       } else {
-        _log.info("Partition (" + partition + ") already added !!");
+        throw new IllegalStateException("Registration is not in correct state to add a partition !! State :" + _state);
       }
-    } else {
-      throw new IllegalStateException("Registration is not in correct state to add a partition !! State :" + _state);
     }
+
+    if (null != activation)
+      waitForActivation(partition, activation);
   }
 
   /**
-   * Callback to activate partitions when quorum is reached.
+   * Callback to activate partitions when quorum is reached. The partitions are activated
+   * concurrently on the activation pool; the call returns once all of them are done.
    *
    * @throws DatabusException
    */
-  private synchronized void activatePartitions()
+  private void activatePartitions()
     throws DatabusClientException
   {
-    _state = RegistrationState.STARTED;
+    Map<DbusPartitionInfo, Future<Void>> activations = new HashMap<DbusPartitionInfo, Future<Void>>();
 
-    for (DbusPartitionInfo p : _partitionSet)
-      activateOnePartition(p);
+    synchronized (this)
+    {
+      _state = RegistrationState.STARTED;
+
+      for (DbusPartitionInfo p : _partitionSet)
+        activations.put(p, submitActivation(p));
+    }
+
+    DatabusClientException error = null;
+    for (Entry<DbusPartitionInfo, Future<Void>> e : activations.entrySet())
+    {
+      try
+      {
+        waitForActivation(e.getKey(), e.getValue());
+      } catch (DatabusClientException ex) {
+        if (null == error)
+          error = ex;
+      }
+    }
+
+    if (null != error)
+      throw error;
+  }
+
+  private Future<Void> submitActivation(final DbusPartitionInfo partition)
+  {
+    return _partitionActivator.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws DatabusClientException
+      {
+        activateOnePartition(partition);
+        return null;
+      }
+    });
+  }
+
+  private void waitForActivation(DbusPartitionInfo partition, Future<Void> activation)
+    throws DatabusClientException
+  {
+    try
+    {
+      activation.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabusClientException("Interrupted while activating partition (" + partition + ")", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DatabusClientException)
+        throw (DatabusClientException)cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException)cause;
+      throw new DatabusClientException(cause);
+    }
+  }
+
+  protected ThreadPoolExecutor createPartitionActivator()
+  {
+    int numThreads = null != _clientClusterConfig ? _clientClusterConfig.getMaxParallelPartitionActivations()
+                                                  : ClusterRegistrationConfig.DEFAULT_MAX_PARALLEL_PARTITION_ACTIVATIONS;
+    String regId = null != _id ? _id.getId() : "unknownReg";
+    ThreadPoolExecutor activator =
+        new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+                               new LinkedBlockingQueue<Runnable>(),
+                               new NamedThreadFactory("PartitionActivator-" + regId, true));
+    activator.allowCoreThreadTimeOut(true);
+    return activator;
   }
 
   /**
-   * Callback to activate one partition that was added
+   * Callback to activate one partition that was added. Runs on the activation pool. The
+   * registration lock is only held while the consumer factories are called and while the child
+   * registration is published; the checkpoint fetch and the start of the child registration
+   * happen outside of it.
    * @param partition
    * @throws DatabusException
    */
-  private synchronized void activateOnePartition(DbusPartitionInfo partition)
+  private void activateOnePartition(DbusPartitionInfo partition)
     throws DatabusClientException
   {
     _log.info("Trying to activate partition :" + partition);
 
     try
     {
-      if ( regMap.containsKey(partition))
+      Collection<DatabusCombinedConsumer> consumers = null;
+      DbusKeyCompositeFilterConfig filterConfig = null;
+      RegistrationId id = null;
+
+      synchronized (this)
       {
-        _log.info("Partition (" + partition
-            + ") is already added and is currently in state : "
-            + regMap.get(partition).getState() + " skipping !!");
-        return;
-      }
+        if ( regMap.containsKey(partition))
+        {
+          _log.info("Partition (" + partition
+              + ") is already added and is currently in state : "
+              + regMap.get(partition).getState() + " skipping !!");
+          return;
+        }
 
-      // Call factories to get consumer callbacks and server-side filter config.
-      Collection<DatabusCombinedConsumer> consumers = _consumerFactory.createPartitionedConsumers(_clusterInfo, partition);
-      DbusKeyCompositeFilterConfig filterConfig = null;
+        // Call factories to get consumer callbacks and server-side filter config.
+        consumers = _consumerFactory.createPartitionedConsumers(_clusterInfo, partition);
 
-      if (_serverSideFilterFactory != null)
-        filterConfig = _serverSideFilterFactory.createServerSideFilter(_clusterInfo, partition);
+        if (_serverSideFilterFactory != null)
+          filterConfig = _serverSideFilterFactory.createServerSideFilter(_clusterInfo, partition);
 
 
-      if ( (null == consumers) || (consumers.isEmpty()))
-      {
-        _log.error("ConsumerFactory for cluster (" + _clusterInfo + ") returned null or empty consumers ");
-        throw new DatabusClientException("ConsumerFactory for cluster (" + _clusterInfo + ") returned null or empty consumers");
+        if ( (null == consumers) || (consumers.isEmpty()))
+        {
+          _log.error("ConsumerFactory for cluster (" + _clusterInfo + ") returned null or empty consumers ");
+          throw new DatabusClientException("ConsumerFactory for cluster (" + _clusterInfo + ") returned null or empty consumers");
+        }
+
+        id = new RegistrationId(_id + "-" + partition.getPartitionId());
       }
 
       // Create Registration
-      RegistrationId id = new RegistrationId(_id + "-" + partition.getPartitionId());
-      CheckpointPersistenceProvider ckptProvider = createCheckpointPersistenceProvider(partition);
+      CheckpointPersistenceProvider ckptProvider = prefetchCheckpoint(partition,
+                                                                      createCheckpointPersistenceProvider(partition));
 
       DatabusV2RegistrationImpl reg = createChildRegistration(id, _client, ckptProvider);
       reg.addDatabusConsumers(consumers);
@@ -712,16 +831,25 @@ public class DatabusV2ClusterRegistrationImpl implements
       srcs = _sources.toArray(srcs);
       reg.addSubscriptions(srcs);
 
-      regMap.put(partition,reg);
-      reg.onRegister();
+      synchronized (this)
+      {
+        if ( !_state.isRunning() || !_partitionSet.contains(partition) || regMap.containsKey(partition))
+        {
+          _log.info("Partition (" + partition + ") was dropped or activated concurrently. skipping !!");
+          return;
+        }
+
+        regMap.put(partition,reg);
+        reg.onRegister();
 
-      // Add Server-Side Filter
-      if ( null != filterConfig)
-        reg.withServerSideFilter(filterConfig);
+        // Add Server-Side Filter
+        if ( null != filterConfig)
+          reg.withServerSideFilter(filterConfig);
 
-      // Notify Listener
-      if (null != _partitionListener)
-        _partitionListener.onAddPartition(partition, reg);
+        // Notify Listener
+        if (null != _partitionListener)
+          _partitionListener.onAddPartition(partition, reg);
+      }
 
       // Start the registration
       try {
@@ -729,13 +857,39 @@ public class DatabusV2ClusterRegistrationImpl implements
       } catch (DatabusClientException e) {
         _log.error("Got exception while starting the registration for partition (" + partition + ")", e);
         throw e;
+      } catch (IllegalStateException e) {
+        if (regMap.get(partition) == reg)
+          throw e;
+        _log.info("Partition (" + partition + ") was dropped before it could be started");
+        return;
       }
 
-      //Add partition Specific metrics to cluster-merge
-      _relayEventStatsMerger.addStatsCollector(id.getId(), (DbusEventsStatisticsCollector)reg.getRelayEventStats());
-      _bootstrapEventStatsMerger.addStatsCollector(id.getId(), (DbusEventsStatisticsCollector)reg.getBootstrapEventStats());
-      _relayCallbackStatsMerger.addStatsCollector(id.getId(), (ConsumerCallbackStats)reg.getRelayCallbackStats());
-      _bootstrapCallbackStatsMerger.addStatsCollector(id.getId(), (ConsumerCallbackStats)reg.getBootstrapCallbackStats());
+      synchronized (this)
+      {
+        if (regMap.get(partition) != reg)
+        {
+          _log.info("Partition (" + partition + ") was dropped while being started");
+          return;
+        }
+
+        if ( ! _state.isRunning())
+        {
+          reg.shutdown();
+          return;
+        }
+
+        // Catch up with a pause or suspend of the cluster registration while the partition was starting
+        if (_state == RegistrationState.PAUSED)
+          reg.pause();
+        else if (_state == RegistrationState.SUSPENDED_ON_ERROR)
+          reg.suspendOnError(null);
+
+        //Add partition Specific metrics to cluster-merge
+        _relayEventStatsMerger.addStatsCollector(id.getId(), (DbusEventsStatisticsCollector)reg.getRelayEventStats());
+        _bootstrapEventStatsMerger.addStatsCollector(id.getId(), (DbusEventsStatisticsCollector)reg.getBootstrapEventStats());
+        _relayCallbackStatsMerger.addStatsCollector(id.getId(), (ConsumerCallbackStats)reg.getRelayCallbackStats());
+        _bootstrapCallbackStatsMerger.addStatsCollector(id.getId(), (ConsumerCallbackStats)reg.getBootstrapCallbackStats());
+      }
 
       _log.info("Partition (" + partition + ") started !!");
     } catch (DatabusException e) {
@@ -747,53 +901,160 @@ public class DatabusV2ClusterRegistrationImpl implements
     }
   }
 
+  /**
+   * Reads the persisted checkpoint of the partition ahead of the start of its connection, so that
+   * the checkpoint store is read on the activation pool instead of by the puller thread.
+   */
+  private CheckpointPersistenceProvider prefetchCheckpoint(DbusPartitionInfo partition,
+                                                           CheckpointPersistenceProvider ckptProvider)
+  {
+    if (null == ckptProvider)
+      return null;
+
+    try
+    {
+      List<DatabusSubscription> subs = DatabusSubscription.createFromUriList(_sources);
+      Checkpoint cp = ckptProvider.loadCheckpointV3(subs, null);
+      _log.info("Prefetched checkpoint for partition (" + partition + ") :" + cp);
+      return new PrefetchedCheckpointPersistenceProvider(ckptProvider, subs, cp);
+    } catch (Exception e) {
+      _log.warn("Unable to prefetch checkpoint for partition (" + partition + "), it will be read on connection start", e);
+      return ckptProvider;
+    }
+  }
+
   private DatabusV2RegistrationImpl createChildRegistration(RegistrationId id, DatabusHttpClientImpl client, CheckpointPersistenceProvider ckptProvider)
   {
     return new DatabusClusterChildRegistrationImpl(id, client, this, ckptProvider);
   }
 
   /**
-   * Callback to drop one partition
+   * Callback to drop one partition. The child registration is shut down outside of the
+   * registration lock.
    *
    * @param partition
    * @throws DatabusException
    */
-  private synchronized void dropOnePartition(DbusPartitionInfo partition)
+  private void dropOnePartition(DbusPartitionInfo partition)
     throws DatabusException
   {
-    if(_state == RegistrationState.REGISTERED)
+    DatabusRegistration reg = null;
+
+    synchronized (this)
     {
+      if(_state == RegistrationState.REGISTERED)
+      {
+        _partitionSet.remove(partition);
+        return;
+      } else if ( ! _state.isRunning()) {
+        throw new IllegalStateException("Registration is not in correct state to drop a partition !! State :" + _state);
+      }
+
+      // Also cancels an activation of this partition which is in progress
       _partitionSet.remove(partition);
-    } else if ( _state.isRunning()) {
-      if (! regMap.containsKey(partition))
+
+      reg = regMap.remove(partition);
+      if (null == reg)
       {
         _log.warn("Partition (" + partition
             + ") not available to be dropped. skipping !! Active Partitions :" + regMap.keySet());
         return;
       }
 
-      DatabusRegistration reg = regMap.get(partition);
-
-      // Deregister the regMap which will shutdown the partition
-      reg.deregister();
-
-      regMap.remove(partition);
-      _partitionSet.remove(partition);
-
       // remove dropped partition specific metrics
       _relayEventStatsMerger.removeStatsCollector(reg.getRegistrationId().getId());
       _bootstrapEventStatsMerger.removeStatsCollector(reg.getRegistrationId().getId());
       _relayCallbackStatsMerger.removeStatsCollector(reg.getRegistrationId().getId());
       _bootstrapCallbackStatsMerger.removeStatsCollector(reg.getRegistrationId().getId());
+    }
+
+    // Deregister the regMap which will shutdown the partition
+    reg.deregister();
 
-      // Notify Listener
+    // Notify Listener
+    synchronized (this)
+    {
       _partitionListener.onDropPartition(partition, reg);
-    } else {
-      throw new IllegalStateException("Registration is not in correct state to drop a partition !! State :" + _state);
     }
-
   }
 
+  /**
+   * Serves a checkpoint which was read ahead of time to the first load of the connection and
+   * delegates everything else to the wrapped provider.
+   */
+  private static class PrefetchedCheckpointPersistenceProvider
+    implements CheckpointPersistenceProvider
+  {
+    private final CheckpointPersistenceProvider _delegate;
+    private final List<DatabusSubscription> _subs;
+    private Checkpoint _prefetched;
+    private boolean _valid = true;
+
+    public PrefetchedCheckpointPersistenceProvider(CheckpointPersistenceProvider delegate,
+                                                   List<DatabusSubscription> subs,
+                                                   Checkpoint prefetched)
+    {
+      _delegate = delegate;
+      _subs = subs;
+      _prefetched = prefetched;
+    }
+
+    private synchronized void invalidate()
+    {
+      _prefetched = null;
+      _valid = false;
+    }
+
+    @Override
+    public void storeCheckpoint(List<String> sourceNames, Checkpoint checkpoint) throws IOException
+    {
+      invalidate();
+      _delegate.storeCheckpoint(sourceNames, checkpoint);
+    }
+
+    @Override
+    public void storeCheckpointV3(List<DatabusSubscription> subs, Checkpoint checkpoint, RegistrationId registrationId)
+        throws IOException
+    {
+      invalidate();
+      _delegate.storeCheckpointV3(subs, checkpoint, registrationId);
+    }
+
+    @Override
+    public Checkpoint loadCheckpoint(List<String> sourceNames)
+    {
+      return _delegate.loadCheckpoint(sourceNames);
+    }
+
+    @Override
+    public Checkpoint loadCheckpointV3(List<DatabusSubscription> subs, RegistrationId registrationId)
+    {
+      synchronized (this)
+      {
+        if (_valid && null == registrationId && _subs.equals(subs))
+        {
+          Checkpoint cp = _prefetched;
+          invalidate();
+          return cp;
+        }
+      }
+      return _delegate.loadCheckpointV3(subs, registrationId);
+    }
+
+    @Override
+    public void removeCheckpoint(List<String> sourceNames)
+    {
+      invalidate();
+      _delegate.removeCheckpoint(sourceNames);
+    }
+
+    @Override
+    public void removeCheckpointV3(List<DatabusSubscription> subs, RegistrationId registrationId)
+    {
+      invalidate();
+      _delegate.removeCheckpointV3(subs, registrationId);
+    }
+  }
 
   private static class DatabusClusterChildRegistrationImpl
      extends DatabusV2RegistrationImpl
@@ -845,7 +1106,7 @@ public class DatabusV2ClusterRegistrationImpl implements
   }
 
   @Override
-  public synchronized void onGainedPartitionOwnership(int partition)
+  public void onGainedPartitionOwnership(int partition)
   {
     _log.info("Partition (" + partition + ") getting added !!");
 
@@ -860,7 +1121,7 @@ public class DatabusV2ClusterRegistrationImpl implements
   }
 
   @Override
-  public synchronized void onLostPartitionOwnership(int partition)
+  public void onLostPartitionOwnership(int partition)
   {
     _log.info("Partition (" + partition + ") getting removed !!");
 
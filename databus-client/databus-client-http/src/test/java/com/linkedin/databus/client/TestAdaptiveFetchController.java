@@ -0,0 +1,116 @@
+package com.linkedin.databus.client;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.util.InvalidConfigException;
+
+public class TestAdaptiveFetchController
+{
+  private static AdaptiveFetchController createController() throws InvalidConfigException
+  {
+    AdaptiveFetchController.Config config = new AdaptiveFetchController.Config();
+    config.setEnabled(true);
+    config.setMinFetchSize(1000);
+    config.setFetchSizeIncrement(1000);
+    config.setDecreaseFactor(0.5);
+    config.setFullResponsePct(90.0);
+    config.setTargetRoundTripMs(100);
+    return new AdaptiveFetchController(config.build());
+  }
+
+  @Test
+  public void testCatchUpAndCaughtUp() throws Exception
+  {
+    AdaptiveFetchController controller = createController();
+    Assert.assertTrue(controller.isEnabled());
+
+    // starts with the size allowed by the buffer
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 8000);
+
+    // caught up: the fetch size shrinks towards twice the response size, at most by half each time
+    controller.onResponse(100, 10);
+    Assert.assertFalse(controller.isBacklogged());
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 4000);
+    controller.onResponse(100, 10);
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 2000);
+    controller.onResponse(100, 10);
+    // never below the configured minimum
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 1000);
+
+    // backlog: additive increase and no poll sleep
+    controller.onResponse(950, 10);
+    Assert.assertTrue(controller.isBacklogged());
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 2000);
+    controller.onResponse(2000, 10);
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 3000);
+
+    // slow responses halve the fetch size even with a backlog
+    controller.onResponse(3000, 500);
+    Assert.assertTrue(controller.isBacklogged());
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 1500);
+
+    // the free space in the buffer caps the growth
+    for (int i = 0; i < 10; ++i)
+    {
+      controller.onResponse(controller.getCurrentFetchSize(), 10);
+      controller.getFetchSize(500, 4000);
+    }
+    Assert.assertEquals(controller.getCurrentFetchSize(), 4000);
+
+    // a full buffer means the dispatcher does not keep up
+    controller.onBufferFull();
+    Assert.assertEquals(controller.getFetchSize(500, 8000), 2000);
+  }
+
+  @Test
+  public void testMinFetchSize() throws Exception
+  {
+    AdaptiveFetchController controller = createController();
+    // the puller threshold wins over the configured minimum
+    Assert.assertEquals(controller.getFetchSize(3000, 8000), 8000);
+    controller.onResponse(0, 10);
+    controller.onResponse(0, 10);
+    controller.onResponse(0, 10);
+    Assert.assertEquals(controller.getFetchSize(3000, 8000), 3000);
+    // but not over the free space in the buffer
+    Assert.assertEquals(controller.getFetchSize(500, 800), 800);
+  }
+
+  @Test
+  public void testInvalidConfig()
+  {
+    AdaptiveFetchController.Config config = new AdaptiveFetchController.Config();
+    config.setDecreaseFactor(1.0);
+    try
+    {
+      config.build();
+      Assert.fail("invalid decrease factor accepted");
+    }
+    catch (InvalidConfigException e)
+    {
+      // expected
+    }
+
+    Assert.assertFalse(AdaptiveFetchController.StaticConfig.DISABLED.isEnabled());
+  }
+}
@@ -41,6 +41,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.linkedin.databus.client.BootstrapSnapshotRangeFetcher.RangePage;
 import com.linkedin.databus.client.ConnectionState.StateId;
 import com.linkedin.databus.client.consumer.LoggingConsumer;
 import com.linkedin.databus.client.netty.RemoteExceptionHandler;
@@ -2197,6 +2198,120 @@ public class TestBootstrapPullThread
     }
   }
 
+  @Test
+  /** Test that a snapshot range whose next event does not fit in its share of the buffer makes progress */
+  public void testSnapshotRangePendingEvent() throws Exception
+  {
+    BootstrapPullThread bsPuller = createBootstrapPullThread(false, false, true);
+    int rangeFetchSize = bsPuller.getSourcesConnection().getConnectionConfig().getFreeBufferThreshold() * 2;
+    int pendingEventSize = rangeFetchSize + 1000;
+    MockSnapshotRangeFetcher fetcher = new MockSnapshotRangeFetcher(pendingEventSize, false);
+    bsPuller.setSnapshotRangeFetcher(fetcher);
+
+    Checkpoint cp = createSnapshotRangesCheckpoint();
+    bsPuller.getComponentStatus().start();
+    ConnectionState connState = bsPuller.getConnectionState();
+    connState.switchToBootstrap(cp);
+
+    // the first range gets no events as its share of the buffer is too small for the next event
+    bsPuller.doReadSnapshotRanges(connState, null, 2 * rangeFetchSize);
+    Assert.assertEquals(connState.getStateId(), StateId.STREAM_RESPONSE_DONE);
+    Assert.assertEquals(fetcher.getFetchSizes(0), Arrays.asList(rangeFetchSize, rangeFetchSize));
+    Assert.assertEquals(cp.getSnapshotRanges().get(0).getOffset(), 0);
+    Assert.assertEquals(cp.getSnapshotRanges().get(1).getOffset(), 110);
+
+    // next time it asks for the size of the event
+    bsPuller.doReadSnapshotRanges(connState, null, 2 * rangeFetchSize);
+    Assert.assertEquals(fetcher.getFetchSizes(1), Arrays.asList(pendingEventSize, rangeFetchSize));
+    Assert.assertEquals(cp.getSnapshotRanges().get(0).getOffset(), 10);
+    Assert.assertEquals(cp.getSnapshotRanges().get(1).getOffset(), 120);
+    Assert.assertEquals(cp.getSnapshotOffset().longValue(), 10);
+
+    // and back to the share of the buffer after that
+    bsPuller.doReadSnapshotRanges(connState, null, 2 * rangeFetchSize);
+    Assert.assertEquals(fetcher.getFetchSizes(2), Arrays.asList(rangeFetchSize, rangeFetchSize));
+  }
+
+  @Test
+  /** Test that a snapshot range which does not make progress with a raised fetch size is read sequentially */
+  public void testSnapshotRangeNoProgress() throws Exception
+  {
+    BootstrapPullThread bsPuller = createBootstrapPullThread(false, false, true);
+    int rangeFetchSize = bsPuller.getSourcesConnection().getConnectionConfig().getFreeBufferThreshold() * 2;
+    int pendingEventSize = rangeFetchSize + 1000;
+    MockSnapshotRangeFetcher fetcher = new MockSnapshotRangeFetcher(pendingEventSize, true);
+    bsPuller.setSnapshotRangeFetcher(fetcher);
+
+    Checkpoint cp = createSnapshotRangesCheckpoint();
+    bsPuller.getComponentStatus().start();
+    ConnectionState connState = bsPuller.getConnectionState();
+    connState.switchToBootstrap(cp);
+
+    bsPuller.doReadSnapshotRanges(connState, null, 2 * rangeFetchSize);
+    Assert.assertNotNull(cp.getSnapshotRanges());
+    bsPuller.doReadSnapshotRanges(connState, null, 2 * rangeFetchSize);
+    Assert.assertEquals(fetcher.getFetchSizes(1), Arrays.asList(pendingEventSize, rangeFetchSize));
+
+    // the sequential stream continues from the first uncompleted range
+    Assert.assertEquals(connState.getStateId(), StateId.STREAM_RESPONSE_DONE);
+    Assert.assertNull(cp.getSnapshotRanges());
+    Assert.assertEquals(cp.getSnapshotOffset().longValue(), 0);
+  }
+
+  private Checkpoint createSnapshotRangesCheckpoint() throws Exception
+  {
+    Checkpoint cp = new Checkpoint("{\"consumption_mode\":\"BOOTSTRAP_SNAPSHOT\", \"bootstrap_since_scn\":0," +
+        "\"bootstrap_start_scn\":1000,\"bootstrap_target_scn\":-1,\"bootstrap_catchup_source_index\":0," +
+        "\"bootstrap_snapshot_source_index\":0}");
+    List<Checkpoint.SnapshotRange> ranges = new ArrayList<Checkpoint.SnapshotRange>();
+    ranges.add(new Checkpoint.SnapshotRange(0, 100, 0));
+    ranges.add(new Checkpoint.SnapshotRange(100, Checkpoint.SnapshotRange.UNBOUNDED_END_ID, 100));
+    cp.setSnapshotRanges(ranges);
+    cp.setSnapshotOffset(0);
+    return cp;
+  }
+
+  /**
+   * Returns a page with a single event of 10 rows for each range, except for the first range
+   * whose next event does not fit in a page smaller than the pending event size
+   */
+  private static class MockSnapshotRangeFetcher extends BootstrapSnapshotRangeFetcher
+  {
+    private final int _pendingEventSize;
+    private final boolean _alwaysPending;
+    private final List<List<Integer>> _fetchSizes = new ArrayList<List<Integer>>();
+
+    public MockSnapshotRangeFetcher(int pendingEventSize, boolean alwaysPending)
+    {
+      super("mockFetcher", 1, null, null, new DbusEventV2Factory(), null);
+      _pendingEventSize = pendingEventSize;
+      _alwaysPending = alwaysPending;
+    }
+
+    @Override
+    public List<RangePage> fetch(ServerInfo server, String sourcesIdList, DbusKeyFilter filter,
+                                 List<Integer> fetchSizes, Checkpoint ckpt,
+                                 List<Checkpoint.SnapshotRange> ranges)
+    {
+      _fetchSizes.add(new ArrayList<Integer>(fetchSizes));
+      List<RangePage> result = new ArrayList<RangePage>(ranges.size());
+      for (int i = 0; i < ranges.size(); ++i)
+      {
+        Checkpoint.SnapshotRange range = ranges.get(i);
+        if (0 == i && (_alwaysPending || fetchSizes.get(i) < _pendingEventSize))
+          result.add(new RangePage(range, new byte[0], 0, range.getOffset(), false, _pendingEventSize, null));
+        else
+          result.add(new RangePage(range, new byte[10], 1, range.getOffset() + 10, false, 0, null));
+      }
+      return result;
+    }
+
+    public List<Integer> getFetchSizes(int call)
+    {
+      return _fetchSizes.get(call);
+    }
+  }
+
   private ServerSetChangeMessage createSetServerMessage(boolean keepCurrent, BasePullThread puller)
   {
     Set<ServerInfo> serverInfoSet = new HashSet<ServerInfo>();
@@ -2424,6 +2539,7 @@ public class TestBootstrapPullThread
     dbusBuffer.waitForFreeSpace((int)(10000 * 100.0 / clientConf.getPullerBufferUtilizationPct()));
     EasyMock.expectLastCall().anyTimes();
     EasyMock.expect(dbusBuffer.getBufferFreeReadSpace()).andReturn(freeReadSpace).anyTimes();
+    EasyMock.expect(dbusBuffer.getMaxReadBufferCapacity()).andReturn(100000).anyTimes();
 
     EasyMock.replay(dbusBuffer);
 
@@ -0,0 +1,76 @@
+package com.linkedin.databus.client;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.Checkpoint.SnapshotRange;
+
+
+public class TestBootstrapSnapshotRangeFetcher
+{
+  @Test
+  public void testSplitRanges()
+  {
+    List<SnapshotRange> ranges = BootstrapSnapshotRangeFetcher.splitRanges(0, 100, 4);
+    Assert.assertEquals(ranges.size(), 4);
+    long startId = 0;
+    for (int i = 0; i < 4; ++i)
+    {
+      SnapshotRange r = ranges.get(i);
+      Assert.assertEquals(r.getStartId(), startId);
+      Assert.assertEquals(r.getOffset(), startId);
+      Assert.assertFalse(r.isCompleted());
+      if (i < 3)
+        Assert.assertEquals(r.getEndId(), startId + 25);
+      startId += 25;
+    }
+    // rows inserted after the max id was read belong to the last range
+    Assert.assertEquals(ranges.get(3).getEndId(), SnapshotRange.UNBOUNDED_END_ID);
+
+    // a snapshot resumed from an offset is split from that offset
+    ranges = BootstrapSnapshotRangeFetcher.splitRanges(1000, 1010, 3);
+    Assert.assertEquals(ranges.size(), 3);
+    Assert.assertEquals(ranges.get(0).getStartId(), 1000);
+    Assert.assertEquals(ranges.get(0).getEndId(), 1003);
+    Assert.assertEquals(ranges.get(1).getEndId(), 1006);
+    Assert.assertEquals(ranges.get(2).getStartId(), 1006);
+  }
+
+  @Test
+  public void testSplitRangesSingle()
+  {
+    List<SnapshotRange> ranges = BootstrapSnapshotRangeFetcher.splitRanges(0, 100, 1);
+    Assert.assertEquals(ranges.size(), 1);
+    Assert.assertEquals(ranges.get(0).getEndId(), SnapshotRange.UNBOUNDED_END_ID);
+
+    // too few rows to split
+    ranges = BootstrapSnapshotRangeFetcher.splitRanges(10, 12, 4);
+    Assert.assertEquals(ranges.size(), 1);
+    Assert.assertEquals(ranges.get(0).getStartId(), 10);
+
+    // empty table
+    ranges = BootstrapSnapshotRangeFetcher.splitRanges(0, -1, 4);
+    Assert.assertEquals(ranges.size(), 1);
+  }
+}
@@ -146,6 +146,7 @@ public class TestChunkedBodyReadableByteChannel
 
     String response = responseReader.getResponse();
     Assert.assertEquals(chunk + chunk + chunk, response);
+    Assert.assertEquals(channel.getBytesRead(), 3 * chunk.length());
   }
 
   @Test
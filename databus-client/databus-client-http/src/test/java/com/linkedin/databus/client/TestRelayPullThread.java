@@ -153,6 +153,12 @@ public class TestRelayPullThread
       return this;
     }
 
+    RelayPullThreadBuilder setAdaptiveFetchEnabled(boolean adaptiveFetchEnabled)
+    {
+      _adaptiveFetchEnabled = adaptiveFetchEnabled;
+      return this;
+    }
+
     boolean _failRelayConnection;
     boolean _muteTransition;
     boolean _bootstrapEnabled;
@@ -162,6 +168,7 @@ public class TestRelayPullThread
     String _exceptionName;
     int _numRetriesOnFellOff;
     DbusKeyCompositeFilterConfig _filterConfig = null;
+    boolean _adaptiveFetchEnabled;
 
     public RelayPullThread createRelayPullThread() throws Exception
     {
@@ -173,7 +180,8 @@ public class TestRelayPullThread
                                    _readDataException,
                                    _exceptionName,
                                    _numRetriesOnFellOff,
-                                   _filterConfig);
+                                   _filterConfig,
+                                   _adaptiveFetchEnabled);
     }
 
     public RelayPullThread createFellOffRelayPullThread() throws Exception
@@ -192,7 +200,8 @@ public class TestRelayPullThread
                           boolean readDataException,
                           String exceptionName,
                           int numRetriesOnFellOff,
-                          DbusKeyCompositeFilterConfig filterConfig)
+                          DbusKeyCompositeFilterConfig filterConfig,
+                          boolean adaptiveFetchEnabled)
   throws Exception
   {
     List<String> sources = Arrays.asList("source1");
@@ -228,6 +237,7 @@ public class TestRelayPullThread
     clientProps.setProperty("client.connectionDefaults.pullerRetries.sleepIncDelta", "1");
     clientProps.setProperty("client.connectionDefaults.pullerRetries.initSleep", "1");
     clientProps.setProperty("client.connectionDefaults.numRetriesOnFallOff", "" + numRetriesOnFellOff);
+    clientProps.setProperty("client.connectionDefaults.adaptiveFetch.enabled", "" + adaptiveFetchEnabled);
 
     DatabusHttpClientImpl.Config clientConfBuilder = new DatabusHttpClientImpl.Config();
     ConfigLoader<DatabusHttpClientImpl.StaticConfig> configLoader =
@@ -278,6 +288,7 @@ public class TestRelayPullThread
     } else {
       EasyMock.expect(channel.getMetadata(EasyMock.<String>notNull())).andReturn(exceptionName).anyTimes();
     }
+    EasyMock.expect(channel.getBytesRead()).andReturn(1000L).anyTimes();
     EasyMock.replay(channel);
 
     DbusEventBuffer dbusBuffer = EasyMock.createMock(DbusEventBuffer.class);
@@ -295,6 +306,7 @@ public class TestRelayPullThread
       dbusBuffer.waitForFreeSpace((int)(clientConf.getConnectionDefaults().getFreeBufferThreshold() * 100.0 / clientConf.getPullerBufferUtilizationPct()));
     EasyMock.expectLastCall().anyTimes();
     EasyMock.expect(dbusBuffer.getBufferFreeReadSpace()).andReturn(0).anyTimes();
+    EasyMock.expect(dbusBuffer.getBufferFreeSpace()).andReturn(100000L).anyTimes();
 
     EasyMock.replay(dbusBuffer);
 
@@ -2376,6 +2388,50 @@ public class TestRelayPullThread
     Assert.assertEquals(relayPuller.getQueueListString(), "RelayPuller queue: [" + msgQueueState + "]", "Queue :" + currState + " to " + finalState);
   }
 
+  @Test(groups={"small", "functional"})
+  public void testAdaptiveFetchWithPrefetchedResponse() throws Exception
+  {
+    RelayPullThreadBuilder bldr = new RelayPullThreadBuilder(false, false).setAdaptiveFetchEnabled(true);
+    RelayPullThread relayPuller = bldr.createRelayPullThread();
+    relayPuller.getComponentStatus().start();
+    ConnectionState connState = relayPuller.getConnectionState();
+    connState.switchToPickServer();
+    testTransitionCase(relayPuller, StateId.PICK_SERVER, StateId.REQUEST_SOURCES);
+    relayPuller.getMessageQueue().clear();
+    testTransitionCase(relayPuller, StateId.REQUEST_SOURCES, StateId.SOURCES_RESPONSE_SUCCESS);
+    relayPuller.getMessageQueue().clear();
+    testTransitionCase(relayPuller, StateId.SOURCES_RESPONSE_SUCCESS, StateId.REQUEST_REGISTER);
+    relayPuller.getMessageQueue().clear();
+    testTransitionCase(relayPuller, StateId.REQUEST_REGISTER, StateId.REGISTER_RESPONSE_SUCCESS);
+    relayPuller.getMessageQueue().clear();
+    testTransitionCase(relayPuller, StateId.REGISTER_RESPONSE_SUCCESS, StateId.REQUEST_STREAM);
+    relayPuller.getMessageQueue().clear();
+
+    AdaptiveFetchController fetchController = relayPuller.getFetchController();
+    MockRelayConnection relayConn = (MockRelayConnection)connState.getRelayConnection();
+
+    // the 1000 bytes of the response (see the mock read channel) fill the prefetched request even
+    // though the puller asks for more
+    relayConn.setAdoptedStreamRequest(1000, System.currentTimeMillis());
+    testTransitionCase(relayPuller, StateId.REQUEST_STREAM, StateId.STREAM_REQUEST_SUCCESS);
+    relayPuller.getMessageQueue().clear();
+    Assert.assertTrue(fetchController.getCurrentFetchSize() > 1000);
+    testTransitionCase(relayPuller, StateId.STREAM_REQUEST_SUCCESS, StateId.STREAM_RESPONSE_DONE);
+    relayPuller.getMessageQueue().clear();
+    Assert.assertTrue(fetchController.isBacklogged());
+
+    // the round trip of a prefetched request starts when it was sent
+    testTransitionCase(relayPuller, StateId.STREAM_RESPONSE_DONE, StateId.REQUEST_STREAM);
+    relayPuller.getMessageQueue().clear();
+    relayConn.setAdoptedStreamRequest(1000, System.currentTimeMillis() - 10000);
+    testTransitionCase(relayPuller, StateId.REQUEST_STREAM, StateId.STREAM_REQUEST_SUCCESS);
+    relayPuller.getMessageQueue().clear();
+    int fetchSize = fetchController.getCurrentFetchSize();
+    testTransitionCase(relayPuller, StateId.STREAM_REQUEST_SUCCESS, StateId.STREAM_RESPONSE_DONE);
+    Assert.assertTrue(fetchController.isBacklogged());
+    Assert.assertEquals(fetchController.getCurrentFetchSize(), fetchSize / 2);
+  }
+
   @Test(groups={"small", "functional"})
   public void testRelayPendingEvent() throws Exception
   {
@@ -2930,6 +2986,10 @@ class MockRelayConnection implements DatabusRelayConnection
   private boolean enableReadLatest = false;
   private DbusKeyCompositeFilter _relayFilter;
   private int _protocolVersion = 0;
+  private int _lastStreamFetchSize = -1;
+  private long _lastStreamRequestTs = -1;
+  private int _adoptedFetchSize = -1;
+  private long _adoptedRequestTs = -1;
   DatabusRelayConnectionStateMessage _lastStateMsg;
 
   public MockRelayConnection(List<IdNamePair> sourceIds,
@@ -3013,6 +3073,17 @@ class MockRelayConnection implements DatabusRelayConnection
     _lastStateMsg = stateReuse;
     _relayFilter = filter;
     ++ _streamCallCounter;
+    if (_adoptedFetchSize > 0)
+    {
+      _lastStreamFetchSize = _adoptedFetchSize;
+      _lastStreamRequestTs = _adoptedRequestTs;
+      _adoptedFetchSize = -1;
+    }
+    else
+    {
+      _lastStreamFetchSize = freeBufferSpace;
+      _lastStreamRequestTs = System.currentTimeMillis();
+    }
     if (null == _streamResponse)
     {
       if ( !_muteTransition) stateReuse.switchToStreamRequestError();
@@ -3073,6 +3144,30 @@ class MockRelayConnection implements DatabusRelayConnection
   @Override
   public void enableReadFromLatestScn(boolean enable) {  enableReadLatest = enable;}
 
+  @Override
+  public void setStreamPrefetchSpace(int prefetchSpace)
+  {
+  }
+
+  /** The next requestStream call returns the response of a request sent earlier, as with prefetching */
+  public void setAdoptedStreamRequest(int fetchSize, long requestTs)
+  {
+    _adoptedFetchSize = fetchSize;
+    _adoptedRequestTs = requestTs;
+  }
+
+  @Override
+  public int getLastStreamFetchSize()
+  {
+    return _lastStreamFetchSize;
+  }
+
+  @Override
+  public long getLastStreamRequestTs()
+  {
+    return _lastStreamRequestTs;
+  }
+
 
   public boolean isReadFromLatestScn()
   {
@@ -3151,6 +3246,13 @@ class MockChunkedBodyReadableByteChannel extends ChunkedBodyReadableByteChannel
     return 0;
   }
 
+  @Override
+  public ByteBuffer readChunk() throws IOException
+  {
+    //the event buffer reads chunked channels one chunk at a time; the response has no events
+    return null;
+  }
+
   @Override
   public String getMetadata(String key)
   {
@@ -0,0 +1,52 @@
+package com.linkedin.databus.client.netty;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import com.linkedin.databus.core.DbusEventV2Factory;
+import com.linkedin.databus.core.InvalidEventException;
+
+/** Records the last exception reported by a relay or bootstrap server instead of handling it */
+public class DummyRemoteExceptionHandler extends RemoteExceptionHandler
+{
+  Throwable _lastException = null;
+
+  public DummyRemoteExceptionHandler()
+  {
+    super(null, null, new DbusEventV2Factory());
+  }
+
+  @Override
+  public void handleException(Throwable remoteException) throws InvalidEventException,
+      InterruptedException
+  {
+    _lastException = remoteException;
+  }
+
+  public Throwable getLastException()
+  {
+    return _lastException;
+  }
+
+  public void resetLastException()
+  {
+    _lastException = null;
+  }
+
+}
@@ -24,8 +24,10 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,6 +39,7 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.JsonGenerationException;
 import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
@@ -55,6 +58,7 @@ import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.jboss.netty.handler.codec.http.HttpServerCodec;
 import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.codec.http.QueryStringDecoder;
 import org.jboss.netty.handler.logging.LoggingHandler;
 import org.jboss.netty.logging.InternalLogLevel;
 import org.jboss.netty.logging.InternalLoggerFactory;
@@ -75,7 +79,7 @@ import com.linkedin.databus.core.DbusEventBuffer.AllocationPolicy;
 import com.linkedin.databus.core.DbusEventFactory;
 import com.linkedin.databus.core.DbusEventKey;
 import com.linkedin.databus.core.DbusEventV2Factory;
-import com.linkedin.databus.core.InvalidEventException;
+import com.linkedin.databus.core.InternalDatabusEventsListener;
 import com.linkedin.databus.core.OffsetNotFoundException;
 import com.linkedin.databus.core.ScnNotFoundException;
 import com.linkedin.databus.core.data_model.PhysicalPartition;
@@ -83,6 +87,9 @@ import com.linkedin.databus.core.util.InvalidConfigException;
 import com.linkedin.databus2.core.container.DatabusHttpHeaders;
 import com.linkedin.databus2.core.container.request.RegisterResponseEntry;
 import com.linkedin.databus2.core.container.request.RegisterResponseMetadataEntry;
+import com.linkedin.databus2.core.filter.DbusKeyCompositeFilter;
+import com.linkedin.databus2.core.filter.KeyFilterConfigHolder;
+import com.linkedin.databus2.core.filter.KeyModFilterConfig;
 import com.linkedin.databus2.test.ConditionCheck;
 import com.linkedin.databus2.test.TestUtil;
 import com.linkedin.databus2.test.container.SimpleObjectCaptureHandler;
@@ -220,6 +227,165 @@ public class TestNettyHttpDatabusRelayConnection
     }
   }
 
+  /**
+   * Tests that the next /stream request is sent while the current response is being read and that
+   * its response is handed to the puller only if the puller asks for the same checkpoint and filter.
+   */
+  @Test
+  public void testStreamPrefetch() throws Exception
+  {
+    final Logger log = Logger.getLogger("TestNettyHttpDatabusRelayConnection.testStreamPrefetch");
+
+    DbusEventBuffer buf = createSimpleBuffer();
+
+    TestingConnectionCallback callback = TestingConnectionCallback.createAndStart("testStreamPrefetch");
+    DummyRemoteExceptionHandler remoteExceptionHandler = new DummyRemoteExceptionHandler();
+    final NettyHttpDatabusRelayConnection conn =
+        (NettyHttpDatabusRelayConnection)
+        CONN_FACTORY.createRelayConnection(RELAY_SERVER_INFO, callback, remoteExceptionHandler);
+    conn.setStreamPrefetchSpace(1000);
+    try
+    {
+      TestResponseProcessors.TestConnectionStateMessage msg = new TestResponseProcessors.TestConnectionStateMessage();
+      conn.requestSources(msg);
+      waitForServerConnection(conn, log);
+
+      final SocketAddress clientAddr = conn._channel.getLocalAddress();
+      TestUtil.assertWithBackoff(new ConditionCheck()
+      {
+        @Override
+        public boolean check()
+        {
+          return null != _dummyServer.getChildChannel(clientAddr);
+        }
+      }, "client connection established", 1000, log);
+      SimpleObjectCaptureHandler objCapture =
+          (SimpleObjectCaptureHandler)_dummyServer.getChildChannel(clientAddr).getPipeline().get("3");
+
+      HttpResponse sourcesResp = runHappyPathSources(log, callback, remoteExceptionHandler, clientAddr, objCapture);
+      runHappyPathRegister(log, callback, remoteExceptionHandler, conn, msg, clientAddr, objCapture, sourcesResp);
+
+      //the first request is sent by the puller
+      objCapture.clear();
+      Checkpoint cp = new Checkpoint();
+      cp.setFlexible();
+      CheckpointMult cpm = new CheckpointMult();
+      cpm.addCheckpoint(PhysicalPartition.ANY_PHYSICAL_PARTITION, cp);
+      conn.requestStream("1", createModFilter("[0-1]"), 1000, cpm, null, msg);
+      HttpRequest firstReq = captureRequest(objCapture);
+      Assert.assertEquals(-1, getStreamCheckpoint(firstReq).getWindowScn());
+      String filtersParam = getStreamFilters(firstReq);
+      Assert.assertNotNull(filtersParam);
+      objCapture.clear();
+
+      Checkpoint serverCp = new Checkpoint();
+      serverCp.setFlexible();
+      ChannelBuffer tmpBuf = NettyTestUtils.streamToChannelBuffer(buf, serverCp, 10000, null);
+      NettyTestUtils.sendServerResponses(_dummyServer, clientAddr, sourcesResp, new DefaultHttpChunk(tmpBuf));
+      waitForCallback(callback,
+                      TestResponseProcessors.TestConnectionStateMessage.State.STREAM_RESPONSE_SUCCESS,
+                      log);
+
+      //the next request is sent before the puller asks for it
+      HttpRequest prefetchReq = captureRequest(objCapture);
+      Checkpoint prefetchCp = getStreamCheckpoint(prefetchReq);
+      Assert.assertEquals(10, prefetchCp.getWindowScn());
+      Assert.assertEquals(filtersParam, getStreamFilters(prefetchReq));
+      objCapture.clear();
+
+      //the puller reads the events and asks for the same checkpoint with a rebuilt filter and less
+      //free space than was prefetched: no new request is sent
+      DbusEventBuffer clientBuf = new DbusEventBuffer(_bufCfg);
+      Assert.assertEquals(3, clientBuf.readEvents(msg._channel,
+                                                  Arrays.<InternalDatabusEventsListener>asList(cp)));
+      cp.checkPoint();
+      callback.clearLastMsg();
+      conn.requestStream("1", createModFilter("[0-1]"), 500, cpm, null, msg);
+      TestUtil.sleep(200);
+      Assert.assertTrue(objCapture.getMessages().isEmpty());
+
+      buf.startEvents();
+      buf.appendEvent(new DbusEventKey(3), (short)1, (short)1, System.nanoTime(), (short)1,
+                      new byte[16], new byte[100], false, null);
+      buf.endEvents(20);
+      tmpBuf = NettyTestUtils.streamToChannelBuffer(buf, prefetchCp, 10000, null);
+      NettyTestUtils.sendServerResponses(_dummyServer, clientAddr, sourcesResp, new DefaultHttpChunk(tmpBuf));
+      waitForCallback(callback,
+                      TestResponseProcessors.TestConnectionStateMessage.State.STREAM_RESPONSE_SUCCESS,
+                      log);
+      Assert.assertEquals(2, clientBuf.readEvents(msg._channel,
+                                                  Arrays.<InternalDatabusEventsListener>asList(cp)));
+
+      //a prefetched request for another filter is dropped; the request of the puller is sent once
+      //the prefetched response is over
+      Checkpoint nextPrefetchCp = getStreamCheckpoint(captureRequest(objCapture));
+      Assert.assertEquals(20, nextPrefetchCp.getWindowScn());
+      objCapture.clear();
+      cp.checkPoint();
+      callback.clearLastMsg();
+      DbusKeyCompositeFilter otherFilter = createModFilter("[0]");
+      conn.requestStream("1", otherFilter, 1000, cpm, null, msg);
+      TestUtil.sleep(200);
+      Assert.assertTrue(objCapture.getMessages().isEmpty());
+      Assert.assertNull(callback.getLastMsg());
+
+      buf.startEvents();
+      buf.appendEvent(new DbusEventKey(4), (short)1, (short)1, System.nanoTime(), (short)1,
+                      new byte[16], new byte[100], false, null);
+      buf.endEvents(30);
+      tmpBuf = NettyTestUtils.streamToChannelBuffer(buf, nextPrefetchCp, 10000, null);
+      NettyTestUtils.sendServerResponses(_dummyServer, clientAddr, sourcesResp, new DefaultHttpChunk(tmpBuf));
+      HttpRequest deferredReq = captureRequest(objCapture);
+      Assert.assertEquals(20, getStreamCheckpoint(deferredReq).getWindowScn());
+      Assert.assertEquals(getStreamFilters(deferredReq), new ObjectMapper().writeValueAsString(
+          otherFilter.getFilterMap()));
+      Assert.assertNull(conn.getPrefetch());
+      Assert.assertNull(callback.getLastMsg());
+
+      //the response of the deferred request goes to the puller
+      objCapture.clear();
+      tmpBuf = NettyTestUtils.streamToChannelBuffer(buf, cp, 10000, null);
+      NettyTestUtils.sendServerResponses(_dummyServer, clientAddr, sourcesResp, new DefaultHttpChunk(tmpBuf));
+      waitForCallback(callback,
+                      TestResponseProcessors.TestConnectionStateMessage.State.STREAM_RESPONSE_SUCCESS,
+                      log);
+      Assert.assertEquals(2, clientBuf.readEvents(msg._channel,
+                                                  Arrays.<InternalDatabusEventsListener>asList(cp)));
+      Assert.assertNull(remoteExceptionHandler.getLastException());
+    }
+    finally
+    {
+      conn.close();
+      callback.shutdown();
+    }
+  }
+
+  private static String getStreamFilters(HttpRequest req)
+  {
+    List<String> filters = new QueryStringDecoder(req.getUri()).getParameters().get("filters");
+    return null != filters ? filters.get(0) : null;
+  }
+
+  private static DbusKeyCompositeFilter createModFilter(String buckets) throws InvalidConfigException
+  {
+    KeyModFilterConfig.Config modConf = new KeyModFilterConfig.Config();
+    modConf.setNumBuckets(2);
+    modConf.setBuckets(buckets);
+    KeyFilterConfigHolder.Config partConf = new KeyFilterConfigHolder.Config();
+    partConf.setType("MOD");
+    partConf.setMod(modConf);
+    Map<Long, KeyFilterConfigHolder> configMap = new HashMap<Long, KeyFilterConfigHolder>();
+    configMap.put(1L, new KeyFilterConfigHolder(partConf.build()));
+    return new DbusKeyCompositeFilter(configMap);
+  }
+
+  private static Checkpoint getStreamCheckpoint(HttpRequest req) throws Exception
+  {
+    Assert.assertTrue(req.getUri().startsWith("/stream"));
+    String cpStr = new QueryStringDecoder(req.getUri()).getParameters().get("checkPointMult").get(0);
+    return new CheckpointMult(cpStr).getCheckpoint(PhysicalPartition.ANY_PHYSICAL_PARTITION);
+  }
+
   @Test
   public void testServerSourcesDisconnect() throws IOException, ScnNotFoundException, OffsetNotFoundException
   {
@@ -1812,32 +1978,3 @@ public class TestNettyHttpDatabusRelayConnection
   }
 
 }
-
-
-class DummyRemoteExceptionHandler extends RemoteExceptionHandler
-{
-  Throwable _lastException = null;
-
-  public DummyRemoteExceptionHandler()
-  {
-    super(null, null, new DbusEventV2Factory());
-  }
-
-  @Override
-  public void handleException(Throwable remoteException) throws InvalidEventException,
-      InterruptedException
-  {
-    _lastException = remoteException;
-  }
-
-  public Throwable getLastException()
-  {
-    return _lastException;
-  }
-
-  public void resetLastException()
-  {
-    _lastException = null;
-  }
-
-}
@@ -0,0 +1,228 @@
+package com.linkedin.databus.client.netty;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.client.netty.TestResponseProcessors.TestConnectionStateMessage;
+import com.linkedin.databus.client.pub.ServerInfo;
+import com.linkedin.databus.core.Checkpoint;
+import com.linkedin.databus.core.CheckpointMult;
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+import com.linkedin.databus2.core.container.request.BinaryProtocol;
+import com.linkedin.databus2.core.container.request.StreamEventsResponse;
+import com.linkedin.databus2.test.ConditionCheck;
+import com.linkedin.databus2.test.TestUtil;
+import com.linkedin.databus2.test.container.SimpleTestServerConnection;
+
+public class TestNettyTcpDatabusRelayConnection
+{
+  static final ExecutorService BOSS_POOL = Executors.newCachedThreadPool();
+  static final ExecutorService IO_POOL = Executors.newCachedThreadPool();
+  static final int SERVER_PORT = 14480;
+  static final Timer NETWORK_TIMER = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+  static final ChannelGroup TEST_CHANNELS_GROUP = new DefaultChannelGroup();
+  static final ServerInfo RELAY_SERVER_INFO =
+      new ServerInfo("testRelay", "master", new InetSocketAddress("localhost", SERVER_PORT),
+                     Arrays.asList("source1"));
+  static final PhysicalPartition PPART = new PhysicalPartition(1, "testDb");
+
+  private SimpleTestServerConnection _dummyServer;
+  /** The push connections accepted by the dummy relay */
+  private final List<Channel> _pushChannels = new Vector<Channel>();
+
+  @BeforeClass
+  public void setUpClass()
+  {
+    _dummyServer = new SimpleTestServerConnection(BinaryProtocol.BYTE_ORDER,
+                                                  SimpleTestServerConnection.ServerType.NIO);
+    _dummyServer.setPipelineFactory(new ChannelPipelineFactory()
+    {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception
+      {
+        return Channels.pipeline(new SimpleChannelUpstreamHandler()
+        {
+          @Override
+          public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
+          {
+            _pushChannels.add(e.getChannel());
+            super.channelConnected(ctx, e);
+          }
+
+          @Override
+          public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+          {
+            //the subscribe and credit requests are not interpreted
+          }
+        });
+      }
+    });
+    Assert.assertTrue(_dummyServer.startSynchronously(SERVER_PORT, 1000));
+  }
+
+  @AfterClass
+  public void tearDownClass()
+  {
+    _dummyServer.stop();
+    BOSS_POOL.shutdownNow();
+    IO_POOL.shutdownNow();
+  }
+
+  private static CheckpointMult createCheckpoint(long scn)
+  {
+    CheckpointMult cpMult = new CheckpointMult();
+    cpMult.addCheckpoint(PPART, Checkpoint.createOnlineConsumptionCheckpoint(scn));
+    return cpMult;
+  }
+
+  private void waitForPushChannels(final int num)
+  {
+    TestUtil.assertWithBackoff(new ConditionCheck()
+    {
+      @Override
+      public boolean check()
+      {
+        return _pushChannels.size() == num && _pushChannels.get(num - 1).isConnected();
+      }
+    }, "push connection #" + num, 1000, null);
+  }
+
+  private static void waitForResponse(final TestConnectionStateMessage msg)
+  {
+    TestUtil.assertWithBackoff(new ConditionCheck()
+    {
+      @Override
+      public boolean check()
+      {
+        return null != msg._state;
+      }
+    }, "response delivered", 1000, null);
+  }
+
+  private void push(Channel channel, StreamEventsResponse response)
+  {
+    Assert.assertTrue(channel.write(response.serializeToBinary()).awaitUninterruptibly(1000));
+  }
+
+  private static ChannelBuffer createEvents(int size)
+  {
+    return ChannelBuffers.wrappedBuffer(new byte[size]);
+  }
+
+  @Test
+  public void testHeartbeatsAndResubscribe() throws Exception
+  {
+    TestingConnectionCallback callback = TestingConnectionCallback.createAndStart("testHeartbeatsAndResubscribe");
+    NettyTcpDatabusRelayConnection conn =
+        new NettyTcpDatabusRelayConnection(RELAY_SERVER_INFO, SERVER_PORT, callback,
+                                           new NioClientSocketChannelFactory(BOSS_POOL, IO_POOL),
+                                           null, new DummyRemoteExceptionHandler(), NETWORK_TIMER,
+                                           10000, 10000, 3, DbusEventFactory.DBUS_EVENT_V2,
+                                           TEST_CHANNELS_GROUP);
+    try
+    {
+      TestConnectionStateMessage msg = new TestConnectionStateMessage();
+      conn.requestStream("source1", null, 1000, createCheckpoint(100), null, msg);
+      waitForPushChannels(1);
+      Channel pushChannel = _pushChannels.get(0);
+      Assert.assertEquals(conn.getOutstandingCredit(), 1000);
+
+      // a heartbeat does not complete the outstanding request
+      push(pushChannel, new StreamEventsResponse(0, null));
+      TestUtil.sleep(200);
+      Assert.assertNull(msg._state);
+
+      push(pushChannel, new StreamEventsResponse(0, createEvents(100)));
+      waitForResponse(msg);
+      Assert.assertEquals(msg._state, TestConnectionStateMessage.State.STREAM_RESPONSE_SUCCESS);
+      Assert.assertEquals(conn.getOutstandingCredit(), 900);
+
+      // the puller read the events: the stream continues and the credit is topped up
+      msg = new TestConnectionStateMessage();
+      conn.requestStream("source1", null, 1000, createCheckpoint(110), null, msg);
+      Assert.assertEquals(conn.getOutstandingCredit(), 1000);
+      push(pushChannel, new StreamEventsResponse(0, createEvents(200)));
+      waitForResponse(msg);
+      Assert.assertEquals(msg._state, TestConnectionStateMessage.State.STREAM_RESPONSE_SUCCESS);
+      Assert.assertEquals(_pushChannels.size(), 1);
+
+      // the checkpoint did not move after delivered events: subscribe again from it
+      msg = new TestConnectionStateMessage();
+      conn.requestStream("source1", null, 1000, createCheckpoint(110), null, msg);
+      waitForPushChannels(2);
+      final Channel oldPushChannel = pushChannel;
+      TestUtil.assertWithBackoff(new ConditionCheck()
+      {
+        @Override
+        public boolean check()
+        {
+          return !oldPushChannel.isOpen();
+        }
+      }, "old push connection closed", 1000, null);
+      Assert.assertEquals(conn.getOutstandingCredit(), 1000);
+
+      // the puller went back to an earlier checkpoint: subscribe again from it
+      msg = new TestConnectionStateMessage();
+      conn.requestStream("source1", null, 1000, createCheckpoint(90), null, msg);
+      waitForPushChannels(3);
+
+      // a different subscription needs a new connection too
+      msg = new TestConnectionStateMessage();
+      conn.requestStream("source1,source2", null, 1000, createCheckpoint(90), null, msg);
+      waitForPushChannels(4);
+      push(_pushChannels.get(3), new StreamEventsResponse(0, createEvents(100)));
+      waitForResponse(msg);
+      Assert.assertEquals(msg._state, TestConnectionStateMessage.State.STREAM_RESPONSE_SUCCESS);
+    }
+    finally
+    {
+      conn.close();
+      callback.shutdown();
+    }
+  }
+}
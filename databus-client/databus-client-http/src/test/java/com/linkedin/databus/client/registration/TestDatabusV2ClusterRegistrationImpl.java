@@ -61,8 +61,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
@@ -437,6 +439,90 @@ public class TestDatabusV2ClusterRegistrationImpl
 		}
 	}
 
+	/**
+	 * Partitions assigned before the start and partitions gained concurrently by several
+	 * threads are all activated through the bounded activation pool.
+	 */
+	@Test
+	public void testParallelPartitionActivation() throws Exception
+	{
+		DatabusHttpClientImpl client = null;
+		ExecutorService callbackThreads = Executors.newFixedThreadPool(4);
+
+		try
+		{
+			DatabusHttpClientImpl.Config clientConfig = new DatabusHttpClientImpl.Config();
+			clientConfig.getContainer().getJmx().setRmiEnabled(false);
+			clientConfig.getContainer().setHttpPort(12004);
+			clientConfig.getClientCluster("parallel").setMaxParallelPartitionActivations(3);
+			client = new DatabusHttpClientImpl(clientConfig);
+
+			registerRelay(1, "relay1", new InetSocketAddress("localhost", 8888), "S1,S2", client);
+
+			TestDbusPartitionListener listener = new TestDbusPartitionListener();
+			StaticConfig ckptConfig = new StaticConfig("localhost:1356", "parallel", 1,1);
+			DbusClusterInfo clusterInfo = new DbusClusterInfo("parallel", 20,1);
+
+			final DatabusV2ClusterRegistrationImpl reg = new TestableDatabusV2ClusterRegistrationImpl(null,
+					                                                                             client,
+					                                                                             ckptConfig,
+					                                                                             clusterInfo,
+					                                                                             new TestDbusClusterConsumerFactory(),
+					                                                                             new TestDbusServerSideFilterFactory(),
+					                                                                             listener,
+					                                                                             "S1");
+			reg.onRegister();
+
+			// Partitions assigned before the start are activated by start()
+			for (int i = 0; i < 10; i++)
+				reg.onGainedPartitionOwnership(i);
+			assertEquals("Partition Regs size ", 0, reg.getPartitionRegs().size());
+
+			reg.start();
+			assertEquals("State Check", RegistrationState.STARTED, reg.getState());
+			assertEquals("Partition Regs size ", 10, reg.getPartitionRegs().size());
+			for (int i = 0; i < 10; i++)
+				assertEquals("Listener called ", true, listener.isAddPartitionCalled(i));
+			for (DatabusRegistration r : reg.getPartitionRegs().values())
+				assertEquals("Child State Check", RegistrationState.STARTED, r.getState());
+
+			// Concurrent ownership transitions
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 10; i < 20; i++)
+			{
+				final int partition = i;
+				futures.add(callbackThreads.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call()
+					{
+						reg.onGainedPartitionOwnership(partition);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : futures)
+				f.get(30, TimeUnit.SECONDS);
+
+			assertEquals("Partition Regs size ", 20, reg.getPartitionRegs().size());
+			for (int i = 10; i < 20; i++)
+				assertEquals("Listener called ", true, listener.isAddPartitionCalled(i));
+
+			reg.onLostPartitionOwnership(3);
+			assertEquals("Listener called ", true, listener.isDropPartitionCalled(3));
+			assertEquals("Partition Regs size ", 19, reg.getPartitionRegs().size());
+
+			reg.shutdown();
+			assertEquals("State Check", RegistrationState.SHUTDOWN, reg.getState());
+			for (DatabusRegistration r : reg.getPartitionRegs().values())
+				assertEquals("Child State Check", RegistrationState.SHUTDOWN, r.getState());
+		} finally {
+			callbackThreads.shutdownNow();
+			if ( null != client)
+				client.shutdown();
+		}
+	}
+
 	private ServerInfo registerRelay(int id, String name, InetSocketAddress addr, String sources,
 			DatabusHttpClientImpl client)
 					throws InvalidConfigException
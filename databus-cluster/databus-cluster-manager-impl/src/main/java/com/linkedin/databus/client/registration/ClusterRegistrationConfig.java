@@ -36,6 +36,7 @@ public class ClusterRegistrationConfig implements ConfigBuilder<ClusterRegistrat
 
 	public static final int DEFAULT_CONNECTION_TIMEOUT_MSEC = 60 * 1000;
 	public static final int DEFAULT_SESSION_TIMEOUT_MSEC = 30 * 1000;
+	public static final int DEFAULT_MAX_PARALLEL_PARTITION_ACTIVATIONS = 8;
 
     protected static final Logger LOG = Logger.getLogger(ClusterRegistrationConfig.class);
 
@@ -82,6 +83,10 @@ public class ClusterRegistrationConfig implements ConfigBuilder<ClusterRegistrat
 	 */
 	private int _zkConnectionTimeoutMs;
 
+	/**
+	 * Maximum number of partitions activated concurrently after a partition assignment change
+	 */
+	private int _maxParallelPartitionActivations;
 
 	/**
 	 *  Cluster Name
@@ -160,7 +165,8 @@ public class ClusterRegistrationConfig implements ConfigBuilder<ClusterRegistrat
 		return "ClusterRegistrationConfig [clusterName=" + _clusterName
 				+ ", zkAddr=" + _zkAddr + ", numPartitions=" + _numPartitions
 				+ ", quorum=" + _quorum + ", maxCkptWritesSkipped="
-				+ _maxCkptWritesSkipped + ", checkpointIntervalMs=" + _checkpointIntervalMs +
+				+ _maxCkptWritesSkipped + ", checkpointIntervalMs=" + _checkpointIntervalMs
+				+ ", maxParallelPartitionActivations=" + _maxParallelPartitionActivations +
 				"]";
 	}
 
@@ -174,12 +180,17 @@ public class ClusterRegistrationConfig implements ConfigBuilder<ClusterRegistrat
 		_checkpointIntervalMs = DEFAULT_CHECKPOINT_INTERVAL_MS;
 		_zkConnectionTimeoutMs = DEFAULT_CONNECTION_TIMEOUT_MSEC;
 		_zkSessionTimeoutMs = DEFAULT_SESSION_TIMEOUT_MSEC;
+		_maxParallelPartitionActivations = DEFAULT_MAX_PARALLEL_PARTITION_ACTIVATIONS;
 	}
 
 	@Override
 	public ClusterRegistrationStaticConfig build()
 			throws InvalidConfigException {
-		return new ClusterRegistrationStaticConfig(_clusterName, _zkAddr, _numPartitions, _quorum, _maxCkptWritesSkipped,_checkpointIntervalMs, _zkSessionTimeoutMs, _zkConnectionTimeoutMs);
+		if (_maxParallelPartitionActivations <= 0)
+			throw new InvalidConfigException("invalid maxParallelPartitionActivations: " + _maxParallelPartitionActivations);
+
+		return new ClusterRegistrationStaticConfig(_clusterName, _zkAddr, _numPartitions, _quorum, _maxCkptWritesSkipped,_checkpointIntervalMs, _zkSessionTimeoutMs, _zkConnectionTimeoutMs,
+		                                           _maxParallelPartitionActivations);
 	}
 
 	public int getZkSessionTimeoutMs() {
@@ -197,4 +208,12 @@ public class ClusterRegistrationConfig implements ConfigBuilder<ClusterRegistrat
 	public void setZkConnectionTimeoutMs(int zkConnectionTimeoutMs) {
 		this._zkConnectionTimeoutMs = zkConnectionTimeoutMs;
 	}
+
+	public int getMaxParallelPartitionActivations() {
+		return _maxParallelPartitionActivations;
+	}
+
+	public void setMaxParallelPartitionActivations(int maxParallelPartitionActivations) {
+		this._maxParallelPartitionActivations = maxParallelPartitionActivations;
+	}
 }
@@ -63,8 +63,21 @@ public class ClusterRegistrationStaticConfig
 	 */
 	private final long _checkpointIntervalMs;
 
+	/**
+	 * Maximum number of partitions which are activated (child registration built, checkpoint
+	 * fetched and connection started) concurrently after a partition assignment change.
+	 */
+	private final int _maxParallelPartitionActivations;
+
 	public ClusterRegistrationStaticConfig(String clusterName, String zkAddr,
 			long numPartitions, long quorum, int maxCkptWritesSkipped,long checkpointIntervalMs, int sessionTimeout, int connectionTimeout) {
+		this(clusterName, zkAddr, numPartitions, quorum, maxCkptWritesSkipped, checkpointIntervalMs,
+		     sessionTimeout, connectionTimeout, ClusterRegistrationConfig.DEFAULT_MAX_PARALLEL_PARTITION_ACTIVATIONS);
+	}
+
+	public ClusterRegistrationStaticConfig(String clusterName, String zkAddr,
+			long numPartitions, long quorum, int maxCkptWritesSkipped,long checkpointIntervalMs, int sessionTimeout, int connectionTimeout,
+			int maxParallelPartitionActivations) {
 		super();
 		this._clusterName = clusterName;
 		this._zkAddr = zkAddr;
@@ -74,6 +87,7 @@ public class ClusterRegistrationStaticConfig
 		this._checkpointIntervalMs = checkpointIntervalMs;
 		this._zkSessionTimeoutMs = sessionTimeout;
 		this._zkConnectionTimeoutMs = connectionTimeout;
+		this._maxParallelPartitionActivations = maxParallelPartitionActivations;
 	}
 
 	public String getClusterName() {
@@ -109,6 +123,10 @@ public class ClusterRegistrationStaticConfig
 		return _zkConnectionTimeoutMs;
 	}
 
+	public int getMaxParallelPartitionActivations() {
+		return _maxParallelPartitionActivations;
+	}
+
 	@Override
 	public String toString() {
 		return "ClusterRegistrationStaticConfig [_clusterName=" + _clusterName
@@ -117,6 +135,7 @@ public class ClusterRegistrationStaticConfig
 				+ _zkConnectionTimeoutMs + ", _numPartitions="
 				+ _numPartitions + ", _quorum=" + _quorum
 				+ ", _maxCkptWritesSkipped=" + _maxCkptWritesSkipped
-				+ ", _checkpointIntervalMs=" + _checkpointIntervalMs + "]";
+				+ ", _checkpointIntervalMs=" + _checkpointIntervalMs
+				+ ", _maxParallelPartitionActivations=" + _maxParallelPartitionActivations + "]";
 	}
 }
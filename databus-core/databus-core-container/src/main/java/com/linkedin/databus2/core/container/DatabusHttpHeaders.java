@@ -36,6 +36,8 @@ public class DatabusHttpHeaders
   public static final String DATABUS_ERROR_CAUSE_CLASS_HEADER = DATABUS_HTTP_HEADER_PREFIX + "error-cause";
   public static final String DATABUS_ERROR_CAUSE_MESSAGE_HEADER = DATABUS_HTTP_HEADER_PREFIX + "error-cause-message";
   public static final String DATABUS_PENDING_EVENT_SIZE = DATABUS_HTTP_HEADER_PREFIX + "pending-event-size";
+  /** max row id of a snapshot source; returned by bootstrap servers with the first page of a source */
+  public static final String DATABUS_SNAPSHOT_MAX_ID = DATABUS_HTTP_HEADER_PREFIX + "snapshot-max-id";
 
   public static final String DBUS_SERVER_HOST_HDR = DATABUS_HTTP_HEADER_PREFIX + "server-host";
   public static final String DBUS_SERVER_SERVICE_HDR = DATABUS_HTTP_HEADER_PREFIX + "server-service";
@@ -108,6 +108,25 @@ public class HttpStatisticsCollector extends ReadWriteSyncedObject
     registerAsMBeans();
   }
 
+  /** Creates a view of another collector which registers the calls of a peer */
+  private HttpStatisticsCollector(HttpStatisticsCollector other, String peer)
+  {
+    super(other);
+
+    _mbeanServer = other._mbeanServer;
+    _curPeer = peer;
+    _enabled = other._enabled;
+    _id = other._id;
+    _name = other._name;
+    _perSourceNamePrefix = other._perSourceNamePrefix;
+    _perPeerPrefix = other._perPeerPrefix;
+    _totalStats = other._totalStats;
+    _perSourceStats = other._perSourceStats;
+    _perClientStats = other._perClientStats;
+    //the view is not an mbean by itself
+    _collectorObjName = null;
+  }
+
   protected void registerAsMBeans()
   {
     if (null != _mbeanServer && null != _collectorObjName)
@@ -170,6 +189,16 @@ public class HttpStatisticsCollector extends ReadWriteSyncedObject
     return new HttpStatisticsCollector(_id, _name, true, false, client, null);
   }
 
+  /**
+   * Creates a view of this collector for the calls of a peer. Unlike
+   * {@link #createForClientConnection(String)}, the view updates the stats of this collector
+   * directly, so it must not be merged into it or reset.
+   */
+  public HttpStatisticsCollector createPeerView(String peer)
+  {
+    return new HttpStatisticsCollector(this, peer);
+  }
+
   @Override
   public DbusHttpTotalStats getTotalStats()
   {
@@ -0,0 +1,370 @@
+package com.linkedin.databus2.core.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventInternalReadable;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+
+/**
+ * A batch of pre-serialized events pushed by an external producer to a relay over the TCP
+ * interface. Each batch contains one or more complete windows of {@link DbusEventFactory#DBUS_EVENT_V2}
+ * events for a single physical partition, serialized in the byte order of the relay event factory.
+ * Producers do not have to wait for the acknowledgement of a batch before sending the next one;
+ * the relay processes the batches of a connection in order and returns one
+ * {@link IngestEventsResponse} or {@link ErrorResponse} per batch in the same order.
+ *
+ * <p>Binary format (the header is always little endian):
+ * <pre>
+ * byte   opcode ({@link #OPCODE})
+ * byte   protocol version
+ * long   batch id (echoed back in the acknowledgement)
+ * int    physical partition id
+ * short  length of the physical partition name
+ * byte[] physical partition name (UTF-8)
+ * long   scn of the window which precedes the batch or -1 if unknown
+ * int    length of the events
+ * byte[] serialized events
+ * </pre>
+ *
+ * <p>A batch without events can be used to find the last scn of a partition on the relay.
+ */
+public class IngestEventsRequest extends SimpleDatabusRequest
+{
+  public static final byte OPCODE = (byte)0xA2;
+  public static final byte PROTOCOL_VERSION = 1;
+
+  /** Max size of the events in a single batch; protects against garbage on the wire */
+  public static final int MAX_EVENTS_LENGTH = 100 * 1024 * 1024;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String COMMAND_NAME = "ingestEvents";
+
+  private final long _batchId;
+  private final PhysicalPartition _physicalPartition;
+  private final long _prevScn;
+  private final ChannelBuffer _events;
+
+  //filled in by validateEvents()
+  private int _numEvents;
+  private int _numWindows;
+  private long _firstWindowScn = -1;
+  private long _lastWindowScn = -1;
+  private final List<Short> _srcIds = new ArrayList<Short>();
+
+  private IngestEventsRequest(byte protocolVersion, long batchId,
+                              PhysicalPartition physicalPartition, long prevScn,
+                              ChannelBuffer events)
+  {
+    super(protocolVersion);
+    _batchId = batchId;
+    _physicalPartition = physicalPartition;
+    _prevScn = prevScn;
+    _events = null != events ? events : ChannelBuffers.EMPTY_BUFFER;
+  }
+
+  /**
+   * Creates a new batch
+   * @param batchId             an id used by the producer to match the acknowledgements
+   * @param physicalPartition   the partition of the events
+   * @param prevScn             the scn of the window preceding the batch; -1 disables the gap check
+   * @param events              the serialized events; the buffer is not copied
+   */
+  public static IngestEventsRequest createRequest(long batchId, PhysicalPartition physicalPartition,
+                                                  long prevScn, ChannelBuffer events)
+  {
+    return new IngestEventsRequest(PROTOCOL_VERSION, batchId, physicalPartition, prevScn, events);
+  }
+
+  public long getBatchId()
+  {
+    return _batchId;
+  }
+
+  public PhysicalPartition getPhysicalPartition()
+  {
+    return _physicalPartition;
+  }
+
+  public long getPrevScn()
+  {
+    return _prevScn;
+  }
+
+  public ChannelBuffer getEvents()
+  {
+    return _events;
+  }
+
+  public int getEventsSize()
+  {
+    return _events.readableBytes();
+  }
+
+  /** The number of events in the batch; valid after {@link #validateEvents(DbusEventFactory)} */
+  public int getNumEvents()
+  {
+    return _numEvents;
+  }
+
+  /** The number of windows in the batch; valid after {@link #validateEvents(DbusEventFactory)} */
+  public int getNumWindows()
+  {
+    return _numWindows;
+  }
+
+  public long getFirstWindowScn()
+  {
+    return _firstWindowScn;
+  }
+
+  public long getLastWindowScn()
+  {
+    return _lastWindowScn;
+  }
+
+  /** The distinct source ids of the data events; valid after {@link #validateEvents(DbusEventFactory)} */
+  public List<Short> getSrcIds()
+  {
+    return _srcIds;
+  }
+
+  /**
+   * Returns the events as a ByteBuffer in the byte order of the specified factory. The buffer
+   * shares the bytes of the request when possible.
+   */
+  public ByteBuffer getEventsByteBuffer(DbusEventFactory eventFactory)
+  {
+    return _events.toByteBuffer().order(eventFactory.getByteOrder());
+  }
+
+  /**
+   * Validates the events in place: every event has to be a valid V2 event, the windows have to
+   * be complete and their scns increasing.
+   * @return null if the events are valid or the error response to be sent to the producer
+   */
+  public ErrorResponse validateEvents(DbusEventFactory eventFactory)
+  {
+    _numEvents = 0;
+    _numWindows = 0;
+    _firstWindowScn = -1;
+    _lastWindowScn = -1;
+    _srcIds.clear();
+    if (0 == _events.readableBytes()) return null;
+
+    ByteBuffer buf = getEventsByteBuffer(eventFactory);
+    DbusEventInternalReadable event = null;
+    long curWindowScn = -1;
+    int pos = buf.position();
+    while (pos < buf.limit())
+    {
+      byte version = buf.get(pos);
+      if (DbusEventFactory.DBUS_EVENT_V2 != version)
+      {
+        return ErrorResponse.createUnsupportedDbusEventVersion("event " + _numEvents + ": version " +
+                                                               version);
+      }
+      event = (null == event) ? eventFactory.createReadOnlyDbusEventFromBuffer(buf, pos)
+                              : event.reset(buf, pos);
+      if (!event.isValid(false))
+      {
+        return ErrorResponse.createInvalidEvent("invalid or partial event " + _numEvents +
+                                                " at offset " + (pos - buf.position()));
+      }
+
+      long scn = event.sequence();
+      if (-1 == curWindowScn)
+      {
+        if (scn <= _lastWindowScn)
+        {
+          return ErrorResponse.createInvalidEvent("window scn " + scn +
+                                                  " not greater than previous window scn " +
+                                                  _lastWindowScn);
+        }
+        curWindowScn = scn;
+      }
+      else if (scn != curWindowScn)
+      {
+        return ErrorResponse.createInvalidEvent("event scn " + scn + " in window " + curWindowScn);
+      }
+
+      if (event.isEndOfPeriodMarker())
+      {
+        if (-1 == _firstWindowScn) _firstWindowScn = curWindowScn;
+        _lastWindowScn = curWindowScn;
+        curWindowScn = -1;
+        ++_numWindows;
+      }
+      else if (event.isControlMessage())
+      {
+        return ErrorResponse.createInvalidEvent("unexpected control event with source id " +
+                                                event.getSourceId());
+      }
+      else
+      {
+        short srcId = (short)event.getSourceId();
+        if (!_srcIds.contains(srcId))
+        {
+          _srcIds.add(srcId);
+        }
+      }
+
+      ++_numEvents;
+      pos += event.size();
+    }
+
+    if (-1 != curWindowScn)
+    {
+      return ErrorResponse.createInvalidEvent("incomplete window " + curWindowScn);
+    }
+    return null;
+  }
+
+  @Override
+  public ChannelBuffer toBinaryChannelBuffer()
+  {
+    String ppartName = _physicalPartition.getName();
+    byte[] nameBytes = null != ppartName ? ppartName.getBytes(UTF8) : new byte[0];
+
+    ChannelBuffer header = ChannelBuffers.buffer(BinaryProtocol.BYTE_ORDER,
+                                                 1 + 1 + 8 + 4 + 2 + nameBytes.length + 8 + 4);
+    header.writeByte(OPCODE);
+    header.writeByte(_protocolVersion);
+    header.writeLong(_batchId);
+    header.writeInt(_physicalPartition.getId());
+    header.writeShort(nameBytes.length);
+    header.writeBytes(nameBytes);
+    header.writeLong(_prevScn);
+    header.writeInt(_events.readableBytes());
+    if (0 == _events.readableBytes()) return header;
+
+    //composite buffers require the same byte order; the order does not matter for the event bytes
+    ChannelBuffer events = BinaryProtocol.BYTE_ORDER == _events.order() ?
+        _events : ChannelBuffers.wrappedBuffer(_events.toByteBuffer().order(BinaryProtocol.BYTE_ORDER));
+    return ChannelBuffers.wrappedBuffer(header, events);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "{batchId:" + _batchId + ", partition:" + _physicalPartition + ", prevScn:" + _prevScn +
+        ", eventsSize:" + getEventsSize() + "}";
+  }
+
+  /**
+   * Parses IngestEventsRequest messages after the opcode has been consumed. The events of the
+   * parsed request are a slice of the network buffer and are only valid until the execution
+   * handler returns.
+   */
+  public static class BinaryParser extends BaseBinaryCommandParser
+  {
+    private static final int FIXED_SIZE = 1 + 8 + 4 + 2;
+
+    @Override
+    public ParseResult parseBinary(ChannelBuffer buf) throws Exception
+    {
+      if (buf.readableBytes() < FIXED_SIZE)
+      {
+        return ParseResult.INCOMPLETE_DATA;
+      }
+      int startIdx = buf.readerIndex();
+      byte protocolVersion = buf.getByte(startIdx);
+      if (PROTOCOL_VERSION != protocolVersion)
+      {
+        throw new UnsupportedProtocolVersionException(protocolVersion);
+      }
+      long batchId = getLong(buf, startIdx + 1);
+      int ppartId = getInt(buf, startIdx + 9);
+      short nameLen = getShort(buf, startIdx + 13);
+      if (nameLen < 0)
+      {
+        buf.skipBytes(FIXED_SIZE);
+        setError(ErrorResponse.createInvalidRequestParam(COMMAND_NAME, "partitionNameLength",
+                                                         Short.toString(nameLen)));
+        return ParseResult.DONE;
+      }
+      int eventsLenIdx = startIdx + FIXED_SIZE + nameLen + 8;
+      if (buf.readableBytes() < FIXED_SIZE + nameLen + 8 + 4)
+      {
+        return ParseResult.INCOMPLETE_DATA;
+      }
+      int eventsLen = getInt(buf, eventsLenIdx);
+      if (eventsLen < 0 || eventsLen > MAX_EVENTS_LENGTH)
+      {
+        buf.skipBytes(FIXED_SIZE + nameLen + 8 + 4);
+        setError(ErrorResponse.createInvalidRequestParam(COMMAND_NAME, "eventsLength",
+                                                         Integer.toString(eventsLen)));
+        return ParseResult.DONE;
+      }
+      if (buf.readableBytes() < FIXED_SIZE + nameLen + 8 + 4 + eventsLen)
+      {
+        return ParseResult.INCOMPLETE_DATA;
+      }
+
+      byte[] nameBytes = new byte[nameLen];
+      buf.getBytes(startIdx + FIXED_SIZE, nameBytes);
+      long prevScn = getLong(buf, startIdx + FIXED_SIZE + nameLen);
+      buf.skipBytes(FIXED_SIZE + nameLen + 8 + 4);
+      ChannelBuffer events = buf.readSlice(eventsLen);
+
+      PhysicalPartition ppart = new PhysicalPartition(ppartId, new String(nameBytes, UTF8));
+      setCommand(new IngestEventsRequest(protocolVersion, batchId, ppart, prevScn, events));
+      return ParseResult.DONE;
+    }
+
+    /** The header is always little endian while the server buffers use the event byte order */
+    private static short getShort(ChannelBuffer buf, int index)
+    {
+      short value = buf.getShort(index);
+      return BinaryProtocol.BYTE_ORDER == buf.order() ? value : Short.reverseBytes(value);
+    }
+
+    private static int getInt(ChannelBuffer buf, int index)
+    {
+      int value = buf.getInt(index);
+      return BinaryProtocol.BYTE_ORDER == buf.order() ? value : Integer.reverseBytes(value);
+    }
+
+    private static long getLong(ChannelBuffer buf, int index)
+    {
+      long value = buf.getLong(index);
+      return BinaryProtocol.BYTE_ORDER == buf.order() ? value : Long.reverseBytes(value);
+    }
+  }
+
+  public static class BinaryParserFactory implements BinaryCommandParserFactory
+  {
+    @Override
+    public BinaryCommandParser createParser(Channel channel, ByteOrder byteOrder)
+    {
+      return new BinaryParser();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.linkedin.databus2.core.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * The acknowledgement of an {@link IngestEventsRequest} batch.
+ *
+ * <p>Binary format (little endian):
+ * <pre>
+ * byte   result code ({@link BinaryProtocol#RESULT_OK})
+ * int    length of the rest of the response (20)
+ * long   batch id
+ * long   the last scn in the relay buffer of the partition after the batch
+ * int    number of events appended to the buffer
+ * </pre>
+ */
+public class IngestEventsResponse extends SimpleDatabusResponse
+{
+  private static final int RESPONSE_LEN = 8 + 8 + 4;
+
+  private final long _batchId;
+  private final long _lastWrittenScn;
+  private final int _numEventsAppended;
+
+  public IngestEventsResponse(long batchId, long lastWrittenScn, int numEventsAppended)
+  {
+    super(IngestEventsRequest.PROTOCOL_VERSION);
+    _batchId = batchId;
+    _lastWrittenScn = lastWrittenScn;
+    _numEventsAppended = numEventsAppended;
+  }
+
+  public long getBatchId()
+  {
+    return _batchId;
+  }
+
+  public long getLastWrittenScn()
+  {
+    return _lastWrittenScn;
+  }
+
+  public int getNumEventsAppended()
+  {
+    return _numEventsAppended;
+  }
+
+  /**
+   * Decodes a response which starts with {@link BinaryProtocol#RESULT_OK}; the buffer has to be
+   * in {@link BinaryProtocol#BYTE_ORDER}.
+   * @return the response or null if the buffer does not contain a complete response; in the
+   *         latter case the reader index of the buffer is not changed
+   */
+  public static IngestEventsResponse decodeFromChannelBuffer(ChannelBuffer buffer)
+  {
+    if (buffer.readableBytes() < 1 + 4 + RESPONSE_LEN) return null;
+    int startIdx = buffer.readerIndex();
+    int responseLen = buffer.getInt(startIdx + 1);
+    if (responseLen < RESPONSE_LEN) throw new IllegalArgumentException("responseLen=" + responseLen);
+    if (buffer.readableBytes() < 1 + 4 + responseLen) return null;
+
+    buffer.skipBytes(1 + 4);
+    long batchId = buffer.readLong();
+    long lastWrittenScn = buffer.readLong();
+    int numEventsAppended = buffer.readInt();
+    buffer.skipBytes(responseLen - RESPONSE_LEN);
+    return new IngestEventsResponse(batchId, lastWrittenScn, numEventsAppended);
+  }
+
+  @Override
+  public ChannelBuffer serializeToBinary()
+  {
+    ChannelBuffer result = ChannelBuffers.buffer(BinaryProtocol.BYTE_ORDER, 1 + 4 + RESPONSE_LEN);
+    result.writeByte(BinaryProtocol.RESULT_OK);
+    result.writeInt(RESPONSE_LEN);
+    result.writeLong(_batchId);
+    result.writeLong(_lastWrittenScn);
+    result.writeInt(_numEventsAppended);
+    return result;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "{batchId:" + _batchId + ", lastWrittenScn:" + _lastWrittenScn +
+        ", numEventsAppended:" + _numEventsAppended + "}";
+  }
+}
@@ -0,0 +1,232 @@
+package com.linkedin.databus2.core.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+
+/**
+ * The client side of the TCP push-based streaming command. A client sends a single SUBSCRIBE
+ * message with the same parameters as the HTTP /stream request (subscriptions or sources,
+ * checkpoint, filters, max event version) and an initial credit in bytes. The server then pushes
+ * {@link StreamEventsResponse} frames as new windows are committed to its buffers without ever
+ * exceeding the credit granted by the client. The client extends the credit with CREDIT messages
+ * as it consumes the pushed events.
+ *
+ * <p>Binary format (always little endian, independently of the byte order of the events):
+ * <pre>
+ * byte   opcode ({@link #OPCODE})
+ * byte   protocol version
+ * byte   message type ({@link #SUBSCRIBE} or {@link #CREDIT})
+ * int    credit in bytes
+ * int    length of the subscription parameters (0 for CREDIT)
+ * byte[] subscription parameters as a JSON map (UTF-8)
+ * </pre>
+ */
+public class StreamEventsRequest extends SimpleDatabusRequest
+{
+  public static final byte OPCODE = (byte)0xA1;
+  public static final byte PROTOCOL_VERSION = 1;
+
+  public static final byte SUBSCRIBE = 1;
+  public static final byte CREDIT = 2;
+
+  /** Max size of the subscription parameters; protects against garbage on the wire */
+  public static final int MAX_PARAMS_LENGTH = 10 * 1024 * 1024;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int HEADER_SIZE = 1 + 1 + 1 + 4 + 4;
+
+  private final byte _messageType;
+  private final int _credit;
+  private final Map<String, String> _params;
+
+  private StreamEventsRequest(byte protocolVersion, byte messageType, int credit,
+                              Map<String, String> params)
+  {
+    super(protocolVersion);
+    _messageType = messageType;
+    _credit = credit;
+    _params = params;
+  }
+
+  /**
+   * Creates a subscription message
+   * @param params      the parameters of the equivalent HTTP /stream request
+   * @param credit      the number of bytes the server can push before it receives more credit
+   */
+  public static StreamEventsRequest createSubscribe(Map<String, String> params, int credit)
+  {
+    return new StreamEventsRequest(PROTOCOL_VERSION, SUBSCRIBE, credit, params);
+  }
+
+  /** Creates a message which grants the server additional credit bytes */
+  public static StreamEventsRequest createCredit(int credit)
+  {
+    return new StreamEventsRequest(PROTOCOL_VERSION, CREDIT, credit,
+                                   Collections.<String, String>emptyMap());
+  }
+
+  public byte getMessageType()
+  {
+    return _messageType;
+  }
+
+  public boolean isSubscribe()
+  {
+    return SUBSCRIBE == _messageType;
+  }
+
+  public int getCredit()
+  {
+    return _credit;
+  }
+
+  public Map<String, String> getParams()
+  {
+    return _params;
+  }
+
+  @Override
+  public ChannelBuffer toBinaryChannelBuffer()
+  {
+    byte[] paramsBytes = null;
+    if (SUBSCRIBE == _messageType)
+    {
+      try
+      {
+        paramsBytes = new ObjectMapper().writeValueAsString(_params).getBytes(UTF8);
+      }
+      catch (IOException e)
+      {
+        throw new IllegalStateException("unable to serialize stream parameters: " + e.getMessage(), e);
+      }
+    }
+    int paramsLen = null == paramsBytes ? 0 : paramsBytes.length;
+
+    ChannelBuffer result = ChannelBuffers.buffer(BinaryProtocol.BYTE_ORDER, HEADER_SIZE + paramsLen);
+    result.writeByte(OPCODE);
+    result.writeByte(_protocolVersion);
+    result.writeByte(_messageType);
+    result.writeInt(_credit);
+    result.writeInt(paramsLen);
+    if (paramsLen > 0)
+    {
+      result.writeBytes(paramsBytes);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "{type:" + _messageType + ", credit:" + _credit + ", params:" + _params + "}";
+  }
+
+  /** Parses StreamEventsRequest messages after the opcode has been consumed */
+  public static class BinaryParser extends BaseBinaryCommandParser
+  {
+    private static final int FIXED_SIZE = HEADER_SIZE - 1;
+
+    @Override
+    public ParseResult parseBinary(ChannelBuffer buf) throws Exception
+    {
+      if (buf.readableBytes() < FIXED_SIZE)
+      {
+        return ParseResult.INCOMPLETE_DATA;
+      }
+      int startIdx = buf.readerIndex();
+      byte protocolVersion = buf.getByte(startIdx);
+      if (PROTOCOL_VERSION != protocolVersion)
+      {
+        throw new UnsupportedProtocolVersionException(protocolVersion);
+      }
+      byte messageType = buf.getByte(startIdx + 1);
+      int credit = getInt(buf, startIdx + 2);
+      int paramsLen = getInt(buf, startIdx + 6);
+      if (paramsLen < 0 || paramsLen > MAX_PARAMS_LENGTH)
+      {
+        buf.skipBytes(FIXED_SIZE);
+        setError(ErrorResponse.createInvalidRequestParam("streamEvents", "paramsLength",
+                                                         Integer.toString(paramsLen)));
+        return ParseResult.DONE;
+      }
+      if (buf.readableBytes() < FIXED_SIZE + paramsLen)
+      {
+        return ParseResult.INCOMPLETE_DATA;
+      }
+      buf.skipBytes(FIXED_SIZE);
+
+      switch (messageType)
+      {
+        case SUBSCRIBE:
+        {
+          byte[] paramsBytes = new byte[paramsLen];
+          buf.readBytes(paramsBytes);
+          Map<String, String> params =
+              new ObjectMapper().readValue(new String(paramsBytes, UTF8),
+                                           new TypeReference<Map<String, String>>(){});
+          setCommand(new StreamEventsRequest(protocolVersion, SUBSCRIBE, credit, params));
+          break;
+        }
+        case CREDIT:
+        {
+          buf.skipBytes(paramsLen);
+          setCommand(new StreamEventsRequest(protocolVersion, CREDIT, credit,
+                                             Collections.<String, String>emptyMap()));
+          break;
+        }
+        default:
+        {
+          buf.skipBytes(paramsLen);
+          setError(ErrorResponse.createInvalidRequestParam("streamEvents", "messageType",
+                                                           Byte.toString(messageType)));
+        }
+      }
+
+      return ParseResult.DONE;
+    }
+
+    /** The message is always little endian while the server buffers use the event byte order */
+    private static int getInt(ChannelBuffer buf, int index)
+    {
+      int value = buf.getInt(index);
+      return BinaryProtocol.BYTE_ORDER == buf.order() ? value : Integer.reverseBytes(value);
+    }
+  }
+
+  public static class BinaryParserFactory implements BinaryCommandParserFactory
+  {
+    @Override
+    public BinaryCommandParser createParser(Channel channel, ByteOrder byteOrder)
+    {
+      return new BinaryParser();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.linkedin.databus2.core.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * A frame of events pushed by the server in response to a {@link StreamEventsRequest}
+ * subscription. Frames with no events are used as heartbeats and to report the size of a pending
+ * event which does not fit in the credit granted by the client.
+ *
+ * <p>Binary format (little endian):
+ * <pre>
+ * byte   result code ({@link BinaryProtocol#RESULT_OK})
+ * int    length of the rest of the frame
+ * int    size of the next event if it does not fit in the current credit; 0 otherwise
+ * byte[] serialized events
+ * </pre>
+ * Errors are reported using {@link ErrorResponse} and terminate the subscription.
+ */
+public class StreamEventsResponse extends SimpleDatabusResponse
+{
+  private final int _pendingEventSize;
+  private final ChannelBuffer _events;
+
+  /**
+   * @param pendingEventSize      the size of the next event if it does not fit in the credit
+   * @param events                the serialized events; the buffer is not copied
+   */
+  public StreamEventsResponse(int pendingEventSize, ChannelBuffer events)
+  {
+    super(StreamEventsRequest.PROTOCOL_VERSION);
+    _pendingEventSize = pendingEventSize;
+    _events = null != events ? events : ChannelBuffers.EMPTY_BUFFER;
+  }
+
+  public int getPendingEventSize()
+  {
+    return _pendingEventSize;
+  }
+
+  public ChannelBuffer getEvents()
+  {
+    return _events;
+  }
+
+  public int getEventsSize()
+  {
+    return _events.readableBytes();
+  }
+
+  /**
+   * Decodes a frame which starts with {@link BinaryProtocol#RESULT_OK}
+   * @return the frame or null if the buffer does not contain a complete frame; in the latter case
+   *         the reader index of the buffer is not changed
+   */
+  public static StreamEventsResponse decodeFromChannelBuffer(ChannelBuffer buffer)
+  {
+    if (buffer.readableBytes() < 1 + 4 + 4) return null;
+    int startIdx = buffer.readerIndex();
+    int responseLen = getInt(buffer, startIdx + 1);
+    if (responseLen < 4) throw new IllegalArgumentException("responseLen=" + responseLen);
+    if (buffer.readableBytes() < 1 + 4 + responseLen) return null;
+
+    int pendingEventSize = getInt(buffer, startIdx + 5);
+    buffer.skipBytes(1 + 4 + 4);
+    ChannelBuffer events = buffer.readBytes(responseLen - 4);
+    return new StreamEventsResponse(pendingEventSize, events);
+  }
+
+  private static int getInt(ChannelBuffer buffer, int index)
+  {
+    int value = buffer.getInt(index);
+    return BinaryProtocol.BYTE_ORDER == buffer.order() ? value : Integer.reverseBytes(value);
+  }
+
+  @Override
+  public ChannelBuffer serializeToBinary()
+  {
+    ChannelBuffer header = ChannelBuffers.buffer(BinaryProtocol.BYTE_ORDER, 1 + 4 + 4);
+    header.writeByte(BinaryProtocol.RESULT_OK);
+    header.writeInt(4 + _events.readableBytes());
+    header.writeInt(_pendingEventSize);
+    if (0 == _events.readableBytes()) return header;
+
+    //composite buffers require the same byte order; the order does not matter for the event bytes
+    ChannelBuffer events = BinaryProtocol.BYTE_ORDER == _events.order() ?
+        _events : ChannelBuffers.wrappedBuffer(_events.toByteBuffer().order(BinaryProtocol.BYTE_ORDER));
+    return ChannelBuffers.wrappedBuffer(header, events);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "{pendingEventSize:" + _pendingEventSize + ", eventsSize:" + getEventsSize() + "}";
+  }
+}
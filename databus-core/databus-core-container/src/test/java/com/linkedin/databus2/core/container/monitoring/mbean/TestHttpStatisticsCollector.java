@@ -0,0 +1,60 @@
+package com.linkedin.databus2.core.container.monitoring.mbean;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.Checkpoint;
+
+public class TestHttpStatisticsCollector
+{
+  @Test
+  public void testPeerView()
+  {
+    HttpStatisticsCollector global = new HttpStatisticsCollector(1, "test", true, true, null);
+    HttpStatisticsCollector view1 = global.createPeerView("peer1");
+    HttpStatisticsCollector view2 = global.createPeerView("peer2");
+
+    Checkpoint cp = new Checkpoint();
+    cp.setWindowScn(100L);
+    view1.registerStreamRequest(cp, Arrays.asList(1, 2));
+    view1.registerStreamResponse(10);
+    view2.registerStreamRequest(cp, Arrays.asList(2));
+    view2.registerStreamResponse(20);
+    view2.registerSourcesCall();
+
+    // the calls are visible in the global stats without any merging
+    Assert.assertEquals(global.getTotalStats().getNumStreamCalls(), 2);
+    Assert.assertEquals(global.getTotalStats().getNumSourcesCalls(), 1);
+    Assert.assertEquals(global.getTotalStats().getNumPeers(), 2);
+    Assert.assertEquals(global.getPeerStats("peer1").getNumStreamCalls(), 1);
+    Assert.assertEquals(global.getPeerStats("peer2").getNumSourcesCalls(), 1);
+    Assert.assertEquals(global.getSources(), Arrays.asList(1, 2));
+    Assert.assertEquals(global.getPeers().size(), 2);
+
+    // the views share the enabled flag of the global collector
+    global.setEnabled(false);
+    global.createPeerView("peer3").registerStreamResponse(30);
+    Assert.assertEquals(global.getTotalStats().getNumStreamCalls(), 2);
+  }
+}
@@ -0,0 +1,154 @@
+package com.linkedin.databus2.core.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventInfo;
+import com.linkedin.databus.core.DbusEventInternalWritable;
+import com.linkedin.databus.core.DbusEventKey;
+import com.linkedin.databus.core.DbusEventV2Factory;
+import com.linkedin.databus.core.DbusOpcode;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+
+public class TestIngestEventsRequest
+{
+  private static final DbusEventFactory EVENT_FACTORY = new DbusEventV2Factory(ByteOrder.BIG_ENDIAN);
+  private static final PhysicalPartition PPART = new PhysicalPartition(3, "testDb");
+
+  private static void addEvent(ByteBuffer buf, long scn, short srcId, boolean eop) throws Exception
+  {
+    DbusEventInfo info = new DbusEventInfo(DbusOpcode.UPSERT, scn, (short)PPART.getId().intValue(),
+                                           (short)0, System.nanoTime(), srcId, new byte[16],
+                                           eop ? new byte[0] : new byte[100], false, true,
+                                           DbusEventFactory.DBUS_EVENT_V2, (short)1, null);
+    // V2 serialization advances the buffer position
+    if (eop) EVENT_FACTORY.serializeLongKeyEndOfPeriodMarker(buf, info);
+    else DbusEventFactory.serializeEvent(new DbusEventKey(scn), buf, info);
+  }
+
+  private static ChannelBuffer createWindows(long firstScn, int numWindows, boolean lastComplete)
+      throws Exception
+  {
+    ByteBuffer buf = ByteBuffer.allocate(64 * 1024).order(EVENT_FACTORY.getByteOrder());
+    for (int i = 0; i < numWindows; ++i)
+    {
+      long scn = firstScn + 10 * i;
+      addEvent(buf, scn, (short)101, false);
+      addEvent(buf, scn, (short)102, false);
+      if (lastComplete || i < numWindows - 1) addEvent(buf, scn, DbusEventInternalWritable.EOPMarkerSrcId, true);
+    }
+    buf.flip();
+    return ChannelBuffers.wrappedBuffer(buf);
+  }
+
+  private static IngestEventsRequest roundTrip(IngestEventsRequest req) throws Exception
+  {
+    ChannelBuffer wire = req.toBinaryChannelBuffer();
+    // the server buffers use the byte order of the events
+    ChannelBuffer buf = ChannelBuffers.buffer(ByteOrder.BIG_ENDIAN, wire.readableBytes());
+    buf.writeBytes(wire);
+    Assert.assertEquals(buf.readByte(), IngestEventsRequest.OPCODE);
+
+    IngestEventsRequest.BinaryParser parser = new IngestEventsRequest.BinaryParser();
+    parser.startNew();
+    Assert.assertEquals(parser.parseBinary(buf.slice(buf.readerIndex(), buf.readableBytes() - 1)),
+                        BinaryCommandParser.ParseResult.INCOMPLETE_DATA);
+    Assert.assertEquals(parser.parseBinary(buf), BinaryCommandParser.ParseResult.DONE);
+    Assert.assertNull(parser.getError());
+    Assert.assertFalse(buf.readable());
+    return (IngestEventsRequest)parser.getCommand();
+  }
+
+  @Test
+  public void testRoundTripAndValidation() throws Exception
+  {
+    ChannelBuffer events = createWindows(100, 3, true);
+    IngestEventsRequest req =
+        roundTrip(IngestEventsRequest.createRequest(7, PPART, 90, events.duplicate()));
+    Assert.assertEquals(req.getBatchId(), 7);
+    Assert.assertEquals(req.getPhysicalPartition(), PPART);
+    Assert.assertEquals(req.getPrevScn(), 90);
+    Assert.assertEquals(req.getEvents(), events);
+
+    Assert.assertNull(req.validateEvents(EVENT_FACTORY));
+    Assert.assertEquals(req.getNumEvents(), 9);
+    Assert.assertEquals(req.getNumWindows(), 3);
+    Assert.assertEquals(req.getFirstWindowScn(), 100);
+    Assert.assertEquals(req.getLastWindowScn(), 120);
+    Assert.assertEquals(req.getSrcIds().size(), 2);
+
+    IngestEventsRequest empty = roundTrip(IngestEventsRequest.createRequest(8, PPART, -1, null));
+    Assert.assertNull(empty.validateEvents(EVENT_FACTORY));
+    Assert.assertEquals(empty.getNumEvents(), 0);
+  }
+
+  @Test
+  public void testInvalidEvents() throws Exception
+  {
+    IngestEventsRequest partial =
+        IngestEventsRequest.createRequest(1, PPART, -1, createWindows(100, 2, false));
+    ErrorResponse err = partial.validateEvents(EVENT_FACTORY);
+    Assert.assertNotNull(err);
+    Assert.assertEquals(err.getErrorCode(), BinaryProtocol.RESULT_ERR_INVALID_EVENT);
+
+    ChannelBuffer corrupted = createWindows(100, 1, true);
+    corrupted.setByte(corrupted.readableBytes() / 3, corrupted.getByte(corrupted.readableBytes() / 3) + 1);
+    err = IngestEventsRequest.createRequest(2, PPART, -1, corrupted).validateEvents(EVENT_FACTORY);
+    Assert.assertNotNull(err);
+    Assert.assertEquals(err.getErrorCode(), BinaryProtocol.RESULT_ERR_INVALID_EVENT);
+
+    ChannelBuffer v1 = createWindows(100, 1, true);
+    v1.setByte(0, DbusEventFactory.DBUS_EVENT_V1);
+    err = IngestEventsRequest.createRequest(3, PPART, -1, v1).validateEvents(EVENT_FACTORY);
+    Assert.assertNotNull(err);
+    Assert.assertEquals(err.getErrorCode(), BinaryProtocol.RESULT_ERR_UNSUPPORTED_DBUS_EVENT_VERSION);
+
+    ChannelBuffer decreasing = ChannelBuffers.wrappedBuffer(createWindows(200, 1, true),
+                                                           createWindows(100, 1, true));
+    err = IngestEventsRequest.createRequest(4, PPART, -1, decreasing).validateEvents(EVENT_FACTORY);
+    Assert.assertNotNull(err);
+    Assert.assertEquals(err.getErrorCode(), BinaryProtocol.RESULT_ERR_INVALID_EVENT);
+  }
+
+  @Test
+  public void testResponseRoundTrip() throws Exception
+  {
+    ChannelBuffer buf = ChannelBuffers.wrappedBuffer(
+        new IngestEventsResponse(5, 1234, 17).serializeToBinary(),
+        new IngestEventsResponse(6, 1240, 0).serializeToBinary());
+    Assert.assertNull(IngestEventsResponse.decodeFromChannelBuffer(buf.slice(0, 10)));
+
+    IngestEventsResponse resp = IngestEventsResponse.decodeFromChannelBuffer(buf);
+    Assert.assertEquals(resp.getBatchId(), 5);
+    Assert.assertEquals(resp.getLastWrittenScn(), 1234);
+    Assert.assertEquals(resp.getNumEventsAppended(), 17);
+    resp = IngestEventsResponse.decodeFromChannelBuffer(buf);
+    Assert.assertEquals(resp.getBatchId(), 6);
+    Assert.assertFalse(buf.readable());
+  }
+}
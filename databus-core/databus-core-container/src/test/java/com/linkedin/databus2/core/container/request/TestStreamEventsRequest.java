@@ -0,0 +1,134 @@
+package com.linkedin.databus2.core.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStreamEventsRequest
+{
+  private static BinaryCommandParser.ParseResult parse(StreamEventsRequest.BinaryParser parser,
+                                                       ChannelBuffer buf) throws Exception
+  {
+    Assert.assertEquals(buf.readByte(), StreamEventsRequest.OPCODE);
+    parser.startNew();
+    return parser.parseBinary(buf);
+  }
+
+  @Test
+  public void testSubscribeRoundTrip() throws Exception
+  {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("sources", "101,102");
+    params.put("checkPoint", "{\"windowScn\":10}");
+    params.put("output", "binary");
+    ChannelBuffer buf = StreamEventsRequest.createSubscribe(params, 12345).toBinaryChannelBuffer();
+
+    StreamEventsRequest.BinaryParser parser = new StreamEventsRequest.BinaryParser();
+    Assert.assertEquals(parse(parser, buf), BinaryCommandParser.ParseResult.DONE);
+    Assert.assertNull(parser.getError());
+    StreamEventsRequest req = (StreamEventsRequest)parser.getCommand();
+    Assert.assertTrue(req.isSubscribe());
+    Assert.assertEquals(req.getCredit(), 12345);
+    Assert.assertEquals(req.getParams(), params);
+    Assert.assertFalse(buf.readable());
+
+    // the server buffers use the byte order of the events
+    ChannelBuffer bigEndian = ChannelBuffers.buffer(ByteOrder.BIG_ENDIAN, 1024);
+    bigEndian.writeBytes(StreamEventsRequest.createCredit(54321).toBinaryChannelBuffer());
+    Assert.assertEquals(parse(parser, bigEndian), BinaryCommandParser.ParseResult.DONE);
+    Assert.assertEquals(((StreamEventsRequest)parser.getCommand()).getCredit(), 54321);
+  }
+
+  @Test
+  public void testIncompleteData() throws Exception
+  {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("sources", "101");
+    ChannelBuffer full = StreamEventsRequest.createSubscribe(params, 100).toBinaryChannelBuffer();
+    ChannelBuffer credit = StreamEventsRequest.createCredit(200).toBinaryChannelBuffer();
+
+    StreamEventsRequest.BinaryParser parser = new StreamEventsRequest.BinaryParser();
+    for (int len = 1; len < full.readableBytes(); ++len)
+    {
+      ChannelBuffer partial = full.slice(0, len);
+      partial.readByte();
+      if (partial.readable())
+      {
+        parser.startNew();
+        Assert.assertEquals(parser.parseBinary(partial), BinaryCommandParser.ParseResult.INCOMPLETE_DATA,
+                            "len=" + len);
+      }
+    }
+
+    // a subscription followed by a credit message in the same buffer
+    ChannelBuffer both = ChannelBuffers.wrappedBuffer(full, credit);
+    Assert.assertEquals(parse(parser, both), BinaryCommandParser.ParseResult.DONE);
+    Assert.assertTrue(((StreamEventsRequest)parser.getCommand()).isSubscribe());
+    Assert.assertEquals(parse(parser, both), BinaryCommandParser.ParseResult.DONE);
+    StreamEventsRequest creditReq = (StreamEventsRequest)parser.getCommand();
+    Assert.assertFalse(creditReq.isSubscribe());
+    Assert.assertEquals(creditReq.getCredit(), 200);
+    Assert.assertFalse(both.readable());
+  }
+
+  @Test(expectedExceptions = UnsupportedProtocolVersionException.class)
+  public void testUnsupportedVersion() throws Exception
+  {
+    ChannelBuffer buf = StreamEventsRequest.createCredit(1).toBinaryChannelBuffer();
+    buf.setByte(1, 99);
+    parse(new StreamEventsRequest.BinaryParser(), buf);
+  }
+
+  @Test
+  public void testResponseRoundTrip() throws Exception
+  {
+    byte[] events = new byte[300];
+    for (int i = 0; i < events.length; ++i) events[i] = (byte)i;
+
+    // the events buffer order must not matter
+    ChannelBuffer eventsBuf = ChannelBuffers.wrappedBuffer(events);
+    ChannelBuffer frames = ChannelBuffers.wrappedBuffer(
+        new StreamEventsResponse(0, eventsBuf).serializeToBinary(),
+        new StreamEventsResponse(5000, null).serializeToBinary());
+    ChannelBuffer buf = ChannelBuffers.buffer(BinaryProtocol.BYTE_ORDER, frames.readableBytes());
+    buf.writeBytes(frames);
+
+    Assert.assertNull(StreamEventsResponse.decodeFromChannelBuffer(buf.slice(0, 100)));
+
+    StreamEventsResponse resp = StreamEventsResponse.decodeFromChannelBuffer(buf);
+    Assert.assertEquals(resp.getPendingEventSize(), 0);
+    Assert.assertEquals(resp.getEventsSize(), events.length);
+    byte[] decoded = new byte[events.length];
+    resp.getEvents().readBytes(decoded);
+    Assert.assertEquals(decoded, events);
+
+    resp = StreamEventsResponse.decodeFromChannelBuffer(buf);
+    Assert.assertEquals(resp.getPendingEventSize(), 5000);
+    Assert.assertEquals(resp.getEventsSize(), 0);
+    Assert.assertFalse(buf.readable());
+  }
+}
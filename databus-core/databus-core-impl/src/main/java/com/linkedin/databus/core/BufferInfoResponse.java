@@ -25,6 +25,8 @@ public class BufferInfoResponse
 	private long maxScn = -1;
 	private long timestampLatestEvent = -1;
 	private long timestampFirstEvent = -1;
+	private long leasedSize = -1;
+	private int leasedSegments = -1;
 	
 	
 	public long getMinScn() {
@@ -51,4 +53,18 @@ public class BufferInfoResponse
 	public void setTimestampFirstEvent(long timestampFirstEvent) {
 		this.timestampFirstEvent = timestampFirstEvent;
 	}
+	/** The memory in bytes currently used by the buffer for events */
+	public long getLeasedSize() {
+		return leasedSize;
+	}
+	public void setLeasedSize(long leasedSize) {
+		this.leasedSize = leasedSize;
+	}
+	/** The number of segments leased from the shared pool; -1 if the buffer is not pooled */
+	public int getLeasedSegments() {
+		return leasedSegments;
+	}
+	public void setLeasedSegments(int leasedSegments) {
+		this.leasedSegments = leasedSegments;
+	}
 }
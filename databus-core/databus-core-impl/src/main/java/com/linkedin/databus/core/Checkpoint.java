@@ -24,7 +24,9 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -197,6 +199,8 @@ public class Checkpoint
   //     (i)  snapshot_offset field has the avro block number to seek within the avro file in v3 bootstrap
   //     (ii) snapshot_file_record_offset is used to skip records
   // 12. (V3 only) When storage in on Espresso, this refers to storage cluster name
+  // 13. (Parallel snapshot only) The id ranges of the source being snapshotted with the row offset of each
+  // 14. (Parallel snapshot only) The max row id to be returned by a snapshot request for a single range
 
   private static final String CONSUMPTION_MODE     = "consumption_mode";
   private static final String BOOTSTRAP_START_SCN  = "bootstrap_start_scn";
@@ -211,6 +215,9 @@ public class Checkpoint
   public static final String SNAPSHOT_FILE_RECORD_OFFSET = "bootstrap_snapshot_file_record_offset";
   public static final String STORAGE_CLUSTER_NAME = "storage_cluster_name";
   public static final String BOOTSTRAP_START_TSNSECS = "bootstrap_start_tsnsecs";
+  public static final String SNAPSHOT_RANGES = "snapshot_ranges";
+  public static final String SNAPSHOT_RANGE_END = "snapshot_range_end";
+  public static final long UNSET_SNAPSHOT_RANGE_END = -1;
 
   private static final ObjectMapper mapper               = new ObjectMapper();
   private final Map<String, Object> internalData;
@@ -489,6 +496,79 @@ public class Checkpoint
     internalData.put(STORAGE_CLUSTER_NAME, storageClusterName);
   }
 
+  /**
+   * The id ranges of the current snapshot source when the snapshot is read in parallel ranges.
+   * @return the ranges ordered by their start id or null if the snapshot is read as a single range
+   */
+  public List<SnapshotRange> getSnapshotRanges()
+  {
+    String rangesStr = (String)internalData.get(SNAPSHOT_RANGES);
+    if (null == rangesStr || rangesStr.isEmpty())
+    {
+      return null;
+    }
+    try
+    {
+      String[] rangeStrs = rangesStr.split(",");
+      List<SnapshotRange> result = new ArrayList<SnapshotRange>(rangeStrs.length);
+      for (String rangeStr: rangeStrs)
+      {
+        String[] parts = rangeStr.split(":");
+        result.add(new SnapshotRange(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                                     Long.parseLong(parts[2])));
+      }
+      return result;
+    }
+    catch (RuntimeException e)
+    {
+      throw new InvalidCheckpointException("invalid snapshot ranges: " + rangesStr, this);
+    }
+  }
+
+  public void setSnapshotRanges(List<SnapshotRange> ranges)
+  {
+    if (null == ranges || ranges.isEmpty())
+    {
+      clearSnapshotRanges();
+      return;
+    }
+    StringBuilder rangesStr = new StringBuilder();
+    for (SnapshotRange range: ranges)
+    {
+      if (rangesStr.length() > 0) rangesStr.append(',');
+      rangesStr.append(range.getStartId()).append(':').append(range.getEndId()).append(':')
+               .append(range.getOffset());
+    }
+    internalData.put(SNAPSHOT_RANGES, rangesStr.toString());
+  }
+
+  public void clearSnapshotRanges()
+  {
+    internalData.remove(SNAPSHOT_RANGES);
+  }
+
+  /**
+   * The max row id (inclusive) to be returned by a snapshot request; used to read a single range
+   * of a parallel snapshot.
+   * @return the max row id or {@link #UNSET_SNAPSHOT_RANGE_END} if there is no limit
+   */
+  public long getSnapshotRangeEnd()
+  {
+    return number2Long((Number)internalData.get(SNAPSHOT_RANGE_END), UNSET_SNAPSHOT_RANGE_END);
+  }
+
+  public void setSnapshotRangeEnd(long snapshotRangeEnd)
+  {
+    if (UNSET_SNAPSHOT_RANGE_END == snapshotRangeEnd)
+    {
+      internalData.remove(SNAPSHOT_RANGE_END);
+    }
+    else
+    {
+      internalData.put(SNAPSHOT_RANGE_END, snapshotRangeEnd);
+    }
+  }
+
   private static Long number2Long(Number n, Long nullValue)
   {
     return (null == n) ? nullValue :  (n instanceof Long) ? (Long)n : n.longValue();
@@ -714,11 +794,13 @@ public class Checkpoint
   public void startSnapShotSource()
   {
     setSnapshotOffset(0);
+    clearSnapshotRanges();
   }
 
   public void endSnapShotSource()
   {
     this.setSnapshotOffset(-1);
+    clearSnapshotRanges();
   }
 
   public boolean isSnapShotSourceCompleted()
@@ -867,6 +949,7 @@ public class Checkpoint
 	  setSnapshotFileRecordOffset(DEFAULT_SNAPSHOT_FILE_RECORD_OFFSET);
 	  setStorageClusterName("");
     clearBootstrapStartTsNsecs();
+    clearSnapshotRanges();
   }
 
   /**
@@ -887,6 +970,7 @@ public class Checkpoint
     setBootstrapServerInfo(null);
     setSnapshotFileRecordOffset(DEFAULT_SNAPSHOT_FILE_RECORD_OFFSET);
     setStorageClusterName("");
+    clearSnapshotRanges();
   }
 
   /** Remove IOException javac warnings */
@@ -1174,4 +1258,66 @@ public class Checkpoint
     }
   }
 
+  /**
+   * An id range (startId, endId] of a snapshot source which is read independently from the other
+   * ranges of the source. The offset is the id of the last row read from the range or -1 if all
+   * rows of the range have been read.
+   */
+  public static class SnapshotRange
+  {
+    public static final long UNBOUNDED_END_ID = -1;
+
+    private final long _startId;
+    private final long _endId;
+    private long _offset;
+
+    /**
+     * @param startId     the id preceding the range (exclusive)
+     * @param endId       the last id of the range (inclusive) or {@link #UNBOUNDED_END_ID}
+     * @param offset      the id of the last row read or -1 if the range is completed
+     */
+    public SnapshotRange(long startId, long endId, long offset)
+    {
+      _startId = startId;
+      _endId = endId;
+      _offset = offset;
+    }
+
+    public long getStartId()
+    {
+      return _startId;
+    }
+
+    public long getEndId()
+    {
+      return _endId;
+    }
+
+    public long getOffset()
+    {
+      return _offset;
+    }
+
+    public void setOffset(long offset)
+    {
+      _offset = offset;
+    }
+
+    public boolean isCompleted()
+    {
+      return FULLY_CONSUMED_WINDOW_OFFSET.longValue() == _offset;
+    }
+
+    public void setCompleted()
+    {
+      _offset = FULLY_CONSUMED_WINDOW_OFFSET;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "(" + _startId + ", " + (UNBOUNDED_END_ID == _endId ? "*" : String.valueOf(_endId)) + "]@" +
+             _offset;
+    }
+  }
 }
@@ -26,9 +26,11 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.security.spec.InvalidParameterSpecException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.JsonGenerationException;
@@ -205,6 +207,11 @@ public class CheckpointMult
     return _pPart2Checkpoint.size();
   }
 
+  /** The physical partitions which have a checkpoint */
+  public Set<PhysicalPartition> getPartitions() {
+    return Collections.unmodifiableSet(_pPart2Checkpoint.keySet());
+  }
+
   public PhysicalPartition getCursorPartition()
   {
     return _cursorPartition;
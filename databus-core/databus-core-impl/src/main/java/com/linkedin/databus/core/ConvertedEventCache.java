@@ -0,0 +1,171 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded LRU cache of events converted to an older event version (see
+ * {@link DbusEventInternalWritable#convertToDifferentVersion(DbusEventInternalWritable, byte)}).
+ * The cache is keyed by the gen-id position of the original event in the {@link DbusEventBuffer},
+ * so every event is converted once no matter how many old clients stream it.
+ *
+ * <p>An entry is served only if the sequence and the header CRC of the event currently at that
+ * position match those of the event which was converted; a position reused after a buffer
+ * reset therefore never serves a stale event. The cached events are shared between readers and
+ * must not be modified.
+ */
+public class ConvertedEventCache
+{
+  private final long _maxSize;
+  private final LinkedHashMap<Long, Entry> _entries;
+  private long _size;
+  private long _hitCount;
+  private long _missCount;
+
+  /**
+   * @param maxSize     the maximum total size in bytes of the cached converted events; 0
+   *                    disables caching
+   */
+  public ConvertedEventCache(long maxSize)
+  {
+    _maxSize = maxSize;
+    _entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the event at the given buffer position converted to the given version
+   * @param  position     the gen-id position of the event in the buffer
+   * @param  event        the event at that position
+   * @param  toVersion    the version to convert to
+   * @return the converted event
+   */
+  public DbusEventInternalWritable convert(long position, DbusEventInternalWritable event, byte toVersion)
+  {
+    if (_maxSize <= 0)
+    {
+      return DbusEventInternalWritable.convertToDifferentVersion(event, toVersion);
+    }
+
+    long sequence = event.sequence();
+    long headerCrc = event.headerCrc();
+    Long key = Long.valueOf(position);
+
+    synchronized (this)
+    {
+      Entry entry = _entries.get(key);
+      if (null != entry && entry.matches(sequence, headerCrc, toVersion))
+      {
+        ++_hitCount;
+        return entry._converted;
+      }
+      ++_missCount;
+    }
+
+    // convert outside of the lock; concurrent misses for the same event may convert it twice
+    DbusEventInternalWritable converted = DbusEventInternalWritable.convertToDifferentVersion(event, toVersion);
+    int convertedSize = converted.size();
+    if (convertedSize <= _maxSize)
+    {
+      synchronized (this)
+      {
+        Entry old = _entries.put(key, new Entry(sequence, headerCrc, toVersion, converted));
+        if (null != old)
+        {
+          _size -= old._converted.size();
+        }
+        _size += convertedSize;
+        evict();
+      }
+    }
+    return converted;
+  }
+
+  private void evict()
+  {
+    Iterator<Map.Entry<Long, Entry>> iter = _entries.entrySet().iterator();
+    while (_size > _maxSize && iter.hasNext())
+    {
+      _size -= iter.next().getValue()._converted.size();
+      iter.remove();
+    }
+  }
+
+  public synchronized void clear()
+  {
+    _entries.clear();
+    _size = 0;
+  }
+
+  public long getMaxSize()
+  {
+    return _maxSize;
+  }
+
+  public synchronized long getSize()
+  {
+    return _size;
+  }
+
+  public synchronized int getNumEntries()
+  {
+    return _entries.size();
+  }
+
+  public synchronized long getHitCount()
+  {
+    return _hitCount;
+  }
+
+  public synchronized long getMissCount()
+  {
+    return _missCount;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return "{maxSize:" + _maxSize + ", size:" + _size + ", entries:" + _entries.size() +
+           ", hits:" + _hitCount + ", misses:" + _missCount + "}";
+  }
+
+  private static class Entry
+  {
+    private final long _sequence;
+    private final long _headerCrc;
+    private final byte _version;
+    private final DbusEventInternalWritable _converted;
+
+    Entry(long sequence, long headerCrc, byte version, DbusEventInternalWritable converted)
+    {
+      _sequence = sequence;
+      _headerCrc = headerCrc;
+      _version = version;
+      _converted = converted;
+    }
+
+    boolean matches(long sequence, long headerCrc, byte version)
+    {
+      return _sequence == sequence && _headerCrc == headerCrc && _version == version;
+    }
+  }
+}
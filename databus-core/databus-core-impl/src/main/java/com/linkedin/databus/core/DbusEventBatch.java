@@ -0,0 +1,90 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+import java.util.ArrayList;
+
+
+/**
+ * The events of a window (e.g. a source transaction) to be appended to an event buffer with a
+ * single {@link DbusEventBufferAppendable#appendEvents(DbusEventBatch, com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector)}
+ * call. A batch can be reused for the next window after {@link #clear()}.
+ */
+public class DbusEventBatch
+{
+  private final ArrayList<DbusEventKey> _keys;
+  private final ArrayList<DbusEventInfo> _eventInfos;
+  private long _payloadBytes = 0;
+
+  public DbusEventBatch()
+  {
+    this(16);
+  }
+
+  public DbusEventBatch(int initialCapacity)
+  {
+    _keys = new ArrayList<DbusEventKey>(initialCapacity);
+    _eventInfos = new ArrayList<DbusEventInfo>(initialCapacity);
+  }
+
+  /**
+   * Adds an event to the batch
+   * @param key         the event key
+   * @param eventInfo   the event contents; if the opCode is null, the default opCode is used
+   */
+  public void add(DbusEventKey key, DbusEventInfo eventInfo)
+  {
+    _keys.add(key);
+    _eventInfos.add(eventInfo);
+    _payloadBytes += eventInfo.getValueLength();
+  }
+
+  public DbusEventKey getKey(int i)
+  {
+    return _keys.get(i);
+  }
+
+  public DbusEventInfo getEventInfo(int i)
+  {
+    return _eventInfos.get(i);
+  }
+
+  public int size()
+  {
+    return _keys.size();
+  }
+
+  public boolean isEmpty()
+  {
+    return _keys.isEmpty();
+  }
+
+  /** The total size of the event payloads in the batch */
+  public long getPayloadBytes()
+  {
+    return _payloadBytes;
+  }
+
+  public void clear()
+  {
+    _keys.clear();
+    _eventInfos.clear();
+    _payloadBytes = 0;
+  }
+}
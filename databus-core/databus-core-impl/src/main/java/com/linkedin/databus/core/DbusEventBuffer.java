@@ -41,6 +41,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -61,6 +62,7 @@ import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
 import com.linkedin.databus.core.util.BufferPosition;
 import com.linkedin.databus.core.util.BufferPositionParser;
 import com.linkedin.databus.core.util.ByteSizeConstants;
+import com.linkedin.databus.core.util.ChunkedReadableByteChannel;
 import com.linkedin.databus.core.util.ConfigBuilder;
 import com.linkedin.databus.core.util.InvalidConfigException;
 import com.linkedin.databus.core.util.Range;
@@ -959,6 +961,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
   }
 
   private static int MIN_INITIAL_ITERATORS = 30;
+  /** How long the shared pool waits for a buffer it reclaims a segment from */
+  private static final long SEGMENT_RECLAIM_LOCK_TIMEOUT_MS = 50;
 
 
   // Locks and state around locks
@@ -994,6 +998,18 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
   // Maximum size of an individual buffer
   private final int _maxBufferSize;
 
+  /**
+   * The shared pool the memory of the ByteBuffers is leased from; null if the memory is allocated
+   * up front. Pooled ByteBuffers without memory are empty (capacity() == 0) and are always in the
+   * empty zone: the leased ByteBuffers form a contiguous run starting with the head ByteBuffer.
+   */
+  private final DbusEventBufferSegmentPool _segmentPool;
+  /** The pool segments backing each ByteBuffer; null for ByteBuffers without memory */
+  private final ByteBuffer[] _segments;
+  /** The time the writer last moved to each ByteBuffer */
+  private final long[] _segmentWriteTs;
+  private volatile int _numLeasedSegments;
+
   /**
    * the initial size of the event staging buffer used to validate incoming events
    */
@@ -1048,6 +1064,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
   private final HashSet<InternalDatabusEventsListener> _internalListeners =
       new HashSet<InternalDatabusEventsListener>();
+  private final CopyOnWriteArrayList<DbusEventBufferCommitListener> _commitListeners =
+      new CopyOnWriteArrayList<DbusEventBufferCommitListener>();
   private final AllocationPolicy _allocationPolicy;
   private final QueuePolicy _queueingPolicy;
   private File _mmapSessionDirectory;
@@ -1086,6 +1104,9 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
   /** timestamp of latest data event of buffer **/
   private volatile long _timestampOfLatestDataEvent = 0;
 
+  /** events converted for clients that understand only an older event version */
+  private ConvertedEventCache _convertedEventCache;
+
   /** The last generated session id; we keep track of those to avoid duplicates */
   private static SessionIdGenerator _sessionIdGenerator = new SessionIdGenerator();
 
@@ -1140,6 +1161,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       }
       lockFreeClear();
       _scnIndex.clear();
+      _convertedEventCache.clear();
       if (start)
       {
         this.start(prevScn);
@@ -1159,6 +1181,11 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return _timestampOfFirstEvent;
   }
 
+  ConvertedEventCache getConvertedEventCache()
+  {
+    return _convertedEventCache;
+  }
+
   /**
    * Clears the buffer, assumes that requisite locks have
    * been obtained outside this method
@@ -1180,6 +1207,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     {
       buf.clear();
     }
+    releaseSegmentsOnClear();
     _notFull.signalAll();
     //		notifyIterators(head, tail);
   }
@@ -1203,16 +1231,29 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
          config.getQueuePolicy(), config.getTrace(), null, config.getAssertLevel(),
          config.getBufferRemoveWaitPeriod(), config.getRestoreMMappedBuffers(),
          config.getRestoreMMappedBuffersValidateEvents(), config.isEnableScnIndex(), new DbusEventV1Factory());
+    _convertedEventCache = new ConvertedEventCache(config.getConvertedEventCacheSize());
   }
 
   public DbusEventBuffer(StaticConfig config, PhysicalPartition pPartition, DbusEventFactory eventFactory)
+  {
+    this(config, pPartition, eventFactory, null);
+  }
+
+  /**
+   * Creates a buffer which leases its memory from the given pool if the pool can serve it;
+   * otherwise, or if segmentPool is null, the memory is allocated up front.
+   */
+  public DbusEventBuffer(StaticConfig config, PhysicalPartition pPartition, DbusEventFactory eventFactory,
+                         DbusEventBufferSegmentPool segmentPool)
   {
     this(config.getMaxSize(), config.getMaxIndividualBufferSize(), config.getScnIndexSize(),
          config.getReadBufferSize(), config.getMaxEventSize(),
          config.getAllocationPolicy(), config.getMmapDirectory(),
          config.getQueuePolicy(), config.getTrace(), pPartition, config.getAssertLevel(),
          config.getBufferRemoveWaitPeriod(), config.getRestoreMMappedBuffers(),
-         config.getRestoreMMappedBuffersValidateEvents(), config.isEnableScnIndex(), eventFactory);
+         config.getRestoreMMappedBuffersValidateEvents(), config.isEnableScnIndex(), eventFactory,
+         segmentPool);
+    _convertedEventCache = new ConvertedEventCache(config.getConvertedEventCacheSize());
   }
 
   /**
@@ -1225,6 +1266,21 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
                          PhysicalPartition physicalPartition, AssertLevel assertLevel, long bufRemovalWaitPeriod,
                          boolean restoreBuffers, boolean validateEventesInRestoredBuffers,
                          boolean enableScnIndex, DbusEventFactory eventFactory)
+  {
+    this(maxEventBufferSize, maxIndividualBufferSize, maxIndexSize, initReadBufferSize, maxEventSize,
+         allocationPolicy, mmapDirectory, queuePolicy, traceOption, physicalPartition, assertLevel,
+         bufRemovalWaitPeriod, restoreBuffers, validateEventesInRestoredBuffers, enableScnIndex,
+         eventFactory, null);
+  }
+
+  public DbusEventBuffer(long maxEventBufferSize, int maxIndividualBufferSize, int maxIndexSize,
+                         int initReadBufferSize, int maxEventSize,
+                         AllocationPolicy allocationPolicy, File mmapDirectory,
+                         QueuePolicy queuePolicy, RelayEventTraceOption traceOption,
+                         PhysicalPartition physicalPartition, AssertLevel assertLevel, long bufRemovalWaitPeriod,
+                         boolean restoreBuffers, boolean validateEventesInRestoredBuffers,
+                         boolean enableScnIndex, DbusEventFactory eventFactory,
+                         DbusEventBufferSegmentPool segmentPool)
   {
     //TODO replace all occurrences of LOG with _log so we get partition info
     _log = (null == physicalPartition) ? LOG :
@@ -1244,6 +1300,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
     _eventFactory = eventFactory;
     _eventSerializationVersion = eventFactory.getVersion();
+    _convertedEventCache = new ConvertedEventCache(Config.DEFAULT_CONVERTED_EVENT_CACHE_SIZE);
     _bufferPersistenceEnabled = restoreBuffers;
     _queueingPolicy = queuePolicy;
     _allocationPolicy = allocationPolicy;
@@ -1307,11 +1364,28 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       }
     }
 
+    final boolean pooled = null != segmentPool && enableScnIndex &&
+        segmentPool.canServe((int)Math.min(_maxBufferSize, maxEventBufferSize), allocationPolicy,
+                             _eventFactory.getByteOrder());
+    if (null != segmentPool && !pooled)
+    {
+      LOG.warn("shared segment pool cannot serve buffer for partition " + _physicalPartition +
+               "; allocating its memory up front");
+    }
+    _segmentPool = pooled ? segmentPool : null;
+
     LOG.debug("Will allocate a total of " + maxEventBufferSize + " bytes");
     long allocatedSize = 0;
     while (allocatedSize < maxEventBufferSize)
     {
       int nextSize = (int) Math.min(_maxBufferSize, (maxEventBufferSize-allocatedSize));
+      if (pooled)
+      {
+        //the memory is leased when the writer gets to the buffer
+        buffers.add(createUnleasedBuffer());
+        allocatedSize += nextSize;
+        continue;
+      }
       if (LOG.isDebugEnabled())
         LOG.debug("Will allocate a buffer of size " + nextSize + " bytes with allocationPolicy = " + allocationPolicy.toString());
       ByteBuffer buffer = allocateByteBuffer(nextSize, _eventFactory.getByteOrder(), allocationPolicy,
@@ -1320,11 +1394,17 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       buffers.add(buffer);
       allocatedSize += nextSize;
     }
-    LOG.info("Allocated a total of " + allocatedSize + " bytes into " + buffers.size() + " buffers");
+    if (pooled)
+      LOG.info("Will lease a total of " + allocatedSize + " bytes into " + buffers.size() + " buffers from the shared pool");
+    else
+      LOG.info("Allocated a total of " + allocatedSize + " bytes into " + buffers.size() + " buffers");
     _allocatedSize = allocatedSize;
 
     _buffers = new ByteBuffer[buffers.size()];
     buffers.toArray(_buffers);
+    _segments = pooled ? new ByteBuffer[_buffers.length] : null;
+    _segmentWriteTs = pooled ? new long[_buffers.length] : null;
+    _numLeasedSegments = 0;
     if(mi != null && mi.isValid()) {
       try {
         setAndValidateMMappedBuffers(mi);
@@ -1371,6 +1451,20 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       _internalListeners.add(traceListener);
     }
 
+    if (null != _segmentPool)
+    {
+      _segmentPool.register(this);
+      _queueLock.lock();
+      try
+      {
+        prepareBufferForWrite(0);
+      }
+      finally
+      {
+        _queueLock.unlock();
+      }
+    }
+
     if(mi != null && mi.isValid())
       try {
         initBuffersWithMetaInfo(mi); // init some of the DbusEvent Buffer fields from MetaFile if available
@@ -1508,6 +1602,231 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
   }
 
+  /** A placeholder for a pooled ByteBuffer without memory */
+  private ByteBuffer createUnleasedBuffer()
+  {
+    return ByteBuffer.allocate(0).order(_eventFactory.getByteOrder());
+  }
+
+  /** Makes the given segment the memory of the ByteBuffer with the given index */
+  private void installSegment(int bufIdx, ByteBuffer segment)
+  {
+    final int bufSize = (int)Math.min(_maxBufferSize, _allocatedSize - (long)bufIdx * _maxBufferSize);
+    segment.clear();
+    ByteBuffer buf = segment;
+    if (bufSize < segment.capacity())
+    {
+      //the last ByteBuffer may be smaller than the segments
+      segment.limit(bufSize);
+      buf = segment.slice().order(_eventFactory.getByteOrder());
+      segment.clear();
+    }
+    _segments[bufIdx] = segment;
+    _buffers[bufIdx] = buf;
+  }
+
+  /**
+   * Makes sure that the ByteBuffer the writer is about to move to is backed by memory. If the
+   * shared pool is exhausted, the oldest ByteBuffer of the buffer is recycled. Caller must hold
+   * {@link #_queueLock}.
+   */
+  private void prepareBufferForWrite(int bufIdx)
+  {
+    if (null == _segmentPool) return;
+    assert _queueLock.isHeldByCurrentThread();
+
+    if (null == _segments[bufIdx])
+    {
+      ByteBuffer segment = _segmentPool.leaseSegment(this);
+      if (null == segment)
+      {
+        segment = detachHeadSegment(_log.isDebugEnabled());
+        if (null == segment)
+        {
+          String error = "unable to lease a segment from the shared pool and unable to free the " +
+              "oldest segment: head=" + _head + "; tail=" + _tail +
+              "; CurrentWritePosition=" + _currentWritePosition;
+          _log.error(error);
+          throw new DatabusRuntimeException(error);
+        }
+        _segmentPool.segmentRecycled();
+      }
+      installSegment(bufIdx, segment);
+      ++_numLeasedSegments;
+      assert assertBuffersLimits();
+    }
+    _segmentWriteTs[bufIdx] = System.currentTimeMillis();
+  }
+
+  /**
+   * Evicts the events in the head ByteBuffer and detaches its memory. Caller must hold
+   * {@link #_queueLock}.
+   * @return the detached segment or null if the head ByteBuffer cannot be freed, e.g. because
+   *         the writer or the tail are in it
+   */
+  private ByteBuffer detachHeadSegment(boolean logDebugEnabled)
+  {
+    final int headIdx = _head.bufferIndex();
+    if (empty() || _numLeasedSegments < 2 || null == _segments[headIdx] ||
+        headIdx == _tail.bufferIndex() || headIdx == _currentWritePosition.bufferIndex())
+    {
+      return null;
+    }
+
+    //the first window which starts after the head ByteBuffer becomes the new head
+    final long headBufferEnd = _bufferPositionParser.incrementIndex(_head.getPosition(), _buffers);
+    final long proposedHead = _scnIndex.getLargerOffset(headBufferEnd);
+    if (proposedHead < headBufferEnd || proposedHead > _tail.getPosition())
+    {
+      return null;
+    }
+
+    long newScn = -1;
+    long newTs = -1;
+    if (proposedHead < _tail.getPosition())
+    {
+      DbusEvent e = eventAtPosition(proposedHead);
+      newScn = e.sequence();
+      newTs = e.timestampInNanos();
+    }
+    moveHead(proposedHead, newScn, newTs, logDebugEnabled);
+
+    ByteBuffer segment = _segments[headIdx];
+    _segments[headIdx] = null;
+    _buffers[headIdx] = createUnleasedBuffer();
+    _segmentWriteTs[headIdx] = 0;
+    --_numLeasedSegments;
+    if (logDebugEnabled)
+      _log.debug("detached segment of buffer " + headIdx + "; head=" + _head);
+    return segment;
+  }
+
+  /**
+   * Called by the shared pool to take the oldest segment of the buffer for another buffer. The
+   * segment is given up only if the buffer keeps more than the minimum number of segments and at
+   * least minRetentionMs of events.
+   * @return true if a segment was returned to the pool
+   */
+  boolean releaseColdSegment(long minRetentionMs)
+  {
+    try
+    {
+      //the writer of this buffer may be waiting for the lock of the requesting buffer
+      if (!_queueLock.tryLock(SEGMENT_RECLAIM_LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) return false;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    ByteBuffer segment = null;
+    try
+    {
+      if (_isClosed || _numLeasedSegments <= _segmentPool.getMinSegmentsPerBuffer() ||
+          getRetentionAfterSegmentReleaseMs(System.currentTimeMillis()) < minRetentionMs)
+      {
+        return false;
+      }
+      segment = detachHeadSegment(_log.isDebugEnabled());
+    }
+    catch (DatabusRuntimeException e)
+    {
+      _log.warn("unable to release segment: " + e.getMessage());
+      return false;
+    }
+    finally
+    {
+      _queueLock.unlock();
+    }
+
+    if (null == segment) return false;
+    _segmentPool.returnSegment(segment, true);
+    return true;
+  }
+
+  /**
+   * The age in ms of the oldest events which would remain in the buffer if the head ByteBuffer is
+   * freed; -1 if that cannot be determined. Used by the shared pool to pick the buffer which gives
+   * up a segment.
+   */
+  long getRetentionAfterSegmentReleaseMs(long now)
+  {
+    if (null == _segmentPool || _numLeasedSegments < 2) return -1;
+    final long writeTs = _segmentWriteTs[(_head.bufferIndex() + 1) % _buffers.length];
+    return writeTs > 0 ? now - writeTs : -1;
+  }
+
+  /** The number of segments leased from the shared pool */
+  public int getNumLeasedSegments()
+  {
+    return _numLeasedSegments;
+  }
+
+  /** The memory currently used by the buffer for data; less than the allocated size if pooled */
+  public long getLeasedSize()
+  {
+    if (null == _segmentPool) return _allocatedSize;
+    long result = 0;
+    for (ByteBuffer buf: _buffers)
+    {
+      result += buf.capacity();
+    }
+    return result;
+  }
+
+  /** The shared pool used by the buffer or null if its memory was allocated up front */
+  public DbusEventBufferSegmentPool getSegmentPool()
+  {
+    return _segmentPool;
+  }
+
+  /**
+   * Keeps only one leased segment for the first ByteBuffer after the buffer is cleared. Caller
+   * must hold {@link #_queueLock}.
+   */
+  private void releaseSegmentsOnClear()
+  {
+    if (null == _segmentPool || 0 == _numLeasedSegments) return;
+
+    ByteBuffer first = null;
+    for (int i = 0; i < _segments.length; ++i)
+    {
+      if (null == _segments[i]) continue;
+      if (null == first)
+      {
+        first = _segments[i];
+      }
+      else
+      {
+        _segmentPool.returnSegment(_segments[i], false);
+        --_numLeasedSegments;
+      }
+      _segments[i] = null;
+      _buffers[i] = createUnleasedBuffer();
+      _segmentWriteTs[i] = 0;
+    }
+    installSegment(0, first);
+    _segmentWriteTs[0] = System.currentTimeMillis();
+  }
+
+  /** Returns all segments to the shared pool when the buffer is closed */
+  private void releaseAllSegments()
+  {
+    if (null == _segmentPool) return;
+
+    _segmentPool.unregister(this);
+    for (int i = 0; i < _segments.length; ++i)
+    {
+      if (null == _segments[i]) continue;
+      _segmentPool.returnSegment(_segments[i], false);
+      _segments[i] = null;
+      _buffers[i] = createUnleasedBuffer();
+      _segmentWriteTs[i] = 0;
+    }
+    _numLeasedSegments = 0;
+  }
+
   public static ByteBuffer allocateByteBuffer(int size, ByteOrder byteOrder,
                                        AllocationPolicy allocationPolicy,
                                        boolean restoreBuffers,
@@ -1824,6 +2143,121 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return true;
   }
 
+  /**
+   * Appends the events of a batch under a single acquisition of the write lock. The sizes of all
+   * events are computed upfront and consecutive events which fit in the current ByteBuffer are
+   * written as one run, so that the free space (and the head of the buffer and the ScnIndex) is
+   * adjusted once per run rather than once per event. As with {@link #appendEvent(DbusEventKey,
+   * DbusEventInfo, DbusEventsStatisticsCollector)}, the ScnIndex and the internal listeners are
+   * updated once for the whole window in {@link #endEvents(long, DbusEventsStatisticsCollector)}.
+   */
+  @Override
+  public boolean appendEvents(DbusEventBatch batch, DbusEventsStatisticsCollector statsCollector)
+  {
+    final int numEvents = batch.size();
+    if (0 == numEvents)
+      return true;
+
+    boolean isDebugEnabled = LOG.isDebugEnabled();
+    acquireWriteLock();
+    try {
+      assert((_eventState == WindowState.STARTED) || (_eventState == WindowState.EVENTS_ADDED));
+      try
+      {
+        _scnIndex.assertHeadPosition(_head.getRealPosition());
+        _bufferPositionParser.assertSpan(_head.getPosition(), _currentWritePosition.getPosition(),isDebugEnabled);
+      } catch (RuntimeException re) {
+        LOG.fatal("Got runtime Exception :", re);
+        LOG.fatal("Event Buffer is :" + toString());
+        throw re;
+      }
+
+      if(isClosed()) {
+        throw new DatabusRuntimeException("refusing to append events, because the buffer is closed");
+      }
+
+      final short pPartitionId = _physicalPartition.getId().shortValue();
+      final int[] eventLengths = new int[numEvents];
+      for (int i = 0; i < numEvents; ++i)
+      {
+        DbusEventInfo eventInfo = batch.getEventInfo(i);
+        eventInfo.setSequenceId(0L);
+        eventInfo.setpPartitionId(pPartitionId);
+        eventInfo.setAutocommit(false);
+        eventLengths[i] = DbusEventFactory.computeEventLength(batch.getKey(i), eventInfo);
+      }
+
+      int runStart = 0;
+      while (runStart < numEvents)
+      {
+        // the events following runStart which fit in the rest of the current ByteBuffer; the
+        // first event of a run always gets a ByteBuffer of its own if it does not fit
+        final ByteBuffer curBuffer = _buffers[_currentWritePosition.bufferIndex()];
+        final int available = curBuffer.capacity() - 1 - _currentWritePosition.bufferOffset();
+        int runEnd = runStart + 1;
+        int runBytes = eventLengths[runStart];
+        while (runEnd < numEvents && runBytes + eventLengths[runEnd] <= available)
+        {
+          runBytes += eventLengths[runEnd];
+          ++runEnd;
+        }
+
+        prepareForAppend(runBytes);
+
+        if (_eventState == WindowState.STARTED) {
+          //We set eventStartIndex here because _currentWritePosition is not finalized before
+          //the call to prepareForAppend
+          _eventStartIndex.copy(_currentWritePosition);
+        }
+
+        if (isDebugEnabled)
+        {
+          LOG.debug("serializing " + (runEnd - runStart) + " events (" + runBytes +
+                    " bytes) at position " + _currentWritePosition.toString());
+        }
+
+        for (int i = runStart; i < runEnd; ++i)
+        {
+          DbusEventInfo eventInfo = batch.getEventInfo(i);
+          int bytesWritten = DbusEventFactory.serializeEvent(batch.getKey(i),
+                                                             _buffers[_currentWritePosition.bufferIndex()],
+                                                             eventInfo);
+          if (bytesWritten != eventLengths[i])
+          {
+            String msg = "Actual Bytes Written was :" + bytesWritten +
+                         ", Expected to Write :" + eventLengths[i];
+            LOG.fatal(msg);
+            LOG.fatal("Event Buffer is :" + toString());
+            throw new DatabusRuntimeException(msg);
+          }
+
+          final long newWritePos =
+              _bufferPositionParser.incrementOffset(_currentWritePosition.getPosition(), bytesWritten,
+                                                    _buffers);
+          moveCurrentWritePosition(newWritePos);
+
+          _eventState = WindowState.EVENTS_ADDED;
+          _numEventsInWindow++;
+          _timestampOfLatestDataEvent = Math.max(_timestampOfLatestDataEvent,
+                                                 eventInfo.getTimeStampInNanos());
+        }
+        runStart = runEnd;
+      }
+    }
+    catch (KeyTypeNotImplementedException ex)
+    {
+      if (null != statsCollector)
+        statsCollector.registerEventError(DbusEventInternalReadable.EventScanStatus.ERR);
+      throw new DatabusRuntimeException(ex);
+    }
+    finally
+    {
+      releaseWriteLock();
+      finalizeAppend();
+    }
+    return true;
+  }
+
   /**
    * Sets up the buffer state to prepare for appending an event.
    * This includes
@@ -1863,6 +2297,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
         	          ": " + buffer +
         	          ": insufficient capacity " + (buffer.capacity() -
         	              _currentWritePosition.bufferOffset()) + " < " + dbusEventSize);
+        prepareBufferForWrite((_currentWritePosition.bufferIndex() + 1) % _buffers.length);
         final long newWritePos =
             _bufferPositionParser.incrementIndex(_currentWritePosition.getPosition(), _buffers);
 
@@ -2164,6 +2599,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     } finally {
       releaseWriteLock();
     }
+
+    notifyCommitListeners();
   }
 
 
@@ -2391,14 +2828,16 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
         try
         {
+          long eventPosition = eventIterator.getCurrentPosition();
           e = eventIterator.next(isFirstEvent);
           eventVersion = e.getVersion();
 
           // Convert event to the supported version if possible (DDSDBUS-2063).
           // For now we also assume that clientVersion equals to the eventVersion that the client understands
           // if convertToDifferentVersion() cannot convert - it will throw a runtime exception
+          // Conversions are cached so that every event is converted once for all old clients.
           if (eventVersion > maxClientEventVersion) {
-            e = DbusEventInternalWritable.convertToDifferentVersion(e, (byte)maxClientEventVersion);
+            e = _convertedEventCache.convert(eventPosition, e, (byte)maxClientEventVersion);
           }
 
           if ( isFirstEvent)
@@ -2804,7 +3243,12 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
   {
     try
     {
-      return readEventsInternal(readChannel, eventListeners, statsCollector);
+      int eventsRead = readEventsInternal(readChannel, eventListeners, statsCollector);
+      if (eventsRead > 0)
+      {
+        notifyCommitListeners();
+      }
+      return eventsRead;
     }
     finally
     {
@@ -2858,6 +3302,10 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
      * before inserting into the primary buffer
      */
     private ByteBuffer _readBuffer;
+    /** the staging buffer while _readBuffer is a chunk borrowed from a chunked channel */
+    private ByteBuffer _stgBuffer;
+    /** the bytes of the last chunk which were not copied into the staging buffer */
+    private ByteBuffer _pendingChunk;
 
     public ReadEventsReadPosition()
     {
@@ -3133,6 +3581,117 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return newBuf;
   }
 
+  /** A flag if the events are being read in place from a chunk of a chunked channel */
+  public boolean isChunkBorrowed()
+  {
+    return null != _stgBuffer;
+  }
+
+  /**
+   * Makes more data from a chunked channel available for processing. If the staging buffer is
+   * empty, the next chunk becomes the read buffer so that its events are scanned in place and copied
+   * only once (to the main buffer). Otherwise, the staging buffer has a partial event from the end of
+   * the previous chunk and only the bytes missing to complete that event are copied into it.
+   *
+   * @return the number of new bytes or -1 if the end of the stream has been reached
+   */
+  public int readFromChunks(ChunkedReadableByteChannel channel) throws IOException
+  {
+    if (isChunkBorrowed())
+    {
+      //done with the previous chunk
+      _readBuffer = _stgBuffer;
+      _stgBuffer = null;
+    }
+
+    if (0 == _readBuffer.position())
+    {
+      ByteBuffer chunk = nextChunk(channel);
+      if (null == chunk) return -1;
+      _stgBuffer = _readBuffer;
+      _readBuffer = chunk.slice().order(_eventFactory.getByteOrder());
+      //same state as after reading the bytes from the channel
+      _readBuffer.position(_readBuffer.limit());
+      return _readBuffer.limit();
+    }
+
+    int numBytes = 0;
+    int missing = partialEventBytesMissing();
+    while (missing > 0 && _readBuffer.hasRemaining())
+    {
+      ByteBuffer chunk = nextChunk(channel);
+      if (null == chunk) break;
+      int n = Math.min(missing, Math.min(chunk.remaining(), _readBuffer.remaining()));
+      int chunkLimit = chunk.limit();
+      chunk.limit(chunk.position() + n);
+      _readBuffer.put(chunk);
+      chunk.limit(chunkLimit);
+      _pendingChunk = chunk.hasRemaining() ? chunk : null;
+      numBytes += n;
+      missing = partialEventBytesMissing();
+    }
+    return 0 == numBytes ? -1 : numBytes;
+  }
+
+  private ByteBuffer nextChunk(ChunkedReadableByteChannel channel) throws IOException
+  {
+    ByteBuffer chunk = _pendingChunk;
+    _pendingChunk = null;
+    return null != chunk ? chunk : channel.readChunk();
+  }
+
+  /**
+   * The number of bytes missing to complete the partial event at the start of the staging buffer:
+   * the rest of the header with the event length until it is available and then the rest of the
+   * event. Returns 0 if the event does not look valid (it will fail the scan).
+   */
+  private int partialEventBytesMissing()
+  {
+    final int numBytes = _readBuffer.position();
+    if (numBytes < EVENT_LENGTH_PREFIX_BYTES)
+    {
+      return EVENT_LENGTH_PREFIX_BYTES - numBytes;
+    }
+    try
+    {
+      int eventSize = DbusEventFactory.createReadOnlyDbusEventFromBufferUnchecked(_readBuffer, 0).size();
+      return Math.max(0, eventSize - numBytes);
+    }
+    catch (RuntimeException e)
+    {
+      return 0;
+    }
+  }
+
+  /**
+   * Moves the partial event at the end of a borrowed chunk to the staging buffer so that it can be
+   * completed with the bytes of the next chunk.
+   */
+  public void stageChunkTail() throws InvalidEventException
+  {
+    final int tailSize = bytesRemaining();
+    ByteBuffer stgBuffer = _stgBuffer;
+    if (tailSize > stgBuffer.capacity())
+    {
+      if (tailSize > getMaxReadBufferCapacity())
+      {
+        throw new InvalidEventException("event too big to fit in staging buffer with capacity : " +
+            getMaxReadBufferCapacity() + "; readPos:" + this);
+      }
+      stgBuffer = ByteBuffer.allocate(tailSize).order(_eventFactory.getByteOrder());
+    }
+    stgBuffer.clear();
+    final int oldLimit = _readBuffer.limit();
+    _readBuffer.limit(_end);
+    _readBuffer.position(_pos);
+    stgBuffer.put(_readBuffer);
+    _readBuffer.limit(oldLimit);
+
+    _readBuffer = stgBuffer;
+    _stgBuffer = null;
+    startIteration();
+  }
+
   }
 
   /** A class used to keep track of the readEvents progress writing to the main buffer */
@@ -3271,6 +3830,11 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
   private static final double LN_5 = Math.log(5.0);
 
+  /** The bytes of an event header up to and including the event length (of V1 and V2 events) */
+  private static final int EVENT_LENGTH_PREFIX_BYTES =
+      Math.max(DbusEventV1.getLengthOffset() + DbusEventV1.getLengthLength(),
+               DbusEventV2.getTotalLengthOffset() + DbusEventV2.getTotalLengthLength());
+
   private int readEventsInternal(ReadableByteChannel readChannel,
                                  Iterable<InternalDatabusEventsListener> eventListeners,
                                  DbusEventsStatisticsCollector statsCollector)
@@ -3280,6 +3844,9 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
 
     ReadEventsReadPosition readPos = new ReadEventsReadPosition();
     ReadEventsWritePosition writePos = new ReadEventsWritePosition();
+    //chunks of a chunked channel are processed in place
+    final ChunkedReadableByteChannel chunkedChannel = (readChannel instanceof ChunkedReadableByteChannel) ?
+        (ChunkedReadableByteChannel)readChannel : null;
 
     _readBufferLock.lock();
     try
@@ -3297,15 +3864,28 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       {
         while (mightHaveMoreData)
         {
+          boolean success;
+          if (null != chunkedChannel)
+          {
+            int numNewBytes = readEventsFromChunks(chunkedChannel, readPos, logDebugEnabled);
+            success = numNewBytes >= 0;
+            mightHaveMoreData = numNewBytes > 0;
+          }
+          else
+          {
+            success = readEventsFromChannel(readChannel, readPos.getReadBuffer(), logDebugEnabled);
+          }
           final ByteBuffer readBuffer = readPos.getReadBuffer();
-          boolean success = readEventsFromChannel(readChannel, readBuffer, logDebugEnabled);
           readPos.startIteration();
 
           final int numBytesRead = readPos.bytesRemaining();
 
           //if there is an error we'll try to process whatever was read but stop after that
-          mightHaveMoreData = success && (numBytesRead > 0) &&
-              (readBuffer.position() == readBuffer.limit());
+          if (null == chunkedChannel)
+          {
+            mightHaveMoreData = success && (numBytesRead > 0) &&
+                (readBuffer.position() == readBuffer.limit());
+          }
 
           if (numBytesRead > 0)
           {
@@ -3368,6 +3948,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
                       //if we could not fit all the data in the destination ByteBuffer,
                       //we should ensure that we clear up any remaining data in the
                       //ByteBuffer.
+                      prepareBufferForWrite((_bufferPositionParser.bufferIndex(writePos.getCurPos()) + 1) %
+                                            _buffers.length);
                       long nextBufferPos =
                           _bufferPositionParser.incrementIndex(writePos.getCurPos(), _buffers);
                       boolean interrupted = ensureFreeSpace(writePos.getCurPos(),
@@ -3413,7 +3995,13 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
                   final int curCapacity = readBuffer.capacity();
                   if (logDebugEnabled)
                     _log.debug("partial event at " + readPos);
-                  if (0 != readPos.getReadStart())
+                  if (readPos.isChunkBorrowed())
+                  {
+                    //move the partial event to the staging buffer and complete it from the next chunk
+                    readPos.stageChunkTail();
+                    hasMoreInStgBuffer = false;
+                  }
+                  else if (0 != readPos.getReadStart())
                   {
                     //compact stg buffer and try to read more data from the network
                     compactStgBuffer(readPos, logDebugEnabled);
@@ -3543,6 +4131,29 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return success;
   }
 
+  /**
+   * Reads events from a chunked channel for readEvents().
+   *
+   * @return the number of new bytes available for processing; 0 at the end of the stream; -1 on
+   *         an error
+   */
+  private int readEventsFromChunks(ChunkedReadableByteChannel readChannel,
+                                   ReadEventsReadPosition readPos, boolean logDebugEnabled)
+  {
+    try
+    {
+      int numBytes = readPos.readFromChunks(readChannel);
+      if (logDebugEnabled)
+        _log.debug("Read " + numBytes + " bytes from chunks; borrowed:" + readPos.isChunkBorrowed());
+      return Math.max(0, numBytes);
+    }
+    catch (IOException e)
+    {
+      _log.error("readEvents error: " + e.getMessage(), e);
+      return -1;
+    }
+  }
+
   /**
    * Used by readEventsInternal to move the partial event at the end to the beginning of the
    * staging buffer so we can try to read more data.
@@ -4523,6 +5134,32 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     return _internalListeners.remove(listener);
   }
 
+  /** Adds a listener to be notified when new events become visible to readers; thread-safe */
+  public void addCommitListener(DbusEventBufferCommitListener listener)
+  {
+    _commitListeners.addIfAbsent(listener);
+  }
+
+  public boolean removeCommitListener(DbusEventBufferCommitListener listener)
+  {
+    return _commitListeners.remove(listener);
+  }
+
+  private void notifyCommitListeners()
+  {
+    for (DbusEventBufferCommitListener listener: _commitListeners)
+    {
+      try
+      {
+        listener.onEventsCommitted(this);
+      }
+      catch (RuntimeException e)
+      {
+        _log.error("commit listener error: " + e, e);
+      }
+    }
+  }
+
   /**
    * package private to allow helper classes to inspect internal details
    */
@@ -4730,6 +5367,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     private final boolean _restoreMMappedBuffersValidateEvents;
 
     private final boolean _enableScnIndex;
+    private final long _convertedEventCacheSize;
+    private final DbusEventBufferSegmentPool.StaticConfig _segmentPool;
 
     public StaticConfig(long maxSize,
                         int maxIndividualBufferSize,
@@ -4747,6 +5386,58 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
                         boolean restoreMMappedBuffers,
                         boolean restoreMMappedBuffersValidateEvents,
                         boolean enableScnIndex)
+    {
+      this(maxSize, maxIndividualBufferSize, readBufferSize, maxEventSize, scnIndexSize, allocationPolicy,
+           mmapDirectory, defaultMemUsage, queuePolicy, existingBuffer, trace, assertLevel,
+           bufferRemoveWaitPeriod, restoreMMappedBuffers, restoreMMappedBuffersValidateEvents,
+           enableScnIndex, Config.DEFAULT_CONVERTED_EVENT_CACHE_SIZE);
+    }
+
+    public StaticConfig(long maxSize,
+                        int maxIndividualBufferSize,
+                        int readBufferSize,
+                        int maxEventSize,
+                        int scnIndexSize,
+                        AllocationPolicy allocationPolicy,
+                        File mmapDirectory,
+                        double defaultMemUsage,
+                        QueuePolicy queuePolicy,
+                        DbusEventBuffer existingBuffer,
+                        RelayEventTraceOption trace,
+                        AssertLevel assertLevel,
+                        long bufferRemoveWaitPeriod,
+                        boolean restoreMMappedBuffers,
+                        boolean restoreMMappedBuffersValidateEvents,
+                        boolean enableScnIndex,
+                        long convertedEventCacheSize)
+    {
+      this(maxSize, maxIndividualBufferSize, readBufferSize, maxEventSize, scnIndexSize, allocationPolicy,
+           mmapDirectory, defaultMemUsage, queuePolicy, existingBuffer, trace, assertLevel,
+           bufferRemoveWaitPeriod, restoreMMappedBuffers, restoreMMappedBuffersValidateEvents,
+           enableScnIndex, convertedEventCacheSize,
+           new DbusEventBufferSegmentPool.StaticConfig(false, 0,
+                                                       DbusEventBufferSegmentPool.Config.DEFAULT_MIN_RETENTION_MS,
+                                                       DbusEventBufferSegmentPool.Config.DEFAULT_MIN_SEGMENTS_PER_BUFFER));
+    }
+
+    public StaticConfig(long maxSize,
+                        int maxIndividualBufferSize,
+                        int readBufferSize,
+                        int maxEventSize,
+                        int scnIndexSize,
+                        AllocationPolicy allocationPolicy,
+                        File mmapDirectory,
+                        double defaultMemUsage,
+                        QueuePolicy queuePolicy,
+                        DbusEventBuffer existingBuffer,
+                        RelayEventTraceOption trace,
+                        AssertLevel assertLevel,
+                        long bufferRemoveWaitPeriod,
+                        boolean restoreMMappedBuffers,
+                        boolean restoreMMappedBuffersValidateEvents,
+                        boolean enableScnIndex,
+                        long convertedEventCacheSize,
+                        DbusEventBufferSegmentPool.StaticConfig segmentPool)
     {
       super();
       _maxSize = maxSize;
@@ -4765,6 +5456,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       _restoreMMappedBuffers = restoreMMappedBuffers;
       _restoreMMappedBuffersValidateEvents = restoreMMappedBuffersValidateEvents;
       _enableScnIndex = enableScnIndex;
+      _convertedEventCacheSize = convertedEventCacheSize;
+      _segmentPool = segmentPool;
     }
 
     public boolean isEnableScnIndex()
@@ -4772,6 +5465,26 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       return _enableScnIndex;
     }
 
+    /**
+     * The configuration of the memory pool shared by the event buffers of the relay. Only used for
+     * buffers created by a {@link DbusEventBufferMult}.
+     */
+    public DbusEventBufferSegmentPool.StaticConfig getSegmentPool()
+    {
+      return _segmentPool;
+    }
+
+    /**
+     * The maximum total size in bytes of the events kept converted to an older event version for
+     * clients which do not understand the version of the buffer; 0 disables the cache.
+     *
+     * Default: 8MB
+     */
+    public long getConvertedEventCacheSize()
+    {
+      return _convertedEventCacheSize;
+    }
+
 
     public boolean getRestoreMMappedBuffersValidateEvents() {
       return _restoreMMappedBuffersValidateEvents;
@@ -4938,6 +5651,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     public static final String DEFAULT_MMAP_DIRECTORY = "mmappedBuffer";
     private static final long BUFFER_REMOVE_WAIT_PERIOD = 3600*24;
     private static final int DEFAULT_AVERAGE_EVENT_SIZE=20*1024;
+    public static final long DEFAULT_CONVERTED_EVENT_CACHE_SIZE = 8 * ByteSizeConstants.ONE_MEGABYTE_IN_BYTES;
 
     protected long _maxSize;
     protected int _maxIndividualBufferSize;
@@ -4957,6 +5671,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
     private boolean _restoreMMappedBuffersValidateEvents = false;
 
     private boolean _enableScnIndex = true;
+    private long _convertedEventCacheSize = DEFAULT_CONVERTED_EVENT_CACHE_SIZE;
+    private DbusEventBufferSegmentPool.Config _segmentPool = new DbusEventBufferSegmentPool.Config();
 
     public Config()
     {
@@ -4990,6 +5706,8 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       _bufferRemoveWaitPeriodSec = other._bufferRemoveWaitPeriodSec;
       _restoreMMappedBuffers = other._restoreMMappedBuffers;
       _enableScnIndex = other._enableScnIndex;
+      _convertedEventCacheSize = other._convertedEventCacheSize;
+      _segmentPool = new DbusEventBufferSegmentPool.Config(other._segmentPool);
     }
 
     /** Computes the buffer sizes based on the current {@link #getDefaultMemUsage()} percentage */
@@ -5014,6 +5732,26 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       _enableScnIndex = enableScnIndex;
     }
 
+    public long getConvertedEventCacheSize()
+    {
+      return _convertedEventCacheSize;
+    }
+
+    public void setConvertedEventCacheSize(long convertedEventCacheSize)
+    {
+      _convertedEventCacheSize = convertedEventCacheSize;
+    }
+
+    public DbusEventBufferSegmentPool.Config getSegmentPool()
+    {
+      return _segmentPool;
+    }
+
+    public void setSegmentPool(DbusEventBufferSegmentPool.Config segmentPool)
+    {
+      _segmentPool = segmentPool;
+    }
+
     public void setRestoreMMappedBuffersValidateEvents(boolean restoreMMappedBuffersValidateEventsValidateEvents) {
       _restoreMMappedBuffersValidateEvents = restoreMMappedBuffersValidateEventsValidateEvents;
     }
@@ -5224,7 +5962,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
                               mmapDirectory, _defaultMemUsage, queuePolicy, _existingBuffer,
                               _trace.build(), assertLevel, _bufferRemoveWaitPeriodSec,
                               _restoreMMappedBuffers, _restoreMMappedBuffersValidateEvents,
-                              _enableScnIndex);
+                              _enableScnIndex, _convertedEventCacheSize, _segmentPool.build());
     }
 
     public RelayEventTraceOptionBuilder getTrace()
@@ -5325,6 +6063,7 @@ DbusEventBufferAppendable, DbusEventBufferStreamAppendable
       }
 
       setClosed(); // done under writelock
+      releaseAllSegments();
 
     } catch (DatabusException e) {
       _log.warn("for buffer " + toString(), e);
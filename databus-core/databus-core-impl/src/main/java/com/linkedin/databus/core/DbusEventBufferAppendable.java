@@ -128,6 +128,16 @@ public interface DbusEventBufferAppendable
   boolean appendEvent(DbusEventKey key,
                       DbusEventInfo eventInfo, DbusEventsStatisticsCollector statsCollector);
 
+  /**
+   * Append all events of a batch to the current event window.
+   * Safe only for a single-writer thread.
+   *
+   * @param batch                   the events to append in order
+   * @param statsCollector          a statistics collector to update on success (can be null)
+   * @return true iff the append of all events succeeded
+   */
+  boolean appendEvents(DbusEventBatch batch, DbusEventsStatisticsCollector statsCollector);
+
   /**
    * Rollback last non-ended Event Window
    */
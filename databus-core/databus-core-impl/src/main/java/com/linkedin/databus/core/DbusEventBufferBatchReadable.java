@@ -20,6 +20,7 @@ package com.linkedin.databus.core;
 
 
 import java.nio.channels.WritableByteChannel;
+import java.util.List;
 
 import com.linkedin.databus2.core.DatabusException;
 import com.linkedin.databus2.core.filter.DbusFilter;
@@ -57,4 +58,9 @@ public interface DbusEventBufferBatchReadable
   * specify max DbusEvent version client supports
   */
  public void setClientMaxEventVersion(int version);
+
+ /**
+  * @return the buffers the events are read from
+  */
+ public List<DbusEventBuffer> getBuffers();
 }
@@ -0,0 +1,34 @@
+package com.linkedin.databus.core;
+/*
+*
+* Copyright 2013 LinkedIn Corp. All rights reserved
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+
+
+/**
+ * Listener for new events becoming visible to the readers of a {@link DbusEventBuffer}, i.e. after
+ * a window has been ended or a batch of events has been read into the buffer. Listeners are
+ * called outside of the buffer locks on the writer thread; they must not block and should only
+ * hand off the work to another thread.
+ */
+public interface DbusEventBufferCommitListener
+{
+  /**
+   * @param buffer    the buffer with the new events
+   */
+  public void onEventsCommitted(DbusEventBuffer buffer);
+}
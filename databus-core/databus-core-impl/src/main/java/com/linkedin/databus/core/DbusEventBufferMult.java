@@ -87,6 +87,9 @@ public class DbusEventBufferMult
   private File _mmapDirectory = null;
   private DbusEventFactory _eventFactory;
 
+  // memory shared by the buffers; null if each buffer allocates its memory up front
+  private DbusEventBufferSegmentPool _segmentPool = null;
+
 
   // specify if we want to drop SCN less then current when adding new events to this buffers
   boolean _dropOldEvents = false;
@@ -109,6 +112,7 @@ public class DbusEventBufferMult
   throws InvalidConfigException
   {
     _eventFactory = eventFactory;
+    _segmentPool = createSegmentPool(config);
 
     if(pConfigs == null) {
       // if we expect to get partitions configs from relay - we can create an EMPTY relay
@@ -126,6 +130,28 @@ public class DbusEventBufferMult
     }
   }
 
+  private DbusEventBufferSegmentPool createSegmentPool(DbusEventBuffer.StaticConfig config)
+  {
+    if (!config.getSegmentPool().isEnabled())
+      return null;
+
+    if (config.getAllocationPolicy() == DbusEventBuffer.AllocationPolicy.MMAPPED_MEMORY)
+    {
+      LOG.warn("shared segment pool is not supported for mmapped buffers; ignoring");
+      return null;
+    }
+
+    int segmentSize = (int)Math.min(config.getMaxIndividualBufferSize(), config.getMaxSize());
+    return new DbusEventBufferSegmentPool(config.getSegmentPool(), segmentSize,
+                                          config.getAllocationPolicy(), _eventFactory.getByteOrder());
+  }
+
+  /** The memory pool shared by the buffers; null if the buffers allocate their memory up front */
+  public DbusEventBufferSegmentPool getSegmentPool()
+  {
+    return _segmentPool;
+  }
+
   /** getOnebuffer by logical source args */
   public DbusEventBuffer getOneBuffer(LogicalSource lSource,
                                        LogicalPartition lPartition) {
@@ -281,12 +307,12 @@ public class DbusEventBufferMult
     } else {
       if (pConfig.isDbusEventBufferSet())
       {
-        buf = new DbusEventBuffer(pConfig.getDbusEventBuffer(), pPartition, _eventFactory);
+        buf = new DbusEventBuffer(pConfig.getDbusEventBuffer(), pPartition, _eventFactory, _segmentPool);
         LOG.info("Using- source specific event buffer config, the event buffer size allocated is: " + buf.getAllocatedSize());
       }
       else
       {
-        buf = new DbusEventBuffer(config, pPartition, _eventFactory);
+        buf = new DbusEventBuffer(config, pPartition, _eventFactory, _segmentPool);
         LOG.info("Using- global event buffer config, the buffer size allocated is: " + buf.getAllocatedSize());
       }
       addBuffer(pConfig, buf);
@@ -904,6 +930,18 @@ public class DbusEventBufferMult
       _clientEventVersion = version;
     }
 
+    @Override
+    public List<DbusEventBuffer> getBuffers()
+    {
+      List<DbusEventBuffer> result = new ArrayList<DbusEventBuffer>(_pKeys.size());
+      for (PhysicalPartitionKey pKey: _pKeys)
+      {
+        DbusEventBuffer buf = _bufsMap.get(pKey);
+        if (null != buf && !result.contains(buf)) result.add(buf);
+      }
+      return result;
+    }
+
     /**
      * A helper method to deal with enableStreamFromLatestScn logic between DbusEventBufferMult and DbusEventBuffer
      * If streamFromLatest==true, invoke streamEvents call on DbusEventBuffer exactly once with streamFromLatest==true.
@@ -0,0 +1,473 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.core.DbusEventBuffer.AllocationPolicy;
+import com.linkedin.databus.core.util.ConfigBuilder;
+import com.linkedin.databus.core.util.InvalidConfigException;
+
+/**
+ * A global pool of fixed-size memory segments shared by the event buffers of a
+ * {@link DbusEventBufferMult}. Instead of allocating their whole maxSize up front, pooled buffers
+ * lease a segment whenever their writer moves to a ByteBuffer which is not backed by memory yet.
+ *
+ * <p>When the pool is exhausted, the oldest segment of another buffer is reclaimed, preferring
+ * the buffer which keeps the longest history after the eviction. A buffer gives up a segment only
+ * if it still keeps at least {@link StaticConfig#getMinRetentionMs()} of events afterwards and it
+ * has more than {@link StaticConfig#getMinSegmentsPerBuffer()} segments. If no buffer qualifies,
+ * the requesting buffer recycles its own oldest segment. Buffers which have fewer than
+ * minSegmentsPerBuffer segments can reclaim segments regardless of the retention of the others.
+ */
+public class DbusEventBufferSegmentPool
+{
+  public static final String MODULE = DbusEventBufferSegmentPool.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  private final int _segmentSize;
+  private final int _maxSegments;
+  private final int _minSegmentsPerBuffer;
+  private final long _minRetentionMs;
+  private final AllocationPolicy _allocationPolicy;
+  private final ByteOrder _byteOrder;
+
+  private final ArrayList<ByteBuffer> _freeSegments = new ArrayList<ByteBuffer>();
+  private final CopyOnWriteArrayList<DbusEventBuffer> _buffers =
+      new CopyOnWriteArrayList<DbusEventBuffer>();
+  private int _numAllocatedSegments = 0;
+  private int _numLeasedSegments = 0;
+  private long _numReclaimedSegments = 0;
+  private long _numRecycledSegments = 0;
+
+  /**
+   * @param config              the pool configuration
+   * @param segmentSize         the size of a segment; equal to the size of the ByteBuffers of the
+   *                            event buffers served by the pool
+   * @param allocationPolicy    HEAP_MEMORY or DIRECT_MEMORY
+   * @param byteOrder           the byte order of the event buffers served by the pool
+   */
+  public DbusEventBufferSegmentPool(StaticConfig config, int segmentSize,
+                                    AllocationPolicy allocationPolicy, ByteOrder byteOrder)
+  {
+    if (AllocationPolicy.MMAPPED_MEMORY == allocationPolicy)
+    {
+      throw new IllegalArgumentException("mmapped segments are not supported");
+    }
+    _segmentSize = segmentSize;
+    _maxSegments = (int)Math.min(Integer.MAX_VALUE, config.getMaxSize() / segmentSize);
+    _minSegmentsPerBuffer = config.getMinSegmentsPerBuffer();
+    _minRetentionMs = config.getMinRetentionMs();
+    _allocationPolicy = allocationPolicy;
+    _byteOrder = byteOrder;
+    LOG.info("created shared segment pool: segmentSize=" + _segmentSize + "; maxSegments=" +
+             _maxSegments + "; minSegmentsPerBuffer=" + _minSegmentsPerBuffer +
+             "; minRetentionMs=" + _minRetentionMs + "; allocationPolicy=" + _allocationPolicy);
+  }
+
+  public int getSegmentSize()
+  {
+    return _segmentSize;
+  }
+
+  public int getMinSegmentsPerBuffer()
+  {
+    return _minSegmentsPerBuffer;
+  }
+
+  /**
+   * Checks if the pool can serve one more event buffer with the given parameters. The pool
+   * always keeps enough segments for the minimum number of segments of every buffer.
+   */
+  public synchronized boolean canServe(int segmentSize, AllocationPolicy allocationPolicy,
+                                       ByteOrder byteOrder)
+  {
+    return segmentSize == _segmentSize && allocationPolicy == _allocationPolicy &&
+           byteOrder.equals(_byteOrder) &&
+           (long)(_buffers.size() + 1) * _minSegmentsPerBuffer <= _maxSegments;
+  }
+
+  void register(DbusEventBuffer buffer)
+  {
+    _buffers.add(buffer);
+  }
+
+  void unregister(DbusEventBuffer buffer)
+  {
+    _buffers.remove(buffer);
+  }
+
+  /**
+   * Leases a segment for the given buffer. The caller must hold the queue lock of the buffer.
+   * @return the segment or null if no segment could be freed; in the latter case the buffer has
+   *         to recycle one of its own segments
+   */
+  ByteBuffer leaseSegment(DbusEventBuffer requester)
+  {
+    // buffers below their minimum number of segments are not subject to the retention limit
+    final long minRetentionMs =
+        requester.getNumLeasedSegments() < _minSegmentsPerBuffer ? 0 : _minRetentionMs;
+    for (int attempt = 0; attempt <= _buffers.size(); ++attempt)
+    {
+      List<DbusEventBuffer> candidates;
+      synchronized (this)
+      {
+        ByteBuffer segment = takeFreeSegment();
+        if (null != segment) return segment;
+        candidates = findReclaimCandidates(requester, minRetentionMs);
+      }
+
+      //the candidates are locked outside of the pool lock since their writers may be waiting for
+      //it
+      boolean reclaimed = false;
+      for (int i = 0; !reclaimed && i < candidates.size(); ++i)
+      {
+        DbusEventBuffer candidate = candidates.get(i);
+        reclaimed = candidate.releaseColdSegment(minRetentionMs);
+        if (reclaimed && LOG.isDebugEnabled())
+        {
+          LOG.debug("reclaimed segment from " + candidate.getPhysicalPartition() + " for " +
+                    requester.getPhysicalPartition());
+        }
+      }
+      if (!reclaimed) break;
+    }
+
+    return null;
+  }
+
+  /** Returns a segment which is no longer used by a buffer */
+  synchronized void returnSegment(ByteBuffer segment, boolean reclaimed)
+  {
+    segment.clear();
+    _freeSegments.add(segment);
+    --_numLeasedSegments;
+    if (reclaimed) ++_numReclaimedSegments;
+  }
+
+  /** Records that a buffer reused its own oldest segment because the pool was exhausted */
+  synchronized void segmentRecycled()
+  {
+    ++_numRecycledSegments;
+  }
+
+  private ByteBuffer takeFreeSegment()
+  {
+    ByteBuffer result = null;
+    if (!_freeSegments.isEmpty())
+    {
+      result = _freeSegments.remove(_freeSegments.size() - 1);
+    }
+    else if (_numAllocatedSegments < _maxSegments)
+    {
+      result = DbusEventBuffer.allocateByteBuffer(_segmentSize, _byteOrder, _allocationPolicy,
+                                                  false, null, null);
+      ++_numAllocatedSegments;
+    }
+
+    if (null != result) ++_numLeasedSegments;
+    return result;
+  }
+
+  /** Buffers which can give up their oldest segment, from the one with the longest history */
+  private List<DbusEventBuffer> findReclaimCandidates(DbusEventBuffer requester, long minRetentionMs)
+  {
+    final long now = System.currentTimeMillis();
+    ArrayList<Candidate> candidates = new ArrayList<Candidate>();
+    for (DbusEventBuffer buffer: _buffers)
+    {
+      if (buffer == requester || buffer.getNumLeasedSegments() <= _minSegmentsPerBuffer) continue;
+      long retentionMs = buffer.getRetentionAfterSegmentReleaseMs(now);
+      if (retentionMs >= 0 && retentionMs >= minRetentionMs)
+      {
+        candidates.add(new Candidate(buffer, retentionMs));
+      }
+    }
+    Collections.sort(candidates, new Comparator<Candidate>()
+    {
+      @Override
+      public int compare(Candidate c1, Candidate c2)
+      {
+        return c1._retentionMs > c2._retentionMs ? -1 : (c1._retentionMs < c2._retentionMs ? 1 : 0);
+      }
+    });
+
+    ArrayList<DbusEventBuffer> result = new ArrayList<DbusEventBuffer>(candidates.size());
+    for (Candidate c: candidates) result.add(c._buffer);
+    return result;
+  }
+
+  public synchronized Stats getStats()
+  {
+    Stats result = new Stats();
+    result.setSegmentSize(_segmentSize);
+    result.setMaxSegments(_maxSegments);
+    result.setAllocatedSegments(_numAllocatedSegments);
+    result.setLeasedSegments(_numLeasedSegments);
+    result.setFreeSegments(_freeSegments.size());
+    result.setReclaimedSegments(_numReclaimedSegments);
+    result.setRecycledSegments(_numRecycledSegments);
+    result.setMinSegmentsPerBuffer(_minSegmentsPerBuffer);
+    result.setMinRetentionMs(_minRetentionMs);
+    Map<String, Integer> perPartition = new HashMap<String, Integer>();
+    for (DbusEventBuffer buffer: _buffers)
+    {
+      perPartition.put(buffer.getPhysicalPartition().toSimpleString(), buffer.getNumLeasedSegments());
+    }
+    result.setLeasedSegmentsPerPartition(perPartition);
+    return result;
+  }
+
+  private static class Candidate
+  {
+    private final DbusEventBuffer _buffer;
+    private final long _retentionMs;
+
+    public Candidate(DbusEventBuffer buffer, long retentionMs)
+    {
+      _buffer = buffer;
+      _retentionMs = retentionMs;
+    }
+  }
+
+  /** A snapshot of the pool usage */
+  public static class Stats
+  {
+    private int segmentSize;
+    private int maxSegments;
+    private int allocatedSegments;
+    private int leasedSegments;
+    private int freeSegments;
+    private long reclaimedSegments;
+    private long recycledSegments;
+    private int minSegmentsPerBuffer;
+    private long minRetentionMs;
+    private Map<String, Integer> leasedSegmentsPerPartition;
+
+    public int getSegmentSize() {
+      return segmentSize;
+    }
+    public void setSegmentSize(int segmentSize) {
+      this.segmentSize = segmentSize;
+    }
+    public int getMaxSegments() {
+      return maxSegments;
+    }
+    public void setMaxSegments(int maxSegments) {
+      this.maxSegments = maxSegments;
+    }
+    /** Segments allocated so far; segments are never freed once allocated */
+    public int getAllocatedSegments() {
+      return allocatedSegments;
+    }
+    public void setAllocatedSegments(int allocatedSegments) {
+      this.allocatedSegments = allocatedSegments;
+    }
+    public int getLeasedSegments() {
+      return leasedSegments;
+    }
+    public void setLeasedSegments(int leasedSegments) {
+      this.leasedSegments = leasedSegments;
+    }
+    public int getFreeSegments() {
+      return freeSegments;
+    }
+    public void setFreeSegments(int freeSegments) {
+      this.freeSegments = freeSegments;
+    }
+    /** Segments taken away from a buffer to be leased by another one */
+    public long getReclaimedSegments() {
+      return reclaimedSegments;
+    }
+    public void setReclaimedSegments(long reclaimedSegments) {
+      this.reclaimedSegments = reclaimedSegments;
+    }
+    /** Segments a buffer had to reuse itself because no other buffer could give up one */
+    public long getRecycledSegments() {
+      return recycledSegments;
+    }
+    public void setRecycledSegments(long recycledSegments) {
+      this.recycledSegments = recycledSegments;
+    }
+    public int getMinSegmentsPerBuffer() {
+      return minSegmentsPerBuffer;
+    }
+    public void setMinSegmentsPerBuffer(int minSegmentsPerBuffer) {
+      this.minSegmentsPerBuffer = minSegmentsPerBuffer;
+    }
+    public long getMinRetentionMs() {
+      return minRetentionMs;
+    }
+    public void setMinRetentionMs(long minRetentionMs) {
+      this.minRetentionMs = minRetentionMs;
+    }
+    public Map<String, Integer> getLeasedSegmentsPerPartition() {
+      return leasedSegmentsPerPartition;
+    }
+    public void setLeasedSegmentsPerPartition(Map<String, Integer> leasedSegmentsPerPartition) {
+      this.leasedSegmentsPerPartition = leasedSegmentsPerPartition;
+    }
+  }
+
+  public static class StaticConfig
+  {
+    private final boolean _enabled;
+    private final long _maxSize;
+    private final long _minRetentionMs;
+    private final int _minSegmentsPerBuffer;
+
+    public StaticConfig(boolean enabled, long maxSize, long minRetentionMs, int minSegmentsPerBuffer)
+    {
+      _enabled = enabled;
+      _maxSize = maxSize;
+      _minRetentionMs = minRetentionMs;
+      _minSegmentsPerBuffer = minSegmentsPerBuffer;
+    }
+
+    /**
+     * A flag if the event buffers of the relay lease their memory from a shared pool instead of
+     * allocating their maxSize up front. Mmapped buffers never use the pool.
+     *
+     * Default: false
+     */
+    public boolean isEnabled()
+    {
+      return _enabled;
+    }
+
+    /** The total memory in bytes shared by all event buffers */
+    public long getMaxSize()
+    {
+      return _maxSize;
+    }
+
+    /**
+     * The minimum age in ms of the oldest events a buffer keeps when it gives up a segment to
+     * another buffer.
+     *
+     * Default: 60000
+     */
+    public long getMinRetentionMs()
+    {
+      return _minRetentionMs;
+    }
+
+    /**
+     * The number of segments a buffer can always lease regardless of the retention of the other
+     * buffers. The pool refuses buffers for which it cannot guarantee that many segments.
+     *
+     * Default: 2
+     */
+    public int getMinSegmentsPerBuffer()
+    {
+      return _minSegmentsPerBuffer;
+    }
+  }
+
+  public static class Config implements ConfigBuilder<StaticConfig>
+  {
+    public static final long DEFAULT_MIN_RETENTION_MS = 60000;
+    public static final int DEFAULT_MIN_SEGMENTS_PER_BUFFER = 2;
+
+    private boolean _enabled = false;
+    private long _maxSize = 0;
+    private long _minRetentionMs = DEFAULT_MIN_RETENTION_MS;
+    private int _minSegmentsPerBuffer = DEFAULT_MIN_SEGMENTS_PER_BUFFER;
+
+    public Config()
+    {
+    }
+
+    public Config(Config other)
+    {
+      _enabled = other._enabled;
+      _maxSize = other._maxSize;
+      _minRetentionMs = other._minRetentionMs;
+      _minSegmentsPerBuffer = other._minSegmentsPerBuffer;
+    }
+
+    public boolean isEnabled()
+    {
+      return _enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+      _enabled = enabled;
+    }
+
+    public long getMaxSize()
+    {
+      return _maxSize;
+    }
+
+    public void setMaxSize(long maxSize)
+    {
+      _maxSize = maxSize;
+    }
+
+    public long getMinRetentionMs()
+    {
+      return _minRetentionMs;
+    }
+
+    public void setMinRetentionMs(long minRetentionMs)
+    {
+      _minRetentionMs = minRetentionMs;
+    }
+
+    public int getMinSegmentsPerBuffer()
+    {
+      return _minSegmentsPerBuffer;
+    }
+
+    public void setMinSegmentsPerBuffer(int minSegmentsPerBuffer)
+    {
+      _minSegmentsPerBuffer = minSegmentsPerBuffer;
+    }
+
+    @Override
+    public StaticConfig build() throws InvalidConfigException
+    {
+      if (_enabled)
+      {
+        if (_maxSize <= 0)
+          throw new InvalidConfigException("invalid shared segment pool maxSize: " + _maxSize);
+        if (_minSegmentsPerBuffer < 1)
+          throw new InvalidConfigException("invalid shared segment pool minSegmentsPerBuffer: " +
+                                           _minSegmentsPerBuffer);
+        if (_minRetentionMs < 0)
+          throw new InvalidConfigException("invalid shared segment pool minRetentionMs: " +
+                                           _minRetentionMs);
+      }
+      return new StaticConfig(_enabled, _maxSize, _minRetentionMs, _minSegmentsPerBuffer);
+    }
+  }
+}
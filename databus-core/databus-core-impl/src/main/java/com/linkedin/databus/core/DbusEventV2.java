@@ -79,6 +79,7 @@ public class DbusEventV2 extends DbusEventSerializable
   private static final int HeaderCrcOffset = 9;
   private static final int BodyCrcOffset = 13;
   private static final int TotalLenOffset = 17;
+  private static final int TotalLenLength = 4;
   private static final int AttributesOffset = 21;
   private static final int TimestampOffset = 23;
   private static final int SourceIdOffset = 31;
@@ -443,6 +444,17 @@ public class DbusEventV2 extends DbusEventSerializable
     return _buf.getInt(_position + TotalLenOffset);
   }
 
+  /** The offset of the total event length in the header */
+  public static int getTotalLengthOffset()
+  {
+    return TotalLenOffset;
+  }
+
+  public static int getTotalLengthLength()
+  {
+    return TotalLenLength;
+  }
+
   @Override
   public long sequence()
   {
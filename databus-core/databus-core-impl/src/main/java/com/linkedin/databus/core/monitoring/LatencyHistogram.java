@@ -0,0 +1,234 @@
+package com.linkedin.databus.core.monitoring;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.linkedin.databus.core.util.StripedLongCounters;
+
+/**
+ * A fixed-size, mergeable histogram of latencies in milliseconds.
+ *
+ * <p>Values below {@link #LINEAR_LIMIT} have their own buckets; larger values are kept in
+ * log-linear buckets with {@link #SUB_BUCKETS} buckets per power of 2, so percentiles are
+ * accurate within 12.5%. Recording a value is a few atomic updates with no locks or allocation,
+ * and two histograms are merged by adding their bucket counts, so histograms for partitions,
+ * peers or registrations can be aggregated exactly (unlike sampling reservoirs).
+ *
+ * <p>The bucket counts and the sum are {@link StripedLongCounters}, so threads recording into a
+ * shared histogram update different cache lines; the stripes are added up when the histogram is
+ * read. The max is only written when it grows.
+ *
+ * <p>Reads are not atomic with respect to concurrent updates; the percentiles reflect the
+ * updates visible while scanning the buckets.
+ */
+public class LatencyHistogram
+{
+  public static final int LINEAR_LIMIT = 16;
+  private static final int LINEAR_BITS = 4;
+  private static final int SUB_BUCKET_BITS = 3;
+  public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** The highest power of 2 with its own buckets; larger values are counted in the last bucket */
+  private static final int MAX_EXP = 40;
+  static final int NUM_BUCKETS = LINEAR_LIMIT + (MAX_EXP - LINEAR_BITS + 1) * SUB_BUCKETS;
+
+  /** The index of the sum of the values in _counters; the bucket counts come first */
+  private static final int SUM_COUNTER = NUM_BUCKETS;
+
+  private final StripedLongCounters _counters;
+  private final AtomicLong _max = new AtomicLong(0);
+
+  /** Creates a histogram with a stripe per available processor */
+  public LatencyHistogram()
+  {
+    _counters = new StripedLongCounters(NUM_BUCKETS + 1);
+  }
+
+  /**
+   * @param numStripes      the number of stripes of the counts; use 1 for histograms recorded by a
+   *                        single thread
+   */
+  public LatencyHistogram(int numStripes)
+  {
+    _counters = new StripedLongCounters(NUM_BUCKETS + 1, numStripes);
+  }
+
+  /** Records a latency; negative values (e.g. because of clock skew) are recorded as 0 */
+  public void record(long valueMs)
+  {
+    long v = valueMs > 0 ? valueMs : 0;
+    _counters.increment(bucketIndex(v));
+    _counters.add(SUM_COUNTER, v);
+    updateMax(v);
+  }
+
+  private void updateMax(long v)
+  {
+    long curMax = _max.get();
+    while (v > curMax && !_max.compareAndSet(curMax, v))
+    {
+      curMax = _max.get();
+    }
+  }
+
+  static int bucketIndex(long v)
+  {
+    if (v < LINEAR_LIMIT)
+    {
+      return (int)v;
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(v);
+    if (exp > MAX_EXP)
+    {
+      return NUM_BUCKETS - 1;
+    }
+    int sub = (int)(v >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exp - LINEAR_BITS) * SUB_BUCKETS + sub;
+  }
+
+  /** The largest value counted in a bucket */
+  static long bucketUpperBound(int index)
+  {
+    if (index < LINEAR_LIMIT)
+    {
+      return index;
+    }
+    int exp = LINEAR_BITS + (index - LINEAR_LIMIT) / SUB_BUCKETS;
+    int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+    int shift = exp - SUB_BUCKET_BITS;
+    return ((long)(SUB_BUCKETS + sub + 1) << shift) - 1;
+  }
+
+  /** Adds the counts of another histogram to this one */
+  public void merge(LatencyHistogram other)
+  {
+    if (null == other || this == other) return;
+    for (int i = 0; i <= SUM_COUNTER; ++i)
+    {
+      long c = other._counters.get(i);
+      if (0 != c)
+      {
+        _counters.add(i, c);
+      }
+    }
+    updateMax(other._max.get());
+  }
+
+  /** Replaces the counts of this histogram with the ones of another histogram */
+  public void copyFrom(LatencyHistogram other)
+  {
+    reset();
+    merge(other);
+  }
+
+  public void reset()
+  {
+    _counters.reset();
+    _max.set(0);
+  }
+
+  /** The number of recorded values */
+  public long getCount()
+  {
+    long result = 0;
+    for (int i = 0; i < NUM_BUCKETS; ++i)
+    {
+      result += _counters.get(i);
+    }
+    return result;
+  }
+
+  public long getMax()
+  {
+    return _max.get();
+  }
+
+  public double getMean()
+  {
+    long count = getCount();
+    return 0 == count ? 0.0 : (double)_counters.get(SUM_COUNTER) / count;
+  }
+
+  /**
+   * Returns an upper bound of the given percentile of the recorded values
+   * @param  pct      the percentile in (0, 100]
+   * @return the percentile or -1 if there are no recorded values
+   */
+  public long getPercentile(double pct)
+  {
+    long[] counts = new long[NUM_BUCKETS];
+    long count = 0;
+    for (int i = 0; i < NUM_BUCKETS; ++i)
+    {
+      counts[i] = _counters.get(i);
+      count += counts[i];
+    }
+    if (0 == count)
+    {
+      return -1;
+    }
+
+    long rank = (long)Math.ceil(pct / 100.0 * count);
+    if (rank < 1) rank = 1;
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; ++i)
+    {
+      seen += counts[i];
+      if (seen >= rank)
+      {
+        // the last bucket also counts all values beyond its range
+        return i == NUM_BUCKETS - 1 ? getMax() : Math.min(bucketUpperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  public long getPerc50()
+  {
+    return getPercentile(50.0);
+  }
+
+  public long getPerc90()
+  {
+    return getPercentile(90.0);
+  }
+
+  public long getPerc95()
+  {
+    return getPercentile(95.0);
+  }
+
+  public long getPerc99()
+  {
+    return getPercentile(99.0);
+  }
+
+  public long getPerc999()
+  {
+    return getPercentile(99.9);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "{\"count\":" + getCount() + ",\"p50\":" + getPerc50() + ",\"p90\":" + getPerc90() +
+           ",\"p99\":" + getPerc99() + ",\"max\":" + getMax() + "}";
+  }
+}
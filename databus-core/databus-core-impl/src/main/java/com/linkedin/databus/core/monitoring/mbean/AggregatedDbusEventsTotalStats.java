@@ -52,7 +52,9 @@ public class AggregatedDbusEventsTotalStats extends DbusEventsTotalStats
   {
 	  AggregatedDbusEventsTotalStats s = new AggregatedDbusEventsTotalStats(_event.ownerId, _dimension, _enabled.get(), threadSafe, null);
 	  //copy this to s
+	  foldPending();
 	  cloneData(s._event);
+	  cloneTimeLagHistogram(s);
 	  return s;
   }
 
@@ -20,10 +20,10 @@ package com.linkedin.databus.core.monitoring.mbean;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
@@ -45,6 +45,9 @@ import com.linkedin.databus.core.util.ReadWriteSyncedObject;
 
 /**
  * Container for all monitoring mbeans
+ *
+ * <p>The per-source and per-peer stats are looked up without locking; the collector lock is taken
+ * only to add new stats objects and to keep merges and resets consistent.
  */
 public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
                                            implements DbusEventsStatisticsCollectorMBean,StatsCollectorMergeable<DbusEventsStatisticsCollector>
@@ -56,8 +59,8 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
 
   private final DbusEventsTotalStats _totalStats;
 
-  private final HashMap<Integer, DbusEventsTotalStats> _perSourceStats;
-  private final HashMap<String, DbusEventsTotalStats> _perPeerStats;
+  private final ConcurrentHashMap<Integer, DbusEventsTotalStats> _perSourceStats;
+  private final ConcurrentHashMap<String, DbusEventsTotalStats> _perPeerStats;
 
   private final MBeanServer _mbeanServer;
   private final ObjectName _collectorObjName;
@@ -69,8 +72,6 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
   private final String _perSourceNamePrefix;
   private final String _perPeerNamePrefix;
   private final AtomicBoolean _enabled;
-  //cache the last event source index object
-  private Integer _lastUsedSrcIdx = Integer.valueOf(1);
 
   public DbusEventsStatisticsCollector(int relayId, String name, boolean enabled, boolean threadSafe,
                                        MBeanServer mbeanServer)
@@ -107,9 +108,9 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
     _totalStats = makeDbusEventsTotalStats(_id, _sanitizedName + ".total", enabled, false,
                                            null);
 
-    _perSourceStats = new HashMap<Integer, DbusEventsTotalStats>(100);
+    _perSourceStats = new ConcurrentHashMap<Integer, DbusEventsTotalStats>(100);
 
-    _perPeerStats = new HashMap<String, DbusEventsTotalStats>(1000);
+    _perPeerStats = new ConcurrentHashMap<String, DbusEventsTotalStats>(1000);
 
     ObjectName jmxName = null;
     try
@@ -238,18 +239,7 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
   @Override
   public DbusEventsTotalStats getSourceStats(int srcId)
   {
-    Lock readLock = acquireReadLock();
-    try
-    {
-      if (srcId != _lastUsedSrcIdx) _lastUsedSrcIdx = srcId;
-
-      DbusEventsTotalStats result = _perSourceStats.get(_lastUsedSrcIdx);
-      return result;
-    }
-    finally
-    {
-      releaseLock(readLock);
-    }
+    return _perSourceStats.get(srcId);
   }
 
   @Override
@@ -270,16 +260,7 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
   @Override
   public DbusEventsTotalStats getPeerStats(String peer)
   {
-    Lock readLock = acquireReadLock();
-    try
-    {
-      DbusEventsTotalStats result = _perPeerStats.get(peer);
-      return result;
-    }
-    finally
-    {
-      releaseLock(readLock);
-    }
+    return _perPeerStats.get(peer);
   }
 
   public void registerDataEvent(DbusEventInternalReadable e)
@@ -444,20 +425,22 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
 
   private DbusEventsTotalStats getOrAddPerSourceCollector(int srcId, Lock writeLock)
   {
+    Integer srcIdx = srcId;
+    DbusEventsTotalStats data = _perSourceStats.get(srcIdx);
+    if (null != data) return data;
+
     Lock myWriteLock = null;
     if (null == writeLock) myWriteLock = acquireWriteLock();
 
 
     try
     {
-      if (srcId != _lastUsedSrcIdx) _lastUsedSrcIdx = srcId;
-
-      DbusEventsTotalStats data = _perSourceStats.get(_lastUsedSrcIdx);
+      data = _perSourceStats.get(srcIdx);
 
       if (null == data)
       {
         data = new AggregatedDbusEventsTotalStats(_id, _perSourceNamePrefix + srcId, true, isThreadSafe(), null);
-        _perSourceStats.put(_lastUsedSrcIdx, data);
+        _perSourceStats.put(srcIdx, data);
 
         if (null != _mbeanServer)
         {
@@ -475,11 +458,14 @@ public class DbusEventsStatisticsCollector extends ReadWriteSyncedObject
 
   private DbusEventsTotalStats getOrAddPerPeerCollector(String peer, Lock writeLock)
   {
+    DbusEventsTotalStats peerStats = _perPeerStats.get(peer);
+    if (null != peerStats) return peerStats;
+
     Lock myWriteLock = null;
     if (null == writeLock) myWriteLock = acquireWriteLock();
     try
     {
-      DbusEventsTotalStats peerStats = _perPeerStats.get(peer);
+      peerStats = _perPeerStats.get(peer);
       if (null == peerStats)
       {
         peerStats = new AggregatedDbusEventsTotalStats(_id, _perPeerNamePrefix + peer, true,
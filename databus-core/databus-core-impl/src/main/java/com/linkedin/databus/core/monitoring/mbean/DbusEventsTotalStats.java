@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 
 import javax.management.MalformedObjectNameException;
@@ -35,17 +36,57 @@ import org.apache.log4j.Logger;
 import com.linkedin.databus.core.DbusEvent;
 import com.linkedin.databus.core.DbusEventInternalReadable;
 import com.linkedin.databus.core.DbusEventInternalReadable.EventScanStatus;
+import com.linkedin.databus.core.monitoring.LatencyHistogram;
 import com.linkedin.databus.core.monitoring.events.DbusEventsTotalStatsEvent;
+import com.linkedin.databus.core.util.StripedLongCounters;
 
+/**
+ * Event statistics for a buffer, source or peer.
+ *
+ * <p>The register* methods for data, system and error events are called for every event and do
+ * not take the stats lock. They update striped counters and atomic watermarks which are folded
+ * into the event data only when the statistics are read (JMX getters, {@link #getStatistics},
+ * /stats), merged or reset.
+ *
+ * <p>The stats also keep a histogram of the latency from the source timestamp of each data event
+ * to its registration. For the inbound stats of a relay this is the source-to-buffer latency; for
+ * the outbound stats, the source-to-wire latency.
+ */
 public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTotalStatsEvent>
                                  implements DbusEventsTotalStatsMBean
 {
   public static final String MODULE = DbusEventsTotalStats.class.getName();
 
+  private static final int PENDING_NUM_DATA_EVENTS = 0;
+  private static final int PENDING_SIZE_DATA_EVENTS = 1;
+  private static final int PENDING_SIZE_DATA_EVENTS_PAYLOAD = 2;
+  private static final int PENDING_LATENCY_EVENT = 3;
+  private static final int PENDING_NUM_DATA_EVENTS_FILTERED = 4;
+  private static final int PENDING_SIZE_DATA_EVENTS_FILTERED = 5;
+  private static final int PENDING_SIZE_DATA_EVENTS_PAYLOAD_FILTERED = 6;
+  private static final int PENDING_NUM_SYS_EVENTS = 7;
+  private static final int PENDING_SIZE_SYS_EVENTS = 8;
+  private static final int PENDING_NUM_INVALID_EVENTS = 9;
+  private static final int PENDING_NUM_ERR_HEADER = 10;
+  private static final int PENDING_NUM_ERR_PAYLOAD = 11;
+  private static final int PENDING_COUNTERS_NUM = 12;
+
   private final HashSet<Object> _peers;
   protected final String _dimension;
   private final Logger _log;
 
+  /** Counter updates since the last fold into _event */
+  private final StripedLongCounters _pending;
+  /** Watermark updates since the last fold into _event; Long.MIN_VALUE/MAX_VALUE if none */
+  private final AtomicLong _pendingMaxSeenWinScn = new AtomicLong(Long.MIN_VALUE);
+  private volatile long _pendingTimeLag = 0;
+  private final AtomicLong _pendingMinSeenWinScn = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong _pendingMaxFilteredWinScn = new AtomicLong(Long.MIN_VALUE);
+  private final AtomicLong _pendingTimestampMaxScnEvent = new AtomicLong(Long.MIN_VALUE);
+  private final AtomicLong _pendingTimestampAccessed = new AtomicLong(Long.MIN_VALUE);
+  private volatile boolean _hasPending = false;
+  private final LatencyHistogram _timeLagSourceToEventHist = new LatencyHistogram();
+
   public DbusEventsTotalStats(int ownerId, String dimension,
                               boolean enabled, boolean threadSafe,
                               DbusEventsTotalStatsEvent initData)
@@ -55,6 +96,8 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
     _event.ownerId = ownerId;
     _event.dimension = _dimension;
     _peers = new HashSet<Object>(1000);
+    _pending = threadSafe ? new StripedLongCounters(PENDING_COUNTERS_NUM)
+                          : new StripedLongCounters(PENDING_COUNTERS_NUM, 1);
     _event.timestampCreated= System.currentTimeMillis();
     _log = Logger.getLogger(MODULE + "." + dimension);
     reset();
@@ -79,13 +122,136 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   }
 
   public long getTimestampMaxScnEvent() {
+     foldPending();
      return _event.timestampMaxScnEvent;
   }
 
+  /**
+   * Obtains the read lock after folding any pending updates from the register* methods so that
+   * the event data is up-to-date. Must not be called while holding the read lock.
+   */
+  protected Lock acquireFoldedReadLock()
+  {
+    foldPending();
+    return acquireReadLock();
+  }
+
+  /** Folds the updates from the register* methods since the last fold into the event data */
+  protected void foldPending()
+  {
+    if (!_hasPending) return;
+    Lock writeLock = acquireWriteLock();
+    try
+    {
+      foldPendingLocked();
+    }
+    finally
+    {
+      releaseLock(writeLock);
+    }
+  }
+
+  /** Must be called with the write lock held */
+  private void foldPendingLocked()
+  {
+    _hasPending = false;
+
+    _event.numDataEvents += _pending.getAndReset(PENDING_NUM_DATA_EVENTS);
+    _event.sizeDataEvents += _pending.getAndReset(PENDING_SIZE_DATA_EVENTS);
+    _event.sizeDataEventsPayload += _pending.getAndReset(PENDING_SIZE_DATA_EVENTS_PAYLOAD);
+    _event.latencyEvent += _pending.getAndReset(PENDING_LATENCY_EVENT);
+    _event.numDataEventsFiltered += _pending.getAndReset(PENDING_NUM_DATA_EVENTS_FILTERED);
+    _event.sizeDataEventsFiltered += _pending.getAndReset(PENDING_SIZE_DATA_EVENTS_FILTERED);
+    _event.sizeDataEventsPayloadFiltered +=
+        _pending.getAndReset(PENDING_SIZE_DATA_EVENTS_PAYLOAD_FILTERED);
+    _event.numSysEvents += _pending.getAndReset(PENDING_NUM_SYS_EVENTS);
+    _event.sizeSysEvents += _pending.getAndReset(PENDING_SIZE_SYS_EVENTS);
+    _event.numInvalidEvents += _pending.getAndReset(PENDING_NUM_INVALID_EVENTS);
+    _event.numErrHeader += _pending.getAndReset(PENDING_NUM_ERR_HEADER);
+    _event.numErrPayload += _pending.getAndReset(PENDING_NUM_ERR_PAYLOAD);
+
+    long timeLag = _pendingTimeLag;
+    long maxSeenWinScn = _pendingMaxSeenWinScn.getAndSet(Long.MIN_VALUE);
+    if (maxSeenWinScn > _event.maxSeenWinScn)
+    {
+      // We have a new max event
+      _event.maxSeenWinScn = maxSeenWinScn;
+      _event.timeLag = timeLag;
+    }
+    long minSeenWinScn = _pendingMinSeenWinScn.getAndSet(Long.MAX_VALUE);
+    if (Long.MAX_VALUE != minSeenWinScn)
+    {
+      _event.minSeenWinScn = minValue(_event.minSeenWinScn, minSeenWinScn);
+    }
+    _event.maxFilteredWinScn = Math.max(_event.maxFilteredWinScn,
+                                        _pendingMaxFilteredWinScn.getAndSet(Long.MIN_VALUE));
+    _event.timestampMaxScnEvent = Math.max(_event.timestampMaxScnEvent,
+                                           _pendingTimestampMaxScnEvent.getAndSet(Long.MIN_VALUE));
+    _event.timestampAccessed = Math.max(_event.timestampAccessed,
+                                        _pendingTimestampAccessed.getAndSet(Long.MIN_VALUE));
+  }
+
+  /** Drops the updates since the last fold; must be called with the write lock held */
+  private void discardPending()
+  {
+    _hasPending = false;
+    _pending.reset();
+    _pendingMaxSeenWinScn.set(Long.MIN_VALUE);
+    _pendingMinSeenWinScn.set(Long.MAX_VALUE);
+    _pendingMaxFilteredWinScn.set(Long.MIN_VALUE);
+    _pendingTimestampMaxScnEvent.set(Long.MIN_VALUE);
+    _pendingTimestampAccessed.set(Long.MIN_VALUE);
+  }
+
+  private void markPending()
+  {
+    // read before write to avoid invalidating the cache line on every event
+    if (!_hasPending) _hasPending = true;
+  }
+
+  private static void updateMax(AtomicLong max, long v)
+  {
+    long cur = max.get();
+    while (v > cur && !max.compareAndSet(cur, v))
+    {
+      cur = max.get();
+    }
+  }
+
+  private static void updateMin(AtomicLong min, long v)
+  {
+    long cur = min.get();
+    while (v < cur && !min.compareAndSet(cur, v))
+    {
+      cur = min.get();
+    }
+  }
+
+  private void updateMaxSeenWinScn(long scn, long timeLag)
+  {
+    long cur = _pendingMaxSeenWinScn.get();
+    while (scn > cur)
+    {
+      if (_pendingMaxSeenWinScn.compareAndSet(cur, scn))
+      {
+        _pendingTimeLag = timeLag;
+        break;
+      }
+      cur = _pendingMaxSeenWinScn.get();
+    }
+  }
+
+  @Override
+  public DbusEventsTotalStatsEvent getStatistics(DbusEventsTotalStatsEvent reuse)
+  {
+    foldPending();
+    return super.getStatistics(reuse);
+  }
+
   @Override
   public int getNumPeers()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     int result = 0;
     try
     {
@@ -102,7 +268,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getNumDataEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -119,7 +285,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getNumDataEventsFiltered()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -137,7 +303,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimeSinceLastResetMs()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -154,7 +320,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimestampLastResetMs()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -171,7 +337,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getMaxSeenWinScn()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.maxSeenWinScn;
@@ -186,7 +352,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getMaxFilteredWinScn()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.maxFilteredWinScn;
@@ -201,7 +367,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getMinSeenWinScn()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.minSeenWinScn;
@@ -215,7 +381,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getSizeDataEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -233,7 +399,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getSizeDataEventsPayload()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -251,7 +417,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getSizeDataEventsFiltered()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       long num = _event.numDataEventsFiltered;
@@ -266,7 +432,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getSizeDataEventsPayloadFiltered()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     long result = 0;
     try
     {
@@ -283,7 +449,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getNumSysEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.numSysEvents;
@@ -297,7 +463,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getSizeSysEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       long num = _event.numSysEvents;
@@ -312,85 +478,57 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   public void registerDataEvent(DbusEventInternalReadable e)
   {
     if (! _enabled.get()) return;
-    Lock writeLock = acquireWriteLock();
 
-    try
-    {
-      //ms
-      long eventTsInMs = e.timestampInNanos()/(1000*1000);
-      long now = System.currentTimeMillis();
-      _event.timestampMaxScnEvent = Math.max(_event.timestampMaxScnEvent,eventTsInMs);
-      _event.timestampAccessed = now;
-      _event.latencyEvent +=  (_event.timestampAccessed > eventTsInMs) ?  _event.timestampAccessed - eventTsInMs : 0;
-
-      _event.numDataEvents++;
-      _event.sizeDataEvents += e.size();
-      _event.sizeDataEventsPayload += e.payloadLength();
-      if (e.sequence() > _event.maxSeenWinScn)
-      {
-        // We have a new max event
-        _event.maxSeenWinScn = e.sequence();
-        _event.timeLag = (now > eventTsInMs) ? now - eventTsInMs : 0;
-      }
-      _event.minSeenWinScn = minValue(_event.minSeenWinScn,e.sequence());
-    }
-    finally
-    {
-      releaseLock(writeLock);
-    }
+    //ms
+    long eventTsInMs = e.timestampInNanos()/(1000*1000);
+    long now = System.currentTimeMillis();
+    updateMax(_pendingTimestampMaxScnEvent, eventTsInMs);
+    updateMax(_pendingTimestampAccessed, now);
+    _pending.add(PENDING_LATENCY_EVENT, (now > eventTsInMs) ? now - eventTsInMs : 0);
+    _timeLagSourceToEventHist.record(now - eventTsInMs);
+
+    _pending.increment(PENDING_NUM_DATA_EVENTS);
+    _pending.add(PENDING_SIZE_DATA_EVENTS, e.size());
+    _pending.add(PENDING_SIZE_DATA_EVENTS_PAYLOAD, e.payloadLength());
+    updateMaxSeenWinScn(e.sequence(), (now > eventTsInMs) ? now - eventTsInMs : 0);
+    updateMin(_pendingMinSeenWinScn, e.sequence());
+    markPending();
   }
 
   public void registerDataEventFiltered(DbusEventInternalReadable e)
   {
     if (! _enabled.get()) return;
-    Lock writeLock = acquireWriteLock();
 
-    try
-    {
-      _event.numDataEventsFiltered++;
-      _event.sizeDataEventsFiltered += e.size();
-      _event.sizeDataEventsPayloadFiltered += e.payloadLength();
-      _event.maxFilteredWinScn = Math.max(_event.maxFilteredWinScn,e.sequence());
-    }
-    finally
-    {
-      releaseLock(writeLock);
-    }
+    _pending.increment(PENDING_NUM_DATA_EVENTS_FILTERED);
+    _pending.add(PENDING_SIZE_DATA_EVENTS_FILTERED, e.size());
+    _pending.add(PENDING_SIZE_DATA_EVENTS_PAYLOAD_FILTERED, e.payloadLength());
+    updateMax(_pendingMaxFilteredWinScn, e.sequence());
+    markPending();
   }
 
   public void registerSysEvent(DbusEvent e)
   {
     if (! _enabled.get()) return;
-    Lock writeLock = acquireWriteLock();
 
-    try
+    _pending.increment(PENDING_NUM_SYS_EVENTS);
+    _pending.add(PENDING_SIZE_SYS_EVENTS, e.size());
+    long now = System.currentTimeMillis();
+    if (e.isEndOfPeriodMarker())
     {
-      _event.numSysEvents++;
-      _event.sizeSysEvents += e.size();
-      long now = System.currentTimeMillis();
-      if (e.isEndOfPeriodMarker())
-      {
-        _event.minSeenWinScn = minValue(_event.minSeenWinScn,e.sequence());
-        long eventTsInMs = e.timestampInNanos()/(1000*1000);
-        _event.timestampMaxScnEvent = Math.max(_event.timestampMaxScnEvent,eventTsInMs);
-        if (e.sequence() > _event.maxSeenWinScn)
-        {
-          // We have a new max event
-          _event.maxSeenWinScn = e.sequence();
-          _event.timeLag = (now > eventTsInMs) ? now - eventTsInMs : 0;
-        }
-      }
-      _event.timestampAccessed = now;
-    }
-    finally
-    {
-      releaseLock(writeLock);
+      updateMin(_pendingMinSeenWinScn, e.sequence());
+      long eventTsInMs = e.timestampInNanos()/(1000*1000);
+      updateMax(_pendingTimestampMaxScnEvent, eventTsInMs);
+      updateMaxSeenWinScn(e.sequence(), (now > eventTsInMs) ? now - eventTsInMs : 0);
     }
+    updateMax(_pendingTimestampAccessed, now);
+    markPending();
   }
 
   @Override
   protected void resetData()
   {
+    discardPending();
+    _timeLagSourceToEventHist.reset();
     _event.timestampLastResetMs = System.currentTimeMillis();
     _event.timestampAccessed = DEFAULT_MAX_LONG_VALUE;
     _event.timeSinceLastResetMs = 0;
@@ -432,11 +570,14 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   /** clone this event to otherEvent atomically **/
   public void cloneData(DbusEventsTotalStats otherEvent)
   {
+      otherEvent.foldPending();
       Lock writeLock = acquireWriteLock();
       try
       {
     	  //note: otherEvent is RHS - and is read; _event is written to
+    	  discardPending();
     	  otherEvent.cloneData(_event);
+    	  _timeLagSourceToEventHist.copyFrom(otherEvent._timeLagSourceToEventHist);
       }
       finally
       {
@@ -507,10 +648,16 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
       _log.error("Can use mergeStats only on AggregatedDbusEventsTotalStats");
       throw new RuntimeException("Can use mergeStats only on AggregatedDbusEventsTotalStats");
     }
+    foldPending();
+    if (other instanceof DbusEventsTotalStats)
+    {
+      ((DbusEventsTotalStats)other).foldPending();
+    }
     super.mergeStats(other);
     if (other instanceof DbusEventsTotalStats)
     {
       mergeClients((DbusEventsTotalStats)other);
+      _timeLagSourceToEventHist.merge(((DbusEventsTotalStats)other)._timeLagSourceToEventHist);
     }
   }
 
@@ -574,26 +721,18 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   {
     if (writingEventStatus != DbusEventInternalReadable.EventScanStatus.OK) {
       if (! _enabled.get()) return;
-      Lock writeLock = acquireWriteLock();
-      try
-      {
 
-        ++_event.numInvalidEvents;
-        switch(writingEventStatus) {
-        case PARTIAL:
-          ++_event.numErrHeader;
-          break;
-        case ERR:
-          ++_event.numErrPayload;
-          break;
-        case OK: break;//NOOP
-        }
-      }
-
-      finally
-      {
-        releaseLock(writeLock);
+      _pending.increment(PENDING_NUM_INVALID_EVENTS);
+      switch(writingEventStatus) {
+      case PARTIAL:
+        _pending.increment(PENDING_NUM_ERR_HEADER);
+        break;
+      case ERR:
+        _pending.increment(PENDING_NUM_ERR_PAYLOAD);
+        break;
+      case OK: break;//NOOP
       }
+      markPending();
     }
   }
 
@@ -614,7 +753,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getNumInvalidEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.numInvalidEvents;
@@ -628,7 +767,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getNumHeaderErrEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.numErrHeader;
@@ -642,7 +781,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getNumPayloadErrEvents()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.numErrPayload;
@@ -658,7 +797,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   public long getMinScn()
   {
 
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.minWinScn;
@@ -674,7 +813,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getMaxScn()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.maxWinScn;
@@ -688,7 +827,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimeSinceLastAccess()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       if(_event.timestampAccessed <= 0)
@@ -706,7 +845,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimeSinceCreation()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return System.currentTimeMillis()- _event.timestampCreated;
@@ -736,7 +875,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getFreeSpace()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.numFreeBytes;
@@ -788,7 +927,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimeLag()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       return _event.timeLag;
@@ -814,7 +953,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimeSpan()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       if(_event.timestampMaxScnEvent <=0 || _event.timestampMinScnEvent <= 0) // not a valid timestamps
@@ -831,7 +970,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getTimeSinceLastEvent()
   {
-    Lock readLock = acquireReadLock();
+    Lock readLock = acquireFoldedReadLock();
     try
     {
       if (_event.timestampMaxScnEvent <= 0)
@@ -857,7 +996,7 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
   @Override
   public long getLatencyEvent()
   {
-	  Lock readLock = acquireReadLock();
+	  Lock readLock = acquireFoldedReadLock();
 	  try
 	  {
 		  long num = _event.numDataEvents;
@@ -869,6 +1008,42 @@ public class DbusEventsTotalStats extends AbstractMonitoringMBean<DbusEventsTota
 	  }
   }
 
+  @Override
+  public long getTimeLagSourceToEventMs_HistPct_50()
+  {
+    return _timeLagSourceToEventHist.getPercentile(50.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToEventMs_HistPct_90()
+  {
+    return _timeLagSourceToEventHist.getPercentile(90.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToEventMs_HistPct_95()
+  {
+    return _timeLagSourceToEventHist.getPercentile(95.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToEventMs_HistPct_99()
+  {
+    return _timeLagSourceToEventHist.getPercentile(99.0);
+  }
+
+  @Override
+  public long getTimeLagSourceToEventMs_Max()
+  {
+    return _timeLagSourceToEventHist.getMax();
+  }
+
+  /** Copies the source-to-event latency histogram into another stats object */
+  protected void cloneTimeLagHistogram(DbusEventsTotalStats other)
+  {
+    other._timeLagSourceToEventHist.copyFrom(_timeLagSourceToEventHist);
+  }
+
   // For the methods that make sense only in the aggregated class, return the same value
   // evey time so that we don't make any inferences out of them.
   @Override
@@ -153,6 +153,23 @@ public interface DbusEventsTotalStatsMBean extends DatabusMonitoringMBean<DbusEv
    * For a single stats object, the call does not make sense, but is the same as getTimeSpan().
    */
   long getMaxTimeSpan();
+
+  /**
+   * The percentiles of the latency in ms from the source timestamp of the data events to their
+   * registration (e.g. appending to the relay buffer for inbound stats, or streaming to a client
+   * for outbound stats); -1 if there are no data events.
+   */
+  long getTimeLagSourceToEventMs_HistPct_50();
+
+  long getTimeLagSourceToEventMs_HistPct_90();
+
+  long getTimeLagSourceToEventMs_HistPct_95();
+
+  long getTimeLagSourceToEventMs_HistPct_99();
+
+  /** The max latency in ms from the source timestamp of the data events to their registration */
+  long getTimeLagSourceToEventMs_Max();
+
   // ****************** MUTATORS *********************
 
   /** Resets the statistics. */
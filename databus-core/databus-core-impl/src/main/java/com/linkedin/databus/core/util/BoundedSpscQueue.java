@@ -0,0 +1,113 @@
+package com.linkedin.databus.core.util;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue for exactly one producer thread and one consumer thread.
+ *
+ * <p>The producer only writes the tail and the consumer only writes the head, so neither
+ * {@link #offer(Object)} nor {@link #poll()} needs a lock or a CAS. Callers that need to block
+ * when the queue is full or empty have to implement the waiting themselves.
+ */
+public class BoundedSpscQueue<E>
+{
+  private final AtomicReferenceArray<E> _elements;
+  private final int _mask;
+  private final int _capacity;
+  /** The sequence number of the next element to be polled; written only by the consumer */
+  private final AtomicLong _head = new AtomicLong(0);
+  /** The sequence number of the next element to be offered; written only by the producer */
+  private final AtomicLong _tail = new AtomicLong(0);
+
+  public BoundedSpscQueue(int capacity)
+  {
+    if (capacity <= 0)
+    {
+      throw new IllegalArgumentException("invalid capacity: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity)
+    {
+      size <<= 1;
+    }
+    _capacity = capacity;
+    _mask = size - 1;
+    _elements = new AtomicReferenceArray<E>(size);
+  }
+
+  /**
+   * Adds an element at the tail of the queue. Must be called only from the producer thread.
+   * @return true if the element was added; false if the queue is full
+   */
+  public boolean offer(E e)
+  {
+    if (null == e)
+    {
+      throw new NullPointerException();
+    }
+    long tail = _tail.get();
+    if (tail - _head.get() >= _capacity)
+    {
+      return false;
+    }
+    _elements.lazySet((int)tail & _mask, e);
+    _tail.lazySet(tail + 1);
+    return true;
+  }
+
+  /**
+   * Removes the element at the head of the queue. Must be called only from the consumer thread.
+   * @return the element or null if the queue is empty
+   */
+  public E poll()
+  {
+    long head = _head.get();
+    if (head >= _tail.get())
+    {
+      return null;
+    }
+    int index = (int)head & _mask;
+    E e = _elements.get(index);
+    _elements.lazySet(index, null);
+    _head.lazySet(head + 1);
+    return e;
+  }
+
+  /** The number of elements in the queue; exact only when called from the producer or the consumer */
+  public int size()
+  {
+    long head = _head.get();
+    long tail = _tail.get();
+    return (int)Math.max(0, tail - head);
+  }
+
+  public boolean isEmpty()
+  {
+    return 0 == size();
+  }
+
+  public int capacity()
+  {
+    return _capacity;
+  }
+}
@@ -0,0 +1,114 @@
+package com.linkedin.databus.core.util;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} view over the remaining bytes of a {@link ByteBuffer}. The stream reads
+ * directly from the buffer (heap, direct or read-only) without copying it to a temporary array
+ * first. The stream can be re-pointed to a different buffer through {@link #reset(ByteBuffer)} so
+ * that a single instance can be reused per thread.
+ *
+ * <p>The stream changes the position of the buffer it is reading from; callers that need to
+ * preserve the position should pass a {@link ByteBuffer#duplicate()}.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class ByteBufferInputStream extends InputStream
+{
+  private ByteBuffer _buf;
+
+  public ByteBufferInputStream()
+  {
+    this(null);
+  }
+
+  public ByteBufferInputStream(ByteBuffer buf)
+  {
+    _buf = buf;
+  }
+
+  /**
+   * Points the stream to a new buffer
+   * @return this stream
+   */
+  public ByteBufferInputStream reset(ByteBuffer buf)
+  {
+    _buf = buf;
+    return this;
+  }
+
+  public ByteBuffer getBuffer()
+  {
+    return _buf;
+  }
+
+  @Override
+  public int read()
+  {
+    if (null == _buf || !_buf.hasRemaining())
+    {
+      return -1;
+    }
+    return _buf.get() & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len)
+  {
+    if (0 == len)
+    {
+      return 0;
+    }
+    if (null == _buf || !_buf.hasRemaining())
+    {
+      return -1;
+    }
+    int n = Math.min(len, _buf.remaining());
+    _buf.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public long skip(long n)
+  {
+    if (null == _buf || n <= 0)
+    {
+      return 0;
+    }
+    int skipped = (int)Math.min(n, _buf.remaining());
+    _buf.position(_buf.position() + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int available()
+  {
+    return null == _buf ? 0 : _buf.remaining();
+  }
+
+  @Override
+  public void close()
+  {
+    _buf = null;
+  }
+}
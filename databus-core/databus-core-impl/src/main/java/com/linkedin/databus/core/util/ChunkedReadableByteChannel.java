@@ -0,0 +1,42 @@
+package com.linkedin.databus.core.util;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A {@link ReadableByteChannel} over a sequence of buffered chunks which can also hand out the
+ * chunks themselves. This allows readers like
+ * {@link com.linkedin.databus.core.DbusEventBuffer#readEvents(ReadableByteChannel)} to process
+ * the data in place instead of copying it into their own buffer first.
+ */
+public interface ChunkedReadableByteChannel extends ReadableByteChannel
+{
+  /**
+   * Returns the unread bytes of the next chunk, blocking until one is available. The returned
+   * buffer (position to limit) is owned by the caller; its bytes are consumed and will not be
+   * returned by subsequent {@link #read(ByteBuffer)} or readChunk() calls.
+   *
+   * @return the chunk bytes or null if there are no more chunks or the channel has been closed
+   */
+  ByteBuffer readChunk() throws IOException;
+}
@@ -37,6 +37,15 @@ public class ReadWriteSyncedObject
     _readWriteLock = threadSafe ? new ReentrantReadWriteLock(true) : null;
   }
 
+  /**
+   * Creates an object which is synchronized with the same lock as another one
+   * @param  other          the object whose lock is shared
+   */
+  protected ReadWriteSyncedObject(ReadWriteSyncedObject other)
+  {
+    _readWriteLock = other._readWriteLock;
+  }
+
   public boolean isThreadSafe()
   {
     return null != _readWriteLock;
@@ -0,0 +1,138 @@
+package com.linkedin.databus.core.util;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of long counters which can be updated concurrently without locks and without all
+ * writers contending for the same cache lines.
+ *
+ * <p>Each counter is split into one cell per stripe and a thread always updates the cells of the
+ * stripe selected by its thread id. The cells of a stripe are adjacent and the stripes are padded
+ * apart, so threads on different stripes do not share cache lines. The value of a counter is the
+ * sum of its cells; it is computed only when read.
+ */
+public class StripedLongCounters
+{
+  /** The max number of stripes */
+  public static final int MAX_STRIPES = 16;
+  /** Padding in longs between stripes (a cache line) */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray _cells;
+  private final int _numCounters;
+  private final int _stride;
+  private final int _stripeMask;
+
+  /**
+   * Creates counters with a stripe per available processor (at most {@link #MAX_STRIPES})
+   * @param numCounters     the number of counters
+   */
+  public StripedLongCounters(int numCounters)
+  {
+    this(numCounters, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param numCounters     the number of counters
+   * @param numStripes      the desired number of stripes; it is rounded up to a power of 2 and
+   *                        capped to {@link #MAX_STRIPES}; use 1 for counters updated by a single
+   *                        thread
+   */
+  public StripedLongCounters(int numCounters, int numStripes)
+  {
+    if (numCounters <= 0)
+    {
+      throw new IllegalArgumentException("invalid number of counters: " + numCounters);
+    }
+    int stripes = Integer.highestOneBit(Math.max(1, Math.min(numStripes, MAX_STRIPES)));
+    if (stripes < Math.min(numStripes, MAX_STRIPES))
+    {
+      stripes <<= 1;
+    }
+    _numCounters = numCounters;
+    _stride = stripes > 1 ? numCounters + PADDING : numCounters;
+    _stripeMask = stripes - 1;
+    _cells = new AtomicLongArray(_stride * stripes);
+  }
+
+  private int cellIndex(int counter)
+  {
+    return ((int)Thread.currentThread().getId() & _stripeMask) * _stride + counter;
+  }
+
+  public void add(int counter, long delta)
+  {
+    _cells.getAndAdd(cellIndex(counter), delta);
+  }
+
+  public void increment(int counter)
+  {
+    _cells.incrementAndGet(cellIndex(counter));
+  }
+
+  /** The current value of a counter; concurrent updates may or may not be included */
+  public long get(int counter)
+  {
+    long result = 0;
+    for (int i = counter; i < _cells.length(); i += _stride)
+    {
+      result += _cells.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the value of a counter and resets it to 0. Every update is included either in the
+   * returned value or in the value after the reset.
+   */
+  public long getAndReset(int counter)
+  {
+    long result = 0;
+    for (int i = counter; i < _cells.length(); i += _stride)
+    {
+      if (0 != _cells.get(i))
+      {
+        result += _cells.getAndSet(i, 0);
+      }
+    }
+    return result;
+  }
+
+  /** Resets all counters to 0 */
+  public void reset()
+  {
+    for (int c = 0; c < _numCounters; ++c)
+    {
+      getAndReset(c);
+    }
+  }
+
+  public int getNumCounters()
+  {
+    return _numCounters;
+  }
+
+  public int getNumStripes()
+  {
+    return _stripeMask + 1;
+  }
+}
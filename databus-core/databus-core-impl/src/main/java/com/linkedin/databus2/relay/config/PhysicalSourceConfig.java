@@ -112,6 +112,23 @@ public class PhysicalSourceConfig implements ConfigBuilder<PhysicalSourceStaticC
    */
   private ReplicationBitSetterConfig _replBitSetter;
 
+  //Open replicator relay specific configs
+  /**
+   * Size in bytes of the rows of a binlog transaction beyond which the rows are moved from memory to
+   * scratch files in _txnSpillDir. Spilled rows are no longer de-duplicated by key. 0 disables spilling: every
+   * transaction is then kept in memory and appended to the buffer as a single batch.
+   */
+  private long _txnSpillThresholdBytes;
+  /**
+   * Directory of the scratch files of spilled transactions; the default temporary directory if not set
+   */
+  private String _txnSpillDir;
+  /**
+   * Number of threads converting the binlog rows to Avro. If 0, the rows are converted by the thread reading the
+   * binlog; otherwise the conversion runs in parallel and the transactions are reassembled in binlog order.
+   */
+  private int _binlogDecoderThreads;
+
   public PhysicalSourceConfig()
   {
     _id = 0;
@@ -140,6 +157,9 @@ public class PhysicalSourceConfig implements ConfigBuilder<PhysicalSourceStaticC
     _xmlEncoding = "ISO-8859-1";
     _replBitSetter = new ReplicationBitSetterConfig();
     _xmlVersion = "1.0";
+    _txnSpillThresholdBytes = 0;
+    _txnSpillDir = null;
+    _binlogDecoderThreads = 0;
   }
 
   /** create a PhysicalSourceConfiguration without any logical sources
@@ -498,6 +518,16 @@ public class PhysicalSourceConfig implements ConfigBuilder<PhysicalSourceStaticC
   {
     checkForNulls();
     //check config options for chained relays
+    if (_txnSpillThresholdBytes < 0)
+    {
+      throw new InvalidConfigException("Invalid relay config: txnSpillThresholdBytes has to be non-negative: "
+          + _txnSpillThresholdBytes);
+    }
+    if (_binlogDecoderThreads < 0)
+    {
+      throw new InvalidConfigException("Invalid relay config: binlogDecoderThreads has to be non-negative: "
+          + _binlogDecoderThreads);
+    }
     if (_largestEventSizeInBytes >= _largestWindowSizeInBytes)
     {
       throw new InvalidConfigException("Invalid relay config: largestEventSizeInBytes has to be lesser than largestWindowSizeInBytes:"
@@ -528,7 +558,10 @@ public class PhysicalSourceConfig implements ConfigBuilder<PhysicalSourceStaticC
                                           _errorOnMissingFields,
                                           _xmlVersion,
                                           _xmlEncoding,
-                                          _replBitSetter.build());
+                                          _replBitSetter.build(),
+                                          _txnSpillThresholdBytes,
+                                          _txnSpillDir,
+                                          _binlogDecoderThreads);
   }
 
   public BackoffTimerStaticConfigBuilder getRetries()
@@ -649,4 +682,34 @@ public class PhysicalSourceConfig implements ConfigBuilder<PhysicalSourceStaticC
   {
     this._replBitSetter = replBitSetter;
   }
+
+  public long getTxnSpillThresholdBytes()
+  {
+    return _txnSpillThresholdBytes;
+  }
+
+  public void setTxnSpillThresholdBytes(long txnSpillThresholdBytes)
+  {
+    _txnSpillThresholdBytes = txnSpillThresholdBytes;
+  }
+
+  public String getTxnSpillDir()
+  {
+    return _txnSpillDir;
+  }
+
+  public void setTxnSpillDir(String txnSpillDir)
+  {
+    _txnSpillDir = txnSpillDir;
+  }
+
+  public int getBinlogDecoderThreads()
+  {
+    return _binlogDecoderThreads;
+  }
+
+  public void setBinlogDecoderThreads(int binlogDecoderThreads)
+  {
+    _binlogDecoderThreads = binlogDecoderThreads;
+  }
 }
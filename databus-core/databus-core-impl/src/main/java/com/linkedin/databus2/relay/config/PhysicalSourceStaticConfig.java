@@ -38,6 +38,10 @@ public class PhysicalSourceStaticConfig
   private final String _xmlVersion;
   private final String _xmlEncoding;
   private final ReplicationBitSetterStaticConfig _replBitSetter;
+  // Applicable only for open replicator relays
+  private final long _txnSpillThresholdBytes;
+  private final String _txnSpillDir;
+  private final int _binlogDecoderThreads;
 
   /////////// DEFAULT VALUES ////////////////////
   private static final PhysicalSource _defaultSource;
@@ -100,7 +104,10 @@ public class PhysicalSourceStaticConfig
                                     boolean errorOnMissingFields,
                                     String xmlVersion,
                                     String xmlEncoding,
-                                    ReplicationBitSetterStaticConfig replicationBitSetter)
+                                    ReplicationBitSetterStaticConfig replicationBitSetter,
+                                    long txnSpillThresholdBytes,
+                                    String txnSpillDir,
+                                    int binlogDecoderThreads)
   {
     super();
     _name = name;
@@ -130,6 +137,9 @@ public class PhysicalSourceStaticConfig
     _xmlEncoding = xmlEncoding;
     _xmlVersion = xmlVersion;
     _replBitSetter = replicationBitSetter;
+    _txnSpillThresholdBytes = txnSpillThresholdBytes;
+    _txnSpillDir = txnSpillDir;
+    _binlogDecoderThreads = binlogDecoderThreads;
   }
 
   /** role, if any */
@@ -282,4 +292,22 @@ public class PhysicalSourceStaticConfig
   {
     return _replBitSetter;
   }
+
+  /** Size in bytes of the rows of a binlog transaction beyond which they are spilled; 0 if disabled */
+  public long getTxnSpillThresholdBytes()
+  {
+    return _txnSpillThresholdBytes;
+  }
+
+  /** Directory of the spill files; null for the default temporary directory */
+  public String getTxnSpillDir()
+  {
+    return _txnSpillDir;
+  }
+
+  /** Number of threads converting the binlog rows to Avro; 0 if converted by the binlog reader thread */
+  public int getBinlogDecoderThreads()
+  {
+    return _binlogDecoderThreads;
+  }
 }
@@ -23,6 +23,8 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.fail;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.JsonParseException;
@@ -630,4 +632,39 @@ public class TestCheckpoint
     Assert.assertTrue(newCp.assertCheckpoint());
     Assert.assertEquals(newCp.getTsNsecs(), ts);
   }
+
+  @Test
+  public void testSnapshotRanges() throws Exception
+  {
+    Checkpoint cp = new Checkpoint("{\"consumption_mode\":\"BOOTSTRAP_SNAPSHOT\", \"bootstrap_since_scn\":0," +
+        "\"bootstrap_start_scn\":1000,\"bootstrap_target_scn\":-1,\"bootstrap_catchup_source_index\":0," +
+        "\"bootstrap_snapshot_source_index\":0}");
+    Assert.assertNull(cp.getSnapshotRanges());
+    Assert.assertEquals(cp.getSnapshotRangeEnd(), Checkpoint.UNSET_SNAPSHOT_RANGE_END);
+
+    List<Checkpoint.SnapshotRange> ranges = new ArrayList<Checkpoint.SnapshotRange>();
+    ranges.add(new Checkpoint.SnapshotRange(0, 100, 50));
+    ranges.add(new Checkpoint.SnapshotRange(100, Checkpoint.SnapshotRange.UNBOUNDED_END_ID, -1));
+    cp.setSnapshotRanges(ranges);
+    cp.setSnapshotOffset(50);
+    cp.setSnapshotRangeEnd(100);
+
+    Checkpoint cp2 = new Checkpoint(cp.toString());
+    Assert.assertEquals(cp2, cp);
+    List<Checkpoint.SnapshotRange> ranges2 = cp2.getSnapshotRanges();
+    Assert.assertEquals(ranges2.size(), 2);
+    Assert.assertEquals(ranges2.get(0).getStartId(), 0);
+    Assert.assertEquals(ranges2.get(0).getEndId(), 100);
+    Assert.assertEquals(ranges2.get(0).getOffset(), 50);
+    Assert.assertFalse(ranges2.get(0).isCompleted());
+    Assert.assertEquals(ranges2.get(1).getEndId(), Checkpoint.SnapshotRange.UNBOUNDED_END_ID);
+    Assert.assertTrue(ranges2.get(1).isCompleted());
+    Assert.assertEquals(cp2.getSnapshotRangeEnd(), 100);
+
+    // the ranges are specific to the current snapshot source
+    cp2.endSnapShotSource();
+    Assert.assertNull(cp2.getSnapshotRanges());
+    cp.resetBootstrap();
+    Assert.assertNull(cp.getSnapshotRanges());
+  }
 }
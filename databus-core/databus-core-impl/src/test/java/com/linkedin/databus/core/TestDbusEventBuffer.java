@@ -40,6 +40,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -69,6 +70,7 @@ import com.linkedin.databus.core.test.DbusEventCorrupter.EventCorruptionType;
 import com.linkedin.databus.core.test.DbusEventGenerator;
 import com.linkedin.databus.core.util.BufferPosition;
 import com.linkedin.databus.core.util.BufferPositionParser;
+import com.linkedin.databus.core.util.ChunkedReadableByteChannel;
 import com.linkedin.databus.core.util.EventBufferConsumer;
 import com.linkedin.databus.core.util.InvalidConfigException;
 import com.linkedin.databus.core.util.RngUtils;
@@ -538,6 +540,38 @@ public class TestDbusEventBuffer
 
   }
 
+  /**
+   * Verifies readEvents() over a {@link ChunkedReadableByteChannel} where events straddle chunk
+   * boundaries, including chunks smaller than an event header and a staging buffer smaller than
+   * the events.
+   */
+  @Test
+  public void testReadEventsFromChunks() throws Exception
+  {
+    final int[] maxChunkSizes = {7, 64, 500, 4096, 100000};
+    for (int maxChunkSize: maxChunkSizes)
+    {
+      for (QueuePolicy policy: QueuePolicy.values())
+      {
+        final ReadEventsTestParams params = new ReadEventsTestParams();
+        params
+        .testName("testReadEventsFromChunks_" + maxChunkSize + "_" + policy)
+        .startScn(10)
+        .srcBufferSize(100000)
+        .numSrcEvents(50)
+        .maxWindowSize(5)
+        .eventSize(300)
+        .destBufferSize(100000)
+        .destIndividualBufferSize(1000000)
+        .destStgBufferSize(200)
+        .destQueuePolicy(policy)
+        .maxChunkSize(maxChunkSize);
+
+        params.runReadEventsTests();
+      }
+    }
+  }
+
   private void readEventsBlocking (boolean invokeStartOnBuffer)
   throws Exception
   {
@@ -763,6 +797,87 @@ public class TestDbusEventBuffer
     Assert.assertEquals(0, reflector.getHead().getPosition());
   }
 
+  // Appending windows with appendEvents must produce the same buffer as appending the events one
+  // by one, including when the windows span several byte buffers and the head is moved.
+  @Test
+  public void testAppendEventsBatch() throws Exception
+  {
+    DbusEventBuffer singleBuf = new DbusEventBuffer(getConfig(6000, 1000, 100, 500, AllocationPolicy.HEAP_MEMORY,
+                                                              QueuePolicy.OVERWRITE_ON_WRITE, AssertLevel.ALL));
+    DbusEventBuffer batchBuf = new DbusEventBuffer(getConfig(6000, 1000, 100, 500, AllocationPolicy.HEAP_MEMORY,
+                                                             QueuePolicy.OVERWRITE_ON_WRITE, AssertLevel.ALL));
+    singleBuf.start(0);
+    batchBuf.start(0);
+
+    DbusEventGenerator generator = new DbusEventGenerator();
+    DbusEventBatch batch = new DbusEventBatch();
+    long scn = 1;
+    for (int w = 0; w < 20; ++w)
+    {
+      Vector<DbusEvent> events = new Vector<DbusEvent>();
+      // events of 71 to 327 bytes
+      generator.generateEvents(1 + w % 5, 20, 500, 10 + (w * 37) % 257, events);
+
+      singleBuf.startEvents();
+      batch.clear();
+      for (DbusEvent ev: events)
+      {
+        byte[] payload = new byte[((DbusEventInternalReadable)ev).payloadLength()];
+        ev.value().get(payload);
+        short srcId = (short)ev.getSourceId();
+        Assert.assertTrue(singleBuf.appendEvent(new DbusEventKey(ev.key()), ev.getPartitionId(),
+                                                ev.getPartitionId(), ev.timestampInNanos(), srcId,
+                                                ev.schemaId(), payload, false, null));
+
+        DbusEventInfo eventInfo = new DbusEventInfo(null, 0L, ev.getPartitionId(),
+                                                    ev.getPartitionId(), ev.timestampInNanos(),
+                                                    srcId, ev.schemaId(), payload, false, false);
+        eventInfo.setEventSerializationVersion(DbusEventFactory.DBUS_EVENT_V1);
+        batch.add(new DbusEventKey(ev.key()), eventInfo);
+      }
+      singleBuf.endEvents(scn, null);
+
+      batchBuf.startEvents();
+      Assert.assertTrue(batchBuf.appendEvents(batch, null));
+      batchBuf.endEvents(scn, null);
+      ++scn;
+
+      Assert.assertEquals(singleBuf.getHead(), batchBuf.getHead());
+      Assert.assertEquals(singleBuf.getTail(), batchBuf.getTail());
+      Assert.assertEquals(singleBuf.getMinScn(), batchBuf.getMinScn());
+    }
+
+    // the oldest windows were overwritten
+    Assert.assertTrue(batchBuf.getHead() > 0);
+
+    // the events must be the same
+    DbusEventIterator singleIter = singleBuf.acquireIterator("single");
+    DbusEventIterator batchIter = batchBuf.acquireIterator("batch");
+    int numEvents = 0;
+    while (singleIter.hasNext())
+    {
+      Assert.assertTrue(batchIter.hasNext());
+      DbusEvent e1 = singleIter.next();
+      DbusEvent e2 = batchIter.next();
+      Assert.assertEquals(e1.sequence(), e2.sequence());
+      Assert.assertEquals(e1.key(), e2.key());
+      Assert.assertEquals(e1.value(), e2.value());
+      Assert.assertTrue(e2.isValid());
+      ++numEvents;
+    }
+    Assert.assertFalse(batchIter.hasNext());
+    Assert.assertTrue(numEvents > 0);
+    singleBuf.releaseIterator(singleIter);
+    batchBuf.releaseIterator(batchIter);
+
+    // an empty batch does not change the buffer
+    long tail = batchBuf.getTail();
+    batchBuf.startEvents();
+    Assert.assertTrue(batchBuf.appendEvents(new DbusEventBatch(), null));
+    batchBuf.rollbackEvents();
+    Assert.assertEquals(tail, batchBuf.getTail());
+  }
+
   @Test
   /**
    * For DDSDBUS-502. The bug will manifest as an "Error in BufferOffsetException"
@@ -4539,6 +4654,8 @@ class ReadEventsTestParams
   public boolean _expectDestReadError = false;
   public boolean _debuggingMode = false; //increase timeouts to let debugging through code
   public int _eventSize = 100;
+  /** if > 0, the events are read through a ChunkedReadableByteChannel with chunks up to that size */
+  public int _maxChunkSize = 0;
 
   public ReadEventsTestParams()
   {
@@ -4676,7 +4793,8 @@ class ReadEventsTestParams
 
   public void readDataAtDestination() throws InterruptedException, IOException
   {
-    final ReadableByteChannel readChannel1 =
+    final ReadableByteChannel readChannel1 = _maxChunkSize > 0 ?
+        new RandomChunksChannel(_srcByteStr.toByteArray(), _maxChunkSize, _startScn) :
         Channels.newChannel(new ByteArrayInputStream(_srcByteStr.toByteArray()));
     final AtomicInteger eventsRead1 = new AtomicInteger(-1);
     final AtomicBoolean hasError1 = new AtomicBoolean(false);
@@ -4806,5 +4924,62 @@ class ReadEventsTestParams
     _eventSize = eventSize;
     return this;
   }
+
+  public ReadEventsTestParams maxChunkSize(int maxChunkSize)
+  {
+    _maxChunkSize = maxChunkSize;
+    return this;
+  }
+}
+
+/** Serves a byte array as a sequence of chunks with random sizes in [1, maxChunkSize] */
+class RandomChunksChannel implements ChunkedReadableByteChannel
+{
+  private final ByteBuffer _data;
+  private final int _maxChunkSize;
+  private final Random _rng;
+  private boolean _open = true;
+
+  public RandomChunksChannel(byte[] data, int maxChunkSize, long seed)
+  {
+    _data = ByteBuffer.wrap(data);
+    _maxChunkSize = maxChunkSize;
+    _rng = new Random(seed);
+  }
+
+  @Override
+  public ByteBuffer readChunk() throws IOException
+  {
+    if (!_open || !_data.hasRemaining()) return null;
+    int chunkSize = Math.min(_data.remaining(), 1 + _rng.nextInt(_maxChunkSize));
+    ByteBuffer chunk = _data.slice();
+    chunk.limit(chunkSize);
+    _data.position(_data.position() + chunkSize);
+    return chunk;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException
+  {
+    if (!_open || !_data.hasRemaining()) return -1;
+    int n = Math.min(dst.remaining(), _data.remaining());
+    ByteBuffer src = _data.slice();
+    src.limit(n);
+    dst.put(src);
+    _data.position(_data.position() + n);
+    return n;
+  }
+
+  @Override
+  public boolean isOpen()
+  {
+    return _open;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    _open = false;
+  }
 }
 
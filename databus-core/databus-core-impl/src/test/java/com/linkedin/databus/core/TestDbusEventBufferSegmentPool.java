@@ -0,0 +1,225 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteOrder;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.DbusEventBuffer.AllocationPolicy;
+import com.linkedin.databus.core.DbusEventBuffer.DbusEventIterator;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+import com.linkedin.databus2.core.AssertLevel;
+
+public class TestDbusEventBufferSegmentPool
+{
+  private static final int SEGMENT_SIZE = 1000;
+  private static final DbusEventFactory EVENT_FACTORY = new DbusEventV2Factory(ByteOrder.BIG_ENDIAN);
+
+  private static DbusEventBuffer.StaticConfig getConfig(long maxSize) throws Exception
+  {
+    DbusEventBuffer.Config config = new DbusEventBuffer.Config();
+    config.setMaxSize(maxSize);
+    config.setMaxIndividualBufferSize(SEGMENT_SIZE);
+    config.setScnIndexSize(1000);
+    config.setAverageEventSize(500);
+    config.setAllocationPolicy(AllocationPolicy.HEAP_MEMORY.name());
+    config.setAssertLevel(AssertLevel.ALL.toString());
+    return config.build();
+  }
+
+  private static DbusEventBufferSegmentPool createPool(int numSegments, long minRetentionMs)
+      throws Exception
+  {
+    DbusEventBufferSegmentPool.Config config = new DbusEventBufferSegmentPool.Config();
+    config.setEnabled(true);
+    config.setMaxSize(numSegments * SEGMENT_SIZE);
+    config.setMinRetentionMs(minRetentionMs);
+    return new DbusEventBufferSegmentPool(config.build(), SEGMENT_SIZE, AllocationPolicy.HEAP_MEMORY,
+                                          EVENT_FACTORY.getByteOrder());
+  }
+
+  private static DbusEventBuffer createBuffer(DbusEventBufferSegmentPool pool, int id) throws Exception
+  {
+    DbusEventBuffer buf = new DbusEventBuffer(getConfig(5 * SEGMENT_SIZE),
+                                              new PhysicalPartition(id, "testDb"), EVENT_FACTORY, pool);
+    buf.start(0);
+    return buf;
+  }
+
+  /** Appends windows of two events; each segment fits about two windows */
+  private static void appendWindows(DbusEventBuffer buf, long firstScn, int numWindows)
+  {
+    for (int i = 0; i < numWindows; ++i)
+    {
+      buf.startEvents();
+      for (int j = 0; j < 2; ++j)
+      {
+        Assert.assertTrue(buf.appendEvent(new DbusEventKey(j), (short)0, (short)0, System.nanoTime(),
+                                          (short)1, new byte[16], new byte[100], false));
+      }
+      buf.endEvents(firstScn + i, null);
+    }
+  }
+
+  /** Checks that the buffer contains all windows from its min scn to its last scn */
+  private static void assertWindows(DbusEventBuffer buf)
+  {
+    DbusEventIterator it = buf.acquireIterator("assertWindows");
+    try
+    {
+      long expectedScn = buf.getMinScn();
+      int numEvents = 0;
+      while (it.hasNext())
+      {
+        DbusEvent e = it.next();
+        Assert.assertTrue(e.isValid());
+        if (e.isEndOfPeriodMarker() && e.sequence() < expectedScn)
+        {
+          //the initial empty window
+          continue;
+        }
+        if (e.isEndOfPeriodMarker())
+        {
+          Assert.assertEquals(numEvents, 2);
+          numEvents = 0;
+          ++expectedScn;
+        }
+        else if (!e.isControlMessage())
+        {
+          Assert.assertEquals(e.sequence(), expectedScn);
+          ++numEvents;
+        }
+      }
+      Assert.assertEquals(expectedScn - 1, buf.lastWrittenScn());
+    }
+    finally
+    {
+      buf.releaseIterator(it);
+    }
+  }
+
+  @Test
+  public void testLeaseOnDemand() throws Exception
+  {
+    DbusEventBufferSegmentPool pool = createPool(10, 0);
+    DbusEventBuffer buf1 = createBuffer(pool, 1);
+    DbusEventBuffer buf2 = createBuffer(pool, 2);
+    Assert.assertSame(buf1.getSegmentPool(), pool);
+    Assert.assertEquals(buf1.getNumLeasedSegments(), 1);
+    Assert.assertEquals(buf1.getLeasedSize(), SEGMENT_SIZE);
+    Assert.assertEquals(buf1.getAllocatedSize(), 5 * SEGMENT_SIZE);
+
+    appendWindows(buf1, 10, 5);
+    Assert.assertTrue(buf1.getNumLeasedSegments() > 1);
+    Assert.assertTrue(buf1.getNumLeasedSegments() < 5);
+    Assert.assertEquals(buf1.getMinScn(), 10);
+    assertWindows(buf1);
+
+    // the buffer wraps around once all its ByteBuffers are leased
+    appendWindows(buf1, 15, 50);
+    Assert.assertEquals(buf1.getNumLeasedSegments(), 5);
+    Assert.assertTrue(buf1.getMinScn() > 10);
+    assertWindows(buf1);
+
+    DbusEventBufferSegmentPool.Stats stats = pool.getStats();
+    Assert.assertEquals(stats.getLeasedSegments(), 6);
+    Assert.assertEquals(stats.getAllocatedSegments(), 6);
+    Assert.assertEquals(stats.getReclaimedSegments(), 0);
+    Assert.assertEquals(stats.getLeasedSegmentsPerPartition().get(buf2.getPhysicalPartition().toSimpleString()),
+                        Integer.valueOf(1));
+
+    // clearing keeps a single segment
+    buf1.clear();
+    Assert.assertEquals(buf1.getNumLeasedSegments(), 1);
+    Assert.assertEquals(pool.getStats().getFreeSegments(), 4);
+    buf1.start(100);
+    appendWindows(buf1, 101, 20);
+    assertWindows(buf1);
+
+    buf1.closeBuffer(false);
+    buf2.closeBuffer(false);
+    stats = pool.getStats();
+    Assert.assertEquals(stats.getLeasedSegments(), 0);
+    Assert.assertEquals(stats.getFreeSegments(), stats.getAllocatedSegments());
+  }
+
+  @Test
+  public void testReclaimFromOtherBuffer() throws Exception
+  {
+    DbusEventBufferSegmentPool pool = createPool(6, 0);
+    DbusEventBuffer buf1 = createBuffer(pool, 1);
+    DbusEventBuffer buf2 = createBuffer(pool, 2);
+
+    appendWindows(buf1, 10, 50);
+    Assert.assertEquals(buf1.getNumLeasedSegments(), 5);
+    long minScn = buf1.getMinScn();
+
+    // the pool is exhausted; buf2 gets the oldest segment of buf1
+    appendWindows(buf2, 10, 20);
+    Assert.assertTrue(buf2.getNumLeasedSegments() > 1);
+    Assert.assertEquals(buf1.getNumLeasedSegments() + buf2.getNumLeasedSegments(), 6);
+    Assert.assertTrue(buf1.getMinScn() > minScn);
+    Assert.assertTrue(pool.getStats().getReclaimedSegments() > 0);
+    assertWindows(buf1);
+    assertWindows(buf2);
+
+    // buf1 can keep writing to the segments it has left
+    appendWindows(buf1, 60, 20);
+    assertWindows(buf1);
+    Assert.assertTrue(buf1.getNumLeasedSegments() >= pool.getMinSegmentsPerBuffer());
+  }
+
+  @Test
+  public void testMinRetention() throws Exception
+  {
+    DbusEventBufferSegmentPool pool = createPool(6, 3600 * 1000L);
+    DbusEventBuffer buf1 = createBuffer(pool, 1);
+    DbusEventBuffer buf2 = createBuffer(pool, 2);
+    appendWindows(buf1, 10, 50);
+    Assert.assertEquals(buf1.getNumLeasedSegments(), 5);
+
+    // buf2 is guaranteed its minimum number of segments regardless of the retention of buf1 but
+    // after that it has to recycle its own segments
+    appendWindows(buf2, 10, 50);
+    Assert.assertEquals(buf2.getNumLeasedSegments(), pool.getMinSegmentsPerBuffer());
+    Assert.assertEquals(buf1.getNumLeasedSegments(), 4);
+    DbusEventBufferSegmentPool.Stats stats = pool.getStats();
+    Assert.assertEquals(stats.getReclaimedSegments(), 1);
+    Assert.assertTrue(stats.getRecycledSegments() > 0);
+    assertWindows(buf1);
+    assertWindows(buf2);
+  }
+
+  @Test
+  public void testPoolCannotServe() throws Exception
+  {
+    // no room for the minimum segments of a second buffer
+    DbusEventBufferSegmentPool pool = createPool(3, 0);
+    DbusEventBuffer buf1 = createBuffer(pool, 1);
+    DbusEventBuffer buf2 = createBuffer(pool, 2);
+    Assert.assertSame(buf1.getSegmentPool(), pool);
+    Assert.assertNull(buf2.getSegmentPool());
+    Assert.assertEquals(buf2.getLeasedSize(), 5 * SEGMENT_SIZE);
+    appendWindows(buf2, 10, 50);
+    assertWindows(buf2);
+  }
+}
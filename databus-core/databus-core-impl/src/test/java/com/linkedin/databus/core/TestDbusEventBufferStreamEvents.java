@@ -20,8 +20,10 @@ package com.linkedin.databus.core;
 
 import junit.framework.Assert;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.Vector;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -115,4 +117,73 @@ public class TestDbusEventBufferStreamEvents
     Assert.assertTrue(num.get() > 0);
   }
 
+  /**
+   * Streaming the same V2 events repeatedly to a V1 client converts each event once and the
+   * converted events are identical to a fresh conversion.
+   */
+  @Test
+  public void testStreamToV1ClientUsesConvertedEventCache() throws Exception
+  {
+    DbusEventFactory eventFactory = new DbusEventV2Factory();
+    final DbusEventBuffer dbusBuf =
+        new DbusEventBuffer(TestDbusEventBuffer.getConfig(
+            100000, 100000, 1000, 5000, AllocationPolicy.HEAP_MEMORY, QueuePolicy.BLOCK_ON_WRITE,
+            AssertLevel.ALL), null, eventFactory);
+    dbusBuf.start(0);
+    int numEvents = 0;
+    for (int w = 1; w <= 5; ++w)
+    {
+      dbusBuf.startEvents();
+      for (int i = 0; i < 10; ++i)
+      {
+        DbusEventInfo eventInfo = new DbusEventInfo(DbusOpcode.UPSERT, 0L, (short)0, (short)0, 0L, (short)1,
+                                                    new byte[16], new byte[100], false, false);
+        eventInfo.setEventSerializationVersion(DbusEventFactory.DBUS_EVENT_V2);
+        dbusBuf.appendEvent(new DbusEventKey(w * 100 + i), eventInfo, null);
+        ++numEvents;
+      }
+      dbusBuf.endEvents(w * 10, null);
+    }
+    // data events + one EOP marker per window
+    int numStreamed = numEvents + 5;
+
+    byte[] firstPass = null;
+    for (int pass = 0; pass < 3; ++pass)
+    {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      StreamEventsArgs args = new StreamEventsArgs(Integer.MAX_VALUE)
+          .setMaxClientEventVersion(DbusEventFactory.DBUS_EVENT_V1);
+      StreamEventsResult result =
+          dbusBuf.streamEvents(Checkpoint.createFlexibleCheckpoint(), Channels.newChannel(baos), args);
+      Assert.assertEquals(numStreamed, result.getNumEventsStreamed());
+      if (0 == pass)
+        firstPass = baos.toByteArray();
+      else
+        Assert.assertTrue(Arrays.equals(firstPass, baos.toByteArray()));
+    }
+
+    // the EOP marker written by start() is scanned (and converted) but not streamed
+    int numConverted = numStreamed + 1;
+    ConvertedEventCache cache = dbusBuf.getConvertedEventCache();
+    Assert.assertEquals(numConverted, cache.getNumEntries());
+    Assert.assertEquals(numConverted, cache.getMissCount());
+    Assert.assertEquals(2 * numConverted, cache.getHitCount());
+
+    // all streamed events are V1
+    ByteBuffer bytes = ByteBuffer.wrap(firstPass).order(eventFactory.getByteOrder());
+    int pos = 0;
+    while (pos < firstPass.length)
+    {
+      DbusEventInternalReadable e = DbusEventFactory.createReadOnlyDbusEventFromBufferUnchecked(bytes, pos);
+      Assert.assertEquals(DbusEventFactory.DBUS_EVENT_V1, e.getVersion());
+      Assert.assertTrue(e.isValid());
+      pos += e.size();
+    }
+
+    // a reset drops the converted events
+    dbusBuf.reset(100);
+    Assert.assertEquals(0, cache.getNumEntries());
+    Assert.assertEquals(0, cache.getSize());
+  }
+
 }
@@ -0,0 +1,98 @@
+package com.linkedin.databus.core.util;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBoundedSpscQueue
+{
+  @Test
+  public void testOfferPoll()
+  {
+    BoundedSpscQueue<Integer> q = new BoundedSpscQueue<Integer>(3);
+    Assert.assertEquals(q.capacity(), 3);
+    Assert.assertTrue(q.isEmpty());
+    Assert.assertNull(q.poll());
+
+    for (int round = 0; round < 5; ++round)
+    {
+      Assert.assertTrue(q.offer(1));
+      Assert.assertTrue(q.offer(2));
+      Assert.assertTrue(q.offer(3));
+      Assert.assertFalse(q.offer(4));
+      Assert.assertEquals(q.size(), 3);
+
+      Assert.assertEquals(q.poll(), Integer.valueOf(1));
+      Assert.assertTrue(q.offer(5));
+      Assert.assertEquals(q.poll(), Integer.valueOf(2));
+      Assert.assertEquals(q.poll(), Integer.valueOf(3));
+      Assert.assertEquals(q.poll(), Integer.valueOf(5));
+      Assert.assertNull(q.poll());
+      Assert.assertTrue(q.isEmpty());
+    }
+  }
+
+  @Test
+  public void testProducerConsumer() throws Exception
+  {
+    final int numElements = 1000000;
+    final BoundedSpscQueue<Integer> q = new BoundedSpscQueue<Integer>(16);
+    final AtomicReference<String> error = new AtomicReference<String>();
+
+    Thread consumer = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        int expected = 0;
+        while (expected < numElements)
+        {
+          Integer e = q.poll();
+          if (null == e)
+          {
+            Thread.yield();
+          }
+          else if (e.intValue() != expected++)
+          {
+            error.set("expected " + (expected - 1) + " but got " + e);
+            return;
+          }
+        }
+      }
+    }, "TestBoundedSpscQueue.consumer");
+    consumer.setDaemon(true);
+    consumer.start();
+
+    for (int i = 0; i < numElements; ++i)
+    {
+      while (!q.offer(i))
+      {
+        Thread.yield();
+      }
+    }
+    consumer.join(30000);
+    Assert.assertFalse(consumer.isAlive());
+    Assert.assertNull(error.get());
+    Assert.assertTrue(q.isEmpty());
+  }
+}
@@ -0,0 +1,96 @@
+package com.linkedin.databus.core.util;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStripedLongCounters
+{
+  @Test
+  public void testStripes()
+  {
+    Assert.assertEquals(new StripedLongCounters(3, 1).getNumStripes(), 1);
+    Assert.assertEquals(new StripedLongCounters(3, 3).getNumStripes(), 4);
+    Assert.assertEquals(new StripedLongCounters(3, 8).getNumStripes(), 8);
+    Assert.assertEquals(new StripedLongCounters(3, 100).getNumStripes(),
+                        StripedLongCounters.MAX_STRIPES);
+  }
+
+  @Test
+  public void testAddAndReset()
+  {
+    StripedLongCounters c = new StripedLongCounters(3, 4);
+    c.increment(0);
+    c.add(1, 10);
+    c.add(1, 5);
+    Assert.assertEquals(c.get(0), 1);
+    Assert.assertEquals(c.get(1), 15);
+    Assert.assertEquals(c.get(2), 0);
+
+    Assert.assertEquals(c.getAndReset(1), 15);
+    Assert.assertEquals(c.get(1), 0);
+    Assert.assertEquals(c.get(0), 1);
+
+    c.reset();
+    Assert.assertEquals(c.get(0), 0);
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception
+  {
+    final int numThreads = 8;
+    final int numUpdates = 100000;
+    final StripedLongCounters c = new StripedLongCounters(2, numThreads);
+
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; ++i)
+    {
+      threads[i] = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for (int j = 0; j < numUpdates; ++j)
+          {
+            c.increment(0);
+            c.add(1, 2);
+          }
+        }
+      });
+      threads[i].start();
+    }
+
+    // drain while the writers are running; no update may be lost
+    long drained = 0;
+    for (Thread t: threads)
+    {
+      while (t.isAlive())
+      {
+        drained += c.getAndReset(0);
+        t.join(1);
+      }
+    }
+    drained += c.getAndReset(0);
+
+    Assert.assertEquals(drained, (long)numThreads * numUpdates);
+    Assert.assertEquals(c.get(1), 2L * numThreads * numUpdates);
+  }
+}
@@ -0,0 +1,140 @@
+package com.linkedin.databus2.core.monitoring;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.monitoring.LatencyHistogram;
+
+public class TestLatencyHistogram
+{
+  @Test
+  public void testPercentiles()
+  {
+    LatencyHistogram h = new LatencyHistogram();
+    Assert.assertEquals(h.getCount(), 0);
+    Assert.assertEquals(h.getPerc50(), -1);
+
+    for (int i = 1; i <= 1000; ++i)
+    {
+      h.record(i);
+    }
+    Assert.assertEquals(h.getCount(), 1000);
+    Assert.assertEquals(h.getMax(), 1000);
+    Assert.assertEquals(h.getMean(), 500.5, 0.001);
+    assertWithin(h.getPerc50(), 500);
+    assertWithin(h.getPerc90(), 900);
+    assertWithin(h.getPerc99(), 990);
+    Assert.assertEquals(h.getPercentile(100.0), 1000);
+
+    // small values are exact; negative values are counted as 0
+    LatencyHistogram small = new LatencyHistogram();
+    small.record(-5);
+    small.record(3);
+    small.record(7);
+    Assert.assertEquals(small.getPercentile(30.0), 0);
+    Assert.assertEquals(small.getPerc50(), 3);
+    Assert.assertEquals(small.getPercentile(100.0), 7);
+
+    // huge values go to the last bucket
+    small.record(Long.MAX_VALUE / 2);
+    Assert.assertEquals(small.getPercentile(100.0), Long.MAX_VALUE / 2);
+  }
+
+  @Test
+  public void testMerge()
+  {
+    LatencyHistogram h1 = new LatencyHistogram();
+    LatencyHistogram h2 = new LatencyHistogram();
+    for (int i = 0; i < 900; ++i)
+    {
+      h1.record(10);
+    }
+    for (int i = 0; i < 100; ++i)
+    {
+      h2.record(5000);
+    }
+
+    LatencyHistogram total = new LatencyHistogram();
+    total.merge(h1);
+    total.merge(h2);
+    Assert.assertEquals(total.getCount(), 1000);
+    Assert.assertEquals(total.getPerc50(), 10);
+    Assert.assertEquals(total.getPercentile(90.0), 10);
+    assertWithin(total.getPerc95(), 5000);
+    Assert.assertEquals(total.getMax(), 5000);
+
+    LatencyHistogram copy = new LatencyHistogram();
+    copy.record(1);
+    copy.copyFrom(h2);
+    Assert.assertEquals(copy.getCount(), 100);
+    Assert.assertEquals(copy.getPerc50(), h2.getPerc50());
+
+    total.reset();
+    Assert.assertEquals(total.getCount(), 0);
+    Assert.assertEquals(total.getMax(), 0);
+  }
+
+  @Test
+  public void testConcurrentRecords() throws Exception
+  {
+    final LatencyHistogram h = new LatencyHistogram(4);
+    final int numRecords = 10000;
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; ++t)
+    {
+      final int value = t + 1;
+      threads[t] = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for (int i = 0; i < numRecords; ++i)
+          {
+            h.record(value);
+          }
+        }
+      }, "recorder-" + t);
+      threads[t].start();
+    }
+    for (Thread t: threads)
+    {
+      t.join();
+    }
+
+    // the stripes are added up when read
+    Assert.assertEquals(h.getCount(), threads.length * numRecords);
+    Assert.assertEquals(h.getMean(), 4.5, 0.001);
+    Assert.assertEquals(h.getMax(), threads.length);
+    Assert.assertEquals(h.getPerc50(), 4);
+
+    LatencyHistogram copy = new LatencyHistogram(1);
+    copy.copyFrom(h);
+    Assert.assertEquals(copy.getCount(), h.getCount());
+    Assert.assertEquals(copy.getPerc99(), 8);
+  }
+
+  private static void assertWithin(long actual, long expected)
+  {
+    Assert.assertTrue(actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKETS,
+                      "expected ~" + expected + " but was " + actual);
+  }
+}
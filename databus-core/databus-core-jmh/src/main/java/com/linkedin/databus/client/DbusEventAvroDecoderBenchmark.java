@@ -0,0 +1,126 @@
+package com.linkedin.databus.client;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventInfo;
+import com.linkedin.databus.core.DbusEventKey;
+import com.linkedin.databus.core.DbusEventV2Factory;
+import com.linkedin.databus.core.DbusOpcode;
+import com.linkedin.databus2.schemas.SchemaId;
+import com.linkedin.databus2.schemas.VersionedSchemaSet;
+
+/**
+ * Measures the client-side decoding of event payloads with
+ * {@link DbusEventAvroDecoder#getGenericRecord(DbusEvent, GenericRecord)}, with and without
+ * reusing the result record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DbusEventAvroDecoderBenchmark
+{
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"member\",\"namespace\":\"com.linkedin.events.benchmark\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"firstName\",\"type\":\"string\"}," +
+      "{\"name\":\"lastName\",\"type\":\"string\"},{\"name\":\"headline\",\"type\":[\"null\",\"string\"]}," +
+      "{\"name\":\"createdAt\",\"type\":\"long\"},{\"name\":\"numConnections\",\"type\":\"int\"}," +
+      "{\"name\":\"deleted\",\"type\":\"boolean\"}]}";
+
+  /** Whether the record decoded by the previous call is passed as the reuse record */
+  @Param({"true", "false"})
+  public boolean _reuse;
+
+  @Param({"false", "true"})
+  public boolean _directBuffer;
+
+  private DbusEventAvroDecoder _decoder;
+  private DbusEvent _event;
+  private GenericRecord _record;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    Schema schema = Schema.parse(SCHEMA);
+    SchemaId schemaId = SchemaId.createWithMd5(schema);
+    VersionedSchemaSet schemaSet = new VersionedSchemaSet();
+    schemaSet.add("com.linkedin.events.benchmark.member", (short)1, schemaId, SCHEMA, true);
+    _decoder = new DbusEventAvroDecoder(schemaSet);
+
+    GenericRecord r = new GenericData.Record(schema);
+    r.put("id", 123456789L);
+    r.put("firstName", new Utf8("Firstname"));
+    r.put("lastName", new Utf8("Lastname"));
+    r.put("headline", new Utf8("A headline which is a few dozen characters long"));
+    r.put("createdAt", System.currentTimeMillis());
+    r.put("numConnections", 500);
+    r.put("deleted", false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder enc = new BinaryEncoder(out);
+    new GenericDatumWriter<GenericRecord>(schema).write(r, enc);
+    enc.flush();
+
+    DbusEventInfo eventInfo = new DbusEventInfo(DbusOpcode.UPSERT, 1L, (short)0, (short)0,
+                                                System.nanoTime(), (short)1,
+                                                schemaId.getByteArray(), out.toByteArray(),
+                                                false, true);
+    eventInfo.setEventSerializationVersion(DbusEventFactory.DBUS_EVENT_V2);
+    DbusEventFactory eventFactory = new DbusEventV2Factory();
+    ByteBuffer buf = _directBuffer ? ByteBuffer.allocateDirect(1024) : ByteBuffer.allocate(1024);
+    buf.order(eventFactory.getByteOrder());
+    DbusEventFactory.serializeEvent(new DbusEventKey(123456789L), buf, eventInfo);
+    _event = eventFactory.createReadOnlyDbusEventFromBuffer(buf, 0);
+    _record = null;
+  }
+
+  @Benchmark
+  public GenericRecord getGenericRecord()
+  {
+    GenericRecord result = _decoder.getGenericRecord(_event, _reuse ? _record : null);
+    _record = result;
+    return result;
+  }
+}
@@ -0,0 +1,174 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.core.DbusEventBuffer.AllocationPolicy;
+import com.linkedin.databus.core.DbusEventBuffer.QueuePolicy;
+import com.linkedin.databus.core.util.InvalidConfigException;
+import com.linkedin.databus2.core.AssertLevel;
+import com.linkedin.databus2.core.filter.DbusKeyCompositeFilter;
+import com.linkedin.databus2.core.filter.KeyFilterConfigHolder;
+import com.linkedin.databus2.core.filter.KeyModFilterConfig;
+
+/**
+ * Fixtures shared by the benchmarks: event buffers, generated windows of events and a channel
+ * which discards everything written to it.
+ */
+public class BenchmarkEventBuffers
+{
+  public static final short SRC_ID = 101;
+  public static final byte[] SCHEMA_ID = new byte[16];
+
+  static
+  {
+    // the benchmarks must not measure logging
+    Logger.getRootLogger().setLevel(Level.ERROR);
+  }
+
+  public static DbusEventBuffer.StaticConfig createConfig(long maxSize, QueuePolicy queuePolicy)
+         throws InvalidConfigException
+  {
+    DbusEventBuffer.Config config = new DbusEventBuffer.Config();
+    config.setMaxSize(maxSize);
+    config.setMaxIndividualBufferSize((int)Math.min(maxSize, Integer.MAX_VALUE));
+    config.setScnIndexSize((int)Math.max(maxSize / 256, 16 * 1024));
+    config.setAverageEventSize(32 * 1024);
+    config.setAllocationPolicy(AllocationPolicy.HEAP_MEMORY.name());
+    config.setQueuePolicy(queuePolicy.toString());
+    config.setAssertLevel(AssertLevel.NONE.toString());
+    return config.build();
+  }
+
+  /** Creates a heap buffer of V2 events */
+  public static DbusEventBuffer createBuffer(long maxSize, QueuePolicy queuePolicy)
+         throws InvalidConfigException
+  {
+    DbusEventBuffer buf = new DbusEventBuffer(createConfig(maxSize, queuePolicy), null,
+                                              new DbusEventV2Factory());
+    buf.start(0);
+    return buf;
+  }
+
+  public static byte[] createPayload(Random rng, int size)
+  {
+    byte[] payload = new byte[size];
+    rng.nextBytes(payload);
+    return payload;
+  }
+
+  public static DbusEventInfo createEventInfo(byte[] payload)
+  {
+    DbusEventInfo eventInfo = new DbusEventInfo(DbusOpcode.UPSERT, 0L, (short)0, (short)0,
+                                                System.nanoTime(), SRC_ID, SCHEMA_ID, payload,
+                                                false, true);
+    eventInfo.setEventSerializationVersion(DbusEventFactory.DBUS_EVENT_V2);
+    return eventInfo;
+  }
+
+  /**
+   * Appends windows of events with consecutive keys to a buffer
+   * @return the SCN of the last window
+   */
+  public static long appendWindows(DbusEventBuffer buf, long firstScn, int numWindows,
+                                   int eventsPerWindow, byte[] payload)
+  {
+    long scn = firstScn;
+    long key = 0;
+    for (int w = 0; w < numWindows; ++w, ++scn)
+    {
+      buf.startEvents();
+      for (int i = 0; i < eventsPerWindow; ++i)
+      {
+        buf.appendEvent(new DbusEventKey(key++), createEventInfo(payload), null);
+      }
+      buf.endEvents(scn, null);
+    }
+    return scn - 1;
+  }
+
+  /** Serializes all events in a buffer in the relay-to-client wire format */
+  public static byte[] streamToBytes(DbusEventBuffer buf)
+         throws ScnNotFoundException, OffsetNotFoundException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StreamEventsArgs args = new StreamEventsArgs(Integer.MAX_VALUE)
+        .setMaxClientEventVersion(DbusEventFactory.DBUS_EVENT_V2);
+    buf.streamEvents(Checkpoint.createFlexibleCheckpoint(), Channels.newChannel(out), args);
+    return out.toByteArray();
+  }
+
+  /** Creates a key filter for {@link #SRC_ID} which passes one in numBuckets events */
+  public static DbusKeyCompositeFilter createModFilter(int numBuckets) throws InvalidConfigException
+  {
+    KeyFilterConfigHolder.Config filterConf = new KeyFilterConfigHolder.Config();
+    filterConf.setType("MOD");
+    KeyModFilterConfig.Config modConf = new KeyModFilterConfig.Config();
+    modConf.setNumBuckets(numBuckets);
+    modConf.setBuckets("[0,0]");
+    filterConf.setMod(modConf);
+
+    HashMap<Long, KeyFilterConfigHolder> filterConfigs = new HashMap<Long, KeyFilterConfigHolder>();
+    filterConfigs.put((long)SRC_ID, new KeyFilterConfigHolder(filterConf.build()));
+    DbusKeyCompositeFilter filter = new DbusKeyCompositeFilter(filterConfigs);
+    filter.dedupe();
+    return filter;
+  }
+
+  /** A channel which only counts the bytes written to it */
+  public static class NullWritableByteChannel implements WritableByteChannel
+  {
+    private long _bytesWritten = 0;
+
+    @Override
+    public int write(ByteBuffer src)
+    {
+      int n = src.remaining();
+      src.position(src.limit());
+      _bytesWritten += n;
+      return n;
+    }
+
+    public long getBytesWritten()
+    {
+      return _bytesWritten;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+  }
+}
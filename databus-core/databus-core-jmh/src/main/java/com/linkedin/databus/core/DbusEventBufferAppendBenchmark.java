@@ -0,0 +1,93 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.DbusEventBuffer.QueuePolicy;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+
+/**
+ * Measures the relay write path: a window of {@link DbusEventBuffer#appendEvent} calls followed by
+ * {@link DbusEventBuffer#endEvents(long, DbusEventsStatisticsCollector)}. The buffer overwrites its
+ * oldest windows, so the measurement includes the eviction of old events from the buffer and the
+ * SCN index. One operation is one window.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DbusEventBufferAppendBenchmark
+{
+  @Param({"100", "1000"})
+  public int _payloadSize;
+
+  @Param({"1", "100"})
+  public int _eventsPerWindow;
+
+  /** Whether the events are also counted in a statistics collector (as in the relay) */
+  @Param({"false", "true"})
+  public boolean _withStats;
+
+  private DbusEventBuffer _buf;
+  private DbusEventsStatisticsCollector _stats;
+  private byte[] _payload;
+  private long _scn;
+  private long _key;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    _buf = BenchmarkEventBuffers.createBuffer(64 * 1024 * 1024, QueuePolicy.OVERWRITE_ON_WRITE);
+    _stats = _withStats ? new DbusEventsStatisticsCollector(1, "benchmark", true, false, null)
+                        : null;
+    _payload = BenchmarkEventBuffers.createPayload(new Random(1), _payloadSize);
+    _scn = 1;
+    _key = 0;
+  }
+
+  @Benchmark
+  public long appendWindow()
+  {
+    _buf.startEvents();
+    for (int i = 0; i < _eventsPerWindow; ++i)
+    {
+      _buf.appendEvent(new DbusEventKey(_key++), BenchmarkEventBuffers.createEventInfo(_payload),
+                       _stats);
+    }
+    _buf.endEvents(_scn, _stats);
+    return _scn++;
+  }
+}
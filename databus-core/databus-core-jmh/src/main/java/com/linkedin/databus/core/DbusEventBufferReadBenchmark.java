@@ -0,0 +1,81 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.DbusEventBuffer.QueuePolicy;
+
+/**
+ * Measures the client write path: {@link DbusEventBuffer#readEvents(java.nio.channels.ReadableByteChannel)}
+ * of a relay response (as produced by streamEvents) into an emptied client buffer, including the
+ * validation of the events. One operation reads {@link #NUM_WINDOWS} windows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DbusEventBufferReadBenchmark
+{
+  public static final int NUM_WINDOWS = 100;
+  public static final int EVENTS_PER_WINDOW = 10;
+
+  @Param({"100", "1000"})
+  public int _payloadSize;
+
+  private byte[] _response;
+  private DbusEventBuffer _clientBuf;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    byte[] payload = BenchmarkEventBuffers.createPayload(new Random(1), _payloadSize);
+    DbusEventBuffer relayBuf = BenchmarkEventBuffers.createBuffer(32 * 1024 * 1024,
+                                                                  QueuePolicy.BLOCK_ON_WRITE);
+    BenchmarkEventBuffers.appendWindows(relayBuf, 1, NUM_WINDOWS, EVENTS_PER_WINDOW, payload);
+    _response = BenchmarkEventBuffers.streamToBytes(relayBuf);
+
+    _clientBuf = BenchmarkEventBuffers.createBuffer(32 * 1024 * 1024, QueuePolicy.BLOCK_ON_WRITE);
+  }
+
+  @Benchmark
+  public int readResponse() throws Exception
+  {
+    _clientBuf.clear();
+    return _clientBuf.readEvents(Channels.newChannel(new ByteArrayInputStream(_response)));
+  }
+}
@@ -0,0 +1,94 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.DbusEventBuffer.QueuePolicy;
+import com.linkedin.databus2.core.filter.AllowAllDbusFilter;
+import com.linkedin.databus2.core.filter.DbusFilter;
+
+/**
+ * Measures the relay read path: {@link DbusEventBuffer#streamEvents(Checkpoint,
+ * java.nio.channels.WritableByteChannel, StreamEventsArgs)} of a full buffer from a flexible
+ * checkpoint into a channel which discards the bytes. One operation streams
+ * {@link #NUM_WINDOWS} windows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DbusEventBufferStreamBenchmark
+{
+  public static final int NUM_WINDOWS = 100;
+  public static final int EVENTS_PER_WINDOW = 10;
+
+  @Param({"100", "1000"})
+  public int _payloadSize;
+
+  /** "none" streams everything; "mod" applies a server-side key filter passing 1 in 4 events */
+  @Param({"none", "mod"})
+  public String _filter;
+
+  /** The max event version of the client (2 or 0); V2 events are converted for V1 (0) clients */
+  @Param({"2", "0"})
+  public int _maxClientEventVersion;
+
+  private DbusEventBuffer _buf;
+  private DbusFilter _dbusFilter;
+  private BenchmarkEventBuffers.NullWritableByteChannel _channel;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    byte[] payload = BenchmarkEventBuffers.createPayload(new Random(1), _payloadSize);
+    _buf = BenchmarkEventBuffers.createBuffer(32 * 1024 * 1024, QueuePolicy.BLOCK_ON_WRITE);
+    BenchmarkEventBuffers.appendWindows(_buf, 1, NUM_WINDOWS, EVENTS_PER_WINDOW, payload);
+    _dbusFilter = "mod".equals(_filter) ? BenchmarkEventBuffers.createModFilter(4)
+                                        : new AllowAllDbusFilter();
+    _channel = new BenchmarkEventBuffers.NullWritableByteChannel();
+  }
+
+  @Benchmark
+  public int streamAll() throws Exception
+  {
+    StreamEventsArgs args = new StreamEventsArgs(Integer.MAX_VALUE)
+        .setMaxClientEventVersion(_maxClientEventVersion)
+        .setFilter(_dbusFilter);
+    StreamEventsResult result =
+        _buf.streamEvents(Checkpoint.createFlexibleCheckpoint(), _channel, args);
+    return result.getNumEventsStreamed();
+  }
+}
@@ -0,0 +1,100 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the single-event primitives of {@link DbusEventV2}: serialization (including the CRC
+ * computation), scanning and CRC validation of a serialized event, and the V2-to-V1 conversion
+ * done when streaming to old clients.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DbusEventSerializationBenchmark
+{
+  @Param({"100", "1000", "10000"})
+  public int _payloadSize;
+
+  @Param({"false", "true"})
+  public boolean _directBuffer;
+
+  private DbusEventKey _key;
+  private DbusEventInfo _eventInfo;
+  private ByteBuffer _serializationBuf;
+  private ByteBuffer _serializedEventBuf;
+  private DbusEventInternalReadable _event;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    DbusEventFactory eventFactory = new DbusEventV2Factory();
+    _key = new DbusEventKey(12345L);
+    _eventInfo = BenchmarkEventBuffers.createEventInfo(
+        BenchmarkEventBuffers.createPayload(new Random(1), _payloadSize));
+
+    int bufSize = _payloadSize + 1024;
+    _serializationBuf = _directBuffer ? ByteBuffer.allocateDirect(bufSize) : ByteBuffer.allocate(bufSize);
+    _serializationBuf.order(eventFactory.getByteOrder());
+    _serializedEventBuf = _directBuffer ? ByteBuffer.allocateDirect(bufSize) : ByteBuffer.allocate(bufSize);
+    _serializedEventBuf.order(eventFactory.getByteOrder());
+    int size = DbusEventFactory.serializeEvent(_key, _serializedEventBuf, _eventInfo);
+    _serializedEventBuf.limit(size);
+    _event = eventFactory.createReadOnlyDbusEventFromBuffer(_serializedEventBuf, 0);
+  }
+
+  @Benchmark
+  public int serialize() throws Exception
+  {
+    _serializationBuf.clear();
+    return DbusEventFactory.serializeEvent(_key, _serializationBuf, _eventInfo);
+  }
+
+  /** Header and body CRC validation as done by readEvents() and the event iterators */
+  @Benchmark
+  public DbusEventInternalReadable.EventScanStatus scanEvent()
+  {
+    return _event.reset(_serializedEventBuf, 0).scanEvent();
+  }
+
+  @Benchmark
+  public DbusEventInternalWritable convertToV1() throws Exception
+  {
+    return ((DbusEventV2)_event.reset(_serializedEventBuf, 0)).convertToV1();
+  }
+}
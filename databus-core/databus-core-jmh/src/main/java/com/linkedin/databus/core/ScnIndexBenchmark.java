@@ -0,0 +1,83 @@
+package com.linkedin.databus.core;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.DbusEventBuffer.QueuePolicy;
+
+/**
+ * Measures {@link ScnIndex#getClosestOffset(long)} lookups of random SCNs in a full relay buffer,
+ * i.e. the SCN-to-offset lookup done for every client request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ScnIndexBenchmark
+{
+  private static final int NUM_LOOKUPS = 1024;
+
+  private ScnIndex _scnIndex;
+  private long[] _scns;
+  private int _next;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    DbusEventBuffer buf = BenchmarkEventBuffers.createBuffer(64 * 1024 * 1024,
+                                                             QueuePolicy.OVERWRITE_ON_WRITE);
+    // wrap around the buffer once so that the index has been overwritten as in a live relay
+    byte[] payload = new byte[200];
+    long lastScn = BenchmarkEventBuffers.appendWindows(buf, 1, 500000, 1, payload);
+
+    _scnIndex = buf.getScnIndex();
+    long minScn = buf.getMinScn();
+    Random rng = new Random(1);
+    _scns = new long[NUM_LOOKUPS];
+    for (int i = 0; i < NUM_LOOKUPS; ++i)
+    {
+      _scns[i] = minScn + (long)(rng.nextDouble() * (lastScn - minScn));
+    }
+    _next = 0;
+  }
+
+  @Benchmark
+  public long getClosestOffset() throws Exception
+  {
+    long scn = _scns[_next];
+    _next = (_next + 1) & (NUM_LOOKUPS - 1);
+    return _scnIndex.getClosestOffset(scn).getOffset();
+  }
+}
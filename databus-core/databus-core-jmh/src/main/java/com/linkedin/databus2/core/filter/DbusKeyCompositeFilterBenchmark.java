@@ -0,0 +1,115 @@
+package com.linkedin.databus2.core.filter;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.BenchmarkEventBuffers;
+import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventKey;
+import com.linkedin.databus.core.DbusEventV2Factory;
+
+/**
+ * Measures {@link DbusKeyCompositeFilter#allow(DbusEvent)} for MOD and RANGE server-side key
+ * filters. One operation is one event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DbusKeyCompositeFilterBenchmark
+{
+  private static final int NUM_EVENTS = 1024;
+
+  @Param({"MOD", "RANGE"})
+  public String _filterType;
+
+  private DbusKeyCompositeFilter _filter;
+  private DbusEvent[] _events;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    KeyFilterConfigHolder.Config filterConf = new KeyFilterConfigHolder.Config();
+    filterConf.setType(_filterType);
+    if ("MOD".equals(_filterType))
+    {
+      KeyModFilterConfig.Config modConf = new KeyModFilterConfig.Config();
+      modConf.setNumBuckets(100);
+      modConf.setBuckets("[0-9,50-59]");
+      filterConf.setMod(modConf);
+    }
+    else
+    {
+      KeyRangeFilterConfig.Config rangeConf = new KeyRangeFilterConfig.Config();
+      rangeConf.setSize(100);
+      rangeConf.setPartitions("[0-1,5-6]");
+      filterConf.setRange(rangeConf);
+    }
+    HashMap<Long, KeyFilterConfigHolder> filterConfigs = new HashMap<Long, KeyFilterConfigHolder>();
+    filterConfigs.put((long)BenchmarkEventBuffers.SRC_ID, new KeyFilterConfigHolder(filterConf.build()));
+    _filter = new DbusKeyCompositeFilter(filterConfigs);
+    _filter.dedupe();
+
+    DbusEventFactory eventFactory = new DbusEventV2Factory();
+    byte[] payload = new byte[100];
+    _events = new DbusEvent[NUM_EVENTS];
+    for (int i = 0; i < NUM_EVENTS; ++i)
+    {
+      ByteBuffer buf = ByteBuffer.allocate(1024).order(eventFactory.getByteOrder());
+      DbusEventFactory.serializeEvent(new DbusEventKey((long)i), buf,
+                                      BenchmarkEventBuffers.createEventInfo(payload));
+      _events[i] = eventFactory.createReadOnlyDbusEventFromBuffer(buf, 0);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EVENTS)
+  public int allow()
+  {
+    int allowed = 0;
+    for (DbusEvent e: _events)
+    {
+      if (_filter.allow(e))
+      {
+        ++allowed;
+      }
+    }
+    return allowed;
+  }
+}
@@ -48,6 +48,12 @@ public class DbChangeEntry {
 	 */
 	private final GenericRecord _record;
 
+	/**
+	 * The change event serialized in Avro binary format; null if only the record is available.
+	 * At least one of record and serializedRecord is set.
+	 */
+	private final byte[] _serializedRecord;
+
 	/**
 	 * OpCode of this change entry
 	 */
@@ -76,6 +82,13 @@ public class DbChangeEntry {
 		return _record;
 	}
 
+	/**
+	 * The change event serialized in Avro binary format; null if the entry only has the record
+	 */
+	public byte[] getSerializedRecord() {
+		return _serializedRecord;
+	}
+
 	public DbusOpcode getOpCode() {
 		return _opCode;
 	}
@@ -126,10 +139,25 @@ public class DbChangeEntry {
 
 	public DbChangeEntry(long scn, long timestampNanos, GenericRecord record, DbusOpcode opCode,
 			boolean isReplicated, Schema schema, List<KeyPair> pkeys) {
+		this(scn, timestampNanos, record, null, opCode, isReplicated, schema, pkeys);
+	}
+
+	/**
+	 * Creates a change entry with an already serialized record. {@link #getRecord()} returns null
+	 * for such entries.
+	 */
+	public DbChangeEntry(long scn, long timestampNanos, byte[] serializedRecord, DbusOpcode opCode,
+			boolean isReplicated, Schema schema, List<KeyPair> pkeys) {
+		this(scn, timestampNanos, null, serializedRecord, opCode, isReplicated, schema, pkeys);
+	}
+
+	private DbChangeEntry(long scn, long timestampNanos, GenericRecord record, byte[] serializedRecord,
+			DbusOpcode opCode, boolean isReplicated, Schema schema, List<KeyPair> pkeys) {
 		super();
 		this._scn = scn;
 		this._timestampInNanos = timestampNanos;
 		this._record = record;
+		this._serializedRecord = serializedRecord;
 		this._opCode = opCode;
 		this._isReplicated = isReplicated;
 		this._schema = schema;
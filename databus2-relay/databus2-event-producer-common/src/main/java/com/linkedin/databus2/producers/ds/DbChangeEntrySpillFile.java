@@ -0,0 +1,326 @@
+package com.linkedin.databus2.producers.ds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus.core.DbusOpcode;
+
+/*
+*
+* Copyright 2013 LinkedIn Corp. All rights reserved
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+
+/**
+ * A scratch file holding the change entries of a source in a transaction too large to be kept
+ * in memory. The entries must have their records serialized; they are written in the order they
+ * are added and read back in the same order, so that the latest change of a key is the last one.
+ *
+ * <p>Only the schemas of the entries are kept in memory. The file is deleted by {@link #delete()}.
+ * A spill file is used by a single thread.
+ */
+public class DbChangeEntrySpillFile
+{
+  public static final String MODULE = DbChangeEntrySpillFile.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  // key type tags
+  private static final byte KEY_INT = 'I';
+  private static final byte KEY_LONG = 'L';
+  private static final byte KEY_STRING = 'S';
+  private static final byte KEY_BYTES = 'B';
+  private static final byte KEY_OBJECT = 'O';
+
+  private final File _file;
+  private DataOutputStream _out;
+  /** The distinct schemas of the entries; entries refer to them by index */
+  private final List<Schema> _schemas = new ArrayList<Schema>();
+  private final IdentityHashMap<Schema, Integer> _schemaIds = new IdentityHashMap<Schema, Integer>();
+  private int _numEntries = 0;
+  private long _sizeInBytes = 0;
+  private long _maxScn = -1;
+
+  /**
+   * Creates a new spill file
+   * @param dir       the directory of the file; the default temporary directory if null
+   * @param prefix    the prefix of the file name (at least 3 characters)
+   */
+  public DbChangeEntrySpillFile(File dir, String prefix) throws IOException
+  {
+    _file = File.createTempFile(prefix, ".spill", dir);
+    _out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file), WRITE_BUFFER_SIZE));
+    LOG.info("spilling transaction rows to " + _file);
+  }
+
+  /**
+   * Appends an entry to the file
+   * @throws IllegalArgumentException if the record of the entry is not serialized
+   */
+  public void append(DbChangeEntry entry) throws IOException
+  {
+    if (null == entry.getSerializedRecord())
+    {
+      throw new IllegalArgumentException("the record of the change entry is not serialized");
+    }
+    if (null == _out)
+    {
+      throw new IOException("spill file already closed for writing: " + _file);
+    }
+
+    Integer schemaId = _schemaIds.get(entry.getSchema());
+    if (null == schemaId)
+    {
+      schemaId = _schemas.size();
+      _schemas.add(entry.getSchema());
+      _schemaIds.put(entry.getSchema(), schemaId);
+    }
+
+    int startSize = _out.size();
+    _out.writeLong(entry.getScn());
+    _out.writeLong(entry.getTimestampInNanos());
+    _out.writeByte(entry.getOpCode().ordinal());
+    _out.writeBoolean(entry.isReplicated());
+    _out.writeInt(schemaId);
+    List<KeyPair> pkeys = entry.getPkeys();
+    _out.writeInt(pkeys.size());
+    for (KeyPair kp: pkeys)
+    {
+      _out.writeByte(kp.getKeyType().ordinal());
+      writeKey(kp.getKey());
+    }
+    byte[] record = entry.getSerializedRecord();
+    _out.writeInt(record.length);
+    _out.write(record);
+
+    _sizeInBytes += _out.size() - startSize;
+    _maxScn = Math.max(_maxScn, entry.getScn());
+    ++_numEntries;
+  }
+
+  private void writeKey(Object key) throws IOException
+  {
+    if (key instanceof Integer)
+    {
+      _out.writeByte(KEY_INT);
+      _out.writeInt((Integer)key);
+    }
+    else if (key instanceof Long)
+    {
+      _out.writeByte(KEY_LONG);
+      _out.writeLong((Long)key);
+    }
+    else if (key instanceof String)
+    {
+      _out.writeByte(KEY_STRING);
+      _out.writeUTF((String)key);
+    }
+    else if (key instanceof byte[])
+    {
+      byte[] bytes = (byte[])key;
+      _out.writeByte(KEY_BYTES);
+      _out.writeInt(bytes.length);
+      _out.write(bytes);
+    }
+    else if (key instanceof Serializable)
+    {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bos);
+      oos.writeObject(key);
+      oos.close();
+      byte[] bytes = bos.toByteArray();
+      _out.writeByte(KEY_OBJECT);
+      _out.writeInt(bytes.length);
+      _out.write(bytes);
+    }
+    else
+    {
+      throw new IOException("unable to spill key of type " + key.getClass().getName());
+    }
+  }
+
+  /**
+   * Opens a reader over the entries of the file. No more entries can be appended after that.
+   */
+  public Reader openReader() throws IOException
+  {
+    if (null != _out)
+    {
+      _out.close();
+      _out = null;
+    }
+    return new Reader();
+  }
+
+  /** Closes and deletes the file */
+  public void delete()
+  {
+    if (null != _out)
+    {
+      try
+      {
+        _out.close();
+      }
+      catch (IOException e)
+      {
+        LOG.warn("unable to close spill file " + _file + ": " + e);
+      }
+      _out = null;
+    }
+    if (_file.exists() && !_file.delete())
+    {
+      LOG.warn("unable to delete spill file " + _file);
+    }
+  }
+
+  public File getFile()
+  {
+    return _file;
+  }
+
+  public int getNumEntries()
+  {
+    return _numEntries;
+  }
+
+  /** The number of bytes written to the file */
+  public long getSizeInBytes()
+  {
+    return _sizeInBytes;
+  }
+
+  /** The max scn of the entries in the file; -1 if there are none */
+  public long getMaxScn()
+  {
+    return _maxScn;
+  }
+
+  /**
+   * Reads the entries of a spill file in the order they were appended
+   */
+  public class Reader
+  {
+    private final DataInputStream _in;
+    private int _numRead = 0;
+
+    private Reader() throws IOException
+    {
+      _in = new DataInputStream(new BufferedInputStream(new FileInputStream(_file), WRITE_BUFFER_SIZE));
+    }
+
+    /**
+     * @return the next entry or null if all entries have been read
+     */
+    public DbChangeEntry next() throws IOException
+    {
+      if (_numRead >= _numEntries)
+      {
+        return null;
+      }
+
+      try
+      {
+        long scn = _in.readLong();
+        long timestampNanos = _in.readLong();
+        DbusOpcode opCode = DbusOpcode.values()[_in.readByte()];
+        boolean isReplicated = _in.readBoolean();
+        Schema schema = _schemas.get(_in.readInt());
+        int numKeys = _in.readInt();
+        List<KeyPair> pkeys = new ArrayList<KeyPair>(numKeys);
+        for (int i = 0; i < numKeys; ++i)
+        {
+          Schema.Type keyType = Schema.Type.values()[_in.readByte()];
+          pkeys.add(new KeyPair(readKey(), keyType));
+        }
+        byte[] record = new byte[_in.readInt()];
+        _in.readFully(record);
+
+        ++_numRead;
+        return new DbChangeEntry(scn, timestampNanos, record, opCode, isReplicated, schema, pkeys);
+      }
+      catch (EOFException e)
+      {
+        throw new IOException("spill file truncated after " + _numRead + " entries: " + _file, e);
+      }
+    }
+
+    private Object readKey() throws IOException
+    {
+      byte tag = _in.readByte();
+      switch (tag)
+      {
+        case KEY_INT: return _in.readInt();
+        case KEY_LONG: return _in.readLong();
+        case KEY_STRING: return _in.readUTF();
+        case KEY_BYTES:
+        case KEY_OBJECT:
+        {
+          byte[] bytes = new byte[_in.readInt()];
+          _in.readFully(bytes);
+          if (KEY_BYTES == tag)
+          {
+            return bytes;
+          }
+          ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+          try
+          {
+            return ois.readObject();
+          }
+          catch (ClassNotFoundException e)
+          {
+            throw new IOException("unable to read spilled key: " + e, e);
+          }
+          finally
+          {
+            ois.close();
+          }
+        }
+        default: throw new IOException("unknown key type tag " + tag + " in spill file " + _file);
+      }
+    }
+
+    public void close()
+    {
+      try
+      {
+        _in.close();
+      }
+      catch (IOException e)
+      {
+        LOG.warn("unable to close spill file " + _file + ": " + e);
+      }
+    }
+  }
+}
@@ -1,8 +1,11 @@
 package com.linkedin.databus2.producers.ds;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.linkedin.databus.core.DatabusRuntimeException;
+
 /*
 *
 * Copyright 2013 LinkedIn Corp. All rights reserved
@@ -39,6 +42,12 @@ public class PerSourceTransaction
 	 */
 	private Set<DbChangeEntry> _dbChangeEntrySet;
 
+	/**
+	 * Once the transaction is too large to be kept in memory, its change entries are moved to this
+	 * file and the entries merged later are appended to it. Null if the entries are in memory.
+	 */
+	private DbChangeEntrySpillFile _spillFile;
+
 	public PerSourceTransaction(int srcId, Set<DbChangeEntry> dbChangeEntrySet)
 	{
 		this._srcId = srcId;
@@ -52,18 +61,87 @@ public class PerSourceTransaction
 		this(srcId, null);
 	}
 
+	/**
+	 * The in-memory change entries; empty once the transaction has been spilled
+	 * @see #getSpillFile()
+	 */
 	public Set<DbChangeEntry> getDbChangeEntrySet() {
 		return _dbChangeEntrySet;
 	}
 
+	/**
+	 * The file holding the change entries if the transaction has been spilled; null otherwise
+	 */
+	public DbChangeEntrySpillFile getSpillFile() {
+		return _spillFile;
+	}
+
+	public boolean isSpilled() {
+		return null != _spillFile;
+	}
+
+	/**
+	 * Number of change entries in this PerSourceTransaction, whether in memory or spilled
+	 */
+	public int getNumDbChangeEntries() {
+		return null != _spillFile ? _spillFile.getNumEntries() : _dbChangeEntrySet.size();
+	}
+
+	/**
+	 * Moves the change entries to the spill file. All entries must have serialized records.
+	 * The entries merged afterwards are appended to the file in the order they are merged and are
+	 * no longer de-duplicated by key: all changes of a key are kept, the latest being the last.
+	 *
+	 * @param spillFile an empty spill file
+	 */
+	public void spill(DbChangeEntrySpillFile spillFile) throws IOException
+	{
+		if (null != _spillFile)
+		{
+			throw new IllegalStateException("source " + _srcId + " already spilled to " + _spillFile.getFile());
+		}
+		for (DbChangeEntry dbe : _dbChangeEntrySet)
+		{
+			spillFile.append(dbe);
+		}
+		_spillFile = spillFile;
+		_dbChangeEntrySet = new HashSet<DbChangeEntry>();
+	}
+
+	/**
+	 * Deletes the spill file, if any, with the entries in it
+	 */
+	public void release()
+	{
+		if (null != _spillFile)
+		{
+			_spillFile.delete();
+			_spillFile = null;
+		}
+	}
+
 	/**
 	 * Add a DB changeEntry to the PerSourceTransaction.
-	 * If an entry exist for the same key(s), it will be overwritten with the passed value
+	 * If an entry exist for the same key(s), it will be overwritten with the passed value, unless
+	 * the transaction has been spilled.
 	 *
 	 * @param dbChangeEntry Change Entry to be added
 	 */
 	public void mergeDbChangeEntrySet(DbChangeEntry dbChangeEntry)
 	{
+		if (null != _spillFile)
+		{
+			try
+			{
+				_spillFile.append(dbChangeEntry);
+			}
+			catch (IOException e)
+			{
+				throw new DatabusRuntimeException("unable to spill change entry for source " + _srcId, e);
+			}
+			return;
+		}
+
 		if ( _dbChangeEntrySet.contains(dbChangeEntry))
 		{
 			_dbChangeEntrySet.remove(dbChangeEntry);
@@ -87,7 +165,7 @@ public class PerSourceTransaction
 	 */
 	public long getScn()
 	{
-	  long maxScn = -1;
+	  long maxScn = null != _spillFile ? _spillFile.getMaxScn() : -1;
 
 	  for (DbChangeEntry c : _dbChangeEntrySet)
 	  {
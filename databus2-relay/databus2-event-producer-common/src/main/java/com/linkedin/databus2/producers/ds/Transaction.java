@@ -1,11 +1,15 @@
 package com.linkedin.databus2.producers.ds;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Comparator;
+
+import com.linkedin.databus.core.DatabusRuntimeException;
 /*
  *
 * Copyright 2013 LinkedIn Corp. All rights reserved
@@ -50,11 +54,61 @@ public class Transaction
 	 */
 	private long _txnNanoTimestamp;
 
+	/**
+	 * Directory of the spill files once the transaction has been spilled; null if the transaction
+	 * is in memory
+	 */
+	private File _spillDir;
+
+	private boolean _isSpilled = false;
+
 	public Transaction()
 	{
 		_perSourceTxnEntries = new HashMap<Integer,PerSourceTransaction>();
 	}
 
+	/**
+	 * Moves the change entries of all sources to spill files, so the transaction no longer grows
+	 * in memory. Sources added afterwards are spilled as well.
+	 * See {@link PerSourceTransaction#spill(DbChangeEntrySpillFile)} for the semantics.
+	 *
+	 * @param spillDir the directory of the spill files; the default temporary directory if null
+	 */
+	public void spill(File spillDir) throws IOException
+	{
+		_isSpilled = true;
+		_spillDir = spillDir;
+		for (PerSourceTransaction t : _perSourceTxnEntries.values())
+		{
+			spill(t);
+		}
+	}
+
+	private void spill(PerSourceTransaction t) throws IOException
+	{
+		if (!t.isSpilled())
+		{
+			t.spill(new DbChangeEntrySpillFile(_spillDir, "txn_src" + t.getSrcId() + "_"));
+		}
+	}
+
+	public boolean isSpilled()
+	{
+		return _isSpilled;
+	}
+
+	/**
+	 * Deletes the spill files of the transaction, if any. The transaction must not be used after
+	 * that.
+	 */
+	public void release()
+	{
+		for (PerSourceTransaction t : _perSourceTxnEntries.values())
+		{
+			t.release();
+		}
+	}
+
 	/**
 	 * Used for incrementally building transaction object. Old DbCHange objects corresponding
 	 * to a primary key will be overwritten by the new dbCHange entries.
@@ -77,6 +131,17 @@ public class Transaction
 		{
 			// No such entry, just add the PerSourceTransaction for the source to map
 			_perSourceTxnEntries.put(srcId, newPerSourceTxn);
+			if (_isSpilled)
+			{
+				try
+				{
+					spill(newPerSourceTxn);
+				}
+				catch (IOException e)
+				{
+					throw new DatabusRuntimeException("unable to spill source " + srcId, e);
+				}
+			}
 		}
 
 	}
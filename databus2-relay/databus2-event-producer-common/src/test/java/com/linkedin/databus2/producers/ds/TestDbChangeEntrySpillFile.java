@@ -0,0 +1,183 @@
+package com.linkedin.databus2.producers.ds;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.core.DbusOpcode;
+
+public class TestDbChangeEntrySpillFile
+{
+  private static final Schema SCHEMA1 = Schema.parse(
+      "{\"type\":\"record\",\"name\":\"A\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"}]}");
+  private static final Schema SCHEMA2 = Schema.parse(
+      "{\"type\":\"record\",\"name\":\"B\",\"fields\":[{\"name\":\"id\",\"type\":\"string\"}]}");
+
+  private static DbChangeEntry createEntry(long scn, Object key, Schema.Type keyType, Schema schema)
+  {
+    List<KeyPair> pkeys = new ArrayList<KeyPair>();
+    pkeys.add(new KeyPair(key, keyType));
+    byte[] record = ("record" + scn).getBytes();
+    return new DbChangeEntry(scn, scn * 1000, record, scn % 2 == 0 ? DbusOpcode.UPSERT : DbusOpcode.DELETE,
+                             scn % 3 == 0, schema, pkeys);
+  }
+
+  private static void assertSameEntry(DbChangeEntry actual, DbChangeEntry expected)
+  {
+    Assert.assertEquals(actual.getScn(), expected.getScn());
+    Assert.assertEquals(actual.getTimestampInNanos(), expected.getTimestampInNanos());
+    Assert.assertEquals(actual.getOpCode(), expected.getOpCode());
+    Assert.assertEquals(actual.isReplicated(), expected.isReplicated());
+    Assert.assertSame(actual.getSchema(), expected.getSchema());
+    Assert.assertEquals(actual.getSerializedRecord(), expected.getSerializedRecord());
+    Assert.assertNull(actual.getRecord());
+    Assert.assertEquals(actual.getPkeys().size(), expected.getPkeys().size());
+    for (int i = 0; i < actual.getPkeys().size(); ++i)
+    {
+      KeyPair a = actual.getPkeys().get(i);
+      KeyPair e = expected.getPkeys().get(i);
+      Assert.assertEquals(a.getKeyType(), e.getKeyType());
+      if (e.getKey() instanceof byte[])
+      {
+        Assert.assertTrue(Arrays.equals((byte[])a.getKey(), (byte[])e.getKey()));
+      }
+      else
+      {
+        Assert.assertEquals(a.getKey(), e.getKey());
+      }
+    }
+  }
+
+  @Test
+  public void testReadBack() throws Exception
+  {
+    List<DbChangeEntry> entries = new ArrayList<DbChangeEntry>();
+    entries.add(createEntry(1, 10, Schema.Type.INT, SCHEMA1));
+    entries.add(createEntry(2, 20L, Schema.Type.LONG, SCHEMA1));
+    entries.add(createEntry(7, "key", Schema.Type.STRING, SCHEMA2));
+    entries.add(createEntry(4, new byte[]{1, 2, 3}, Schema.Type.BYTES, SCHEMA2));
+    entries.add(createEntry(5, new BigDecimal("1.5"), Schema.Type.DOUBLE, SCHEMA1));
+
+    DbChangeEntrySpillFile spillFile = new DbChangeEntrySpillFile(null, "test");
+    try
+    {
+      for (DbChangeEntry e : entries)
+      {
+        spillFile.append(e);
+      }
+      Assert.assertEquals(spillFile.getNumEntries(), entries.size());
+      Assert.assertEquals(spillFile.getMaxScn(), 7);
+
+      // the file can be read more than once
+      for (int i = 0; i < 2; ++i)
+      {
+        DbChangeEntrySpillFile.Reader reader = spillFile.openReader();
+        for (DbChangeEntry e : entries)
+        {
+          assertSameEntry(reader.next(), e);
+        }
+        Assert.assertNull(reader.next());
+        reader.close();
+      }
+      Assert.assertEquals(spillFile.getSizeInBytes(), spillFile.getFile().length());
+    }
+    finally
+    {
+      spillFile.delete();
+    }
+    Assert.assertFalse(spillFile.getFile().exists());
+  }
+
+  @Test
+  public void testSpilledTransaction() throws Exception
+  {
+    File spillDir = new File(System.getProperty("java.io.tmpdir"));
+    Transaction txn = new Transaction();
+    txn.mergePerSourceTransaction(new PerSourceTransaction(1));
+    PerSourceTransaction src1 = txn.getPerSourceTransaction(1);
+
+    // in memory, the latest change of a key overwrites the previous ones
+    src1.mergeDbChangeEntrySet(createEntry(1, 1L, Schema.Type.LONG, SCHEMA1));
+    src1.mergeDbChangeEntrySet(createEntry(2, 1L, Schema.Type.LONG, SCHEMA1));
+    Assert.assertEquals(src1.getNumDbChangeEntries(), 1);
+    Assert.assertFalse(txn.isSpilled());
+
+    txn.spill(spillDir);
+    Assert.assertTrue(txn.isSpilled());
+    Assert.assertTrue(src1.isSpilled());
+    Assert.assertTrue(src1.getDbChangeEntrySet().isEmpty());
+    File file1 = src1.getSpillFile().getFile();
+    Assert.assertEquals(file1.getParentFile(), spillDir);
+
+    // once spilled, all the changes are kept in order
+    DbChangeEntry e3 = createEntry(3, 2L, Schema.Type.LONG, SCHEMA1);
+    DbChangeEntry e4 = createEntry(4, 1L, Schema.Type.LONG, SCHEMA1);
+    src1.mergeDbChangeEntrySet(e3);
+    src1.mergeDbChangeEntrySet(e4);
+    Assert.assertEquals(src1.getNumDbChangeEntries(), 3);
+    Assert.assertEquals(src1.getScn(), 4);
+
+    // sources added after the spill are spilled too
+    txn.mergePerSourceTransaction(new PerSourceTransaction(2));
+    PerSourceTransaction src2 = txn.getPerSourceTransaction(2);
+    Assert.assertTrue(src2.isSpilled());
+    src2.mergeDbChangeEntrySet(createEntry(9, "a", Schema.Type.STRING, SCHEMA2));
+    Assert.assertEquals(txn.getScn(), 9);
+
+    DbChangeEntrySpillFile.Reader reader = src1.getSpillFile().openReader();
+    Assert.assertEquals(reader.next().getScn(), 2);
+    assertSameEntry(reader.next(), e3);
+    assertSameEntry(reader.next(), e4);
+    Assert.assertNull(reader.next());
+    reader.close();
+
+    File file2 = src2.getSpillFile().getFile();
+    Assert.assertTrue(file1.exists());
+    Assert.assertTrue(file2.exists());
+    txn.release();
+    Assert.assertFalse(file1.exists());
+    Assert.assertFalse(file2.exists());
+    Assert.assertFalse(src1.isSpilled());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnserializedEntry() throws Exception
+  {
+    DbChangeEntrySpillFile spillFile = new DbChangeEntrySpillFile(null, "test");
+    try
+    {
+      spillFile.append(new DbChangeEntry(1, 1, (GenericRecord)null, DbusOpcode.UPSERT,
+                                         false, SCHEMA1, new ArrayList<KeyPair>()));
+    }
+    finally
+    {
+      spillFile.delete();
+    }
+  }
+}
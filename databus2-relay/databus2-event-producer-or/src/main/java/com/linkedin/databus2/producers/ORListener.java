@@ -1,5 +1,8 @@
 package com.linkedin.databus2.producers;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.sql.Time;
@@ -9,15 +12,27 @@ import java.util.Calendar;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.log4j.Logger;
 
 import com.google.code.or.binlog.BinlogEventListener;
@@ -78,6 +93,10 @@ import com.linkedin.databus2.schemas.utils.SchemaHelper;
  *
  * This class is responsible for converting Bin log events to Avro records using schemaRegistry and calling an application callback
  * to let the application generate DbusEvent and append to EventBuffer.
+ *
+ * If a decoder pool is configured, the listener thread only frames the rows events: their rows are converted and
+ * serialized by the pool, merged back into their transaction in binlog order and the transactions are handed to
+ * the application callback, in binlog order, by a sequencer thread.
  */
 class ORListener extends DatabusThreadBase implements BinlogEventListener
 {
@@ -95,8 +114,14 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
     public abstract void onEndTransaction(Transaction txn) throws DatabusException;
   };
 
-  /** Transaction object containing the current transaction that is being built from the Binlog **/
-  private Transaction _transaction = null;
+  /** Number of transactions read from the binlog waiting for the sequencer **/
+  private static final int COMMIT_QUEUE_SIZE = 16;
+
+  /** Number of rows events waiting for a decoder, per decoder thread **/
+  private static final int DECODER_QUEUE_SIZE_PER_THREAD = 4;
+
+  /** The current transaction that is being built from the Binlog **/
+  private TransactionBuilder _transaction = null;
 
   /** Track current file number for generating SCN **/
   private int _currFileNum;
@@ -139,6 +164,27 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
   /** Milli sec timeout for _binlogEventQueue operation **/
   private long _queueTimeoutMs = 100L;
 
+  /**
+   * Serialized size of the rows of a transaction beyond which the transaction is spilled to files in
+   * _txnSpillDir. If 0, spilling is disabled and the rows are kept as GenericRecords until the commit.
+   */
+  private final long _txnSpillThresholdBytes;
+
+  /** Directory of the spill files; null for the default temporary directory */
+  private final File _txnSpillDir;
+
+  /** Whether the rows are serialized when decoded rather than by the application callback */
+  private final boolean _serializeRows;
+
+  /** Decoding layout of the rows by schema; only used by the listener thread **/
+  private final Map<Schema, RowLayout> _rowLayouts = new IdentityHashMap<Schema, RowLayout>();
+
+  /** Pool decoding the rows events; null if the rows are decoded by the listener thread **/
+  private final ThreadPoolExecutor _decoderPool;
+
+  /** Hands the transactions to the application callback in binlog order; null without decoder pool **/
+  private final TransactionSequencer _sequencer;
+
   public ORListener(String name,
                     int currentFileNumber,
                     Logger log,
@@ -148,7 +194,10 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
                     Map<String, String> tableUriToSrcNameMap,
                     SchemaRegistryService schemaRegistryService,
                     int maxQueueSize,
-                    long queueTimeoutMs)
+                    long queueTimeoutMs,
+                    long txnSpillThresholdBytes,
+                    File txnSpillDir,
+                    int decoderThreads)
   {
     super("ORListener_" + name);
     _log = log;
@@ -160,6 +209,23 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
     _currFileNum = currentFileNumber;
     _binlogEventQueue = new LinkedBlockingQueue<BinlogEventV4>(maxQueueSize);
     _queueTimeoutMs = queueTimeoutMs;
+    _txnSpillThresholdBytes = txnSpillThresholdBytes;
+    _txnSpillDir = txnSpillDir;
+    _serializeRows = txnSpillThresholdBytes > 0 || decoderThreads > 0;
+    if (decoderThreads > 0)
+    {
+      // when the decoders fall behind, the listener thread decodes the rows events itself
+      _decoderPool = new ThreadPoolExecutor(decoderThreads, decoderThreads, 0L, TimeUnit.MILLISECONDS,
+                                            new ArrayBlockingQueue<Runnable>(decoderThreads * DECODER_QUEUE_SIZE_PER_THREAD),
+                                            new DecoderThreadFactory(getName()),
+                                            new ThreadPoolExecutor.CallerRunsPolicy());
+      _sequencer = new TransactionSequencer(getName() + "_sequencer");
+    }
+    else
+    {
+      _decoderPool = null;
+      _sequencer = null;
+    }
   }
 
   @Override
@@ -189,7 +255,7 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
     _log.info("startXtion" + e);
     if ( _transaction == null)
     {
-      _transaction = new Transaction();
+      _transaction = new TransactionBuilder();
     }
     else
     {
@@ -210,12 +276,23 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
     {
       throw new DatabusRuntimeException("endXtion should be called with either QueryEvent of XidEvent");
     }
-    _transaction.setSizeInBytes(_currTxnSizeInBytes);
-    _transaction.setTxnNanoTimestamp(_currTxnTimestamp);
-    _transaction.setTxnReadLatencyNanos(txnReadLatency);
+    Transaction txn = _transaction.getTransaction();
+    txn.setSizeInBytes(_currTxnSizeInBytes);
+    txn.setTxnNanoTimestamp(_currTxnTimestamp);
+    txn.setTxnReadLatencyNanos(txnReadLatency);
     try
     {
-      _txnProcessor.onEndTransaction(_transaction);
+      if (null != _sequencer)
+      {
+        // the sequencer now owns the transaction
+        TransactionBuilder committed = _transaction;
+        _transaction = null;
+        _sequencer.enqueue(committed);
+      }
+      else
+      {
+        commit(_transaction);
+      }
     } catch (DatabusException e3)
     {
       _log.error("Got exception in the transaction handler ",e3);
@@ -240,18 +317,40 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
 
   private void reset()
   {
+    if (null != _transaction)
+    {
+      // deletes the spill files, if any
+      _transaction.release();
+    }
     _transaction = null;
     _currTxnSizeInBytes = 0;
   }
 
+  /**
+   * Merges the remaining rows of the transaction and passes it to the application callback
+   */
+  private void commit(TransactionBuilder txnBuilder) throws DatabusException
+  {
+    try
+    {
+      txnBuilder.mergeDecodedRows(true);
+      _txnProcessor.onEndTransaction(txnBuilder.getTransaction());
+    }
+    finally
+    {
+      txnBuilder.release();
+    }
+  }
+
   private void startSource(String newTableName)
   {
     Short srcId = _tableUriToSrcIdMap.get(newTableName);
 
     assert (_transaction != null);
-    if (_transaction.getPerSourceTransaction(srcId) == null)
+    Transaction txn = _transaction.getTransaction();
+    if (txn.getPerSourceTransaction(srcId) == null)
     {
-      _transaction.mergePerSourceTransaction(new PerSourceTransaction(srcId));
+      txn.mergePerSourceTransaction(new PerSourceTransaction(srcId));
     }
   }
 
@@ -314,17 +413,28 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
       if ( _log.isDebugEnabled())
         _log.debug("File Number :" + _currFileNum + ", Position :" + (int)bh.getPosition() + ", SCN =" + scn);
 
-      for(Row r: rl)
+      RowLayout layout = _rowLayouts.get(schema);
+      if (null == layout)
       {
-        List<Column> cl = r.getColumns();
-        GenericRecord gr = new GenericData.Record(schema);
-        generateAvroEvent(schema, cl, gr);
-
-        List<KeyPair> kps = generateKeyPair(cl, schema);
+        layout = new RowLayout(schema);
+        _rowLayouts.put(schema, layout);
+      }
 
-        DbChangeEntry db = new DbChangeEntry(scn, timestampInNanos, gr, doc, isReplicated, schema, kps);
-        _transaction.getPerSourceTransaction(_tableUriToSrcIdMap.get(tableName)).mergeDbChangeEntrySet(db);
+      RowsDecoder decoder = new RowsDecoder(layout, rl, scn, timestampInNanos, doc, isReplicated);
+      Future<List<DbChangeEntry>> rows;
+      if (null != _decoderPool)
+      {
+        rows = _decoderPool.submit(decoder);
       }
+      else
+      {
+        FutureTask<List<DbChangeEntry>> task = new FutureTask<List<DbChangeEntry>>(decoder);
+        task.run();
+        rows = task;
+      }
+      _transaction.addRows(_tableUriToSrcIdMap.get(tableName), rows);
+      // merge what has been decoded so far so that the decoded rows do not pile up
+      _transaction.mergeDecodedRows(false);
     } catch (NoSuchSchemaException ne)
     {
       throw new DatabusRuntimeException(ne);
@@ -334,21 +444,12 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
     }
   }
 
-  private List<KeyPair> generateKeyPair(List<Column> cl, Schema schema)
-      throws DatabusException
+  private List<KeyPair> generateKeyPair(List<Column> cl, Schema schema, PrimaryKeySchema pkSchema)
   {
 
     Object o = null;
     Schema.Type st = null;
 
-    // Build PrimaryKeySchema
-    String pkFieldName = SchemaHelper.getMetaField(schema, "pk");
-    if(pkFieldName == null)
-    {
-      throw new DatabusException("No primary key specified in the schema");
-    }
-
-    PrimaryKeySchema pkSchema = new PrimaryKeySchema(pkFieldName);
     List<Schema.Field> fields = schema.getFields();
     List<KeyPair> kpl = new ArrayList<KeyPair>();
     int cnt = 0;
@@ -367,22 +468,9 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
     return kpl;
   }
 
-  private void generateAvroEvent(Schema schema, List<Column> cols, GenericRecord record)
+  private void generateAvroEvent(List<Schema.Field> orderedFields, List<Column> cols, GenericRecord record)
       throws DatabusException
   {
-    // Get Ordered list of field by dbFieldPosition
-    List<Schema.Field> orderedFields = SchemaHelper.getOrderedFieldsByMetaField(schema, "dbFieldPosition", new Comparator<String>() {
-
-      @Override
-      public int compare(String o1, String o2)
-      {
-        Integer pos1 = Integer.parseInt(o1);
-        Integer pos2 = Integer.parseInt(o2);
-
-        return pos1.compareTo(pos2);
-      }
-    });
-
     // Build Map<AvroFieldType, Columns>
     if (orderedFields.size() != cols.size())
     {
@@ -619,6 +707,10 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
 
   @Override
   public void run() {
+    if (null != _sequencer)
+    {
+      _sequencer.start();
+    }
     List<BinlogEventV4> eventList = new ArrayList<BinlogEventV4>();
     BinlogEventV4 event;
     while (!isShutdownRequested())
@@ -793,7 +885,361 @@ class ORListener extends DatabusThreadBase implements BinlogEventListener
         }
       }
     }
+    reset();
+    if (null != _sequencer)
+    {
+      _sequencer.shutdown();
+    }
+    if (null != _decoderPool)
+    {
+      _decoderPool.shutdownNow();
+    }
     _log.info("ORListener Thread done");
     doShutdownNotify();
   }
+
+  /**
+   * The schema-dependent part of the decoding of the rows, computed once per schema
+   */
+  private static class RowLayout
+  {
+    private final Schema _schema;
+    /** Fields ordered by dbFieldPosition */
+    private final List<Schema.Field> _orderedFields;
+    private final PrimaryKeySchema _pkSchema;
+    /** GenericDatumWriter keeps no state across writes, so it is shared by the decoders */
+    private final GenericDatumWriter<GenericRecord> _writer;
+
+    public RowLayout(Schema schema) throws DatabusException
+    {
+      _schema = schema;
+      _orderedFields = SchemaHelper.getOrderedFieldsByMetaField(schema, "dbFieldPosition", new Comparator<String>() {
+
+        @Override
+        public int compare(String o1, String o2)
+        {
+          Integer pos1 = Integer.parseInt(o1);
+          Integer pos2 = Integer.parseInt(o2);
+
+          return pos1.compareTo(pos2);
+        }
+      });
+
+      // Build PrimaryKeySchema
+      String pkFieldName = SchemaHelper.getMetaField(schema, "pk");
+      if(pkFieldName == null)
+      {
+        throw new DatabusException("No primary key specified in the schema");
+      }
+      _pkSchema = new PrimaryKeySchema(pkFieldName);
+      _writer = new GenericDatumWriter<GenericRecord>(schema);
+    }
+  }
+
+  /**
+   * Converts the rows of a rows event to change entries. Runs in the decoder pool if there is one.
+   */
+  private class RowsDecoder implements Callable<List<DbChangeEntry>>
+  {
+    private final RowLayout _layout;
+    private final List<Row> _rows;
+    private final long _scn;
+    private final long _timestampInNanos;
+    private final DbusOpcode _opCode;
+    private final boolean _isReplicated;
+
+    public RowsDecoder(RowLayout layout, List<Row> rows, long scn, long timestampInNanos, DbusOpcode opCode,
+                       boolean isReplicated)
+    {
+      _layout = layout;
+      _rows = rows;
+      _scn = scn;
+      _timestampInNanos = timestampInNanos;
+      _opCode = opCode;
+      _isReplicated = isReplicated;
+    }
+
+    @Override
+    public List<DbChangeEntry> call() throws DatabusException, IOException
+    {
+      Schema schema = _layout._schema;
+      List<DbChangeEntry> entries = new ArrayList<DbChangeEntry>(_rows.size());
+      ByteArrayOutputStream recordBytes = _serializeRows ? new ByteArrayOutputStream() : null;
+      BinaryEncoder recordEncoder = _serializeRows ? new BinaryEncoder(recordBytes) : null;
+      for(Row r: _rows)
+      {
+        List<Column> cl = r.getColumns();
+        GenericRecord gr = new GenericData.Record(schema);
+        generateAvroEvent(_layout._orderedFields, cl, gr);
+
+        List<KeyPair> kps = generateKeyPair(cl, schema, _layout._pkSchema);
+
+        if (_serializeRows)
+        {
+          recordBytes.reset();
+          _layout._writer.write(gr, recordEncoder);
+          entries.add(new DbChangeEntry(_scn, _timestampInNanos, recordBytes.toByteArray(), _opCode, _isReplicated,
+                                        schema, kps));
+        }
+        else
+        {
+          entries.add(new DbChangeEntry(_scn, _timestampInNanos, gr, _opCode, _isReplicated, schema, kps));
+        }
+      }
+      return entries;
+    }
+  }
+
+  /**
+   * A transaction being read from the binlog, with its rows events whose rows have not been merged into it yet
+   */
+  private class TransactionBuilder
+  {
+    private final Transaction _txn = new Transaction();
+    /** Rows events in binlog order, with their source ids */
+    private final LinkedList<Future<List<DbChangeEntry>>> _pendingRows = new LinkedList<Future<List<DbChangeEntry>>>();
+    private final LinkedList<Short> _pendingSrcIds = new LinkedList<Short>();
+    /** Serialized size of the rows merged in the transaction */
+    private long _rowBytes = 0;
+
+    public Transaction getTransaction()
+    {
+      return _txn;
+    }
+
+    public void addRows(Short srcId, Future<List<DbChangeEntry>> rows)
+    {
+      _pendingSrcIds.add(srcId);
+      _pendingRows.add(rows);
+    }
+
+    /**
+     * Merges the decoded rows events into the transaction in binlog order, stopping at the first one not decoded yet
+     * unless waitForAll is true.
+     * @throws DatabusRuntimeException if a rows event could not be decoded; the rows event stays pending so that the
+     *         transaction cannot be committed without its rows
+     */
+    public void mergeDecodedRows(boolean waitForAll)
+    {
+      while (!_pendingRows.isEmpty() && (waitForAll || _pendingRows.getFirst().isDone()))
+      {
+        Short srcId = _pendingSrcIds.getFirst();
+        List<DbChangeEntry> entries;
+        try
+        {
+          entries = getUninterruptibly(_pendingRows.getFirst());
+        }
+        catch (ExecutionException e)
+        {
+          _log.error("failed to decode binlog rows for source " + srcId, e.getCause());
+          throw new DatabusRuntimeException(e.getCause());
+        }
+        _pendingRows.removeFirst();
+        _pendingSrcIds.removeFirst();
+
+        PerSourceTransaction perSourceTxn = _txn.getPerSourceTransaction(srcId);
+        for (DbChangeEntry db : entries)
+        {
+          perSourceTxn.mergeDbChangeEntrySet(db);
+          if (null != db.getSerializedRecord())
+          {
+            _rowBytes += db.getSerializedRecord().length;
+          }
+
+          if (_txnSpillThresholdBytes > 0 && !_txn.isSpilled() && _rowBytes > _txnSpillThresholdBytes)
+          {
+            _log.info("Transaction rows exceed " + _txnSpillThresholdBytes + " bytes at SCN " + db.getScn()
+                      + "; spilling the transaction");
+            try
+            {
+              _txn.spill(_txnSpillDir);
+            }
+            catch (IOException ie)
+            {
+              throw new DatabusRuntimeException(ie);
+            }
+          }
+        }
+      }
+    }
+
+    /** Drops the rows not merged yet and deletes the spill files, if any */
+    public void release()
+    {
+      for (Future<List<DbChangeEntry>> rows : _pendingRows)
+      {
+        rows.cancel(false);
+      }
+      _pendingRows.clear();
+      _pendingSrcIds.clear();
+      _txn.release();
+    }
+  }
+
+  private static <T> T getUninterruptibly(Future<T> future) throws ExecutionException
+  {
+    boolean interrupted = false;
+    try
+    {
+      while (true)
+      {
+        try
+        {
+          return future.get();
+        }
+        catch (InterruptedException e)
+        {
+          interrupted = true;
+        }
+      }
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Passes the transactions read by the listener to the application callback, in binlog order, once their rows have
+   * been decoded. This lets the listener read the next transactions meanwhile.
+   */
+  private class TransactionSequencer extends Thread
+  {
+    private final BlockingQueue<TransactionBuilder> _queue = new ArrayBlockingQueue<TransactionBuilder>(COMMIT_QUEUE_SIZE);
+    private volatile boolean _stopRequested = false;
+    /** The failure which stopped the sequencer; no transaction is passed to the application after it */
+    private volatile Throwable _failure = null;
+
+    public TransactionSequencer(String name)
+    {
+      super(name);
+      setDaemon(true);
+    }
+
+    /**
+     * Called by the listener thread; blocks while the sequencer is behind
+     * @throws DatabusRuntimeException if the sequencer stopped because a transaction could not be committed
+     */
+    public void enqueue(TransactionBuilder txnBuilder)
+    {
+      boolean isPut = false;
+      while (!isPut && !isShutdownRequested() && null == _failure)
+      {
+        try {
+          isPut = _queue.offer(txnBuilder, _queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          _log.error("failed to put transaction to the sequencer queue", e);
+        }
+      }
+
+      if (!isPut)
+      {
+        txnBuilder.release();
+      }
+      if (null != _failure)
+      {
+        // the sequencer may have stopped after the transaction was queued
+        releaseQueued();
+        throw new DatabusRuntimeException("transaction sequencer stopped", _failure);
+      }
+    }
+
+    private void releaseQueued()
+    {
+      TransactionBuilder txnBuilder;
+      while (null != (txnBuilder = _queue.poll()))
+      {
+        txnBuilder.release();
+      }
+    }
+
+    @Override
+    public void run()
+    {
+      while (!_stopRequested)
+      {
+        TransactionBuilder txnBuilder = null;
+        try
+        {
+          txnBuilder = _queue.poll(_queueTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+          _log.info("Interrupted when poll from the sequencer queue!!");
+        }
+        if (null == txnBuilder)
+        {
+          continue;
+        }
+
+        try
+        {
+          commit(txnBuilder);
+        }
+        catch (DatabusException e)
+        {
+          _log.error("Got exception in the transaction handler ", e);
+          _failure = e;
+        }
+        catch (RuntimeException e)
+        {
+          _log.error("failed to process transaction with scn " + txnBuilder.getTransaction().getScn(), e);
+          _failure = e;
+        }
+        if (null != _failure)
+        {
+          // skipping the transaction would leave a gap in the scns
+          _stopRequested = true;
+        }
+      }
+
+      // the transactions not passed to the application are read again from the binlog on restart
+      releaseQueued();
+      _log.info("Transaction sequencer done");
+    }
+
+    /** Waits for the transaction being passed to the application, if any, and drops the others */
+    public void shutdown()
+    {
+      _stopRequested = true;
+      boolean interrupted = false;
+      while (isAlive())
+      {
+        try
+        {
+          join();
+        }
+        catch (InterruptedException e)
+        {
+          interrupted = true;
+        }
+      }
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static class DecoderThreadFactory implements ThreadFactory
+  {
+    private final String _namePrefix;
+    private final AtomicInteger _threadNum = new AtomicInteger(0);
+
+    public DecoderThreadFactory(String listenerName)
+    {
+      _namePrefix = listenerName + "_decoder_";
+    }
+
+    @Override
+    public Thread newThread(Runnable r)
+    {
+      Thread t = new Thread(r, _namePrefix + _threadNum.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
 }
@@ -14,6 +14,7 @@ import org.apache.avro.io.Encoder;
 import org.apache.log4j.Logger;
 
 import com.linkedin.databus.core.DbusConstants;
+import com.linkedin.databus.core.DbusEventBatch;
 import com.linkedin.databus.core.DbusEventBufferAppendable;
 import com.linkedin.databus.core.DbusEventInfo;
 import com.linkedin.databus.core.DbusEventKey;
@@ -94,33 +95,64 @@ public class OpenReplicatorAvroEventFactory
                                    boolean enableTracing,
                                    DbusEventsStatisticsCollector dbusEventsStatisticsCollector)
           throws EventCreationException, UnsupportedKeyException, DatabusException
+  {
+    DbusEventKey eventKey = createEventKey(changeEntry);
+    DbusEventInfo eventInfo = createEventInfo(changeEntry, eventKey, enableTracing);
+
+    boolean success = eventBuffer.appendEvent(eventKey, eventInfo, dbusEventsStatisticsCollector);
+
+    return success ? eventInfo.getValueLength() : -1;
+  }
+
+  /**
+   * Creates the event for a change entry and adds it to the batch of the current transaction.
+   * The batch is appended to the buffer with {@link DbusEventBufferAppendable#appendEvents(DbusEventBatch, DbusEventsStatisticsCollector)}.
+   * @return the size of the event payload
+   */
+  public int createAndAddEvent(DbChangeEntry changeEntry,
+                               DbusEventBatch batch,
+                               boolean enableTracing)
+          throws EventCreationException, UnsupportedKeyException, DatabusException
+  {
+    DbusEventKey eventKey = createEventKey(changeEntry);
+    DbusEventInfo eventInfo = createEventInfo(changeEntry, eventKey, enableTracing);
+    batch.add(eventKey, eventInfo);
+    return eventInfo.getValueLength();
+  }
+
+  private DbusEventKey createEventKey(DbChangeEntry changeEntry)
+          throws UnsupportedKeyException, DatabusException
   {
     Object keyObj = obtainKey(changeEntry);
 
     //Construct the Databus Event key, determine the key type and construct the key
-    DbusEventKey eventKey = new DbusEventKey(keyObj);
+    return new DbusEventKey(keyObj);
+  }
 
+  private DbusEventInfo createEventInfo(DbChangeEntry changeEntry,
+                                        DbusEventKey eventKey,
+                                        boolean enableTracing)
+          throws EventCreationException, UnsupportedKeyException
+  {
     short lPartitionId = _partitionFunction.getPartition(eventKey);
 
     //Get the md5 for the schema
     SchemaId schemaId = SchemaId.createWithMd5(changeEntry.getSchema());
 
-    byte[] payload = serializeEvent(changeEntry.getRecord());
-
-    DbusEventInfo eventInfo = new DbusEventInfo(changeEntry.getOpCode(),
-                                                changeEntry.getScn(),
-                                                (short)_pSourceId,
-                                                lPartitionId,
-                                                changeEntry.getTimestampInNanos(),
-                                                (short)_sourceId,
-                                                schemaId.getByteArray(),
-                                                payload,
-                                                enableTracing,
-                                                false);
-
-    boolean success = eventBuffer.appendEvent(eventKey, eventInfo, dbusEventsStatisticsCollector);
-
-    return success ? payload.length : -1;
+    // entries of spillable transactions are serialized when read from the binlog
+    byte[] payload = null != changeEntry.getSerializedRecord() ? changeEntry.getSerializedRecord()
+                                                               : serializeEvent(changeEntry.getRecord());
+
+    return new DbusEventInfo(changeEntry.getOpCode(),
+                             changeEntry.getScn(),
+                             (short)_pSourceId,
+                             lPartitionId,
+                             changeEntry.getTimestampInNanos(),
+                             (short)_sourceId,
+                             schemaId.getByteArray(),
+                             payload,
+                             enableTracing,
+                             false);
   }
 
   protected byte[] serializeEvent(GenericRecord record)
@@ -18,6 +18,8 @@
  */
 package com.linkedin.databus2.producers;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -25,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +45,7 @@ import org.apache.log4j.Logger;
 import com.google.code.or.OpenReplicator;
 import com.linkedin.databus.core.DatabusRuntimeException;
 import com.linkedin.databus.core.DatabusThreadBase;
+import com.linkedin.databus.core.DbusEventBatch;
 import com.linkedin.databus.core.DbusEventBufferAppendable;
 import com.linkedin.databus.core.UnsupportedKeyException;
 import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
@@ -54,6 +58,7 @@ import com.linkedin.databus2.producers.db.EventReaderSummary;
 import com.linkedin.databus2.producers.db.EventSourceStatisticsIface;
 import com.linkedin.databus2.producers.db.ReadEventCycleSummary;
 import com.linkedin.databus2.producers.ds.DbChangeEntry;
+import com.linkedin.databus2.producers.ds.DbChangeEntrySpillFile;
 import com.linkedin.databus2.producers.ds.PerSourceTransaction;
 import com.linkedin.databus2.producers.ds.Transaction;
 import com.linkedin.databus2.relay.config.LogicalSourceStaticConfig;
@@ -88,6 +93,8 @@ public class OpenReplicatorEventProducer extends AbstractEventProducer
 
   // special source to collect global data
   public static final short GLOBAL_SOURCE_ID=0;
+  /** Payload bytes of the events of a spilled transaction appended to the buffer at a time */
+  static final long SPILLED_TXN_APPEND_CHUNK_BYTES = 1024 * 1024;
 
   /** Table URI to Source Id Map */
   private final Map<String, Short> _tableUriToSrcIdMap;
@@ -308,6 +315,12 @@ public class OpenReplicatorEventProducer extends AbstractEventProducer
 
     private final long _sinceScn;
 
+    // The events of the transaction being added to the buffer; reused across transactions
+    private final DbusEventBatch _txnBatch = new DbusEventBatch();
+
+    // Whether the window of the transaction being added has been started in the buffer
+    private boolean _txnWindowStarted = false;
+
     private ORListener _orListener;
 
     private String _sourceName;
@@ -329,8 +342,11 @@ public class OpenReplicatorEventProducer extends AbstractEventProducer
 
       String binlogFile = String.format("%s.%06d", _binlogFilePrefix, logid);
       // we should use a new ORListener to drop the left events in binlogEventQueue and the half processed transaction.
+      String spillDir = _physicalSourceStaticConfig.getTxnSpillDir();
       _orListener = new ORListener(_sourceName, logid, _log, _binlogFilePrefix, _producerThread, _tableUriToSrcIdMap,
-          _tableUriToSrcNameMap, _schemaRegistryService, 200, 100L);
+          _tableUriToSrcNameMap, _schemaRegistryService, 200, 100L,
+          _physicalSourceStaticConfig.getTxnSpillThresholdBytes(), null != spillDir ? new File(spillDir) : null,
+          _physicalSourceStaticConfig.getBinlogDecoderThreads());
 
       _or.setBinlogFileName(binlogFile);
       _or.setBinlogPosition(offset);
@@ -480,6 +496,35 @@ public class OpenReplicatorEventProducer extends AbstractEventProducer
       }
     }
 
+    private DbChangeEntry nextDbChangeEntry(Iterator<DbChangeEntry> inMemoryEntries,
+                                            DbChangeEntrySpillFile.Reader spilledEntries)
+        throws IOException
+    {
+      if (inMemoryEntries.hasNext())
+      {
+        return inMemoryEntries.next();
+      }
+      return null != spilledEntries ? spilledEntries.next() : null;
+    }
+
+    /**
+     * Appends the batched events of the txn to the buffer, starting the window if needed
+     */
+    private void appendTxnBatch(Transaction txn) throws DatabusException
+    {
+      if (!_txnWindowStarted)
+      {
+        _eventBuffer.startEvents();
+        _txnWindowStarted = true;
+      }
+      if (!_eventBuffer.appendEvents(_txnBatch, _relayInboundStatsCollector))
+      {
+        _log.error("Unable to append txn (" + txn + ") to event buffer !! EVB State : " + _eventBuffer);
+        throw new DatabusException("Unable to append txn with scn " + txn.getScn() + " to event buffer !!");
+      }
+      _txnBatch.clear();
+    }
+
     /**
      * Add all txn events to Buffer
      * @param txn Transaction to be added
@@ -504,74 +549,113 @@ public class OpenReplicatorEventProducer extends AbstractEventProducer
 
       EventSourceStatistics globalStats = getSource(GLOBAL_SOURCE_ID).getStatisticsBean();
 
-      _eventBuffer.startEvents();
-
       long scn = txn.getScn();
       long timestamp = txn.getTxnNanoTimestamp();
       List<EventReaderSummary> summaries = new ArrayList<EventReaderSummary>();
+      _txnBatch.clear();
+      _txnWindowStarted = false;
+      boolean success = false;
 
-      for (PerSourceTransaction t: txn.getOrderedPerSourceTransactions() )
+      try
       {
-        long startDbUpdatesMs = System.currentTimeMillis();
-        short sourceId = (short)t.getSrcId();
-        EventSourceStatistics perSourceStats = getSource(sourceId).getStatisticsBean();
-        long dbUpdatesEventsSize = 0;
-
-        for (DbChangeEntry c : t.getDbChangeEntrySet())
+        for (PerSourceTransaction t: txn.getOrderedPerSourceTransactions() )
         {
-          int length = 0;
-
+          long startDbUpdatesMs = System.currentTimeMillis();
+          short sourceId = (short)t.getSrcId();
+          EventSourceStatistics perSourceStats = getSource(sourceId).getStatisticsBean();
+          long dbUpdatesEventsSize = 0;
+
+          // the entries of spilled sources are streamed from their file
+          Iterator<DbChangeEntry> inMemoryEntries = t.getDbChangeEntrySet().iterator();
+          DbChangeEntrySpillFile.Reader spilledEntries = null;
           try
           {
-            length = _eventFactoryMap.get(t.getSrcId()).createAndAppendEvent(
-                                                                  c,
-                                                                  _eventBuffer,
-                                                                  false,
-                                                                  _relayInboundStatsCollector);
-            if ( length < 0)
+            if (t.isSpilled())
             {
-              _log.error("Unable to append DBChangeEntry (" + c + ") to event buffer !! EVB State : " + _eventBuffer);
-              throw new DatabusException("Unable to append DBChangeEntry (" + c + ") to event buffer !!");
+              spilledEntries = t.getSpillFile().openReader();
             }
-            dbUpdatesEventsSize += length;
-          } catch (DatabusException e) {
-            _log.error("Got databus exception :", e);
-            perSourceStats.addError();
-            globalStats.addEmptyEventCycle();
-            throw e;
-          } catch (UnsupportedKeyException e) {
-            perSourceStats.addError();
-            globalStats.addEmptyEventCycle();
-            _log.error("Got UnsupportedKeyException :", e);
-            throw e;
-          } catch (EventCreationException e) {
+
+            DbChangeEntry c;
+            while (null != (c = nextDbChangeEntry(inMemoryEntries, spilledEntries)))
+            {
+              int length = 0;
+
+              try
+              {
+                length = _eventFactoryMap.get(t.getSrcId()).createAndAddEvent(c, _txnBatch, false);
+                dbUpdatesEventsSize += length;
+              } catch (DatabusException e) {
+                _log.error("Got databus exception :", e);
+                perSourceStats.addError();
+                globalStats.addEmptyEventCycle();
+                throw e;
+              } catch (UnsupportedKeyException e) {
+                perSourceStats.addError();
+                globalStats.addEmptyEventCycle();
+                _log.error("Got UnsupportedKeyException :", e);
+                throw e;
+              } catch (EventCreationException e) {
+                perSourceStats.addError();
+                globalStats.addEmptyEventCycle();
+                _log.error("Got EventCreationException :", e);
+                throw e;
+              }
+              perSourceStats.addEventCycle(1, txn.getTxnReadLatencyNanos(), length, scn);
+              globalStats.addEventCycle(1, txn.getTxnReadLatencyNanos(), length, scn);
+
+              // spilled transactions are appended in chunks so that they are never fully in memory
+              if (txn.isSpilled() && _txnBatch.getPayloadBytes() >= SPILLED_TXN_APPEND_CHUNK_BYTES)
+              {
+                appendTxnBatch(txn);
+              }
+            }
+          }
+          catch (IOException e)
+          {
             perSourceStats.addError();
             globalStats.addEmptyEventCycle();
-            _log.error("Got EventCreationException :", e);
-            throw e;
+            throw new DatabusException("Unable to read spilled rows of source " + sourceId + " for txn with scn " + scn, e);
+          }
+          finally
+          {
+            if (null != spilledEntries)
+            {
+              spilledEntries.close();
+            }
           }
-          perSourceStats.addEventCycle(1, txn.getTxnReadLatencyNanos(), length, scn);
-          globalStats.addEventCycle(1, txn.getTxnReadLatencyNanos(), length, scn);
-        }
 
-        long endDbUpdatesMs = System.currentTimeMillis();
-        long dbUpdatesElapsedTimeMs = endDbUpdatesMs - startDbUpdatesMs;
+          long endDbUpdatesMs = System.currentTimeMillis();
+          long dbUpdatesElapsedTimeMs = endDbUpdatesMs - startDbUpdatesMs;
 
-        // Log Event Summary at logical source level
-        EventReaderSummary summary = new EventReaderSummary(sourceId, _monitoredSources.get(sourceId).getSourceName(),
-                                                            scn, t.getDbChangeEntrySet().size(), dbUpdatesEventsSize,-1L /* Not supported */,
-                                                            dbUpdatesElapsedTimeMs,  timestamp, timestamp, -1L /* Not supported */);
-        if (_eventsLog.isInfoEnabled())
-        {
-          _eventsLog.info(summary.toString());
+          // Log Event Summary at logical source level
+          EventReaderSummary summary = new EventReaderSummary(sourceId, _monitoredSources.get(sourceId).getSourceName(),
+                                                              scn, t.getNumDbChangeEntries(), dbUpdatesEventsSize,-1L /* Not supported */,
+                                                              dbUpdatesElapsedTimeMs,  timestamp, timestamp, -1L /* Not supported */);
+          if (_eventsLog.isInfoEnabled())
+          {
+            _eventsLog.info(summary.toString());
+          }
+          summaries.add(summary);
+
+          long tsEnd = System.currentTimeMillis();
+          perSourceStats.addTimeOfLastDBAccess(tsEnd);
+          globalStats.addTimeOfLastDBAccess(tsEnd);
         }
-        summaries.add(summary);
 
-        long tsEnd = System.currentTimeMillis();
-        perSourceStats.addTimeOfLastDBAccess(tsEnd);
-        globalStats.addTimeOfLastDBAccess(tsEnd);
+        // the events of the whole transaction are appended at once, unless it has been spilled
+        appendTxnBatch(txn);
+        _eventBuffer.endEvents(scn, _relayInboundStatsCollector);
+        success = true;
+      }
+      finally
+      {
+        if (!success && _txnWindowStarted)
+        {
+          _eventBuffer.rollbackEvents();
+        }
+        _txnWindowStarted = false;
+        _txnBatch.clear();
       }
-      _eventBuffer.endEvents(scn, _relayInboundStatsCollector);
       // Log Event Summary at Physical source level
       ReadEventCycleSummary summary = new ReadEventCycleSummary(_physicalSourceStaticConfig.getName(),
                                                                 summaries,
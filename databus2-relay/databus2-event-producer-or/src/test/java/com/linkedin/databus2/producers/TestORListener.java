@@ -0,0 +1,242 @@
+package com.linkedin.databus2.producers;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
+import com.google.code.or.binlog.impl.event.QueryEvent;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.binlog.impl.event.WriteRowsEvent;
+import com.google.code.or.binlog.impl.event.XidEvent;
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.ds.DbChangeEntry;
+import com.linkedin.databus2.producers.ds.PerSourceTransaction;
+import com.linkedin.databus2.producers.ds.Transaction;
+import com.linkedin.databus2.schemas.VersionedSchema;
+import com.linkedin.databus2.schemas.VersionedSchemaSetBackedRegistryService;
+
+/**
+ * Tests that the transactions passed by {@link ORListener} to the application are the same whether the rows are
+ * decoded by the listener thread or by the decoder pool.
+ */
+public class TestORListener
+{
+  private static final Logger LOG = Logger.getLogger(TestORListener.class);
+
+  private static final String SOURCE_NAME = "com.linkedin.events.test.Person";
+  private static final String TABLE = "test.person";
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"Person\",\"namespace\":\"com.linkedin.events.test\"," +
+      "\"meta\":\"dbFieldName=person;pk=id;\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":\"int\",\"meta\":\"dbFieldName=id;dbFieldPosition=0;\"}," +
+      "{\"name\":\"name\",\"type\":[\"null\",\"string\"],\"meta\":\"dbFieldName=name;dbFieldPosition=1;\"}]}";
+
+  private static final int NUM_TXNS = 200;
+  private static final int ROWS_EVENTS_PER_TXN = 5;
+  private static final int ROWS_PER_EVENT = 3;
+  /** The keys repeat across the rows events of a transaction */
+  private static final int KEYS_PER_TXN = 7;
+
+  /** Records the committed transactions as (scn, key -> serialized record) */
+  private static class RecordingProcessor implements ORListener.TransactionProcessor
+  {
+    final List<Long> _scns = new ArrayList<Long>();
+    final List<Map<Object, byte[]>> _rows = new ArrayList<Map<Object, byte[]>>();
+
+    @Override
+    public synchronized void onEndTransaction(Transaction txn) throws DatabusException
+    {
+      Map<Object, byte[]> rows = new HashMap<Object, byte[]>();
+      for (PerSourceTransaction t : txn.getOrderedPerSourceTransactions())
+      {
+        for (DbChangeEntry c : t.getDbChangeEntrySet())
+        {
+          byte[] serialized = c.getSerializedRecord();
+          if (null == serialized)
+          {
+            try
+            {
+              ByteArrayOutputStream bos = new ByteArrayOutputStream();
+              new GenericDatumWriter<GenericRecord>(c.getSchema()).write(c.getRecord(), new BinaryEncoder(bos));
+              serialized = bos.toByteArray();
+            }
+            catch (Exception e)
+            {
+              throw new DatabusException(e);
+            }
+          }
+          rows.put(c.getPkeys().get(0).getKey(), serialized);
+        }
+      }
+      _scns.add(txn.getScn());
+      _rows.add(rows);
+      notifyAll();
+    }
+
+    synchronized void awaitTransactions(int num, long timeoutMs) throws InterruptedException
+    {
+      long end = System.currentTimeMillis() + timeoutMs;
+      while (_scns.size() < num && System.currentTimeMillis() < end)
+      {
+        wait(100);
+      }
+    }
+  }
+
+  private static BinlogEventV4HeaderImpl header(long position, long length)
+  {
+    BinlogEventV4HeaderImpl header = new BinlogEventV4HeaderImpl();
+    header.setTimestamp(1000);
+    header.setEventLength(length);
+    header.setNextPosition(position + length);
+    return header;
+  }
+
+  /**
+   * @param failedTxn   the transaction with a row which cannot be decoded; -1 for none
+   */
+  private static List<BinlogEventV4> createBinlog(int failedTxn)
+  {
+    List<BinlogEventV4> events = new ArrayList<BinlogEventV4>();
+    long pos = 4;
+    for (int t = 0; t < NUM_TXNS; ++t)
+    {
+      QueryEvent begin = new QueryEvent(header(pos, 10));
+      begin.setSql(StringColumn.valueOf("BEGIN".getBytes()));
+      events.add(begin);
+      pos += 10;
+
+      TableMapEvent tme = new TableMapEvent(header(pos, 10));
+      tme.setTableId(1);
+      tme.setDatabaseName(StringColumn.valueOf("test".getBytes()));
+      tme.setTableName(StringColumn.valueOf("person".getBytes()));
+      events.add(tme);
+      pos += 10;
+
+      int rowNum = 0;
+      for (int e = 0; e < ROWS_EVENTS_PER_TXN; ++e)
+      {
+        WriteRowsEvent wre = new WriteRowsEvent(header(pos, 100));
+        wre.setTableId(1);
+        List<Row> rows = new ArrayList<Row>();
+        for (int r = 0; r < ROWS_PER_EVENT; ++r, ++rowNum)
+        {
+          int key = t * 100 + rowNum % KEYS_PER_TXN;
+          List<Column> cols = Arrays.<Column>asList(LongColumn.valueOf(key),
+                                                    StringColumn.valueOf(("name" + t + "_" + rowNum).getBytes()));
+          if (t == failedTxn && 2 == e)
+          {
+            // does not match the schema
+            cols = cols.subList(0, 1);
+          }
+          rows.add(new Row(cols));
+        }
+        wre.setRows(rows);
+        events.add(wre);
+        pos += 100;
+      }
+
+      XidEvent xid = new XidEvent(header(pos, 10));
+      xid.setXid(t);
+      events.add(xid);
+      pos += 10;
+    }
+    return events;
+  }
+
+  /** Replays the binlog until numTxns transactions are committed or the timeout expires */
+  private static RecordingProcessor replay(List<BinlogEventV4> binlog, int decoderThreads, int numTxns,
+                                           long timeoutMs)
+      throws Exception
+  {
+    VersionedSchemaSetBackedRegistryService schemaRegistry = new VersionedSchemaSetBackedRegistryService();
+    schemaRegistry.registerSchema(new VersionedSchema(SOURCE_NAME, (short)1, Schema.parse(SCHEMA), SCHEMA));
+    Map<String, Short> tableToSrcId = new HashMap<String, Short>();
+    tableToSrcId.put(TABLE, (short)1);
+    Map<String, String> tableToSrcName = new HashMap<String, String>();
+    tableToSrcName.put(TABLE, SOURCE_NAME);
+
+    RecordingProcessor processor = new RecordingProcessor();
+    ORListener listener = new ORListener("test", 1, LOG, "mysql-bin", processor, tableToSrcId, tableToSrcName,
+                                         schemaRegistry, 100, 10L, 0, null, decoderThreads);
+    listener.start();
+    try
+    {
+      for (BinlogEventV4 event : binlog)
+      {
+        listener.onEvents(event);
+      }
+      processor.awaitTransactions(numTxns, timeoutMs);
+    }
+    finally
+    {
+      listener.shutdown();
+    }
+    return processor;
+  }
+
+  @Test
+  public void testParallelDecodingKeepsBinlogOrder() throws Exception
+  {
+    List<BinlogEventV4> binlog = createBinlog(-1);
+    RecordingProcessor expected = replay(binlog, 0, NUM_TXNS, 30000);
+    Assert.assertEquals(expected._scns.size(), NUM_TXNS);
+    Assert.assertEquals(expected._rows.get(0).size(), KEYS_PER_TXN);
+
+    RecordingProcessor actual = replay(binlog, 4, NUM_TXNS, 30000);
+    Assert.assertEquals(actual._scns, expected._scns);
+    for (int t = 0; t < NUM_TXNS; ++t)
+    {
+      Map<Object, byte[]> expectedRows = expected._rows.get(t);
+      Map<Object, byte[]> actualRows = actual._rows.get(t);
+      Assert.assertEquals(actualRows.keySet(), expectedRows.keySet());
+      for (Map.Entry<Object, byte[]> e : expectedRows.entrySet())
+      {
+        // the latest change of each key wins
+        Assert.assertEquals(actualRows.get(e.getKey()), e.getValue(), "txn " + t + " key " + e.getKey());
+      }
+    }
+
+    // the scns increase in binlog order
+    for (int t = 1; t < NUM_TXNS; ++t)
+    {
+      Assert.assertTrue(actual._scns.get(t) > actual._scns.get(t - 1));
+    }
+  }
+
+  @Test
+  public void testDecodingFailureStopsCommits() throws Exception
+  {
+    int failedTxn = 10;
+    List<BinlogEventV4> binlog = createBinlog(failedTxn);
+    RecordingProcessor expected = replay(createBinlog(-1), 0, NUM_TXNS, 30000);
+    Assert.assertEquals(expected._scns.size(), NUM_TXNS);
+
+    // the transaction is not committed without the rows which could not be decoded
+    RecordingProcessor inline = replay(binlog, 0, NUM_TXNS - 1, 30000);
+    List<Long> expectedScns = new ArrayList<Long>(expected._scns);
+    expectedScns.remove(failedTxn);
+    Assert.assertEquals(inline._scns, expectedScns);
+
+    // with the decoder pool, no transaction is committed after the failed one
+    RecordingProcessor actual = replay(binlog, 4, failedTxn + 1, 2000);
+    Assert.assertEquals(actual._scns, expected._scns.subList(0, failedTxn));
+  }
+}
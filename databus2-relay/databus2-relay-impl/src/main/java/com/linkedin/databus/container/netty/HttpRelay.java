@@ -39,6 +39,7 @@ import org.jboss.netty.channel.ServerChannel;
 
 import com.linkedin.databus.container.request.BufferInfoRequestProcessor;
 import com.linkedin.databus.container.request.GenerateDataEventsRequestProcessor;
+import com.linkedin.databus.container.request.IngestEventsRequestHandler;
 import com.linkedin.databus.container.request.LoadDataEventsRequestProcessor;
 import com.linkedin.databus.container.request.PhysicalBuffersRequestProcessor;
 import com.linkedin.databus.container.request.PhysicalSourcesRequestProcessor;
@@ -48,6 +49,7 @@ import com.linkedin.databus.container.request.RelayCommandRequestProcessor;
 import com.linkedin.databus.container.request.RelayContainerStatsRequestProcessor;
 import com.linkedin.databus.container.request.RelayStatsRequestProcessor;
 import com.linkedin.databus.container.request.SourcesRequestProcessor;
+import com.linkedin.databus.container.request.StreamEventsRequestHandler;
 import com.linkedin.databus.core.DbusEventBuffer;
 import com.linkedin.databus.core.DbusEventBufferMetaInfo;
 import com.linkedin.databus.core.DbusEventBufferMult;
@@ -77,8 +79,10 @@ import com.linkedin.databus2.core.container.netty.ServerContainer;
 import com.linkedin.databus2.core.container.request.ConfigRequestProcessor;
 import com.linkedin.databus2.core.container.request.ContainerStatsRequestProcessor;
 import com.linkedin.databus2.core.container.request.EchoRequestProcessor;
+import com.linkedin.databus2.core.container.request.IngestEventsRequest;
 import com.linkedin.databus2.core.container.request.RequestProcessorRegistry;
 import com.linkedin.databus2.core.container.request.SleepRequestProcessor;
+import com.linkedin.databus2.core.container.request.StreamEventsRequest;
 import com.linkedin.databus2.producers.EventCreationException;
 import com.linkedin.databus2.relay.AddRemovePartitionInterface;
 import com.linkedin.databus2.relay.config.DataSourcesStaticConfig;
@@ -118,6 +122,8 @@ public class HttpRelay extends ServerContainer implements AddRemovePartitionInte
     protected DbusEventStatsCollectorsPartitioner _dbInboundStatsCollectors;
     // DB level outbound stats aggregate
     protected DbusEventStatsCollectorsPartitioner _dbOutboundStatsCollectors;
+    // Executes push-based event streaming on the TCP interface
+    private StreamEventsRequestHandler.Factory _streamEventsHandlerFactory;
 
     public HttpRelay(Config config, PhysicalSourceStaticConfig [] pConfigs)
     throws IOException, InvalidConfigException, DatabusException
@@ -267,6 +273,14 @@ public class HttpRelay extends ServerContainer implements AddRemovePartitionInte
                                   new BufferInfoRequestProcessor(null,_eventBufferMult));
       _processorRegistry.register(RelayCommandRequestProcessor.COMMAND_NAME,
                                   new RelayCommandRequestProcessor(null, this));
+
+      _streamEventsHandlerFactory = new StreamEventsRequestHandler.Factory(this);
+      getCommandsRegistry().registerCommand(null, StreamEventsRequest.OPCODE,
+                                            new StreamEventsRequest.BinaryParserFactory(),
+                                            _streamEventsHandlerFactory);
+      getCommandsRegistry().registerCommand(null, IngestEventsRequest.OPCODE,
+                                            new IngestEventsRequest.BinaryParserFactory(),
+                                            new IngestEventsRequestHandler.Factory(this));
     }
 
     @Override
@@ -305,6 +319,10 @@ public class HttpRelay extends ServerContainer implements AddRemovePartitionInte
     {
       super.doShutdown();
       getHttpStatisticsCollector().unregisterMBeans();
+      if (null != _streamEventsHandlerFactory)
+      {
+        _streamEventsHandlerFactory.shutdown();
+      }
       if (null != _schemaRegistryService &&
           _schemaRegistryService instanceof FileSystemSchemaRegistryService)
       {
@@ -1111,6 +1129,15 @@ public class HttpRelay extends ServerContainer implements AddRemovePartitionInte
       return _eventBufferMult;
     }
 
+    /**
+     * Checks if the buffer of a partition is written by an event producer running in the relay.
+     * A buffer has a single writer, so such partitions do not accept events from anywhere else.
+     */
+    public boolean hasEventProducer(PhysicalPartition pPartition)
+    {
+      return false;
+    }
+
     public SchemaRegistryService getSchemaRegistryService()
     {
       return _schemaRegistryService;
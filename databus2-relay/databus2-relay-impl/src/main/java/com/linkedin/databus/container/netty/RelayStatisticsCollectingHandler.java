@@ -26,10 +26,7 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
-import org.jboss.netty.handler.codec.http.HttpChunkTrailer;
-import org.jboss.netty.handler.codec.http.HttpResponse;
 
-import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
 import com.linkedin.databus2.core.container.monitoring.mbean.HttpStatisticsCollector;
 import com.linkedin.databus2.core.container.netty.DatabusRequestExecutionHandler;
 import com.linkedin.databus2.core.container.netty.HttpRequestHandler;
@@ -39,6 +36,9 @@ import com.linkedin.databus2.core.container.request.DatabusRequest;
  * A class that listens for DatabusRequest messages sent over the pipeline and assigns connection-
  * specific relay stats collectors.
  *
+ * The connection-specific collectors are views of the global ones which register the calls of the
+ * connection's peer directly, so there is nothing to merge at the end of a call.
+ *
  * The handler should be added to the pipeline before {@link DatabusRequestExecutionHandler} and
  * after {@link HttpRequestHandler}
  *
@@ -51,46 +51,19 @@ public class RelayStatisticsCollectingHandler extends SimpleChannelHandler
   public static final Logger LOG = Logger.getLogger(MODULE);
 
   private final HttpRelay _relay;
-  private DbusEventsStatisticsCollector _outEventStatsCollector;
-  private DbusEventsStatisticsCollector _connOutEventStatsCollector;
   private HttpStatisticsCollector _outHttpStatsCollector;
   private HttpStatisticsCollector _connOutHttpStatsCollector;
-  private DatabusRequest _latestDbusRequest = null;
 
   public RelayStatisticsCollectingHandler(HttpRelay relay)
   {
     _relay = relay;
-    _outEventStatsCollector = _relay.getOutboundEventStatisticsCollector();
     _outHttpStatsCollector = _relay.getHttpStatisticsCollector();
-
-    _connOutEventStatsCollector = null;
-  }
-
-  private boolean shouldMerge(MessageEvent me)
-  {
-    return ((me.getMessage() instanceof HttpChunkTrailer) ||
-            (me.getMessage() instanceof HttpResponse));
-  }
-
-  private void mergePerConnStats()
-  {
-    if (null != _connOutEventStatsCollector)
-    {
-      _outEventStatsCollector.merge(_connOutEventStatsCollector);
-      _connOutEventStatsCollector.reset();
-    }
-
-    if (null != _connOutHttpStatsCollector)
-    {
-      _outHttpStatsCollector.merge(_connOutHttpStatsCollector);
-      _connOutHttpStatsCollector.reset();
-    }
   }
 
   @Override
   public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
   {
-    if (null != _outEventStatsCollector || null != _outHttpStatsCollector)
+    if (null != _outHttpStatsCollector)
     {
       //Opening a new connection
       Object value = e.getValue();
@@ -109,14 +82,7 @@ public class RelayStatisticsCollectingHandler extends SimpleChannelHandler
         client = e.getValue().toString();
       }
 
-      if (null != _outEventStatsCollector)
-      {
-        _connOutEventStatsCollector = _outEventStatsCollector.createForPeerConnection(client);
-      }
-      if (null != _outHttpStatsCollector)
-      {
-        _connOutHttpStatsCollector = _outHttpStatsCollector.createForClientConnection(client);
-      }
+      _connOutHttpStatsCollector = _outHttpStatsCollector.createPeerView(client);
     }
 
     super.channelConnected(ctx, e);
@@ -125,27 +91,10 @@ public class RelayStatisticsCollectingHandler extends SimpleChannelHandler
   @Override
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception
   {
-    if (null != _outEventStatsCollector || null != _outHttpStatsCollector )
+    if (null != _connOutHttpStatsCollector && e.getMessage() instanceof DatabusRequest)
     {
-      if (e.getMessage() instanceof DatabusRequest)
-      {
-        _latestDbusRequest = (DatabusRequest)e.getMessage();
-        if (null != _outEventStatsCollector)
-        {
-          _latestDbusRequest.getParams().put(_outEventStatsCollector.getName(),
-                                             _connOutEventStatsCollector);
-        }
-        if (null != _outHttpStatsCollector)
-        {
-          _latestDbusRequest.getParams().put(_outHttpStatsCollector.getName(),
-                                             _connOutHttpStatsCollector);
-        }
-      }
-      else if (shouldMerge(e))
-      {
-        //First or Last message in a call
-        mergePerConnStats();
-      }
+      ((DatabusRequest)e.getMessage()).getParams().put(_outHttpStatsCollector.getName(),
+                                                       _connOutHttpStatsCollector);
     }
 
     super.messageReceived(ctx, e);
@@ -154,15 +103,7 @@ public class RelayStatisticsCollectingHandler extends SimpleChannelHandler
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
   {
-    if (null != _connOutEventStatsCollector || null != _connOutHttpStatsCollector)
-    {
-      mergePerConnStats();
-      if (null != _connOutEventStatsCollector) _connOutEventStatsCollector.unregisterMBeans();
-      if (null != _connOutHttpStatsCollector) _connOutHttpStatsCollector.unregisterMBeans();
-      _connOutEventStatsCollector = null;
-      _connOutHttpStatsCollector = null;
-    }
-    _latestDbusRequest = null;
+    _connOutHttpStatsCollector = null;
     super.channelClosed(ctx, e);
   }
 
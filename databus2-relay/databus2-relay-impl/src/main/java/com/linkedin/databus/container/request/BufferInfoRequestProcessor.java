@@ -28,6 +28,7 @@ import com.linkedin.databus.container.netty.HttpRelay;
 import com.linkedin.databus.core.BufferInfoResponse;
 import com.linkedin.databus.core.DbusEventBuffer;
 import com.linkedin.databus.core.DbusEventBufferMult;
+import com.linkedin.databus.core.DbusEventBufferSegmentPool;
 import com.linkedin.databus.core.data_model.PhysicalPartition;
 import com.linkedin.databus2.core.BufferNotFoundException;
 import com.linkedin.databus2.core.DatabusException;
@@ -48,6 +49,7 @@ public class BufferInfoRequestProcessor
 
 	public static final String COMMAND_NAME = "bufferInfo";
 	private final static String INBOUND_VIEW = "inbound/";
+	private final static String POOL_VIEW = "pool";
 	
 	private final ExecutorService _executorService;
     private final DbusEventBufferMult _eventBufferMult;
@@ -78,6 +80,8 @@ public class BufferInfoRequestProcessor
 	        sourceIdStr = sourceIdStr.replace('/', ':');
 	        PhysicalPartition pPartition = PhysicalPartition.parsePhysicalPartitionString(sourceIdStr, ":");
 	        processInboundRequest(request,pPartition);
+	    } else if (category.equals(POOL_VIEW)) {
+	        processPoolRequest(request);
 	    } else {
 	    	throw new InvalidRequestParamValueException(COMMAND_NAME, "category", category);
 	    }
@@ -101,9 +105,27 @@ public class BufferInfoRequestProcessor
 		response.setMaxScn(evb.lastWrittenScn());
 		response.setTimestampFirstEvent(evb.getTimestampOfFirstEvent());
 		response.setTimestampLatestEvent(evb.getTimestampOfLatestDataEvent());
+		response.setLeasedSize(evb.getLeasedSize());
+		if (null != evb.getSegmentPool())
+		{
+			response.setLeasedSegments(evb.getNumLeasedSegments());
+		}
 		
 	    writeJsonObjectToResponse(response, request);
 	}
+
+	private void processPoolRequest(DatabusRequest request)
+		throws IOException, RequestProcessingException
+	{
+		DbusEventBufferSegmentPool pool = _eventBufferMult.getSegmentPool();
+		if (null == pool)
+		{
+			throw new InvalidRequestParamValueException(COMMAND_NAME, "category",
+			                                            POOL_VIEW + " (shared segment pool not enabled)");
+		}
+
+	    writeJsonObjectToResponse(pool.getStats(), request);
+	}
 	
 	@Override
 	public ExecutorService getExecutorService() {
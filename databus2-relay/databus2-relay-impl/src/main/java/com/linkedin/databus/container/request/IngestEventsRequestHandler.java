@@ -0,0 +1,357 @@
+package com.linkedin.databus.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import org.apache.log4j.Logger;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+
+import com.linkedin.databus.container.netty.HttpRelay;
+import com.linkedin.databus.core.DbusEventBuffer;
+import com.linkedin.databus.core.InvalidEventException;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+import com.linkedin.databus.core.util.ChunkedReadableByteChannel;
+import com.linkedin.databus2.core.container.request.ErrorResponse;
+import com.linkedin.databus2.core.container.request.IngestEventsRequest;
+import com.linkedin.databus2.core.container.request.IngestEventsResponse;
+import com.linkedin.databus2.core.container.request.RequestExecutionHandlerFactory;
+
+/**
+ * Executes {@link IngestEventsRequest} batches pushed by external producers on the relay TCP
+ * interface. The events are validated in place and appended to the buffer of the batch partition.
+ * Appending may block waiting for free space in the buffer, so it runs on an executor rather than
+ * on the netty I/O thread; the events are copied out of the network buffer for that. Batches are
+ * executed in the order they are received and each one is acknowledged before the next one is
+ * processed, so producers can pipeline their batches. Reading from the connection is suspended
+ * while batches are waiting to be executed.
+ *
+ * <p>Unknown partitions and batches which may create a gap in the buffer (the producer's previous
+ * scn is greater than the last scn in the buffer) are rejected with recoverable errors. Partitions
+ * written by an event producer in the relay do not accept batches, since a buffer has a single
+ * writer. For the same reason, the first connection which ingests into a partition owns it until
+ * the connection is closed and batches for that partition from other connections are rejected.
+ * Invalid events close the connection.
+ */
+public class IngestEventsRequestHandler extends SimpleChannelHandler
+{
+  public static final String MODULE = IngestEventsRequestHandler.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  private static final String COMMAND_NAME = "ingestEvents";
+  /** The number of batches queued on a connection after which reading from it is suspended */
+  static final int MAX_QUEUED_BATCHES = 2;
+
+  private final HttpRelay _relay;
+  private final Channel _channel;
+  private final Executor _executor;
+  /** The connections which own the partitions being ingested into; shared by all handlers */
+  private final ConcurrentMap<PhysicalPartition, Channel> _owners;
+  /** The batches waiting to be executed; guarded by itself */
+  private final LinkedList<IngestEventsRequest> _queue = new LinkedList<IngestEventsRequest>();
+  /** Whether a task is executing the queued batches; guarded by _queue */
+  private boolean _executing = false;
+
+  public IngestEventsRequestHandler(HttpRelay relay, Channel channel,
+                                    ConcurrentMap<PhysicalPartition, Channel> owners)
+  {
+    this(relay, channel, owners, relay.getDefaultExecutorService());
+  }
+
+  IngestEventsRequestHandler(HttpRelay relay, Channel channel,
+                             ConcurrentMap<PhysicalPartition, Channel> owners, Executor executor)
+  {
+    _relay = relay;
+    _channel = channel;
+    _owners = owners;
+    _executor = executor;
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception
+  {
+    if (!(e.getMessage() instanceof IngestEventsRequest))
+    {
+      super.messageReceived(ctx, e);
+      return;
+    }
+
+    //the events are a slice of the network buffer, valid only until we return
+    IngestEventsRequest req = (IngestEventsRequest)e.getMessage();
+    IngestEventsRequest copy =
+        IngestEventsRequest.createRequest(req.getBatchId(), req.getPhysicalPartition(),
+                                          req.getPrevScn(), ChannelBuffers.copiedBuffer(req.getEvents()));
+    boolean startExecution;
+    synchronized (_queue)
+    {
+      _queue.add(copy);
+      if (_queue.size() >= MAX_QUEUED_BATCHES)
+      {
+        _channel.setReadable(false);
+      }
+      startExecution = !_executing;
+      _executing = true;
+    }
+    if (startExecution)
+    {
+      _executor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          executeQueued();
+        }
+      });
+    }
+  }
+
+  /** Executes the queued batches in order until the queue is empty */
+  private void executeQueued()
+  {
+    while (true)
+    {
+      IngestEventsRequest req;
+      synchronized (_queue)
+      {
+        req = _queue.poll();
+        if (null == req)
+        {
+          _executing = false;
+          if (_channel.isOpen())
+          {
+            _channel.setReadable(true);
+          }
+          return;
+        }
+      }
+
+      boolean keepGoing;
+      try
+      {
+        keepGoing = execute(req);
+      }
+      catch (RuntimeException re)
+      {
+        LOG.error("ingest batch " + req + " failed: " + re, re);
+        closeWithError(ErrorResponse.createInternalServerErrorResponse(re));
+        keepGoing = false;
+      }
+      if (!keepGoing)
+      {
+        synchronized (_queue)
+        {
+          _queue.clear();
+          _executing = false;
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Executes a single batch and writes the acknowledgement or the error response
+   * @return false if the connection is being closed
+   */
+  boolean execute(IngestEventsRequest req)
+  {
+    PhysicalPartition ppart = req.getPhysicalPartition();
+    DbusEventBuffer buf = _relay.getEventBuffer().getOneBuffer(ppart);
+    if (null == buf)
+    {
+      LOG.warn("ingest for unknown partition " + ppart + " from " + _channel.getRemoteAddress());
+      _channel.write(ErrorResponse.createUnknownPartition(ppart));
+      return true;
+    }
+    if (_relay.hasEventProducer(ppart))
+    {
+      LOG.warn("ingest for partition " + ppart + " with an event producer from " +
+               _channel.getRemoteAddress());
+      _channel.write(ErrorResponse.createInvalidRequestParam(COMMAND_NAME, "physicalPartition",
+                                                             ppart.toSimpleString()));
+      return true;
+    }
+    if (!claimPartition(ppart))
+    {
+      LOG.warn("ingest for partition " + ppart + " owned by " + _owners.get(ppart) + " from " +
+               _channel.getRemoteAddress());
+      _channel.write(ErrorResponse.createInvalidRequestParam(COMMAND_NAME, "physicalPartition",
+                                                             ppart.toSimpleString()));
+      return true;
+    }
+
+    ErrorResponse err = req.validateEvents(_relay.getEventFactory());
+    if (null != err)
+    {
+      LOG.error("invalid ingest batch " + req + " from " + _channel.getRemoteAddress() + ": " +
+                err.getCauseMessage());
+      closeWithError(err);
+      return false;
+    }
+
+    long lastWrittenScn = buf.lastWrittenScn();
+    if (req.getPrevScn() >= 0 && lastWrittenScn > 0 && req.getPrevScn() > lastWrittenScn)
+    {
+      LOG.warn("ingest batch " + req + " may create a gap after scn " + lastWrittenScn);
+      _channel.write(0 < req.getSrcIds().size() ? ErrorResponse.createSourcesTooOldResponse(req.getSrcIds())
+                                                : ErrorResponse.createSourcesTooOldResponse(ppart.getId()));
+      return true;
+    }
+
+    int numAppended = 0;
+    //a retry of a batch that has already been appended
+    boolean alreadyAppended = lastWrittenScn > 0 && req.getLastWindowScn() <= lastWrittenScn;
+    if (req.getNumEvents() > 0 && !alreadyAppended)
+    {
+      if (buf.getMinScn() < 0 && buf.getPrevScn() < 0 && req.getPrevScn() >= 0)
+      {
+        //the buffer is empty; the producer knows where its first window starts
+        buf.setStartSCN(req.getPrevScn());
+      }
+
+      DbusEventsStatisticsCollector statsCollector =
+          _relay.getInBoundStatsCollectors().getStatsCollector(ppart.toSimpleString());
+      try
+      {
+        //windows with scns not greater than the last one in the buffer are skipped, which makes
+        //retries of unacknowledged batches safe
+        numAppended = buf.readEvents(new BatchChannel(req.getEventsByteBuffer(_relay.getEventFactory())),
+                                     statsCollector);
+      }
+      catch (InvalidEventException iee)
+      {
+        LOG.error("unable to append ingest batch " + req + ": " + iee.getMessage(), iee);
+        closeWithError(ErrorResponse.createInvalidEvent(iee.getMessage()));
+        return false;
+      }
+    }
+
+    if (LOG.isDebugEnabled())
+    {
+      LOG.debug("ingested batch " + req + ": windows=" + req.getNumWindows() + " appended=" +
+                numAppended);
+    }
+    _channel.write(new IngestEventsResponse(req.getBatchId(), buf.lastWrittenScn(), numAppended));
+    return true;
+  }
+
+  /**
+   * Makes this connection the only one ingesting into a partition until it is closed. Together
+   * with the in-order execution of the batches, this makes the connection the single writer of
+   * the partition buffer, so the gap check and the start scn need no further locking.
+   * @return false if another connection owns the partition
+   */
+  private boolean claimPartition(final PhysicalPartition ppart)
+  {
+    Channel owner = _owners.putIfAbsent(ppart, _channel);
+    if (null != owner)
+    {
+      return owner == _channel;
+    }
+
+    //the listener is notified right away if the connection has already been closed
+    _channel.getCloseFuture().addListener(new ChannelFutureListener()
+    {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception
+      {
+        _owners.remove(ppart, _channel);
+      }
+    });
+    return true;
+  }
+
+  private void closeWithError(ErrorResponse err)
+  {
+    _channel.write(err).addListener(ChannelFutureListener.CLOSE);
+  }
+
+  /** Hands the already validated events of a batch to the buffer as a single chunk */
+  static class BatchChannel implements ChunkedReadableByteChannel
+  {
+    private ByteBuffer _chunk;
+
+    public BatchChannel(ByteBuffer chunk)
+    {
+      _chunk = chunk;
+    }
+
+    @Override
+    public ByteBuffer readChunk() throws IOException
+    {
+      ByteBuffer result = _chunk;
+      _chunk = null;
+      return result;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException
+    {
+      if (null == _chunk || !_chunk.hasRemaining()) return -1;
+      int len = Math.min(dst.remaining(), _chunk.remaining());
+      ByteBuffer src = _chunk.duplicate();
+      src.limit(src.position() + len);
+      dst.put(src);
+      _chunk.position(_chunk.position() + len);
+      return len;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return null != _chunk;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      _chunk = null;
+    }
+  }
+
+  public static class Factory implements RequestExecutionHandlerFactory
+  {
+    private final HttpRelay _relay;
+    private final ConcurrentMap<PhysicalPartition, Channel> _owners =
+        new ConcurrentHashMap<PhysicalPartition, Channel>();
+
+    public Factory(HttpRelay relay)
+    {
+      _relay = relay;
+    }
+
+    @Override
+    public SimpleChannelHandler createHandler(Channel channel)
+    {
+      return new IngestEventsRequestHandler(_relay, channel, _owners);
+    }
+  }
+}
@@ -105,9 +105,12 @@ public class ReadEventsRequestProcessor implements RequestProcessor
     return _executorService;
   }
 
-  @Override
-  public DatabusRequest process(DatabusRequest request) throws IOException,
-      RequestProcessingException, DatabusException
+  /**
+   * Parses the parameters of a stream request: subscriptions or sources, server-side filters and
+   * checkpoints. Shared by the HTTP /stream command and the TCP {@link StreamEventsRequestHandler}.
+   */
+  StreamSetup setupStream(DatabusRequest request)
+       throws IOException, RequestProcessingException, DatabusException
   {
 	boolean isDebug = LOG.isDebugEnabled();
     try {
@@ -166,8 +169,6 @@ public class ReadEventsRequestProcessor implements RequestProcessor
     	  streamFromLatestSCN = Boolean.valueOf(streamFromLatestSCNStr);
       }
 
-      long start = System.currentTimeMillis();
-
       List<DatabusSubscription> subs = null;
 
       //parse source ids
@@ -345,6 +346,37 @@ public class ReadEventsRequestProcessor implements RequestProcessor
       if (null != checkpointString && isDebug)
         LOG.debug("About to stream from cp: " + checkpointString.toString());
 
+      return new StreamSetup(_eventBuffer, fetchSize, enc, v2Mode, sourceIds, subs, ppartKeys,
+                             filters, cpMult, cp, streamFromLatestSCN, clientEventVersion);
+    }
+    catch (InvalidRequestParamValueException e)
+    {
+      HttpStatisticsCollector globalHttpStatsCollector = _relay.getHttpStatisticsCollector();
+      if (null != globalHttpStatsCollector) {
+        globalHttpStatsCollector.registerInvalidStreamRequest();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public DatabusRequest process(DatabusRequest request) throws IOException,
+      RequestProcessingException, DatabusException
+  {
+	boolean isDebug = LOG.isDebugEnabled();
+    StreamSetup setup = setupStream(request);
+    try {
+      int fetchSize = setup._fetchSize;
+      Encoding enc = setup._enc;
+      boolean v2Mode = setup._v2Mode;
+      HashSet<Integer> sourceIds = setup._sourceIds;
+      List<DatabusSubscription> subs = setup._subs;
+      ConjunctionDbusFilter filters = setup._filters;
+      CheckpointMult cpMult = setup._cpMult;
+      Checkpoint cp = setup._cp;
+      boolean streamFromLatestSCN = setup._streamFromLatestScn;
+      long start = System.currentTimeMillis();
+
       HttpStatisticsCollector globalHttpStatsCollector = _relay.getHttpStatisticsCollector();
       HttpStatisticsCollector connHttpStatsCollector = null;
       if (null != globalHttpStatsCollector)
@@ -360,16 +392,12 @@ public class ReadEventsRequestProcessor implements RequestProcessor
       {
 
 
-        DbusEventBufferBatchReadable bufRead = v2Mode
-          ? _eventBuffer.getDbusEventBufferBatchReadable(sourceIds, cpMult, statsCollectors)
-          : _eventBuffer.getDbusEventBufferBatchReadable(cpMult, ppartKeys, statsCollectors);
+        DbusEventBufferBatchReadable bufRead = setup.createReader(statsCollectors);
 
         int eventsRead = 0;
         int minPendingEventSize = 0;
         StreamEventsResult result = null;
 
-        bufRead.setClientMaxEventVersion(clientEventVersion);
-
         if (v2Mode)
         {
           result = bufRead.streamEvents(streamFromLatestSCN, fetchSize,
@@ -422,19 +450,10 @@ public class ReadEventsRequestProcessor implements RequestProcessor
         throw new RequestProcessingException(snfe);
       }
 
-      /* FIXME snagaraj
-      if (null != connEventsStatsCollector && null != globalEventsStatsCollector)
-      {
-        globalEventsStatsCollector.merge(connEventsStatsCollector);
-        connEventsStatsCollector.reset();
-      }
-      */
-
+      //the connection collector updates the global stats directly
       if (null != connHttpStatsCollector)
       {
         connHttpStatsCollector.registerStreamResponse(System.currentTimeMillis()-start);
-        globalHttpStatsCollector.merge(connHttpStatsCollector);
-        connHttpStatsCollector.reset();
       }
       else if (null != globalHttpStatsCollector)
       {
@@ -452,4 +471,53 @@ public class ReadEventsRequestProcessor implements RequestProcessor
     return request;
   }
 
+  /** The parsed parameters of a stream request */
+  static class StreamSetup
+  {
+    final int _fetchSize;
+    final Encoding _enc;
+    final boolean _v2Mode;
+    final HashSet<Integer> _sourceIds;
+    final List<DatabusSubscription> _subs;
+    final NavigableSet<PhysicalPartitionKey> _ppartKeys;
+    final ConjunctionDbusFilter _filters;
+    final CheckpointMult _cpMult;
+    final Checkpoint _cp;
+    final boolean _streamFromLatestScn;
+    final int _clientEventVersion;
+    private final DbusEventBufferMult _eventBuffer;
+
+    StreamSetup(DbusEventBufferMult eventBuffer, int fetchSize, Encoding enc, boolean v2Mode,
+                HashSet<Integer> sourceIds, List<DatabusSubscription> subs,
+                NavigableSet<PhysicalPartitionKey> ppartKeys, ConjunctionDbusFilter filters,
+                CheckpointMult cpMult, Checkpoint cp, boolean streamFromLatestScn,
+                int clientEventVersion)
+    {
+      _eventBuffer = eventBuffer;
+      _fetchSize = fetchSize;
+      _enc = enc;
+      _v2Mode = v2Mode;
+      _sourceIds = sourceIds;
+      _subs = subs;
+      _ppartKeys = ppartKeys;
+      _filters = filters;
+      _cpMult = cpMult;
+      _cp = cp;
+      _streamFromLatestScn = streamFromLatestScn;
+      _clientEventVersion = clientEventVersion;
+    }
+
+    /** Creates a reader for the requested buffers starting from the request checkpoints */
+    DbusEventBufferBatchReadable createReader(StatsCollectors<DbusEventsStatisticsCollector> statsCollectors)
+        throws IOException
+    {
+      DbusEventBufferBatchReadable bufRead = _v2Mode
+          ? _eventBuffer.getDbusEventBufferBatchReadable(_sourceIds, _cpMult, statsCollectors)
+          : _eventBuffer.getDbusEventBufferBatchReadable(_cpMult, _ppartKeys, statsCollectors);
+      bufRead.setClientMaxEventVersion(_clientEventVersion);
+      return bufRead;
+    }
+  }
+
+
 }
@@ -0,0 +1,364 @@
+package com.linkedin.databus.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+
+import com.linkedin.databus.container.netty.HttpRelay;
+import com.linkedin.databus.container.request.ReadEventsRequestProcessor.StreamSetup;
+import com.linkedin.databus.core.DbusEventBuffer;
+import com.linkedin.databus.core.DbusEventBufferBatchReadable;
+import com.linkedin.databus.core.DbusEventBufferCommitListener;
+import com.linkedin.databus.core.StreamEventsResult;
+import com.linkedin.databus.core.util.NamedThreadFactory;
+import com.linkedin.databus2.core.container.request.BinaryProtocol;
+import com.linkedin.databus2.core.container.request.DatabusRequest;
+import com.linkedin.databus2.core.container.request.ErrorResponse;
+import com.linkedin.databus2.core.container.request.RequestExecutionHandlerFactory;
+import com.linkedin.databus2.core.container.request.StreamEventsRequest;
+import com.linkedin.databus2.core.container.request.StreamEventsResponse;
+
+/**
+ * Executes {@link StreamEventsRequest} subscriptions on the relay TCP interface. After a
+ * subscription, the handler pushes the events matching the subscription as soon as the windows
+ * are committed to the relay buffers, without waiting for the client to ask for them. The amount
+ * of pushed data is bounded by the credit granted by the client.
+ *
+ * <p>Pushes happen on the executor of the {@link Factory}; at most one push per connection is
+ * scheduled at any time. A push stops when the outbound buffer of the channel is full and resumes
+ * when the channel becomes writable again. Idle connections receive an empty frame every heartbeat
+ * interval.
+ */
+public class StreamEventsRequestHandler extends SimpleChannelHandler
+                                        implements DbusEventBufferCommitListener
+{
+  public static final String MODULE = StreamEventsRequestHandler.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  /** The max size of the events in a single pushed frame */
+  public static final int DEFAULT_MAX_PUSH_SIZE = 1024 * 1024;
+  public static final long DEFAULT_HEARTBEAT_MS = 1000;
+
+  private final HttpRelay _relay;
+  private final ReadEventsRequestProcessor _processor;
+  private final ExecutorService _pushExecutor;
+  private final Channel _channel;
+  private final int _maxPushSize;
+  private final long _heartbeatMs;
+
+  private final AtomicLong _credit = new AtomicLong(0);
+  private final AtomicBoolean _pushScheduled = new AtomicBoolean(false);
+  private final List<DbusEventBuffer> _listenedBuffers = new ArrayList<DbusEventBuffer>();
+  private final Runnable _pushTask = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      push();
+    }
+  };
+
+  private volatile StreamSetup _setup;
+  private volatile DbusEventBufferBatchReadable _reader;
+  private volatile boolean _closed = false;
+  private volatile long _lastWriteTs;
+  private boolean _firstPush = true;
+  private int _lastPendingEventSize = 0;
+  private volatile Timeout _heartbeat;
+
+  public StreamEventsRequestHandler(HttpRelay relay, ReadEventsRequestProcessor processor,
+                                    ExecutorService pushExecutor, Channel channel,
+                                    int maxPushSize, long heartbeatMs)
+  {
+    _relay = relay;
+    _processor = processor;
+    _pushExecutor = pushExecutor;
+    _channel = channel;
+    _maxPushSize = maxPushSize;
+    _heartbeatMs = heartbeatMs;
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception
+  {
+    if (!(e.getMessage() instanceof StreamEventsRequest))
+    {
+      super.messageReceived(ctx, e);
+      return;
+    }
+
+    StreamEventsRequest req = (StreamEventsRequest)e.getMessage();
+    if (req.isSubscribe())
+    {
+      subscribe(req);
+    }
+    else
+    {
+      if (req.getCredit() > 0) _credit.addAndGet(req.getCredit());
+      schedulePush();
+    }
+  }
+
+  private synchronized void subscribe(StreamEventsRequest req)
+  {
+    if (null != _reader)
+    {
+      sendError(ErrorResponse.createUnexpectedCommandResponse("subscribe"));
+      return;
+    }
+
+    try
+    {
+      Properties params = new Properties();
+      for (Map.Entry<String, String> entry: req.getParams().entrySet())
+      {
+        params.setProperty(entry.getKey(), entry.getValue());
+      }
+      DatabusRequest dbusRequest =
+          new DatabusRequest(ReadEventsRequestProcessor.COMMAND_NAME, HttpMethod.GET,
+                             _channel.getRemoteAddress(), params,
+                             _relay.getContainerRuntimeConfigMgr().getReadOnlyConfig());
+      _setup = _processor.setupStream(dbusRequest);
+      _reader = _setup.createReader(_relay.getOutBoundStatsCollectors());
+    }
+    catch (Exception ex)
+    {
+      LOG.error("invalid subscription from " + _channel.getRemoteAddress() + ": " + ex.getMessage());
+      sendError(ErrorResponse.createInvalidRequestParam(ReadEventsRequestProcessor.COMMAND_NAME,
+                                                        "subscription", ex.getMessage()));
+      return;
+    }
+
+    if (LOG.isDebugEnabled())
+    {
+      LOG.debug("new push subscription from " + _channel.getRemoteAddress() + ": " + req);
+    }
+
+    _credit.set(Math.max(0, req.getCredit()));
+    for (DbusEventBuffer buf: _reader.getBuffers())
+    {
+      buf.addCommitListener(this);
+      _listenedBuffers.add(buf);
+    }
+    _lastWriteTs = System.currentTimeMillis();
+    scheduleHeartbeat();
+    schedulePush();
+  }
+
+  @Override
+  public void onEventsCommitted(DbusEventBuffer buffer)
+  {
+    schedulePush();
+  }
+
+  private void schedulePush()
+  {
+    if (_closed || null == _reader || _credit.get() <= 0) return;
+    if (_pushScheduled.compareAndSet(false, true))
+    {
+      try
+      {
+        _pushExecutor.execute(_pushTask);
+      }
+      catch (RuntimeException e)
+      {
+        _pushScheduled.set(false);
+        LOG.warn("unable to schedule push: " + e);
+      }
+    }
+  }
+
+  private void push()
+  {
+    //clear the flag before streaming so that commits during the push schedule another one
+    _pushScheduled.set(false);
+    try
+    {
+      doPush();
+    }
+    catch (Exception e)
+    {
+      LOG.error("push to " + _channel.getRemoteAddress() + " failed: " + e.getMessage(), e);
+      sendError(ErrorResponse.createInternalServerErrorResponse(e));
+    }
+  }
+
+  private synchronized void doPush() throws Exception
+  {
+    while (!_closed && _channel.isWritable())
+    {
+      long credit = _credit.get();
+      if (credit <= 0) break;
+
+      int fetchSize = (int)Math.min(credit, _maxPushSize);
+      ChannelBuffer events = ChannelBuffers.dynamicBuffer(BinaryProtocol.BYTE_ORDER,
+                                                          Math.min(fetchSize, 64 * 1024));
+      StreamEventsResult result =
+          _reader.streamEvents(_firstPush && _setup._streamFromLatestScn, fetchSize,
+                               Channels.newChannel(new ChannelBufferOutputStream(events)),
+                               _setup._enc, _setup._filters);
+      _firstPush = false;
+
+      if (0 == result.getNumEventsStreamed())
+      {
+        int pendingEventSize = result.getSizeOfPendingEvent();
+        if (pendingEventSize > 0 && pendingEventSize != _lastPendingEventSize)
+        {
+          // let the client know that it has to grant more credit
+          write(new StreamEventsResponse(pendingEventSize, null));
+        }
+        _lastPendingEventSize = pendingEventSize;
+        break;
+      }
+
+      _lastPendingEventSize = 0;
+      _credit.addAndGet(-events.readableBytes());
+      write(new StreamEventsResponse(0, events));
+    }
+  }
+
+  private void write(StreamEventsResponse response)
+  {
+    _lastWriteTs = System.currentTimeMillis();
+    _channel.write(response);
+  }
+
+  private void sendError(ErrorResponse response)
+  {
+    if (_closed) return;
+    _channel.write(response);
+    close();
+  }
+
+  private void scheduleHeartbeat()
+  {
+    if (_closed || _heartbeatMs <= 0) return;
+    _heartbeat = _relay.getNetworkTimeoutTimer().newTimeout(new TimerTask()
+    {
+      @Override
+      public void run(Timeout timeout) throws Exception
+      {
+        if (_closed) return;
+        if (System.currentTimeMillis() - _lastWriteTs >= _heartbeatMs && _channel.isWritable())
+        {
+          write(new StreamEventsResponse(0, null));
+        }
+        //catch any commit notifications that were dropped because of missing credit
+        schedulePush();
+        scheduleHeartbeat();
+      }
+    }, _heartbeatMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void close()
+  {
+    synchronized (this)
+    {
+      if (_closed) return;
+      _closed = true;
+      if (null != _heartbeat) _heartbeat.cancel();
+      for (DbusEventBuffer buf: _listenedBuffers)
+      {
+        buf.removeCommitListener(this);
+      }
+      _listenedBuffers.clear();
+    }
+  }
+
+  @Override
+  public void channelInterestChanged(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
+  {
+    //resume a push stopped because the outbound buffer of the channel was full
+    if (_channel.isWritable()) schedulePush();
+    super.channelInterestChanged(ctx, e);
+  }
+
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
+  {
+    close();
+    super.channelClosed(ctx, e);
+  }
+
+  long getCredit()
+  {
+    return _credit.get();
+  }
+
+  /** Creates the per-connection handlers and owns the thread pool used for pushing events */
+  public static class Factory implements RequestExecutionHandlerFactory
+  {
+    private final HttpRelay _relay;
+    private final ReadEventsRequestProcessor _processor;
+    private final ExecutorService _pushExecutor;
+    private final int _maxPushSize;
+    private final long _heartbeatMs;
+
+    public Factory(HttpRelay relay, int pushThreadsNum, int maxPushSize, long heartbeatMs)
+    {
+      _relay = relay;
+      _processor = new ReadEventsRequestProcessor(null, relay);
+      _pushExecutor = Executors.newFixedThreadPool(pushThreadsNum,
+                                                   new NamedThreadFactory("relay-push", true));
+      _maxPushSize = maxPushSize;
+      _heartbeatMs = heartbeatMs;
+    }
+
+    public Factory(HttpRelay relay)
+    {
+      this(relay, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_PUSH_SIZE,
+           DEFAULT_HEARTBEAT_MS);
+    }
+
+    @Override
+    public SimpleChannelHandler createHandler(Channel channel)
+    {
+      return new StreamEventsRequestHandler(_relay, _processor, _pushExecutor, channel,
+                                            _maxPushSize, _heartbeatMs);
+    }
+
+    public void shutdown()
+    {
+      _pushExecutor.shutdownNow();
+    }
+  }
+}
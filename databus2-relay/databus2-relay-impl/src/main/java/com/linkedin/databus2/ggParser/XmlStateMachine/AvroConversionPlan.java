@@ -0,0 +1,454 @@
+package com.linkedin.databus2.ggParser.XmlStateMachine;
+
+ /*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.log4j.Logger;
+
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.gg.GGEventGenerationFactory;
+import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig;
+import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig.MissingValueBehavior;
+import com.linkedin.databus2.schemas.utils.SchemaHelper;
+
+
+/**
+ * Converts the columns of the dbUpdates of a table to the Avro binary serialization of the table
+ * schema. The plan is compiled once per schema from the dbFieldName and dbFieldType metadata of
+ * the fields. The column values read from the trail are kept in per-column slots, parsed straight
+ * to the type of their dbFieldType and written with an Avro encoder, without building a
+ * GenericRecord. Missing, null and key columns are checked as {@link ColumnsState} always did.
+ *
+ * <p>A plan holds the columns of the current dbUpdate and is not thread-safe.
+ */
+public class AvroConversionPlan
+{
+  public final static String MODULE = AvroConversionPlan.class.getName();
+  public final static Logger LOG = Logger.getLogger(MODULE);
+
+  /** The Java types the trail text of the supported dbFieldTypes is parsed to */
+  private static enum ValueType
+  {
+    INT(Schema.Type.INT),
+    LONG(Schema.Type.LONG),
+    DATE(Schema.Type.LONG),
+    TIMESTAMP(Schema.Type.LONG),
+    FLOAT(Schema.Type.FLOAT),
+    DOUBLE(Schema.Type.DOUBLE),
+    STRING(Schema.Type.STRING),
+    BYTES(Schema.Type.BYTES);
+
+    private final Schema.Type _avroType;
+
+    private ValueType(Schema.Type avroType)
+    {
+      _avroType = avroType;
+    }
+  }
+
+  private final Schema _schema;
+  private final PrimaryKey _pk;
+  private final boolean _errorOnMissingFields;
+  private final ReplicationBitSetterStaticConfig _replicationBitConfig;
+  private final Pattern _replicationValuePattern;
+  private final FieldConverter[] _fields;
+  /** Slot of each database column by name */
+  private final HashMap<String, Integer> _columnSlots;
+
+  // The columns of the current dbUpdate
+  private final String[] _values;
+  private final boolean[] _isKey;
+  private final boolean[] _isNull;
+  private final boolean[] _isSet;
+
+  private final ByteArrayOutputStream _out = new ByteArrayOutputStream(1024);
+  private final BinaryEncoder _encoder = new BinaryEncoder(_out);
+
+  public AvroConversionPlan(Schema schema,
+                            boolean errorOnMissingFields,
+                            ReplicationBitSetterStaticConfig replicationBitConfig,
+                            Pattern replicationValuePattern)
+      throws DatabusException
+  {
+    _schema = schema;
+    _errorOnMissingFields = errorOnMissingFields;
+    _replicationBitConfig = replicationBitConfig;
+    _replicationValuePattern = replicationValuePattern;
+
+    String pkFieldName = SchemaHelper.getMetaField(schema, "pk");
+    if(pkFieldName == null)
+      throw new DatabusException("No primary key specified in the schema");
+    _pk = new PrimaryKey(pkFieldName);
+
+    List<Schema.Field> fields = schema.getFields();
+    _fields = new FieldConverter[fields.size()];
+    _columnSlots = new HashMap<String, Integer>(fields.size() * 2);
+    for (int i = 0; i < _fields.length; ++i)
+    {
+      Schema.Field field = fields.get(i);
+      if(field.schema().getType() == Schema.Type.ARRAY)
+      {
+        throw new DatabusException("The gg parser cannot handle ARRAY datatypes. Found in field: "+ field);
+      }
+
+      String databaseFieldName = SchemaHelper.getMetaField(field, "dbFieldName");
+      int columnSlot = -1;
+      if (null != databaseFieldName)
+      {
+        Integer slot = _columnSlots.get(databaseFieldName);
+        if (null == slot)
+        {
+          slot = _columnSlots.size();
+          _columnSlots.put(databaseFieldName, slot);
+        }
+        columnSlot = slot;
+      }
+      _fields[i] = new FieldConverter(field, databaseFieldName, columnSlot);
+    }
+
+    int numColumns = _columnSlots.size();
+    _values = new String[numColumns];
+    _isKey = new boolean[numColumns];
+    _isNull = new boolean[numColumns];
+    _isSet = new boolean[numColumns];
+  }
+
+  public Schema getSchema()
+  {
+    return _schema;
+  }
+
+  /**
+   * Clears the columns of the previous dbUpdate
+   */
+  public void startRow()
+  {
+    Arrays.fill(_values, null);
+    Arrays.fill(_isSet, false);
+  }
+
+  /**
+   * Stores the value of a column of the current dbUpdate. Columns which are not in the schema are
+   * ignored.
+   * @return true if the column is in the schema
+   */
+  public boolean setColumn(String columnName, String value, boolean isKey, boolean isNull)
+  {
+    Integer slot = _columnSlots.get(columnName);
+    if (null == slot)
+    {
+      return false;
+    }
+    _values[slot] = value;
+    _isKey[slot] = isKey;
+    _isNull[slot] = isNull;
+    _isSet[slot] = true;
+    return true;
+  }
+
+  /**
+   * Converts the columns of the current dbUpdate. The key pairs, the replication flag and the
+   * missing fields flag of the columns state are updated as the fields are processed.
+   * @param  columnsState  the state of the columns of the current dbUpdate
+   * @param  currentTable  the table of the current dbUpdate (for logging only)
+   * @return the Avro binary serialization of the record
+   */
+  public byte[] convert(ColumnsState columnsState, String currentTable)
+      throws DatabusException
+  {
+    _out.reset();
+    try
+    {
+      for (FieldConverter f: _fields)
+      {
+        String fieldValue = null;
+        boolean isNull = true;
+        boolean isKey = false;
+        if (0 <= f._columnSlot && _isSet[f._columnSlot])
+        {
+          fieldValue = _values[f._columnSlot];
+          isNull = _isNull[f._columnSlot];
+          isKey = _isKey[f._columnSlot];
+        }
+        else
+        {
+          //Check if it's ok for this field to be missing
+          onMissingField(columnsState, f, currentTable);
+        }
+
+        Object fieldValueObj = null;
+        if (!isNull)
+        {
+          try
+          {
+            fieldValueObj = f.parse(fieldValue);
+          }
+          catch(DatabusException e)
+          {
+            LOG.error("Unable to process field: " + f._field.name());
+            throw e;
+          }
+        }
+        f.write(fieldValueObj, _encoder);
+
+        if (isKey)
+        {
+          if (!f._isPartOfPrimaryKey)
+            throw new DatabusException("The primary key is not as expected. Expected: " + _pk.getPKey() + " found from xml: " + f._field.name());
+          if(fieldValueObj == null)
+            throw new DatabusException("Unable to find the value of the object");
+          columnsState.getKeyPairs().add(new ColumnsState.KeyPair(fieldValueObj, f._keyType));
+        }
+
+        //Set the replication flag if this is a replicated event
+        if (f._isReplicationField)
+        {
+          columnsState.setReplicated(StateMachineHelper.verifyReplicationStatus(_replicationValuePattern, fieldValue,
+                                                                                _replicationBitConfig.getMissingValueBehavior()));
+        }
+      }
+      _encoder.flush();
+    }
+    catch (IOException e)
+    {
+      throw new DatabusException("Unable to serialize the record for table " + currentTable, e);
+    }
+
+    return _out.toByteArray();
+  }
+
+  /**
+   * Checks if the given field can be missing.
+   * 1. Primary keys cannot be missing
+   * 2. Replication fields cannot be missing if the missing value behavior is STOP_WITH_ERROR
+   * 3. Other fields can be missing (and are treated as null) only if errorOnMissingFields is false
+   */
+  private void onMissingField(ColumnsState columnsState, FieldConverter f, String currentTable)
+      throws DatabusException
+  {
+    LOG.error("Missing field "+ f._databaseFieldName + " in event from the xml trail for table " + currentTable);
+    if(_errorOnMissingFields)
+      throw new DatabusException("Unable to find a required field " + f._databaseFieldName + " in the xml trail file");
+
+    //We cannot tolerate empty primary key fields, so we'll throw exception if key is null
+    if (f._isPartOfPrimaryKey)
+      throw new DatabusException("Skip errors on missing DB Fields is true, but cannot proceed because primary key not found: " + f._field.name());
+
+    //We also need the replication field, it's not optional if MissingValueBehavior == STOP_WITH_ERROR
+    if(f._isReplicationField && _replicationBitConfig.getMissingValueBehavior() == MissingValueBehavior.STOP_WITH_ERROR)
+    {
+      throw new DatabusException("Skip errors on missing DB Fields is true, but the replication field is missing, this is mandatory, cannot proceed with  " + f._field.name()+ " field missing");
+    }
+
+    columnsState.setSeenMissingFields(true);
+  }
+
+  /** Returns the index of the first branch of the given type if the schema is a union; -1 otherwise */
+  private static int getUnionBranch(Schema schema, Schema.Type type)
+  {
+    if (schema.getType() != Schema.Type.UNION)
+    {
+      return -1;
+    }
+    List<Schema> branches = schema.getTypes();
+    for (int i = 0; i < branches.size(); ++i)
+    {
+      if (branches.get(i).getType() == type)
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses the trail text of a column and writes it to its Avro field. The conversion is chosen
+   * when the plan is compiled; fields whose values cannot be converted only fail when they have a
+   * non-null value, as {@link GGEventGenerationFactory#stringToAvroType(String, Schema.Field)} does.
+   */
+  private class FieldConverter
+  {
+    private final Schema.Field _field;
+    private final String _databaseFieldName;
+    private final String _databaseFieldType;
+    private final int _columnSlot;
+    private final boolean _isPartOfPrimaryKey;
+    private final boolean _isReplicationField;
+    private final Schema.Type _keyType;
+    private final boolean _nullable;
+    private final int _nullBranch;
+    private final ValueType _valueType;
+    private final int _valueBranch;
+    /** Set if the values of the field cannot be converted */
+    private final String _conversionError;
+
+    public FieldConverter(Schema.Field field, String databaseFieldName, int columnSlot)
+    {
+      _field = field;
+      _databaseFieldName = databaseFieldName;
+      _databaseFieldType = SchemaHelper.getMetaField(field, "dbFieldType");
+      _columnSlot = columnSlot;
+      _isPartOfPrimaryKey = _pk.isPartOfPrimaryKey(field);
+      _isReplicationField = null != databaseFieldName &&
+          _replicationBitConfig.getSourceType() == ReplicationBitSetterStaticConfig.SourceType.COLUMN &&
+          databaseFieldName.equalsIgnoreCase(_replicationBitConfig.getFieldName());
+      _keyType = SchemaHelper.unwindUnionSchema(field).getType();
+      _nullable = SchemaHelper.isNullable(field);
+      _nullBranch = getUnionBranch(field.schema(), Schema.Type.NULL);
+
+      ValueType valueType = null;
+      String conversionError = null;
+      switch (_keyType)
+      {
+        case BOOLEAN:
+        case BYTES:
+        case DOUBLE:
+        case FLOAT:
+        case INT:
+        case LONG:
+        case STRING:
+        case NULL:
+          if (null == _databaseFieldType)
+          {
+            conversionError = "missing dbFieldType for field: " + field.name();
+          }
+          else
+          {
+            valueType = getValueType(_databaseFieldType);
+            if (null == valueType)
+            {
+              if (_databaseFieldType.equalsIgnoreCase("ARRAY"))
+                conversionError = "ARRAY type still not implemented!";
+              else if (_databaseFieldType.equalsIgnoreCase("TABLE"))
+                conversionError = "TABLE type still not implemented!";
+              else
+                conversionError = "unknown field type: " + field.name() + ":" + _databaseFieldType;
+            }
+          }
+          break;
+        case RECORD:
+        case ARRAY:
+          conversionError = "Handling of Avro '" + _keyType + "' field type not yet implemented!";
+          break;
+        default:
+          conversionError = "unknown field type: " + field.name() + ":" + _keyType;
+      }
+
+      int valueBranch = -1;
+      if (null != valueType)
+      {
+        if (field.schema().getType() == Schema.Type.UNION)
+        {
+          valueBranch = getUnionBranch(field.schema(), valueType._avroType);
+          if (0 > valueBranch)
+            conversionError = "field " + field.name() + " has no " + valueType._avroType + " type for " +
+                              _databaseFieldType + " values: " + field.schema();
+        }
+        else if (field.schema().getType() != valueType._avroType)
+        {
+          conversionError = "field " + field.name() + " of type " + field.schema().getType() +
+                            " cannot hold " + _databaseFieldType + " values";
+        }
+      }
+      _valueType = valueType;
+      _valueBranch = valueBranch;
+      _conversionError = conversionError;
+    }
+
+    private ValueType getValueType(String databaseFieldType)
+    {
+      if (databaseFieldType.equalsIgnoreCase("INTEGER")) return ValueType.INT;
+      if (databaseFieldType.equalsIgnoreCase("LONG")) return ValueType.LONG;
+      if (databaseFieldType.equalsIgnoreCase("DATE")) return ValueType.DATE;
+      if (databaseFieldType.equalsIgnoreCase("TIMESTAMP")) return ValueType.TIMESTAMP;
+      if (databaseFieldType.equalsIgnoreCase("FLOAT")) return ValueType.FLOAT;
+      if (databaseFieldType.equalsIgnoreCase("DOUBLE")) return ValueType.DOUBLE;
+      if (databaseFieldType.equalsIgnoreCase("CLOB") ||
+          databaseFieldType.equalsIgnoreCase("VARCHAR") ||
+          databaseFieldType.equalsIgnoreCase("VARCHAR2") ||
+          databaseFieldType.equalsIgnoreCase("NVARCHAR") ||
+          databaseFieldType.equalsIgnoreCase("NVARCHAR2") ||
+          databaseFieldType.equalsIgnoreCase("XMLTYPE") ||
+          databaseFieldType.equalsIgnoreCase("CHAR")) return ValueType.STRING;
+      if (databaseFieldType.equalsIgnoreCase("BLOB") || databaseFieldType.equalsIgnoreCase("RAW"))
+        return ValueType.BYTES;
+      return null;
+    }
+
+    /** Parses the trail text of a non-null column */
+    public Object parse(String fieldValue) throws DatabusException
+    {
+      if (null != _conversionError)
+      {
+        throw new DatabusException(_conversionError);
+      }
+
+      switch (_valueType)
+      {
+        case INT: return Integer.valueOf(fieldValue);
+        case LONG: return Long.valueOf(fieldValue);
+        case DATE: return GGEventGenerationFactory.ggDateStringToLong(fieldValue);
+        case TIMESTAMP: return GGEventGenerationFactory.ggTimeStampStringToMilliSeconds(fieldValue);
+        case FLOAT: return Float.valueOf(fieldValue);
+        case DOUBLE: return Double.valueOf(fieldValue);
+        case BYTES:
+          return GGEventGenerationFactory.ggBinaryStringToBytes(fieldValue, _databaseFieldType, _field.name());
+        default: return fieldValue;
+      }
+    }
+
+    /** Writes a parsed value (possibly null) to the encoder */
+    public void write(Object value, BinaryEncoder encoder) throws DatabusException, IOException
+    {
+      if (null == value)
+      {
+        if (!_nullable)
+          throw new DatabusException("Null value not allowed for field " + _field.name());
+        if (0 <= _nullBranch)
+          encoder.writeIndex(_nullBranch);
+        else
+          encoder.writeNull();
+        return;
+      }
+
+      if (0 <= _valueBranch)
+      {
+        encoder.writeIndex(_valueBranch);
+      }
+      switch (_valueType._avroType)
+      {
+        case INT: encoder.writeInt((Integer)value); break;
+        case LONG: encoder.writeLong((Long)value); break;
+        case FLOAT: encoder.writeFloat((Float)value); break;
+        case DOUBLE: encoder.writeDouble((Double)value); break;
+        case BYTES: encoder.writeBytes((byte[])value); break;
+        default: encoder.writeString((String)value);
+      }
+    }
+  }
+}
@@ -21,7 +21,6 @@ package com.linkedin.databus2.ggParser.XmlStateMachine;
 */
 
 import com.linkedin.databus2.core.DatabusException;
-import java.util.HashMap;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import org.apache.log4j.Logger;
@@ -35,23 +34,12 @@ public class ColumnState extends AbstractStateTransitionProcessor
   public static final String FIELDNAMEATTR = "name";
   public static final String KEYNAMEATTR = "key";
   public static final String STATUSATTR = "status";
-  private HashMap<String, EventField> eventFields;
 
   public ColumnState()
   {
     super(STATETYPE.STARTELEMENT, COLUMNSTATE);
   }
 
-  public HashMap<String, EventField> getEventFields()
-  {
-    return eventFields;
-  }
-
-  public void setEventFields(HashMap<String, EventField> eventFields)
-  {
-    this.eventFields = eventFields;
-  }
-
   @Override
   public void onEndElement(StateMachine stateMachine, XMLStreamReader xmlStreamReader)
       throws Exception
@@ -103,7 +91,7 @@ public class ColumnState extends AbstractStateTransitionProcessor
     }
 
     String currentFieldValue = xmlStreamReader.getElementText();
-    getEventFields().put(currentField,new EventField(isKey,currentFieldValue, isNull));
+    stateMachine.columnsState.getConversionPlan().setColumn(currentField, currentFieldValue, isKey, isNull);
     if(LOG.isDebugEnabled())
       LOG.debug("Processed the field " + currentField + " with value " + currentFieldValue + " and isNull: " + isNull);
 
@@ -114,35 +102,5 @@ public class ColumnState extends AbstractStateTransitionProcessor
   @Override
   public void cleanUpState(StateMachine stateMachine, XMLStreamReader xmlStreamReader)
   {
-    setEventFields(null);
-  }
-
-
-  public static class EventField
-  {
-    public EventField(boolean key, String val, boolean isNull) {
-      isKey = key;
-      this.val = val;
-      this.isNull = isNull;
-    }
-
-    boolean isKey;
-    String val;
-
-
-    boolean isNull;
-
-    public String getVal() {
-      return val;
-    }
-
-    public boolean isKey() {
-      return isKey;
-    }
-
-    public boolean isNull()
-    {
-      return isNull;
-    }
   }
 }
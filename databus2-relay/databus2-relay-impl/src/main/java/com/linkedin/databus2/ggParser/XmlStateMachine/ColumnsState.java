@@ -20,33 +20,30 @@ package com.linkedin.databus2.ggParser.XmlStateMachine;
  */
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.regex.Pattern;
+import java.util.IdentityHashMap;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericRecord;
 import org.apache.log4j.Logger;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import com.linkedin.databus2.core.DatabusException;
-import com.linkedin.databus2.producers.gg.GGEventGenerationFactory;
-import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig;
-import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig.MissingValueBehavior;
-import com.linkedin.databus2.schemas.utils.SchemaHelper;
 
 
 public class ColumnsState extends AbstractStateTransitionProcessor
 {
   public final static String MODULE = ColumnsState.class.getName();
   public final static Logger LOG = Logger.getLogger(MODULE);
+  /** Max number of schemas whose conversion plans are kept */
+  public final static int MAX_CONVERSION_PLANS = 64;
   private Schema _currentSchema;
-  private GenericRecord _genericRecord;
+  /** The Avro serialization of the columns of the current dbUpdate */
+  private byte[] _serializedRecord;
+  /** The conversion plans of the schemas seen by the parser (schema objects come from the registry) */
+  private final IdentityHashMap<Schema, AvroConversionPlan> _conversionPlans =
+      new IdentityHashMap<Schema, AvroConversionPlan>();
+  private AvroConversionPlan _conversionPlan;
   private ArrayList<KeyPair> _keyPairs;
   private final boolean _errorOnMissingFields;
   private boolean _isReplicated;
@@ -72,14 +69,22 @@ public class ColumnsState extends AbstractStateTransitionProcessor
   }
 
 
-  public GenericRecord getGenericRecord()
+  public byte[] getSerializedRecord()
   {
-    return _genericRecord;
+    return _serializedRecord;
   }
 
-  public void setGenericRecord(GenericRecord genericRecord)
+  public void setSerializedRecord(byte[] serializedRecord)
   {
-    _genericRecord = genericRecord;
+    _serializedRecord = serializedRecord;
+  }
+
+  /**
+   * @return the conversion plan of the current schema; set when the columns section starts
+   */
+  public AvroConversionPlan getConversionPlan()
+  {
+    return _conversionPlan;
   }
 
   public Schema getCurrentSchema()
@@ -108,7 +113,8 @@ public class ColumnsState extends AbstractStateTransitionProcessor
   {
     setKeyPairs(null);
     setCurrentSchema(null);
-    setGenericRecord(null);
+    setSerializedRecord(null);
+    _conversionPlan = null;
     setReplicated(false);
     setSeenMissingFields(false);
   }
@@ -118,7 +124,7 @@ public class ColumnsState extends AbstractStateTransitionProcessor
       throws Exception
   {
     _currentStateType = STATETYPE.ENDELEMENT;
-    _genericRecord = generateAvroRecord(stateMachine.columnState.getEventFields(), stateMachine.getReplicationBitConfig(),stateMachine.getReplicationValuePattern());
+    _serializedRecord = _conversionPlan.convert(this, _currentTable);
     stateMachine.columnState.cleanUpState(stateMachine, xmlStreamReader);
     xmlStreamReader.nextTag();
     setNextStateProcessor(stateMachine, xmlStreamReader);
@@ -131,181 +137,34 @@ public class ColumnsState extends AbstractStateTransitionProcessor
 
     _currentStateType = STATETYPE.STARTELEMENT;
     _currentTable = stateMachine.dbUpdateState.getCurrentTable(); // for info purposes
-    stateMachine.columnState.setEventFields(new HashMap<String, ColumnState.EventField>());
+    _conversionPlan = getConversionPlan(stateMachine);
+    _conversionPlan.startRow();
     xmlStreamReader.nextTag();
     setNextStateProcessor(stateMachine,xmlStreamReader);
   }
 
   /**
-   * Convert the eventFields read from the xml to an avro record
-   * @param eventFields hashmap <database field, value>
-   * @return
-   */
-  private GenericRecord generateAvroRecord(HashMap<String,ColumnState.EventField> eventFields, ReplicationBitSetterStaticConfig replicationBitConfig, Pattern replicationValuePattern)
-      throws Exception
-  {
-    GenericRecord record = new GenericData.Record(getCurrentSchema());
-    List<Schema.Field> fields = getCurrentSchema().getFields();
-    String pkFieldName = SchemaHelper.getMetaField(getCurrentSchema(), "pk");
-    if(pkFieldName == null)
-      throw new DatabusException("No primary key specified in the schema");
-    PrimaryKey pk = new PrimaryKey(pkFieldName);
-    for(Schema.Field field : fields)
-    {
-      if(field.schema().getType() == Schema.Type.ARRAY)
-      {
-        throw new DatabusException("The gg parser cannot handle ARRAY datatypes. Found in field: "+ field);
-      }
-      else
-      {
-        //The current database field being processed (field is avro field name  and databaseFieldName is oracle field name (one to one mapping)
-        String databaseFieldName = SchemaHelper.getMetaField(field, "dbFieldName");
-        //Check if it's ok for this field to be null
-        checkNullSafety(eventFields, pk, field, databaseFieldName, replicationBitConfig);
-        //Insert the field into the generic record
-        String fieldValue = insertFieldIntoRecord(eventFields, record, pkFieldName, pk, field, databaseFieldName);
-        //Set the replication flag if this is a replicated event
-        if(replicationBitConfig.getSourceType() == ReplicationBitSetterStaticConfig.SourceType.COLUMN &&
-            isReplicationField(
-            databaseFieldName,
-            replicationBitConfig))
-        {
-          setReplicated(StateMachineHelper.verifyReplicationStatus(replicationValuePattern, fieldValue, replicationBitConfig.getMissingValueBehavior()));
-        }
-      }
-    }
-
-    //prettyPrint(record);     //TODO remove this -> only for debugging
-    return record;
-  }
-
-  /**
-   * The method takes the given field(avro+oracle name), fetches the value from the eventFields map and inserts it into the record.
-   * In addition the function also constructs the primary keys for the given record
-   * @param eventFields Map containing dbFieldName => fieldValue
-   * @param record The record to insert the field value into
-   * @param pkFieldName The name of primaryKey field (comma seperated list)
-   * @param pk The primary key object stored as an class object
-   * @param field The current field being processed(Avro)
-   * @param databaseFieldName Field being processed(oracle name)
-   * @return
-   * @throws Exception
+   * Returns the conversion plan of the current schema, compiling it the first time the schema is
+   * seen. The plans are dropped if too many schemas have been seen, e.g. after schema reloads.
    */
-  private String insertFieldIntoRecord(HashMap<String, ColumnState.EventField> eventFields,
-                                       GenericRecord record,
-                                       String pkFieldName,
-                                       PrimaryKey pk,
-                                       Schema.Field field,
-                                       String databaseFieldName)
+  private AvroConversionPlan getConversionPlan(StateMachine stateMachine)
       throws DatabusException
   {
-    String fieldValue = eventFields.get(databaseFieldName).getVal();
-    boolean isFieldNull = eventFields.get(databaseFieldName).isNull();
-    Object fieldValueObj = null;
-    try{
-
-      if(!isFieldNull)
-        fieldValueObj =  GGEventGenerationFactory.stringToAvroType(fieldValue, field);
-      else
-        fieldValueObj = null;
-
-      record.put(field.name(), fieldValueObj);
-    }
-    catch(DatabusException e)
+    AvroConversionPlan plan = _conversionPlans.get(getCurrentSchema());
+    if (null == plan)
     {
-      LOG.error("Unable to process field: " + field.name());
-      throw e;
-    }
-
-    constructPkeys(eventFields, pkFieldName, pk, field, databaseFieldName, fieldValueObj);
-    return fieldValue;
-  }
-
-  /**
-   * Constructs the primary key pair and stores it in the current state
-   * @param eventFields Map containing dbFieldName => fieldValue
-   * @param pkFieldName The name of primaryKey field (comma seperated list). e.g., if the schema has pk=id, member_id. Then, pkFieldName is id, member_id.
-   *                    This is used only for logging purpose
-   * @param pk The primary key object stored as an class object
-   * @param field The current field being processed(Avro)
-   * @param databaseFieldName Field being processed(oracle name)
-   * @param fieldValueObj Value of the current field being processed
-   * @throws DatabusException
-   */
-  private void constructPkeys(HashMap<String, ColumnState.EventField> eventFields,
-                              String pkFieldName,
-                              PrimaryKey pk,
-                              Schema.Field field,
-                              String databaseFieldName,
-                              Object fieldValueObj)
-      throws DatabusException
-  {
-    if(eventFields.get(databaseFieldName).isKey())
-    {
-      if (!pk.isPartOfPrimaryKey(field))
-        throw new DatabusException("The primary key is not as expected. Expected: " + pkFieldName + " found from xml: " + field.name());
-      if(fieldValueObj == null)
-        throw new DatabusException("Unable to find the value of the object");
-      Schema.Type pkFieldType = SchemaHelper.unwindUnionSchema(field).getType();
-      KeyPair pair = new KeyPair(fieldValueObj, pkFieldType);
-      _keyPairs.add(pair);
-    }
-  }
-
-  /**
-   * Checks if the given field can be null.
-   * 1. Primary keys cannot be null
-   * 2. Replication fields cannot be null
-   * 3. If the errorOnMissing field config is null, then this method will throw an exception
-   * @param eventFields Map containing dbFieldName => fieldValue
-   * @param pk The primary key object stored as an class object
-   * @param field The current field being processed(Avro)
-   * @param databaseFieldName Field being processed(oracle name)
-   * @throws DatabusException
-   */
-  private void checkNullSafety(HashMap<String, ColumnState.EventField> eventFields,
-                               PrimaryKey pk,
-                               Schema.Field field,
-                               String databaseFieldName,
-                               ReplicationBitSetterStaticConfig replicationBitConfig)
-      throws DatabusException
-  {
-    if(eventFields.get(databaseFieldName)  == null)
-    {
-      LOG.error("Missing field "+ databaseFieldName + " in event from the xml trail for table " + _currentTable);
-      if(!_errorOnMissingFields)   //Are we ok to accept null fields ?
+      if (_conversionPlans.size() >= MAX_CONVERSION_PLANS)
       {
-        //We cannot tolerate empty primary key fields, so we'll throw exception if key is null
-        if (pk.isPartOfPrimaryKey(field))
-          throw new DatabusException("Skip errors on missing DB Fields is true, but cannot proceed because primary key not found: " + field.name());
-
-        //We also need the replication field, it's not optional if MissingValueBehavior == STOP_WITH_ERROR
-        if(replicationBitConfig.getSourceType() == ReplicationBitSetterStaticConfig.SourceType.COLUMN
-            && isReplicationField(databaseFieldName, replicationBitConfig)
-            && replicationBitConfig.getMissingValueBehavior() == MissingValueBehavior.STOP_WITH_ERROR)
-        {
-          throw new DatabusException("Skip errors on missing DB Fields is true, but the replication field is missing, this is mandatory, cannot proceed with  " + field.name()+ " field missing");
-        }
-
-        setSeenMissingFields(true);
-        //If not primary key, we create fake hash entry with a null eventfield entry
-        ColumnState.EventField emptyEventField = new ColumnState.EventField(false, null, true);
-        eventFields.put(databaseFieldName, emptyEventField);
+        _conversionPlans.clear();
       }
-      else
-        throw new DatabusException("Unable to find a required field " + databaseFieldName + " in the xml trail file");
+      plan = new AvroConversionPlan(getCurrentSchema(), _errorOnMissingFields,
+                                    stateMachine.getReplicationBitConfig(),
+                                    stateMachine.getReplicationValuePattern());
+      _conversionPlans.put(getCurrentSchema(), plan);
+      if (LOG.isDebugEnabled())
+        LOG.debug("Compiled the conversion plan for table " + _currentTable);
     }
-  }
-
-  /**
-   * The method verifies if the the dataBaseFieldName is the field used for replication identification
-   * @param databaseFieldName
-   * @param replicationBitConfig
-   * @return
-   */
-  private boolean isReplicationField(String databaseFieldName, ReplicationBitSetterStaticConfig replicationBitConfig)
-  {
-    return databaseFieldName.equalsIgnoreCase(replicationBitConfig.getFieldName());
+    return plan;
   }
 
   public boolean isReplicated()
@@ -318,15 +177,6 @@ public class ColumnsState extends AbstractStateTransitionProcessor
     _isReplicated = replicated;
   }
 
-  private void prettyPrint(GenericRecord record)
-  {
-    try {
-      LOG.info(new JSONObject(record.toString()).toString(2));
-    } catch (JSONException e) {
-      LOG.error("Unable to parser json: The Json created by the generator is not valid!", e);
-    }
-  }
-
   public static class KeyPair{
     private final Object _key;
     private final Schema.Type _keyType;
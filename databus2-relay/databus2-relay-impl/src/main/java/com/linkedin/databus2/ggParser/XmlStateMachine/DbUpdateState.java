@@ -1,4 +1,6 @@
 package com.linkedin.databus2.ggParser.XmlStateMachine;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -7,9 +9,15 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
 import org.apache.log4j.Logger;
 
+import com.linkedin.databus.core.DatabusRuntimeException;
 import com.linkedin.databus2.core.DatabusException;
 import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig;
 
@@ -113,7 +121,7 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
     _currentStateType = STATETYPE.ENDELEMENT;
 
     //TODO construct a data structure that will hold key, csn and the avro
-    GenericRecord record = stateMachine.columnsState.getGenericRecord();
+    byte[] record = stateMachine.columnsState.getSerializedRecord();
     long scn = stateMachine.tokensState.getScn();
 
     if(_scn < scn)
@@ -157,7 +165,7 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
 
     DBUpdateImage eventImage = new DBUpdateImage(stateMachine.columnsState.getKeyPairs(),
                                                  stateMachine.tokensState.getScn(),
-                                                 stateMachine.columnsState.getGenericRecord(),
+                                                 record,
                                                  stateMachine.columnsState.getCurrentSchema(),
                                                  _opType,
                                                  isReplicated);
@@ -326,7 +334,9 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
 
     private final ArrayList<ColumnsState.KeyPair> _keyPairs;
     private final long _scn;
-    private final GenericRecord _genericRecord;
+    /** The record; decoded from the serialized record on first access if the image has one */
+    private GenericRecord _genericRecord;
+    private final byte[] _serializedRecord;
     private final Schema _schema;
     private final OpType _opType;
     private boolean _isReplicated;
@@ -348,9 +358,43 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
 
     public GenericRecord getGenericRecord()
     {
+      if (null == _genericRecord && null != _serializedRecord)
+      {
+        try
+        {
+          Decoder decoder = DecoderFactory.defaultFactory().createBinaryDecoder(_serializedRecord, null);
+          _genericRecord = new StringDatumReader(_schema).read(null, decoder);
+        }
+        catch (IOException e)
+        {
+          throw new DatabusRuntimeException("Unable to decode the record of the dbUpdate with scn " + _scn, e);
+        }
+      }
       return _genericRecord;
     }
 
+    /**
+     * @return the Avro binary serialization of the record or null if the image has no record
+     */
+    public byte[] getSerializedRecord() throws IOException
+    {
+      if (null != _serializedRecord)
+      {
+        return _serializedRecord;
+      }
+      if (null == _genericRecord)
+      {
+        return null;
+      }
+
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      BinaryEncoder encoder = new BinaryEncoder(bos);
+      GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<GenericRecord>(_genericRecord.getSchema());
+      writer.write(_genericRecord, encoder);
+      encoder.flush();
+      return bos.toByteArray();
+    }
+
     public Schema getSchema()
     {
       return _schema;
@@ -369,6 +413,32 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
                          OpType opType,
                          boolean isReplicatedFlag)
         throws DatabusException
+    {
+      this(keyPairs, scn, genericRecord, null, schema, opType, isReplicatedFlag);
+    }
+
+    /**
+     * Creates an image from the Avro binary serialization of its record as produced by the parser
+     */
+    public DBUpdateImage(ArrayList<ColumnsState.KeyPair> keyPairs,
+                         long scn,
+                         byte[] serializedRecord,
+                         Schema schema,
+                         OpType opType,
+                         boolean isReplicatedFlag)
+        throws DatabusException
+    {
+      this(keyPairs, scn, null, serializedRecord, schema, opType, isReplicatedFlag);
+    }
+
+    private DBUpdateImage(ArrayList<ColumnsState.KeyPair> keyPairs,
+                          long scn,
+                          GenericRecord genericRecord,
+                          byte[] serializedRecord,
+                          Schema schema,
+                          OpType opType,
+                          boolean isReplicatedFlag)
+        throws DatabusException
     {
       if(keyPairs.size() == 0)
         throw new DatabusException("Unable to construct DBUpdateImage because no keys were found");
@@ -378,6 +448,7 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
       _keyPairs = keyPairs;
       _scn = scn;
       _genericRecord = genericRecord;
+      _serializedRecord = serializedRecord;
       _schema = schema;
       _opType = opType;
       _isReplicated = isReplicatedFlag;
@@ -405,4 +476,22 @@ public class DbUpdateState extends AbstractStateTransitionProcessor
       return result;
     }
   }
+
+  /**
+   * Reads the strings of the records as java Strings, as the parser has always put them in the
+   * records it creates
+   */
+  private static class StringDatumReader extends GenericDatumReader<GenericRecord>
+  {
+    public StringDatumReader(Schema schema)
+    {
+      super(schema);
+    }
+
+    @Override
+    protected Object readString(Object old, Decoder in) throws IOException
+    {
+      return in.readString(null).toString();
+    }
+  }
 }
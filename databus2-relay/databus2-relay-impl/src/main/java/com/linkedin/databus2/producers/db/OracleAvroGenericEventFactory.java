@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.sql.Array;
@@ -28,11 +29,14 @@ import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLXML;
 import java.sql.Struct;
 import java.sql.Timestamp;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.apache.avro.Schema;
@@ -100,6 +104,23 @@ implements EventFactory
 
   private final Pattern _replBitSetterPattern;
 
+  /** Max number of distinct ResultSet column sets with a compiled mapping */
+  private static final int MAX_ROW_MAPPING_PLANS = 16;
+
+  /** Compiled row mappings by ResultSet column signature */
+  private final Map<String, RowMappingPlan> _rowMappingPlans = new HashMap<String, RowMappingPlan>();
+
+  /** The mapping for the ResultSet the last row was read from */
+  private RowMappingPlan _rowMappingPlan;
+  private WeakReference<ResultSet> _rowMappingPlanResultSet = new WeakReference<ResultSet>(null);
+
+  /** Reusable buffer and encoder for the serialized rows */
+  private final ByteArrayOutputStream _rowBuffer = new ByteArrayOutputStream(1024);
+  private final BinaryEncoder _rowEncoder = new BinaryEncoder(_rowBuffer);
+
+  /** oracle.sql time types used to convert LONG fields; loaded once */
+  private static volatile OracleTimeTypes _oracleTimeTypes;
+
   public static final String MODULE = OracleAvroGenericEventFactory.class.getName();
   public static final Logger LOG = Logger.getLogger(MODULE);
 
@@ -206,12 +227,75 @@ implements EventFactory
                                    DbusEventsStatisticsCollector dbusEventsStatisticsCollector)
   throws SQLException, EventCreationException, UnsupportedKeyException
   {
-    // Serialize the row into an Avro GenericRecord
-    GenericRecord record = buildGenericRecord(row);
+    if (!isRowMappingPlanEnabled() || _log.isTraceEnabled())
+    {
+      // Serialize the row into an Avro GenericRecord
+      GenericRecord record = buildGenericRecord(row);
+      boolean isReplicated = isReplicatedEvent(row);
+
+      return createAndAppendEvent(scn, timestamp, record, row, eventBuffer, enableTracing,
+                                  isReplicated, dbusEventsStatisticsCollector);
+    }
+
+    // Serialize the row directly to Avro binary
+    RowMappingPlan plan = getRowMappingPlan(row);
+    byte[] serializedValue = plan.serializeRow(row);
     boolean isReplicated = isReplicatedEvent(row);
 
-    return createAndAppendEvent(scn, timestamp, record, row, eventBuffer, enableTracing,
-                                isReplicated, dbusEventsStatisticsCollector);
+    DbusEventKey eventKey = new DbusEventKey(plan.getKeyValue());
+    short lPartitionId = _partitionFunction.getPartition(eventKey);
+    eventBuffer.appendEvent(eventKey, _pSourceId, lPartitionId, timestamp * 1000000, _sourceId,
+                            _schemaId, serializedValue, enableTracing, isReplicated, dbusEventsStatisticsCollector);
+    return serializedValue.length;
+  }
+
+  /**
+   * Whether rows are serialized through a {@link RowMappingPlan} instead of a GenericRecord.
+   * Subclasses which need the GenericRecord of each row in
+   * {@link #createAndAppendEvent(long, long, GenericRecord, ResultSet, DbusEventBufferAppendable, boolean, boolean, DbusEventsStatisticsCollector)}
+   * should return false.
+   */
+  protected boolean isRowMappingPlanEnabled()
+  {
+    return true;
+  }
+
+  /**
+   * Returns the mapping plan for the columns of the given ResultSet. Plans are compiled once per
+   * distinct set of columns and looked up once per ResultSet.
+   */
+  RowMappingPlan getRowMappingPlan(ResultSet rs) throws SQLException, EventCreationException
+  {
+    if (null != _rowMappingPlan && _rowMappingPlanResultSet.get() == rs)
+    {
+      return _rowMappingPlan;
+    }
+
+    ResultSetMetaData rsMeta = rs.getMetaData();
+    int columnCount = rsMeta.getColumnCount();
+    StringBuilder signature = new StringBuilder();
+    Map<String, Integer> columnIndexes = new HashMap<String, Integer>(columnCount * 2);
+    for (int i = 1; i <= columnCount; ++i)
+    {
+      String columnName = rsMeta.getColumnLabel(i).toUpperCase();
+      signature.append(columnName).append(',');
+      // same as ResultSet.getObject(String): the first matching column wins
+      if (!columnIndexes.containsKey(columnName)) columnIndexes.put(columnName, i);
+    }
+
+    String key = signature.toString();
+    RowMappingPlan plan = _rowMappingPlans.get(key);
+    if (null == plan)
+    {
+      plan = new RowMappingPlan(columnIndexes);
+      if (_rowMappingPlans.size() >= MAX_ROW_MAPPING_PLANS) _rowMappingPlans.clear();
+      _rowMappingPlans.put(key, plan);
+      _log.info(_eventSchema.getFullName() + ": compiled row mapping for columns: " + key);
+    }
+
+    _rowMappingPlan = plan;
+    _rowMappingPlanResultSet = new WeakReference<ResultSet>(rs);
+    return plan;
   }
 
   /**
@@ -545,82 +629,62 @@ implements EventFactory
                               Type avroFieldType,
                               Object databaseFieldValue)
   throws EventCreationException
+  {
+    record.put(schemaFieldName, toSimpleAvroValue(schemaFieldName, avroFieldType, databaseFieldValue));
+  }
+
+  /**
+   * Converts the value of a simple-type DB field to its Avro representation
+   * @param  schemaFieldName        the name of the Avro field
+   * @param  avroFieldType          the type of the Avro field
+   * @param  databaseFieldValue     the JDBC field value from the ResultSet (cannot be null)
+   * @return the Avro value
+   * @throws EventCreationException if the conversion from JDBC type to Avro type failed
+   */
+  private static Object toSimpleAvroValue(String schemaFieldName,
+                                          Type avroFieldType,
+                                          Object databaseFieldValue)
+  throws EventCreationException
   {
     assert null != databaseFieldValue;
 
     switch(avroFieldType)
     {
       case BOOLEAN:
-        record.put(schemaFieldName, ((Boolean)databaseFieldValue).booleanValue());
-        break;
+        return ((Boolean)databaseFieldValue).booleanValue();
       case BYTES:
         if (databaseFieldValue instanceof byte[])
         {
-          record.put(schemaFieldName, ByteBuffer.wrap((byte[]) databaseFieldValue));
+          return ByteBuffer.wrap((byte[]) databaseFieldValue);
         }
         else
         {
-          record.put(schemaFieldName, extractBlobBytes((Blob)databaseFieldValue, schemaFieldName));
+          return extractBlobBytes((Blob)databaseFieldValue, schemaFieldName);
         }
-        break;
       case DOUBLE:
-        record.put(schemaFieldName, ((Number)databaseFieldValue).doubleValue());
-        break;
+        return ((Number)databaseFieldValue).doubleValue();
       case FLOAT:
-        record.put(schemaFieldName, ((Number)databaseFieldValue).floatValue());
-        break;
+        return ((Number)databaseFieldValue).floatValue();
       case INT:
-        record.put(schemaFieldName, ((Number)databaseFieldValue).intValue());
-        break;
+        return ((Number)databaseFieldValue).intValue();
       case LONG:
-        Class<?> timestampClass = null, dateClass = null;
-        Method timestampValueMethod = null;
-        try
-        {
-            timestampClass = OracleJarUtils.loadClass("oracle.sql.TIMESTAMP");
-            dateClass = OracleJarUtils.loadClass("oracle.sql.DATE");
-            timestampValueMethod = timestampClass.getMethod("timestampValue");
-        } catch (Exception e)
-        {
-            String errMsg = "Cannot convert " + databaseFieldValue.getClass()
-                    + " to long for field " + schemaFieldName + " Unable to get oracle datatypes " + e.getMessage();
-            throw new EventCreationException(errMsg);
-        }
-
-
         if(databaseFieldValue instanceof Timestamp)
         {
-          long time = ((Timestamp) databaseFieldValue).getTime();
-          record.put(schemaFieldName, time);
+          return ((Timestamp) databaseFieldValue).getTime();
         }
         else if(databaseFieldValue instanceof Date)
         {
-          long time = ((Date) databaseFieldValue).getTime();
-          record.put(schemaFieldName, time);
-        }
-        else if(timestampClass.isInstance(databaseFieldValue))
-        {
-          try
-          {
-            Object tsc = timestampClass.cast(databaseFieldValue);
-            Timestamp tsValue = (Timestamp) timestampValueMethod.invoke(tsc);
-            long time = tsValue.getTime();
-            record.put(schemaFieldName, time);
-          }
-          catch(Exception ex)
-          {
-            throw new EventCreationException("SQLException reading oracle.sql.TIMESTAMP value for field "
-                + schemaFieldName, ex);
-          }
+          return ((Date) databaseFieldValue).getTime();
         }
-        else if(dateClass.isInstance(databaseFieldValue))
+
+        OracleTimeTypes oracleTypes = getOracleTimeTypes(databaseFieldValue, schemaFieldName);
+        if(oracleTypes._timestampClass.isInstance(databaseFieldValue) ||
+           oracleTypes._dateClass.isInstance(databaseFieldValue))
         {
           try
           {
-            Object dsc = dateClass.cast(databaseFieldValue);
-            Timestamp tsValue = (Timestamp) timestampValueMethod.invoke(dsc);
-            long time = tsValue.getTime();
-            record.put(schemaFieldName, time);
+            Timestamp tsValue = (Timestamp) oracleTypes._timestampValueMethod.invoke(databaseFieldValue);
+            return tsValue.getTime();
           }
           catch(Exception ex)
           {
@@ -634,27 +698,24 @@ implements EventFactory
          */
         else if(databaseFieldValue instanceof Number)
         {
-          long lvalue = ((Number) databaseFieldValue).longValue();
-          record.put(schemaFieldName, lvalue);
+          return ((Number) databaseFieldValue).longValue();
         }
         else
         {
           throw new EventCreationException("Cannot convert " + databaseFieldValue.getClass()
               + " to long for field " + schemaFieldName);
         }
-        break;
       case STRING:
         if(databaseFieldValue instanceof Clob)
         {
-          String text = extractClobText((Clob)databaseFieldValue, schemaFieldName);
-          record.put(schemaFieldName, text);
+          return extractClobText((Clob)databaseFieldValue, schemaFieldName);
         }
         else if (databaseFieldValue instanceof SQLXML)
         {
           SQLXML xmlInst = (SQLXML) databaseFieldValue;
           try
           {
-            record.put(schemaFieldName,xmlInst.getString());
+            return xmlInst.getString();
           }
           catch (SQLException e)
           {
@@ -664,19 +725,43 @@ implements EventFactory
         }
         else
         {
-          String text = databaseFieldValue.toString();
-          record.put(schemaFieldName, text);
+          return databaseFieldValue.toString();
         }
-        break;
       case NULL:
-        record.put(schemaFieldName, null);
-        break;
+        return null;
       default:
         throw new EventCreationException("unknown simple type " + avroFieldType.toString() +
                                          " for field " + schemaFieldName);
     }
   }
 
+  /**
+   * Loads the oracle.sql time types on first use. A failure is not cached so that the error is
+   * reported for every value that needs them, as before.
+   */
+  private static OracleTimeTypes getOracleTimeTypes(Object databaseFieldValue, String schemaFieldName)
+  throws EventCreationException
+  {
+    OracleTimeTypes result = _oracleTimeTypes;
+    if (null == result)
+    {
+      try
+      {
+        Class<?> timestampClass = OracleJarUtils.loadClass("oracle.sql.TIMESTAMP");
+        Class<?> dateClass = OracleJarUtils.loadClass("oracle.sql.DATE");
+        result = new OracleTimeTypes(timestampClass, dateClass, timestampClass.getMethod("timestampValue"));
+        _oracleTimeTypes = result;
+      }
+      catch (Exception e)
+      {
+        String errMsg = "Cannot convert " + databaseFieldValue.getClass()
+                + " to long for field " + schemaFieldName + " Unable to get oracle datatypes " + e.getMessage();
+        throw new EventCreationException(errMsg);
+      }
+    }
+    return result;
+  }
+
   private void put(GenericRecord record, Field field, Object databaseFieldValue)
   throws EventCreationException
   {
@@ -815,4 +900,317 @@ implements EventFactory
       throw new EventCreationException("SQLException reading CLOB value for field " + fieldName, ex);
     }
   }
+
+  /** Returns the index of the first branch of the given type if the schema is a union; -1 otherwise */
+  private static int getUnionBranch(Schema schema, Type type)
+  {
+    if (schema.getType() != Type.UNION)
+    {
+      return -1;
+    }
+    List<Schema> branches = schema.getTypes();
+    for (int i = 0; i < branches.size(); ++i)
+    {
+      if (branches.get(i).getType() == type)
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** The oracle.sql time types and the method used to convert them to java.sql.Timestamp */
+  private static class OracleTimeTypes
+  {
+    private final Class<?> _timestampClass;
+    private final Class<?> _dateClass;
+    private final Method _timestampValueMethod;
+
+    public OracleTimeTypes(Class<?> timestampClass, Class<?> dateClass, Method timestampValueMethod)
+    {
+      _timestampClass = timestampClass;
+      _dateClass = dateClass;
+      _timestampValueMethod = timestampValueMethod;
+    }
+  }
+
+  /**
+   * Maps the columns of a ResultSet to the fields of the event schema. The schema metadata, the
+   * column indexes and the union branches are resolved when the plan is compiled, so a row is
+   * written to Avro binary with a single pass over the fields and without building a
+   * GenericRecord. The output is the same as serializing the record built by
+   * {@link OracleAvroGenericEventFactory#buildGenericRecord(ResultSet)}.
+   *
+   * <p>Plans share the encoder of the factory and are not thread-safe.
+   */
+  class RowMappingPlan
+  {
+    private final FieldMapping[] _fields;
+    private final int _keyFieldIdx;
+    /** Holds the values of RECORD and ARRAY fields before they are serialized */
+    private final GenericRecord _complexValues;
+    private Object _keyValue;
+
+    RowMappingPlan(Map<String, Integer> columnIndexes) throws EventCreationException
+    {
+      List<Field> fields = _eventSchema.getFields();
+      _fields = new FieldMapping[fields.size()];
+      _complexValues = new GenericData.Record(_eventSchema);
+      int keyFieldIdx = -1;
+      for (int i = 0; i < _fields.length; ++i)
+      {
+        Field field = fields.get(i);
+        if (field.name().equals(keyColumnName))
+        {
+          keyFieldIdx = i;
+        }
+
+        Schema fieldSchema = SchemaHelper.unwindUnionSchema(field);
+        Type avroFieldType = fieldSchema.getType();
+        if (avroFieldType == Type.ARRAY)
+        {
+          String dbFieldName = SchemaHelper.getMetaField(fieldSchema.getElementType(), "dbFieldName");
+          if (dbFieldName == null)
+          {
+            throw new EventCreationException("array field is missing required metadata dbFieldName. "
+                                             + fieldSchema.getName());
+          }
+          _fields[i] = new ComplexFieldMapping(field, dbFieldName, getColumnIndex(columnIndexes, dbFieldName));
+          continue;
+        }
+
+        String dbFieldName = SchemaHelper.getMetaField(field, "dbFieldName");
+        if (dbFieldName == null)
+        {
+          // internal schema field; never set
+          _fields[i] = new FieldMapping(field, null, 0);
+          continue;
+        }
+
+        int columnIndex = getColumnIndex(columnIndexes, dbFieldName);
+        switch (avroFieldType)
+        {
+          case BOOLEAN:
+          case BYTES:
+          case DOUBLE:
+          case FLOAT:
+          case INT:
+          case LONG:
+          case STRING:
+          case NULL:
+            _fields[i] = new SimpleFieldMapping(field, dbFieldName, columnIndex);
+            break;
+          default:
+            _fields[i] = new ComplexFieldMapping(field, dbFieldName, columnIndex);
+        }
+      }
+      _keyFieldIdx = keyFieldIdx;
+    }
+
+    /** Returns the 1-based index of the column or 0 if it has to be looked up by name */
+    private int getColumnIndex(Map<String, Integer> columnIndexes, String dbFieldName)
+    {
+      Integer columnIndex = columnIndexes.get(dbFieldName.toUpperCase());
+      return null == columnIndex ? 0 : columnIndex.intValue();
+    }
+
+    /**
+     * Serializes the current row of the ResultSet
+     * @return the Avro binary serialization of the row
+     */
+    public byte[] serializeRow(ResultSet rs) throws SQLException, EventCreationException
+    {
+      _rowBuffer.reset();
+      _keyValue = null;
+      try
+      {
+        for (int i = 0; i < _fields.length; ++i)
+        {
+          Object value = _fields[i].write(rs, _rowEncoder);
+          if (i == _keyFieldIdx)
+          {
+            _keyValue = value;
+          }
+        }
+        _rowEncoder.flush();
+      }
+      catch(IOException ex)
+      {
+        throw new EventCreationException("Failed to serialize the Avro record. ResultSet was: (" + rs + ")", ex);
+      }
+      catch(RuntimeException ex)
+      {
+        throw new EventCreationException("Failed to serialize the Avro record. ResultSet was: (" + rs + ")", ex);
+      }
+
+      return _rowBuffer.toByteArray();
+    }
+
+    /** The Avro value of the key field in the last serialized row */
+    public Object getKeyValue()
+    {
+      return _keyValue;
+    }
+
+    /** Writes a schema field which is not populated from the ResultSet */
+    private class FieldMapping
+    {
+      protected final Field _field;
+      protected final String _dbFieldName;
+      protected final int _columnIndex;
+      private final boolean _nullable;
+      private final int _nullBranch;
+
+      FieldMapping(Field field, String dbFieldName, int columnIndex)
+      {
+        _field = field;
+        _dbFieldName = dbFieldName;
+        _columnIndex = columnIndex;
+        _nullable = SchemaHelper.isNullable(field);
+        _nullBranch = getUnionBranch(field.schema(), Type.NULL);
+      }
+
+      /**
+       * Reads the field from the current row and writes it to the encoder
+       * @return the Avro value written
+       */
+      public Object write(ResultSet rs, Encoder encoder)
+      throws SQLException, EventCreationException, IOException
+      {
+        writeNull(encoder);
+        return null;
+      }
+
+      protected Object readColumn(ResultSet rs) throws SQLException
+      {
+        try
+        {
+          return 0 < _columnIndex ? rs.getObject(_columnIndex) : rs.getObject(_dbFieldName);
+        }
+        catch (SQLException ex)
+        {
+          _log.error("Failed to read column (" + _dbFieldName + ") for source (" + _sourceId + ")");
+          throw ex;
+        }
+      }
+
+      protected void writeNull(Encoder encoder) throws EventCreationException, IOException
+      {
+        if (!_nullable)
+        {
+          throw new EventCreationException("Null value not allowed for field " + _field.name());
+        }
+        if (0 <= _nullBranch)
+        {
+          encoder.writeIndex(_nullBranch);
+        }
+        else
+        {
+          encoder.writeNull();
+        }
+      }
+    }
+
+    /** Writes a simple-type field directly to the encoder */
+    private class SimpleFieldMapping extends FieldMapping
+    {
+      private final Type _avroFieldType;
+      private final int _valueBranch;
+
+      SimpleFieldMapping(Field field, String dbFieldName, int columnIndex)
+      {
+        super(field, dbFieldName, columnIndex);
+        _avroFieldType = SchemaHelper.getAnyType(field);
+        _valueBranch = getUnionBranch(field.schema(), _avroFieldType);
+      }
+
+      @Override
+      public Object write(ResultSet rs, Encoder encoder)
+      throws SQLException, EventCreationException, IOException
+      {
+        Object databaseFieldValue = readColumn(rs);
+        if (null == databaseFieldValue)
+        {
+          writeNull(encoder);
+          return null;
+        }
+
+        Object value;
+        try
+        {
+          value = toSimpleAvroValue(_field.name(), _avroFieldType, databaseFieldValue);
+        }
+        catch(ClassCastException ex)
+        {
+          throw new EventCreationException("Type conversion error for field name (" + _field.name() +
+                                           ") in source " + _sourceId + ". Value was: " + databaseFieldValue +
+                                           " avro field was: " + _avroFieldType, ex);
+        }
+
+        if (0 <= _valueBranch)
+        {
+          encoder.writeIndex(_valueBranch);
+        }
+        switch (_avroFieldType)
+        {
+          case BOOLEAN: encoder.writeBoolean((Boolean)value); break;
+          case BYTES: encoder.writeBytes((ByteBuffer)value); break;
+          case DOUBLE: encoder.writeDouble((Double)value); break;
+          case FLOAT: encoder.writeFloat((Float)value); break;
+          case INT: encoder.writeInt((Integer)value); break;
+          case LONG: encoder.writeLong((Long)value); break;
+          case STRING: encoder.writeString((String)value); break;
+          default: encoder.writeNull();
+        }
+        return value;
+      }
+    }
+
+    /** Builds the value of a RECORD or ARRAY field as in the GenericRecord path and serializes it */
+    private class ComplexFieldMapping extends FieldMapping
+    {
+      private final Schema _fieldSchema;
+      private final GenericDatumWriter<Object> _writer;
+
+      ComplexFieldMapping(Field field, String dbFieldName, int columnIndex)
+      {
+        super(field, dbFieldName, columnIndex);
+        _fieldSchema = SchemaHelper.unwindUnionSchema(field);
+        _writer = new GenericDatumWriter<Object>(field.schema());
+      }
+
+      @Override
+      public Object write(ResultSet rs, Encoder encoder)
+      throws SQLException, EventCreationException, IOException
+      {
+        String schemaFieldName = _field.name();
+        _complexValues.put(schemaFieldName, null);
+        if (_fieldSchema.getType() == Type.ARRAY)
+        {
+          putArray(_complexValues, schemaFieldName, _fieldSchema, readArray(rs));
+        }
+        else
+        {
+          put(_complexValues, _field, readColumn(rs));
+        }
+
+        Object value = _complexValues.get(schemaFieldName);
+        _writer.write(value, encoder);
+        return value;
+      }
+
+      private Array readArray(ResultSet rs) throws EventCreationException
+      {
+        try
+        {
+          return 0 < _columnIndex ? rs.getArray(_columnIndex) : rs.getArray(_dbFieldName);
+        }
+        catch (SQLException e)
+        {
+          throw new EventCreationException("unable to read array field: " + _dbFieldName + ": "
+                                           + e.getMessage(), e);
+        }
+      }
+    }
+  }
 }
@@ -44,6 +44,10 @@ public class GGEventGenerationFactory
   //2013-03-10:11:45:01.001000000
   private final Logger log = Logger.getLogger(getClass());
 
+  private static final Pattern TIMESTAMP_PATTERN =
+      Pattern.compile("(\\d{4})-(\\d{2})-(\\d{2}):(\\d{2}):(\\d{2}):(\\d{2})\\.(\\d{0,9})");
+  private static final Pattern DATE_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2}).*");
+
   /**
    * Given a logical source config, create a partition function.
    *
@@ -209,26 +213,7 @@ public class GGEventGenerationFactory
     //return bytes
     else if (databaseFieldType.equalsIgnoreCase("BLOB") || databaseFieldType.equalsIgnoreCase("RAW"))
     {
-      if (fieldValue.length() == 0)
-      {
-        return fieldValue.getBytes(Charset.defaultCharset());
-      }
-      if (fieldValue.length() <= 2)
-      {
-        throw new DatabusException("Unable to decode the string because length is less than 2");
-      }
-      if (!isStringHex(fieldValue))
-      {
-        throw new DatabusException("Unable to decode the string because it is not hex-encoded");
-      }
-      try
-      {
-        return stringToHex(fieldValue.substring(2, fieldValue.length()-1));
-      }
-      catch (DecoderException e)
-      {
-        throw new DatabusException("Unable to decode a " + databaseFieldType + " field: " + recordFieldName);
-      }
+      return ggBinaryStringToBytes(fieldValue, databaseFieldType, recordFieldName);
     }
     //return array
     else if (databaseFieldType.equalsIgnoreCase("ARRAY"))
@@ -246,6 +231,34 @@ public class GGEventGenerationFactory
     }
   }
 
+  /**
+   * Decodes the value of a BLOB or RAW column; the trail has them as hex strings (e.g. 0x0a1b)
+   */
+  public static byte[] ggBinaryStringToBytes(String fieldValue, String databaseFieldType, String recordFieldName)
+      throws DatabusException
+  {
+    if (fieldValue.length() == 0)
+    {
+      return fieldValue.getBytes(Charset.defaultCharset());
+    }
+    if (fieldValue.length() <= 2)
+    {
+      throw new DatabusException("Unable to decode the string because length is less than 2");
+    }
+    if (!isStringHex(fieldValue))
+    {
+      throw new DatabusException("Unable to decode the string because it is not hex-encoded");
+    }
+    try
+    {
+      return stringToHex(fieldValue.substring(2, fieldValue.length()-1));
+    }
+    catch (DecoderException e)
+    {
+      throw new DatabusException("Unable to decode a " + databaseFieldType + " field: " + recordFieldName);
+    }
+  }
+
   public static boolean isStringHex(String fieldValue)
   {
     if (fieldValue == null || fieldValue.length() <= 2)
@@ -270,8 +283,7 @@ public class GGEventGenerationFactory
   public static long ggTimeStampStringToMilliSeconds(String value)
       throws DatabusException
   {
-    Pattern _pattern = Pattern.compile("(\\d{4})-(\\d{2})-(\\d{2}):(\\d{2}):(\\d{2}):(\\d{2})\\.(\\d{0,9})");
-    Matcher matcher = _pattern.matcher(value);
+    Matcher matcher = TIMESTAMP_PATTERN.matcher(value);
     if (!matcher.matches() || matcher.groupCount() != 7)
     {
       throw new DatabusException("The timestamp format is not as expected, cannot proceed!");
@@ -301,8 +313,7 @@ public class GGEventGenerationFactory
   public static long ggDateStringToLong(String value)
       throws DatabusException
   {
-    Pattern _pattern = Pattern.compile("(\\d{4}-\\d{2}-\\d{2}).*");
-    Matcher matcher = _pattern.matcher(value);
+    Matcher matcher = DATE_PATTERN.matcher(value);
     if (!matcher.matches() || matcher.groupCount() != 1)
     {
       throw new DatabusException("The date format is not as expected, cannot proceed!");
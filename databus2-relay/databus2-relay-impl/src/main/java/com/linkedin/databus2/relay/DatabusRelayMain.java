@@ -416,6 +416,11 @@ public class DatabusRelayMain extends HttpRelay {
 		super.doShutdown();
 	}
 
+	@Override
+	public boolean hasEventProducer(PhysicalPartition pPartition) {
+		return null != _producers && _producers.containsKey(pPartition);
+	}
+
 	public EventProducer[] getProducers() {
 		EventProducer[] result = new EventProducer[_producers.size()];
 		_producers.values().toArray(result);
@@ -19,7 +19,6 @@ package com.linkedin.databus2.relay;
   */
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -50,15 +49,12 @@ import javax.management.ObjectName;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.Encoder;
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.log4j.Logger;
 
 import com.linkedin.databus.core.ConcurrentAppendableCompositeFileInputStream;
 import com.linkedin.databus.core.DbusConstants;
+import com.linkedin.databus.core.DbusEventBatch;
 import com.linkedin.databus.core.DbusEventBufferAppendable;
 import com.linkedin.databus.core.DbusEventInfo;
 import com.linkedin.databus.core.DbusEventKey;
@@ -1087,15 +1083,13 @@ public class GoldenGateEventProducer extends AbstractEventProducer
       return;
     }
 
-    getEventBuffer().startEvents();
-
     int eventsInTransactionCount = 0;
+    DbusEventBatch txnBatch = new DbusEventBatch();
 
     List<EventReaderSummary> summaries = new ArrayList<EventReaderSummary>();
 
     for (int i = 0; i < dbUpdates.size(); ++i)
     {
-      GenericRecord record = null;
       TransactionState.PerSourceTransactionalUpdate perSourceUpdate = dbUpdates.get(i);
       short sourceId = (short)perSourceUpdate.getSourceId();
       // prepare stats collection per source
@@ -1118,12 +1112,8 @@ public class GoldenGateEventProducer extends AbstractEventProducer
         PartitionFunction partitionFunction = _partitionFunctionHashMap.get((int)sourceId);
         short lPartitionId = partitionFunction.getPartition(eventKey);
 
-        record = dbUpdate.getGenericRecord();
         //Write the event to the buffer
-        if (record == null)
-          throw new DatabusException("Cannot write event to buffer because record = " + record);
-
-        if(record.getSchema() == null)
+        if(dbUpdate.getSchema() == null)
           throw new DatabusException("The record does not have a schema (null schema)");
 
         try
@@ -1133,13 +1123,10 @@ public class GoldenGateEventProducer extends AbstractEventProducer
 
           //Count of all the events in the current transaction
           eventsInTransactionCount++;
-          // Serialize the row
-          ByteArrayOutputStream bos = new ByteArrayOutputStream();
-          Encoder encoder = new BinaryEncoder(bos);
-          GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<GenericRecord>(
-              record.getSchema());
-          writer.write(record, encoder);
-          byte[] serializedValue = bos.toByteArray();
+          // The row is serialized by the parser
+          byte[] serializedValue = dbUpdate.getSerializedRecord();
+          if (serializedValue == null)
+            throw new DatabusException("Cannot write event to buffer because record = null");
 
           //Get the md5 for the schema
           SchemaId schemaId = SchemaId.createWithMd5(dbUpdate.getSchema());
@@ -1184,8 +1171,8 @@ public class GoldenGateEventProducer extends AbstractEventProducer
           perSourceStats.addTimeOfLastDBAccess(tsEnd);
           globalStats.addTimeOfLastDBAccess(tsEnd);
 
-          //Append to the event buffer
-          getEventBuffer().appendEvent(eventKey, dbusEventInfo, _statsCollector);
+          //Add to the events of the transaction; they are appended to the buffer together
+          txnBatch.add(eventKey, dbusEventInfo);
           _rc.incrementEventCount();
           dbUpdatesEventsSize += serializedValue.length;
         }
@@ -1228,6 +1215,12 @@ public class GoldenGateEventProducer extends AbstractEventProducer
     if(scn <= 0)
       throw new DatabusException("Unable to write events to buffer because of negative/zero scn: " + scn);
 
+    getEventBuffer().startEvents();
+    if (!getEventBuffer().appendEvents(txnBatch, _statsCollector))
+    {
+      getEventBuffer().rollbackEvents();
+      throw new DatabusException("Unable to write events to buffer for transaction with scn: " + scn);
+    }
     getEventBuffer().endEvents(scn, _statsCollector);
     _scn.set(scn);
 
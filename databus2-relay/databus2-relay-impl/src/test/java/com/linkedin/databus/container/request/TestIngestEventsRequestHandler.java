@@ -0,0 +1,256 @@
+package com.linkedin.databus.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.container.netty.HttpRelay;
+import com.linkedin.databus.core.DbusEventBuffer;
+import com.linkedin.databus.core.DbusEventBufferMult;
+import com.linkedin.databus.core.DbusEventFactory;
+import com.linkedin.databus.core.DbusEventInfo;
+import com.linkedin.databus.core.DbusEventInternalWritable;
+import com.linkedin.databus.core.DbusEventKey;
+import com.linkedin.databus.core.DbusEventV2Factory;
+import com.linkedin.databus.core.DbusOpcode;
+import com.linkedin.databus.core.data_model.PhysicalPartition;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+import com.linkedin.databus.core.monitoring.mbean.StatsCollectors;
+import com.linkedin.databus2.core.container.request.BinaryProtocol;
+import com.linkedin.databus2.core.container.request.ErrorResponse;
+import com.linkedin.databus2.core.container.request.IngestEventsRequest;
+import com.linkedin.databus2.core.container.request.IngestEventsResponse;
+
+public class TestIngestEventsRequestHandler
+{
+  private static final DbusEventFactory EVENT_FACTORY = new DbusEventV2Factory(ByteOrder.BIG_ENDIAN);
+  private static final PhysicalPartition PPART = new PhysicalPartition(3, "testDb");
+  private static final PhysicalPartition PRODUCER_PPART = new PhysicalPartition(4, "testDb");
+  private static final PhysicalPartition UNKNOWN_PPART = new PhysicalPartition(5, "testDb");
+  private static final Executor SAME_THREAD_EXECUTOR = new Executor()
+  {
+    @Override
+    public void execute(Runnable command)
+    {
+      command.run();
+    }
+  };
+
+  private DbusEventBuffer _buf;
+  private HttpRelay _relay;
+  private ConcurrentMap<PhysicalPartition, Channel> _owners;
+  private Channel _channel;
+  private ChannelFuture _closeFuture;
+  private final List<Object> _responses = new ArrayList<Object>();
+  private IngestEventsRequestHandler _handler;
+
+  private static void addEvent(ByteBuffer buf, long scn, short srcId, boolean eop) throws Exception
+  {
+    DbusEventInfo info = new DbusEventInfo(DbusOpcode.UPSERT, scn, (short)PPART.getId().intValue(),
+                                           (short)0, System.nanoTime(), srcId, new byte[16],
+                                           eop ? new byte[0] : new byte[100], false, true,
+                                           DbusEventFactory.DBUS_EVENT_V2, (short)1, null);
+    if (eop) EVENT_FACTORY.serializeLongKeyEndOfPeriodMarker(buf, info);
+    else DbusEventFactory.serializeEvent(new DbusEventKey(scn), buf, info);
+  }
+
+  private static ChannelBuffer createWindows(long firstScn, int numWindows) throws Exception
+  {
+    ByteBuffer buf = ByteBuffer.allocate(64 * 1024).order(EVENT_FACTORY.getByteOrder());
+    for (int i = 0; i < numWindows; ++i)
+    {
+      long scn = firstScn + 10 * i;
+      addEvent(buf, scn, (short)101, false);
+      addEvent(buf, scn, (short)102, false);
+      addEvent(buf, scn, DbusEventInternalWritable.EOPMarkerSrcId, true);
+    }
+    buf.flip();
+    return ChannelBuffers.wrappedBuffer(buf);
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    DbusEventBuffer.Config bufConfig = new DbusEventBuffer.Config();
+    bufConfig.setMaxSize(100000);
+    bufConfig.setScnIndexSize(10000);
+    bufConfig.setAverageEventSize(10000);
+    bufConfig.setAllocationPolicy("HEAP_MEMORY");
+    _buf = new DbusEventBuffer(bufConfig.build(), PPART, EVENT_FACTORY);
+
+    DbusEventBufferMult bufMult = EasyMock.createMock(DbusEventBufferMult.class);
+    EasyMock.expect(bufMult.getOneBuffer(PPART)).andReturn(_buf).anyTimes();
+    EasyMock.expect(bufMult.getOneBuffer(PRODUCER_PPART)).andReturn(_buf).anyTimes();
+    EasyMock.expect(bufMult.getOneBuffer(UNKNOWN_PPART)).andReturn(null).anyTimes();
+    EasyMock.replay(bufMult);
+
+    _relay = EasyMock.createMock(HttpRelay.class);
+    EasyMock.expect(_relay.getEventBuffer()).andReturn(bufMult).anyTimes();
+    EasyMock.expect(_relay.getEventFactory()).andReturn(EVENT_FACTORY).anyTimes();
+    EasyMock.expect(_relay.hasEventProducer(PPART)).andReturn(false).anyTimes();
+    EasyMock.expect(_relay.hasEventProducer(PRODUCER_PPART)).andReturn(true).anyTimes();
+    EasyMock.expect(_relay.getInBoundStatsCollectors())
+            .andReturn(new StatsCollectors<DbusEventsStatisticsCollector>()).anyTimes();
+    EasyMock.replay(_relay);
+
+    _owners = new ConcurrentHashMap<PhysicalPartition, Channel>();
+    _responses.clear();
+    _channel = EasyMock.createNiceMock(Channel.class);
+    _closeFuture = Channels.future(_channel);
+    setUpChannel(_channel, _closeFuture, _responses);
+    _handler = new IngestEventsRequestHandler(_relay, _channel, _owners, SAME_THREAD_EXECUTOR);
+  }
+
+  /** Records the responses written to a mock channel */
+  private static void setUpChannel(final Channel channel, ChannelFuture closeFuture,
+                                   final List<Object> responses)
+  {
+    EasyMock.expect(channel.isOpen()).andReturn(true).anyTimes();
+    EasyMock.expect(channel.getCloseFuture()).andReturn(closeFuture).anyTimes();
+    EasyMock.expect(channel.write(EasyMock.anyObject())).andAnswer(new IAnswer<ChannelFuture>()
+    {
+      @Override
+      public ChannelFuture answer() throws Throwable
+      {
+        responses.add(EasyMock.getCurrentArguments()[0]);
+        return Channels.future(channel);
+      }
+    }).anyTimes();
+    EasyMock.replay(channel);
+  }
+
+  private Object ingest(long batchId, PhysicalPartition ppart, long prevScn, ChannelBuffer events)
+      throws Exception
+  {
+    return ingest(_handler, _channel, _responses, batchId, ppart, prevScn, events);
+  }
+
+  private static Object ingest(IngestEventsRequestHandler handler, Channel channel, List<Object> responses,
+                               long batchId, PhysicalPartition ppart, long prevScn, ChannelBuffer events)
+      throws Exception
+  {
+    ChannelBuffer buf = null == events ? null : events.duplicate();
+    handler.messageReceived(null, new UpstreamMessageEvent(channel,
+        IngestEventsRequest.createRequest(batchId, ppart, prevScn, buf), null));
+    //the events must have been copied before messageReceived returned
+    if (null != events) events.setZero(0, events.readableBytes());
+    Assert.assertEquals(responses.size(), 1);
+    return responses.remove(0);
+  }
+
+  private static void assertAck(Object resp, long batchId, long lastWrittenScn, int numAppended)
+  {
+    Assert.assertTrue(resp instanceof IngestEventsResponse, "unexpected response: " + resp);
+    IngestEventsResponse ack = (IngestEventsResponse)resp;
+    Assert.assertEquals(ack.getBatchId(), batchId);
+    Assert.assertEquals(ack.getLastWrittenScn(), lastWrittenScn);
+    Assert.assertEquals(ack.getNumEventsAppended(), numAppended);
+  }
+
+  private static void assertError(Object resp, byte errorCode)
+  {
+    Assert.assertTrue(resp instanceof ErrorResponse, "unexpected response: " + resp);
+    Assert.assertEquals(((ErrorResponse)resp).getErrorCode(), errorCode);
+  }
+
+  @Test
+  public void testIngestAndRetry() throws Exception
+  {
+    assertAck(ingest(1, PPART, 90, createWindows(100, 3)), 1, 120, 9);
+    Assert.assertEquals(_buf.lastWrittenScn(), 120);
+
+    // a retry of an acknowledged batch is not appended again
+    assertAck(ingest(1, PPART, 90, createWindows(100, 3)), 1, 120, 0);
+    Assert.assertEquals(_buf.lastWrittenScn(), 120);
+
+    assertAck(ingest(2, PPART, 120, createWindows(130, 2)), 2, 140, 6);
+
+    // an empty batch acknowledges the last scn
+    assertAck(ingest(3, PPART, 140, null), 3, 140, 0);
+  }
+
+  @Test
+  public void testGap() throws Exception
+  {
+    assertAck(ingest(1, PPART, 90, createWindows(100, 1)), 1, 100, 3);
+
+    // the producer has windows after 100 that the buffer has not seen
+    assertError(ingest(2, PPART, 150, createWindows(160, 1)), BinaryProtocol.RESULT_ERR_SOURCES_TOO_OLD);
+    Assert.assertEquals(_buf.lastWrittenScn(), 100);
+
+    // the producer can resend from where the buffer is
+    assertAck(ingest(3, PPART, 100, createWindows(110, 1)), 3, 110, 3);
+  }
+
+  @Test
+  public void testRejectedPartitions() throws Exception
+  {
+    assertError(ingest(1, UNKNOWN_PPART, 90, createWindows(100, 1)),
+                BinaryProtocol.RESULT_ERR_UNKNOWN_PARTITION);
+    assertError(ingest(2, PRODUCER_PPART, 90, createWindows(100, 1)),
+                BinaryProtocol.RESULT_ERR_INVALID_REQ_PARAM);
+    Assert.assertEquals(_buf.lastWrittenScn(), -1);
+
+    // the connection is still usable
+    assertAck(ingest(3, PPART, 90, createWindows(100, 1)), 3, 100, 3);
+  }
+
+  @Test
+  public void testSinglePartitionOwner() throws Exception
+  {
+    Channel channel2 = EasyMock.createNiceMock(Channel.class);
+    List<Object> responses2 = new ArrayList<Object>();
+    setUpChannel(channel2, Channels.future(channel2), responses2);
+    IngestEventsRequestHandler handler2 =
+        new IngestEventsRequestHandler(_relay, channel2, _owners, SAME_THREAD_EXECUTOR);
+
+    assertAck(ingest(1, PPART, 90, createWindows(100, 1)), 1, 100, 3);
+
+    // the partition is owned by the first connection
+    assertError(ingest(handler2, channel2, responses2, 1, PPART, 100, createWindows(110, 1)),
+                BinaryProtocol.RESULT_ERR_INVALID_REQ_PARAM);
+    Assert.assertEquals(_buf.lastWrittenScn(), 100);
+    assertAck(ingest(2, PPART, 100, createWindows(110, 1)), 2, 110, 3);
+
+    // closing the first connection releases the partition
+    _closeFuture.setSuccess();
+    Assert.assertFalse(_owners.containsKey(PPART));
+    assertAck(ingest(handler2, channel2, responses2, 2, PPART, 110, createWindows(120, 1)), 2, 120, 3);
+    Assert.assertSame(_owners.get(PPART), channel2);
+  }
+}
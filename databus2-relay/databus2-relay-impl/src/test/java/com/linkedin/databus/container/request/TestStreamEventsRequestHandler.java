@@ -0,0 +1,282 @@
+package com.linkedin.databus.container.request;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus.container.netty.HttpRelay;
+import com.linkedin.databus.container.request.ReadEventsRequestProcessor.StreamSetup;
+import com.linkedin.databus.core.CheckpointMult;
+import com.linkedin.databus.core.DbusEventBuffer;
+import com.linkedin.databus.core.DbusEventBufferBatchReadable;
+import com.linkedin.databus.core.Encoding;
+import com.linkedin.databus.core.StreamEventsResult;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsStatisticsCollector;
+import com.linkedin.databus.core.monitoring.mbean.StatsCollectors;
+import com.linkedin.databus.core.util.ConfigManager;
+import com.linkedin.databus2.core.container.request.DatabusRequest;
+import com.linkedin.databus2.core.container.request.StreamEventsRequest;
+import com.linkedin.databus2.core.container.request.StreamEventsResponse;
+import com.linkedin.databus2.core.filter.DbusFilter;
+
+public class TestStreamEventsRequestHandler
+{
+  private static final int EVENT_SIZE = 100;
+
+  private final List<Object> _writes = new Vector<Object>();
+  private final AtomicBoolean _writable = new AtomicBoolean(true);
+  private ExecutorService _pushExecutor;
+  private Channel _channel;
+  private DbusEventBuffer _buf;
+  private FakeReader _reader;
+  private StreamEventsRequestHandler _handler;
+
+  /** Streams fixed-size events that "arrive" when the test adds them */
+  private static class FakeReader implements DbusEventBufferBatchReadable
+  {
+    private final List<DbusEventBuffer> _buffers;
+    private int _numEvents = 0;
+
+    FakeReader(DbusEventBuffer buf)
+    {
+      _buffers = Arrays.asList(buf);
+    }
+
+    synchronized void addEvents(int num)
+    {
+      _numEvents += num;
+    }
+
+    @Override
+    public synchronized StreamEventsResult streamEvents(boolean streamFromLatestScn, int batchFetchSize,
+                                                        WritableByteChannel writeChannel,
+                                                        Encoding encoding, DbusFilter filter)
+    {
+      int num = Math.min(_numEvents, batchFetchSize / EVENT_SIZE);
+      if (num > 0)
+      {
+        try
+        {
+          writeChannel.write(ByteBuffer.allocate(num * EVENT_SIZE));
+        }
+        catch (Exception e)
+        {
+          throw new RuntimeException(e);
+        }
+      }
+      _numEvents -= num;
+      return new StreamEventsResult(num, _numEvents > 0 && 0 == num ? EVENT_SIZE : 0);
+    }
+
+    @Override
+    public CheckpointMult getCheckpointMult()
+    {
+      return null;
+    }
+
+    @Override
+    public void setClientMaxEventVersion(int version)
+    {
+    }
+
+    @Override
+    public List<DbusEventBuffer> getBuffers()
+    {
+      return _buffers;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    _writes.clear();
+    _writable.set(true);
+    _pushExecutor = Executors.newSingleThreadExecutor();
+
+    ConfigManager<?> configMgr = EasyMock.createNiceMock(ConfigManager.class);
+    EasyMock.replay(configMgr);
+    HttpRelay relay = EasyMock.createNiceMock(HttpRelay.class);
+    EasyMock.expect(relay.getContainerRuntimeConfigMgr()).andReturn((ConfigManager)configMgr).anyTimes();
+    EasyMock.replay(relay);
+
+    _buf = EasyMock.createMock(DbusEventBuffer.class);
+    _reader = new FakeReader(_buf);
+    ReadEventsRequestProcessor processor = new ReadEventsRequestProcessor(null, relay)
+    {
+      @Override
+      StreamSetup setupStream(DatabusRequest request)
+      {
+        return new StreamSetup(null, 0, Encoding.BINARY, true, null, null, null, null, null, null,
+                               false, 0)
+        {
+          @Override
+          DbusEventBufferBatchReadable createReader(StatsCollectors<DbusEventsStatisticsCollector> statsCollectors)
+          {
+            return _reader;
+          }
+        };
+      }
+    };
+
+    _channel = EasyMock.createNiceMock(Channel.class);
+    EasyMock.expect(_channel.isOpen()).andReturn(true).anyTimes();
+    EasyMock.expect(_channel.isWritable()).andAnswer(new IAnswer<Boolean>()
+    {
+      @Override
+      public Boolean answer() throws Throwable
+      {
+        return _writable.get();
+      }
+    }).anyTimes();
+    EasyMock.expect(_channel.write(EasyMock.anyObject())).andAnswer(new IAnswer<ChannelFuture>()
+    {
+      @Override
+      public ChannelFuture answer() throws Throwable
+      {
+        _writes.add(EasyMock.getCurrentArguments()[0]);
+        return Channels.future(_channel);
+      }
+    }).anyTimes();
+    EasyMock.replay(_channel);
+
+    _handler = new StreamEventsRequestHandler(relay, processor, _pushExecutor, _channel, 1000, 0);
+
+    // the handler listens only to the buffers of the subscription
+    _buf.addCommitListener(_handler);
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(_buf);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    _pushExecutor.shutdownNow();
+  }
+
+  private void send(StreamEventsRequest req) throws Exception
+  {
+    _handler.messageReceived(null, new UpstreamMessageEvent(_channel, req, null));
+    flush();
+  }
+
+  /** Waits for the pushes scheduled so far */
+  private void flush() throws Exception
+  {
+    _pushExecutor.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+      }
+    }).get();
+  }
+
+  private StreamEventsResponse nextWrite()
+  {
+    Assert.assertTrue(_writes.size() > 0, "no response written");
+    Object resp = _writes.remove(0);
+    Assert.assertTrue(resp instanceof StreamEventsResponse, "unexpected response: " + resp);
+    return (StreamEventsResponse)resp;
+  }
+
+  private void assertEventsWrite(int eventsSize)
+  {
+    StreamEventsResponse resp = nextWrite();
+    Assert.assertEquals(resp.getEventsSize(), eventsSize);
+    Assert.assertEquals(resp.getPendingEventSize(), 0);
+  }
+
+  @Test
+  public void testCredit() throws Exception
+  {
+    _reader.addEvents(5);
+    send(StreamEventsRequest.createSubscribe(new HashMap<String, String>(), 250));
+    EasyMock.verify(_buf);
+
+    // only whole events that fit in the credit are pushed
+    assertEventsWrite(200);
+    StreamEventsResponse pending = nextWrite();
+    Assert.assertEquals(pending.getEventsSize(), 0);
+    Assert.assertEquals(pending.getPendingEventSize(), EVENT_SIZE);
+    Assert.assertEquals(_writes.size(), 0);
+    Assert.assertEquals(_handler.getCredit(), 50);
+
+    // more events without credit are not pushed and the pending size is not repeated
+    _handler.onEventsCommitted(_buf);
+    flush();
+    Assert.assertEquals(_writes.size(), 0);
+
+    send(StreamEventsRequest.createCredit(1000));
+    assertEventsWrite(300);
+    Assert.assertEquals(_writes.size(), 0);
+    Assert.assertEquals(_handler.getCredit(), 750);
+
+    // a commit pushes the new events right away
+    _reader.addEvents(2);
+    _handler.onEventsCommitted(_buf);
+    flush();
+    assertEventsWrite(200);
+    Assert.assertEquals(_writes.size(), 0);
+  }
+
+  @Test
+  public void testResumeOnWritable() throws Exception
+  {
+    _reader.addEvents(3);
+    _writable.set(false);
+    send(StreamEventsRequest.createSubscribe(new HashMap<String, String>(), 1000));
+    Assert.assertEquals(_writes.size(), 0);
+
+    // commits do not push while the outbound buffer is full
+    _handler.onEventsCommitted(_buf);
+    flush();
+    Assert.assertEquals(_writes.size(), 0);
+
+    _writable.set(true);
+    _handler.channelInterestChanged(EasyMock.createNiceMock(ChannelHandlerContext.class),
+                                    EasyMock.createNiceMock(ChannelStateEvent.class));
+    flush();
+    assertEventsWrite(300);
+    Assert.assertEquals(_writes.size(), 0);
+    Assert.assertEquals(_handler.getCredit(), 700);
+  }
+}
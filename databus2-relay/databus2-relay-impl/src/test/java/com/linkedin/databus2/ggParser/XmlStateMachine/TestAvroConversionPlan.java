@@ -0,0 +1,221 @@
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+package com.linkedin.databus2.ggParser.XmlStateMachine;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus2.core.DatabusException;
+import com.linkedin.databus2.producers.gg.GGEventGenerationFactory;
+import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig;
+import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig.MissingValueBehavior;
+import com.linkedin.databus2.schemas.utils.SchemaHelper;
+
+/**
+ * Tests the serialization of the dbUpdate columns through {@link AvroConversionPlan}
+ */
+public class TestAvroConversionPlan
+{
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"Person\",\"namespace\":\"com.linkedin.events.test\"," +
+      "\"meta\":\"dbFieldName=TEST.PERSON;pk=id;\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":[\"long\",\"null\"],\"meta\":\"dbFieldName=ID;dbFieldType=LONG;\"}," +
+      "{\"name\":\"name\",\"type\":[\"null\",\"string\"],\"meta\":\"dbFieldName=NAME;dbFieldType=VARCHAR2;\"}," +
+      "{\"name\":\"age\",\"type\":\"int\",\"meta\":\"dbFieldName=AGE;dbFieldType=INTEGER;\"}," +
+      "{\"name\":\"score\",\"type\":[\"null\",\"double\"],\"meta\":\"dbFieldName=SCORE;dbFieldType=DOUBLE;\"}," +
+      "{\"name\":\"modified\",\"type\":[\"long\",\"null\"],\"meta\":\"dbFieldName=MODIFIED;dbFieldType=TIMESTAMP;\"}," +
+      "{\"name\":\"born\",\"type\":[\"null\",\"long\"],\"meta\":\"dbFieldName=BORN;dbFieldType=DATE;\"}," +
+      "{\"name\":\"data\",\"type\":[\"null\",\"bytes\"],\"meta\":\"dbFieldName=DATA;dbFieldType=BLOB;\"}," +
+      "{\"name\":\"status\",\"type\":[\"null\",\"string\"],\"meta\":\"dbFieldName=GG_STATUS;dbFieldType=CHAR;\"}]}";
+
+  private static final String[] COLUMNS = {"ID", "NAME", "AGE", "SCORE", "MODIFIED", "BORN", "DATA", "GG_STATUS"};
+
+  private static AvroConversionPlan createPlan(boolean errorOnMissingFields) throws DatabusException
+  {
+    ReplicationBitSetterStaticConfig replConfig =
+        new ReplicationBitSetterStaticConfig(ReplicationBitSetterStaticConfig.SourceType.COLUMN, "GG_STATUS",
+                                             "r", MissingValueBehavior.TREAT_EVENT_LOCAL);
+    return new AvroConversionPlan(Schema.parse(SCHEMA), errorOnMissingFields, replConfig, Pattern.compile("r"));
+  }
+
+  private static ColumnsState createColumnsState()
+  {
+    ColumnsState columnsState = new ColumnsState(true);
+    columnsState.setKeyPairs(new ArrayList<ColumnsState.KeyPair>());
+    return columnsState;
+  }
+
+  /** Serializes the columns the way the parser used to: GenericRecord and GenericDatumWriter */
+  private static byte[] serializeGenericRecord(Schema schema, String[] values) throws Exception
+  {
+    GenericRecord record = new GenericData.Record(schema);
+    for (Schema.Field field: schema.getFields())
+    {
+      String value = values[field.pos()];
+      Object valueObj = null == value ? null : GGEventGenerationFactory.stringToAvroType(value, field);
+      if (valueObj instanceof byte[])
+      {
+        valueObj = ByteBuffer.wrap((byte[])valueObj);
+      }
+      record.put(field.name(), valueObj);
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    new GenericDatumWriter<GenericRecord>(schema).write(record, new BinaryEncoder(bos));
+    return bos.toByteArray();
+  }
+
+  private static byte[] convert(AvroConversionPlan plan, ColumnsState columnsState, String[] values)
+      throws DatabusException
+  {
+    plan.startRow();
+    // columns in the reverse order of the schema fields, with an extra column
+    plan.setColumn("EXTRA", "x", false, false);
+    for (int i = COLUMNS.length - 1; i >= 0; --i)
+    {
+      plan.setColumn(COLUMNS[i], values[i], i == 0, null == values[i]);
+    }
+    return plan.convert(columnsState, "TEST.PERSON");
+  }
+
+  @Test
+  public void testSameSerializationAsGenericRecord() throws Exception
+  {
+    AvroConversionPlan plan = createPlan(true);
+    String[][] rows = {
+        {"1", "name1", "30", "1.5", "2013-01-02:10:11:12.123456789", "1980-05-06:00:00:00", "0x0a1b0", "r"},
+        {"2", null, "0", null, null, null, null, "l"},
+        {"3", "", "-5", "0", "2013-01-02:10:11:12.1", "1980-05-06", "", null}
+    };
+
+    for (String[] row: rows)
+    {
+      ColumnsState columnsState = createColumnsState();
+      byte[] serialized = convert(plan, columnsState, row);
+      Assert.assertEquals(serialized, serializeGenericRecord(plan.getSchema(), row));
+      Assert.assertEquals(columnsState.getKeyPairs().size(), 1);
+      Assert.assertEquals(columnsState.getKeyPairs().get(0),
+                          new ColumnsState.KeyPair(Long.valueOf(row[0]), Schema.Type.LONG));
+      Assert.assertEquals(columnsState.isReplicated(), "r".equals(row[7]));
+      Assert.assertFalse(columnsState.isSeenMissingFields());
+
+      // the images decode the record with java Strings
+      DbUpdateState.DBUpdateImage image =
+          new DbUpdateState.DBUpdateImage(columnsState.getKeyPairs(), 1, serialized, plan.getSchema(),
+                                          DbUpdateState.DBUpdateImage.OpType.INSERT, false);
+      Assert.assertSame(image.getSerializedRecord(), serialized);
+      Assert.assertEquals(image.getGenericRecord().get("id"), Long.valueOf(row[0]));
+      Assert.assertEquals(image.getGenericRecord().get("name"), row[1]);
+    }
+  }
+
+  @Test
+  public void testImageWithoutRecord() throws Exception
+  {
+    ArrayList<ColumnsState.KeyPair> keyPairs = new ArrayList<ColumnsState.KeyPair>();
+    keyPairs.add(new ColumnsState.KeyPair(1L, Schema.Type.LONG));
+    DbUpdateState.DBUpdateImage image =
+        new DbUpdateState.DBUpdateImage(keyPairs, 1, (GenericRecord)null, createPlan(true).getSchema(),
+                                        DbUpdateState.DBUpdateImage.OpType.INSERT, false);
+    // the producer fails the event rather than hitting an NPE
+    Assert.assertNull(image.getSerializedRecord());
+    Assert.assertNull(image.getGenericRecord());
+  }
+
+  @Test
+  public void testMissingFields() throws Exception
+  {
+    String[] row = {"1", "name1", "30", "1.5", null, null, null, "r"};
+
+    // missing columns are nulls when errorOnMissingFields is false
+    AvroConversionPlan plan = createPlan(false);
+    ColumnsState columnsState = createColumnsState();
+    plan.startRow();
+    plan.setColumn("ID", "1", true, false);
+    plan.setColumn("NAME", "name1", false, false);
+    plan.setColumn("AGE", "30", false, false);
+    plan.setColumn("SCORE", "1.5", false, false);
+    plan.setColumn("GG_STATUS", "r", false, false);
+    Assert.assertEquals(plan.convert(columnsState, "TEST.PERSON"), serializeGenericRecord(plan.getSchema(), row));
+    Assert.assertTrue(columnsState.isSeenMissingFields());
+
+    // the columns of the previous dbUpdate are not reused
+    plan.startRow();
+    plan.setColumn("NAME", "name1", false, false);
+    try
+    {
+      plan.convert(createColumnsState(), "TEST.PERSON");
+      Assert.fail("missing primary key expected to fail");
+    }
+    catch (DatabusException e)
+    {
+      // expected
+    }
+
+    plan = createPlan(true);
+    plan.startRow();
+    plan.setColumn("ID", "1", true, false);
+    try
+    {
+      plan.convert(createColumnsState(), "TEST.PERSON");
+      Assert.fail("missing field expected to fail");
+    }
+    catch (DatabusException e)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUnsupportedValues() throws Exception
+  {
+    String schemaStr = SCHEMA.replace("\"type\":\"int\",\"meta\":\"dbFieldName=AGE;dbFieldType=INTEGER;\"",
+                                      "\"type\":[\"null\",\"int\"],\"meta\":\"dbFieldName=AGE;dbFieldType=TABLE;\"");
+    Schema schema = Schema.parse(schemaStr);
+    Assert.assertEquals(SchemaHelper.getMetaField(schema.getField("age"), "dbFieldType"), "TABLE");
+    ReplicationBitSetterStaticConfig replConfig =
+        new ReplicationBitSetterStaticConfig(ReplicationBitSetterStaticConfig.SourceType.NONE, "", "",
+                                             MissingValueBehavior.STOP_WITH_ERROR);
+    AvroConversionPlan plan = new AvroConversionPlan(schema, true, replConfig, Pattern.compile(""));
+
+    // null values of unsupported types are fine
+    String[] row = {"1", "name1", null, "1.5", null, null, null, "r"};
+    Assert.assertEquals(convert(plan, createColumnsState(), row), serializeGenericRecord(schema, row));
+
+    row[2] = "5";
+    try
+    {
+      convert(plan, createColumnsState(), row);
+      Assert.fail("TABLE values expected to fail");
+    }
+    catch (DatabusException e)
+    {
+      Assert.assertEquals(e.getMessage(), "TABLE type still not implemented!");
+    }
+  }
+}
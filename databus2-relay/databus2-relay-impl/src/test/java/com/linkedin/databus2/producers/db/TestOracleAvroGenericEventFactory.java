@@ -0,0 +1,168 @@
+package com.linkedin.databus2.producers.db;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.apache.avro.generic.GenericRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.databus2.producers.ConstantPartitionFunction;
+import com.linkedin.databus2.producers.EventCreationException;
+
+public class TestOracleAvroGenericEventFactory
+{
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"Person\",\"namespace\":\"com.linkedin.events.test\"," +
+      "\"meta\":\"dbFieldName=PERSON;pk=id;\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":\"int\",\"meta\":\"dbFieldName=ID;dbFieldPosition=0;\"}," +
+      "{\"name\":\"name\",\"type\":[\"null\",\"string\"],\"meta\":\"dbFieldName=NAME;dbFieldPosition=1;\"}," +
+      "{\"name\":\"score\",\"type\":\"double\",\"meta\":\"dbFieldName=SCORE;dbFieldPosition=2;\"}," +
+      "{\"name\":\"ratio\",\"type\":[\"float\",\"null\"],\"meta\":\"dbFieldName=RATIO;dbFieldPosition=3;\"}," +
+      "{\"name\":\"data\",\"type\":[\"null\",\"bytes\"],\"meta\":\"dbFieldName=DATA;dbFieldPosition=4;\"}," +
+      "{\"name\":\"created\",\"type\":[\"null\",\"long\"],\"meta\":\"dbFieldName=CREATED;dbFieldPosition=5;\"}," +
+      "{\"name\":\"active\",\"type\":\"boolean\",\"meta\":\"dbFieldName=ACTIVE;dbFieldPosition=6;\"}," +
+      "{\"name\":\"internal\",\"type\":[\"null\",\"string\"]}]}";
+
+  private static OracleAvroGenericEventFactory createFactory() throws Exception
+  {
+    return new OracleAvroGenericEventFactory((short)1, (short)1, SCHEMA, new ConstantPartitionFunction(),
+                                             null);
+  }
+
+  /** A single-row ResultSet backed by an array of column values */
+  private static ResultSet createRow(final String[] labels, final Object[] values)
+  {
+    final ResultSetMetaData meta = (ResultSetMetaData)Proxy.newProxyInstance(
+        ResultSetMetaData.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+        new InvocationHandler()
+        {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+          {
+            if (method.getName().equals("getColumnCount")) return labels.length;
+            if (method.getName().equals("getColumnLabel")) return labels[(Integer)args[0] - 1];
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+    return (ResultSet)Proxy.newProxyInstance(
+        ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+        new InvocationHandler()
+        {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+          {
+            if (method.getName().equals("getMetaData")) return meta;
+            if (method.getName().equals("getObject") && args[0] instanceof Integer)
+              return values[(Integer)args[0] - 1];
+            if (method.getName().equals("getObject"))
+            {
+              int idx = Arrays.asList(labels).indexOf(((String)args[0]).toUpperCase());
+              if (0 > idx) throw new SQLException("unknown column " + args[0]);
+              return values[idx];
+            }
+            if (method.getName().equals("toString")) return "row" + Arrays.toString(values);
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private static byte[] serializeGenericRecord(OracleAvroGenericEventFactory factory, ResultSet rs)
+      throws Exception
+  {
+    GenericRecord record = factory.buildGenericRecord(rs);
+    return factory.serializeEvent(record, 1, 1, rs, null, false, null);
+  }
+
+  @Test
+  public void testSameSerializationAsGenericRecord() throws Exception
+  {
+    OracleAvroGenericEventFactory factory = createFactory();
+    // columns in a different order than the schema fields, with an extra column
+    String[] labels = {"EXTRA", "NAME", "ID", "SCORE", "RATIO", "DATA", "CREATED", "ACTIVE"};
+    Object[][] rows = {
+        {"x", "name1", new BigDecimal(1), new BigDecimal("1.5"), 0.25f, new byte[]{1, 2, 3},
+         new Timestamp(123456789L), Boolean.TRUE},
+        {null, null, 2, 2.5, null, null, null, Boolean.FALSE},
+        {"y", "", Long.valueOf(3), 0, 1.0, new byte[0], new Timestamp(0), Boolean.TRUE}
+    };
+
+    for (Object[] row: rows)
+    {
+      ResultSet rs = createRow(labels, row);
+      OracleAvroGenericEventFactory.RowMappingPlan plan = factory.getRowMappingPlan(rs);
+      Assert.assertEquals(plan.serializeRow(rs), serializeGenericRecord(factory, rs));
+      Assert.assertEquals(plan.getKeyValue(), ((Number)row[2]).intValue());
+    }
+  }
+
+  @Test
+  public void testPlanReuse() throws Exception
+  {
+    OracleAvroGenericEventFactory factory = createFactory();
+    String[] labels = {"ID", "NAME", "SCORE", "RATIO", "DATA", "CREATED", "ACTIVE"};
+    Object[] row = {1, "name", 1.0, 1.0f, null, null, Boolean.TRUE};
+    ResultSet rs1 = createRow(labels, row);
+    ResultSet rs2 = createRow(labels, row);
+    OracleAvroGenericEventFactory.RowMappingPlan plan = factory.getRowMappingPlan(rs1);
+    Assert.assertSame(factory.getRowMappingPlan(rs1), plan);
+    Assert.assertSame(factory.getRowMappingPlan(rs2), plan);
+
+    // a ResultSet without some of the columns is read by column name, which fails as before
+    ResultSet rs3 = createRow(new String[]{"ID", "NAME"}, new Object[]{1, "name"});
+    OracleAvroGenericEventFactory.RowMappingPlan plan3 = factory.getRowMappingPlan(rs3);
+    Assert.assertNotSame(plan3, plan);
+    try
+    {
+      plan3.serializeRow(rs3);
+      Assert.fail("missing column expected");
+    }
+    catch (SQLException e)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testNullNotAllowed() throws Exception
+  {
+    OracleAvroGenericEventFactory factory = createFactory();
+    String[] labels = {"ID", "NAME", "SCORE", "RATIO", "DATA", "CREATED", "ACTIVE"};
+    ResultSet rs = createRow(labels, new Object[]{1, "name", null, 1.0f, null, null, Boolean.TRUE});
+    try
+    {
+      factory.getRowMappingPlan(rs).serializeRow(rs);
+      Assert.fail("null value for a non-nullable field expected to fail");
+    }
+    catch (EventCreationException e)
+    {
+      // expected
+    }
+  }
+}
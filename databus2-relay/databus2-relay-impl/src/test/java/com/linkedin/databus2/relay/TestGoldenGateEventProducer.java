@@ -36,12 +36,11 @@ import org.testng.annotations.Test;
 
 import com.linkedin.databus.core.DbusConstants;
 import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.DbusEventBatch;
 import com.linkedin.databus.core.DbusEventBuffer;
 import com.linkedin.databus.core.DbusEventBuffer.DbusEventIterator;
 import com.linkedin.databus.core.DbusEventBufferAppendable;
 import com.linkedin.databus.core.DbusEventBufferMult;
-import com.linkedin.databus.core.DbusEventInfo;
-import com.linkedin.databus.core.DbusEventKey;
 import com.linkedin.databus.core.DbusEventV2Factory;
 import com.linkedin.databus.core.UnsupportedKeyException;
 import com.linkedin.databus.core.util.FileUtils;
@@ -1387,7 +1386,7 @@ public class TestGoldenGateEventProducer {
         restartScnOffset, bsc.build(), ct, txnsPerChunk, scnChunkSize,
         chunkedScnThreshold, maxScnDelayMs, eventRatePerSec, eventRateThrottleDuration, dbusEventBuffer,
         largestEventSizeInBytes, largestWindowSizeInBytes,
-        errorOnMissingFields, xmlVersion, xmlEncoding, replicationBitSetter);
+        errorOnMissingFields, xmlVersion, xmlEncoding, replicationBitSetter, 0, null, 0);
     return pssc;
   }
 
@@ -1438,9 +1437,8 @@ public class TestGoldenGateEventProducer {
         return null;
       }
     });
-    DbusEventKey dek = EasyMock.createNiceMock(DbusEventKey.class);
     EasyMock.expect(
-        deba.appendEvent(dek, EasyMock.createNiceMock(DbusEventInfo.class),
+        deba.appendEvents(EasyMock.createNiceMock(DbusEventBatch.class),
             null)).andReturn(Boolean.TRUE);
 
     deba.endEvents(EasyMock.eq(scn), null);
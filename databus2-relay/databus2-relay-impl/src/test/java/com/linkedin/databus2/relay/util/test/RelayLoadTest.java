@@ -0,0 +1,790 @@
+package com.linkedin.databus2.relay.util.test;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.avro.Schema;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.linkedin.databus.client.DatabusHttpClientImpl;
+import com.linkedin.databus.client.consumer.AbstractDatabusCombinedConsumer;
+import com.linkedin.databus.client.pub.ConsumerCallbackResult;
+import com.linkedin.databus.client.pub.DbusEventDecoder;
+import com.linkedin.databus.container.netty.HttpRelay;
+import com.linkedin.databus.core.DbusEvent;
+import com.linkedin.databus.core.monitoring.LatencyHistogram;
+import com.linkedin.databus.core.monitoring.mbean.DbusEventsTotalStats;
+import com.linkedin.databus.core.util.ConfigBuilder;
+import com.linkedin.databus.core.util.ConfigLoader;
+import com.linkedin.databus.core.util.DatabusEventRandomProducer;
+import com.linkedin.databus.core.util.IdNamePair;
+import com.linkedin.databus.core.util.InvalidConfigException;
+import com.linkedin.databus.core.util.Utils;
+import com.linkedin.databus2.core.filter.DbusKeyCompositeFilterConfig;
+import com.linkedin.databus2.core.filter.KeyFilterConfigHolder;
+import com.linkedin.databus2.schemas.SchemaRegistryStaticConfig.RegistryType;
+import com.linkedin.databus2.schemas.VersionedSchema;
+import com.linkedin.databus2.schemas.VersionedSchemaSetBackedRegistryService;
+import com.linkedin.databus2.schemas.utils.SchemaHelper;
+import com.linkedin.databus2.test.TestUtil;
+
+/**
+ * An in-process end-to-end load test: an {@link HttpRelay} fed by a
+ * {@link DatabusEventRandomProducer} and a number of {@link DatabusHttpClientImpl} consumers
+ * in the same JVM, talking to the relay over the loopback interface.
+ *
+ * <p>After a warm-up period, the test measures for a fixed duration and reports as JSON:
+ * <ul>
+ *   <li>the consumed events/s and bytes/s (summed over all consumers)</li>
+ *   <li>the percentiles of the end-to-end latency from the event timestamp set by the producer to
+ *   the consumer callback</li>
+ *   <li>the number and time of GC collections and the JVM-wide allocation rate</li>
+ * </ul>
+ *
+ * <p>Usage: <code>RelayLoadTest [config.properties [results.json]]</code>; the settings are read
+ * from the properties file and the system properties with prefix {@link #CONFIG_PREFIX}, e.g.
+ * <code>-Ddatabus.loadtest.numConsumers=4</code>. See {@link Config} for the settings. The results
+ * are written to the results file if one is given and logged otherwise.
+ */
+public class RelayLoadTest
+{
+  public static final String MODULE = RelayLoadTest.class.getName();
+  public static final Logger LOG = Logger.getLogger(MODULE);
+
+  public static final String CONFIG_PREFIX = "databus.loadtest.";
+  public static final String SOURCE_NAME_PREFIX = "com.linkedin.events.loadtest.Source";
+  public static final short FIRST_SOURCE_ID = 101;
+
+  private static final String SOURCE_SCHEMA_TEMPLATE =
+      "{\"name\":\"Source%d\",\"namespace\":\"com.linkedin.events.loadtest\",\"type\":\"record\"," +
+      "\"fields\":[{\"name\":\"value\",\"type\":\"string\"}]}";
+
+  private final StaticConfig _config;
+  private final List<LoadTestConsumer> _consumers = new ArrayList<LoadTestConsumer>();
+  private final List<DatabusHttpClientImpl> _clients = new ArrayList<DatabusHttpClientImpl>();
+  private HttpRelay _relay;
+  private DatabusEventRandomProducer _producer;
+
+  public RelayLoadTest(StaticConfig config)
+  {
+    _config = config;
+  }
+
+  /** Runs the test and returns the results, keyed by metric name */
+  public Map<String, Object> run() throws Exception
+  {
+    try
+    {
+      startRelay();
+      startClients();
+      startProducer();
+
+      Thread.sleep(_config.getWarmupMs());
+      return measure();
+    }
+    finally
+    {
+      shutdown();
+    }
+  }
+
+  private List<IdNamePair> getSources()
+  {
+    List<IdNamePair> sources = new ArrayList<IdNamePair>(_config.getNumSources());
+    for (int i = 0; i < _config.getNumSources(); ++i)
+    {
+      sources.add(new IdNamePair((long)(FIRST_SOURCE_ID + i), SOURCE_NAME_PREFIX + (i + 1)));
+    }
+    return sources;
+  }
+
+  private void startRelay() throws Exception
+  {
+    int relayPort = _config.getRelayPort() > 0 ? _config.getRelayPort()
+                                               : Utils.getAvailablePort(11100);
+    HttpRelay.Config relayConfigBuilder =
+        DatabusRelayTestUtil.createHttpRelayConfig(DatabusRelayTestUtil.getRandomRelayId(),
+                                                   relayPort, _config.getRelayBufferSize());
+    relayConfigBuilder.setStartDbPuller("false");
+    if (_config.isPushStreaming())
+    {
+      relayConfigBuilder.getContainer().getTcp().setEnabled(true);
+      relayConfigBuilder.getContainer().getTcp().setPort(Utils.getAvailablePort(relayPort + 1));
+    }
+
+    VersionedSchemaSetBackedRegistryService schemaRegistry = new VersionedSchemaSetBackedRegistryService();
+    for (IdNamePair source: getSources())
+    {
+      relayConfigBuilder.setSourceName(source.getId().toString(), source.getName());
+      String schemaStr = String.format(SOURCE_SCHEMA_TEMPLATE, source.getId());
+      schemaRegistry.registerSchema(new VersionedSchema(source.getName(), (short)1,
+                                                        Schema.parse(schemaStr), null));
+    }
+    relayConfigBuilder.getSchemaRegistry().setType(RegistryType.EXISTING.toString());
+    relayConfigBuilder.getSchemaRegistry().useExistingService(schemaRegistry);
+
+    _relay = new HttpRelay(relayConfigBuilder, null);
+    _relay.start();
+    LOG.info("relay started on port " + relayPort);
+  }
+
+  private void startProducer() throws Exception
+  {
+    List<IdNamePair> sources = getSources();
+    Map<Long, byte[]> schemaIds = new HashMap<Long, byte[]>();
+    for (IdNamePair source: sources)
+    {
+      String schemaStr = _relay.getSchemaRegistryService().fetchLatestSchemaBySourceName(source.getName());
+      schemaIds.put(source.getId(), SchemaHelper.getSchemaId(Schema.parse(schemaStr).toString()));
+    }
+
+    DatabusEventRandomProducer.Config producerConfigBuilder = new DatabusEventRandomProducer.Config();
+    producerConfigBuilder.setMinLength(_config.getMinEventSize());
+    producerConfigBuilder.setMaxLength(_config.getMaxEventSize());
+    producerConfigBuilder.setMinEventsPerWindow(_config.getMinEventsPerWindow());
+    producerConfigBuilder.setMaxEventsPerWindow(_config.getMaxEventsPerWindow());
+
+    // generate until the end of the measurement with some margin
+    long durationMs = 2 * (_config.getWarmupMs() + _config.getDurationMs());
+    _producer = new DatabusEventRandomProducer(_relay.getEventBuffer(), 1, _config.getEventsPerSec(),
+                                               durationMs, sources, schemaIds,
+                                               producerConfigBuilder.build());
+    _producer.startGeneration(1, _config.getEventsPerSec(), durationMs, Long.MAX_VALUE,
+                              Integer.MAX_VALUE, 0, Long.MAX_VALUE, sources,
+                              _relay.getInboundEventStatisticsCollector());
+  }
+
+  private void startClients() throws Exception
+  {
+    List<IdNamePair> sources = getSources();
+    String[] sourceNames = new String[sources.size()];
+    StringBuilder relaySources = new StringBuilder();
+    for (int i = 0; i < sourceNames.length; ++i)
+    {
+      sourceNames[i] = sources.get(i).getName();
+      if (i > 0) relaySources.append(',');
+      relaySources.append(sourceNames[i]);
+    }
+
+    for (int i = 0; i < _config.getNumConsumers(); ++i)
+    {
+      DatabusHttpClientImpl.Config clientConfigBuilder = new DatabusHttpClientImpl.Config();
+      clientConfigBuilder.getContainer().setHttpPort(0);
+      clientConfigBuilder.getContainer().setId(1000 + i);
+      clientConfigBuilder.getContainer().getJmx().setRmiEnabled(false);
+      clientConfigBuilder.getCheckpointPersistence().setType(
+          DatabusHttpClientImpl.CheckpointPersistenceStaticConfig.ProviderType.NONE.toString());
+      clientConfigBuilder.getRuntime().getBootstrap().setEnabled(false);
+      clientConfigBuilder.getRuntime().getRelay("1").setHost("localhost");
+      clientConfigBuilder.getRuntime().getRelay("1").setPort(
+          _relay.getContainerStaticConfig().getHttpPort());
+      clientConfigBuilder.getRuntime().getRelay("1").setSources(relaySources.toString());
+      clientConfigBuilder.getConnectionDefaults().getEventBuffer().setMaxSize(_config.getClientBufferSize());
+      clientConfigBuilder.getConnectionDefaults().getEventBuffer().setAverageEventSize(
+          (int)Math.min(_config.getClientBufferSize() / 10, 10 * 1024 * 1024));
+      if (_config.isPushStreaming())
+      {
+        clientConfigBuilder.getConnectionDefaults().setRelayPushPort(
+            _relay.getContainerStaticConfig().getTcp().getPort());
+      }
+
+      DbusKeyCompositeFilterConfig filterConfig = null;
+      if (_config.getNumPartitions() > 0)
+      {
+        // each consumer gets a server-side MOD partition of the key space
+        int bucket = i % _config.getNumPartitions();
+        filterConfig = new DbusKeyCompositeFilterConfig();
+        for (String sourceName: sourceNames)
+        {
+          KeyFilterConfigHolder.Config partConfig = new KeyFilterConfigHolder.Config();
+          partConfig.setType("MOD");
+          partConfig.getMod().setNumBuckets(_config.getNumPartitions());
+          partConfig.getMod().setBuckets("[" + bucket + "," + bucket + "]");
+          filterConfig.addFilterConfig(sourceName, new KeyFilterConfigHolder(partConfig.build()));
+        }
+      }
+
+      DatabusHttpClientImpl client = new DatabusHttpClientImpl(clientConfigBuilder);
+      LoadTestConsumer consumer = new LoadTestConsumer(_config.getConsumerWorkNs());
+      client.registerDatabusStreamListener(consumer, filterConfig, sourceNames);
+      client.start();
+      _clients.add(client);
+      _consumers.add(consumer);
+    }
+  }
+
+  private Map<String, Object> measure() throws InterruptedException
+  {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    for (LoadTestConsumer consumer: _consumers)
+    {
+      consumer.reset();
+    }
+    DbusEventsTotalStats relayStats = _relay.getInboundEventStatisticsCollector().getTotalStats();
+    long producedStart = relayStats.getNumDataEvents();
+    long gcCountStart = getGcCount();
+    long gcTimeStart = getGcTimeMs();
+    long allocStart = getAllocatedBytes(threadBean);
+    long startTime = System.nanoTime();
+
+    Thread.sleep(_config.getDurationMs());
+
+    long elapsedNs = System.nanoTime() - startTime;
+    long allocBytes = getAllocatedBytes(threadBean) - allocStart;
+    long gcCount = getGcCount() - gcCountStart;
+    long gcTimeMs = getGcTimeMs() - gcTimeStart;
+    long produced = relayStats.getNumDataEvents() - producedStart;
+
+    long numEvents = 0;
+    long numBytes = 0;
+    LatencyHistogram latency = new LatencyHistogram();
+    for (LoadTestConsumer consumer: _consumers)
+    {
+      numEvents += consumer.getNumEvents();
+      numBytes += consumer.getNumBytes();
+      latency.merge(consumer.getLatencyHistogram());
+    }
+    double elapsedSec = elapsedNs / 1000000000.0;
+
+    Map<String, Object> result = new LinkedHashMap<String, Object>();
+    result.put("durationMs", elapsedNs / 1000000);
+    result.put("numConsumers", _config.getNumConsumers());
+    result.put("numSources", _config.getNumSources());
+    result.put("numPartitions", _config.getNumPartitions());
+    result.put("pushStreaming", _config.isPushStreaming());
+    result.put("targetEventsPerSec", _config.getEventsPerSec());
+    result.put("producedEventsPerSec", produced / elapsedSec);
+    result.put("consumedEventsPerSec", numEvents / elapsedSec);
+    result.put("consumedBytesPerSec", numBytes / elapsedSec);
+    result.put("latencyMs_count", latency.getCount());
+    result.put("latencyMs_mean", latency.getMean());
+    result.put("latencyMs_p50", latency.getPerc50());
+    result.put("latencyMs_p90", latency.getPerc90());
+    result.put("latencyMs_p99", latency.getPerc99());
+    result.put("latencyMs_p999", latency.getPerc999());
+    result.put("latencyMs_max", latency.getMax());
+    result.put("gcCount", gcCount);
+    result.put("gcTimeMs", gcTimeMs);
+    result.put("allocatedBytesPerSec", allocBytes >= 0 ? allocBytes / elapsedSec : -1);
+    result.put("allocatedBytesPerEvent", allocBytes >= 0 && numEvents > 0 ? allocBytes / numEvents : -1);
+    return result;
+  }
+
+  private void shutdown()
+  {
+    if (null != _producer)
+    {
+      _producer.stopGeneration();
+    }
+    for (DatabusHttpClientImpl client: _clients)
+    {
+      try
+      {
+        client.shutdown();
+      }
+      catch (RuntimeException e)
+      {
+        LOG.error("client shutdown error: " + e, e);
+      }
+    }
+    if (null != _relay)
+    {
+      _relay.shutdown();
+    }
+  }
+
+  private static long getGcCount()
+  {
+    long result = 0;
+    for (GarbageCollectorMXBean gcBean: ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      result += Math.max(0, gcBean.getCollectionCount());
+    }
+    return result;
+  }
+
+  private static long getGcTimeMs()
+  {
+    long result = 0;
+    for (GarbageCollectorMXBean gcBean: ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      result += Math.max(0, gcBean.getCollectionTime());
+    }
+    return result;
+  }
+
+  /**
+   * The bytes allocated so far by the live threads of the JVM or -1 if the JVM does not support
+   * allocation accounting. Allocations by threads which exit during the measurement are not
+   * included.
+   */
+  private static long getAllocatedBytes(ThreadMXBean threadBean)
+  {
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+    {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean)threadBean;
+    if (!sunThreadBean.isThreadAllocatedMemorySupported() || !sunThreadBean.isThreadAllocatedMemoryEnabled())
+    {
+      return -1;
+    }
+    long result = 0;
+    for (long allocated: sunThreadBean.getThreadAllocatedBytes(sunThreadBean.getAllThreadIds()))
+    {
+      result += Math.max(0, allocated);
+    }
+    return result;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    TestUtil.setupLogging(true, null, Level.WARN);
+    LOG.setLevel(Level.INFO);
+
+    Properties props = new Properties();
+    if (args.length > 0)
+    {
+      FileInputStream propsIn = new FileInputStream(args[0]);
+      try
+      {
+        props.load(propsIn);
+      }
+      finally
+      {
+        propsIn.close();
+      }
+    }
+    props.putAll(System.getProperties());
+
+    ConfigLoader<StaticConfig> configLoader = new ConfigLoader<StaticConfig>(CONFIG_PREFIX, new Config());
+    StaticConfig config = configLoader.loadConfig(props);
+
+    String result = new ObjectMapper().writeValueAsString(new RelayLoadTest(config).run());
+    if (args.length > 1)
+    {
+      FileWriter resultOut = new FileWriter(args[1]);
+      try
+      {
+        resultOut.write(result);
+      }
+      finally
+      {
+        resultOut.close();
+      }
+      LOG.info("results written to " + args[1]);
+    }
+    else
+    {
+      LOG.info("results: " + result);
+    }
+    System.exit(0);
+  }
+
+  /** Counts the events and bytes and records the end-to-end latency of each event */
+  public static class LoadTestConsumer extends AbstractDatabusCombinedConsumer
+  {
+    private final long _workNs;
+    private final AtomicLong _numEvents = new AtomicLong(0);
+    private final AtomicLong _numBytes = new AtomicLong(0);
+    private final LatencyHistogram _latencyHist = new LatencyHistogram();
+
+    public LoadTestConsumer(long workNs)
+    {
+      _workNs = workNs;
+    }
+
+    @Override
+    public ConsumerCallbackResult onDataEvent(DbusEvent e, DbusEventDecoder eventDecoder)
+    {
+      _latencyHist.record(System.currentTimeMillis() - e.timestampInNanos() / 1000000);
+      _numEvents.incrementAndGet();
+      _numBytes.addAndGet(e.size());
+      if (_workNs > 0)
+      {
+        // simulates the processing of the event by the application
+        long end = System.nanoTime() + _workNs;
+        while (System.nanoTime() < end);
+      }
+      return ConsumerCallbackResult.SUCCESS;
+    }
+
+    public void reset()
+    {
+      _numEvents.set(0);
+      _numBytes.set(0);
+      _latencyHist.reset();
+    }
+
+    public long getNumEvents()
+    {
+      return _numEvents.get();
+    }
+
+    public long getNumBytes()
+    {
+      return _numBytes.get();
+    }
+
+    public LatencyHistogram getLatencyHistogram()
+    {
+      return _latencyHist;
+    }
+  }
+
+  public static class StaticConfig
+  {
+    private final long _durationMs;
+    private final long _warmupMs;
+    private final int _eventsPerSec;
+    private final int _minEventSize;
+    private final int _maxEventSize;
+    private final int _minEventsPerWindow;
+    private final int _maxEventsPerWindow;
+    private final int _numSources;
+    private final int _numConsumers;
+    private final int _numPartitions;
+    private final long _consumerWorkNs;
+    private final long _relayBufferSize;
+    private final long _clientBufferSize;
+    private final int _relayPort;
+    private final boolean _pushStreaming;
+
+    public StaticConfig(long durationMs, long warmupMs, int eventsPerSec, int minEventSize,
+                        int maxEventSize, int minEventsPerWindow, int maxEventsPerWindow,
+                        int numSources, int numConsumers, int numPartitions, long consumerWorkNs,
+                        long relayBufferSize, long clientBufferSize, int relayPort,
+                        boolean pushStreaming)
+    {
+      _durationMs = durationMs;
+      _warmupMs = warmupMs;
+      _eventsPerSec = eventsPerSec;
+      _minEventSize = minEventSize;
+      _maxEventSize = maxEventSize;
+      _minEventsPerWindow = minEventsPerWindow;
+      _maxEventsPerWindow = maxEventsPerWindow;
+      _numSources = numSources;
+      _numConsumers = numConsumers;
+      _numPartitions = numPartitions;
+      _consumerWorkNs = consumerWorkNs;
+      _relayBufferSize = relayBufferSize;
+      _clientBufferSize = clientBufferSize;
+      _relayPort = relayPort;
+      _pushStreaming = pushStreaming;
+    }
+
+    /** The length of the measurement */
+    public long getDurationMs()
+    {
+      return _durationMs;
+    }
+
+    /** The time between the start of the producer and the start of the measurement */
+    public long getWarmupMs()
+    {
+      return _warmupMs;
+    }
+
+    /** The target rate of the producer */
+    public int getEventsPerSec()
+    {
+      return _eventsPerSec;
+    }
+
+    /** The min payload size of the generated events */
+    public int getMinEventSize()
+    {
+      return _minEventSize;
+    }
+
+    /** The max payload size (exclusive) of the generated events */
+    public int getMaxEventSize()
+    {
+      return _maxEventSize;
+    }
+
+    public int getMinEventsPerWindow()
+    {
+      return _minEventsPerWindow;
+    }
+
+    public int getMaxEventsPerWindow()
+    {
+      return _maxEventsPerWindow;
+    }
+
+    /** The number of sources; all consumers subscribe to all sources */
+    public int getNumSources()
+    {
+      return _numSources;
+    }
+
+    /** The number of consumers; each has its own client instance and relay connection */
+    public int getNumConsumers()
+    {
+      return _numConsumers;
+    }
+
+    /**
+     * The number of MOD partitions of the key space; if positive, consumer i uses a server-side
+     * filter for partition i % numPartitions; 0 disables filtering
+     */
+    public int getNumPartitions()
+    {
+      return _numPartitions;
+    }
+
+    /** The CPU time spent by the consumers per event */
+    public long getConsumerWorkNs()
+    {
+      return _consumerWorkNs;
+    }
+
+    public long getRelayBufferSize()
+    {
+      return _relayBufferSize;
+    }
+
+    public long getClientBufferSize()
+    {
+      return _clientBufferSize;
+    }
+
+    /** The relay HTTP port; 0 picks an available port */
+    public int getRelayPort()
+    {
+      return _relayPort;
+    }
+
+    /** Whether the consumers receive events pushed over the relay TCP interface */
+    public boolean isPushStreaming()
+    {
+      return _pushStreaming;
+    }
+  }
+
+  public static class Config implements ConfigBuilder<StaticConfig>
+  {
+    private long _durationMs = 30000;
+    private long _warmupMs = 10000;
+    private int _eventsPerSec = 10000;
+    private int _minEventSize = 1000;
+    private int _maxEventSize = 1001;
+    private int _minEventsPerWindow = 10;
+    private int _maxEventsPerWindow = 11;
+    private int _numSources = 1;
+    private int _numConsumers = 1;
+    private int _numPartitions = 0;
+    private long _consumerWorkNs = 0;
+    private long _relayBufferSize = 256 * 1024 * 1024;
+    private long _clientBufferSize = 32 * 1024 * 1024;
+    private int _relayPort = 0;
+    private boolean _pushStreaming = false;
+
+    public long getDurationMs()
+    {
+      return _durationMs;
+    }
+
+    public void setDurationMs(long durationMs)
+    {
+      _durationMs = durationMs;
+    }
+
+    public long getWarmupMs()
+    {
+      return _warmupMs;
+    }
+
+    public void setWarmupMs(long warmupMs)
+    {
+      _warmupMs = warmupMs;
+    }
+
+    public int getEventsPerSec()
+    {
+      return _eventsPerSec;
+    }
+
+    public void setEventsPerSec(int eventsPerSec)
+    {
+      _eventsPerSec = eventsPerSec;
+    }
+
+    public int getMinEventSize()
+    {
+      return _minEventSize;
+    }
+
+    public void setMinEventSize(int minEventSize)
+    {
+      _minEventSize = minEventSize;
+    }
+
+    public int getMaxEventSize()
+    {
+      return _maxEventSize;
+    }
+
+    public void setMaxEventSize(int maxEventSize)
+    {
+      _maxEventSize = maxEventSize;
+    }
+
+    public int getMinEventsPerWindow()
+    {
+      return _minEventsPerWindow;
+    }
+
+    public void setMinEventsPerWindow(int minEventsPerWindow)
+    {
+      _minEventsPerWindow = minEventsPerWindow;
+    }
+
+    public int getMaxEventsPerWindow()
+    {
+      return _maxEventsPerWindow;
+    }
+
+    public void setMaxEventsPerWindow(int maxEventsPerWindow)
+    {
+      _maxEventsPerWindow = maxEventsPerWindow;
+    }
+
+    public int getNumSources()
+    {
+      return _numSources;
+    }
+
+    public void setNumSources(int numSources)
+    {
+      _numSources = numSources;
+    }
+
+    public int getNumConsumers()
+    {
+      return _numConsumers;
+    }
+
+    public void setNumConsumers(int numConsumers)
+    {
+      _numConsumers = numConsumers;
+    }
+
+    public int getNumPartitions()
+    {
+      return _numPartitions;
+    }
+
+    public void setNumPartitions(int numPartitions)
+    {
+      _numPartitions = numPartitions;
+    }
+
+    public long getConsumerWorkNs()
+    {
+      return _consumerWorkNs;
+    }
+
+    public void setConsumerWorkNs(long consumerWorkNs)
+    {
+      _consumerWorkNs = consumerWorkNs;
+    }
+
+    public long getRelayBufferSize()
+    {
+      return _relayBufferSize;
+    }
+
+    public void setRelayBufferSize(long relayBufferSize)
+    {
+      _relayBufferSize = relayBufferSize;
+    }
+
+    public long getClientBufferSize()
+    {
+      return _clientBufferSize;
+    }
+
+    public void setClientBufferSize(long clientBufferSize)
+    {
+      _clientBufferSize = clientBufferSize;
+    }
+
+    public int getRelayPort()
+    {
+      return _relayPort;
+    }
+
+    public void setRelayPort(int relayPort)
+    {
+      _relayPort = relayPort;
+    }
+
+    public boolean isPushStreaming()
+    {
+      return _pushStreaming;
+    }
+
+    public void setPushStreaming(boolean pushStreaming)
+    {
+      _pushStreaming = pushStreaming;
+    }
+
+    @Override
+    public StaticConfig build() throws InvalidConfigException
+    {
+      if (_durationMs <= 0) throw new InvalidConfigException("invalid durationMs: " + _durationMs);
+      if (_eventsPerSec <= 0) throw new InvalidConfigException("invalid eventsPerSec: " + _eventsPerSec);
+      if (_minEventSize <= 0 || _maxEventSize <= _minEventSize)
+      {
+        throw new InvalidConfigException("invalid event size range: [" + _minEventSize + ", " +
+                                         _maxEventSize + ")");
+      }
+      if (_minEventsPerWindow <= 0 || _maxEventsPerWindow <= _minEventsPerWindow)
+      {
+        throw new InvalidConfigException("invalid events per window range: [" + _minEventsPerWindow +
+                                         ", " + _maxEventsPerWindow + ")");
+      }
+      if (_numSources <= 0) throw new InvalidConfigException("invalid numSources: " + _numSources);
+      if (_numConsumers <= 0) throw new InvalidConfigException("invalid numConsumers: " + _numConsumers);
+      if (_numPartitions < 0) throw new InvalidConfigException("invalid numPartitions: " + _numPartitions);
+
+      return new StaticConfig(_durationMs, _warmupMs, _eventsPerSec, _minEventSize, _maxEventSize,
+                              _minEventsPerWindow, _maxEventsPerWindow, _numSources, _numConsumers,
+                              _numPartitions, _consumerWorkNs, _relayBufferSize, _clientBufferSize,
+                              _relayPort, _pushStreaming);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.linkedin.databus2.ggParser;
+/*
+ *
+ * Copyright 2013 LinkedIn Corp. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.avro.Schema;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linkedin.databus.core.DbusConstants;
+import com.linkedin.databus.monitoring.mbean.GGParserStatistics.TransactionInfo;
+import com.linkedin.databus2.ggParser.XmlStateMachine.DbUpdateState;
+import com.linkedin.databus2.ggParser.XmlStateMachine.TransactionState;
+import com.linkedin.databus2.ggParser.XmlStateMachine.TransactionSuccessCallBack;
+import com.linkedin.databus2.ggParser.staxparser.XmlParser;
+import com.linkedin.databus2.relay.config.ReplicationBitSetterConfig;
+import com.linkedin.databus2.relay.config.ReplicationBitSetterStaticConfig;
+import com.linkedin.databus2.schemas.VersionedSchema;
+import com.linkedin.databus2.schemas.VersionedSchemaSetBackedRegistryService;
+
+/**
+ * Replays a GoldenGate xml trail through the parser and serializes every dbUpdate the way
+ * {@link com.linkedin.databus2.relay.GoldenGateEventProducer} does. Each operation parses the
+ * whole trail; the trail is generated in memory in the format of the relay test data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GGTrailReplayBenchmark
+{
+  private static final String TABLE = "MEMBER2.TEST";
+  private static final String SOURCE_NAME = "com.linkedin.events.member2.test.test";
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"test_V1\",\"namespace\":\"com.linkedin.events.member2.test\"," +
+      "\"meta\":\"dbFieldName=sy$_Test;pk=id\",\"fields\":[" +
+      "{\"name\":\"id\",\"type\":[\"long\",\"null\"],\"meta\":\"dbFieldName=ID;dbFieldPosition=0;dbFieldType=LONG;\"}," +
+      "{\"name\":\"fname\",\"type\":[\"string\",\"null\"],\"meta\":\"dbFieldName=FNAME;dbFieldPosition=1;dbFieldType=VARCHAR2;\"}," +
+      "{\"name\":\"lname\",\"type\":[\"string\",\"null\"],\"meta\":\"dbFieldName=LNAME;dbFieldPosition=2;dbFieldType=VARCHAR2;\"}," +
+      "{\"name\":\"X1\",\"type\":[\"string\",\"null\"],\"meta\":\"dbFieldName=X1;dbFieldPosition=3;dbFieldType=XMLType;\"}," +
+      "{\"name\":\"numConnections\",\"type\":[\"int\",\"null\"],\"meta\":\"dbFieldName=NUM_CONNECTIONS;dbFieldPosition=4;dbFieldType=INTEGER;\"}," +
+      "{\"name\":\"birthDate\",\"type\":[\"long\",\"null\"],\"meta\":\"dbFieldName=BIRTH_DATE;dbFieldPosition=5;dbFieldType=DATE;\"}," +
+      "{\"name\":\"ggModiTs\",\"type\":[\"long\",\"null\"],\"meta\":\"dbFieldName=GG_MODI_TS;dbFieldPosition=6;dbFieldType=TIMESTAMP;\"}," +
+      "{\"name\":\"ggStatus\",\"type\":[\"string\",\"null\"],\"meta\":\"dbFieldName=GG_STATUS;dbFieldPosition=7;dbFieldType=VARCHAR2;\"}]}";
+
+  @Param({"1000"})
+  public int _numTransactions;
+
+  @Param({"4"})
+  public int _dbUpdatesPerTransaction;
+
+  private byte[] _trail;
+  private VersionedSchemaSetBackedRegistryService _schemaRegistry;
+  private HashMap<String, String> _tableToNamespace;
+  private HashMap<String, Integer> _tableToSourceId;
+  private ReplicationBitSetterStaticConfig _replicationConfig;
+  private XMLInputFactory _xmlInputFactory;
+  private SerializingCallback _callback;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    Logger.getRootLogger().setLevel(Level.WARN);
+
+    _schemaRegistry = new VersionedSchemaSetBackedRegistryService();
+    _schemaRegistry.registerSchema(new VersionedSchema(SOURCE_NAME, (short)1, Schema.parse(SCHEMA), SCHEMA));
+    _tableToNamespace = new HashMap<String, String>();
+    _tableToNamespace.put(TABLE, SOURCE_NAME);
+    _tableToSourceId = new HashMap<String, Integer>();
+    _tableToSourceId.put(TABLE, 401);
+    ReplicationBitSetterConfig replConfig = new ReplicationBitSetterConfig();
+    replConfig.setFieldName("GG_STATUS");
+    replConfig.setSourceType("NONE");
+    _replicationConfig = replConfig.build();
+
+    _xmlInputFactory = XMLInputFactory.newInstance();
+    _xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    _callback = new SerializingCallback();
+
+    StringBuilder trail = new StringBuilder();
+    trail.append("<?xml version=\"").append(DbusConstants.XML_VERSION).append("\" encoding=\"")
+         .append(DbusConstants.ISO_8859_1).append("\"?><root>\n");
+    long id = 1;
+    for (int i = 0; i < _numTransactions; ++i)
+    {
+      trail.append("<transaction timestamp=\"2013-02-06:23:49:23.000000\">\n");
+      for (int j = 0; j < _dbUpdatesPerTransaction; ++j, ++id)
+      {
+        trail.append("  <dbupdate table=\"").append(TABLE).append("\" type=\"insert\">\n")
+             .append("    <columns>\n")
+             .append("      <column name=\"ID\" key=\"true\">").append(id).append("</column>\n")
+             .append("      <column name=\"FNAME\">first").append(id).append("</column>\n")
+             .append("      <column name=\"LNAME\">last").append(id).append("</column>\n")
+             .append("      <column name=\"X1\">&lt;xml&gt;test&lt;/xml&gt;</column>\n")
+             .append("      <column name=\"NUM_CONNECTIONS\">").append(id % 500).append("</column>\n")
+             .append("      <column name=\"BIRTH_DATE\">1980-05-06:00:00:00</column>\n")
+             .append("      <column name=\"GG_MODI_TS\">2013-02-06:23:49:23.147940000</column>\n")
+             .append("      <column name=\"GG_STATUS\">O</column>\n")
+             .append("    </columns>\n")
+             .append("    <tokens>\n")
+             .append("      <token name=\"TK-XID\">1.9.").append(i).append("</token>\n")
+             .append("      <token name=\"TK-CSN\">").append(1000 + i).append("</token>\n")
+             .append("    </tokens>\n")
+             .append("  </dbupdate>\n");
+      }
+      trail.append("</transaction>\n");
+    }
+    trail.append("</root>");
+    _trail = trail.toString().getBytes(DbusConstants.ISO_8859_1);
+  }
+
+  @Benchmark
+  public long replayTrail() throws Exception
+  {
+    _callback._serializedBytes = 0;
+    ByteArrayInputStream input = new ByteArrayInputStream(_trail);
+    XMLStreamReader xmlStreamReader = _xmlInputFactory.createXMLStreamReader(input);
+    XmlParser parser = new XmlParser(xmlStreamReader, _schemaRegistry, _tableToNamespace, _tableToSourceId,
+                                     _callback, true, _replicationConfig, input);
+    try
+    {
+      parser.start();
+    }
+    catch (XMLStreamException e)
+    {
+      // the parser expects an endless trail and fails on the end of the document
+    }
+    return _callback._serializedBytes;
+  }
+
+  /** Serializes the records of the dbUpdates of each transaction */
+  private static class SerializingCallback implements TransactionSuccessCallBack
+  {
+    long _serializedBytes;
+
+    @Override
+    public void onTransactionEnd(List<TransactionState.PerSourceTransactionalUpdate> dbUpdates,
+                                 TransactionInfo trInfo) throws Exception
+    {
+      if (null == dbUpdates)
+      {
+        return;
+      }
+      for (TransactionState.PerSourceTransactionalUpdate perSourceUpdate: dbUpdates)
+      {
+        for (DbUpdateState.DBUpdateImage dbUpdate: perSourceUpdate.getDbUpdatesSet())
+        {
+          _serializedBytes += dbUpdate.getSerializedRecord().length;
+        }
+      }
+    }
+  }
+}